@@ -0,0 +1,106 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy;
+
+import java.util.Arrays;
+
+import jenergy.analysis.Analyzer;
+import jenergy.benchmark.StreamBenchmark;
+import jenergy.calibration.Calibration;
+import jenergy.flamegraph.FlameGraph;
+import jenergy.trace.ChromeTrace;
+import jenergy.trace.TraceConverter;
+
+/**
+ * The command line entry point of the profiler's tools: <code>java -jar jenergy.jar &lt;command&gt; [arguments]</code>.
+ */
+public final class Main
+{
+    /**
+     * Private constructor to avoid instance of this class.
+     */
+    private Main()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Executes the given command.
+     * 
+     * @param args
+     *            The command followed by its arguments.
+     * @throws Exception
+     *             If the command fails.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length == 0)
+        {
+            usage();
+            return;
+        }
+
+        final String[] arguments = Arrays.copyOfRange(args, 1, args.length);
+
+        if ("calibrate".equalsIgnoreCase(args[0]))
+        {
+            Calibration.main(arguments);
+        }
+        else if ("benchmark".equalsIgnoreCase(args[0]))
+        {
+            StreamBenchmark.main(arguments);
+        }
+        else if ("convert".equalsIgnoreCase(args[0]))
+        {
+            TraceConverter.main(arguments);
+        }
+        else if ("flamegraph".equalsIgnoreCase(args[0]))
+        {
+            FlameGraph.main(arguments);
+        }
+        else if ("chrome".equalsIgnoreCase(args[0]))
+        {
+            ChromeTrace.main(arguments);
+        }
+        else if ("analyze".equalsIgnoreCase(args[0]))
+        {
+            Analyzer.main(arguments);
+        }
+        else
+        {
+            usage();
+        }
+    }
+
+    /**
+     * Prints the available commands.
+     */
+    private static void usage()
+    {
+        System.out.println("Usage: java -jar jenergy.jar <command> [arguments]");
+        System.out.println();
+        System.out.println("Commands:");
+        System.out.println("  calibrate [file]    fits the energy model coefficients on this machine and writes them to the calibration file");
+        System.out.println("  benchmark [n]       measures the overhead of the stream advices on opening n small file streams");
+        System.out.println("  convert <trace> [csv|json] [output]  converts a binary trace or a directory of event logs to CSV or JSON lines");
+        System.out.println("  flamegraph <stacks> [svg] [energy|cpu|time|allocation] [title]  renders collapsed stacks as an SVG flame graph");
+        System.out.println("  chrome <events> [output] [--trace <trace>] [--min-duration <us>]  writes the invocation timeline as trace event JSON");
+        System.out.println("  analyze <outputs>... [--top <n>] [--output <file>] [--threads <n>]  merges the outputs of a run and ranks the methods");
+    }
+}
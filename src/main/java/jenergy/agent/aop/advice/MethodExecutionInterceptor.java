@@ -23,12 +23,19 @@ import java.lang.management.ThreadMXBean;
 import java.lang.reflect.Method;
 
 import jenergy.agent.common.Cpu;
+import jenergy.profile.ThreadProfiler;
 import jenergy.profile.data.MethodInfo;
 import jenergy.profile.data.Period;
 import jenergy.profile.data.Times;
 
 public abstract class MethodExecutionInterceptor
 {
+    /**
+     * The JVM's thread bean when it measures the bytes allocated by each thread or <code>null</code> otherwise. The support is checked once, as
+     * the bean throws an {@link UnsupportedOperationException} on every call when it's not supported.
+     */
+    private static final com.sun.management.ThreadMXBean ALLOCATION_BEAN = allocationBean();
+
     /**
      * @param method
      *            Represents the join point to be intercepted.
@@ -66,6 +73,8 @@ public abstract class MethodExecutionInterceptor
                 called.getTimes().setUserTime(new Period(bean.getCurrentThreadUserTime()));
             }
 
+            called.startAllocationTracking(allocatedBytes(tid));
+
             if (caller != null)
             {
                 caller.getTimer().suspend();
@@ -77,7 +86,11 @@ public abstract class MethodExecutionInterceptor
         finally
         {
             called.getTimer().stop();
-            Cpu.getInstance().getThreadProfiler(tid).popStack();
+            called.closeChannelActivities();
+
+            final ThreadProfiler profiler = Cpu.getInstance().getThreadProfiler(tid);
+            profiler.getMethodMemory(called.getMethodName()).addAllocatedBytes(called.stopAllocationTracking(allocatedBytes(tid)));
+            profiler.popStack();
             
             if (bean != null)
             {
@@ -88,6 +101,8 @@ public abstract class MethodExecutionInterceptor
                 called.getTimes().getUserTime().setEndTime(userTime);
             }
 
+            profiler.onMethodExit(called);
+
             if ("main".equalsIgnoreCase(method.getName()))
             {
                 Cpu.getInstance().getThreadProfiler(tid).stop(called.getTimes().getUserTime().time());
@@ -102,6 +117,36 @@ public abstract class MethodExecutionInterceptor
         return result;
     }
 
+    /**
+     * Returns the JVM's thread bean if it provides the {@link com.sun.management.ThreadMXBean} extension and supports the measurement of the bytes
+     * allocated by each thread.
+     * 
+     * @return The JVM's thread bean or <code>null</code> if the allocated bytes per thread are not available.
+     */
+    private static com.sun.management.ThreadMXBean allocationBean()
+    {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        if (bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported())
+        {
+            return (com.sun.management.ThreadMXBean) bean;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of bytes allocated in the heap by the given thread. It is only available when the JVM provides the
+     * {@link com.sun.management.ThreadMXBean} extension and supports the measurement.
+     * 
+     * @param tid
+     *            The thread id.
+     * @return The number of bytes allocated in the heap by the given thread or <code>-1</code> if it is not available or not enabled.
+     */
+    private static long allocatedBytes(long tid)
+    {
+        return ALLOCATION_BEAN != null && ALLOCATION_BEAN.isThreadAllocatedMemoryEnabled() ? ALLOCATION_BEAN.getThreadAllocatedBytes(tid) : -1;
+    }
+
     /**
      * 
      * @param invoker
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.aop.aspectj.aspects;
+
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+
+import jenergy.agent.common.io.DiskActivity;
+import jenergy.profile.data.IOInfo.IOActivityType;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * Accounts the bytes read and written through {@link FileChannel}s as disk activity of the method that called the channel, with the time spent
+ * in each call. The channels returned by {@link java.nio.file.Files#newByteChannel(java.nio.file.Path, java.nio.file.OpenOption...)} are usually
+ * called through their {@link SeekableByteChannel} interface, so these calls are accounted when the channel is a {@link FileChannel}.
+ */
+@Aspect
+public class FileChannelAspect
+{
+    /**
+     * Accounts the {@link FileChannel} operations that read into one or many buffers or that transfer the file to another channel.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param channel
+     *            The channel.
+     * @return The number of bytes read or <code>-1</code> at the end of the file.
+     * @throws Throwable
+     *             If the channel cannot be read.
+     */
+    @Around("(call(* java.nio.channels.FileChannel+.read(..)) || call(long java.nio.channels.FileChannel+.transferTo(..))) && target(channel)"
+            + " && !within(jenergy..*)")
+    public Object aroundRead(final ProceedingJoinPoint thisJoinPoint, Object channel) throws Throwable
+    {
+        return timed(thisJoinPoint, IOActivityType.READ, channel);
+    }
+
+    /**
+     * Accounts the {@link FileChannel} operations that write one or many buffers or that transfer another channel to the file.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param channel
+     *            The channel.
+     * @return The number of bytes written.
+     * @throws Throwable
+     *             If the channel cannot be written.
+     */
+    @Around("(call(* java.nio.channels.FileChannel+.write(..)) || call(long java.nio.channels.FileChannel+.transferFrom(..))) && target(channel)"
+            + " && !within(jenergy..*)")
+    public Object aroundWrite(final ProceedingJoinPoint thisJoinPoint, Object channel) throws Throwable
+    {
+        return timed(thisJoinPoint, IOActivityType.WRITE, channel);
+    }
+
+    /**
+     * Accounts the bytes read by a {@link FileChannel} called through its {@link SeekableByteChannel} interface.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param channel
+     *            The channel.
+     * @return The number of bytes read or <code>-1</code> at the end of the file.
+     * @throws Throwable
+     *             If the channel cannot be read.
+     */
+    @Around("call(int java.nio.channels.SeekableByteChannel+.read(..)) && !call(* java.nio.channels.FileChannel+.*(..)) && target(channel)"
+            + " && !within(jenergy..*)")
+    public Object aroundSeekableRead(final ProceedingJoinPoint thisJoinPoint, Object channel) throws Throwable
+    {
+        return channel instanceof FileChannel ? timed(thisJoinPoint, IOActivityType.READ, channel) : thisJoinPoint.proceed();
+    }
+
+    /**
+     * Accounts the bytes written by a {@link FileChannel} called through its {@link SeekableByteChannel} interface.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param channel
+     *            The channel.
+     * @return The number of bytes written.
+     * @throws Throwable
+     *             If the channel cannot be written.
+     */
+    @Around("call(int java.nio.channels.SeekableByteChannel+.write(..)) && !call(* java.nio.channels.FileChannel+.*(..)) && target(channel)"
+            + " && !within(jenergy..*)")
+    public Object aroundSeekableWrite(final ProceedingJoinPoint thisJoinPoint, Object channel) throws Throwable
+    {
+        return channel instanceof FileChannel ? timed(thisJoinPoint, IOActivityType.WRITE, channel) : thisJoinPoint.proceed();
+    }
+
+    /**
+     * Runs a channel operation and accounts its bytes and the time spent in it.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint of the operation.
+     * @param type
+     *            The type of the operation.
+     * @param channel
+     *            The channel.
+     * @return The number of bytes returned by the operation.
+     * @throws Throwable
+     *             If the operation fails. Failed operations are not accounted.
+     */
+    private static Object timed(final ProceedingJoinPoint thisJoinPoint, IOActivityType type, Object channel) throws Throwable
+    {
+        final long start = System.nanoTime();
+        final Object result = thisJoinPoint.proceed();
+        DiskActivity.record(type, ((Number) result).longValue(), System.nanoTime() - start, channel);
+        return result;
+    }
+}
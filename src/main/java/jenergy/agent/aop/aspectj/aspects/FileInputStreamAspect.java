@@ -18,10 +18,11 @@
  */
 package jenergy.agent.aop.aspectj.aspects;
 
-import jenergy.agent.aop.aspectj.util.AspectjUtils;
+import java.io.FileInputStream;
+
 import jenergy.agent.common.Cpu;
 import jenergy.agent.common.io.FileInputStreamDelegate;
-import jenergy.profile.data.MethodInfo;
+import jenergy.profile.ThreadProfiler;
 
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -31,7 +32,8 @@ import org.aspectj.lang.annotation.Aspect;
 public class FileInputStreamAspect
 {
     /**
-     * Around advice to replace all instances of {@link java.io.FileInputStream} by {@link FileInputStreamDelegate}. This is a runtime advice.
+     * Around advice to replace all instances of {@link java.io.FileInputStream} by {@link FileInputStreamDelegate}. This is a runtime advice. The
+     * threads that are not profiled get a delegate without method.
      * 
      * @param thisJoinPoint
      *            The joinpoint reference.
@@ -43,10 +45,9 @@ public class FileInputStreamAspect
     @Around("call(java.io.FileInputStream+.new(..)) && !within(jenergy..*)")
     public Object invoke(final ProceedingJoinPoint thisJoinPoint) throws Throwable
     {
-        MethodInfo method = Cpu.getInstance().currentThread().peekMethodInfo();
-        FileInputStreamDelegate instance = AspectjUtils.newInstance(thisJoinPoint, FileInputStreamDelegate.class, thisJoinPoint.proceed(), method);
-        instance.getClass().getDeclaredMethod("attach", jenergy.agent.common.util.Observer.class).invoke(instance, instance.getInfo());
-        return instance;
+        final ThreadProfiler profiler = Cpu.getInstance().currentThread();
+        return FileInputStreamDelegate.wrap((FileInputStream) thisJoinPoint.proceed(), thisJoinPoint.getArgs(), profiler != null ? profiler
+                .peekMethodInfo() : null);
     }
 
 }
@@ -19,29 +19,23 @@
 package jenergy.agent.aop.aspectj.aspects;
 
 
-import jenergy.agent.aop.aspectj.util.AspectjUtils;
+import java.io.FileOutputStream;
+
 import jenergy.agent.common.Cpu;
 import jenergy.agent.common.io.FileOutputStreamDelegate;
-import jenergy.agent.common.util.Observer;
-import jenergy.agent.common.util.Subject;
+import jenergy.profile.ThreadProfiler;
 
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.DeclareParents;
 
 @Aspect
 public class FileOutputStreamAspect
 {
 
     /**
-     * Declare the {@link FileOutputStreamDelegate} as a {@link Subject}.
-     */
-    @DeclareParents(value = "jenergy.agent.common.io.FileOutputStreamDelegate")
-    private Subject subject;
-
-    /**
-     * Around advice to replace all instances of {@link java.io.FileOutputStream} by {@link FileOutputStreamDelegate}. This is a runtime advice.
+     * Around advice to replace all instances of {@link java.io.FileOutputStream} by {@link FileOutputStreamDelegate}. This is a runtime advice. The
+     * threads that are not profiled get a delegate without method.
      * 
      * @param thisJoinPoint
      *            The joinpoint reference.
@@ -53,55 +47,8 @@ public class FileOutputStreamAspect
     @Around("call(java.io.FileOutputStream+.new(..)) && !within(jenergy..*) && !within(org.aspectj..*)")
     public Object invoke(final ProceedingJoinPoint thisJoinPoint) throws Throwable
     {
-        FileOutputStreamDelegate output = AspectjUtils.newInstance(thisJoinPoint, FileOutputStreamDelegate.class, thisJoinPoint.proceed(), Cpu
-                .getInstance().currentThread().peekMethodInfo());
-        output.getClass().getDeclaredMethod("attach", jenergy.agent.common.util.Observer.class).invoke(output, output.getInfo());
-        return output;
-    }
-
-    /**
-     * 
-     * @param thisJoinPoint
-     *            The joint point reference.
-     * @return Returns <code>null</code> since the return type of the advice method is {@link Void}.
-     * @throws Throwable
-     *             May throw any exceptions declared by the joinpoint itself. If this exception is not declared and is not a runtime exception, it
-     *             will be encapsulated in a {@link RuntimeException} before being thrown to the basis system.
-     */
-    @Around(value = "execution(void jenergy.agent.common.io.FileOutputStreamDelegate.write(..))")
-    public Object aroundFileOutputStreamWriteOperation(final ProceedingJoinPoint thisJoinPoint) throws Throwable
-    {
-        Object[] args = thisJoinPoint.getArgs();
-        Subject observable = (Subject) thisJoinPoint.getTarget();
-
-        Object methodReturn = thisJoinPoint.proceed(args);
-
-        for (Observer obs : observable.getObservers())
-        {
-            int value;
-
-            if (args.length == 3)
-            {
-                value = (Integer) args[2] - (Integer) args[1];
-            }
-            else
-            {
-                if (args[0].getClass().isArray())
-                {
-                    value = ((byte[]) args[0]).length * 4;
-                }
-                else if (Integer.class.isAssignableFrom(args[0].getClass()))
-                {
-                    value = (Integer) args[0];
-                }
-                else
-                {
-                    throw new RuntimeException("Unknown FileOuputStream's write method!");
-                }
-            }
-
-            obs.update(observable, value);
-        }
-        return methodReturn;
+        final ThreadProfiler profiler = Cpu.getInstance().currentThread();
+        return FileOutputStreamDelegate.wrap((FileOutputStream) thisJoinPoint.proceed(), thisJoinPoint.getArgs(), profiler != null ? profiler
+                .peekMethodInfo() : null);
     }
 }
@@ -0,0 +1,252 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.aop.aspectj.aspects;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import jenergy.agent.common.Cpu;
+import jenergy.agent.common.io.DiskActivity;
+import jenergy.agent.common.io.FilePaths;
+import jenergy.agent.common.io.PathInputStreamDelegate;
+import jenergy.agent.common.io.PathOutputStreamDelegate;
+import jenergy.profile.ThreadProfiler;
+import jenergy.profile.data.IOInfo.IOActivityType;
+import jenergy.profile.data.MethodInfo;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * Accounts the I/O done through {@link Files} as disk activity. The streams returned by {@link Files} are replaced by delegates that count their
+ * bytes, the channels are registered with their path for the {@link FileChannelAspect}, and the operations that read or write a whole file are
+ * accounted with the time spent in them when they return.
+ */
+@Aspect
+public class FilesAspect
+{
+    /**
+     * Replaces the streams returned by {@link Files#newInputStream(Path, java.nio.file.OpenOption...)} by a {@link PathInputStreamDelegate}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param path
+     *            The path of the file.
+     * @return A {@link PathInputStreamDelegate} of the opened stream.
+     * @throws Throwable
+     *             If the file cannot be opened.
+     */
+    @Around("call(java.io.InputStream java.nio.file.Files.newInputStream(java.nio.file.Path, ..)) && args(path, ..) && !within(jenergy..*)")
+    public Object aroundNewInputStream(final ProceedingJoinPoint thisJoinPoint, Path path) throws Throwable
+    {
+        return new PathInputStreamDelegate((InputStream) thisJoinPoint.proceed(), path, currentMethod());
+    }
+
+    /**
+     * Replaces the streams returned by {@link Files#newOutputStream(Path, java.nio.file.OpenOption...)} by a {@link PathOutputStreamDelegate}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param path
+     *            The path of the file.
+     * @return A {@link PathOutputStreamDelegate} of the opened stream.
+     * @throws Throwable
+     *             If the file cannot be opened.
+     */
+    @Around("call(java.io.OutputStream java.nio.file.Files.newOutputStream(java.nio.file.Path, ..)) && args(path, ..) && !within(jenergy..*)")
+    public Object aroundNewOutputStream(final ProceedingJoinPoint thisJoinPoint, Path path) throws Throwable
+    {
+        return new PathOutputStreamDelegate((OutputStream) thisJoinPoint.proceed(), path, currentMethod());
+    }
+
+    /**
+     * Registers the path of the channels opened by {@link Files#newByteChannel(Path, java.nio.file.OpenOption...)} and
+     * {@link java.nio.channels.FileChannel#open(Path, java.nio.file.OpenOption...)}.
+     * 
+     * @param path
+     *            The path of the file.
+     * @param channel
+     *            The opened channel.
+     */
+    @AfterReturning(pointcut = "(call(* java.nio.file.Files.newByteChannel(java.nio.file.Path, ..)) || "
+            + "call(* java.nio.channels.FileChannel.open(java.nio.file.Path, ..))) && args(path, ..) && !within(jenergy..*)", returning = "channel")
+    public void afterNewByteChannel(Path path, Object channel)
+    {
+        FilePaths.register(channel, path);
+    }
+
+    /**
+     * Accounts the bytes read by {@link Files#readAllBytes(Path)}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param path
+     *            The path of the file.
+     * @return The content of the file.
+     * @throws Throwable
+     *             If the file cannot be read.
+     */
+    @Around("call(byte[] java.nio.file.Files.readAllBytes(java.nio.file.Path)) && args(path) && !within(jenergy..*)")
+    public Object aroundReadAllBytes(final ProceedingJoinPoint thisJoinPoint, Path path) throws Throwable
+    {
+        final long start = System.nanoTime();
+        final byte[] bytes = (byte[]) thisJoinPoint.proceed();
+        DiskActivity.record(IOActivityType.READ, bytes.length, System.nanoTime() - start, path);
+        return bytes;
+    }
+
+    /**
+     * Accounts the bytes written by {@link Files#write(Path, byte[], java.nio.file.OpenOption...)}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param path
+     *            The path of the file.
+     * @param bytes
+     *            The bytes written.
+     * @return The path of the file.
+     * @throws Throwable
+     *             If the file cannot be written.
+     */
+    @Around("call(java.nio.file.Path java.nio.file.Files.write(java.nio.file.Path, byte[], ..)) && args(path, bytes, ..) && !within(jenergy..*)")
+    public Object aroundWrite(final ProceedingJoinPoint thisJoinPoint, Path path, byte[] bytes) throws Throwable
+    {
+        final long start = System.nanoTime();
+        final Object result = thisJoinPoint.proceed();
+        DiskActivity.record(IOActivityType.WRITE, bytes.length, System.nanoTime() - start, path);
+        return result;
+    }
+
+    /**
+     * Accounts the bytes written by {@link Files#write(Path, Iterable, java.nio.charset.Charset, java.nio.file.OpenOption...)}. The number of bytes
+     * is the growth of the file, or its size when it was truncated.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param path
+     *            The path of the file.
+     * @return The path of the file.
+     * @throws Throwable
+     *             If the file cannot be written.
+     */
+    @Around("call(java.nio.file.Path java.nio.file.Files.write(java.nio.file.Path, java.lang.Iterable, ..)) && args(path, ..) "
+            + "&& !within(jenergy..*)")
+    public Object aroundWriteLines(final ProceedingJoinPoint thisJoinPoint, Path path) throws Throwable
+    {
+        final long before = Files.isRegularFile(path) ? Files.size(path) : 0;
+        final long start = System.nanoTime();
+        final Object result = thisJoinPoint.proceed();
+        final long nanos = System.nanoTime() - start;
+        final long after = Files.size(path);
+
+        DiskActivity.record(IOActivityType.WRITE, after >= before ? after - before : after, nanos, path);
+        return result;
+    }
+
+    /**
+     * Accounts the bytes copied by {@link Files#copy(Path, Path, java.nio.file.CopyOption...)}: the size of the source is read from it and written
+     * to the target. The reads and the writes of the copy are interleaved, so the time spent in it is shared by the two operations.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param source
+     *            The copied file.
+     * @param target
+     *            The new file.
+     * @return The path of the new file.
+     * @throws Throwable
+     *             If the file cannot be copied.
+     */
+    @Around("call(java.nio.file.Path java.nio.file.Files.copy(java.nio.file.Path, java.nio.file.Path, ..)) && args(source, target, ..) "
+            + "&& !within(jenergy..*)")
+    public Object aroundCopy(final ProceedingJoinPoint thisJoinPoint, Path source, Path target) throws Throwable
+    {
+        final long start = System.nanoTime();
+        final Object result = thisJoinPoint.proceed();
+        final long nanos = System.nanoTime() - start;
+
+        try
+        {
+            final long size = Files.size(target);
+            DiskActivity.record(IOActivityType.READ, size, nanos / 2, source);
+            DiskActivity.record(IOActivityType.WRITE, size, nanos - nanos / 2, target);
+        }
+        catch (IOException exception)
+        {
+            System.err.printf("Could not account the copy of %s: %s%n", source, exception.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * Accounts the bytes written by {@link Files#copy(InputStream, Path, java.nio.file.CopyOption...)}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param target
+     *            The new file.
+     * @return The number of bytes written.
+     * @throws Throwable
+     *             If the stream cannot be copied.
+     */
+    @Around("call(long java.nio.file.Files.copy(java.io.InputStream, java.nio.file.Path, ..)) && args(*, target, ..) && !within(jenergy..*)")
+    public Object aroundCopyFromStream(final ProceedingJoinPoint thisJoinPoint, Path target) throws Throwable
+    {
+        final long start = System.nanoTime();
+        final Object result = thisJoinPoint.proceed();
+        DiskActivity.record(IOActivityType.WRITE, ((Long) result).longValue(), System.nanoTime() - start, target);
+        return result;
+    }
+
+    /**
+     * Accounts the bytes read by {@link Files#copy(Path, OutputStream)}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param source
+     *            The copied file.
+     * @return The number of bytes read.
+     * @throws Throwable
+     *             If the file cannot be copied.
+     */
+    @Around("call(long java.nio.file.Files.copy(java.nio.file.Path, java.io.OutputStream)) && args(source, *) && !within(jenergy..*)")
+    public Object aroundCopyToStream(final ProceedingJoinPoint thisJoinPoint, Path source) throws Throwable
+    {
+        final long start = System.nanoTime();
+        final Object result = thisJoinPoint.proceed();
+        DiskActivity.record(IOActivityType.READ, ((Long) result).longValue(), System.nanoTime() - start, source);
+        return result;
+    }
+
+    /**
+     * Returns the method that is executing in the current thread.
+     * 
+     * @return The method that is executing in the current thread or <code>null</code> if the thread is not profiled.
+     */
+    private static MethodInfo currentMethod()
+    {
+        final ThreadProfiler profiler = Cpu.getInstance().currentThread();
+        return profiler != null ? profiler.peekMethodInfo() : null;
+    }
+}
@@ -0,0 +1,238 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.aop.aspectj.aspects;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CompletionHandler;
+import java.util.concurrent.Future;
+
+import jenergy.agent.common.net.NetworkActivity;
+import jenergy.agent.common.net.NetworkCompletionHandler;
+import jenergy.agent.common.net.NetworkFuture;
+import jenergy.profile.data.IOInfo.IOActivityType;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * Accounts the bytes sent and received through {@link java.nio.channels.SocketChannel}s, {@link java.nio.channels.DatagramChannel}s and
+ * {@link java.nio.channels.AsynchronousSocketChannel}s, and the time spent in the operations, as network activity of the method that called the
+ * channel. The asynchronous operations are charged to the method that started them when they complete.
+ */
+@Aspect
+public class NetworkChannelAspect
+{
+    /**
+     * Accounts the bytes received by the read operations of the socket and datagram channels, including the ones called through the
+     * {@link java.nio.channels.ReadableByteChannel} and {@link java.nio.channels.ScatteringByteChannel} interfaces.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @return The number of bytes read.
+     * @throws Throwable
+     *             May throw any exceptions declared by the joinpoint itself.
+     */
+    @Around("call(* java.nio.channels.ReadableByteChannel+.read(..)) && !call(* java.nio.channels.FileChannel+.*(..)) && !within(jenergy..*)")
+    public Object aroundRead(final ProceedingJoinPoint thisJoinPoint) throws Throwable
+    {
+        final Object channel = thisJoinPoint.getTarget();
+
+        if (!NetworkActivity.isNetworkChannel(channel))
+        {
+            return thisJoinPoint.proceed();
+        }
+
+        final long start = System.nanoTime();
+        final Object result = thisJoinPoint.proceed();
+        NetworkActivity.record(IOActivityType.READ, ((Number) result).longValue(), System.nanoTime() - start, channel);
+        return result;
+    }
+
+    /**
+     * Accounts the bytes sent by the write operations of the socket and datagram channels, including the ones called through the
+     * {@link java.nio.channels.WritableByteChannel} and {@link java.nio.channels.GatheringByteChannel} interfaces.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @return The number of bytes written.
+     * @throws Throwable
+     *             May throw any exceptions declared by the joinpoint itself.
+     */
+    @Around("call(* java.nio.channels.WritableByteChannel+.write(..)) && !call(* java.nio.channels.FileChannel+.*(..)) && !within(jenergy..*)")
+    public Object aroundWrite(final ProceedingJoinPoint thisJoinPoint) throws Throwable
+    {
+        final Object channel = thisJoinPoint.getTarget();
+
+        if (!NetworkActivity.isNetworkChannel(channel))
+        {
+            return thisJoinPoint.proceed();
+        }
+
+        final long start = System.nanoTime();
+        final Object result = thisJoinPoint.proceed();
+        NetworkActivity.record(IOActivityType.WRITE, ((Number) result).longValue(), System.nanoTime() - start, channel);
+        return result;
+    }
+
+    /**
+     * Accounts the bytes of the datagrams received by the datagram channels.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @return The address of the datagram's source or <code>null</code> if no datagram was available.
+     * @throws Throwable
+     *             May throw any exceptions declared by the joinpoint itself.
+     */
+    @Around("call(java.net.SocketAddress java.nio.channels.DatagramChannel+.receive(java.nio.ByteBuffer)) && !within(jenergy..*)")
+    public Object aroundReceive(final ProceedingJoinPoint thisJoinPoint) throws Throwable
+    {
+        final ByteBuffer buffer = (ByteBuffer) thisJoinPoint.getArgs()[0];
+        final int position = buffer.position();
+        final long start = System.nanoTime();
+        final SocketAddress source = (SocketAddress) thisJoinPoint.proceed();
+
+        if (source != null)
+        {
+            NetworkActivity.record(IOActivityType.READ, buffer.position() - position, System.nanoTime() - start, source);
+        }
+        return source;
+    }
+
+    /**
+     * Accounts the bytes of the datagrams sent by the datagram channels.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @return The number of bytes sent.
+     * @throws Throwable
+     *             May throw any exceptions declared by the joinpoint itself.
+     */
+    @Around("call(int java.nio.channels.DatagramChannel+.send(java.nio.ByteBuffer, java.net.SocketAddress)) && !within(jenergy..*)")
+    public Object aroundSend(final ProceedingJoinPoint thisJoinPoint) throws Throwable
+    {
+        final long start = System.nanoTime();
+        final Object result = thisJoinPoint.proceed();
+        NetworkActivity.record(IOActivityType.WRITE, ((Number) result).longValue(), System.nanoTime() - start, thisJoinPoint.getArgs()[1]);
+        return result;
+    }
+
+    /**
+     * Wraps the handler of the asynchronous reads to account the bytes received when the read completes.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @return Returns <code>null</code> since the operation returns {@link Void}.
+     * @throws Throwable
+     *             May throw any exceptions declared by the joinpoint itself.
+     */
+    @Around("call(void java.nio.channels.AsynchronousSocketChannel+.read(..)) && !within(jenergy..*)")
+    public Object aroundAsyncRead(final ProceedingJoinPoint thisJoinPoint) throws Throwable
+    {
+        return thisJoinPoint.proceed(wrapHandler(thisJoinPoint, IOActivityType.READ));
+    }
+
+    /**
+     * Wraps the handler of the asynchronous writes to account the bytes sent when the write completes.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @return Returns <code>null</code> since the operation returns {@link Void}.
+     * @throws Throwable
+     *             May throw any exceptions declared by the joinpoint itself.
+     */
+    @Around("call(void java.nio.channels.AsynchronousSocketChannel+.write(..)) && !within(jenergy..*)")
+    public Object aroundAsyncWrite(final ProceedingJoinPoint thisJoinPoint) throws Throwable
+    {
+        return thisJoinPoint.proceed(wrapHandler(thisJoinPoint, IOActivityType.WRITE));
+    }
+
+    /**
+     * Wraps the future of the asynchronous reads to account the bytes received when the application gets the result.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @return The wrapped {@link Future} of the operation.
+     * @throws Throwable
+     *             May throw any exceptions declared by the joinpoint itself.
+     */
+    @Around("call(java.util.concurrent.Future java.nio.channels.AsynchronousSocketChannel+.read(..)) && !within(jenergy..*)")
+    public Object aroundAsyncReadFuture(final ProceedingJoinPoint thisJoinPoint) throws Throwable
+    {
+        return wrapFuture(thisJoinPoint, IOActivityType.READ);
+    }
+
+    /**
+     * Wraps the future of the asynchronous writes to account the bytes sent when the application gets the result.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @return The wrapped {@link Future} of the operation.
+     * @throws Throwable
+     *             May throw any exceptions declared by the joinpoint itself.
+     */
+    @Around("call(java.util.concurrent.Future java.nio.channels.AsynchronousSocketChannel+.write(..)) && !within(jenergy..*)")
+    public Object aroundAsyncWriteFuture(final ProceedingJoinPoint thisJoinPoint) throws Throwable
+    {
+        return wrapFuture(thisJoinPoint, IOActivityType.WRITE);
+    }
+
+    /**
+     * Returns the arguments of an asynchronous operation with its {@link CompletionHandler}, always the last argument, wrapped by a
+     * {@link NetworkCompletionHandler}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param type
+     *            The type of the operation.
+     * @return The arguments to proceed the operation.
+     */
+    @SuppressWarnings("unchecked")
+    private static Object[] wrapHandler(ProceedingJoinPoint thisJoinPoint, IOActivityType type)
+    {
+        final Object[] args = thisJoinPoint.getArgs();
+        final int last = args.length - 1;
+
+        if (args[last] instanceof CompletionHandler)
+        {
+            args[last] = new NetworkCompletionHandler<Object, Object>((CompletionHandler<Object, Object>) args[last], NetworkActivity.startAsync(
+                    type, thisJoinPoint.getTarget()));
+        }
+        return args;
+    }
+
+    /**
+     * Proceeds an asynchronous operation and wraps its {@link Future} by a {@link NetworkFuture}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param type
+     *            The type of the operation.
+     * @return The wrapped {@link Future} of the operation.
+     * @throws Throwable
+     *             May throw any exceptions declared by the joinpoint itself.
+     */
+    @SuppressWarnings("unchecked")
+    private static Object wrapFuture(ProceedingJoinPoint thisJoinPoint, IOActivityType type) throws Throwable
+    {
+        final Future<Object> future = (Future<Object>) thisJoinPoint.proceed();
+        return new NetworkFuture<Object>(future, NetworkActivity.startAsync(type, thisJoinPoint.getTarget()));
+    }
+}
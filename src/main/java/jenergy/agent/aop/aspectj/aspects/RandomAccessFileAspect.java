@@ -0,0 +1,457 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.aop.aspectj.aspects;
+
+import java.io.RandomAccessFile;
+
+import jenergy.agent.common.io.DataSizes;
+import jenergy.agent.common.io.DiskActivity;
+import jenergy.agent.common.io.FilePaths;
+import jenergy.profile.data.IOInfo.IOActivityType;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * Accounts the bytes read and written through {@link RandomAccessFile}s as disk activity of the method that called the file, with the time
+ * spent in each operation. The typed operations of {@link java.io.DataInput} and {@link java.io.DataOutput} are accounted with the size of
+ * their primitive or of their encoded string. The path of each file is registered when it's opened, so the operations are charged with the
+ * profile of its device.
+ */
+@Aspect
+public class RandomAccessFileAspect
+{
+    /**
+     * Registers the path of an opened {@link RandomAccessFile}.
+     * 
+     * @param path
+     *            The name or the {@link java.io.File} given to the constructor.
+     * @param file
+     *            The opened file.
+     */
+    @AfterReturning(pointcut = "call(java.io.RandomAccessFile+.new(..)) && args(path, ..) && !within(jenergy..*)", returning = "file")
+    public void afterOpen(Object path, RandomAccessFile file)
+    {
+        FilePaths.register(file, path);
+    }
+
+    /**
+     * Registers the path of the channel of a {@link RandomAccessFile}, so the {@link FileChannelAspect} knows the path of its operations.
+     * 
+     * @param file
+     *            The file.
+     * @param channel
+     *            The channel of the file.
+     */
+    @AfterReturning(pointcut = "call(java.nio.channels.FileChannel java.io.RandomAccessFile+.getChannel()) && target(file) && !within(jenergy..*)",
+            returning = "channel")
+    public void afterGetChannel(RandomAccessFile file, Object channel)
+    {
+        FilePaths.register(channel, file);
+    }
+
+    /**
+     * Accounts the byte read by {@link RandomAccessFile#read()}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param file
+     *            The file.
+     * @return The byte read or <code>-1</code> at the end of the file.
+     * @throws Throwable
+     *             If the file cannot be read.
+     */
+    @Around("call(int java.io.RandomAccessFile+.read()) && target(file) && !within(jenergy..*)")
+    public Object aroundReadByte(final ProceedingJoinPoint thisJoinPoint, RandomAccessFile file) throws Throwable
+    {
+        final long start = System.nanoTime();
+        final Object result = thisJoinPoint.proceed();
+        DiskActivity.record(IOActivityType.READ, ((Integer) result).intValue() < 0 ? -1 : 1, System.nanoTime() - start, file);
+        return result;
+    }
+
+    /**
+     * Accounts the bytes read into an array.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param file
+     *            The file.
+     * @return The number of bytes read or <code>-1</code> at the end of the file.
+     * @throws Throwable
+     *             If the file cannot be read.
+     */
+    @Around("call(int java.io.RandomAccessFile+.read(byte[], ..)) && target(file) && !within(jenergy..*)")
+    public Object aroundRead(final ProceedingJoinPoint thisJoinPoint, RandomAccessFile file) throws Throwable
+    {
+        final long start = System.nanoTime();
+        final Object result = thisJoinPoint.proceed();
+        DiskActivity.record(IOActivityType.READ, ((Integer) result).intValue(), System.nanoTime() - start, file);
+        return result;
+    }
+
+    /**
+     * Accounts the bytes read by {@link RandomAccessFile#readFully(byte[])}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param file
+     *            The file.
+     * @param b
+     *            The buffer filled by the operation.
+     * @throws Throwable
+     *             If the file cannot be read or ends before the buffer is filled.
+     */
+    @Around("call(void java.io.RandomAccessFile+.readFully(byte[])) && target(file) && args(b) && !within(jenergy..*)")
+    public void aroundReadFully(final ProceedingJoinPoint thisJoinPoint, RandomAccessFile file, byte[] b) throws Throwable
+    {
+        timed(thisJoinPoint, IOActivityType.READ, b.length, file);
+    }
+
+    /**
+     * Accounts the bytes read by {@link RandomAccessFile#readFully(byte[], int, int)}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param file
+     *            The file.
+     * @param len
+     *            The number of bytes read.
+     * @throws Throwable
+     *             If the file cannot be read or ends before the bytes are read.
+     */
+    @Around("call(void java.io.RandomAccessFile+.readFully(byte[], int, int)) && target(file) && args(*, *, len) && !within(jenergy..*)")
+    public void aroundReadFully(final ProceedingJoinPoint thisJoinPoint, RandomAccessFile file, int len) throws Throwable
+    {
+        timed(thisJoinPoint, IOActivityType.READ, len, file);
+    }
+
+    /**
+     * Accounts the byte written by {@link RandomAccessFile#write(int)}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param file
+     *            The file.
+     * @throws Throwable
+     *             If the file cannot be written.
+     */
+    @Around("call(void java.io.RandomAccessFile+.write(int)) && target(file) && !within(jenergy..*)")
+    public void aroundWriteByte(final ProceedingJoinPoint thisJoinPoint, RandomAccessFile file) throws Throwable
+    {
+        timed(thisJoinPoint, IOActivityType.WRITE, 1, file);
+    }
+
+    /**
+     * Accounts the bytes written by {@link RandomAccessFile#write(byte[])}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param file
+     *            The file.
+     * @param b
+     *            The bytes written.
+     * @throws Throwable
+     *             If the file cannot be written.
+     */
+    @Around("call(void java.io.RandomAccessFile+.write(byte[])) && target(file) && args(b) && !within(jenergy..*)")
+    public void aroundWrite(final ProceedingJoinPoint thisJoinPoint, RandomAccessFile file, byte[] b) throws Throwable
+    {
+        timed(thisJoinPoint, IOActivityType.WRITE, b.length, file);
+    }
+
+    /**
+     * Accounts the bytes written by {@link RandomAccessFile#write(byte[], int, int)}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param file
+     *            The file.
+     * @param len
+     *            The number of bytes written.
+     * @throws Throwable
+     *             If the file cannot be written.
+     */
+    @Around("call(void java.io.RandomAccessFile+.write(byte[], int, int)) && target(file) && args(*, *, len) && !within(jenergy..*)")
+    public void aroundWrite(final ProceedingJoinPoint thisJoinPoint, RandomAccessFile file, int len) throws Throwable
+    {
+        timed(thisJoinPoint, IOActivityType.WRITE, len, file);
+    }
+
+    /**
+     * Accounts the byte read by {@link RandomAccessFile#readBoolean()}, {@link RandomAccessFile#readByte()}
+     * and {@link RandomAccessFile#readUnsignedByte()}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param file
+     *            The file.
+     * @return The value read.
+     * @throws Throwable
+     *             If the file cannot be read.
+     */
+    @Around("(call(* java.io.RandomAccessFile+.readBoolean()) || call(* java.io.RandomAccessFile+.readByte()) || "
+            + "call(* java.io.RandomAccessFile+.readUnsignedByte())) && target(file) && !within(jenergy..*)")
+    public Object aroundReadBoolean(final ProceedingJoinPoint thisJoinPoint, RandomAccessFile file) throws Throwable
+    {
+        return timed(thisJoinPoint, IOActivityType.READ, 1, file);
+    }
+
+    /**
+     * Accounts the 2 bytes read by {@link RandomAccessFile#readChar()}, {@link RandomAccessFile#readShort()}
+     * and {@link RandomAccessFile#readUnsignedShort()}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param file
+     *            The file.
+     * @return The value read.
+     * @throws Throwable
+     *             If the file cannot be read.
+     */
+    @Around("(call(* java.io.RandomAccessFile+.readChar()) || call(* java.io.RandomAccessFile+.readShort()) || "
+            + "call(* java.io.RandomAccessFile+.readUnsignedShort())) && target(file) && !within(jenergy..*)")
+    public Object aroundReadShort(final ProceedingJoinPoint thisJoinPoint, RandomAccessFile file) throws Throwable
+    {
+        return timed(thisJoinPoint, IOActivityType.READ, 2, file);
+    }
+
+    /**
+     * Accounts the 4 bytes read by {@link RandomAccessFile#readInt()} and {@link RandomAccessFile#readFloat()}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param file
+     *            The file.
+     * @return The value read.
+     * @throws Throwable
+     *             If the file cannot be read.
+     */
+    @Around("(call(* java.io.RandomAccessFile+.readInt()) || call(* java.io.RandomAccessFile+.readFloat()))"
+            + " && target(file) && !within(jenergy..*)")
+    public Object aroundReadInt(final ProceedingJoinPoint thisJoinPoint, RandomAccessFile file) throws Throwable
+    {
+        return timed(thisJoinPoint, IOActivityType.READ, 4, file);
+    }
+
+    /**
+     * Accounts the 8 bytes read by {@link RandomAccessFile#readLong()} and {@link RandomAccessFile#readDouble()}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param file
+     *            The file.
+     * @return The value read.
+     * @throws Throwable
+     *             If the file cannot be read.
+     */
+    @Around("(call(* java.io.RandomAccessFile+.readLong()) || call(* java.io.RandomAccessFile+.readDouble()))"
+            + " && target(file) && !within(jenergy..*)")
+    public Object aroundReadLong(final ProceedingJoinPoint thisJoinPoint, RandomAccessFile file) throws Throwable
+    {
+        return timed(thisJoinPoint, IOActivityType.READ, 8, file);
+    }
+
+    /**
+     * Accounts the byte written by {@link RandomAccessFile#writeBoolean(boolean)} and {@link RandomAccessFile#writeByte(int)}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param file
+     *            The file.
+     * @throws Throwable
+     *             If the file cannot be written.
+     */
+    @Around("(call(* java.io.RandomAccessFile+.writeBoolean(boolean)) || call(* java.io.RandomAccessFile+.writeByte(int)))"
+            + " && target(file) && !within(jenergy..*)")
+    public void aroundWriteBoolean(final ProceedingJoinPoint thisJoinPoint, RandomAccessFile file) throws Throwable
+    {
+        timed(thisJoinPoint, IOActivityType.WRITE, 1, file);
+    }
+
+    /**
+     * Accounts the 2 bytes written by {@link RandomAccessFile#writeChar(int)} and {@link RandomAccessFile#writeShort(int)}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param file
+     *            The file.
+     * @throws Throwable
+     *             If the file cannot be written.
+     */
+    @Around("(call(* java.io.RandomAccessFile+.writeChar(int)) || call(* java.io.RandomAccessFile+.writeShort(int)))"
+            + " && target(file) && !within(jenergy..*)")
+    public void aroundWriteShort(final ProceedingJoinPoint thisJoinPoint, RandomAccessFile file) throws Throwable
+    {
+        timed(thisJoinPoint, IOActivityType.WRITE, 2, file);
+    }
+
+    /**
+     * Accounts the 4 bytes written by {@link RandomAccessFile#writeInt(int)} and {@link RandomAccessFile#writeFloat(float)}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param file
+     *            The file.
+     * @throws Throwable
+     *             If the file cannot be written.
+     */
+    @Around("(call(* java.io.RandomAccessFile+.writeInt(int)) || call(* java.io.RandomAccessFile+.writeFloat(float)))"
+            + " && target(file) && !within(jenergy..*)")
+    public void aroundWriteInt(final ProceedingJoinPoint thisJoinPoint, RandomAccessFile file) throws Throwable
+    {
+        timed(thisJoinPoint, IOActivityType.WRITE, 4, file);
+    }
+
+    /**
+     * Accounts the 8 bytes written by {@link RandomAccessFile#writeLong(long)} and {@link RandomAccessFile#writeDouble(double)}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param file
+     *            The file.
+     * @throws Throwable
+     *             If the file cannot be written.
+     */
+    @Around("(call(* java.io.RandomAccessFile+.writeLong(long)) || call(* java.io.RandomAccessFile+.writeDouble(double)))"
+            + " && target(file) && !within(jenergy..*)")
+    public void aroundWriteLong(final ProceedingJoinPoint thisJoinPoint, RandomAccessFile file) throws Throwable
+    {
+        timed(thisJoinPoint, IOActivityType.WRITE, 8, file);
+    }
+
+    /**
+     * Accounts the bytes of a line read by {@link RandomAccessFile#readLine()}: its characters and its terminator.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param file
+     *            The file.
+     * @return The line read or <code>null</code> at the end of the file.
+     * @throws Throwable
+     *             If the file cannot be read.
+     */
+    @Around("call(String java.io.RandomAccessFile+.readLine()) && target(file) && !within(jenergy..*)")
+    public Object aroundReadLine(final ProceedingJoinPoint thisJoinPoint, RandomAccessFile file) throws Throwable
+    {
+        final long start = System.nanoTime();
+        final String line = (String) thisJoinPoint.proceed();
+        DiskActivity.record(IOActivityType.READ, DataSizes.ofLine(line), System.nanoTime() - start, file);
+        return line;
+    }
+
+    /**
+     * Accounts the bytes of a string read by {@link RandomAccessFile#readUTF()}: its length and its characters in modified UTF-8.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param file
+     *            The file.
+     * @return The string read.
+     * @throws Throwable
+     *             If the file cannot be read.
+     */
+    @Around("call(String java.io.RandomAccessFile+.readUTF()) && target(file) && !within(jenergy..*)")
+    public Object aroundReadUTF(final ProceedingJoinPoint thisJoinPoint, RandomAccessFile file) throws Throwable
+    {
+        final long start = System.nanoTime();
+        final String value = (String) thisJoinPoint.proceed();
+        DiskActivity.record(IOActivityType.READ, DataSizes.ofUtf(value), System.nanoTime() - start, file);
+        return value;
+    }
+
+    /**
+     * Accounts the bytes of a string written by {@link RandomAccessFile#writeUTF(String)}: its length and its characters in modified UTF-8.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param file
+     *            The file.
+     * @param value
+     *            The string written.
+     * @throws Throwable
+     *             If the file cannot be written.
+     */
+    @Around("call(void java.io.RandomAccessFile+.writeUTF(String)) && target(file) && args(value) && !within(jenergy..*)")
+    public void aroundWriteUTF(final ProceedingJoinPoint thisJoinPoint, RandomAccessFile file, String value) throws Throwable
+    {
+        timed(thisJoinPoint, IOActivityType.WRITE, DataSizes.ofUtf(value), file);
+    }
+
+    /**
+     * Accounts the bytes of a string written by {@link RandomAccessFile#writeBytes(String)}: one byte per character.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param file
+     *            The file.
+     * @param value
+     *            The string written.
+     * @throws Throwable
+     *             If the file cannot be written.
+     */
+    @Around("call(void java.io.RandomAccessFile+.writeBytes(String)) && target(file) && args(value) && !within(jenergy..*)")
+    public void aroundWriteBytes(final ProceedingJoinPoint thisJoinPoint, RandomAccessFile file, String value) throws Throwable
+    {
+        timed(thisJoinPoint, IOActivityType.WRITE, value.length(), file);
+    }
+
+    /**
+     * Accounts the bytes of a string written by {@link RandomAccessFile#writeChars(String)}: two bytes per character.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @param file
+     *            The file.
+     * @param value
+     *            The string written.
+     * @throws Throwable
+     *             If the file cannot be written.
+     */
+    @Around("call(void java.io.RandomAccessFile+.writeChars(String)) && target(file) && args(value) && !within(jenergy..*)")
+    public void aroundWriteChars(final ProceedingJoinPoint thisJoinPoint, RandomAccessFile file, String value) throws Throwable
+    {
+        timed(thisJoinPoint, IOActivityType.WRITE, 2L * value.length(), file);
+    }
+
+    /**
+     * Runs an operation that transfers a known number of bytes and accounts them with the time spent in the operation.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint of the operation.
+     * @param type
+     *            The type of the operation.
+     * @param bytes
+     *            The number of bytes transferred by the operation.
+     * @param file
+     *            The file.
+     * @return The value returned by the operation.
+     * @throws Throwable
+     *             If the operation fails. Failed operations are not accounted.
+     */
+    private static Object timed(final ProceedingJoinPoint thisJoinPoint, IOActivityType type, long bytes, RandomAccessFile file) throws Throwable
+    {
+        final long start = System.nanoTime();
+        final Object result = thisJoinPoint.proceed();
+        DiskActivity.record(type, bytes, System.nanoTime() - start, file);
+        return result;
+    }
+}
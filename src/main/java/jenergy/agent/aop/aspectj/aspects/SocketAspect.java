@@ -0,0 +1,96 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.aop.aspectj.aspects;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+import jenergy.agent.common.Cpu;
+import jenergy.agent.common.net.SocketInputStreamDelegate;
+import jenergy.agent.common.net.SocketOutputStreamDelegate;
+import jenergy.agent.common.net.SocketStreams;
+import jenergy.profile.ThreadProfiler;
+import jenergy.profile.data.MethodInfo;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.After;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * Replaces the streams of the {@link Socket}s by streams that count the bytes sent and received. Each socket has one delegate per stream, given
+ * by {@link SocketStreams}, whose activity is closed with the socket.
+ */
+@Aspect
+public class SocketAspect
+{
+    /**
+     * Around advice to replace the input stream of a {@link Socket} by a {@link SocketInputStreamDelegate}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @return The {@link SocketInputStreamDelegate} of the socket.
+     * @throws Throwable
+     *             May throw any exceptions declared by the joinpoint itself.
+     */
+    @Around("call(java.io.InputStream java.net.Socket+.getInputStream()) && !within(jenergy..*) && !within(org.aspectj..*)")
+    public Object aroundGetInputStream(final ProceedingJoinPoint thisJoinPoint) throws Throwable
+    {
+        return SocketStreams.inputStreamOf((Socket) thisJoinPoint.getTarget(), (InputStream) thisJoinPoint.proceed(), currentMethod());
+    }
+
+    /**
+     * Around advice to replace the output stream of a {@link Socket} by a {@link SocketOutputStreamDelegate}.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @return The {@link SocketOutputStreamDelegate} of the socket.
+     * @throws Throwable
+     *             May throw any exceptions declared by the joinpoint itself.
+     */
+    @Around("call(java.io.OutputStream java.net.Socket+.getOutputStream()) && !within(jenergy..*) && !within(org.aspectj..*)")
+    public Object aroundGetOutputStream(final ProceedingJoinPoint thisJoinPoint) throws Throwable
+    {
+        return SocketStreams.outputStreamOf((Socket) thisJoinPoint.getTarget(), (OutputStream) thisJoinPoint.proceed(), currentMethod());
+    }
+
+    /**
+     * Closes the activities of the streams of a {@link Socket} when it's closed, including through its {@link AutoCloseable} interface.
+     * 
+     * @param socket
+     *            The socket that was closed.
+     */
+    @After("call(void java.lang.AutoCloseable+.close()) && target(socket) && !within(jenergy..*) && !within(org.aspectj..*)")
+    public void afterClose(Socket socket)
+    {
+        SocketStreams.closed(socket);
+    }
+
+    /**
+     * Returns the method that is executing in the current thread.
+     * 
+     * @return The method that is executing in the current thread or <code>null</code> if the thread is not monitored.
+     */
+    private static MethodInfo currentMethod()
+    {
+        final ThreadProfiler profiler = Cpu.getInstance().currentThread();
+        return profiler != null ? profiler.peekMethodInfo() : null;
+    }
+}
@@ -21,6 +21,8 @@ package jenergy.agent.aop.aspectj.util;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.Signature;
@@ -29,6 +31,11 @@ import org.aspectj.lang.reflect.MethodSignature;
 
 public final class AspectjUtils
 {
+    /**
+     * The constructors resolved by {@link #newInstance(ProceedingJoinPoint, Class, Object...)} by the signature of their joinpoint. The signatures
+     * are created once per joinpoint by the weaver, so each constructor is only resolved the first time that its joinpoint is executed.
+     */
+    private static final ConcurrentMap<Signature, Constructor<?>> CONSTRUCTORS = new ConcurrentHashMap<Signature, Constructor<?>>();
 
     /**
      * Private constructor to avoid instance of this utility class.
@@ -77,24 +84,35 @@ public final class AspectjUtils
             SecurityException, InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException
     {
         ConstructorSignature signature = (ConstructorSignature) thisJoinPoint.getSignature();
+        Object[] args = thisJoinPoint.getArgs();
 
-        Class<?>[] parameterTypes = new Class[signature.getParameterTypes().length + (newArgs != null ? newArgs.length : 0)];
-        Object[] newConstructorArgs = new Object[parameterTypes.length];
+        Object[] newConstructorArgs = new Object[args.length + (newArgs != null ? newArgs.length : 0)];
+        System.arraycopy(args, 0, newConstructorArgs, 0, args.length);
 
-        for (int i = 0; i < signature.getParameterTypes().length; i++)
+        if (newArgs != null)
         {
-            parameterTypes[i] = signature.getParameterTypes()[i];
-            newConstructorArgs[i] = thisJoinPoint.getArgs()[i];
+            System.arraycopy(newArgs, 0, newConstructorArgs, args.length, newArgs.length);
         }
 
-        for (int i = 0, j = newConstructorArgs.length - newArgs.length; i < newArgs.length; i++, j++)
+        Constructor<?> cached = CONSTRUCTORS.get(signature);
+
+        if (cached == null || !cached.getDeclaringClass().equals(clazz))
         {
-            parameterTypes[j] = newArgs[i].getClass();
-            newConstructorArgs[j] = newArgs[i];
+            Class<?>[] parameterTypes = new Class[newConstructorArgs.length];
+            System.arraycopy(signature.getParameterTypes(), 0, parameterTypes, 0, args.length);
+
+            for (int i = args.length; i < parameterTypes.length; i++)
+            {
+                parameterTypes[i] = newConstructorArgs[i].getClass();
+            }
+
+            cached = clazz.getConstructor(parameterTypes);
+            cached.setAccessible(true);
+            CONSTRUCTORS.put(signature, cached);
         }
 
-        Constructor<T> constructor = clazz.getConstructor(parameterTypes);
-        constructor.setAccessible(true);
+        @SuppressWarnings("unchecked")
+        Constructor<T> constructor = (Constructor<T>) cached;
         return constructor.newInstance(newConstructorArgs);
     }
 
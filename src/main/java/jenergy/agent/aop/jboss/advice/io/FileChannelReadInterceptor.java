@@ -0,0 +1,62 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.aop.jboss.advice.io;
+
+import java.nio.channels.FileChannel;
+
+import jenergy.agent.common.io.DiskActivity;
+import jenergy.profile.data.IOInfo.IOActivityType;
+
+import org.jboss.aop.Bind;
+import org.jboss.aop.InterceptorDef;
+import org.jboss.aop.advice.Interceptor;
+import org.jboss.aop.advice.Scope;
+import org.jboss.aop.joinpoint.Invocation;
+
+/**
+ * Accounts the bytes read through {@link FileChannel}s as disk activity of the method that called the channel, with the time spent in each
+ * operation. The channels called through their {@link java.nio.channels.SeekableByteChannel} interface are accounted when they are
+ * {@link FileChannel}s.
+ */
+@InterceptorDef(scope = Scope.PER_VM)
+@Bind(pointcut = "(call(* $instanceof{java.nio.channels.FileChannel}->read(..)) OR "
+        + "call(* $instanceof{java.nio.channels.SeekableByteChannel}->read(..)) OR "
+        + "call(* $instanceof{java.nio.channels.FileChannel}->transferTo(..))) AND !within(jenergy.*)")
+public class FileChannelReadInterceptor implements Interceptor
+{
+    @Override
+    public String getName()
+    {
+        return this.getClass().getName();
+    }
+
+    @Override
+    public Object invoke(Invocation invocation) throws Throwable
+    {
+        final long start = System.nanoTime();
+        final Object result = invocation.invokeNext();
+        final long nanos = System.nanoTime() - start;
+
+        if (result instanceof Number && invocation.getTargetObject() instanceof FileChannel)
+        {
+            DiskActivity.record(IOActivityType.READ, ((Number) result).longValue(), nanos, invocation.getTargetObject());
+        }
+        return result;
+    }
+}
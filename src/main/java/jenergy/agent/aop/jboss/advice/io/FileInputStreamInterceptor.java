@@ -23,6 +23,7 @@ import java.io.FileInputStream;
 import jenergy.agent.aop.jboss.util.JbossUtils;
 import jenergy.agent.common.Cpu;
 import jenergy.agent.common.io.FileInputStreamDelegate;
+import jenergy.profile.ThreadProfiler;
 import jenergy.profile.data.MethodInfo;
 
 import org.jboss.aop.Bind;
@@ -44,15 +45,28 @@ public class FileInputStreamInterceptor implements Interceptor
     @Override
     public Object invoke(Invocation invocation) throws Throwable
     {
-        Object result = invocation.invokeNext();
+        return wrap(invocation.invokeNext(), JbossUtils.getArgs(invocation));
+    }
 
-        if (result != null && FileInputStream.class.isAssignableFrom(result.getClass()))
+    /**
+     * Replaces a {@link FileInputStream} created by the application by a {@link FileInputStreamDelegate} charged to the method that is
+     * executing in the current thread.
+     * 
+     * @param instance
+     *            The object created by the constructor call.
+     * @param args
+     *            The arguments of the constructor call.
+     * @return A {@link FileInputStreamDelegate} or the given object when it's not a {@link FileInputStream} or it's an instance of one of its
+     *         subclasses.
+     */
+    static Object wrap(Object instance, Object[] args)
+    {
+        if (instance != null && FileInputStream.class.equals(instance.getClass()))
         {
-            MethodInfo method = Cpu.getInstance().currentThread().peekMethodInfo();
-            result = JbossUtils.newInstance(invocation, FileInputStreamDelegate.class, result, method);
-            result.getClass().getDeclaredMethod("attach", jenergy.agent.common.util.Observer.class)
-                    .invoke(result, ((FileInputStreamDelegate) result).getInfo());
+            final ThreadProfiler profiler = Cpu.getInstance().currentThread();
+            final MethodInfo method = profiler != null ? profiler.peekMethodInfo() : null;
+            return FileInputStreamDelegate.wrap((FileInputStream) instance, args, method);
         }
-        return result;
+        return instance;
     }
 }
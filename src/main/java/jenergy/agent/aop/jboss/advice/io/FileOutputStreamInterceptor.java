@@ -23,6 +23,7 @@ import java.io.FileOutputStream;
 import jenergy.agent.aop.jboss.util.JbossUtils;
 import jenergy.agent.common.Cpu;
 import jenergy.agent.common.io.FileOutputStreamDelegate;
+import jenergy.profile.ThreadProfiler;
 import jenergy.profile.data.MethodInfo;
 
 import org.jboss.aop.Bind;
@@ -44,14 +45,27 @@ public final class FileOutputStreamInterceptor implements Interceptor
     @Override
     public Object invoke(Invocation invocation) throws Throwable
     {
-        Object instance = invocation.invokeNext();
+        return wrap(invocation.invokeNext(), JbossUtils.getArgs(invocation));
+    }
 
-        if (instance != null && FileOutputStream.class.isAssignableFrom(instance.getClass()))
+    /**
+     * Replaces a {@link FileOutputStream} created by the application by a {@link FileOutputStreamDelegate} charged to the method that is
+     * executing in the current thread.
+     * 
+     * @param instance
+     *            The object created by the constructor call.
+     * @param args
+     *            The arguments of the constructor call.
+     * @return A {@link FileOutputStreamDelegate} or the given object when it's not a {@link FileOutputStream} or it's an instance of one of its
+     *         subclasses.
+     */
+    static Object wrap(Object instance, Object[] args)
+    {
+        if (instance != null && FileOutputStream.class.equals(instance.getClass()))
         {
-            MethodInfo method = Cpu.getInstance().currentThread().peekMethodInfo();
-            instance = JbossUtils.newInstance(invocation, FileOutputStreamDelegate.class, instance, method);
-            instance.getClass().getDeclaredMethod("attach", jenergy.agent.common.util.Observer.class)
-                    .invoke(instance, ((FileOutputStreamDelegate) instance).getInfo());
+            final ThreadProfiler profiler = Cpu.getInstance().currentThread();
+            final MethodInfo method = profiler != null ? profiler.peekMethodInfo() : null;
+            return FileOutputStreamDelegate.wrap((FileOutputStream) instance, args, method);
         }
         return instance;
     }
@@ -0,0 +1,168 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.aop.jboss.advice.io;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import jenergy.agent.aop.jboss.util.JbossUtils;
+import jenergy.agent.common.Cpu;
+import jenergy.agent.common.io.DiskActivity;
+import jenergy.agent.common.io.FilePaths;
+import jenergy.agent.common.io.PathInputStreamDelegate;
+import jenergy.agent.common.io.PathOutputStreamDelegate;
+import jenergy.profile.ThreadProfiler;
+import jenergy.profile.data.IOInfo.IOActivityType;
+import jenergy.profile.data.MethodInfo;
+
+import org.jboss.aop.Bind;
+import org.jboss.aop.InterceptorDef;
+import org.jboss.aop.advice.Interceptor;
+import org.jboss.aop.advice.Scope;
+import org.jboss.aop.joinpoint.Invocation;
+
+/**
+ * Accounts the I/O done through {@link Files} as disk activity. The streams returned by {@link Files} are replaced by delegates that count their
+ * bytes, the channels are registered with their path, and the operations that read or write a whole file are accounted with the time
+ * spent in them when they return.
+ */
+@InterceptorDef(scope = Scope.PER_VM)
+@Bind(pointcut = "(call(* java.nio.file.Files->newInputStream(..)) OR call(* java.nio.file.Files->newOutputStream(..)) OR "
+        + "call(* java.nio.file.Files->newByteChannel(..)) OR call(* java.nio.channels.FileChannel->open(..)) OR "
+        + "call(* java.nio.file.Files->readAllBytes(..)) OR call(* java.nio.file.Files->write(..)) OR "
+        + "call(* java.nio.file.Files->copy(..))) AND !within(jenergy.*)")
+public class FilesInterceptor implements Interceptor
+{
+    @Override
+    public String getName()
+    {
+        return this.getClass().getName();
+    }
+
+    @Override
+    public Object invoke(Invocation invocation) throws Throwable
+    {
+        final Method method = JbossUtils.calledMethod(invocation);
+        final Object[] args = JbossUtils.getArgs(invocation);
+        final String name = method != null ? method.getName() : "";
+
+        if ("write".equals(name) && args[1] instanceof Iterable)
+        {
+            return writeLines(invocation, (Path) args[0]);
+        }
+
+        final long start = System.nanoTime();
+        final Object result = invocation.invokeNext();
+        final long nanos = System.nanoTime() - start;
+
+        if ("newInputStream".equals(name))
+        {
+            return new PathInputStreamDelegate((InputStream) result, (Path) args[0], currentMethod());
+        }
+        else if ("newOutputStream".equals(name))
+        {
+            return new PathOutputStreamDelegate((OutputStream) result, (Path) args[0], currentMethod());
+        }
+        else if ("newByteChannel".equals(name) || "open".equals(name))
+        {
+            FilePaths.register(result, args[0]);
+        }
+        else if ("readAllBytes".equals(name))
+        {
+            DiskActivity.record(IOActivityType.READ, ((byte[]) result).length, nanos, args[0]);
+        }
+        else if ("write".equals(name))
+        {
+            DiskActivity.record(IOActivityType.WRITE, ((byte[]) args[1]).length, nanos, args[0]);
+        }
+        else if ("copy".equals(name))
+        {
+            copied(args, result, nanos);
+        }
+        return result;
+    }
+
+    /**
+     * Accounts the bytes written by {@link Files#write(Path, Iterable, java.nio.charset.Charset, java.nio.file.OpenOption...)}. The number of bytes
+     * is the growth of the file, or its size when it was truncated.
+     * 
+     * @param invocation
+     *            The joinpoint.
+     * @param path
+     *            The path of the file.
+     * @return The path of the file.
+     * @throws Throwable
+     *             If the file cannot be written.
+     */
+    private static Object writeLines(Invocation invocation, Path path) throws Throwable
+    {
+        final long before = Files.isRegularFile(path) ? Files.size(path) : 0;
+        final long start = System.nanoTime();
+        final Object result = invocation.invokeNext();
+        final long nanos = System.nanoTime() - start;
+        final long after = Files.size(path);
+
+        DiskActivity.record(IOActivityType.WRITE, after >= before ? after - before : after, nanos, path);
+        return result;
+    }
+
+    /**
+     * Accounts the bytes of a {@link Files} copy operation.
+     * 
+     * @param args
+     *            The arguments of the operation.
+     * @param result
+     *            The value returned by the operation: the number of bytes of the copies between a stream and a file, or the target path.
+     * @param nanos
+     *            The time in nanoseconds spent in the operation. It's shared by the reads and the writes of a copy between files.
+     * @throws Throwable
+     *             If the size of the target cannot be read.
+     */
+    private static void copied(Object[] args, Object result, long nanos) throws Throwable
+    {
+        if (args[0] instanceof Path && args[1] instanceof Path)
+        {
+            final long size = Files.size((Path) args[1]);
+            DiskActivity.record(IOActivityType.READ, size, nanos / 2, args[0]);
+            DiskActivity.record(IOActivityType.WRITE, size, nanos - nanos / 2, args[1]);
+        }
+        else if (args[0] instanceof Path)
+        {
+            DiskActivity.record(IOActivityType.READ, ((Number) result).longValue(), nanos, args[0]);
+        }
+        else
+        {
+            DiskActivity.record(IOActivityType.WRITE, ((Number) result).longValue(), nanos, args[1]);
+        }
+    }
+
+    /**
+     * Returns the method that is executing in the current thread.
+     * 
+     * @return The method that is executing in the current thread or <code>null</code> if the thread is not profiled.
+     */
+    private static MethodInfo currentMethod()
+    {
+        final ThreadProfiler profiler = Cpu.getInstance().currentThread();
+        return profiler != null ? profiler.peekMethodInfo() : null;
+    }
+}
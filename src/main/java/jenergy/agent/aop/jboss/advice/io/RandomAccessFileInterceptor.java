@@ -0,0 +1,133 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.aop.jboss.advice.io;
+
+import java.io.RandomAccessFile;
+import java.lang.reflect.Method;
+
+import jenergy.agent.aop.jboss.util.JbossUtils;
+import jenergy.agent.common.io.DataSizes;
+import jenergy.agent.common.io.DiskActivity;
+import jenergy.agent.common.io.FilePaths;
+import jenergy.profile.data.IOInfo.IOActivityType;
+
+import org.jboss.aop.Bind;
+import org.jboss.aop.InterceptorDef;
+import org.jboss.aop.advice.Interceptor;
+import org.jboss.aop.advice.Scope;
+import org.jboss.aop.joinpoint.Invocation;
+
+/**
+ * Accounts the bytes read and written through {@link RandomAccessFile}s as disk activity of the method that called the file, with the time
+ * spent in each operation. The typed operations of {@link java.io.DataInput} and {@link java.io.DataOutput} are accounted with the size of
+ * their primitive or of their encoded string. The path of each file is registered when it's opened.
+ */
+@InterceptorDef(scope = Scope.PER_VM)
+@Bind(pointcut = "(call($instanceof{java.io.RandomAccessFile}->new(..)) OR call(* $instanceof{java.io.RandomAccessFile}->getChannel()) OR "
+        + "call(* $instanceof{java.io.RandomAccessFile}->read*(..)) OR call(* $instanceof{java.io.RandomAccessFile}->write*(..))) "
+        + "AND !within(jenergy.*)")
+public class RandomAccessFileInterceptor implements Interceptor
+{
+    @Override
+    public String getName()
+    {
+        return this.getClass().getName();
+    }
+
+    @Override
+    public Object invoke(Invocation invocation) throws Throwable
+    {
+        final long start = System.nanoTime();
+        final Object result = invocation.invokeNext();
+        final long nanos = System.nanoTime() - start;
+        final Method method = JbossUtils.calledMethod(invocation);
+
+        if (method == null)
+        {
+            if (result instanceof RandomAccessFile)
+            {
+                FilePaths.register(result, JbossUtils.getArgs(invocation)[0]);
+            }
+            return result;
+        }
+
+        final Object file = invocation.getTargetObject();
+        final Object[] args = JbossUtils.getArgs(invocation);
+
+        if ("getChannel".equals(method.getName()))
+        {
+            FilePaths.register(result, file);
+        }
+        else
+        {
+            final IOActivityType type = method.getName().startsWith("write") ? IOActivityType.WRITE : IOActivityType.READ;
+            DiskActivity.record(type, bytes(method.getName(), args, result), nanos, file);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of bytes transferred by a read or write operation.
+     * 
+     * @param name
+     *            The name of the operation.
+     * @param args
+     *            The arguments of the operation.
+     * @param result
+     *            The value returned by the operation.
+     * @return The number of bytes transferred by the operation or <code>-1</code> at the end of the file.
+     */
+    static long bytes(String name, Object[] args, Object result)
+    {
+        if ("read".equals(name))
+        {
+            final int value = ((Number) result).intValue();
+            return args.length == 0 && value >= 0 ? 1 : value;
+        }
+        else if ("readFully".equals(name) || "write".equals(name))
+        {
+            if (args.length == 3)
+            {
+                return ((Number) args[2]).longValue();
+            }
+            return args[0] instanceof byte[] ? ((byte[]) args[0]).length : 1;
+        }
+        else if ("readLine".equals(name))
+        {
+            return DataSizes.ofLine((String) result);
+        }
+        else if ("readUTF".equals(name))
+        {
+            return DataSizes.ofUtf((String) result);
+        }
+        else if ("writeUTF".equals(name))
+        {
+            return DataSizes.ofUtf((String) args[0]);
+        }
+        else if ("writeBytes".equals(name))
+        {
+            return ((String) args[0]).length();
+        }
+        else if ("writeChars".equals(name))
+        {
+            return 2L * ((String) args[0]).length();
+        }
+        return DataSizes.ofPrimitive(name);
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.aop.jboss.advice.net;
+
+import jenergy.agent.common.net.NetworkActivity;
+import jenergy.profile.data.IOInfo.IOActivityType;
+
+import org.jboss.aop.Bind;
+import org.jboss.aop.InterceptorDef;
+import org.jboss.aop.advice.Interceptor;
+import org.jboss.aop.advice.Scope;
+import org.jboss.aop.joinpoint.Invocation;
+
+/**
+ * Accounts the bytes received through {@link java.nio.channels.SocketChannel}s and {@link java.nio.channels.DatagramChannel}s as network activity of
+ * the method that called the channel, including through their byte channel interfaces.
+ */
+@InterceptorDef(scope = Scope.PER_VM)
+@Bind(pointcut = "call(* $instanceof{java.nio.channels.ReadableByteChannel}->read(..)) "
+        + "AND !call(* $instanceof{java.nio.channels.FileChannel}->*(..)) AND !within(jenergy.*)")
+public class NetworkChannelReadInterceptor implements Interceptor
+{
+    @Override
+    public String getName()
+    {
+        return this.getClass().getName();
+    }
+
+    @Override
+    public Object invoke(Invocation invocation) throws Throwable
+    {
+        final Object channel = invocation.getTargetObject();
+
+        if (!NetworkActivity.isNetworkChannel(channel))
+        {
+            return invocation.invokeNext();
+        }
+
+        final long start = System.nanoTime();
+        Object result = invocation.invokeNext();
+
+        if (result instanceof Number)
+        {
+            NetworkActivity.record(IOActivityType.READ, ((Number) result).longValue(), System.nanoTime() - start, channel);
+        }
+        return result;
+    }
+}
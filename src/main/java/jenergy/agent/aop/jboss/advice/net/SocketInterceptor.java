@@ -0,0 +1,70 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.aop.jboss.advice.net;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+
+import jenergy.agent.common.Cpu;
+import jenergy.agent.common.net.SocketStreams;
+import jenergy.profile.ThreadProfiler;
+import jenergy.profile.data.MethodInfo;
+
+import org.jboss.aop.Bind;
+import org.jboss.aop.InterceptorDef;
+import org.jboss.aop.advice.Interceptor;
+import org.jboss.aop.advice.Scope;
+import org.jboss.aop.joinpoint.Invocation;
+
+/**
+ * Replaces the streams of the {@link Socket}s by streams that count the bytes sent and received. Each socket has one delegate per stream, given
+ * by {@link SocketStreams}.
+ */
+@InterceptorDef(scope = Scope.PER_VM)
+@Bind(pointcut = "(call(java.io.InputStream $instanceof{java.net.Socket}->getInputStream()) OR "
+        + "call(java.io.OutputStream $instanceof{java.net.Socket}->getOutputStream())) AND !within(jenergy.*)")
+public class SocketInterceptor implements Interceptor
+{
+    @Override
+    public String getName()
+    {
+        return this.getClass().getName();
+    }
+
+    @Override
+    public Object invoke(Invocation invocation) throws Throwable
+    {
+        Object result = invocation.invokeNext();
+
+        final ThreadProfiler profiler = Cpu.getInstance().currentThread();
+        final MethodInfo method = profiler != null ? profiler.peekMethodInfo() : null;
+        final Socket socket = (Socket) invocation.getTargetObject();
+
+        if (result instanceof InputStream)
+        {
+            result = SocketStreams.inputStreamOf(socket, (InputStream) result, method);
+        }
+        else if (result instanceof OutputStream)
+        {
+            result = SocketStreams.outputStreamOf(socket, (OutputStream) result, method);
+        }
+        return result;
+    }
+}
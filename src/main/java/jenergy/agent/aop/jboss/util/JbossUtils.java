@@ -21,15 +21,29 @@ package jenergy.agent.aop.jboss.util;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import jenergy.agent.common.util.ClassUtils;
 
 import org.jboss.aop.joinpoint.Invocation;
+import org.jboss.aop.joinpoint.MethodCalledByMethodInvocation;
+import org.jboss.aop.joinpoint.MethodInvocation;
 
 public final class JbossUtils
 {
+    /**
+     * The fields of each generated {@link Invocation} class that hold the constructor and the arguments of the joinpoint.
+     */
+    private static final ConcurrentMap<Class<?>, InvocationFields> FIELDS = new ConcurrentHashMap<Class<?>, InvocationFields>();
+
+    /**
+     * The constructors resolved by {@link #newInstance(Invocation, Class, Object...)} by the constructor of their joinpoint.
+     */
+    private static final ConcurrentMap<Constructor<?>, Constructor<?>> CONSTRUCTORS = new ConcurrentHashMap<Constructor<?>, Constructor<?>>();
 
     /**
      * Private constructor to avoid instance of this class.
@@ -78,32 +92,62 @@ public final class JbossUtils
             InstantiationException, IllegalAccessException, IllegalArgumentException, InvocationTargetException
     {
 
-        final Constructor<?> constructor = ClassUtils.fieldValue("constructor", thisJoinPoint);
+        final Constructor<?> constructor = fieldsOf(thisJoinPoint).constructor(thisJoinPoint);
         final Object[] args = getArgs(thisJoinPoint);
 
-        Class<?>[] parameterTypes = new Class[constructor.getParameterTypes().length + (newArgs != null ? newArgs.length : 0)];
-        Object[] newConstructorArgs = new Object[parameterTypes.length];
+        Object[] newConstructorArgs = new Object[args.length + (newArgs != null ? newArgs.length : 0)];
+        System.arraycopy(args, 0, newConstructorArgs, 0, args.length);
 
-        for (int i = 0; i < constructor.getParameterTypes().length; i++)
+        if (newArgs != null)
         {
-            parameterTypes[i] = constructor.getParameterTypes()[i];
-            newConstructorArgs[i] = args[i];
+            System.arraycopy(newArgs, 0, newConstructorArgs, args.length, newArgs.length);
         }
 
-        for (int i = 0, j = newConstructorArgs.length - newArgs.length; i < newArgs.length; i++, j++)
+        Constructor<?> cached = CONSTRUCTORS.get(constructor);
+
+        if (cached == null || !cached.getDeclaringClass().equals(clazz))
         {
-            parameterTypes[j] = newArgs[i].getClass();
-            newConstructorArgs[j] = newArgs[i];
+            Class<?>[] parameterTypes = new Class[newConstructorArgs.length];
+            System.arraycopy(constructor.getParameterTypes(), 0, parameterTypes, 0, args.length);
+
+            for (int i = args.length; i < parameterTypes.length; i++)
+            {
+                parameterTypes[i] = newConstructorArgs[i].getClass();
+            }
+
+            cached = clazz.getConstructor(parameterTypes);
+            cached.setAccessible(true);
+            CONSTRUCTORS.put(constructor, cached);
         }
 
-        Constructor<T> newConstructor = clazz.getConstructor(parameterTypes);
-        newConstructor.setAccessible(true);
+        @SuppressWarnings("unchecked")
+        Constructor<T> newConstructor = (Constructor<T>) cached;
         return newConstructor.newInstance(newConstructorArgs);
     }
 
+    /**
+     * Returns the method called by the given joinpoint.
+     * 
+     * @param invocation
+     *            The reference to the poincut.
+     * @return The method called by the given joinpoint or <code>null</code> if it's not a method joinpoint.
+     */
+    public static Method calledMethod(Invocation invocation)
+    {
+        if (invocation instanceof MethodCalledByMethodInvocation)
+        {
+            return ((MethodCalledByMethodInvocation) invocation).getCalledMethod();
+        }
+        else if (invocation instanceof MethodInvocation)
+        {
+            return ((MethodInvocation) invocation).getMethod();
+        }
+        return null;
+    }
+
     /**
      * Returns the arguments of the target method of the poincut. In this case, this method consider that each method argument is a field named
-     * arg[0-9]*.
+     * arg[0-9]*. The fields are looked up once per {@link Invocation} class.
      * 
      * @param invocation
      *            The reference to the poincut.
@@ -116,25 +160,129 @@ public final class JbossUtils
      *             If this Field object is enforcing Java language access control and the underlying field is inaccessible.
      * 
      */
-    private static Object[] getArgs(Invocation invocation) throws IllegalArgumentException, IllegalAccessException
+    public static Object[] getArgs(Invocation invocation) throws IllegalArgumentException, IllegalAccessException
+    {
+        return fieldsOf(invocation).arguments(invocation);
+    }
+
+    /**
+     * Returns the fields of the class of the given {@link Invocation} that hold the constructor and the arguments of the joinpoint.
+     * 
+     * @param invocation
+     *            The reference to the poincut.
+     * @return The fields of the class of the given {@link Invocation}. It's never <code>null</code>.
+     */
+    private static InvocationFields fieldsOf(Invocation invocation)
+    {
+        InvocationFields fields = FIELDS.get(invocation.getClass());
+
+        if (fields == null)
+        {
+            fields = new InvocationFields(invocation.getClass());
+            FIELDS.putIfAbsent(invocation.getClass(), fields);
+        }
+        return fields;
+    }
+
+    /**
+     * The accessible fields of a generated {@link Invocation} class.
+     */
+    private static final class InvocationFields
     {
-        final Object[] arguments = ClassUtils.fieldValue("arguments", invocation);
+        /**
+         * The field with the constructor of the joinpoint. It's <code>null</code> if the class does not have it.
+         */
+        private final Field constructor;
+
+        /**
+         * The field with the arguments of the joinpoint. It's <code>null</code> if the class does not have it.
+         */
+        private final Field arguments;
+
+        /**
+         * The fields named arg[0-9]* with one argument of the joinpoint each.
+         */
+        private final Field[] args;
+
+        /**
+         * Looks up the fields of the given {@link Invocation} class.
+         * 
+         * @param invocationClass
+         *            The {@link Invocation} class.
+         */
+        InvocationFields(Class<?> invocationClass)
+        {
+            this.constructor = accessible(ClassUtils.getField("constructor", invocationClass));
+            this.arguments = accessible(ClassUtils.getField("arguments", invocationClass));
 
-        if (arguments != null)
+            List<Field> values = new ArrayList<Field>();
+            Field[] fields = ClassUtils.fields(invocationClass);
+
+            for (int i = 0; i < fields.length; i++)
+            {
+                if (fields[i].getName().length() > 3 && fields[i].getName().startsWith("arg") && Character.isDigit(fields[i].getName().charAt(3)))
+                {
+                    values.add(accessible(fields[i]));
+                }
+            }
+            this.args = values.toArray(new Field[values.size()]);
+        }
+
+        /**
+         * Returns the constructor of the given joinpoint.
+         * 
+         * @param invocation
+         *            The joinpoint.
+         * @return The constructor of the given joinpoint or <code>null</code> if it's not a constructor joinpoint.
+         * @throws IllegalAccessException
+         *             If the field is inaccessible.
+         */
+        Constructor<?> constructor(Invocation invocation) throws IllegalAccessException
         {
-            return arguments;
+            return this.constructor != null ? (Constructor<?>) this.constructor.get(invocation) : null;
         }
 
-        List<Object> values = new ArrayList<Object>();
-        Field[] fields = ClassUtils.fields(invocation.getClass());
+        /**
+         * Returns the arguments of the given joinpoint.
+         * 
+         * @param invocation
+         *            The joinpoint.
+         * @return The arguments of the given joinpoint.
+         * @throws IllegalAccessException
+         *             If a field is inaccessible.
+         */
+        Object[] arguments(Invocation invocation) throws IllegalAccessException
+        {
+            final Object[] values = this.arguments != null ? (Object[]) this.arguments.get(invocation) : null;
+
+            if (values != null)
+            {
+                return values;
+            }
+
+            Object[] result = new Object[this.args.length];
+
+            for (int i = 0; i < result.length; i++)
+            {
+                result[i] = this.args[i].get(invocation);
+            }
+            return result;
+        }
 
-        for (int i = 0; i < fields.length; i++)
+        /**
+         * Makes the given field accessible.
+         * 
+         * @param field
+         *            The field. It can be <code>null</code>.
+         * @return The given field.
+         */
+        private static Field accessible(Field field)
         {
-            if (fields[i].getName().length() > 3 && fields[i].getName().startsWith("arg") && Character.isDigit(fields[i].getName().charAt(3)))
+            if (field != null)
             {
-                values.add(ClassUtils.get(fields[i], invocation));
+                field.setAccessible(true);
             }
+            return field;
         }
-        return values.toArray();
     }
 }
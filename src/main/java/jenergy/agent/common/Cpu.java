@@ -18,14 +18,27 @@
  */
 package jenergy.agent.common;
 
+import java.io.IOException;
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
 import java.util.Collection;
 
+import jenergy.agent.common.jfr.FlightRecorderEvents;
+import jenergy.agent.common.management.Management;
+import jenergy.agent.common.util.OutputExporter;
+import jenergy.agent.common.util.ProcIO;
 import jenergy.agent.common.util.time.Timer;
 import jenergy.profile.ThreadProfiler;
 import jenergy.profile.data.MethodInfo;
 import jenergy.profile.data.ThreadInfo;
+import jenergy.profile.energy.CpuEnergyModel;
+import jenergy.profile.energy.DiskEnergyModel;
+import jenergy.profile.energy.EnergyModels;
+import jenergy.profile.energy.EnergyMonitor;
+import jenergy.profile.energy.IntervalReporter;
+import jenergy.profile.energy.MemoryEnergyModel;
+import jenergy.profile.energy.NetworkEnergyModel;
+import jenergy.profile.energy.SystemEnergyModel;
 
 public final class Cpu
 {
@@ -45,11 +58,49 @@ public final class Cpu
      */
     private final ThreadProfilers threads = new ThreadProfilers();
 
+    /**
+     * The {@link ThreadProfiler} of each profiled thread, so the advices that run on every I/O operation find it without a map lookup. It's only
+     * set once the thread is profiled, since a profiler is never replaced.
+     */
+    private final ThreadLocal<ThreadProfiler> currentProfiler = new ThreadLocal<ThreadProfiler>();
+
+    /**
+     * The models that estimate the energy consumed by the threads.
+     */
+    private final EnergyModels energyModels = new EnergyModels();
+
+    /**
+     * The thread that evaluates the energy models.
+     */
+    private EnergyMonitor energyMonitor;
+
+    /**
+     * The custom Flight Recorder events. It's <code>null</code> until the CPU has been activated and when the events are disabled.
+     */
+    private volatile FlightRecorderEvents flightRecorderEvents;
+
+    /**
+     * The thread that writes the reports of the finished threads. It's created by the first report.
+     */
+    private OutputExporter outputExporter;
+
+    /**
+     * Whether the {@link #outputExporter} has been created. The exporter is <code>null</code> when the output is disabled.
+     */
+    private boolean outputExporterCreated;
+
     /**
      * Private constructor to avoid more than one instance of this class.
      */
     private Cpu()
     {
+        final CpuEnergyModel cpuModel = new CpuEnergyModel(this);
+        this.energyModels.register(cpuModel);
+        this.energyModels.register(new DiskEnergyModel(this));
+        this.energyModels.register(new MemoryEnergyModel(this));
+        this.energyModels.register(new NetworkEnergyModel(this));
+        // the split of the system's energy includes the energy charged by all other models in the same evaluation
+        this.energyModels.register(new SystemEnergyModel(this, cpuModel));
     }
 
     public static final class CpuInfo implements Cloneable
@@ -194,6 +245,12 @@ public final class Cpu
                 profiler = new ThreadProfiler(threadId, DEFAULT_TIME_SAMPLING);
                 this.threads.put(threadId, profiler);
 
+                // the task id can only be read by the thread itself
+                if (threadId == Thread.currentThread().getId())
+                {
+                    profiler.getThreadInfo().setTaskId(ProcIO.currentTaskId());
+                }
+
                 new Thread(profiler, "Thread times monitor-" + threadId).start();
             }
             return profiler;
@@ -248,13 +305,34 @@ public final class Cpu
     }
 
     /**
-     * Returns a reference to the {@link ThreadProfiler} of the currently executing thread.
+     * Returns the {@link ThreadProfiler}s of the threads executed by this CPU.
      * 
-     * @return The {@link ThreadProfiler} of the current thread.
+     * @return The {@link ThreadProfiler}s of the threads executed by this CPU.
+     */
+    public ThreadProfilers getThreadProfilers()
+    {
+        return this.threads;
+    }
+
+    /**
+     * Returns a reference to the {@link ThreadProfiler} of the currently executing thread. Once found, it's kept in a thread local variable.
+     * 
+     * @return The {@link ThreadProfiler} of the current thread or <code>null</code> if the thread is not profiled.
      */
     public ThreadProfiler currentThread()
     {
-        return this.getThreadProfiler(Thread.currentThread().getId());
+        ThreadProfiler profiler = this.currentProfiler.get();
+
+        if (profiler == null)
+        {
+            profiler = this.getThreadProfiler(Thread.currentThread().getId());
+
+            if (profiler != null)
+            {
+                this.currentProfiler.set(profiler);
+            }
+        }
+        return profiler;
     }
 
     /**
@@ -306,12 +384,106 @@ public final class Cpu
     }
 
     /**
-     * Starts the {@link ThreadTimesMonitor} to collect the data.
+     * Returns the models that estimate the energy consumed by the threads.
+     * 
+     * @return The models that estimate the energy consumed by the threads.
+     */
+    public EnergyModels getEnergyModels()
+    {
+        return energyModels;
+    }
+
+    /**
+     * Starts the {@link EnergyMonitor} to evaluate the energy models.
      */
-    public void activate()
+    public synchronized void activate()
     {
         // long interval = Long.parseLong(System.getProperty("jenergy.collect.interval", "10"));
         // new ThreadTimesMonitor(interval, this).start();
+
+        if (this.energyMonitor == null)
+        {
+            this.flightRecorderEvents = FlightRecorderEvents.createIfEnabled(this);
+            this.energyMonitor = new EnergyMonitor(DEFAULT_TIME_SAMPLING, this.energyModels, this.createIntervalReporter(),
+                    this.flightRecorderEvents);
+            this.energyMonitor.start();
+            Management.start(this);
+        }
+    }
+
+    /**
+     * Returns the thread that evaluates the energy models.
+     * 
+     * @return The thread that evaluates the energy models or <code>null</code> if the CPU has not been activated.
+     */
+    public synchronized EnergyMonitor getEnergyMonitor()
+    {
+        return energyMonitor;
+    }
+
+    /**
+     * Returns the custom Flight Recorder events. It's read by the models on every evaluation, so it does not lock.
+     * 
+     * @return The custom Flight Recorder events or <code>null</code> if they are disabled, Flight Recorder is not available or the CPU has not
+     *         been activated.
+     */
+    public FlightRecorderEvents getFlightRecorderEvents()
+    {
+        return flightRecorderEvents;
+    }
+
+    /**
+     * Returns the number of thread reports dropped because the output queue was full. The output is not started by this method.
+     * 
+     * @return The number of thread reports dropped because the output queue was full.
+     */
+    public synchronized long getDroppedReports()
+    {
+        return this.outputExporter != null ? this.outputExporter.getDropped() : 0;
+    }
+
+    /**
+     * Returns the thread that writes the reports of the finished threads, creating it on the first call.
+     * 
+     * @return The thread that writes the reports of the finished threads or <code>null</code> if the output is disabled (system property
+     *         <em>jenergy.output.type</em>).
+     */
+    public synchronized OutputExporter getOutputExporter()
+    {
+        if (!this.outputExporterCreated)
+        {
+            this.outputExporter = OutputExporter.startExporter(this.energyModels);
+            this.outputExporterCreated = true;
+        }
+        return this.outputExporter;
+    }
+
+    /**
+     * Creates the reporter of the energy consumed in each interval (system properties <em>jenergy.report.interval</em> in milliseconds,
+     * <em>jenergy.report.file</em> and, for the I/O histograms and the most expensive files, <em>jenergy.report.io.file</em> and
+     * <em>jenergy.report.paths.file</em>).
+     * 
+     * @return The reporter of the energy consumed in each interval or <code>null</code> if the interval reports are disabled.
+     */
+    private IntervalReporter createIntervalReporter()
+    {
+        final long interval = Long.parseLong(System.getProperty("jenergy.report.interval", "0"));
+
+        if (interval > 0)
+        {
+            final String file = System.getProperty("jenergy.report.file", "jenergy-energy.csv");
+
+            try
+            {
+                return new IntervalReporter(interval, this, file, System.getProperty("jenergy.report.io.file"),
+                        System.getProperty("jenergy.report.paths.file"));
+            }
+            catch (IOException exception)
+            {
+                System.err.printf("Could not create the energy report %s: %s%n", file, exception.getMessage());
+            }
+        }
+        return null;
     }
 
 }
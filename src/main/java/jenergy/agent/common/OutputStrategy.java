@@ -39,4 +39,51 @@ public enum OutputStrategy
      * No output is produced.
      */
     NONE;
+
+    /**
+     * Returns the strategy defined by a value of the property <em>jenergy.output.type</em>: <em>none</em>, <em>file</em>, <em>console</em> or
+     * <em>file-console</em>.
+     * 
+     * @param value
+     *            The value of the property. It can be <code>null</code>.
+     * @return The strategy defined by the given value or {@link #FILE_AND_CONSOLE} if the value is <code>null</code> or unknown.
+     */
+    public static OutputStrategy of(String value)
+    {
+        final String type = value == null ? "" : value.trim().toLowerCase();
+
+        if ("none".equals(type))
+        {
+            return NONE;
+        }
+        else if ("file".equals(type))
+        {
+            return FILE;
+        }
+        else if ("console".equals(type))
+        {
+            return CONSOLE;
+        }
+        return FILE_AND_CONSOLE;
+    }
+
+    /**
+     * Returns <code>true</code> if the data are printed to the console.
+     * 
+     * @return <code>true</code> if the data are printed to the console.
+     */
+    public boolean isConsole()
+    {
+        return this == CONSOLE || this == FILE_AND_CONSOLE;
+    }
+
+    /**
+     * Returns <code>true</code> if the data are saved to file.
+     * 
+     * @return <code>true</code> if the data are saved to file.
+     */
+    public boolean isFile()
+    {
+        return this == FILE || this == FILE_AND_CONSOLE;
+    }
 }
@@ -18,12 +18,15 @@
  */
 package jenergy.agent.common.config;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Properties;
+import java.util.Set;
 
 import jenergy.agent.common.util.ClassUtils;
+import jenergy.calibration.Calibration;
 
 public final class ProfileConfig
 {
@@ -41,7 +44,11 @@ public final class ProfileConfig
     public static void start()
     {        
         Thread.currentThread().setName("JEnergy Profile");
-        loadProperties();
+
+        // the properties defined on the command line (-D) have priority over the calibration and the configuration files
+        final Set<String> commandLine = System.getProperties().stringPropertyNames();
+        loadProperties(commandLine);
+        loadCalibration(commandLine);
         
         System.out.println("+-----------------------------------------------------+");
         System.out.println("|                JEnergy Profile 0.0.1                |");
@@ -62,8 +69,11 @@ public final class ProfileConfig
 
     /**
      * Read the properties files with the configuration about the agent.
+     * 
+     * @param commandLine
+     *            The names of the system properties defined on the command line, which are not replaced.
      */
-    protected static void loadProperties()
+    protected static void loadProperties(Set<String> commandLine)
     {
         try
         {
@@ -83,17 +93,68 @@ public final class ProfileConfig
             }
 
             properties.load(is);
+            define(properties, commandLine);
+        }
+        catch (IOException exception)
+        {
+            String path = ClassUtils.getClassLocation(ProfileConfig.class);
+            System.setProperty("jenergy.dump.file.path", path);
+        }
+    }
 
-            for (Object property : properties.keySet())
+    /**
+     * Read the coefficients of the energy models fitted by the calibration of this machine (system property <em>jenergy.calibration.file</em>). The
+     * calibrated values replace the defaults of the configuration file, but not the values defined on the command line.
+     * 
+     * @param commandLine
+     *            The names of the system properties defined on the command line, which are not replaced.
+     */
+    protected static void loadCalibration(Set<String> commandLine)
+    {
+        final File file = new File(System.getProperty("jenergy.calibration.file", Calibration.DEFAULT_FILE));
+
+        if (!file.isFile())
+        {
+            return;
+        }
+
+        try
+        {
+            Properties properties = new Properties();
+            InputStream is = new FileInputStream(file);
+
+            try
             {
-                System.setProperty((String) property, properties.getProperty((String) property));
+                properties.load(is);
             }
-
+            finally
+            {
+                is.close();
+            }
+            define(properties, commandLine);
         }
         catch (IOException exception)
         {
-            String path = ClassUtils.getClassLocation(ProfileConfig.class);
-            System.setProperty("jenergy.dump.file.path", path);
+            System.err.printf("Could not read the calibration file %s: %s%n", file, exception.getMessage());
+        }
+    }
+
+    /**
+     * Defines the given properties as system properties, except the ones defined on the command line.
+     * 
+     * @param properties
+     *            The properties to be defined.
+     * @param commandLine
+     *            The names of the system properties defined on the command line, which are not replaced.
+     */
+    private static void define(Properties properties, Set<String> commandLine)
+    {
+        for (String property : properties.stringPropertyNames())
+        {
+            if (!commandLine.contains(property))
+            {
+                System.setProperty(property, properties.getProperty(property));
+            }
         }
     }
 }
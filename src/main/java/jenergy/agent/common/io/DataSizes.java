@@ -0,0 +1,110 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.io;
+
+/**
+ * The number of bytes transferred by the typed operations of {@link java.io.DataInput} and {@link java.io.DataOutput}, such as the ones of
+ * {@link java.io.RandomAccessFile}. The primitives have a fixed size and the strings are sized by their encoding.
+ */
+public final class DataSizes
+{
+    /**
+     * Private constructor to avoid instance of this class.
+     */
+    private DataSizes()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns the number of bytes of a typed operation on a primitive.
+     * 
+     * @param method
+     *            The name of the operation, e.g., <code>readInt</code> or <code>writeDouble</code>.
+     * @return The number of bytes transferred by the operation or <code>-1</code> if it's not an operation on a primitive.
+     */
+    public static int ofPrimitive(String method)
+    {
+        if (!method.startsWith("read") && !method.startsWith("write"))
+        {
+            return -1;
+        }
+        else if (method.endsWith("Boolean") || method.endsWith("Byte"))
+        {
+            return 1;
+        }
+        else if (method.endsWith("Char") || method.endsWith("Short"))
+        {
+            return 2;
+        }
+        else if (method.endsWith("Int") || method.endsWith("Float"))
+        {
+            return 4;
+        }
+        else if (method.endsWith("Long") || method.endsWith("Double"))
+        {
+            return 8;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of bytes of a string read or written in modified UTF-8 by {@link java.io.DataInput#readUTF()} or
+     * {@link java.io.DataOutput#writeUTF(String)}: the two bytes of its length followed by its encoded characters.
+     * 
+     * @param value
+     *            The string. Might not be <code>null</code>.
+     * @return The number of bytes of the encoded string.
+     */
+    public static long ofUtf(String value)
+    {
+        long bytes = 2;
+
+        for (int i = 0; i < value.length(); i++)
+        {
+            final char c = value.charAt(i);
+
+            if (c >= 0x0001 && c <= 0x007F)
+            {
+                bytes++;
+            }
+            else if (c <= 0x07FF)
+            {
+                bytes += 2;
+            }
+            else
+            {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the number of bytes of a line read by {@link java.io.DataInput#readLine()}: its characters and its terminator.
+     * 
+     * @param line
+     *            The line read or <code>null</code> at the end of the file.
+     * @return The number of bytes of the line or <code>-1</code> at the end of the file.
+     */
+    public static long ofLine(String line)
+    {
+        return line != null ? line.length() + 1 : -1;
+    }
+}
@@ -18,8 +18,13 @@
  */
 package jenergy.agent.common.io;
 
+import jenergy.agent.common.Cpu;
+import jenergy.profile.ThreadProfiler;
 import jenergy.profile.data.Activity;
 import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.IOInfo.IOActivityType;
+import jenergy.profile.data.MethodInfo;
+import jenergy.profile.energy.DiskEnergyModel;
 
 public class DiskActivity implements Activity<IOInfo>
 {
@@ -39,6 +44,97 @@ public class DiskActivity implements Activity<IOInfo>
         this.data = ioInfo;
     }
 
+    /**
+     * Creates the {@link DiskActivity} of the given I/O data, adds it to the activities of the method that realized it and starts charging its
+     * energy.
+     * 
+     * @param ioInfo
+     *            The I/O data of the activity. Might not be <code>null</code>.
+     * @return The {@link DiskActivity} of the given I/O data.
+     */
+    public static DiskActivity register(IOInfo ioInfo)
+    {
+        DiskActivity activity = new DiskActivity(ioInfo);
+
+        if (ioInfo.getMethod() != null)
+        {
+            ioInfo.getMethod().addActivity(activity);
+        }
+
+        DiskEnergyModel model = Cpu.getInstance().getEnergyModels().get(DiskEnergyModel.class);
+
+        if (model != null)
+        {
+            model.track(ioInfo);
+        }
+        return activity;
+    }
+
+    /**
+     * Adds a channel operation to the disk activity of the method that is executing in the current thread. The activity of the method is created
+     * at its first channel operation of the given type; the next operations only increment its counters.
+     * 
+     * @param type
+     *            The type of the operation.
+     * @param bytes
+     *            The number of bytes transferred by the operation. A negative value means that no data was transferred (e.g., end of file).
+     */
+    public static void record(IOActivityType type, long bytes)
+    {
+        record(type, bytes, null);
+    }
+
+    /**
+     * Adds an operation on the given file, channel or path to the disk activity of the method that is executing in the current thread. The method
+     * has one activity of each type per source, created at its first operation of the given type on the source; the next operations on the same
+     * source only increment its counters, even if the method alternates between sources. Once the activity exists, an operation costs the lookup
+     * of the thread's profiler in a thread local variable, the lookup of the activity and the adds of its striped counters.
+     * 
+     * @param type
+     *            The type of the operation.
+     * @param bytes
+     *            The number of bytes transferred by the operation. A negative value means that no data was transferred (e.g., end of file).
+     * @param source
+     *            The file, channel or path of the operation. Its path is given by {@link FilePaths#pathOf(Object)}. It can be <code>null</code>.
+     */
+    public static void record(IOActivityType type, long bytes, Object source)
+    {
+        record(type, bytes, -1, source);
+    }
+
+    /**
+     * Adds a timed operation on the given file, channel or path to the disk activity of the method that is executing in the current thread, like
+     * {@link #record(IOActivityType, long, Object)}. The time spent in the operation is added to the latency of the activity and to its latency
+     * histogram.
+     * 
+     * @param type
+     *            The type of the operation.
+     * @param bytes
+     *            The number of bytes transferred by the operation. A negative value means that no data was transferred (e.g., end of file).
+     * @param nanos
+     *            The time in nanoseconds spent in the operation or a negative value if it was not measured.
+     * @param source
+     *            The file, channel or path of the operation. Its path is given by {@link FilePaths#pathOf(Object)}. It can be <code>null</code>.
+     */
+    public static void record(IOActivityType type, long bytes, long nanos, Object source)
+    {
+        final ThreadProfiler profiler = Cpu.getInstance().currentThread();
+        final MethodInfo method = profiler != null ? profiler.peekMethodInfo() : null;
+
+        if (method != null)
+        {
+            IOInfo info = method.getChannelActivity(type, source);
+
+            if (info == null)
+            {
+                info = new IOInfo(type, method, FilePaths.pathOf(source));
+                method.setChannelActivity(info, source);
+                register(info);
+            }
+            info.increment(bytes, nanos);
+        }
+    }
+
     @Override
     public IOInfo data()
     {
@@ -21,7 +21,6 @@ package jenergy.agent.common.io;
 import java.io.File;
 import java.io.FileDescriptor;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.nio.channels.FileChannel;
 
@@ -37,63 +36,44 @@ public final class FileInputStreamDelegate extends FileInputStream
     private final FileInputStream delegator;
 
     /**
-     * The reference to the I/O activity to notify every time that a write operation occur.
+     * The reference to the I/O activity incremented by every read operation.
      */
     private final IOInfo info;
 
     /**
-     * Creates a {@link FileInputStream} by opening a connection to an actual file, the file named by the path name name in the file system. A new
-     * {@link FileDescriptor} object is created to represent this file connection. First, if there is a security manager, its checkRead method is
-     * called with the name argument as its argument.
-     * 
-     * If the named file does not exist, is a directory rather than a regular file, or for some other reason cannot be opened for reading then a
-     * {@link FileNotFoundException} is thrown.
+     * Creates a {@link FileInputStreamDelegate} of the stream opened by the application for the file named by <em>name</em>. The delegate shares the
+     * {@link FileDescriptor} of the given stream, so the file is neither opened again nor truncated a second time.
      * 
      * @param name
      *            The system-dependent file name.
      * @param input
-     *            The instance of the monitored {@link FileInputStream}.
+     *            The instance of the monitored {@link FileInputStream}. Might not be <code>null</code>.
      * @param method
-     *            The method that called the read operation.
-     * @throws FileNotFoundException
-     *             if the file does not exist, is a directory rather than a regular file, or for some other reason cannot be opened for reading.
-     * @throws SecurityException
-     *             If a security manager exists and its checkRead method denies read access to the file.
+     *            The method that opened the stream.
      */
-    public FileInputStreamDelegate(String name, FileInputStream input, MethodInfo method) throws FileNotFoundException
+    public FileInputStreamDelegate(String name, FileInputStream input, MethodInfo method)
     {
-        super(name);
+        super(descriptorOf(input));
         this.delegator = input;
-        this.info = new IOInfo(IOActivityType.READ, method);
-        method.addActivity(new DiskActivity(this.info));
+        this.info = new IOInfo(IOActivityType.READ, method, name);
     }
 
     /**
-     * 
-     * Creates a {@link FileInputStream} by opening a connection to an actual file, the file named by the {@link File} object file in the file system.
-     * A new {@link FileDescriptor} object is created to represent this file connection. First, if there is a security manager, its checkRead method
-     * is called with the path represented by the file argument as its argument.
-     * 
-     * If the named file does not exist, is a directory rather than a regular file, or for some other reason cannot be opened for reading then a
-     * {@link FileNotFoundException} is thrown.
+     * Creates a {@link FileInputStreamDelegate} of the stream opened by the application for the given file. The delegate shares the
+     * {@link FileDescriptor} of the given stream, so the file is neither opened again nor truncated a second time.
      * 
      * @param file
-     *            The file to be opened for reading.
+     *            The file opened by the application.
      * @param input
-     *            The instance of the monitored {@link FileInputStream}.
+     *            The instance of the monitored {@link FileInputStream}. Might not be <code>null</code>.
      * @param method
-     *            The method that called the read operation.
-     * @throws FileNotFoundException
-     *             if the file does not exist, is a directory rather than a regular file, or for some other reason cannot be opened for reading.
-     * @throws SecurityException
-     *             If a security manager exists and its checkRead method denies read access to the file.
+     *            The method that opened the stream.
      */
-    public FileInputStreamDelegate(File file, FileInputStream input, MethodInfo method) throws FileNotFoundException
+    public FileInputStreamDelegate(File file, FileInputStream input, MethodInfo method)
     {
-        super(file);
+        super(descriptorOf(input));
         this.delegator = input;
-        this.info = new IOInfo(IOActivityType.READ, method);
-        method.addActivity(new DiskActivity(this.info));
+        this.info = new IOInfo(IOActivityType.READ, method, file.getPath());
     }
 
     /**
@@ -116,26 +96,34 @@ public final class FileInputStreamDelegate extends FileInputStream
     {
         super(fdObj);
         this.delegator = input;
-        this.info = new IOInfo(IOActivityType.READ, method);
-        method.addActivity(new DiskActivity(this.info));
+        this.info = new IOInfo(IOActivityType.READ, method, null);
     }
 
     @Override
     public int read(byte[] b, int off, int len) throws IOException
     {
-        return delegator.read(b, off, len);
+        final long start = System.nanoTime();
+        final int read = delegator.read(b, off, len);
+        this.info.increment(read, System.nanoTime() - start);
+        return read;
     }
 
     @Override
     public int read() throws IOException
     {
-        return this.delegator.read();
+        final long start = System.nanoTime();
+        final int value = this.delegator.read();
+        this.info.increment(value < 0 ? -1 : 1, System.nanoTime() - start);
+        return value;
     }
 
     @Override
     public int read(byte[] b) throws IOException
     {
-        return this.delegator.read(b);
+        final long start = System.nanoTime();
+        final int read = this.delegator.read(b);
+        this.info.increment(read, System.nanoTime() - start);
+        return read;
     }
     
     @Override
@@ -149,12 +137,15 @@ public final class FileInputStreamDelegate extends FileInputStream
     {
         super.close();
         this.delegator.close();
+        this.info.close();
     }
     
     @Override
     public FileChannel getChannel()
     {
-        return super.getChannel();
+        final FileChannel channel = this.delegator.getChannel();
+        FilePaths.register(channel, this.info.getPath());
+        return channel;
     }
 
     @Override
@@ -181,6 +172,94 @@ public final class FileInputStreamDelegate extends FileInputStream
         this.delegator.reset();
     }
 
+    /**
+     * Replaces a {@link FileInputStream} created by the application by a {@link FileInputStreamDelegate} whose I/O activity is added to the
+     * method and tracked by the energy models.
+     * 
+     * @param input
+     *            The {@link FileInputStream} created by the application.
+     * @param args
+     *            The arguments of the constructor that created the stream.
+     * @param method
+     *            The method that created the stream.
+     * @return A {@link FileInputStreamDelegate} or the given stream when it's an instance of a subclass of {@link FileInputStream}, since it cannot
+     *         be replaced without breaking its caller.
+     */
+    public static FileInputStream wrap(FileInputStream input, Object[] args, MethodInfo method)
+    {
+        return wrap(input, args, method, true);
+    }
+
+    /**
+     * Replaces a {@link FileInputStream} created by the application by a {@link FileInputStreamDelegate} that counts its reads. The constructor is
+     * chosen by the arguments of the original call, so it's not resolved by reflection.
+     * 
+     * @param input
+     *            The {@link FileInputStream} created by the application.
+     * @param args
+     *            The arguments of the constructor that created the stream.
+     * @param method
+     *            The method that created the stream.
+     * @param accounted
+     *            If <code>true</code>, the I/O activity of the delegate is added to the method and tracked by the disk energy model; otherwise,
+     *            it's only counted by the delegate, e.g., to measure the cost of the delegate without charging energy.
+     * @return A {@link FileInputStreamDelegate} or the given stream when it's an instance of a subclass of {@link FileInputStream}, since it cannot
+     *         be replaced without breaking its caller.
+     */
+    public static FileInputStream wrap(FileInputStream input, Object[] args, MethodInfo method, boolean accounted)
+    {
+        if (input == null || input.getClass() != FileInputStream.class || args.length != 1)
+        {
+            return input;
+        }
+
+        final FileInputStreamDelegate delegate;
+
+        if (args[0] instanceof String)
+        {
+            delegate = new FileInputStreamDelegate((String) args[0], input, method);
+        }
+        else if (args[0] instanceof File)
+        {
+            delegate = new FileInputStreamDelegate((File) args[0], input, method);
+        }
+        else if (args[0] instanceof FileDescriptor)
+        {
+            delegate = new FileInputStreamDelegate((FileDescriptor) args[0], input, method);
+        }
+        else
+        {
+            return input;
+        }
+
+        if (accounted)
+        {
+            DiskActivity.register(delegate.info);
+        }
+        return delegate;
+    }
+
+    /**
+     * Returns the file descriptor of a stream opened by the application.
+     * 
+     * @param stream
+     *            The stream opened by the application.
+     * @return The file descriptor of the given stream.
+     * @throws IllegalArgumentException
+     *             If the stream does not have a file descriptor.
+     */
+    private static FileDescriptor descriptorOf(FileInputStream stream)
+    {
+        try
+        {
+            return stream.getFD();
+        }
+        catch (IOException exception)
+        {
+            throw new IllegalArgumentException(exception.getMessage(), exception);
+        }
+    }
+
     /**
      * @return the info
      */
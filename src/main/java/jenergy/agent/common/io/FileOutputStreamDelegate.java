@@ -20,7 +20,6 @@ package jenergy.agent.common.io;
 
 import java.io.File;
 import java.io.FileDescriptor;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.channels.FileChannel;
@@ -37,57 +36,44 @@ public final class FileOutputStreamDelegate extends FileOutputStream
     private final FileOutputStream delegator;
 
     /**
-     * The reference to the I/O activity to notify every time that an write operation had been called.
+     * The reference to the I/O activity incremented by every write operation. The writes that fail are not counted.
      */
     private final IOInfo info;
 
     /**
-     * Creates a file output stream to write to the file with the specified name. A new FileDescriptor object is created to represent this file
-     * connection. First, if there is a security manager, its checkWrite method is called with name as its argument.
-     * 
-     * If the file exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other
-     * reason then a FileNotFoundException is thrown.
+     * Creates a {@link FileOutputStreamDelegate} of the stream opened by the application for the file named by <em>name</em>. The delegate shares the
+     * {@link FileDescriptor} of the given stream, so the file is neither opened again nor truncated a second time.
      * 
      * @param name
-     *            the system-dependent filename.
+     *            The system-dependent file name.
      * @param output
-     *            The {@link FileOutputStream} instance to write the data. Might not be <code>null</code>.
+     *            The instance of the monitored {@link FileOutputStream}. Might not be <code>null</code>.
      * @param methodInfo
-     *            The method that called the output operation.
-     * @throws FileNotFoundException
-     *             If the file exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any
-     *             other reason.
+     *            The method that opened the stream.
      */
-    public FileOutputStreamDelegate(String name, FileOutputStream output, MethodInfo methodInfo) throws FileNotFoundException
+    public FileOutputStreamDelegate(String name, FileOutputStream output, MethodInfo methodInfo)
     {
-        super(name);
+        super(descriptorOf(output));
         this.delegator = output;
-        this.info = new IOInfo(IOActivityType.WRITE, methodInfo);
+        this.info = new IOInfo(IOActivityType.WRITE, methodInfo, name);
     }
 
     /**
-     * Creates a file output stream to write to the file represented by the specified File object. A new FileDescriptor object is created to represent
-     * this file connection. First, if there is a security manager, its checkWrite method is called with the path represented by the file argument as
-     * its argument.
-     * 
-     * If the file exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other
-     * reason then a FileNotFoundException is thrown.
+     * Creates a {@link FileOutputStreamDelegate} of the stream opened by the application for the given file. The delegate shares the
+     * {@link FileDescriptor} of the given stream, so the file is neither opened again nor truncated a second time.
      * 
      * @param file
-     *            the file to be opened for writing.
+     *            The file opened by the application.
      * @param output
-     *            The {@link FileOutputStream} instance to write the data. Might not be <code>null</code>.
+     *            The instance of the monitored {@link FileOutputStream}. Might not be <code>null</code>.
      * @param methodInfo
-     *            The method that called the output operation.
-     * @throws FileNotFoundException
-     *             If the file exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any
-     *             other reason.
+     *            The method that opened the stream.
      */
-    public FileOutputStreamDelegate(File file, FileOutputStream output, MethodInfo methodInfo) throws FileNotFoundException
+    public FileOutputStreamDelegate(File file, FileOutputStream output, MethodInfo methodInfo)
     {
-        super(file);
+        super(descriptorOf(output));
         this.delegator = output;
-        this.info = new IOInfo(IOActivityType.WRITE, methodInfo);
+        this.info = new IOInfo(IOActivityType.WRITE, methodInfo, file.getPath());
     }
 
     /**
@@ -111,81 +97,31 @@ public final class FileOutputStreamDelegate extends FileOutputStream
     {
         super(fd);
         this.delegator = output;
-        this.info = new IOInfo(IOActivityType.WRITE, methodInfo);
-    }
-
-    /**
-     * 
-     * Creates a file output stream to write to the file with the specified name. If the second argument is true, then bytes will be written to the
-     * end of the file rather than the beginning. A new FileDescriptor object is created to represent this file connection. First, if there is a
-     * security manager, its checkWrite method is called with name as its argument.
-     * 
-     * If the file exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other
-     * reason then a FileNotFoundException is thrown.
-     * 
-     * 
-     * @param name
-     *            the system-dependent file name
-     * @param append
-     *            if <code>true</code>, then bytes will be written to the end of the file rather than the beginning
-     * @param output
-     *            The {@link FileOutputStream} instance to write the data. Might not be <code>null</code>.
-     * @param methodInfo
-     *            The method that called the output operation.
-     * @throws FileNotFoundException
-     *             if the file exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any
-     *             other reason.
-     */
-    public FileOutputStreamDelegate(String name, boolean append, FileOutputStream output, MethodInfo methodInfo) throws FileNotFoundException
-    {
-        super(name, append);
-        this.delegator = output;
-        this.info = new IOInfo(IOActivityType.WRITE, methodInfo);
-    }
-
-    /**
-     * Creates a file output stream to write to the file represented by the specified File object. If the second argument is true, then bytes will be
-     * written to the end of the file rather than the beginning. A new FileDescriptor object is created to represent this file connection. First, if
-     * there is a security manager, its checkWrite method is called with the path represented by the file argument as its argument.
-     * 
-     * If the file exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any other
-     * reason then a FileNotFoundException is thrown.
-     * 
-     * @param file
-     *            the file to be opened for writing.
-     * @param append
-     *            if <code>true</code>, then bytes will be written to the end of the file rather than the beginning
-     * @param output
-     *            The {@link FileOutputStream} instance to write the data. Might not be <code>null</code>.
-     * @param methodInfo
-     *            The method that called the output operation.
-     * @throws FileNotFoundException
-     *             if the file exists but is a directory rather than a regular file, does not exist but cannot be created, or cannot be opened for any
-     *             other reason.
-     */
-    public FileOutputStreamDelegate(File file, boolean append, FileOutputStream output, MethodInfo methodInfo) throws FileNotFoundException
-    {
-        super(file, append);
-        this.delegator = output;
-        this.info = new IOInfo(IOActivityType.WRITE, methodInfo);
+        this.info = new IOInfo(IOActivityType.WRITE, methodInfo, null);
     }
 
     @Override
     public void write(int b) throws IOException
     {
-        delegator.write(b);
+        final long start = System.nanoTime();
+        this.delegator.write(b);
+        this.info.increment(1, System.nanoTime() - start);
     }
 
     @Override
     public void write(byte[] b) throws IOException
     {
-        delegator.write(b);
+        final long start = System.nanoTime();
+        this.delegator.write(b);
+        this.info.increment(b.length, System.nanoTime() - start);
     }
 
     @Override
     public void write(byte[] b, int off, int len) throws IOException
     {
-        delegator.write(b, off, len);
+        final long start = System.nanoTime();
+        this.delegator.write(b, off, len);
+        this.info.increment(len, System.nanoTime() - start);
     }
 
     /**
@@ -193,7 +129,7 @@ public final class FileOutputStreamDelegate extends FileOutputStream
      * 
      * @return the total number of bytes write into the buffer.
      */
-    public synchronized long getSize()
+    public long getSize()
     {
         return getInfo().getBytes();
     }
@@ -203,6 +139,7 @@ public final class FileOutputStreamDelegate extends FileOutputStream
     {
         super.close();
         this.delegator.close();
+        this.info.close();
     }
 
     @Override
@@ -215,7 +152,98 @@ public final class FileOutputStreamDelegate extends FileOutputStream
     @Override
     public FileChannel getChannel()
     {
-        return this.delegator.getChannel();
+        final FileChannel channel = this.delegator.getChannel();
+        FilePaths.register(channel, this.info.getPath());
+        return channel;
+    }
+
+    /**
+     * Replaces a {@link FileOutputStream} created by the application by a {@link FileOutputStreamDelegate} whose I/O activity is added to the
+     * method and tracked by the energy models.
+     * 
+     * @param output
+     *            The {@link FileOutputStream} created by the application.
+     * @param args
+     *            The arguments of the constructor that created the stream.
+     * @param methodInfo
+     *            The method that created the stream.
+     * @return A {@link FileOutputStreamDelegate} or the given stream when it's an instance of a subclass of {@link FileOutputStream}, since it
+     *         cannot be replaced without breaking its caller.
+     */
+    public static FileOutputStream wrap(FileOutputStream output, Object[] args, MethodInfo methodInfo)
+    {
+        return wrap(output, args, methodInfo, true);
+    }
+
+    /**
+     * Replaces a {@link FileOutputStream} created by the application by a {@link FileOutputStreamDelegate} that counts its writes. The constructor
+     * is chosen by the arguments of the original call, so it's not resolved by reflection.
+     * 
+     * @param output
+     *            The {@link FileOutputStream} created by the application.
+     * @param args
+     *            The arguments of the constructor that created the stream.
+     * @param methodInfo
+     *            The method that created the stream.
+     * @param accounted
+     *            If <code>true</code>, the I/O activity of the delegate is added to the method and tracked by the disk energy model; otherwise,
+     *            it's only counted by the delegate, e.g., to measure the cost of the delegate without charging energy.
+     * @return A {@link FileOutputStreamDelegate} or the given stream when it's an instance of a subclass of {@link FileOutputStream}, since it
+     *         cannot be replaced without breaking its caller.
+     */
+    public static FileOutputStream wrap(FileOutputStream output, Object[] args, MethodInfo methodInfo, boolean accounted)
+    {
+        if (output == null || output.getClass() != FileOutputStream.class || args.length == 0 || args.length > 2)
+        {
+            return output;
+        }
+
+        final FileOutputStreamDelegate delegate;
+
+        // the append flag only matters to the open done by the application, whose descriptor is shared
+        if (args[0] instanceof String)
+        {
+            delegate = new FileOutputStreamDelegate((String) args[0], output, methodInfo);
+        }
+        else if (args[0] instanceof File)
+        {
+            delegate = new FileOutputStreamDelegate((File) args[0], output, methodInfo);
+        }
+        else if (args[0] instanceof FileDescriptor && args.length == 1)
+        {
+            delegate = new FileOutputStreamDelegate((FileDescriptor) args[0], output, methodInfo);
+        }
+        else
+        {
+            return output;
+        }
+
+        if (accounted)
+        {
+            DiskActivity.register(delegate.info);
+        }
+        return delegate;
+    }
+
+    /**
+     * Returns the file descriptor of a stream opened by the application.
+     * 
+     * @param stream
+     *            The stream opened by the application.
+     * @return The file descriptor of the given stream.
+     * @throws IllegalArgumentException
+     *             If the stream does not have a file descriptor.
+     */
+    private static FileDescriptor descriptorOf(FileOutputStream stream)
+    {
+        try
+        {
+            return stream.getFD();
+        }
+        catch (IOException exception)
+        {
+            throw new IllegalArgumentException(exception.getMessage(), exception);
+        }
     }
 
     /**
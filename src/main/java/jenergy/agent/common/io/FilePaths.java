@@ -0,0 +1,93 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.io;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The paths of the files opened without a path getter, such as {@link java.io.RandomAccessFile}s and the channels returned by
+ * {@link java.nio.file.Files#newByteChannel(Path, java.nio.file.OpenOption...)}. The entries are removed when their files are garbage collected.
+ */
+public final class FilePaths
+{
+    /**
+     * The path of each registered file or channel. The keys are weak, so the map does not keep the files alive.
+     */
+    private static final Map<Object, String> PATHS = new WeakHashMap<Object, String>();
+
+    /**
+     * Private constructor to avoid instance of this class.
+     */
+    private FilePaths()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Registers the path of an opened file or channel.
+     * 
+     * @param file
+     *            The opened file or channel. It can be <code>null</code>.
+     * @param path
+     *            The path given to open the file: a {@link String}, a {@link File}, a {@link Path} or a registered file whose path is shared.
+     */
+    public static void register(Object file, Object path)
+    {
+        final String name = pathOf(path);
+
+        if (file != null && name != null)
+        {
+            synchronized (PATHS)
+            {
+                PATHS.put(file, name);
+            }
+        }
+    }
+
+    /**
+     * Returns the path of a file, channel or path.
+     * 
+     * @param source
+     *            A {@link String}, a {@link File}, a {@link Path} or a registered file or channel. It can be <code>null</code>.
+     * @return The path of the given source or <code>null</code> if it's unknown.
+     */
+    public static String pathOf(Object source)
+    {
+        if (source == null || source instanceof String)
+        {
+            return (String) source;
+        }
+        else if (source instanceof File)
+        {
+            return ((File) source).getPath();
+        }
+        else if (source instanceof Path)
+        {
+            return source.toString();
+        }
+
+        synchronized (PATHS)
+        {
+            return PATHS.get(source);
+        }
+    }
+}
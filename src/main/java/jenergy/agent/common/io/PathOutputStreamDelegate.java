@@ -0,0 +1,99 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.io;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.IOInfo.IOActivityType;
+import jenergy.profile.data.MethodInfo;
+
+/**
+ * Counts the bytes written to the streams returned by {@link java.nio.file.Files#newOutputStream(Path, java.nio.file.OpenOption...)}.
+ */
+public final class PathOutputStreamDelegate extends FilterOutputStream
+{
+    /**
+     * The I/O activity incremented by every write operation.
+     */
+    private final IOInfo info;
+
+    /**
+     * Creates a {@link PathOutputStreamDelegate} that counts the bytes written to the given stream.
+     * 
+     * @param output
+     *            The stream opened by the application. Might not be <code>null</code>.
+     * @param path
+     *            The path of the file.
+     * @param method
+     *            The method that opened the stream.
+     */
+    public PathOutputStreamDelegate(OutputStream output, Path path, MethodInfo method)
+    {
+        super(output);
+        this.info = new IOInfo(IOActivityType.WRITE, method, FilePaths.pathOf(path));
+        DiskActivity.register(this.info);
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+        final long start = System.nanoTime();
+        this.out.write(b);
+        this.info.increment(1, System.nanoTime() - start);
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException
+    {
+        this.write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        final long start = System.nanoTime();
+        this.out.write(b, off, len);
+        this.info.increment(len, System.nanoTime() - start);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            super.close();
+        }
+        finally
+        {
+            this.info.close();
+        }
+    }
+
+    /**
+     * @return the info
+     */
+    public IOInfo getInfo()
+    {
+        return info;
+    }
+}
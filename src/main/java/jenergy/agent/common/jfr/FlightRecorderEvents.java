@@ -0,0 +1,286 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.jfr;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import jenergy.agent.common.Cpu;
+import jenergy.profile.ThreadProfiler;
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.ThreadInfo;
+import jenergy.profile.energy.EnergyAccount;
+import jenergy.profile.energy.EnergyDimension;
+
+/**
+ * Emits the energy estimated by the profiler as custom Flight Recorder events, next to the JVM's own events (GC, locks, allocation, etc.), so they
+ * can be correlated in JDK Mission Control:
+ * <ul>
+ * <li><em>jenergy.ThreadEnergy</em>: the energy consumed by each thread in an evaluation interval, by dimension, and its power;</li>
+ * <li><em>jenergy.MethodEnergy</em>: the energy consumed by each method that consumed energy in an evaluation interval, by dimension;</li>
+ * <li><em>jenergy.IOActivity</em>: the bytes, operations, latency and energy of each disk and network activity charged by an evaluation.</li>
+ * </ul>
+ * 
+ * The events are committed by the energy monitor after each evaluation of the models, so their thread is the monitor and the thread of the
+ * measured activity is a field. Each kind of event is only computed when a recording has it enabled; otherwise the evaluation only pays for one
+ * check per kind. The events are disabled by the system property <em>jenergy.jfr.enabled</em> and on the JVMs without Flight Recorder.
+ */
+public final class FlightRecorderEvents
+{
+    /**
+     * The number of milliseconds in a second.
+     */
+    private static final double MILLIS_PER_SECOND = 1000D;
+
+    /**
+     * The energy dimensions, in the order of the fields of the events.
+     */
+    private static final EnergyDimension[] DIMENSIONS = EnergyDimension.values();
+
+    /**
+     * The CPU where the threads are executed.
+     */
+    private final Cpu cpu;
+
+    /**
+     * The type of the thread energy events.
+     */
+    private final JfrEventType threadEnergy;
+
+    /**
+     * The type of the method energy events.
+     */
+    private final JfrEventType methodEnergy;
+
+    /**
+     * The type of the I/O activity events.
+     */
+    private final JfrEventType ioActivity;
+
+    /**
+     * The values of each account when the previous events were emitted. It's cleared when no recording has the energy events enabled, so the
+     * first events of a recording do not carry the energy consumed before it.
+     */
+    private final Map<EnergyAccount, double[]> previous = new IdentityHashMap<EnergyAccount, double[]>();
+
+    /**
+     * The time in milliseconds when the previous energy events were emitted.
+     */
+    private long lastSample;
+
+    /**
+     * Defines the event types.
+     * 
+     * @param cpuInstance
+     *            The CPU where the threads are executed.
+     * @throws ReflectiveOperationException
+     *             If the JVM does not have Flight Recorder.
+     */
+    private FlightRecorderEvents(Cpu cpuInstance) throws ReflectiveOperationException
+    {
+        this.cpu = cpuInstance;
+        this.threadEnergy = new JfrEventType("jenergy.ThreadEnergy", "Thread Energy", "The energy consumed by a thread in an interval",
+                new JfrEventType.Field(long.class, "threadId", "Thread Id"),
+                new JfrEventType.Field(String.class, "threadName", "Thread Name"),
+                new JfrEventType.Field(long.class, "interval", "Interval", "Timespan", "MILLISECONDS"),
+                new JfrEventType.Field(double.class, "cpu", "CPU Energy (J)"),
+                new JfrEventType.Field(double.class, "memory", "Memory Energy (J)"),
+                new JfrEventType.Field(double.class, "disk", "Disk Energy (J)"),
+                new JfrEventType.Field(double.class, "network", "Network Energy (J)"),
+                new JfrEventType.Field(double.class, "energy", "Energy (J)"),
+                new JfrEventType.Field(double.class, "power", "Power (W)"));
+        this.methodEnergy = new JfrEventType("jenergy.MethodEnergy", "Method Energy", "The energy consumed by a method in an interval",
+                new JfrEventType.Field(long.class, "threadId", "Thread Id"),
+                new JfrEventType.Field(String.class, "method", "Method"),
+                new JfrEventType.Field(long.class, "interval", "Interval", "Timespan", "MILLISECONDS"),
+                new JfrEventType.Field(double.class, "cpu", "CPU Energy (J)"),
+                new JfrEventType.Field(double.class, "memory", "Memory Energy (J)"),
+                new JfrEventType.Field(double.class, "disk", "Disk Energy (J)"),
+                new JfrEventType.Field(double.class, "network", "Network Energy (J)"),
+                new JfrEventType.Field(double.class, "energy", "Energy (J)"));
+        this.ioActivity = new JfrEventType("jenergy.IOActivity", "I/O Activity", "The disk or network I/O of a method since the previous evaluation",
+                new JfrEventType.Field(long.class, "threadId", "Thread Id"),
+                new JfrEventType.Field(String.class, "method", "Method"),
+                new JfrEventType.Field(String.class, "device", "Device"),
+                new JfrEventType.Field(String.class, "direction", "Direction"),
+                new JfrEventType.Field(String.class, "path", "Path or Address"),
+                new JfrEventType.Field(long.class, "bytes", "Bytes", "DataAmount", "BYTES"),
+                new JfrEventType.Field(long.class, "operations", "Operations"),
+                new JfrEventType.Field(long.class, "latency", "Latency", "Timespan", "NANOSECONDS"),
+                new JfrEventType.Field(double.class, "energy", "Energy (J)"));
+        this.lastSample = System.currentTimeMillis();
+    }
+
+    /**
+     * Defines the event types if Flight Recorder is available and the events are enabled (system property <em>jenergy.jfr.enabled</em>).
+     * 
+     * @param cpu
+     *            The CPU where the threads are executed.
+     * @return The events or <code>null</code> if they are disabled or Flight Recorder is not available.
+     */
+    public static FlightRecorderEvents createIfEnabled(Cpu cpu)
+    {
+        if (Boolean.parseBoolean(System.getProperty("jenergy.jfr.enabled", "true").trim()))
+        {
+            try
+            {
+                return new FlightRecorderEvents(cpu);
+            }
+            catch (ReflectiveOperationException exception)
+            {
+                // a JVM without Flight Recorder
+                return null;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns <code>true</code> if a recording has the I/O activity events enabled. It's checked once per evaluation of an I/O model.
+     * 
+     * @return <code>true</code> if the I/O activity events are recorded.
+     */
+    public boolean isRecordingIO()
+    {
+        return this.ioActivity.isEnabled();
+    }
+
+    /**
+     * Emits the I/O activity of a method charged by an evaluation. It's only called when {@link #isRecordingIO()} is <code>true</code>.
+     * 
+     * @param info
+     *            The I/O activity.
+     * @param dimension
+     *            The dimension of the model that charged the activity: {@link EnergyDimension#DISK} or {@link EnergyDimension#NETWORK}.
+     * @param bytes
+     *            The number of bytes transferred since the previous evaluation.
+     * @param operations
+     *            The number of operations done since the previous evaluation.
+     * @param nanos
+     *            The latency in nanoseconds of the operations done since the previous evaluation.
+     * @param joules
+     *            The energy in joules charged for these operations.
+     */
+    public void io(IOInfo info, EnergyDimension dimension, long bytes, long operations, long nanos, double joules)
+    {
+        final boolean known = info.getMethod() != null;
+        this.ioActivity.commit(known ? info.getMethod().getThreadId() : -1L, known ? info.getMethod().getMethodName() : null, dimension.name()
+                .toLowerCase(), info.getActivityType().name(), info.getPath(), bytes, operations, nanos, joules);
+    }
+
+    /**
+     * Emits the energy consumed by each thread and by each method since the previous call. It must be called after the evaluation of the energy
+     * models.
+     */
+    public void sample()
+    {
+        final long now = System.currentTimeMillis();
+        final long elapsed = now - this.lastSample;
+        final boolean threads = this.threadEnergy.isEnabled();
+        final boolean methods = this.methodEnergy.isEnabled();
+
+        this.lastSample = now;
+
+        if (!threads && !methods)
+        {
+            if (!this.previous.isEmpty())
+            {
+                this.previous.clear();
+            }
+            return;
+        }
+
+        final double[] deltas = new double[DIMENSIONS.length];
+
+        for (ThreadProfiler profiler : this.cpu.getThreadProfilers())
+        {
+            final ThreadInfo info = profiler.getThreadInfo();
+            final long tid = info.getId();
+
+            if (threads && this.delta(info.getEnergy(), deltas))
+            {
+                final double total = sum(deltas);
+                final String name = info.getManagementInfo() != null ? info.getManagementInfo().getThreadName() : null;
+                this.threadEnergy.commit(tid, name, elapsed, deltas[0], deltas[1], deltas[2], deltas[3], total,
+                        elapsed > 0 ? total * MILLIS_PER_SECOND / elapsed : 0D);
+            }
+
+            if (methods)
+            {
+                for (Map.Entry<String, EnergyAccount> method : profiler.getMethodsEnergy().entrySet())
+                {
+                    if (this.delta(method.getValue(), deltas))
+                    {
+                        this.methodEnergy.commit(tid, method.getKey(), elapsed, deltas[0], deltas[1], deltas[2], deltas[3], sum(deltas));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the energy consumed by an account since the previous call for it.
+     * 
+     * @param account
+     *            The energy account.
+     * @param deltas
+     *            The energy consumed by the account in each dimension, in joules.
+     * @return <code>true</code> if the account consumed energy and has been seen before, i.e., if an event must be emitted.
+     */
+    private boolean delta(EnergyAccount account, double[] deltas)
+    {
+        double[] last = this.previous.get(account);
+        final boolean known = last != null;
+
+        if (!known)
+        {
+            last = new double[DIMENSIONS.length];
+            this.previous.put(account, last);
+        }
+
+        double total = 0;
+
+        for (int i = 0; i < DIMENSIONS.length; i++)
+        {
+            final double value = account.get(DIMENSIONS[i]);
+            deltas[i] = value - last[i];
+            last[i] = value;
+            total += deltas[i];
+        }
+        return known && total > 0;
+    }
+
+    /**
+     * Returns the sum of the energy of all dimensions.
+     * 
+     * @param energy
+     *            The energy of each dimension.
+     * @return The sum of the energy of all dimensions.
+     */
+    private static double sum(double[] energy)
+    {
+        double total = 0;
+
+        for (double value : energy)
+        {
+            total += value;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,323 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.jfr;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A custom Flight Recorder event type defined at runtime through <em>jdk.jfr.EventFactory</em>. The JFR API is only accessed by reflection, so the
+ * agent is still compiled for and runs on the JVMs without Flight Recorder, where {@link #load()} fails and no event type is created.
+ */
+final class JfrEventType
+{
+    /**
+     * The classes and methods of the JFR API, resolved once by {@link #load()}.
+     */
+    private static Api api;
+
+    /**
+     * The factory of the events of this type. It keeps the type registered while this object is reachable.
+     */
+    private final Object factory;
+
+    /**
+     * The type of the events, to know whether a recording is running.
+     */
+    private final Object eventType;
+
+    /**
+     * The classes and methods of the JFR API.
+     */
+    private static final class Api
+    {
+        /**
+         * The constructor of <em>jdk.jfr.AnnotationElement(Class, Object)</em>.
+         */
+        private final Constructor<?> annotationElement;
+
+        /**
+         * The constructor of <em>jdk.jfr.ValueDescriptor(Class, String, List)</em>.
+         */
+        private final Constructor<?> valueDescriptor;
+
+        /**
+         * The method <em>jdk.jfr.EventFactory.create(List, List)</em>.
+         */
+        private final Method create;
+
+        /**
+         * The method <em>jdk.jfr.EventFactory.newEvent()</em>.
+         */
+        private final Method newEvent;
+
+        /**
+         * The method <em>jdk.jfr.EventFactory.getEventType()</em>.
+         */
+        private final Method getEventType;
+
+        /**
+         * The method <em>jdk.jfr.EventType.isEnabled()</em>.
+         */
+        private final Method isEnabled;
+
+        /**
+         * The method <em>jdk.jfr.Event.set(int, Object)</em>.
+         */
+        private final Method set;
+
+        /**
+         * The method <em>jdk.jfr.Event.commit()</em>.
+         */
+        private final Method commit;
+
+        /**
+         * Resolves the classes and methods of the JFR API.
+         * 
+         * @throws ReflectiveOperationException
+         *             If the JVM does not have Flight Recorder.
+         */
+        Api() throws ReflectiveOperationException
+        {
+            final Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+            final Class<?> eventClass = Class.forName("jdk.jfr.Event");
+
+            this.annotationElement = Class.forName("jdk.jfr.AnnotationElement").getConstructor(Class.class, Object.class);
+            this.valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor").getConstructor(Class.class, String.class, List.class);
+            this.create = factoryClass.getMethod("create", List.class, List.class);
+            this.newEvent = factoryClass.getMethod("newEvent");
+            this.getEventType = factoryClass.getMethod("getEventType");
+            this.isEnabled = Class.forName("jdk.jfr.EventType").getMethod("isEnabled");
+            this.set = eventClass.getMethod("set", int.class, Object.class);
+            this.commit = eventClass.getMethod("commit");
+        }
+
+        /**
+         * Creates an annotation of an event type or of a field.
+         * 
+         * @param type
+         *            The name of the annotation class, e.g., <em>Label</em> for <em>jdk.jfr.Label</em>.
+         * @param value
+         *            The value of the annotation.
+         * @return The <em>jdk.jfr.AnnotationElement</em>.
+         * @throws ReflectiveOperationException
+         *             If the annotation cannot be created.
+         */
+        Object annotation(String type, Object value) throws ReflectiveOperationException
+        {
+            final Class<? extends Annotation> annotationClass = Class.forName("jdk.jfr." + type).asSubclass(Annotation.class);
+            return this.annotationElement.newInstance(annotationClass, value);
+        }
+    }
+
+    /**
+     * Describes a field of an event type.
+     */
+    static final class Field
+    {
+        /**
+         * The type of the field: a primitive type or {@link String}.
+         */
+        private final Class<?> type;
+
+        /**
+         * The name of the field.
+         */
+        private final String name;
+
+        /**
+         * The label of the field.
+         */
+        private final String label;
+
+        /**
+         * The name of the content type annotation of the field (e.g., <em>DataAmount</em>) or <code>null</code>.
+         */
+        private final String contentType;
+
+        /**
+         * The value of the content type annotation (e.g., <em>BYTES</em>) or <code>null</code>.
+         */
+        private final String unit;
+
+        /**
+         * @param fieldType
+         *            The type of the field: a primitive type or {@link String}.
+         * @param fieldName
+         *            The name of the field.
+         * @param fieldLabel
+         *            The label of the field.
+         * @param fieldContentType
+         *            The name of the content type annotation of the field (e.g., <em>DataAmount</em>) or <code>null</code>.
+         * @param fieldUnit
+         *            The value of the content type annotation (e.g., <em>BYTES</em>) or <code>null</code>.
+         */
+        Field(Class<?> fieldType, String fieldName, String fieldLabel, String fieldContentType, String fieldUnit)
+        {
+            this.type = fieldType;
+            this.name = fieldName;
+            this.label = fieldLabel;
+            this.contentType = fieldContentType;
+            this.unit = fieldUnit;
+        }
+
+        /**
+         * @param fieldType
+         *            The type of the field: a primitive type or {@link String}.
+         * @param fieldName
+         *            The name of the field.
+         * @param fieldLabel
+         *            The label of the field.
+         */
+        Field(Class<?> fieldType, String fieldName, String fieldLabel)
+        {
+            this(fieldType, fieldName, fieldLabel, null, null);
+        }
+    }
+
+    /**
+     * Creates and registers an event type. The events are recorded without stack traces, since they are committed by the profiler's threads.
+     * 
+     * @param name
+     *            The name of the event type.
+     * @param label
+     *            The label of the event type.
+     * @param description
+     *            The description of the event type.
+     * @param fields
+     *            The fields of the events, in the order of the values given to {@link #commit(Object...)}.
+     * @throws ReflectiveOperationException
+     *             If the event type cannot be created.
+     */
+    JfrEventType(String name, String label, String description, Field... fields) throws ReflectiveOperationException
+    {
+        final Api jfr = load();
+        final List<Object> annotations = Arrays.asList(jfr.annotation("Name", name), jfr.annotation("Label", label),
+                jfr.annotation("Description", description), jfr.annotation("Category", new String[] {"JEnergy"}),
+                jfr.annotation("StackTrace", Boolean.FALSE));
+        final List<Object> descriptors = new ArrayList<Object>(fields.length);
+
+        for (Field field : fields)
+        {
+            final List<Object> fieldAnnotations = new ArrayList<Object>(2);
+            fieldAnnotations.add(jfr.annotation("Label", field.label));
+
+            if (field.contentType != null)
+            {
+                fieldAnnotations.add(jfr.annotation(field.contentType, field.unit));
+            }
+            descriptors.add(jfr.valueDescriptor.newInstance(field.type, field.name, fieldAnnotations));
+        }
+
+        this.factory = invoke(jfr.create, null, annotations, descriptors);
+        this.eventType = invoke(jfr.getEventType, this.factory);
+    }
+
+    /**
+     * Resolves the JFR API.
+     * 
+     * @return The classes and methods of the JFR API.
+     * @throws ReflectiveOperationException
+     *             If the JVM does not have Flight Recorder.
+     */
+    private static synchronized Api load() throws ReflectiveOperationException
+    {
+        if (api == null)
+        {
+            api = new Api();
+        }
+        return api;
+    }
+
+    /**
+     * Returns <code>true</code> if a recording is running with this event type enabled. It must be checked before computing the values of an
+     * event, so the events cost nothing when Flight Recorder is not recording.
+     * 
+     * @return <code>true</code> if the events of this type are recorded.
+     */
+    boolean isEnabled()
+    {
+        try
+        {
+            return (Boolean) api.isEnabled.invoke(this.eventType);
+        }
+        catch (ReflectiveOperationException exception)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Commits an event of this type.
+     * 
+     * @param values
+     *            The values of the fields, in the order of the fields given to the constructor.
+     */
+    void commit(Object... values)
+    {
+        try
+        {
+            final Object event = api.newEvent.invoke(this.factory);
+
+            for (int i = 0; i < values.length; i++)
+            {
+                api.set.invoke(event, i, values[i]);
+            }
+            api.commit.invoke(event);
+        }
+        catch (ReflectiveOperationException exception)
+        {
+            System.err.printf("Could not commit the JFR event: %s%n", exception);
+        }
+    }
+
+    /**
+     * Invokes a method of the JFR API, unwrapping the exceptions thrown by the method.
+     * 
+     * @param method
+     *            The method.
+     * @param target
+     *            The object of the method or <code>null</code> for a static method.
+     * @param args
+     *            The arguments of the method.
+     * @return The value returned by the method.
+     * @throws ReflectiveOperationException
+     *             If the method cannot be invoked or if it failed.
+     */
+    private static Object invoke(Method method, Object target, Object... args) throws ReflectiveOperationException
+    {
+        try
+        {
+            return method.invoke(target, args);
+        }
+        catch (InvocationTargetException exception)
+        {
+            if (exception.getCause() instanceof RuntimeException)
+            {
+                throw new ReflectiveOperationException(exception.getCause().getMessage(), exception.getCause());
+            }
+            throw exception;
+        }
+    }
+}
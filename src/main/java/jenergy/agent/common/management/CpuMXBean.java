@@ -0,0 +1,101 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.management;
+
+/**
+ * The energy of the process and the overhead of the profiler. The values are read from a snapshot refreshed at most once per
+ * <em>jenergy.jmx.refresh</em> milliseconds. The energy is in joules, the power in watts and the times in nanoseconds.
+ */
+public interface CpuMXBean
+{
+    /**
+     * @return the CPU energy of the profiled threads
+     */
+    double getCpuEnergy();
+
+    /**
+     * @return the memory energy of the profiled threads
+     */
+    double getMemoryEnergy();
+
+    /**
+     * @return the disk energy of the profiled threads
+     */
+    double getDiskEnergy();
+
+    /**
+     * @return the network energy of the profiled threads
+     */
+    double getNetworkEnergy();
+
+    /**
+     * @return the energy of the process that could not be attributed to any thread
+     */
+    double getUnattributedEnergy();
+
+    /**
+     * @return the energy of the process, including the energy that could not be attributed to any thread
+     */
+    double getTotalEnergy();
+
+    /**
+     * @return the average power of the process since the previous snapshot
+     */
+    double getPower();
+
+    /**
+     * @return the disk I/O of the process charged by the disk energy model
+     */
+    DiskTotals getDiskIO();
+
+    /**
+     * @return the number of profiled threads, including the finished ones
+     */
+    int getProfiledThreads();
+
+    /**
+     * @return the number of finished invocations of all profiled methods
+     */
+    long getInvocations();
+
+    /**
+     * @return the number of evaluations of the energy models
+     */
+    long getEvaluations();
+
+    /**
+     * @return the time spent by the energy monitor to evaluate the models and to write the reports
+     */
+    long getEvaluationTime();
+
+    /**
+     * @return the number of thread reports dropped because the output queue was full
+     */
+    long getDroppedReports();
+
+    /**
+     * @return the number of snapshots taken for the MBeans
+     */
+    long getSnapshots();
+
+    /**
+     * @return the time spent to take the snapshots for the MBeans
+     */
+    long getSnapshotTime();
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.management;
+
+import jenergy.agent.common.Cpu;
+import jenergy.profile.energy.EnergyDimension;
+import jenergy.profile.energy.EnergyMonitor;
+
+/**
+ * The {@link CpuMXBean} of a {@link Cpu}.
+ */
+final class CpuView implements CpuMXBean
+{
+    /**
+     * The CPU whose threads are profiled.
+     */
+    private final Cpu cpu;
+
+    /**
+     * The snapshots of the CPU.
+     */
+    private final SnapshotCache cache;
+
+    /**
+     * @param cpuInstance
+     *            The CPU whose threads are profiled.
+     * @param snapshots
+     *            The snapshots of the CPU.
+     */
+    CpuView(Cpu cpuInstance, SnapshotCache snapshots)
+    {
+        this.cpu = cpuInstance;
+        this.cache = snapshots;
+    }
+
+    @Override
+    public double getCpuEnergy()
+    {
+        return cache.get().getEnergy(EnergyDimension.CPU);
+    }
+
+    @Override
+    public double getMemoryEnergy()
+    {
+        return cache.get().getEnergy(EnergyDimension.MEMORY);
+    }
+
+    @Override
+    public double getDiskEnergy()
+    {
+        return cache.get().getEnergy(EnergyDimension.DISK);
+    }
+
+    @Override
+    public double getNetworkEnergy()
+    {
+        return cache.get().getEnergy(EnergyDimension.NETWORK);
+    }
+
+    @Override
+    public double getUnattributedEnergy()
+    {
+        final ProfilerSnapshot snapshot = cache.get();
+        double total = 0;
+
+        for (EnergyDimension dimension : EnergyDimension.values())
+        {
+            total += snapshot.getUnattributedEnergy(dimension);
+        }
+        return total;
+    }
+
+    @Override
+    public double getTotalEnergy()
+    {
+        return cache.get().getTotalEnergy();
+    }
+
+    @Override
+    public double getPower()
+    {
+        return cache.get().getPower();
+    }
+
+    @Override
+    public DiskTotals getDiskIO()
+    {
+        return cache.get().getDisk();
+    }
+
+    @Override
+    public int getProfiledThreads()
+    {
+        return cache.get().getThreads().size();
+    }
+
+    @Override
+    public long getInvocations()
+    {
+        return cache.get().getInvocations();
+    }
+
+    @Override
+    public long getEvaluations()
+    {
+        final EnergyMonitor monitor = cpu.getEnergyMonitor();
+        return monitor != null ? monitor.getEvaluations() : 0;
+    }
+
+    @Override
+    public long getEvaluationTime()
+    {
+        final EnergyMonitor monitor = cpu.getEnergyMonitor();
+        return monitor != null ? monitor.getEvaluationTime() : 0;
+    }
+
+    @Override
+    public long getDroppedReports()
+    {
+        return cpu.getDroppedReports();
+    }
+
+    @Override
+    public long getSnapshots()
+    {
+        return cache.getSnapshots();
+    }
+
+    @Override
+    public long getSnapshotTime()
+    {
+        return cache.getSnapshotTime();
+    }
+}
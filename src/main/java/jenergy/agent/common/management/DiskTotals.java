@@ -0,0 +1,130 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.management;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The disk I/O of the process charged by the disk energy model, across all files, methods and threads, as exposed by the {@link CpuMXBean}.
+ */
+public final class DiskTotals
+{
+    /**
+     * The number of read operations.
+     */
+    private final long reads;
+
+    /**
+     * The number of bytes read.
+     */
+    private final long bytesRead;
+
+    /**
+     * The number of write operations.
+     */
+    private final long writes;
+
+    /**
+     * The number of bytes written.
+     */
+    private final long bytesWritten;
+
+    /**
+     * The latency in nanoseconds of all operations.
+     */
+    private final long latency;
+
+    /**
+     * The disk energy in joules.
+     */
+    private final double energy;
+
+    /**
+     * @param readOperations
+     *            The number of read operations.
+     * @param read
+     *            The number of bytes read.
+     * @param writeOperations
+     *            The number of write operations.
+     * @param written
+     *            The number of bytes written.
+     * @param nanos
+     *            The latency in nanoseconds of all operations.
+     * @param joules
+     *            The disk energy in joules.
+     */
+    @ConstructorProperties({ "reads", "bytesRead", "writes", "bytesWritten", "latency", "energy" })
+    public DiskTotals(long readOperations, long read, long writeOperations, long written, long nanos, double joules)
+    {
+        this.reads = readOperations;
+        this.bytesRead = read;
+        this.writes = writeOperations;
+        this.bytesWritten = written;
+        this.latency = nanos;
+        this.energy = joules;
+    }
+
+    /**
+     * @return the number of read operations
+     */
+    public long getReads()
+    {
+        return reads;
+    }
+
+    /**
+     * @return the number of bytes read
+     */
+    public long getBytesRead()
+    {
+        return bytesRead;
+    }
+
+    /**
+     * @return the number of write operations
+     */
+    public long getWrites()
+    {
+        return writes;
+    }
+
+    /**
+     * @return the number of bytes written
+     */
+    public long getBytesWritten()
+    {
+        return bytesWritten;
+    }
+
+    /**
+     * @return the latency in nanoseconds of all operations
+     */
+    public long getLatency()
+    {
+        return latency;
+    }
+
+    /**
+     * @return the disk energy in joules
+     */
+    public double getEnergy()
+    {
+        return energy;
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.management;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import jenergy.agent.common.Cpu;
+
+/**
+ * Publishes the live energy of the profiler. The MXBeans are registered in the platform MBean server, so the energy of the threads and methods can
+ * be watched by any JMX client (e.g., JConsole or VisualVM):
+ * <ul>
+ * <li><em>jenergy:type=Cpu</em>: the energy and the power of the process, its disk I/O and the overhead of the profiler;</li>
+ * <li><em>jenergy:type=ThreadProfilers</em>: the energy and the power of each profiled thread;</li>
+ * <li><em>jenergy:type=MethodStatistics</em>: the methods with the most energy, CPU time or invocations.</li>
+ * </ul>
+ * 
+ * The same values can be scraped by Prometheus from a {@link PrometheusEndpoint}. The MBeans and the endpoint share a snapshot of the profiler
+ * that is refreshed at most once per <em>jenergy.jmx.refresh</em> milliseconds. The registration is disabled by the system property
+ * <em>jenergy.jmx.enabled</em> and the endpoint is enabled by <em>jenergy.prometheus.enabled</em>.
+ */
+public final class Management
+{
+    /**
+     * The domain of the MBeans.
+     */
+    public static final String DOMAIN = "jenergy";
+
+    /**
+     * Private constructor to avoid instances of this class.
+     */
+    private Management()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Registers the MXBeans of the given CPU and starts its Prometheus endpoint, if they are enabled (system properties
+     * <em>jenergy.jmx.enabled</em> and <em>jenergy.prometheus.enabled</em>). The MXBeans already registered, e.g., by another class loader, are
+     * kept.
+     * 
+     * @param cpu
+     *            The CPU whose threads are profiled. Might not be <code>null</code>.
+     */
+    public static void start(Cpu cpu)
+    {
+        final SnapshotCache cache = new SnapshotCache(cpu);
+
+        if (Boolean.parseBoolean(System.getProperty("jenergy.jmx.enabled", "true").trim()))
+        {
+            register("Cpu", new CpuView(cpu, cache));
+            register("ThreadProfilers", new ThreadProfilersView(cache));
+            register("MethodStatistics", new MethodStatisticsView(cache));
+        }
+
+        PrometheusEndpoint.startIfEnabled(cpu, cache);
+    }
+
+    /**
+     * Registers the given MXBean in the platform MBean server.
+     * 
+     * @param type
+     *            The type of the MXBean in its object name.
+     * @param mbean
+     *            The MXBean to be registered.
+     */
+    private static void register(String type, Object mbean)
+    {
+        try
+        {
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            final ObjectName name = new ObjectName(DOMAIN, "type", type);
+
+            if (!server.isRegistered(name))
+            {
+                server.registerMBean(mbean, name);
+            }
+        }
+        catch (JMException exception)
+        {
+            System.err.printf("Could not register the MBean %s: %s%n", type, exception.getMessage());
+        }
+    }
+
+    /**
+     * Returns the first elements of the given list in the given order.
+     * 
+     * @param values
+     *            The elements to be sorted. The list is not changed.
+     * @param order
+     *            The order of the elements.
+     * @param count
+     *            The maximum number of elements to be returned.
+     * @param <T>
+     *            The type of the elements.
+     * @return A new list with at most <code>count</code> elements of the given list in the given order.
+     */
+    static <T> List<T> top(List<T> values, Comparator<? super T> order, int count)
+    {
+        final List<T> sorted = new ArrayList<T>(values);
+        Collections.sort(sorted, order);
+        return new ArrayList<T>(sorted.subList(0, Math.max(0, Math.min(count, sorted.size()))));
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.management;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The running statistics and the energy of a method in a thread, as exposed by the {@link MethodStatisticsMXBean}. The energy is in joules and
+ * the times are in nanoseconds.
+ */
+public final class MethodEnergy
+{
+    /**
+     * The method name.
+     */
+    private final String name;
+
+    /**
+     * The id of the thread that executed the method.
+     */
+    private final long threadId;
+
+    /**
+     * The number of finished invocations.
+     */
+    private final long invocations;
+
+    /**
+     * The execution time of all invocations.
+     */
+    private final long time;
+
+    /**
+     * The CPU time of all invocations.
+     */
+    private final long cpuTime;
+
+    /**
+     * The CPU energy.
+     */
+    private final double cpuEnergy;
+
+    /**
+     * The memory energy.
+     */
+    private final double memoryEnergy;
+
+    /**
+     * The disk energy.
+     */
+    private final double diskEnergy;
+
+    /**
+     * The network energy.
+     */
+    private final double networkEnergy;
+
+    /**
+     * @param methodName
+     *            The method name.
+     * @param tid
+     *            The id of the thread that executed the method.
+     * @param numberOfInvocations
+     *            The number of finished invocations.
+     * @param executionTime
+     *            The execution time of all invocations in nanoseconds.
+     * @param cpuTimeSpent
+     *            The CPU time of all invocations in nanoseconds.
+     * @param cpu
+     *            The CPU energy in joules.
+     * @param memory
+     *            The memory energy in joules.
+     * @param disk
+     *            The disk energy in joules.
+     * @param network
+     *            The network energy in joules.
+     */
+    @ConstructorProperties({ "name", "threadId", "invocations", "time", "cpuTime", "cpuEnergy", "memoryEnergy", "diskEnergy", "networkEnergy" })
+    public MethodEnergy(String methodName, long tid, long numberOfInvocations, long executionTime, long cpuTimeSpent, double cpu, double memory,
+            double disk, double network)
+    {
+        this.name = methodName;
+        this.threadId = tid;
+        this.invocations = numberOfInvocations;
+        this.time = executionTime;
+        this.cpuTime = cpuTimeSpent;
+        this.cpuEnergy = cpu;
+        this.memoryEnergy = memory;
+        this.diskEnergy = disk;
+        this.networkEnergy = network;
+    }
+
+    /**
+     * @return the method name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return the id of the thread that executed the method
+     */
+    public long getThreadId()
+    {
+        return threadId;
+    }
+
+    /**
+     * @return the number of finished invocations
+     */
+    public long getInvocations()
+    {
+        return invocations;
+    }
+
+    /**
+     * @return the execution time of all invocations in nanoseconds
+     */
+    public long getTime()
+    {
+        return time;
+    }
+
+    /**
+     * @return the CPU time of all invocations in nanoseconds
+     */
+    public long getCpuTime()
+    {
+        return cpuTime;
+    }
+
+    /**
+     * @return the CPU energy in joules
+     */
+    public double getCpuEnergy()
+    {
+        return cpuEnergy;
+    }
+
+    /**
+     * @return the memory energy in joules
+     */
+    public double getMemoryEnergy()
+    {
+        return memoryEnergy;
+    }
+
+    /**
+     * @return the disk energy in joules
+     */
+    public double getDiskEnergy()
+    {
+        return diskEnergy;
+    }
+
+    /**
+     * @return the network energy in joules
+     */
+    public double getNetworkEnergy()
+    {
+        return networkEnergy;
+    }
+
+    /**
+     * @return the energy of all dimensions in joules
+     */
+    public double getEnergy()
+    {
+        return cpuEnergy + memoryEnergy + diskEnergy + networkEnergy;
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.management;
+
+import java.util.List;
+
+/**
+ * The running statistics and the energy of the methods of all profiled threads. The values are read from a snapshot refreshed at most once per
+ * <em>jenergy.jmx.refresh</em> milliseconds.
+ */
+public interface MethodStatisticsMXBean
+{
+    /**
+     * @return the number of methods of all profiled threads
+     */
+    int getMethodCount();
+
+    /**
+     * Returns the methods that consumed the most energy.
+     * 
+     * @param count
+     *            The maximum number of methods to be returned.
+     * @return The methods that consumed the most energy, the highest first.
+     */
+    List<MethodEnergy> topByEnergy(int count);
+
+    /**
+     * Returns the methods that used the most CPU time.
+     * 
+     * @param count
+     *            The maximum number of methods to be returned.
+     * @return The methods that used the most CPU time, the highest first.
+     */
+    List<MethodEnergy> topByCpuTime(int count);
+
+    /**
+     * Returns the methods with the most finished invocations.
+     * 
+     * @param count
+     *            The maximum number of methods to be returned.
+     * @return The methods with the most finished invocations, the highest first.
+     */
+    List<MethodEnergy> topByInvocations(int count);
+}
@@ -0,0 +1,102 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.management;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The {@link MethodStatisticsMXBean} of the methods of the threads of a {@link jenergy.agent.common.Cpu}.
+ */
+final class MethodStatisticsView implements MethodStatisticsMXBean
+{
+    /**
+     * Orders the methods by their energy, the highest first.
+     */
+    private static final Comparator<MethodEnergy> BY_ENERGY = new Comparator<MethodEnergy>()
+    {
+        @Override
+        public int compare(MethodEnergy o1, MethodEnergy o2)
+        {
+            return Double.compare(o2.getEnergy(), o1.getEnergy());
+        }
+    };
+
+    /**
+     * Orders the methods by their CPU time, the highest first.
+     */
+    private static final Comparator<MethodEnergy> BY_CPU_TIME = new Comparator<MethodEnergy>()
+    {
+        @Override
+        public int compare(MethodEnergy o1, MethodEnergy o2)
+        {
+            return o2.getCpuTime() < o1.getCpuTime() ? -1 : o2.getCpuTime() == o1.getCpuTime() ? 0 : 1;
+        }
+    };
+
+    /**
+     * Orders the methods by their number of invocations, the highest first.
+     */
+    private static final Comparator<MethodEnergy> BY_INVOCATIONS = new Comparator<MethodEnergy>()
+    {
+        @Override
+        public int compare(MethodEnergy o1, MethodEnergy o2)
+        {
+            return o2.getInvocations() < o1.getInvocations() ? -1 : o2.getInvocations() == o1.getInvocations() ? 0 : 1;
+        }
+    };
+
+    /**
+     * The snapshots of the CPU.
+     */
+    private final SnapshotCache cache;
+
+    /**
+     * @param snapshots
+     *            The snapshots of the CPU.
+     */
+    MethodStatisticsView(SnapshotCache snapshots)
+    {
+        this.cache = snapshots;
+    }
+
+    @Override
+    public int getMethodCount()
+    {
+        return cache.get().getMethods().size();
+    }
+
+    @Override
+    public List<MethodEnergy> topByEnergy(int count)
+    {
+        return Management.top(cache.get().getMethods(), BY_ENERGY, count);
+    }
+
+    @Override
+    public List<MethodEnergy> topByCpuTime(int count)
+    {
+        return Management.top(cache.get().getMethods(), BY_CPU_TIME, count);
+    }
+
+    @Override
+    public List<MethodEnergy> topByInvocations(int count)
+    {
+        return Management.top(cache.get().getMethods(), BY_INVOCATIONS, count);
+    }
+}
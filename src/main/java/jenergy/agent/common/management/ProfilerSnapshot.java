@@ -0,0 +1,308 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.management;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jenergy.agent.common.Cpu;
+import jenergy.profile.ThreadProfiler;
+import jenergy.profile.data.MethodStatistics;
+import jenergy.profile.data.PathStatistics;
+import jenergy.profile.data.ThreadInfo;
+import jenergy.profile.energy.DiskEnergyModel;
+import jenergy.profile.energy.EnergyAccount;
+import jenergy.profile.energy.EnergyDimension;
+
+/**
+ * An immutable copy of the energy and the statistics of the profiled threads and methods. It's read from the accumulators that the profiler
+ * updates without locks, so taking a snapshot never blocks the application threads nor the energy monitor.
+ */
+final class ProfilerSnapshot
+{
+    /**
+     * The number of nanoseconds in a second.
+     */
+    private static final double NANOS_PER_SECOND = 1E9;
+
+    /**
+     * The time in nanoseconds ({@link System#nanoTime()}) when the snapshot was taken.
+     */
+    private final long timestamp;
+
+    /**
+     * The time in nanoseconds spent to take the snapshot.
+     */
+    private final long duration;
+
+    /**
+     * The profiled threads.
+     */
+    private final List<ThreadEnergy> threads;
+
+    /**
+     * The methods of all profiled threads.
+     */
+    private final List<MethodEnergy> methods;
+
+    /**
+     * The total energy of each thread by thread id, to compute the power of the threads in the next snapshot.
+     */
+    private final Map<Long, Double> threadTotals;
+
+    /**
+     * The energy in joules of the profiled threads, indexed by the {@link EnergyDimension} ordinal.
+     */
+    private final double[] energy;
+
+    /**
+     * The energy in joules that could not be attributed to any thread, indexed by the {@link EnergyDimension} ordinal.
+     */
+    private final double[] unattributed;
+
+    /**
+     * The average power in watts of the process since the previous snapshot.
+     */
+    private final double power;
+
+    /**
+     * The disk I/O of the process.
+     */
+    private final DiskTotals disk;
+
+    /**
+     * The number of finished invocations of all methods.
+     */
+    private final long invocations;
+
+    /**
+     * Takes a snapshot of the given CPU.
+     * 
+     * @param cpu
+     *            The CPU whose threads are profiled. Might not be <code>null</code>.
+     * @param previous
+     *            The previous snapshot, used to compute the power. It can be <code>null</code>.
+     */
+    ProfilerSnapshot(Cpu cpu, ProfilerSnapshot previous)
+    {
+        final long start = System.nanoTime();
+        final double seconds = previous != null ? (start - previous.timestamp) / NANOS_PER_SECOND : 0;
+        final EnergyDimension[] dimensions = EnergyDimension.values();
+
+        this.energy = new double[dimensions.length];
+        this.unattributed = values(cpu.getEnergyModels().getUnattributedEnergy());
+        this.threadTotals = new HashMap<Long, Double>();
+
+        List<ThreadEnergy> threadList = new ArrayList<ThreadEnergy>();
+        List<MethodEnergy> methodList = new ArrayList<MethodEnergy>();
+        long totalInvocations = 0;
+
+        for (ThreadProfiler profiler : cpu.getThreadProfilers())
+        {
+            final ThreadInfo info = profiler.getThreadInfo();
+            final double[] threadEnergy = values(info.getEnergy());
+            long threadInvocations = 0;
+
+            for (MethodStatistics statistics : profiler.getRunningStatistics().values())
+            {
+                final EnergyAccount account = statistics.getEnergy() != null ? statistics.getEnergy() : profiler.getMethodEnergy(statistics
+                        .getName());
+
+                methodList.add(new MethodEnergy(statistics.getName(), statistics.getThreadId(), statistics.getNumberOfInvocations(), statistics
+                        .getTime(), statistics.getCpuTime(), account.get(EnergyDimension.CPU), account.get(EnergyDimension.MEMORY), account
+                        .get(EnergyDimension.DISK), account.get(EnergyDimension.NETWORK)));
+                threadInvocations += statistics.getNumberOfInvocations();
+            }
+
+            double threadTotal = 0;
+
+            for (int i = 0; i < threadEnergy.length; i++)
+            {
+                this.energy[i] += threadEnergy[i];
+                threadTotal += threadEnergy[i];
+            }
+
+            final Double before = previous != null ? previous.threadTotals.get(info.getId()) : null;
+            final double watts = before != null && seconds > 0 ? (threadTotal - before) / seconds : 0;
+
+            threadList.add(new ThreadEnergy(info.getId(), info.getManagementInfo() != null ? info.getManagementInfo().getThreadName() : null,
+                    profiler.isActive(), threadInvocations, threadEnergy[EnergyDimension.CPU.ordinal()],
+                    threadEnergy[EnergyDimension.MEMORY.ordinal()], threadEnergy[EnergyDimension.DISK.ordinal()],
+                    threadEnergy[EnergyDimension.NETWORK.ordinal()], watts));
+            this.threadTotals.put(info.getId(), threadTotal);
+            totalInvocations += threadInvocations;
+        }
+
+        this.threads = Collections.unmodifiableList(threadList);
+        this.methods = Collections.unmodifiableList(methodList);
+        this.invocations = totalInvocations;
+        this.disk = disk(cpu);
+        this.power = previous != null && seconds > 0 ? (this.getTotalEnergy() - previous.getTotalEnergy()) / seconds : 0;
+        this.timestamp = start;
+        this.duration = System.nanoTime() - start;
+    }
+
+    /**
+     * Returns the energy of the given account indexed by the {@link EnergyDimension} ordinal.
+     * 
+     * @param account
+     *            The account to be read.
+     * @return The energy in joules of each dimension of the given account.
+     */
+    private static double[] values(EnergyAccount account)
+    {
+        final EnergyDimension[] dimensions = EnergyDimension.values();
+        final double[] values = new double[dimensions.length];
+
+        for (EnergyDimension dimension : dimensions)
+        {
+            values[dimension.ordinal()] = account.get(dimension);
+        }
+        return values;
+    }
+
+    /**
+     * Sums the I/O of all paths charged by the disk energy model of the given CPU.
+     * 
+     * @param cpu
+     *            The CPU whose disk I/O is returned.
+     * @return The disk I/O of the process. It's never <code>null</code>.
+     */
+    private static DiskTotals disk(Cpu cpu)
+    {
+        final DiskEnergyModel model = cpu.getEnergyModels().get(DiskEnergyModel.class);
+        long reads = 0;
+        long bytesRead = 0;
+        long writes = 0;
+        long bytesWritten = 0;
+        long latency = 0;
+        double joules = 0;
+
+        if (model != null)
+        {
+            for (PathStatistics path : model.getPathTable().entries())
+            {
+                reads += path.getReads();
+                bytesRead += path.getBytesRead();
+                writes += path.getWrites();
+                bytesWritten += path.getBytesWritten();
+                latency += path.getLatency();
+                joules += path.getEnergy();
+            }
+        }
+        return new DiskTotals(reads, bytesRead, writes, bytesWritten, latency, joules);
+    }
+
+    /**
+     * @return the time in nanoseconds ({@link System#nanoTime()}) when the snapshot was taken
+     */
+    long getTimestamp()
+    {
+        return timestamp;
+    }
+
+    /**
+     * @return the time in nanoseconds spent to take the snapshot
+     */
+    long getDuration()
+    {
+        return duration;
+    }
+
+    /**
+     * @return a read-only list with the profiled threads
+     */
+    List<ThreadEnergy> getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * @return a read-only list with the methods of all profiled threads
+     */
+    List<MethodEnergy> getMethods()
+    {
+        return methods;
+    }
+
+    /**
+     * Returns the energy of the profiled threads in the given dimension.
+     * 
+     * @param dimension
+     *            The energy dimension.
+     * @return The energy in joules of the profiled threads in the given dimension.
+     */
+    double getEnergy(EnergyDimension dimension)
+    {
+        return energy[dimension.ordinal()];
+    }
+
+    /**
+     * Returns the energy that could not be attributed to any thread in the given dimension.
+     * 
+     * @param dimension
+     *            The energy dimension.
+     * @return The energy in joules that could not be attributed to any thread in the given dimension.
+     */
+    double getUnattributedEnergy(EnergyDimension dimension)
+    {
+        return unattributed[dimension.ordinal()];
+    }
+
+    /**
+     * @return the energy in joules of the process, including the energy that could not be attributed to any thread
+     */
+    double getTotalEnergy()
+    {
+        double total = 0;
+
+        for (int i = 0; i < energy.length; i++)
+        {
+            total += energy[i] + unattributed[i];
+        }
+        return total;
+    }
+
+    /**
+     * @return the average power in watts of the process since the previous snapshot
+     */
+    double getPower()
+    {
+        return power;
+    }
+
+    /**
+     * @return the disk I/O of the process
+     */
+    DiskTotals getDisk()
+    {
+        return disk;
+    }
+
+    /**
+     * @return the number of finished invocations of all methods
+     */
+    long getInvocations()
+    {
+        return invocations;
+    }
+}
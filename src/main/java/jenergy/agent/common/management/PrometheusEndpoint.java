@@ -0,0 +1,712 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.management;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import jenergy.agent.common.Cpu;
+import jenergy.profile.energy.EnergyDimension;
+import jenergy.profile.energy.EnergyMonitor;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves the energy of the process, threads and methods in the Prometheus text exposition format through an embedded HTTP server. It's enabled by
+ * the system property <em>jenergy.prometheus.enabled</em> and listens on <em>jenergy.prometheus.host</em>:<em>jenergy.prometheus.port</em> at
+ * <em>jenergy.prometheus.path</em>.
+ * 
+ * To keep the number of series and the scrape time bounded with tens of thousands of methods, only the <em>jenergy.prometheus.methods.top</em>
+ * methods and the <em>jenergy.prometheus.threads.top</em> threads that consumed the most energy have their own labels; the others are summed
+ * into an {@link #OTHER} series. The page is rendered from the snapshot shared with the MXBeans into buffers that are reused by all scrapes.
+ */
+public final class PrometheusEndpoint implements HttpHandler
+{
+    /**
+     * The label value of the methods and threads without their own series.
+     */
+    public static final String OTHER = "other";
+
+    /**
+     * The content type of the text exposition format.
+     */
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    /**
+     * The number of nanoseconds in a second.
+     */
+    private static final double NANOS_PER_SECOND = 1E9;
+
+    /**
+     * The initial size of the buffers.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * The label values of the energy dimensions.
+     */
+    private static final String[] DIMENSIONS = new String[EnergyDimension.values().length];
+
+    static
+    {
+        for (EnergyDimension dimension : EnergyDimension.values())
+        {
+            DIMENSIONS[dimension.ordinal()] = dimension.name().toLowerCase();
+        }
+    }
+
+    /**
+     * Orders the methods by their energy, the lowest first, so the head of the queue is the first to leave the top methods.
+     */
+    private static final Comparator<MethodEnergy> LOWEST_ENERGY_FIRST = new Comparator<MethodEnergy>()
+    {
+        @Override
+        public int compare(MethodEnergy o1, MethodEnergy o2)
+        {
+            return Double.compare(o1.getEnergy(), o2.getEnergy());
+        }
+    };
+
+    /**
+     * Orders the threads by their energy, the lowest first, so the head of the queue is the first to leave the top threads.
+     */
+    private static final Comparator<ThreadEnergy> LOWEST_THREAD_ENERGY_FIRST = new Comparator<ThreadEnergy>()
+    {
+        @Override
+        public int compare(ThreadEnergy o1, ThreadEnergy o2)
+        {
+            return Double.compare(o1.getEnergy(), o2.getEnergy());
+        }
+    };
+
+    /**
+     * The CPU whose threads are profiled.
+     */
+    private final Cpu cpu;
+
+    /**
+     * The snapshots of the CPU.
+     */
+    private final SnapshotCache cache;
+
+    /**
+     * The maximum number of methods with their own series.
+     */
+    private final int topMethods;
+
+    /**
+     * The maximum number of threads with their own series.
+     */
+    private final int topThreads;
+
+    /**
+     * The page being rendered. It's reused by all scrapes.
+     */
+    private final StringBuilder page = new StringBuilder(BUFFER_SIZE);
+
+    /**
+     * The encoder of the page.
+     */
+    private final CharsetEncoder encoder = Charset.forName("UTF-8").newEncoder();
+
+    /**
+     * The encoded page. It's reused by all scrapes and grows when a page does not fit.
+     */
+    private ByteBuffer encoded = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * The methods with the most energy, selected by the current scrape.
+     */
+    private final PriorityQueue<MethodEnergy> methods;
+
+    /**
+     * The threads with the most energy, selected by the current scrape.
+     */
+    private final PriorityQueue<ThreadEnergy> threads;
+
+    /**
+     * The time in nanoseconds spent to render all pages.
+     */
+    private long renderTime;
+
+    /**
+     * @param cpuInstance
+     *            The CPU whose threads are profiled.
+     * @param snapshots
+     *            The snapshots of the CPU.
+     * @param maxMethods
+     *            The maximum number of methods with their own series.
+     * @param maxThreads
+     *            The maximum number of threads with their own series.
+     */
+    PrometheusEndpoint(Cpu cpuInstance, SnapshotCache snapshots, int maxMethods, int maxThreads)
+    {
+        this.cpu = cpuInstance;
+        this.cache = snapshots;
+        this.topMethods = Math.max(0, maxMethods);
+        this.topThreads = Math.max(0, maxThreads);
+        this.methods = new PriorityQueue<MethodEnergy>(this.topMethods + 1, LOWEST_ENERGY_FIRST);
+        this.threads = new PriorityQueue<ThreadEnergy>(this.topThreads + 1, LOWEST_THREAD_ENERGY_FIRST);
+    }
+
+    /**
+     * Starts the HTTP server of the endpoint if it's enabled (system property <em>jenergy.prometheus.enabled</em>). The threads of the server are
+     * daemons, so they do not keep the application running.
+     * 
+     * @param cpu
+     *            The CPU whose threads are profiled.
+     * @param cache
+     *            The snapshots of the CPU.
+     * @return The HTTP server or <code>null</code> if the endpoint is disabled or could not be started.
+     */
+    static HttpServer startIfEnabled(Cpu cpu, SnapshotCache cache)
+    {
+        if (!Boolean.parseBoolean(System.getProperty("jenergy.prometheus.enabled", "false").trim()))
+        {
+            return null;
+        }
+
+        final String host = System.getProperty("jenergy.prometheus.host", "127.0.0.1").trim();
+        final int port = Integer.parseInt(System.getProperty("jenergy.prometheus.port", "9464").trim());
+
+        try
+        {
+            final HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 0);
+            server.createContext(System.getProperty("jenergy.prometheus.path", "/metrics").trim(), new PrometheusEndpoint(cpu, cache,
+                    Integer.parseInt(System.getProperty("jenergy.prometheus.methods.top", "100").trim()), Integer.parseInt(System.getProperty(
+                            "jenergy.prometheus.threads.top", "50").trim())));
+            server.setExecutor(Executors.newSingleThreadExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable runnable)
+                {
+                    Thread thread = new Thread(runnable, "Prometheus endpoint");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            }));
+
+            // the dispatcher thread of the server inherits the daemon status of the thread that starts it
+            Thread starter = new Thread("Prometheus endpoint starter")
+            {
+                @Override
+                public void run()
+                {
+                    server.start();
+                }
+            };
+            starter.setDaemon(true);
+            starter.start();
+            starter.join();
+            return server;
+        }
+        catch (IOException exception)
+        {
+            System.err.printf("Could not start the Prometheus endpoint on %s:%s: %s%n", host, port, exception.getMessage());
+        }
+        catch (InterruptedException exception)
+        {
+            Thread.currentThread().interrupt();
+        }
+        return null;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException
+    {
+        try
+        {
+            if (!"GET".equals(exchange.getRequestMethod()) && !"HEAD".equals(exchange.getRequestMethod()))
+            {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            synchronized (this)
+            {
+                final ByteBuffer body = this.render();
+
+                exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+
+                if ("HEAD".equals(exchange.getRequestMethod()))
+                {
+                    exchange.sendResponseHeaders(200, -1);
+                }
+                else
+                {
+                    exchange.sendResponseHeaders(200, body.remaining());
+                    final OutputStream output = exchange.getResponseBody();
+                    output.write(body.array(), body.arrayOffset() + body.position(), body.remaining());
+                    output.flush();
+                }
+            }
+        }
+        finally
+        {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Renders the page of the current snapshot.
+     * 
+     * @return The encoded page, ready to be read. The buffer is reused by the next scrape.
+     */
+    ByteBuffer render()
+    {
+        final long start = System.nanoTime();
+        final ProfilerSnapshot snapshot = this.cache.get();
+        final StringBuilder sb = this.page;
+        sb.setLength(0);
+
+        this.renderProcess(snapshot, sb);
+        this.renderThreads(snapshot, sb);
+        this.renderMethods(snapshot, sb);
+        this.renderOverhead(sb);
+
+        this.renderTime += System.nanoTime() - start;
+        return this.encode(sb);
+    }
+
+    /**
+     * Renders the energy, the power and the disk I/O of the process.
+     * 
+     * @param snapshot
+     *            The snapshot to be rendered.
+     * @param sb
+     *            The page.
+     */
+    private void renderProcess(ProfilerSnapshot snapshot, StringBuilder sb)
+    {
+        header(sb, "jenergy_energy_joules_total", "counter", "Energy consumed by the profiled threads.");
+
+        for (EnergyDimension dimension : EnergyDimension.values())
+        {
+            sb.append("jenergy_energy_joules_total{dimension=\"").append(DIMENSIONS[dimension.ordinal()]).append("\"} ")
+                    .append(snapshot.getEnergy(dimension)).append('\n');
+        }
+
+        header(sb, "jenergy_unattributed_energy_joules_total", "counter", "Energy consumed by the process that could not be attributed to a thread.");
+
+        for (EnergyDimension dimension : EnergyDimension.values())
+        {
+            sb.append("jenergy_unattributed_energy_joules_total{dimension=\"").append(DIMENSIONS[dimension.ordinal()]).append("\"} ")
+                    .append(snapshot.getUnattributedEnergy(dimension)).append('\n');
+        }
+
+        gauge(sb, "jenergy_power_watts", "Average power of the process since the previous snapshot.", snapshot.getPower());
+
+        final DiskTotals disk = snapshot.getDisk();
+        counter(sb, "jenergy_disk_reads_total", "Disk read operations.", disk.getReads());
+        counter(sb, "jenergy_disk_read_bytes_total", "Bytes read from the disk.", disk.getBytesRead());
+        counter(sb, "jenergy_disk_writes_total", "Disk write operations.", disk.getWrites());
+        counter(sb, "jenergy_disk_written_bytes_total", "Bytes written to the disk.", disk.getBytesWritten());
+        counter(sb, "jenergy_disk_latency_seconds_total", "Latency of the disk operations.", disk.getLatency() / NANOS_PER_SECOND);
+    }
+
+    /**
+     * Renders the energy and the power of the threads that consumed the most energy and the sum of the others.
+     * 
+     * @param snapshot
+     *            The snapshot to be rendered.
+     * @param sb
+     *            The page.
+     */
+    private void renderThreads(ProfilerSnapshot snapshot, StringBuilder sb)
+    {
+        final List<ThreadEnergy> all = snapshot.getThreads();
+        final List<ThreadEnergy> top = select(all, this.threads, this.topThreads, LOWEST_THREAD_ENERGY_FIRST);
+        final double[] other = new double[DIMENSIONS.length + 1];
+
+        for (ThreadEnergy thread : all)
+        {
+            add(other, thread, 1);
+        }
+
+        for (ThreadEnergy thread : top)
+        {
+            add(other, thread, -1);
+        }
+
+        final boolean hasOther = all.size() > top.size();
+
+        header(sb, "jenergy_thread_energy_joules_total", "counter", "Energy consumed by a thread.");
+
+        for (ThreadEnergy thread : top)
+        {
+            final double[] values = {thread.getCpuEnergy(), thread.getMemoryEnergy(), thread.getDiskEnergy(), thread.getNetworkEnergy() };
+
+            for (int i = 0; i < DIMENSIONS.length; i++)
+            {
+                sb.append("jenergy_thread_energy_joules_total{thread=\"").append(thread.getId()).append("\",name=\"");
+                escape(sb, thread.getName() != null ? thread.getName() : "");
+                sb.append("\",dimension=\"").append(DIMENSIONS[i]).append("\"} ").append(values[i]).append('\n');
+            }
+        }
+
+        if (hasOther)
+        {
+            for (int i = 0; i < DIMENSIONS.length; i++)
+            {
+                sb.append("jenergy_thread_energy_joules_total{thread=\"" + OTHER + "\",name=\"\",dimension=\"").append(DIMENSIONS[i]).append("\"} ")
+                        .append(Math.max(0, other[i])).append('\n');
+            }
+        }
+
+        header(sb, "jenergy_thread_power_watts", "gauge", "Average power of a thread since the previous snapshot.");
+
+        for (ThreadEnergy thread : top)
+        {
+            sb.append("jenergy_thread_power_watts{thread=\"").append(thread.getId()).append("\",name=\"");
+            escape(sb, thread.getName() != null ? thread.getName() : "");
+            sb.append("\"} ").append(thread.getPower()).append('\n');
+        }
+
+        if (hasOther)
+        {
+            sb.append("jenergy_thread_power_watts{thread=\"" + OTHER + "\",name=\"\"} ").append(Math.max(0, other[DIMENSIONS.length])).append('\n');
+        }
+    }
+
+    /**
+     * Renders the energy, the CPU time and the invocations of the methods that consumed the most energy and the sum of the others.
+     * 
+     * @param snapshot
+     *            The snapshot to be rendered.
+     * @param sb
+     *            The page.
+     */
+    private void renderMethods(ProfilerSnapshot snapshot, StringBuilder sb)
+    {
+        final List<MethodEnergy> all = snapshot.getMethods();
+        final List<MethodEnergy> top = select(all, this.methods, this.topMethods, LOWEST_ENERGY_FIRST);
+        final double[] otherEnergy = new double[DIMENSIONS.length];
+        long otherCpuTime = 0;
+        long otherInvocations = 0;
+
+        // the methods are summed and subtracted instead of looked up, so the other series costs a single pass
+        for (MethodEnergy method : all)
+        {
+            otherEnergy[EnergyDimension.CPU.ordinal()] += method.getCpuEnergy();
+            otherEnergy[EnergyDimension.MEMORY.ordinal()] += method.getMemoryEnergy();
+            otherEnergy[EnergyDimension.DISK.ordinal()] += method.getDiskEnergy();
+            otherEnergy[EnergyDimension.NETWORK.ordinal()] += method.getNetworkEnergy();
+            otherCpuTime += method.getCpuTime();
+            otherInvocations += method.getInvocations();
+        }
+
+        for (MethodEnergy method : top)
+        {
+            otherEnergy[EnergyDimension.CPU.ordinal()] -= method.getCpuEnergy();
+            otherEnergy[EnergyDimension.MEMORY.ordinal()] -= method.getMemoryEnergy();
+            otherEnergy[EnergyDimension.DISK.ordinal()] -= method.getDiskEnergy();
+            otherEnergy[EnergyDimension.NETWORK.ordinal()] -= method.getNetworkEnergy();
+            otherCpuTime -= method.getCpuTime();
+            otherInvocations -= method.getInvocations();
+        }
+
+        final boolean hasOther = all.size() > top.size();
+
+        header(sb, "jenergy_method_energy_joules_total", "counter", "Energy consumed by a method.");
+
+        for (MethodEnergy method : top)
+        {
+            final double[] values = {method.getCpuEnergy(), method.getMemoryEnergy(), method.getDiskEnergy(), method.getNetworkEnergy() };
+
+            for (int i = 0; i < DIMENSIONS.length; i++)
+            {
+                methodLabels(sb, "jenergy_method_energy_joules_total", method).append(",dimension=\"").append(DIMENSIONS[i]).append("\"} ")
+                        .append(values[i]).append('\n');
+            }
+        }
+
+        if (hasOther)
+        {
+            for (int i = 0; i < DIMENSIONS.length; i++)
+            {
+                sb.append("jenergy_method_energy_joules_total{method=\"" + OTHER + "\",thread=\"\",dimension=\"").append(DIMENSIONS[i])
+                        .append("\"} ").append(Math.max(0, otherEnergy[i])).append('\n');
+            }
+        }
+
+        header(sb, "jenergy_method_cpu_seconds_total", "counter", "CPU time of the finished invocations of a method.");
+
+        for (MethodEnergy method : top)
+        {
+            methodLabels(sb, "jenergy_method_cpu_seconds_total", method).append("} ").append(method.getCpuTime() / NANOS_PER_SECOND).append('\n');
+        }
+
+        if (hasOther)
+        {
+            sb.append("jenergy_method_cpu_seconds_total{method=\"" + OTHER + "\",thread=\"\"} ").append(otherCpuTime / NANOS_PER_SECOND)
+                    .append('\n');
+        }
+
+        header(sb, "jenergy_method_invocations_total", "counter", "Finished invocations of a method.");
+
+        for (MethodEnergy method : top)
+        {
+            methodLabels(sb, "jenergy_method_invocations_total", method).append("} ").append(method.getInvocations()).append('\n');
+        }
+
+        if (hasOther)
+        {
+            sb.append("jenergy_method_invocations_total{method=\"" + OTHER + "\",thread=\"\"} ").append(otherInvocations).append('\n');
+        }
+    }
+
+    /**
+     * Renders the overhead of the profiler.
+     * 
+     * @param sb
+     *            The page.
+     */
+    private void renderOverhead(StringBuilder sb)
+    {
+        final EnergyMonitor monitor = this.cpu.getEnergyMonitor();
+
+        counter(sb, "jenergy_monitor_evaluations_total", "Evaluations of the energy models.", monitor != null ? monitor.getEvaluations() : 0);
+        counter(sb, "jenergy_monitor_seconds_total", "Time spent by the energy monitor.", monitor != null ? monitor.getEvaluationTime()
+                / NANOS_PER_SECOND : 0);
+        counter(sb, "jenergy_dropped_reports_total", "Thread reports dropped because the output queue was full.", this.cpu.getDroppedReports());
+        counter(sb, "jenergy_snapshot_seconds_total", "Time spent to take the snapshots of the profiler.", this.cache.getSnapshotTime()
+                / NANOS_PER_SECOND);
+        counter(sb, "jenergy_render_seconds_total", "Time spent to render the Prometheus pages.", this.renderTime / NANOS_PER_SECOND);
+    }
+
+    /**
+     * Returns the greatest elements of the given list without sorting all of them.
+     * 
+     * @param all
+     *            The elements of the snapshot.
+     * @param queue
+     *            The reused queue ordered by the given comparator. It's empty when this method returns.
+     * @param count
+     *            The maximum number of elements to be returned.
+     * @param lowestFirst
+     *            The order of the elements, the lowest first.
+     * @param <T>
+     *            The type of the elements.
+     * @return The greatest elements, the highest first.
+     */
+    private static <T> List<T> select(List<T> all, PriorityQueue<T> queue, int count, Comparator<T> lowestFirst)
+    {
+        for (T element : all)
+        {
+            if (queue.size() < count)
+            {
+                queue.add(element);
+            }
+            else if (count > 0 && lowestFirst.compare(element, queue.peek()) > 0)
+            {
+                queue.poll();
+                queue.add(element);
+            }
+        }
+
+        final List<T> top = new ArrayList<T>(queue);
+        queue.clear();
+        Collections.sort(top, Collections.reverseOrder(lowestFirst));
+        return top;
+    }
+
+    /**
+     * Encodes the given page in UTF-8 into the reused buffer, growing it if needed.
+     * 
+     * @param sb
+     *            The page.
+     * @return The encoded page, ready to be read.
+     */
+    private ByteBuffer encode(StringBuilder sb)
+    {
+        while (true)
+        {
+            final CharBuffer chars = CharBuffer.wrap(sb);
+            this.encoder.reset();
+            this.encoded.clear();
+
+            CoderResult result = this.encoder.encode(chars, this.encoded, true);
+
+            if (!result.isOverflow())
+            {
+                result = this.encoder.flush(this.encoded);
+            }
+
+            if (!result.isOverflow())
+            {
+                this.encoded.flip();
+                return this.encoded;
+            }
+            this.encoded = ByteBuffer.allocate(this.encoded.capacity() * 2);
+        }
+    }
+
+    /**
+     * Adds the energy and the power of the given thread to the given sums.
+     * 
+     * @param sums
+     *            The energy of each dimension followed by the power.
+     * @param thread
+     *            The thread to be added.
+     * @param sign
+     *            <code>1</code> to add the thread and <code>-1</code> to subtract it.
+     */
+    private static void add(double[] sums, ThreadEnergy thread, int sign)
+    {
+        sums[EnergyDimension.CPU.ordinal()] += sign * thread.getCpuEnergy();
+        sums[EnergyDimension.MEMORY.ordinal()] += sign * thread.getMemoryEnergy();
+        sums[EnergyDimension.DISK.ordinal()] += sign * thread.getDiskEnergy();
+        sums[EnergyDimension.NETWORK.ordinal()] += sign * thread.getNetworkEnergy();
+        sums[sums.length - 1] += sign * thread.getPower();
+    }
+
+    /**
+     * Appends the name and the method and thread labels of a method series, without closing the labels.
+     * 
+     * @param sb
+     *            The page.
+     * @param name
+     *            The name of the metric.
+     * @param method
+     *            The method of the series.
+     * @return The page.
+     */
+    private static StringBuilder methodLabels(StringBuilder sb, String name, MethodEnergy method)
+    {
+        sb.append(name).append("{method=\"");
+        escape(sb, method.getName());
+        return sb.append("\",thread=\"").append(method.getThreadId()).append('"');
+    }
+
+    /**
+     * Appends the HELP and TYPE lines of a metric.
+     * 
+     * @param sb
+     *            The page.
+     * @param name
+     *            The name of the metric.
+     * @param type
+     *            The type of the metric.
+     * @param help
+     *            The description of the metric.
+     */
+    private static void header(StringBuilder sb, String name, String type, String help)
+    {
+        sb.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        sb.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * Appends a counter without labels.
+     * 
+     * @param sb
+     *            The page.
+     * @param name
+     *            The name of the metric.
+     * @param help
+     *            The description of the metric.
+     * @param value
+     *            The value of the counter.
+     */
+    private static void counter(StringBuilder sb, String name, String help, double value)
+    {
+        header(sb, name, "counter", help);
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Appends a counter without labels.
+     * 
+     * @param sb
+     *            The page.
+     * @param name
+     *            The name of the metric.
+     * @param help
+     *            The description of the metric.
+     * @param value
+     *            The value of the counter.
+     */
+    private static void counter(StringBuilder sb, String name, String help, long value)
+    {
+        header(sb, name, "counter", help);
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Appends a gauge without labels.
+     * 
+     * @param sb
+     *            The page.
+     * @param name
+     *            The name of the metric.
+     * @param help
+     *            The description of the metric.
+     * @param value
+     *            The value of the gauge.
+     */
+    private static void gauge(StringBuilder sb, String name, String help, double value)
+    {
+        header(sb, name, "gauge", help);
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * Appends a label value escaping the backslashes, the double quotes and the line feeds.
+     * 
+     * @param sb
+     *            The page.
+     * @param value
+     *            The label value.
+     */
+    private static void escape(StringBuilder sb, String value)
+    {
+        for (int i = 0; i < value.length(); i++)
+        {
+            final char c = value.charAt(i);
+
+            if (c == '\\' || c == '"')
+            {
+                sb.append('\\').append(c);
+            }
+            else if (c == '\n')
+            {
+                sb.append("\\n");
+            }
+            else
+            {
+                sb.append(c);
+            }
+        }
+    }
+}
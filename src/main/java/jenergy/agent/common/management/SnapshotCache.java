@@ -0,0 +1,125 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.management;
+
+import jenergy.agent.common.Cpu;
+
+/**
+ * Keeps the last {@link ProfilerSnapshot} of a CPU. A new snapshot is taken when the last one is older than the refresh interval (system
+ * property <em>jenergy.jmx.refresh</em>, in milliseconds), so many clients polling the MBeans read the same copy instead of walking the
+ * profiled threads again.
+ */
+final class SnapshotCache
+{
+    /**
+     * The number of nanoseconds in a millisecond.
+     */
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /**
+     * The CPU whose threads are profiled.
+     */
+    private final Cpu cpu;
+
+    /**
+     * The minimum age in nanoseconds of a snapshot to be replaced.
+     */
+    private final long refresh;
+
+    /**
+     * The last snapshot or <code>null</code> if none has been taken.
+     */
+    private volatile ProfilerSnapshot snapshot;
+
+    /**
+     * The number of snapshots taken.
+     */
+    private volatile long snapshots;
+
+    /**
+     * The time in nanoseconds spent to take all snapshots.
+     */
+    private volatile long snapshotTime;
+
+    /**
+     * Creates a cache reading the refresh interval from the system properties.
+     * 
+     * @param cpuInstance
+     *            The CPU whose threads are profiled.
+     */
+    SnapshotCache(Cpu cpuInstance)
+    {
+        this(cpuInstance, Long.parseLong(System.getProperty("jenergy.jmx.refresh", "1000").trim()));
+    }
+
+    /**
+     * @param cpuInstance
+     *            The CPU whose threads are profiled.
+     * @param refreshMillis
+     *            The minimum age in milliseconds of a snapshot to be replaced.
+     */
+    SnapshotCache(Cpu cpuInstance, long refreshMillis)
+    {
+        this.cpu = cpuInstance;
+        this.refresh = Math.max(0, refreshMillis) * NANOS_PER_MILLI;
+    }
+
+    /**
+     * Returns a snapshot not older than the refresh interval, taking a new one if needed.
+     * 
+     * @return A snapshot not older than the refresh interval. It's never <code>null</code>.
+     */
+    ProfilerSnapshot get()
+    {
+        ProfilerSnapshot current = this.snapshot;
+
+        if (current == null || System.nanoTime() - current.getTimestamp() >= this.refresh)
+        {
+            synchronized (this)
+            {
+                current = this.snapshot;
+
+                if (current == null || System.nanoTime() - current.getTimestamp() >= this.refresh)
+                {
+                    current = new ProfilerSnapshot(this.cpu, current);
+                    this.snapshot = current;
+                    this.snapshots++;
+                    this.snapshotTime += current.getDuration();
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * @return the number of snapshots taken
+     */
+    long getSnapshots()
+    {
+        return snapshots;
+    }
+
+    /**
+     * @return the time in nanoseconds spent to take all snapshots
+     */
+    long getSnapshotTime()
+    {
+        return snapshotTime;
+    }
+}
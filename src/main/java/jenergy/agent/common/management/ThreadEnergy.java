@@ -0,0 +1,188 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.management;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The energy and the power of a profiled thread, as exposed by the {@link ThreadProfilersMXBean}. The energy is in joules and the power is the
+ * average in watts since the previous snapshot.
+ */
+public final class ThreadEnergy
+{
+    /**
+     * The thread id.
+     */
+    private final long id;
+
+    /**
+     * The thread name or <code>null</code> if it's unknown.
+     */
+    private final String name;
+
+    /**
+     * Whether the thread is still running.
+     */
+    private final boolean active;
+
+    /**
+     * The number of finished invocations of the methods of the thread.
+     */
+    private final long invocations;
+
+    /**
+     * The CPU energy.
+     */
+    private final double cpuEnergy;
+
+    /**
+     * The memory energy.
+     */
+    private final double memoryEnergy;
+
+    /**
+     * The disk energy.
+     */
+    private final double diskEnergy;
+
+    /**
+     * The network energy.
+     */
+    private final double networkEnergy;
+
+    /**
+     * The average power since the previous snapshot.
+     */
+    private final double power;
+
+    /**
+     * @param tid
+     *            The thread id.
+     * @param threadName
+     *            The thread name. It can be <code>null</code>.
+     * @param running
+     *            Whether the thread is still running.
+     * @param numberOfInvocations
+     *            The number of finished invocations of the methods of the thread.
+     * @param cpu
+     *            The CPU energy in joules.
+     * @param memory
+     *            The memory energy in joules.
+     * @param disk
+     *            The disk energy in joules.
+     * @param network
+     *            The network energy in joules.
+     * @param watts
+     *            The average power in watts since the previous snapshot.
+     */
+    @ConstructorProperties({ "id", "name", "active", "invocations", "cpuEnergy", "memoryEnergy", "diskEnergy", "networkEnergy", "power" })
+    public ThreadEnergy(long tid, String threadName, boolean running, long numberOfInvocations, double cpu, double memory, double disk,
+            double network, double watts)
+    {
+        this.id = tid;
+        this.name = threadName;
+        this.active = running;
+        this.invocations = numberOfInvocations;
+        this.cpuEnergy = cpu;
+        this.memoryEnergy = memory;
+        this.diskEnergy = disk;
+        this.networkEnergy = network;
+        this.power = watts;
+    }
+
+    /**
+     * @return the thread id
+     */
+    public long getId()
+    {
+        return id;
+    }
+
+    /**
+     * @return the thread name or <code>null</code> if it's unknown
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return whether the thread is still running
+     */
+    public boolean isActive()
+    {
+        return active;
+    }
+
+    /**
+     * @return the number of finished invocations of the methods of the thread
+     */
+    public long getInvocations()
+    {
+        return invocations;
+    }
+
+    /**
+     * @return the CPU energy in joules
+     */
+    public double getCpuEnergy()
+    {
+        return cpuEnergy;
+    }
+
+    /**
+     * @return the memory energy in joules
+     */
+    public double getMemoryEnergy()
+    {
+        return memoryEnergy;
+    }
+
+    /**
+     * @return the disk energy in joules
+     */
+    public double getDiskEnergy()
+    {
+        return diskEnergy;
+    }
+
+    /**
+     * @return the network energy in joules
+     */
+    public double getNetworkEnergy()
+    {
+        return networkEnergy;
+    }
+
+    /**
+     * @return the energy of all dimensions in joules
+     */
+    public double getEnergy()
+    {
+        return cpuEnergy + memoryEnergy + diskEnergy + networkEnergy;
+    }
+
+    /**
+     * @return the average power in watts since the previous snapshot
+     */
+    public double getPower()
+    {
+        return power;
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.management;
+
+import java.util.List;
+
+/**
+ * The energy and the power of the profiled threads. The values are read from a snapshot refreshed at most once per <em>jenergy.jmx.refresh</em>
+ * milliseconds.
+ */
+public interface ThreadProfilersMXBean
+{
+    /**
+     * @return the number of profiled threads, including the finished ones
+     */
+    int getThreadCount();
+
+    /**
+     * @return the number of profiled threads that are still running
+     */
+    int getActiveThreadCount();
+
+    /**
+     * @return the profiled threads
+     */
+    List<ThreadEnergy> getThreads();
+
+    /**
+     * Returns the threads with the highest power since the previous snapshot.
+     * 
+     * @param count
+     *            The maximum number of threads to be returned.
+     * @return The threads with the highest power, the highest first.
+     */
+    List<ThreadEnergy> topByPower(int count);
+
+    /**
+     * Returns the threads that consumed the most energy.
+     * 
+     * @param count
+     *            The maximum number of threads to be returned.
+     * @return The threads that consumed the most energy, the highest first.
+     */
+    List<ThreadEnergy> topByEnergy(int count);
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.management;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The {@link ThreadProfilersMXBean} of the threads of a {@link jenergy.agent.common.Cpu}.
+ */
+final class ThreadProfilersView implements ThreadProfilersMXBean
+{
+    /**
+     * Orders the threads by their power, the highest first.
+     */
+    private static final Comparator<ThreadEnergy> BY_POWER = new Comparator<ThreadEnergy>()
+    {
+        @Override
+        public int compare(ThreadEnergy o1, ThreadEnergy o2)
+        {
+            return Double.compare(o2.getPower(), o1.getPower());
+        }
+    };
+
+    /**
+     * Orders the threads by their energy, the highest first.
+     */
+    private static final Comparator<ThreadEnergy> BY_ENERGY = new Comparator<ThreadEnergy>()
+    {
+        @Override
+        public int compare(ThreadEnergy o1, ThreadEnergy o2)
+        {
+            return Double.compare(o2.getEnergy(), o1.getEnergy());
+        }
+    };
+
+    /**
+     * The snapshots of the CPU.
+     */
+    private final SnapshotCache cache;
+
+    /**
+     * @param snapshots
+     *            The snapshots of the CPU.
+     */
+    ThreadProfilersView(SnapshotCache snapshots)
+    {
+        this.cache = snapshots;
+    }
+
+    @Override
+    public int getThreadCount()
+    {
+        return cache.get().getThreads().size();
+    }
+
+    @Override
+    public int getActiveThreadCount()
+    {
+        int active = 0;
+
+        for (ThreadEnergy thread : cache.get().getThreads())
+        {
+            if (thread.isActive())
+            {
+                active++;
+            }
+        }
+        return active;
+    }
+
+    @Override
+    public List<ThreadEnergy> getThreads()
+    {
+        return cache.get().getThreads();
+    }
+
+    @Override
+    public List<ThreadEnergy> topByPower(int count)
+    {
+        return Management.top(cache.get().getThreads(), BY_POWER, count);
+    }
+
+    @Override
+    public List<ThreadEnergy> topByEnergy(int count)
+    {
+        return Management.top(cache.get().getThreads(), BY_ENERGY, count);
+    }
+}
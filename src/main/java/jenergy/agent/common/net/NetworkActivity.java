@@ -18,15 +18,199 @@
  */
 package jenergy.agent.common.net;
 
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+
+import jenergy.agent.common.Cpu;
+import jenergy.profile.ThreadProfiler;
 import jenergy.profile.data.Activity;
 import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.IOInfo.IOActivityType;
+import jenergy.profile.data.MethodInfo;
+import jenergy.profile.energy.NetworkEnergyModel;
 
 public class NetworkActivity implements Activity<IOInfo>
 {
+    /**
+     * The reference to the object that has the data (number of bytes sent or received) by this network activity.
+     */
+    private final IOInfo data;
+
+    /**
+     * 
+     * @param ioInfo
+     *            The reference to the object that has the data (number of bytes sent or received) by this network activity. Might not be
+     *            <code>null</code>.
+     */
+    public NetworkActivity(IOInfo ioInfo)
+    {
+        this.data = ioInfo;
+    }
+
+    /**
+     * Creates the {@link NetworkActivity} of the given I/O data, adds it to the activities of the method that realized it and starts charging its
+     * energy.
+     * 
+     * @param ioInfo
+     *            The I/O data of the activity. Might not be <code>null</code>.
+     * @return The {@link NetworkActivity} of the given I/O data.
+     */
+    public static NetworkActivity register(IOInfo ioInfo)
+    {
+        NetworkActivity activity = new NetworkActivity(ioInfo);
+
+        if (ioInfo.getMethod() != null)
+        {
+            ioInfo.getMethod().addActivity(activity);
+        }
+
+        track(ioInfo);
+        return activity;
+    }
+
+    /**
+     * Starts charging the energy of the given I/O data without adding it to the activities of its method. It's used by the short-lived activities,
+     * such as the asynchronous operations.
+     * 
+     * @param ioInfo
+     *            The I/O data of the activity. Might not be <code>null</code>.
+     */
+    public static void track(IOInfo ioInfo)
+    {
+        NetworkEnergyModel model = Cpu.getInstance().getEnergyModels().get(NetworkEnergyModel.class);
+
+        if (model != null)
+        {
+            model.track(ioInfo);
+        }
+    }
+
+    /**
+     * Adds a channel operation to the network activity of the method that is executing in the current thread. The method has one activity of each
+     * type per channel or remote address, so that every activity has its own peer. It's created at the first operation of the given type with the
+     * channel; the next operations only increment its counters.
+     * 
+     * @param type
+     *            The type of the operation: {@link IOActivityType#READ} to receive and {@link IOActivityType#WRITE} to send.
+     * @param bytes
+     *            The number of bytes transferred by the operation. A negative value means that no data was transferred (e.g., end of stream).
+     * @param nanos
+     *            The time in nanoseconds spent in the operation.
+     * @param channel
+     *            The channel used by the operation or the remote address of a datagram. The remote host is only resolved when the activity is
+     *            created.
+     */
+    public static void record(IOActivityType type, long bytes, long nanos, Object channel)
+    {
+        final ThreadProfiler profiler = Cpu.getInstance().currentThread();
+        final MethodInfo method = profiler != null ? profiler.peekMethodInfo() : null;
+
+        if (method != null)
+        {
+            IOInfo info = method.getNetworkActivity(type, channel);
+
+            if (info == null)
+            {
+                info = new IOInfo(type, method, addressOf(channel));
+                method.setNetworkActivity(info, channel);
+                register(info);
+            }
+            info.increment(bytes, nanos);
+        }
+    }
+
+    /**
+     * Creates the I/O data of an asynchronous operation started by the method that is executing in the current thread. The operation completes in
+     * another thread, so it has its own I/O data, which is charged to the method that started it.
+     * 
+     * @param type
+     *            The type of the operation: {@link IOActivityType#READ} to receive and {@link IOActivityType#WRITE} to send.
+     * @param channel
+     *            The channel used by the operation.
+     * @return The I/O data of the operation. It must be closed when the operation completes.
+     */
+    public static IOInfo startAsync(IOActivityType type, Object channel)
+    {
+        final ThreadProfiler profiler = Cpu.getInstance().currentThread();
+        final IOInfo info = new IOInfo(type, profiler != null ? profiler.peekMethodInfo() : null, addressOf(channel));
+        track(info);
+        return info;
+    }
+
+    /**
+     * Returns whether the given channel transfers its bytes through the network.
+     * 
+     * @param channel
+     *            The target of a read or write operation.
+     * @return <code>true</code> if the channel is a {@link SocketChannel} or a {@link DatagramChannel}.
+     */
+    public static boolean isNetworkChannel(Object channel)
+    {
+        return channel instanceof SocketChannel || channel instanceof DatagramChannel;
+    }
+
+    /**
+     * Returns the IP address of the remote host of a connected channel.
+     * 
+     * @param channel
+     *            The channel or socket address. It can be <code>null</code>.
+     * @return The IP address of the remote host or <code>null</code> if it's unknown.
+     */
+    public static String addressOf(Object channel)
+    {
+        SocketAddress remote = null;
+
+        try
+        {
+            if (channel instanceof SocketChannel)
+            {
+                remote = ((SocketChannel) channel).getRemoteAddress();
+            }
+            else if (channel instanceof DatagramChannel)
+            {
+                remote = ((DatagramChannel) channel).getRemoteAddress();
+            }
+            else if (channel instanceof AsynchronousSocketChannel)
+            {
+                remote = ((AsynchronousSocketChannel) channel).getRemoteAddress();
+            }
+            else if (channel instanceof SocketAddress)
+            {
+                remote = (SocketAddress) channel;
+            }
+        }
+        catch (IOException exception)
+        {
+            return null;
+        }
+
+        if (remote instanceof InetSocketAddress)
+        {
+            return addressOf(((InetSocketAddress) remote).getAddress());
+        }
+        return null;
+    }
+
+    /**
+     * Returns the literal of the given IP address.
+     * 
+     * @param address
+     *            The IP address. It can be <code>null</code>.
+     * @return The literal of the given IP address or <code>null</code> if it's <code>null</code>.
+     */
+    public static String addressOf(InetAddress address)
+    {
+        return address != null ? address.getHostAddress() : null;
+    }
 
     @Override
     public IOInfo data()
     {
-        return null;
+        return data;
     }
 }
@@ -0,0 +1,79 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.net;
+
+import java.nio.channels.CompletionHandler;
+
+import jenergy.profile.data.IOInfo;
+
+/**
+ * Counts the bytes transferred by an asynchronous channel operation and its latency before notifying the application's handler.
+ * 
+ * @param <V>
+ *            The result type of the operation: the number of bytes transferred.
+ * @param <A>
+ *            The type of the object attached to the operation.
+ */
+public final class NetworkCompletionHandler<V, A> implements CompletionHandler<V, A>
+{
+    /**
+     * The application's handler.
+     */
+    private final CompletionHandler<V, A> delegate;
+
+    /**
+     * The I/O data of the operation.
+     */
+    private final IOInfo info;
+
+    /**
+     * The time in nanoseconds when the operation started.
+     */
+    private final long start = System.nanoTime();
+
+    /**
+     * @param handler
+     *            The application's handler. Might not be <code>null</code>.
+     * @param ioInfo
+     *            The I/O data of the operation.
+     */
+    public NetworkCompletionHandler(CompletionHandler<V, A> handler, IOInfo ioInfo)
+    {
+        this.delegate = handler;
+        this.info = ioInfo;
+    }
+
+    @Override
+    public void completed(V result, A attachment)
+    {
+        if (result instanceof Number)
+        {
+            this.info.increment(((Number) result).longValue(), System.nanoTime() - this.start);
+        }
+        this.info.close();
+        this.delegate.completed(result, attachment);
+    }
+
+    @Override
+    public void failed(Throwable exc, A attachment)
+    {
+        this.info.close();
+        this.delegate.failed(exc, attachment);
+    }
+}
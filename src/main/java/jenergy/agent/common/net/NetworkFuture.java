@@ -0,0 +1,141 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.net;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import jenergy.profile.data.IOInfo;
+
+/**
+ * Counts the bytes transferred by an asynchronous channel operation when the application gets its result. The latency is the time until the
+ * result was first obtained.
+ * 
+ * @param <V>
+ *            The result type of the operation: the number of bytes transferred.
+ */
+public final class NetworkFuture<V> implements Future<V>
+{
+    /**
+     * The future of the operation.
+     */
+    private final Future<V> delegate;
+
+    /**
+     * The I/O data of the operation.
+     */
+    private final IOInfo info;
+
+    /**
+     * The time in nanoseconds when the operation started.
+     */
+    private final long start = System.nanoTime();
+
+    /**
+     * Flag to indicate that the result has already been counted.
+     */
+    private final AtomicBoolean counted = new AtomicBoolean();
+
+    /**
+     * @param future
+     *            The future of the operation. Might not be <code>null</code>.
+     * @param ioInfo
+     *            The I/O data of the operation.
+     */
+    public NetworkFuture(Future<V> future, IOInfo ioInfo)
+    {
+        this.delegate = future;
+        this.info = ioInfo;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning)
+    {
+        final boolean cancelled = this.delegate.cancel(mayInterruptIfRunning);
+
+        if (cancelled && this.counted.compareAndSet(false, true))
+        {
+            this.info.close();
+        }
+        return cancelled;
+    }
+
+    @Override
+    public boolean isCancelled()
+    {
+        return this.delegate.isCancelled();
+    }
+
+    @Override
+    public boolean isDone()
+    {
+        return this.delegate.isDone();
+    }
+
+    @Override
+    public V get() throws InterruptedException, ExecutionException
+    {
+        try
+        {
+            return this.count(this.delegate.get());
+        }
+        catch (ExecutionException exception)
+        {
+            this.count(null);
+            throw exception;
+        }
+    }
+
+    @Override
+    public V get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException
+    {
+        try
+        {
+            return this.count(this.delegate.get(timeout, unit));
+        }
+        catch (ExecutionException exception)
+        {
+            this.count(null);
+            throw exception;
+        }
+    }
+
+    /**
+     * Counts the result of the operation, if it has not been counted yet.
+     * 
+     * @param result
+     *            The result of the operation. It's <code>null</code> if the operation failed.
+     * @return The given result.
+     */
+    private V count(V result)
+    {
+        if (this.counted.compareAndSet(false, true))
+        {
+            if (result instanceof Number)
+            {
+                this.info.increment(((Number) result).longValue(), System.nanoTime() - this.start);
+            }
+            this.info.close();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.net;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.IOInfo.IOActivityType;
+import jenergy.profile.data.MethodInfo;
+
+/**
+ * Counts the bytes received through the input stream of a {@link Socket} and the time spent waiting for them.
+ */
+public final class SocketInputStreamDelegate extends FilterInputStream
+{
+    /**
+     * The reference to the I/O activity updated by every read operation.
+     */
+    private final IOInfo info;
+
+    /**
+     * @param input
+     *            The input stream of the socket.
+     * @param socket
+     *            The socket of the stream.
+     * @param method
+     *            The method that requested the stream.
+     */
+    public SocketInputStreamDelegate(InputStream input, Socket socket, MethodInfo method)
+    {
+        super(input);
+        this.info = new IOInfo(IOActivityType.READ, method, NetworkActivity.addressOf(socket.getInetAddress()));
+        NetworkActivity.register(this.info);
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        final long start = System.nanoTime();
+        final int value = this.in.read();
+        this.info.increment(value < 0 ? -1 : 1, System.nanoTime() - start);
+        return value;
+    }
+
+    @Override
+    public int read(byte[] b) throws IOException
+    {
+        return this.read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        final long start = System.nanoTime();
+        final int read = this.in.read(b, off, len);
+        this.info.increment(read, System.nanoTime() - start);
+        return read;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            super.close();
+        }
+        finally
+        {
+            this.info.close();
+        }
+    }
+
+    /**
+     * @return the info
+     */
+    public IOInfo getInfo()
+    {
+        return info;
+    }
+
+    /**
+     * Returns whether this delegate counts the bytes of the given stream.
+     * 
+     * @param stream
+     *            The input stream of a socket.
+     * @return <code>true</code> if this delegate wraps the given stream.
+     */
+    boolean wraps(InputStream stream)
+    {
+        return this.in == stream;
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.net;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.IOInfo.IOActivityType;
+import jenergy.profile.data.MethodInfo;
+
+/**
+ * Counts the bytes sent through the output stream of a {@link Socket} and the time spent sending them.
+ */
+public final class SocketOutputStreamDelegate extends FilterOutputStream
+{
+    /**
+     * The reference to the I/O activity updated by every write operation.
+     */
+    private final IOInfo info;
+
+    /**
+     * @param output
+     *            The output stream of the socket.
+     * @param socket
+     *            The socket of the stream.
+     * @param method
+     *            The method that requested the stream.
+     */
+    public SocketOutputStreamDelegate(OutputStream output, Socket socket, MethodInfo method)
+    {
+        super(output);
+        this.info = new IOInfo(IOActivityType.WRITE, method, NetworkActivity.addressOf(socket.getInetAddress()));
+        NetworkActivity.register(this.info);
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+        final long start = System.nanoTime();
+        this.out.write(b);
+        this.info.increment(1, System.nanoTime() - start);
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException
+    {
+        this.write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        final long start = System.nanoTime();
+        this.out.write(b, off, len);
+        this.info.increment(len, System.nanoTime() - start);
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            super.close();
+        }
+        finally
+        {
+            this.info.close();
+        }
+    }
+
+    /**
+     * @return the info
+     */
+    public IOInfo getInfo()
+    {
+        return info;
+    }
+
+    /**
+     * Returns whether this delegate counts the bytes of the given stream.
+     * 
+     * @param stream
+     *            The output stream of a socket.
+     * @return <code>true</code> if this delegate wraps the given stream.
+     */
+    boolean wraps(OutputStream stream)
+    {
+        return this.out == stream;
+    }
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.net;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.net.Socket;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.MethodInfo;
+
+/**
+ * Keeps the delegates of the streams of each {@link Socket}, so that all the calls to {@link Socket#getInputStream()} and
+ * {@link Socket#getOutputStream()} return the same delegate and share its I/O activity, which is closed when the socket closes.
+ * <p>
+ * The socket streams of the JDK reference their socket, so the delegates are only weakly referenced: the socket can be collected once the
+ * application drops them. The I/O activities are kept until the socket closes.
+ */
+public final class SocketStreams
+{
+    /**
+     * The streams of the sockets whose streams were requested. It's also the lock of the instances.
+     */
+    private static final Map<Socket, SocketStreams> SOCKETS = new WeakHashMap<Socket, SocketStreams>();
+
+    /**
+     * The delegate of the input stream of the socket or <code>null</code> if it has not been requested.
+     */
+    private WeakReference<SocketInputStreamDelegate> input;
+
+    /**
+     * The I/O activity of {@link #input}. It's <code>null</code> if the input stream has not been requested.
+     */
+    private IOInfo inputInfo;
+
+    /**
+     * The delegate of the output stream of the socket or <code>null</code> if it has not been requested.
+     */
+    private WeakReference<SocketOutputStreamDelegate> output;
+
+    /**
+     * The I/O activity of {@link #output}. It's <code>null</code> if the output stream has not been requested.
+     */
+    private IOInfo outputInfo;
+
+    /**
+     * Private constructor. The instances are created by {@link #of(Socket)}.
+     */
+    private SocketStreams()
+    {
+    }
+
+    /**
+     * Returns the delegate of the input stream of the given socket. It's created by the first call and reused while it wraps the same stream.
+     * 
+     * @param socket
+     *            The socket. Might not be <code>null</code>.
+     * @param stream
+     *            The input stream returned by the socket.
+     * @param method
+     *            The method that requested the stream. It's charged with the bytes received if the delegate is created.
+     * @return The delegate of the input stream of the given socket.
+     */
+    public static InputStream inputStreamOf(Socket socket, InputStream stream, MethodInfo method)
+    {
+        synchronized (SOCKETS)
+        {
+            final SocketStreams streams = of(socket);
+            SocketInputStreamDelegate delegate = streams.input != null ? streams.input.get() : null;
+
+            if (delegate == null || !delegate.wraps(stream))
+            {
+                close(streams.inputInfo);
+                delegate = new SocketInputStreamDelegate(stream, socket, method);
+                streams.input = new WeakReference<SocketInputStreamDelegate>(delegate);
+                streams.inputInfo = delegate.getInfo();
+            }
+            return delegate;
+        }
+    }
+
+    /**
+     * Returns the delegate of the output stream of the given socket. It's created by the first call and reused while it wraps the same stream.
+     * 
+     * @param socket
+     *            The socket. Might not be <code>null</code>.
+     * @param stream
+     *            The output stream returned by the socket.
+     * @param method
+     *            The method that requested the stream. It's charged with the bytes sent if the delegate is created.
+     * @return The delegate of the output stream of the given socket.
+     */
+    public static OutputStream outputStreamOf(Socket socket, OutputStream stream, MethodInfo method)
+    {
+        synchronized (SOCKETS)
+        {
+            final SocketStreams streams = of(socket);
+            SocketOutputStreamDelegate delegate = streams.output != null ? streams.output.get() : null;
+
+            if (delegate == null || !delegate.wraps(stream))
+            {
+                close(streams.outputInfo);
+                delegate = new SocketOutputStreamDelegate(stream, socket, method);
+                streams.output = new WeakReference<SocketOutputStreamDelegate>(delegate);
+                streams.outputInfo = delegate.getInfo();
+            }
+            return delegate;
+        }
+    }
+
+    /**
+     * Closes the I/O activities of the streams of the given socket. It's called when the socket closes.
+     * 
+     * @param socket
+     *            The socket that was closed. It can be <code>null</code>.
+     */
+    public static void closed(Socket socket)
+    {
+        final SocketStreams streams;
+
+        synchronized (SOCKETS)
+        {
+            streams = socket != null ? SOCKETS.remove(socket) : null;
+        }
+
+        if (streams != null)
+        {
+            close(streams.inputInfo);
+            close(streams.outputInfo);
+        }
+    }
+
+    /**
+     * Returns the streams of the given socket, creating them if the socket has none. It must be called holding the lock of {@link #SOCKETS}.
+     * 
+     * @param socket
+     *            The socket. Might not be <code>null</code>.
+     * @return The streams of the given socket.
+     */
+    private static SocketStreams of(Socket socket)
+    {
+        SocketStreams streams = SOCKETS.get(socket);
+
+        if (streams == null)
+        {
+            streams = new SocketStreams();
+            SOCKETS.put(socket, streams);
+        }
+        return streams;
+    }
+
+    /**
+     * Closes the given I/O activity.
+     * 
+     * @param info
+     *            The I/O activity. It can be <code>null</code>.
+     */
+    private static void close(IOInfo info)
+    {
+        if (info != null)
+        {
+            info.close();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import jenergy.compress.Compression;
+import jenergy.flamegraph.CollapsedStacks;
+import jenergy.flamegraph.Weight;
+import jenergy.profile.ThreadProfiler;
+import jenergy.profile.data.CallingContext;
+
+/**
+ * Writes the calling context tree of each thread as collapsed stacks to the file defined by the system property <em>jenergy.flamegraph.file</em>.
+ * The root frame of each stack is the thread, e.g., <em>thread-12</em>, and the values are given by the system property
+ * <em>jenergy.flamegraph.weight</em>. The file can be rendered by the <em>flamegraph</em> command.
+ */
+public final class CollapsedStackOutput implements OutputSink
+{
+    /**
+     * The output of the stacks.
+     */
+    private final Writer out;
+
+    /**
+     * The writer of the stacks.
+     */
+    private final CollapsedStacks stacks;
+
+    /**
+     * @param file
+     *            The path of the file of collapsed stacks. An existing file is replaced.
+     * @param weight
+     *            The value written for each calling context.
+     * @param compression
+     *            The compression of the file. The file must be named by {@link Compression#fileName(String)}.
+     * @throws IOException
+     *             If the file cannot be created.
+     */
+    public CollapsedStackOutput(String file, Weight weight, Compression compression) throws IOException
+    {
+        this.out = new BufferedWriter(new OutputStreamWriter(compression.open(file, false), Charset.forName("UTF-8")));
+        this.stacks = new CollapsedStacks(this.out, weight);
+    }
+
+    @Override
+    public void write(ThreadReport report) throws IOException
+    {
+        final ThreadProfiler profiler = report.getProfiler();
+        final CallingContext root = profiler.getCallingContexts();
+
+        if (root != null)
+        {
+            this.stacks.write("thread-" + profiler.getThreadInfo().getId(), root, profiler.getMethodsEnergy());
+        }
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        this.out.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        this.out.close();
+    }
+}
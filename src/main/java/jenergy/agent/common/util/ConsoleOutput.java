@@ -0,0 +1,70 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.util;
+
+import java.io.PrintStream;
+
+/**
+ * Prints the reports to the standard output. The reports of a batch are printed at once.
+ */
+public final class ConsoleOutput implements OutputSink
+{
+    /**
+     * The stream where the reports are printed.
+     */
+    private final PrintStream out;
+
+    /**
+     * The reports of the current batch. It's reused by all batches.
+     */
+    private final StringBuilder buffer = new StringBuilder();
+
+    /**
+     * @param stream
+     *            The stream where the reports are printed.
+     */
+    public ConsoleOutput(PrintStream stream)
+    {
+        this.out = stream;
+    }
+
+    @Override
+    public void write(ThreadReport report)
+    {
+        report.appendTo(this.buffer);
+    }
+
+    @Override
+    public void flush()
+    {
+        if (this.buffer.length() > 0)
+        {
+            this.out.print(this.buffer);
+            this.out.flush();
+            this.buffer.setLength(0);
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        // the stream is not owned by this sink
+        this.flush();
+    }
+}
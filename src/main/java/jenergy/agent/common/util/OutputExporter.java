@@ -0,0 +1,347 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.util;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jenergy.agent.common.OutputStrategy;
+import jenergy.compress.Compression;
+import jenergy.flamegraph.CollapsedStacks;
+import jenergy.flamegraph.Weight;
+import jenergy.profile.energy.EnergyModels;
+
+/**
+ * Writes the reports of the profiled threads in background. The threads only put their reports in a bounded queue; a single exporter thread takes
+ * them in batches and writes each batch to the sinks chosen by the {@link OutputStrategy} (system property <em>jenergy.output.type</em>), so the
+ * profiled threads never wait for the output I/O.
+ * 
+ * When the queue (system property <em>jenergy.output.queue.size</em>) is full, the reports are either dropped or the threads wait for a free slot,
+ * according to the system property <em>jenergy.output.queue.policy</em> (<em>drop</em> or <em>block</em>). When the JVM shuts down, the
+ * exporter's thread writes the queued reports and closes the sinks. It's stopped by a flag rather than interrupted, since an interrupt would close
+ * the file channel written at that moment. The files are text files, one per thread, or a single binary trace when the system property
+ * <em>jenergy.dump.format</em> is <em>binary</em>. The calling contexts of the threads are also written as collapsed stacks when the system
+ * property <em>jenergy.flamegraph.file</em> is defined. All files can be compressed in blocks on the exporter's thread (see {@link Compression}).
+ * 
+ * The energy models are evaluated before each batch, so the reports include the energy consumed by the threads until they finished without
+ * evaluating the models on the profiled threads.
+ */
+public final class OutputExporter extends Thread
+{
+    /**
+     * The maximum number of reports written in a batch.
+     */
+    private static final int BATCH_SIZE = 64;
+
+    /**
+     * The time in milliseconds that the shutdown waits for the exporter's thread.
+     */
+    private static final long SHUTDOWN_TIMEOUT = 5000;
+
+    /**
+     * The maximum time in milliseconds that the exporter's thread waits for a report before checking whether it must stop.
+     */
+    private static final long POLL_TIMEOUT = 100;
+
+    /**
+     * The reports waiting to be written.
+     */
+    private final BlockingQueue<ThreadReport> queue;
+
+    /**
+     * Whether the profiled threads wait for a free slot when the queue is full.
+     */
+    private final boolean block;
+
+    /**
+     * The destinations of the reports.
+     */
+    private final List<OutputSink> sinks;
+
+    /**
+     * The models evaluated before each batch. It's <code>null</code> when the reports are written as they are.
+     */
+    private final EnergyModels models;
+
+    /**
+     * The current batch. It's reused by all batches.
+     */
+    private final List<ThreadReport> batch = new ArrayList<ThreadReport>(BATCH_SIZE);
+
+    /**
+     * The number of reports dropped because the queue was full.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /**
+     * Whether the exporter's thread must keep waiting for reports. It's cleared by {@link #shutdown()}.
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Creates an exporter. The exporter must be started.
+     * 
+     * @param outputSinks
+     *            The destinations of the reports.
+     * @param energyModels
+     *            The models evaluated before each batch. It can be <code>null</code>.
+     * @param capacity
+     *            The maximum number of queued reports.
+     * @param blockWhenFull
+     *            If <code>true</code>, the profiled threads wait for a free slot when the queue is full; otherwise the reports are dropped.
+     */
+    public OutputExporter(List<OutputSink> outputSinks, EnergyModels energyModels, int capacity, boolean blockWhenFull)
+    {
+        super("Output exporter");
+        this.sinks = outputSinks;
+        this.models = energyModels;
+        this.queue = new ArrayBlockingQueue<ThreadReport>(Math.max(1, capacity));
+        this.block = blockWhenFull;
+
+        setDaemon(true);
+    }
+
+    /**
+     * Creates and starts the exporter defined by the system properties. A shutdown hook writes the reports still queued when the JVM exits.
+     * 
+     * @param energyModels
+     *            The models evaluated before each batch. It can be <code>null</code>.
+     * @return The exporter or <code>null</code> if the output strategy is {@link OutputStrategy#NONE}.
+     */
+    public static OutputExporter startExporter(EnergyModels energyModels)
+    {
+        final OutputStrategy strategy = OutputStrategy.of(System.getProperty("jenergy.output.type"));
+        final List<OutputSink> sinks = new ArrayList<OutputSink>();
+        final Compression compression = Compression.fromProperties();
+
+        if (strategy.isFile() && "binary".equalsIgnoreCase(System.getProperty("jenergy.dump.format", "text").trim()))
+        {
+            final String file = compression.fileName(System.getProperty("jenergy.dump.trace.file", "jenergy-trace.jtr"));
+
+            try
+            {
+                sinks.add(new TraceOutput(file, compression));
+            }
+            catch (IOException exception)
+            {
+                System.err.printf("Could not create the trace %s: %s%n", file, exception.getMessage());
+            }
+        }
+        else if (strategy.isFile())
+        {
+            sinks.add(new OutputFile(System.getProperty("jenergy.dump.file.path", "jenergy-output.csv"), compression));
+        }
+
+        if (strategy.isConsole())
+        {
+            sinks.add(new ConsoleOutput(System.out));
+        }
+
+        if (CollapsedStacks.isEnabled())
+        {
+            final String file = compression.fileName(System.getProperty("jenergy.flamegraph.file").trim());
+
+            try
+            {
+                sinks.add(new CollapsedStackOutput(file, Weight.of(System.getProperty("jenergy.flamegraph.weight")), compression));
+            }
+            catch (IOException exception)
+            {
+                System.err.printf("Could not create the collapsed stacks %s: %s%n", file, exception.getMessage());
+            }
+        }
+
+        if (sinks.isEmpty())
+        {
+            return null;
+        }
+
+        final OutputExporter exporter = new OutputExporter(sinks, energyModels, Integer.parseInt(System.getProperty("jenergy.output.queue.size",
+                "1024")), "block".equalsIgnoreCase(System.getProperty("jenergy.output.queue.policy", "drop").trim()));
+        exporter.start();
+
+        Runtime.getRuntime().addShutdownHook(new Thread("Output exporter shutdown")
+        {
+            @Override
+            public void run()
+            {
+                exporter.shutdown();
+            }
+        });
+        return exporter;
+    }
+
+    /**
+     * Queues a report to be written. It never waits for the output I/O.
+     * 
+     * @param report
+     *            The report to be written. Might not be <code>null</code>.
+     * @return <code>true</code> if the report was queued or <code>false</code> if it was dropped.
+     */
+    public boolean submit(ThreadReport report)
+    {
+        if (this.block)
+        {
+            try
+            {
+                this.queue.put(report);
+                return true;
+            }
+            catch (InterruptedException exception)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        else if (this.queue.offer(report))
+        {
+            return true;
+        }
+        this.dropped.incrementAndGet();
+        return false;
+    }
+
+    @Override
+    public void run()
+    {
+        while (this.running)
+        {
+            final ThreadReport report;
+
+            try
+            {
+                report = this.queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+            catch (InterruptedException exception)
+            {
+                break;
+            }
+
+            if (report != null)
+            {
+                this.batch.add(report);
+                this.queue.drainTo(this.batch, BATCH_SIZE - 1);
+                this.export();
+            }
+        }
+        this.finish();
+    }
+
+    /**
+     * Writes the reports still queued and closes the sinks.
+     */
+    private void finish()
+    {
+        while (this.queue.drainTo(this.batch, BATCH_SIZE) > 0)
+        {
+            this.export();
+        }
+
+        for (OutputSink sink : this.sinks)
+        {
+            try
+            {
+                sink.close();
+            }
+            catch (IOException exception)
+            {
+                System.err.printf("Could not close the output: %s%n", exception.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes the current batch to all sinks and clears it.
+     */
+    private void export()
+    {
+        if (this.models != null)
+        {
+            // charges the energy consumed by the threads of the batch since the last evaluation of the energy monitor
+            this.models.evaluate();
+        }
+
+        for (OutputSink sink : this.sinks)
+        {
+            try
+            {
+                for (ThreadReport report : this.batch)
+                {
+                    sink.write(report);
+                }
+                sink.flush();
+            }
+            catch (IOException exception)
+            {
+                System.err.printf("Could not write the thread report: %s%n", exception.getMessage());
+            }
+        }
+        this.batch.clear();
+    }
+
+    /**
+     * Stops the exporter's thread and waits until it writes the reports still queued and closes the sinks. If the thread was not started, the
+     * reports are written by the calling thread.
+     */
+    public void shutdown()
+    {
+        this.running = false;
+
+        if (this.getState() == State.NEW)
+        {
+            this.finish();
+        }
+        else
+        {
+            try
+            {
+                this.join(SHUTDOWN_TIMEOUT);
+            }
+            catch (InterruptedException exception)
+            {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            if (this.isAlive())
+            {
+                System.err.printf("The output exporter did not finish in %d ms%n", SHUTDOWN_TIMEOUT);
+            }
+        }
+
+        if (this.dropped.get() > 0)
+        {
+            System.err.printf("%d thread reports were dropped because the output queue was full%n", this.dropped.get());
+        }
+    }
+
+    /**
+     * Returns the number of reports dropped because the queue was full.
+     * 
+     * @return The number of reports dropped because the queue was full.
+     */
+    public long getDropped()
+    {
+        return dropped.get();
+    }
+}
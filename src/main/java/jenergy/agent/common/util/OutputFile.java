@@ -20,53 +20,93 @@ package jenergy.agent.common.util;
 
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.Map;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
-import jenergy.agent.common.util.time.Timer;
-import jenergy.profile.ThreadProfiler;
-import jenergy.profile.data.MethodStatistics;
-import jenergy.profile.data.ThreadInfo;
+import jenergy.compress.Compression;
 
-public final class OutputFile
+/**
+ * Writes the report of each thread to its own file. The name of the file is the path defined by the system property
+ * <em>jenergy.dump.file.path</em> with the thread id before its extension, e.g., <em>output-12.csv</em>, followed by the extension of the
+ * compression, if any, e.g., <em>output-12.csv.gz</em>.
+ */
+public final class OutputFile implements OutputSink
 {
     /**
-     * Private constructor to avoid instance of this class.
+     * The path of the files without the extension.
      */
-    private OutputFile()
-    {
-        throw new UnsupportedOperationException();
-    }
+    private final String prefix;
+
+    /**
+     * The extension of the files including the dot. It can be empty.
+     */
+    private final String extension;
 
     /**
+     * The buffer where a report is formatted. It's reused by all reports.
+     */
+    private final StringBuilder buffer = new StringBuilder();
+
+    /**
+     * The compression of the files.
+     */
+    private final Compression compression;
+
+    /**
+     * Creates an {@link OutputFile} that writes to the files named after the given path.
      * 
-     * @param statistics
-     *            The {@link MethodStatistics} to be write in the output.
-     * @param threadInfo
-     *            The reference to the {@link Thread} which methods were executed.
-     * @throws IOException
-     *             If the output file does not exists.
+     * @param path
+     *            The path of the output file.
+     * @param fileCompression
+     *            The compression of the files.
      */
-    public static void write(Map<String, MethodStatistics> statistics, ThreadProfiler threadInfo) throws IOException
+    public OutputFile(String path, Compression fileCompression)
     {
-        String[] fileParts = System.getProperty("jenergy.dump.file.path").split("\\.");
+        this.compression = fileCompression;
 
-        ThreadInfo info = threadInfo.getThreadInfo();
+        final int dot = path.lastIndexOf('.');
 
-        File file = new File(String.format("%s-%d.%s", fileParts[0], info.getId(), fileParts[1]));
-        BufferedWriter writer = new BufferedWriter(new FileWriter(file));
+        if (dot > path.lastIndexOf(File.separatorChar))
+        {
+            this.prefix = path.substring(0, dot);
+            this.extension = path.substring(dot);
+        }
+        else
+        {
+            this.prefix = path;
+            this.extension = "";
+        }
+    }
+
+    @Override
+    public void write(ThreadReport report) throws IOException
+    {
+        this.buffer.setLength(0);
+        report.appendTo(this.buffer);
+
+        final String file = this.compression.fileName(this.prefix + '-' + report.getThreadId() + this.extension);
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(this.compression.open(file, false)));
 
-        for (MethodStatistics method : statistics.values())
+        try
         {
-            writer.write(method.toString());
-            writer.newLine();
+            writer.append(this.buffer);
         }
+        finally
+        {
+            writer.close();
+        }
+    }
 
-        writer.write("Thread info \n");
-        writer.write(String.format("id:%d, cycle %dms, time:%dms, power: %s", info.getId(), Timer.nanoToMillis(info.getCpuInfo().cycleDuration()),
-                info.getTimer().millis(), info.getPower().doubleValue()));
+    @Override
+    public void flush()
+    {
+        // each report is written to its own file
+    }
 
-        writer.close();
+    @Override
+    public void close()
+    {
+        // the file of each report is closed when it's written
     }
 }
@@ -0,0 +1,55 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.util;
+
+import java.io.IOException;
+
+/**
+ * A destination of the reports written by the {@link OutputExporter}. The sinks are only called by the exporter's thread, so they can reuse their
+ * buffers.
+ */
+public interface OutputSink
+{
+    /**
+     * Writes a report. The sink may buffer it until {@link #flush()}.
+     * 
+     * @param report
+     *            The report to be written. Might not be <code>null</code>.
+     * @throws IOException
+     *             If the report cannot be written.
+     */
+    void write(ThreadReport report) throws IOException;
+
+    /**
+     * Writes the buffered reports. It's called after each batch.
+     * 
+     * @throws IOException
+     *             If the reports cannot be written.
+     */
+    void flush() throws IOException;
+
+    /**
+     * Writes the buffered reports and releases the sink, e.g., closes its file so that a compressed file gets its last block. It's called once,
+     * after the last batch, when the JVM shuts down.
+     * 
+     * @throws IOException
+     *             If the reports cannot be written or the sink cannot be closed.
+     */
+    void close() throws IOException;
+}
@@ -0,0 +1,253 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+/**
+ * A file of the Linux proc file system that is read many times. The file is kept open and its content is read into a reused buffer, so a
+ * sampling does not allocate any object. The root of the file system is given by the system property <em>jenergy.proc.root</em> (default
+ * <em>/proc</em>), which allows the use of a fake proc file system.
+ *
+ * Instances of this class are not thread-safe.
+ */
+public final class ProcFile
+{
+    /**
+     * The initial size of the buffer.
+     */
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    /**
+     * The file.
+     */
+    private final RandomAccessFile file;
+
+    /**
+     * The content of the file read by the last {@link #refresh()}.
+     */
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+
+    /**
+     * The number of bytes of the content.
+     */
+    private int length;
+
+    /**
+     * Opens a file of the proc file system.
+     * 
+     * @param path
+     *            The path of the file relative to the root of the proc file system (e.g., <em>self/stat</em>).
+     * @throws IOException
+     *             If the file does not exist or cannot be read.
+     */
+    public ProcFile(String path) throws IOException
+    {
+        this.file = new RandomAccessFile(new File(root(), path), "r");
+    }
+
+    /**
+     * Returns the root of the proc file system.
+     * 
+     * @return The root of the proc file system.
+     */
+    public static String root()
+    {
+        return System.getProperty("jenergy.proc.root", "/proc");
+    }
+
+    /**
+     * Opens a file of the proc file system if it is readable.
+     * 
+     * @param path
+     *            The path of the file relative to the root of the proc file system.
+     * @return The opened file or <code>null</code> if the file cannot be read (e.g., the system is not Linux).
+     */
+    public static ProcFile openIfExists(String path)
+    {
+        try
+        {
+            final ProcFile procFile = new ProcFile(path);
+
+            if (procFile.refresh())
+            {
+                return procFile;
+            }
+            procFile.close();
+        }
+        catch (IOException exception)
+        {
+            return null;
+        }
+        return null;
+    }
+
+    /**
+     * Reads the current content of the file.
+     * 
+     * @return <code>true</code> if the file was read or <code>false</code> otherwise.
+     */
+    public boolean refresh()
+    {
+        try
+        {
+            this.file.seek(0);
+            this.length = 0;
+
+            int read;
+
+            while ((read = this.file.read(this.buffer, this.length, this.buffer.length - this.length)) > 0)
+            {
+                this.length += read;
+
+                if (this.length == this.buffer.length)
+                {
+                    final byte[] larger = new byte[this.buffer.length * 2];
+                    System.arraycopy(this.buffer, 0, larger, 0, this.length);
+                    this.buffer = larger;
+                }
+            }
+            return this.length > 0;
+        }
+        catch (IOException exception)
+        {
+            this.length = 0;
+            return false;
+        }
+    }
+
+    /**
+     * Returns the index of the last occurrence of the given character in the content.
+     * 
+     * @param c
+     *            The character to be found.
+     * @return The index of the last occurrence of the character or <code>-1</code> if the content does not have it.
+     */
+    public int lastIndexOf(char c)
+    {
+        for (int i = this.length - 1; i >= 0; i--)
+        {
+            if (this.buffer[i] == c)
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the line that starts with the given prefix.
+     * 
+     * @param prefix
+     *            The prefix of the line.
+     * @return The index of the first character after the prefix or <code>-1</code> if there is no line with the given prefix.
+     */
+    public int indexOfLine(String prefix)
+    {
+        int start = 0;
+
+        while (start < this.length)
+        {
+            int i = 0;
+
+            while (i < prefix.length() && start + i < this.length && this.buffer[start + i] == prefix.charAt(i))
+            {
+                i++;
+            }
+
+            if (i == prefix.length())
+            {
+                return start + i;
+            }
+
+            while (start < this.length && this.buffer[start] != '\n')
+            {
+                start++;
+            }
+            start++;
+        }
+        return -1;
+    }
+
+    /**
+     * Parses the fields of a line separated by white spaces. The fields that are not numbers are parsed as zero.
+     * 
+     * @param offset
+     *            The index where the parsing starts.
+     * @param fields
+     *            The array where the fields are stored.
+     * @return The number of fields parsed.
+     */
+    public int parseFields(int offset, long[] fields)
+    {
+        int count = 0;
+        int i = offset;
+
+        while (i < this.length && this.buffer[i] != '\n' && count < fields.length)
+        {
+            while (i < this.length && (this.buffer[i] == ' ' || this.buffer[i] == '\t'))
+            {
+                i++;
+            }
+
+            if (i >= this.length || this.buffer[i] == '\n')
+            {
+                break;
+            }
+
+            long value = 0;
+            boolean number = true;
+
+            while (i < this.length && this.buffer[i] != ' ' && this.buffer[i] != '\t' && this.buffer[i] != '\n')
+            {
+                final int digit = this.buffer[i] - '0';
+
+                if (digit >= 0 && digit <= 9)
+                {
+                    value = value * 10 + digit;
+                }
+                else
+                {
+                    number = false;
+                }
+                i++;
+            }
+            fields[count++] = number ? value : 0;
+        }
+        return count;
+    }
+
+    /**
+     * Closes the file.
+     */
+    public void close()
+    {
+        try
+        {
+            this.file.close();
+        }
+        catch (IOException exception)
+        {
+            // the file is only read, so nothing is lost
+            this.length = 0;
+        }
+    }
+}
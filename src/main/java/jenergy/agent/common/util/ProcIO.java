@@ -0,0 +1,216 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.util;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * The I/O counters of a process or a task read from its <em>io</em> file of the proc file system (e.g., <em>/proc/self/io</em>). The bytes read
+ * and written are the bytes that the process caused to be fetched from or sent to the storage layer, so they exclude the I/O served by the page
+ * cache; the numbers of system calls count all read and write calls. The file is kept open and read into a reused buffer.
+ *
+ * Instances of this class are not thread-safe.
+ */
+public final class ProcIO
+{
+    /**
+     * The prefix of the line with the number of read system calls.
+     */
+    private static final String SYSCR = "syscr:";
+
+    /**
+     * The prefix of the line with the number of write system calls.
+     */
+    private static final String SYSCW = "syscw:";
+
+    /**
+     * The prefix of the line with the number of bytes read from the storage.
+     */
+    private static final String READ_BYTES = "read_bytes:";
+
+    /**
+     * The prefix of the line with the number of bytes written to the storage.
+     */
+    private static final String WRITE_BYTES = "write_bytes:";
+
+    /**
+     * The file with the counters.
+     */
+    private final ProcFile file;
+
+    /**
+     * The value parsed from a line. The array is reused by all refreshes.
+     */
+    private final long[] value = new long[1];
+
+    /**
+     * The number of read system calls.
+     */
+    private long readCalls;
+
+    /**
+     * The number of write system calls.
+     */
+    private long writeCalls;
+
+    /**
+     * The number of bytes read from the storage.
+     */
+    private long readBytes;
+
+    /**
+     * The number of bytes written to the storage.
+     */
+    private long writeBytes;
+
+    /**
+     * @param procFile
+     *            The opened <em>io</em> file.
+     */
+    private ProcIO(ProcFile procFile)
+    {
+        this.file = procFile;
+    }
+
+    /**
+     * Opens the <em>io</em> file of a process or of a task and reads its counters.
+     * 
+     * @param path
+     *            The path of the file relative to the root of the proc file system (e.g., <em>self/io</em> or <em>self/task/1234/io</em>).
+     * @return The counters of the file or <code>null</code> if the file cannot be read (e.g., the system is not Linux or the task has finished).
+     */
+    public static ProcIO openIfExists(String path)
+    {
+        final ProcFile procFile = ProcFile.openIfExists(path);
+
+        if (procFile != null)
+        {
+            final ProcIO io = new ProcIO(procFile);
+
+            if (io.refresh())
+            {
+                return io;
+            }
+            io.close();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the id of the operating system's task that executes the current thread, as given by the proc file system's <em>thread-self</em>
+     * link.
+     * 
+     * @return The id of the task of the current thread or <code>-1</code> if it's unknown.
+     */
+    public static long currentTaskId()
+    {
+        try
+        {
+            final String name = new File(ProcFile.root(), "thread-self").getCanonicalFile().getName();
+            return name.matches("\\d+") ? Long.parseLong(name) : -1;
+        }
+        catch (IOException exception)
+        {
+            return -1;
+        }
+    }
+
+    /**
+     * Reads the current values of the counters.
+     * 
+     * @return <code>true</code> if the counters were read or <code>false</code> otherwise.
+     */
+    public boolean refresh()
+    {
+        if (!this.file.refresh())
+        {
+            return false;
+        }
+
+        final long calls = this.parse(SYSCR);
+        final long writes = this.parse(SYSCW);
+        final long read = this.parse(READ_BYTES);
+        final long written = this.parse(WRITE_BYTES);
+
+        if (read < 0 || written < 0)
+        {
+            return false;
+        }
+
+        this.readCalls = calls;
+        this.writeCalls = writes;
+        this.readBytes = read;
+        this.writeBytes = written;
+        return true;
+    }
+
+    /**
+     * Parses the value of a line of the file.
+     * 
+     * @param prefix
+     *            The prefix of the line.
+     * @return The value of the line or <code>-1</code> if the file does not have it.
+     */
+    private long parse(String prefix)
+    {
+        final int offset = this.file.indexOfLine(prefix);
+        return offset >= 0 && this.file.parseFields(offset, this.value) == 1 ? this.value[0] : -1;
+    }
+
+    /**
+     * Closes the file.
+     */
+    public void close()
+    {
+        this.file.close();
+    }
+
+    /**
+     * @return the number of read system calls
+     */
+    public long getReadCalls()
+    {
+        return readCalls;
+    }
+
+    /**
+     * @return the number of write system calls
+     */
+    public long getWriteCalls()
+    {
+        return writeCalls;
+    }
+
+    /**
+     * @return the number of bytes read from the storage
+     */
+    public long getReadBytes()
+    {
+        return readBytes;
+    }
+
+    /**
+     * @return the number of bytes written to the storage
+     */
+    public long getWriteBytes()
+    {
+        return writeBytes;
+    }
+}
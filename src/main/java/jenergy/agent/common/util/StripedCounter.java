@@ -0,0 +1,176 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.util;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A set of counters that can be incremented by many threads without locks. Like {@link java.util.concurrent.atomic.LongAdder}, the counters start
+ * as a single set of values updated by compare-and-set. When an update fails because another thread changed the same counters, they are split
+ * into stripes and each thread then increments the stripe chosen by its id; the number of stripes doubles on further contention, up to the number
+ * of processors. So an uncontended set of counters costs only its values, and the contended ones rarely share memory. The stripes are padded to
+ * their own cache line. The value of a counter is the sum of its base value and its stripes, which is only computed when it is read (e.g., at
+ * sampling or report time).
+ */
+public final class StripedCounter implements Serializable
+{
+    /**
+     * Serial code version <code>serialVersionUID</code> for serialization.
+     */
+    private static final long serialVersionUID = -6021392345871129063L;
+
+    /**
+     * The number of longs of a cache line.
+     */
+    private static final int CACHE_LINE = 8;
+
+    /**
+     * The maximum number of stripes.
+     */
+    private static final int MAX_STRIPES = 16;
+
+    /**
+     * The maximum number of stripes of a set of counters: the power of two not greater than the number of processors, limited to
+     * {@link #MAX_STRIPES}.
+     */
+    private static final int STRIPES = Integer.highestOneBit(Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * The base value of each counter. It's updated while there is no contention.
+     */
+    private final AtomicLongArray base;
+
+    /**
+     * The stripes of the counters or <code>null</code> if they were never contended. Each stripe holds one value per counter and its length is a
+     * multiple of a cache line. The array is replaced by a larger one on contention, but the stripes are never moved, so no update is lost.
+     */
+    private volatile AtomicLongArray[] stripes;
+
+    /**
+     * The number of longs of each stripe.
+     */
+    private final int stride;
+
+    /**
+     * Creates a set of counters with the given size.
+     * 
+     * @param counters
+     *            The number of counters. Might be greater than zero.
+     */
+    public StripedCounter(int counters)
+    {
+        if (counters <= 0)
+        {
+            throw new IllegalArgumentException("The number of counters must be greater than zero!");
+        }
+
+        this.stride = (counters + CACHE_LINE - 1) / CACHE_LINE * CACHE_LINE;
+        this.base = new AtomicLongArray(counters);
+    }
+
+    /**
+     * Adds the given value to a counter.
+     * 
+     * @param counter
+     *            The index of the counter.
+     * @param value
+     *            The value to be added.
+     */
+    public void add(int counter, long value)
+    {
+        final AtomicLongArray[] current = this.stripes;
+        final AtomicLongArray cells = current == null ? this.base : current[stripe(current.length)];
+        final long old = cells.get(counter);
+
+        if (!cells.compareAndSet(counter, old, old + value))
+        {
+            final AtomicLongArray[] grown = grow(current);
+            grown[stripe(grown.length)].getAndAdd(counter, value);
+        }
+    }
+
+    /**
+     * Returns the value of a counter. The value does not include the concurrent updates that have not finished yet.
+     * 
+     * @param counter
+     *            The index of the counter.
+     * @return The value of the counter.
+     */
+    public long sum(int counter)
+    {
+        long sum = this.base.get(counter);
+        final AtomicLongArray[] current = this.stripes;
+
+        if (current != null)
+        {
+            for (AtomicLongArray stripe : current)
+            {
+                sum += stripe.get(counter);
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Doubles the number of stripes after a contended update, unless another thread has already replaced them or they reached the maximum.
+     * 
+     * @param contended
+     *            The stripes where the update was contended or <code>null</code> if it was the base value.
+     * @return The current stripes.
+     */
+    private synchronized AtomicLongArray[] grow(AtomicLongArray[] contended)
+    {
+        AtomicLongArray[] current = this.stripes;
+
+        if (current == contended && (current == null || current.length < STRIPES))
+        {
+            final int length = current == null ? Math.min(2, STRIPES) : current.length << 1;
+            final AtomicLongArray[] grown = new AtomicLongArray[length];
+            int i = 0;
+
+            if (current != null)
+            {
+                System.arraycopy(current, 0, grown, 0, current.length);
+                i = current.length;
+            }
+
+            for (; i < length; i++)
+            {
+                grown[i] = new AtomicLongArray(this.stride);
+            }
+            this.stripes = current = grown;
+        }
+        return current;
+    }
+
+    /**
+     * Returns the stripe of the current thread.
+     * 
+     * @param length
+     *            The number of stripes. It's a power of two.
+     * @return The stripe of the current thread.
+     */
+    private static int stripe(int length)
+    {
+        // spreads the sequential thread ids over the stripes
+        final long id = Thread.currentThread().getId() * 0x9E3779B97F4A7C15L;
+        return (int) (id >>> 32) & (length - 1);
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.util;
+
+import java.util.Map;
+
+import jenergy.agent.common.util.time.Timer;
+import jenergy.profile.ThreadProfiler;
+import jenergy.profile.data.IOHistograms;
+import jenergy.profile.data.MethodStatistics;
+import jenergy.profile.data.ThreadInfo;
+
+/**
+ * The statistics of a thread that has finished, queued by the thread to be written by the {@link OutputExporter}. The report is formatted by the
+ * exporter's thread.
+ */
+public final class ThreadReport
+{
+    /**
+     * The statistics of the methods executed by the thread.
+     */
+    private final Map<String, MethodStatistics> statistics;
+
+    /**
+     * The profiler of the thread.
+     */
+    private final ThreadProfiler profiler;
+
+    /**
+     * @param methodsStatistics
+     *            The statistics of the methods executed by the thread.
+     * @param threadProfiler
+     *            The profiler of the thread.
+     */
+    public ThreadReport(Map<String, MethodStatistics> methodsStatistics, ThreadProfiler threadProfiler)
+    {
+        this.statistics = methodsStatistics;
+        this.profiler = threadProfiler;
+    }
+
+    /**
+     * Appends the statistics of the methods, the I/O histograms and the summary of the thread to the given buffer.
+     * 
+     * @param buffer
+     *            The buffer where the report is appended.
+     */
+    public void appendTo(StringBuilder buffer)
+    {
+        for (MethodStatistics method : this.statistics.values())
+        {
+            buffer.append(method).append('\n');
+        }
+
+        for (IOHistograms histograms : this.profiler.getIOHistograms())
+        {
+            buffer.append(histograms).append('\n');
+        }
+
+        final ThreadInfo info = this.profiler.getThreadInfo();
+
+        buffer.append("Thread info \n");
+        buffer.append("id:").append(info.getId());
+        buffer.append(", cycle ").append(Timer.nanoToMillis(info.getCpuInfo().cycleDuration())).append("ms");
+        buffer.append(", time:").append(info.getTimer() != null ? info.getTimer().millis() : 0).append("ms");
+        buffer.append(", power: ").append(info.getPower() != null ? info.getPower().doubleValue() : 0);
+        buffer.append(", energy: ").append(info.getEnergy());
+        buffer.append(", unattributed: ").append(this.profiler.getUnattributedEnergy()).append('\n');
+    }
+
+    /**
+     * @return the statistics of the methods
+     */
+    public Map<String, MethodStatistics> getStatistics()
+    {
+        return statistics;
+    }
+
+    /**
+     * @return the profiler of the thread
+     */
+    public ThreadProfiler getProfiler()
+    {
+        return profiler;
+    }
+
+    /**
+     * @return the id of the thread
+     */
+    public long getThreadId()
+    {
+        return this.profiler.getThreadInfo().getId();
+    }
+}
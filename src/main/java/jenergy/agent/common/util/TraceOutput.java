@@ -0,0 +1,80 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.util;
+
+import java.io.IOException;
+
+import jenergy.compress.Compression;
+import jenergy.profile.data.IOHistograms;
+import jenergy.profile.data.MethodStatistics;
+import jenergy.trace.TraceWriter;
+
+/**
+ * Writes the reports of all threads to a binary trace (see {@link TraceWriter}). It replaces the text files when the system property
+ * <em>jenergy.dump.format</em> is <em>binary</em>.
+ */
+public final class TraceOutput implements OutputSink
+{
+    /**
+     * The writer of the trace.
+     */
+    private final TraceWriter writer;
+
+    /**
+     * @param file
+     *            The path of the trace file. A new session is appended to an existing trace.
+     * @param compression
+     *            The compression of the trace. The file must be named by {@link Compression#fileName(String)}.
+     * @throws IOException
+     *             If the trace cannot be opened.
+     */
+    public TraceOutput(String file, Compression compression) throws IOException
+    {
+        this.writer = new TraceWriter(file, compression);
+    }
+
+    @Override
+    public void write(ThreadReport report) throws IOException
+    {
+        final long now = System.currentTimeMillis();
+
+        for (MethodStatistics method : report.getStatistics().values())
+        {
+            this.writer.invocation(now, method);
+        }
+
+        for (IOHistograms histograms : report.getProfiler().getIOHistograms())
+        {
+            this.writer.io(now, histograms);
+        }
+        this.writer.thread(now, report.getProfiler().getThreadInfo());
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        this.writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        this.writer.close();
+    }
+}
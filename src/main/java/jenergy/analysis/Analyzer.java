@@ -0,0 +1,612 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.analysis;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.regex.Pattern;
+
+import jenergy.compress.BlockInputStream;
+import jenergy.compress.Codec;
+import jenergy.trace.TraceReader;
+
+/**
+ * Merges the outputs of the threads of a run and ranks the methods that consumed the most energy, CPU time, I/O and invocations:
+ * <code>analyze &lt;output&gt;... [--top &lt;n&gt;] [--output &lt;file&gt;] [--threads &lt;n&gt;]</code>.
+ * 
+ * Each output is a directory (all its files are read), a file or the path defined by the system property <em>jenergy.dump.file.path</em>, whose
+ * threads' files (<em>&lt;path&gt;-&lt;thread id&gt;.&lt;extension&gt;</em>, possibly compressed) are read. The text files and the binary traces
+ * are recognized by their content. The statistics of a method are summed over all threads that executed it.
+ * 
+ * The files are read in parallel by a fork-join pool: the uncompressed text files are memory-mapped and split into segments of
+ * {@link #SEGMENT_SIZE} bytes at line boundaries, the compressed files and the binary traces are streamed, each segment is parsed into its own
+ * table and the tables are merged pairwise as the tasks join, so no table is shared between threads.
+ */
+public final class Analyzer
+{
+    /**
+     * The maximum size of a segment of a memory-mapped file.
+     */
+    private static final long SEGMENT_SIZE = 64L << 20;
+
+    /**
+     * The default number of methods of each ranking.
+     */
+    private static final int DEFAULT_TOP = 20;
+
+    /**
+     * The number of nanoseconds in a millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1000000D;
+
+    /**
+     * The number of bytes in a megabyte.
+     */
+    private static final double BYTES_PER_MEGABYTE = 1024D * 1024D;
+
+    /**
+     * The ways of reading a segment.
+     */
+    private static enum Kind
+    {
+        /**
+         * A range of an uncompressed text file, memory-mapped.
+         */
+        MAPPED,
+
+        /**
+         * A whole compressed text file, streamed.
+         */
+        TEXT,
+
+        /**
+         * A whole binary trace, streamed.
+         */
+        TRACE;
+    }
+
+    /**
+     * A part of the run read by a single task.
+     */
+    private static final class Segment
+    {
+        /**
+         * The file.
+         */
+        private final File file;
+
+        /**
+         * How the segment is read.
+         */
+        private final Kind kind;
+
+        /**
+         * The position of the segment in the file.
+         */
+        private final long start;
+
+        /**
+         * The position after the segment in the file.
+         */
+        private final long end;
+
+        /**
+         * @param segmentFile
+         *            The file.
+         * @param segmentKind
+         *            How the segment is read.
+         * @param startPosition
+         *            The position of the segment in the file.
+         * @param endPosition
+         *            The position after the segment in the file.
+         */
+        Segment(File segmentFile, Kind segmentKind, long startPosition, long endPosition)
+        {
+            this.file = segmentFile;
+            this.kind = segmentKind;
+            this.start = startPosition;
+            this.end = endPosition;
+        }
+    }
+
+    /**
+     * Reads a range of segments: a single segment is parsed into a new table, a larger range is split in two halves whose tables are merged.
+     */
+    private static final class MergeTask extends RecursiveTask<Map<String, MethodTotals>>
+    {
+        /**
+         * Serial code version <code>serialVersionUID</code> for serialization.
+         */
+        private static final long serialVersionUID = 5083012458315212407L;
+
+        /**
+         * All segments of the run.
+         */
+        private final List<Segment> segments;
+
+        /**
+         * The first segment of the range.
+         */
+        private final int from;
+
+        /**
+         * The segment after the range.
+         */
+        private final int to;
+
+        /**
+         * @param allSegments
+         *            All segments of the run.
+         * @param first
+         *            The first segment of the range.
+         * @param last
+         *            The segment after the range.
+         */
+        MergeTask(List<Segment> allSegments, int first, int last)
+        {
+            this.segments = allSegments;
+            this.from = first;
+            this.to = last;
+        }
+
+        @Override
+        protected Map<String, MethodTotals> compute()
+        {
+            if (this.to - this.from <= 1)
+            {
+                return this.from < this.to ? parse(this.segments.get(this.from)) : new HashMap<String, MethodTotals>();
+            }
+
+            final int middle = (this.from + this.to) >>> 1;
+            final MergeTask left = new MergeTask(this.segments, this.from, middle);
+            left.fork();
+
+            final Map<String, MethodTotals> right = new MergeTask(this.segments, middle, this.to).compute();
+            return merge(left.join(), right);
+        }
+    }
+
+    /**
+     * Ranks the methods by a value.
+     */
+    private static enum Ranking
+    {
+        /**
+         * The energy in joules.
+         */
+        ENERGY("energy", "J")
+        {
+            @Override
+            double value(MethodTotals totals)
+            {
+                return totals.getEnergy();
+            }
+        },
+
+        /**
+         * The CPU time in milliseconds.
+         */
+        CPU_TIME("CPU time", "ms")
+        {
+            @Override
+            double value(MethodTotals totals)
+            {
+                return totals.getCpuTime() / NANOS_PER_MILLI;
+            }
+        },
+
+        /**
+         * The number of bytes read and written.
+         */
+        IO_BYTES("I/O", "bytes")
+        {
+            @Override
+            double value(MethodTotals totals)
+            {
+                return totals.getIOBytes();
+            }
+        },
+
+        /**
+         * The number of invocations.
+         */
+        INVOCATIONS("invocations", "")
+        {
+            @Override
+            double value(MethodTotals totals)
+            {
+                return totals.getInvocations();
+            }
+        };
+
+        /**
+         * The title of the ranking.
+         */
+        private final String title;
+
+        /**
+         * The unit of the values.
+         */
+        private final String unit;
+
+        /**
+         * @param rankingTitle
+         *            The title of the ranking.
+         * @param valueUnit
+         *            The unit of the values.
+         */
+        private Ranking(String rankingTitle, String valueUnit)
+        {
+            this.title = rankingTitle;
+            this.unit = valueUnit;
+        }
+
+        /**
+         * Returns the value of a method.
+         * 
+         * @param totals
+         *            The totals of the method.
+         * @return The value of the method.
+         */
+        abstract double value(MethodTotals totals);
+    }
+
+    /**
+     * Private constructor to avoid instance of this class.
+     */
+    private Analyzer()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Merges the outputs of a run and writes the rankings.
+     * 
+     * @param args
+     *            The outputs (directories, files or the path of the threads' files) and the options <em>--top &lt;n&gt;</em> (default: 20),
+     *            <em>--output &lt;file&gt;</em> (default: the standard output) and <em>--threads &lt;n&gt;</em> (default: the number of
+     *            processors).
+     * @throws IOException
+     *             If the report cannot be written.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        final List<String> inputs = new ArrayList<String>();
+        int top = DEFAULT_TOP;
+        String output = null;
+        int parallelism = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i < args.length; i++)
+        {
+            if ("--top".equals(args[i]) && i + 1 < args.length)
+            {
+                top = Integer.parseInt(args[++i]);
+            }
+            else if ("--output".equals(args[i]) && i + 1 < args.length)
+            {
+                output = args[++i];
+            }
+            else if ("--threads".equals(args[i]) && i + 1 < args.length)
+            {
+                parallelism = Math.max(1, Integer.parseInt(args[++i]));
+            }
+            else
+            {
+                inputs.add(args[i]);
+            }
+        }
+
+        if (inputs.isEmpty())
+        {
+            System.err.println("Usage: analyze <output>... [--top <n>] [--output <file>] [--threads <n>]");
+            return;
+        }
+
+        final long start = System.nanoTime();
+        final List<File> files = new ArrayList<File>();
+
+        for (String input : inputs)
+        {
+            files.addAll(discover(input));
+        }
+
+        final List<Segment> segments = segments(files);
+        final ForkJoinPool pool = new ForkJoinPool(parallelism);
+        final Map<String, MethodTotals> totals;
+
+        try
+        {
+            totals = pool.invoke(new MergeTask(segments, 0, segments.size()));
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        long bytes = 0;
+
+        for (File file : files)
+        {
+            bytes += file.length();
+        }
+
+        final PrintWriter out = output != null ? new PrintWriter(output, "UTF-8") : new PrintWriter(new OutputStreamWriter(System.out, Charset
+                .forName("UTF-8")));
+
+        try
+        {
+            out.printf(Locale.ROOT, "%d files (%.1f MB), %d segments, %d methods, read in %d ms%n", files.size(), bytes / BYTES_PER_MEGABYTE,
+                    segments.size(), totals.size(), Math.round((System.nanoTime() - start) / NANOS_PER_MILLI));
+
+            for (Ranking ranking : Ranking.values())
+            {
+                write(out, ranking, totals.values(), top);
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Returns the files of an output.
+     * 
+     * @param input
+     *            A directory, a file or the path of the threads' files.
+     * @return The files of the output, sorted by name.
+     */
+    private static List<File> discover(String input)
+    {
+        final File path = new File(input);
+        final File[] files;
+
+        if (path.isDirectory())
+        {
+            files = path.listFiles(new FileFilter()
+            {
+                @Override
+                public boolean accept(File file)
+                {
+                    return file.isFile();
+                }
+            });
+        }
+        else if (path.isFile())
+        {
+            files = new File[] {path};
+        }
+        else
+        {
+            // the path of the threads' files: <prefix>-<thread id><extension>, possibly followed by the extension of a codec
+            final String name = path.getName();
+            final int dot = name.lastIndexOf('.');
+            final String prefix = Pattern.quote(dot > 0 ? name.substring(0, dot) : name);
+            final String extension = dot > 0 ? Pattern.quote(name.substring(dot)) : "";
+            final Pattern pattern = Pattern.compile(prefix + "-\\d+" + extension + "(" + Pattern.quote(Codec.GZIP.getExtension()) + "|"
+                    + Pattern.quote(Codec.LZ.getExtension()) + ")?");
+            final File parent = path.getAbsoluteFile().getParentFile();
+
+            files = parent == null ? null : parent.listFiles(new FileFilter()
+            {
+                @Override
+                public boolean accept(File file)
+                {
+                    return file.isFile() && pattern.matcher(file.getName()).matches();
+                }
+            });
+        }
+
+        if (files == null || files.length == 0)
+        {
+            System.err.printf("No output found for %s%n", input);
+            return Collections.emptyList();
+        }
+
+        Arrays.sort(files);
+        return Arrays.asList(files);
+    }
+
+    /**
+     * Splits the files into the segments read by the tasks.
+     * 
+     * @param files
+     *            The files.
+     * @return The segments of the files.
+     */
+    private static List<Segment> segments(List<File> files)
+    {
+        final List<Segment> segments = new ArrayList<Segment>();
+
+        for (File file : files)
+        {
+            try
+            {
+                if (file.length() == 0)
+                {
+                    continue;
+                }
+                else if (TraceReader.isTrace(file.getPath()))
+                {
+                    segments.add(new Segment(file, Kind.TRACE, 0, file.length()));
+                }
+                else if (BlockInputStream.isCompressed(file))
+                {
+                    segments.add(new Segment(file, Kind.TEXT, 0, file.length()));
+                }
+                else
+                {
+                    for (long start = 0; start < file.length(); start += SEGMENT_SIZE)
+                    {
+                        segments.add(new Segment(file, Kind.MAPPED, start, Math.min(file.length(), start + SEGMENT_SIZE)));
+                    }
+                }
+            }
+            catch (IOException exception)
+            {
+                System.err.printf("Could not read %s: %s%n", file, exception.getMessage());
+            }
+        }
+        return segments;
+    }
+
+    /**
+     * Parses a segment into a new table.
+     * 
+     * @param segment
+     *            The segment.
+     * @return The totals of the methods of the segment by method name.
+     */
+    private static Map<String, MethodTotals> parse(Segment segment)
+    {
+        final Map<String, MethodTotals> totals = new HashMap<String, MethodTotals>();
+        final OutputParser parser = new OutputParser(totals);
+
+        try
+        {
+            switch (segment.kind)
+            {
+            case MAPPED:
+                parser.parseMapped(segment.file, segment.start, segment.end);
+                break;
+            case TEXT:
+                parser.parseText(segment.file);
+                break;
+            default:
+                parser.parseTrace(segment.file);
+                break;
+            }
+        }
+        catch (IOException exception)
+        {
+            System.err.printf("Could not read %s: %s%n", segment.file, exception.getMessage());
+        }
+        return totals;
+    }
+
+    /**
+     * Merges two tables into the larger one.
+     * 
+     * @param first
+     *            A table.
+     * @param second
+     *            Another table.
+     * @return The merged table.
+     */
+    private static Map<String, MethodTotals> merge(Map<String, MethodTotals> first, Map<String, MethodTotals> second)
+    {
+        final Map<String, MethodTotals> target = first.size() >= second.size() ? first : second;
+        final Map<String, MethodTotals> source = target == first ? second : first;
+
+        for (MethodTotals totals : source.values())
+        {
+            final MethodTotals existing = target.get(totals.getName());
+
+            if (existing == null)
+            {
+                target.put(totals.getName(), totals);
+            }
+            else
+            {
+                existing.add(totals);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Writes the methods with the highest values of a ranking.
+     * 
+     * @param out
+     *            The output of the report.
+     * @param ranking
+     *            The ranking.
+     * @param methods
+     *            The totals of all methods.
+     * @param top
+     *            The maximum number of methods written.
+     */
+    private static void write(PrintWriter out, final Ranking ranking, Iterable<MethodTotals> methods, int top)
+    {
+        final List<MethodTotals> ranked = new ArrayList<MethodTotals>();
+        double total = 0;
+
+        for (MethodTotals method : methods)
+        {
+            final double value = ranking.value(method);
+
+            if (value > 0)
+            {
+                ranked.add(method);
+                total += value;
+            }
+        }
+
+        Collections.sort(ranked, new Comparator<MethodTotals>()
+        {
+            @Override
+            public int compare(MethodTotals o1, MethodTotals o2)
+            {
+                return Double.compare(ranking.value(o2), ranking.value(o1));
+            }
+        });
+
+        out.println();
+        out.printf(Locale.ROOT, "Top %d methods by %s (total: %s%s)%n", Math.min(top, ranked.size()), ranking.title, format(total),
+                ranking.unit.isEmpty() ? "" : " " + ranking.unit);
+        out.printf(Locale.ROOT, "%5s %18s %7s %8s  %s%n", "rank", ranking.unit.isEmpty() ? ranking.title : ranking.unit, "share", "threads",
+                "method");
+
+        for (int i = 0; i < top && i < ranked.size(); i++)
+        {
+            final MethodTotals method = ranked.get(i);
+            final double value = ranking.value(method);
+
+            out.printf(Locale.ROOT, "%5d %18s %6.2f%% %8d  %s%n", i + 1, format(value), total > 0 ? value * 100 / total : 0, method.getThreads(),
+                    method.getName());
+        }
+    }
+
+    /**
+     * Formats a value of a ranking: the integers without decimals and the others with 6 significant digits.
+     * 
+     * @param value
+     *            The value.
+     * @return The formatted value.
+     */
+    private static String format(double value)
+    {
+        return value == Math.rint(value) && Math.abs(value) < Long.MAX_VALUE ? Long.toString((long) value) : String.format(Locale.ROOT, "%.6g",
+                value);
+    }
+}
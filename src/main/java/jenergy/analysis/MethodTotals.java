@@ -0,0 +1,240 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.analysis;
+
+import jenergy.profile.energy.EnergyDimension;
+
+/**
+ * The statistics of a method summed over the threads that executed it. The totals of disjoint parts of a run are merged by
+ * {@link #add(MethodTotals)}, so the parts can be read in parallel.
+ * 
+ * Instances of this class are not thread-safe.
+ */
+public final class MethodTotals
+{
+    /**
+     * The name of the method without the thread id.
+     */
+    private final String name;
+
+    /**
+     * The number of threads that executed the method.
+     */
+    private long threads;
+
+    /**
+     * The number of invocations.
+     */
+    private long invocations;
+
+    /**
+     * The execution time in nanoseconds.
+     */
+    private long time;
+
+    /**
+     * The CPU time in nanoseconds.
+     */
+    private long cpuTime;
+
+    /**
+     * The number of bytes allocated by the method without its callees.
+     */
+    private long allocatedBytes;
+
+    /**
+     * The number of bytes read and written by the method.
+     */
+    private long ioBytes;
+
+    /**
+     * The number of I/O operations of the method.
+     */
+    private long ioOperations;
+
+    /**
+     * The energy in joules indexed by the {@link EnergyDimension} ordinal.
+     */
+    private final double[] energy = new double[EnergyDimension.values().length];
+
+    /**
+     * @param methodName
+     *            The name of the method without the thread id.
+     */
+    public MethodTotals(String methodName)
+    {
+        this.name = methodName;
+    }
+
+    /**
+     * Adds the statistics of the method in a thread.
+     * 
+     * @param numberOfInvocations
+     *            The number of invocations.
+     * @param nanos
+     *            The execution time in nanoseconds.
+     * @param cpuNanos
+     *            The CPU time in nanoseconds.
+     * @param allocated
+     *            The number of bytes allocated by the method without its callees.
+     * @param joules
+     *            The energy in joules indexed by the {@link EnergyDimension} ordinal.
+     */
+    public void addThread(long numberOfInvocations, long nanos, long cpuNanos, long allocated, double[] joules)
+    {
+        this.threads++;
+        this.invocations += numberOfInvocations;
+        this.time += nanos;
+        this.cpuTime += cpuNanos;
+        this.allocatedBytes += allocated;
+
+        for (int i = 0; i < this.energy.length; i++)
+        {
+            this.energy[i] += joules[i];
+        }
+    }
+
+    /**
+     * Adds the I/O of the method on a file or a remote address.
+     * 
+     * @param bytes
+     *            The number of bytes read or written.
+     * @param operations
+     *            The number of operations.
+     */
+    public void addIO(long bytes, long operations)
+    {
+        this.ioBytes += bytes;
+        this.ioOperations += operations;
+    }
+
+    /**
+     * Adds the totals of the same method from another part of the run.
+     * 
+     * @param other
+     *            The totals of the same method.
+     */
+    public void add(MethodTotals other)
+    {
+        this.threads += other.threads;
+        this.invocations += other.invocations;
+        this.time += other.time;
+        this.cpuTime += other.cpuTime;
+        this.allocatedBytes += other.allocatedBytes;
+        this.ioBytes += other.ioBytes;
+        this.ioOperations += other.ioOperations;
+
+        for (int i = 0; i < this.energy.length; i++)
+        {
+            this.energy[i] += other.energy[i];
+        }
+    }
+
+    /**
+     * @return the name of the method without the thread id
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return the number of threads that executed the method
+     */
+    public long getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * @return the number of invocations
+     */
+    public long getInvocations()
+    {
+        return invocations;
+    }
+
+    /**
+     * @return the execution time in nanoseconds
+     */
+    public long getTime()
+    {
+        return time;
+    }
+
+    /**
+     * @return the CPU time in nanoseconds
+     */
+    public long getCpuTime()
+    {
+        return cpuTime;
+    }
+
+    /**
+     * @return the number of bytes allocated by the method without its callees
+     */
+    public long getAllocatedBytes()
+    {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return the number of bytes read and written by the method
+     */
+    public long getIOBytes()
+    {
+        return ioBytes;
+    }
+
+    /**
+     * @return the number of I/O operations of the method
+     */
+    public long getIOOperations()
+    {
+        return ioOperations;
+    }
+
+    /**
+     * Returns the energy consumed by the method in the given dimension.
+     * 
+     * @param dimension
+     *            The energy dimension.
+     * @return The energy in joules consumed by the method in the given dimension.
+     */
+    public double getEnergy(EnergyDimension dimension)
+    {
+        return this.energy[dimension.ordinal()];
+    }
+
+    /**
+     * Returns the energy consumed by the method in all dimensions.
+     * 
+     * @return The energy in joules consumed by the method.
+     */
+    public double getEnergy()
+    {
+        double total = 0;
+
+        for (double value : this.energy)
+        {
+            total += value;
+        }
+        return total;
+    }
+}
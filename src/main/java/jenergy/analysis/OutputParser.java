@@ -0,0 +1,413 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.analysis;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Map;
+
+import jenergy.compress.BlockInputStream;
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.energy.EnergyDimension;
+import jenergy.trace.TraceReader;
+import jenergy.trace.TraceRecord;
+
+/**
+ * Reads the statistics of the methods from the outputs of the threads into a table of {@link MethodTotals} by method name without the thread id.
+ * The text outputs have one line per method (see {@link jenergy.profile.data.MethodStatistics#toString()}) and per I/O histogram (see
+ * {@link jenergy.profile.data.IOHistograms#toString()}); the other lines are ignored. The times of the text outputs are rounded to milliseconds.
+ * 
+ * Instances of this class are not thread-safe.
+ */
+final class OutputParser
+{
+    /**
+     * The charset of the text outputs.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The number of nanoseconds in a millisecond.
+     */
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /**
+     * The maximum size of a mapped window. A window is only a range of addresses; the pages are read when they are parsed.
+     */
+    private static final long MAX_WINDOW = Integer.MAX_VALUE;
+
+    /**
+     * The energy dimensions, in the order of the energy of the text outputs.
+     */
+    private static final EnergyDimension[] DIMENSIONS = EnergyDimension.values();
+
+    /**
+     * The label of the energy of each dimension in the text outputs, e.g., <em>cpu: </em>.
+     */
+    private static final String[] DIMENSION_LABELS = new String[DIMENSIONS.length];
+
+    static
+    {
+        for (int i = 0; i < DIMENSIONS.length; i++)
+        {
+            DIMENSION_LABELS[i] = DIMENSIONS[i].name().toLowerCase() + ": ";
+        }
+    }
+
+    /**
+     * The table where the statistics are added.
+     */
+    private final Map<String, MethodTotals> totals;
+
+    /**
+     * The energy of a method. The array is reused by all methods.
+     */
+    private final double[] energy = new double[DIMENSIONS.length];
+
+    /**
+     * The bytes of a line of a mapped file. It grows with the longest line.
+     */
+    private byte[] line = new byte[256];
+
+    /**
+     * The bytes copied from the mapped window of a file.
+     */
+    private final byte[] chunk = new byte[1 << 16];
+
+    /**
+     * @param table
+     *            The table where the statistics are added.
+     */
+    OutputParser(Map<String, MethodTotals> table)
+    {
+        this.totals = table;
+    }
+
+    /**
+     * Reads the lines of a text output that start in the given range of the file. The file is memory-mapped, so it must not be compressed.
+     * 
+     * @param file
+     *            The text output.
+     * @param start
+     *            The position of the range in the file.
+     * @param end
+     *            The position after the range in the file.
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    void parseMapped(File file, long start, long end) throws IOException
+    {
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+
+        try
+        {
+            final FileChannel channel = input.getChannel();
+            // the window starts one byte before the range to know whether the range starts at the beginning of a line
+            final long from = Math.max(0, start - 1);
+            final MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(channel.size() - from, MAX_WINDOW));
+            final int limit = (int) Math.min(window.limit(), end - from);
+            final int size = window.limit();
+            int chunkStart = 0;
+            int chunkLength = 0;
+            int position = 0;
+            boolean skipping = start > 0;
+
+            // the window is copied in chunks because reading a mapped buffer byte by byte checks the bounds of every access
+            while (position < size && (skipping || position < limit))
+            {
+                int length = 0;
+                boolean complete = false;
+
+                while (!complete && position < size)
+                {
+                    if (position == chunkStart + chunkLength)
+                    {
+                        chunkStart = position;
+                        chunkLength = Math.min(this.chunk.length, size - position);
+                        window.position(position);
+                        window.get(this.chunk, 0, chunkLength);
+                    }
+
+                    final int offset = position - chunkStart;
+                    int stop = offset;
+
+                    while (stop < chunkLength && this.chunk[stop] != '\n')
+                    {
+                        stop++;
+                    }
+                    complete = stop < chunkLength;
+                    position += stop - offset + (complete ? 1 : 0);
+
+                    if (!skipping)
+                    {
+                        if (length + stop - offset > this.line.length)
+                        {
+                            this.line = Arrays.copyOf(this.line, Math.max(this.line.length << 1, length + stop - offset));
+                        }
+                        System.arraycopy(this.chunk, offset, this.line, length, stop - offset);
+                        length += stop - offset;
+                    }
+                }
+
+                if (skipping)
+                {
+                    // skips the line that started in the previous range
+                    skipping = false;
+                }
+                else
+                {
+                    this.parseLine(new String(this.line, 0, length, UTF8));
+                }
+            }
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+    /**
+     * Reads all lines of a text output, which can be compressed.
+     * 
+     * @param file
+     *            The text output.
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    void parseText(File file) throws IOException
+    {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(BlockInputStream.open(file.getPath()), UTF8), 1 << 16);
+
+        try
+        {
+            String text;
+
+            while ((text = reader.readLine()) != null)
+            {
+                this.parseLine(text);
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads the method statistics and the I/O histograms of a binary trace, which can be compressed.
+     * 
+     * @param file
+     *            The binary trace.
+     * @throws IOException
+     *             If the trace cannot be read.
+     */
+    void parseTrace(File file) throws IOException
+    {
+        final TraceReader reader = new TraceReader(file.getPath());
+
+        try
+        {
+            while (reader.next())
+            {
+                final TraceRecord record = reader.getRecord();
+
+                if (record.getType() == TraceRecord.Type.INVOCATION)
+                {
+                    for (int i = 0; i < DIMENSIONS.length; i++)
+                    {
+                        this.energy[i] = record.getEnergy(DIMENSIONS[i]);
+                    }
+                    this.totalsOf(record.getMethod()).addThread(record.getValue(0), record.getValue(1), record.getValue(2), record.getValue(5),
+                            this.energy);
+                }
+                else if (record.getType() == TraceRecord.Type.IO && record.getMethod() != null)
+                {
+                    this.totalsOf(record.getMethod()).addIO(record.getValue(1), record.getValue(0));
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Reads a line of a text output. The malformed lines are ignored.
+     * 
+     * @param text
+     *            The line.
+     */
+    void parseLine(String text)
+    {
+        try
+        {
+            this.parseStatistics(text);
+        }
+        catch (NumberFormatException exception)
+        {
+            // a line of a method whose name looks like the statistics
+        }
+    }
+
+    /**
+     * Reads a line of a text output.
+     * 
+     * @param text
+     *            The line.
+     */
+    private void parseStatistics(String text)
+    {
+        if (text.startsWith(IOInfo.IOActivityType.READ.name() + ' ') || text.startsWith(IOInfo.IOActivityType.WRITE.name() + ' '))
+        {
+            this.parseHistograms(text);
+            return;
+        }
+
+        final int time = text.indexOf(" time: ");
+        final int cpu = text.indexOf(" cpu: ", time);
+        final int invocations = text.indexOf(") - ", cpu);
+        final int allocated = text.indexOf(" allocated: ", invocations);
+        final int energyStart = text.indexOf(" energy: ", allocated);
+
+        if (time <= 0 || cpu < 0 || invocations < 0 || allocated < 0 || energyStart < 0)
+        {
+            return;
+        }
+
+        int position = energyStart;
+
+        for (int i = 0; i < DIMENSIONS.length; i++)
+        {
+            position = text.indexOf(DIMENSION_LABELS[i], position);
+
+            if (position < 0)
+            {
+                return;
+            }
+            position += DIMENSION_LABELS[i].length();
+            this.energy[i] = Double.parseDouble(number(text, position));
+        }
+
+        final long count = integer(text, invocations + 4);
+        final long nanos = integer(text, time + 7) * NANOS_PER_MILLI;
+        final long cpuNanos = integer(text, cpu + 6) * NANOS_PER_MILLI;
+        final long bytes = integer(text, allocated + 12);
+
+        this.totalsOf(text.substring(0, time)).addThread(count, nanos, cpuNanos, bytes, this.energy);
+    }
+
+    /**
+     * Reads the line of an I/O histogram: <em>direction method path operations: n bytes: n ...</em>. The path can have spaces.
+     * 
+     * @param text
+     *            The line.
+     */
+    private void parseHistograms(String text)
+    {
+        final int method = text.indexOf(' ') + 1;
+        final int methodEnd = text.indexOf(' ', method);
+        final int operations = text.lastIndexOf(" operations: ");
+        final int bytes = operations >= 0 ? text.indexOf(" bytes: ", operations) : -1;
+
+        if (methodEnd > method && bytes > 0 && !"null".equals(text.substring(method, methodEnd)))
+        {
+            final long transferred = integer(text, bytes + 8);
+            final long count = integer(text, operations + 13);
+            this.totalsOf(text.substring(method, methodEnd)).addIO(transferred, count);
+        }
+    }
+
+    /**
+     * Returns the totals of a method, creating them on the first call.
+     * 
+     * @param method
+     *            The name of the method, possibly followed by <em>#</em> and the thread id.
+     * @return The totals of the method.
+     */
+    private MethodTotals totalsOf(String method)
+    {
+        final int suffix = method.lastIndexOf('#');
+        final String name = suffix > 0 ? method.substring(0, suffix) : method;
+        MethodTotals methodTotals = this.totals.get(name);
+
+        if (methodTotals == null)
+        {
+            methodTotals = new MethodTotals(name);
+            this.totals.put(name, methodTotals);
+        }
+        return methodTotals;
+    }
+
+    /**
+     * Returns the number that starts at the given position of a line.
+     * 
+     * @param text
+     *            The line.
+     * @param start
+     *            The position of the number.
+     * @return The number or <em>0</em> if there is no number at the given position.
+     */
+    private static String number(String text, int start)
+    {
+        int end = start;
+
+        while (end < text.length() && "0123456789.-+eE".indexOf(text.charAt(end)) >= 0)
+        {
+            end++;
+        }
+        return end > start ? text.substring(start, end) : "0";
+    }
+
+    /**
+     * Returns the integer that starts at the given position of a line. It avoids the creation of a string for the most frequent numbers.
+     * 
+     * @param text
+     *            The line.
+     * @param start
+     *            The position of the integer.
+     * @return The integer or <em>0</em> if there is no integer at the given position.
+     * @throws NumberFormatException
+     *             If the number at the given position is not an integer.
+     */
+    private static long integer(String text, int start)
+    {
+        final boolean negative = start < text.length() && text.charAt(start) == '-';
+        long value = 0;
+        int end = negative ? start + 1 : start;
+
+        while (end < text.length() && text.charAt(end) >= '0' && text.charAt(end) <= '9')
+        {
+            value = value * 10 + text.charAt(end++) - '0';
+        }
+
+        if (end < text.length() && "0123456789.-+eE".indexOf(text.charAt(end)) >= 0)
+        {
+            throw new NumberFormatException(number(text, start));
+        }
+        return negative ? -value : value;
+    }
+}
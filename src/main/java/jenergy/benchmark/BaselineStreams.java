@@ -0,0 +1,110 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * The loops of {@link StreamBenchmark} without instrumentation. The {@link StreamBenchmarkAspect} only replaces the streams
+ * created by {@link StreamBenchmark}, so the streams created by this class are the plain JDK ones. It's the baseline of the
+ * benchmark: the overhead of the advices is the difference between both loops, measured in the same JVM.
+ */
+final class BaselineStreams
+{
+    /**
+     * Private constructor to avoid instances of this class.
+     */
+    private BaselineStreams()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Opens the file for writing, writes one byte and closes it the given number of times.
+     * 
+     * @param file
+     *            The file to be written.
+     * @param count
+     *            The number of iterations.
+     * @return The elapsed time in nanoseconds.
+     * @throws IOException
+     *             If the file cannot be written.
+     */
+    static long write(File file, int count) throws IOException
+    {
+        final long start = System.nanoTime();
+
+        for (int i = 0; i < count; i++)
+        {
+            final FileOutputStream output = new FileOutputStream(file);
+
+            try
+            {
+                output.write(i);
+            }
+            finally
+            {
+                output.close();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Opens the file for reading, reads one byte and closes it the given number of times.
+     * 
+     * @param file
+     *            The file to be read.
+     * @param count
+     *            The number of iterations.
+     * @return The elapsed time in nanoseconds.
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    static long read(File file, int count) throws IOException
+    {
+        final long start = System.nanoTime();
+        long checksum = 0;
+
+        for (int i = 0; i < count; i++)
+        {
+            final FileInputStream input = new FileInputStream(file);
+
+            try
+            {
+                checksum += input.read();
+            }
+            finally
+            {
+                input.close();
+            }
+        }
+
+        final long elapsed = System.nanoTime() - start;
+
+        if (checksum < 0)
+        {
+            throw new IOException("The file " + file + " is empty!");
+        }
+        return elapsed;
+    }
+}
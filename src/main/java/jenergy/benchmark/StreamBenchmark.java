@@ -0,0 +1,209 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.benchmark;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Measures the overhead of the stream advices on opening, using and closing small files through {@link FileInputStream} and
+ * {@link FileOutputStream}. The {@link StreamBenchmarkAspect} is woven at build time, so the streams created by this class are always replaced by
+ * the delegates of the application's streams, while the ones created by {@link BaselineStreams} are not. Both loops run alternately in the same
+ * JVM and the overhead is the difference of their latencies. The thread of the benchmark is not profiled and the I/O activities of its delegates
+ * are not registered, so the overhead excludes the energy models.
+ */
+public final class StreamBenchmark
+{
+    /**
+     * The default number of measured iterations of each stream type.
+     */
+    private static final int DEFAULT_ITERATIONS = 20000;
+
+    /**
+     * The number of iterations executed before the measurement to warm up the JIT compiler.
+     */
+    private static final int WARM_UP_ITERATIONS = 5000;
+
+    /**
+     * The file opened by the benchmark.
+     */
+    private final File file;
+
+    /**
+     * The number of measured iterations of each stream type.
+     */
+    private final int iterations;
+
+    /**
+     * Creates a benchmark of the given file.
+     * 
+     * @param benchmarkFile
+     *            The file opened by the benchmark. Might not be <code>null</code>.
+     * @param numberOfIterations
+     *            The number of measured iterations of each stream type.
+     */
+    public StreamBenchmark(File benchmarkFile, int numberOfIterations)
+    {
+        this.file = benchmarkFile;
+        this.iterations = numberOfIterations;
+    }
+
+    /**
+     * The number of rounds of each loop. The instrumented and the baseline loops alternate, so the drift of the machine affects both.
+     */
+    private static final int ROUNDS = 5;
+
+    /**
+     * Runs the benchmark and prints the mean latency of each stream type with and without the advices.
+     * 
+     * @param args
+     *            The number of measured iterations. If it's not given, {@link #DEFAULT_ITERATIONS} iterations are executed.
+     * @throws IOException
+     *             If the temporary file cannot be created, written or read.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        final int iterations = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ITERATIONS;
+        final File file = File.createTempFile("jenergy-benchmark", ".tmp");
+
+        try
+        {
+            final StreamBenchmark benchmark = new StreamBenchmark(file, iterations);
+            benchmark.write(WARM_UP_ITERATIONS);
+            benchmark.read(WARM_UP_ITERATIONS);
+            BaselineStreams.write(file, WARM_UP_ITERATIONS);
+            BaselineStreams.read(file, WARM_UP_ITERATIONS);
+
+            final long[] elapsed = new long[4];
+
+            for (int round = 0; round < ROUNDS; round++)
+            {
+                elapsed[0] += BaselineStreams.write(file, iterations);
+                elapsed[1] += benchmark.write(iterations);
+                elapsed[2] += BaselineStreams.read(file, iterations);
+                elapsed[3] += benchmark.read(iterations);
+            }
+
+            final double count = (double) iterations * ROUNDS;
+            System.out.printf("Advices............: %s%n", benchmark.isInstrumented() ? "woven" : "not woven");
+            System.out.printf("Iterations.........: %d x %d%n", ROUNDS, iterations);
+            System.out.printf("FileOutputStream...: %.0f ns per open/write/close, baseline %.0f ns, overhead %.0f ns%n", elapsed[1] / count,
+                    elapsed[0] / count, (elapsed[1] - elapsed[0]) / count);
+            System.out.printf("FileInputStream....: %.0f ns per open/read/close, baseline %.0f ns, overhead %.0f ns%n", elapsed[3] / count,
+                    elapsed[2] / count, (elapsed[3] - elapsed[2]) / count);
+        }
+        finally
+        {
+            if (!file.delete())
+            {
+                file.deleteOnExit();
+            }
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the streams created by this benchmark are replaced by the delegates, i.e., if the {@link StreamBenchmarkAspect}
+     * was woven into the build.
+     * 
+     * @return <code>true</code> if the streams created by this benchmark are replaced by the delegates.
+     * @throws IOException
+     *             If the file cannot be opened.
+     */
+    public boolean isInstrumented() throws IOException
+    {
+        final FileInputStream input = new FileInputStream(this.file);
+
+        try
+        {
+            return !FileInputStream.class.equals(input.getClass());
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+    /**
+     * Opens the file for writing, writes one byte and closes it the given number of times through the instrumented streams.
+     * 
+     * @param count
+     *            The number of iterations.
+     * @return The elapsed time in nanoseconds.
+     * @throws IOException
+     *             If the file cannot be written.
+     */
+    public long write(int count) throws IOException
+    {
+        final long start = System.nanoTime();
+
+        for (int i = 0; i < count; i++)
+        {
+            final FileOutputStream output = new FileOutputStream(this.file);
+
+            try
+            {
+                output.write(i);
+            }
+            finally
+            {
+                output.close();
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Opens the file for reading, reads one byte and closes it the given number of times through the instrumented streams.
+     * 
+     * @param count
+     *            The number of iterations.
+     * @return The elapsed time in nanoseconds.
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    public long read(int count) throws IOException
+    {
+        final long start = System.nanoTime();
+        long checksum = 0;
+
+        for (int i = 0; i < count; i++)
+        {
+            final FileInputStream input = new FileInputStream(this.file);
+
+            try
+            {
+                checksum += input.read();
+            }
+            finally
+            {
+                input.close();
+            }
+        }
+
+        final long elapsed = System.nanoTime() - start;
+
+        if (checksum < 0)
+        {
+            throw new IOException("The file " + this.file + " is empty!");
+        }
+        return elapsed;
+    }
+}
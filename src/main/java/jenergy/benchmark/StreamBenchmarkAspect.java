@@ -0,0 +1,68 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.benchmark;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+
+import jenergy.agent.common.io.FileInputStreamDelegate;
+import jenergy.agent.common.io.FileOutputStreamDelegate;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+
+/**
+ * Replaces the streams created by {@link StreamBenchmark} by the same delegates as the stream advices of the agent, which do not match the agent's
+ * own classes. The I/O activities of these delegates are not registered, so the benchmark charges no energy to the disk model of the JVM that
+ * runs it.
+ */
+@Aspect
+public class StreamBenchmarkAspect
+{
+    /**
+     * Replaces the {@link FileInputStream}s created by {@link StreamBenchmark} by {@link FileInputStreamDelegate}s.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @return An instance of {@link FileInputStreamDelegate}.
+     * @throws Throwable
+     *             If the file cannot be opened.
+     */
+    @Around("call(java.io.FileInputStream+.new(..)) && within(jenergy.benchmark.StreamBenchmark)")
+    public Object aroundNewInput(final ProceedingJoinPoint thisJoinPoint) throws Throwable
+    {
+        return FileInputStreamDelegate.wrap((FileInputStream) thisJoinPoint.proceed(), thisJoinPoint.getArgs(), null, false);
+    }
+
+    /**
+     * Replaces the {@link FileOutputStream}s created by {@link StreamBenchmark} by {@link FileOutputStreamDelegate}s.
+     * 
+     * @param thisJoinPoint
+     *            The joinpoint reference.
+     * @return An instance of {@link FileOutputStreamDelegate}.
+     * @throws Throwable
+     *             If the file cannot be opened.
+     */
+    @Around("call(java.io.FileOutputStream+.new(..)) && within(jenergy.benchmark.StreamBenchmark)")
+    public Object aroundNewOutput(final ProceedingJoinPoint thisJoinPoint) throws Throwable
+    {
+        return FileOutputStreamDelegate.wrap((FileOutputStream) thisJoinPoint.proceed(), thisJoinPoint.getArgs(), null, false);
+    }
+}
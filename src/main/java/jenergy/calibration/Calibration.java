@@ -0,0 +1,406 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.calibration;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fits the coefficients of the energy models on the machine where it runs. It executes CPU-bound, memory-bound and I/O-bound microworkloads and an
+ * idle period at several thread counts, records the CPU time, the allocated bytes, the GC time, the I/O bytes and, when the RAPL counters are
+ * readable, the package and DRAM energy of each run. The coefficients are fitted by least squares and written as a properties file that the agent
+ * loads at startup (system property <em>jenergy.calibration.file</em>).
+ *
+ * <ul>
+ * <li><em>package energy = cpu.idle.power &times; time + cpu.joules.per.second &times; CPU time</em></li>
+ * <li><em>DRAM energy = idle DRAM power &times; time + memory.joules.per.byte &times; allocated bytes + memory.gc.power &times; GC time</em></li>
+ * </ul>
+ *
+ * The disk coefficients are not fitted, because RAPL does not meter the storage devices: the calibration measures the throughput of the disk of
+ * <em>jenergy.calibration.dir</em>, from which the {@link jenergy.profile.energy.DiskProfile} derives the energy per byte as the difference
+ * between its active and idle power divided by the throughput. It's the only coefficient written without RAPL.
+ */
+public final class Calibration
+{
+    /**
+     * The default calibration file.
+     */
+    public static final String DEFAULT_FILE = System.getProperty("user.home") + File.separator + ".jenergy" + File.separator
+            + "calibration.properties";
+
+    /**
+     * The duration in milliseconds of each run.
+     */
+    private final long duration;
+
+    /**
+     * The thread counts of the runs.
+     */
+    private final int[] threadCounts;
+
+    /**
+     * The directory of the files written by the I/O-bound workload.
+     */
+    private final File directory;
+
+    /**
+     * The RAPL counters.
+     */
+    private final Rapl rapl = new Rapl();
+
+    /**
+     * The JVM's thread management bean.
+     */
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    /**
+     * Creates a {@link Calibration} reading its settings from the system properties <em>jenergy.calibration.duration</em> (milliseconds of each
+     * run), <em>jenergy.calibration.threads</em> (comma-separated thread counts) and <em>jenergy.calibration.dir</em> (directory for the I/O
+     * workload).
+     */
+    public Calibration()
+    {
+        this.duration = Long.parseLong(System.getProperty("jenergy.calibration.duration", "2000"));
+        this.directory = new File(System.getProperty("jenergy.calibration.dir", System.getProperty("java.io.tmpdir")));
+
+        final String threads = System.getProperty("jenergy.calibration.threads");
+
+        if (threads != null)
+        {
+            final String[] values = threads.split(",");
+            this.threadCounts = new int[values.length];
+
+            for (int i = 0; i < values.length; i++)
+            {
+                this.threadCounts[i] = Integer.parseInt(values[i].trim());
+            }
+        }
+        else
+        {
+            final List<Integer> counts = new ArrayList<Integer>();
+
+            for (int n = 1; n < Runtime.getRuntime().availableProcessors(); n *= 2)
+            {
+                counts.add(n);
+            }
+            counts.add(Runtime.getRuntime().availableProcessors());
+
+            this.threadCounts = new int[counts.size()];
+
+            for (int i = 0; i < this.threadCounts.length; i++)
+            {
+                this.threadCounts[i] = counts.get(i);
+            }
+        }
+    }
+
+    /**
+     * Runs the calibration and writes the calibration file.
+     * 
+     * @param args
+     *            The path of the calibration file. If it's not given, the file is written to {@link #DEFAULT_FILE}.
+     * @throws Exception
+     *             If a workload fails or if the file cannot be written.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        final File file = new File(args.length > 0 ? args[0] : System.getProperty("jenergy.calibration.file", DEFAULT_FILE));
+        final Calibration calibration = new Calibration();
+        final List<Measurement> measurements = calibration.measure();
+
+        calibration.write(file, measurements);
+        System.out.printf("Calibration written to %s%n", file.getAbsolutePath());
+    }
+
+    /**
+     * Executes the workloads.
+     * 
+     * @return The measurements of all runs.
+     * @throws Exception
+     *             If a workload fails.
+     */
+    public List<Measurement> measure() throws Exception
+    {
+        if (!this.rapl.isAvailable(Rapl.PACKAGE))
+        {
+            System.out.println("RAPL energy counters are not readable: only the disk throughput will be calibrated.");
+        }
+
+        final List<Measurement> measurements = new ArrayList<Measurement>();
+        final Workload[] workloads = {new CpuWorkload(), new MemoryWorkload(), new DiskWorkload(this.directory)};
+
+        // warm up the JIT compiler to not measure the interpreter
+        for (Workload workload : workloads)
+        {
+            this.run(workload, 1, Math.min(500, this.duration));
+        }
+
+        measurements.add(this.run(null, 0, this.duration));
+
+        for (Workload workload : workloads)
+        {
+            for (int threads : this.threadCounts)
+            {
+                final Measurement measurement = this.run(workload, threads, this.duration);
+                measurements.add(measurement);
+                System.out.println(measurement);
+            }
+        }
+        return measurements;
+    }
+
+    /**
+     * Executes a workload with the given number of threads.
+     * 
+     * @param workload
+     *            The workload to be executed or <code>null</code> to measure an idle period.
+     * @param threads
+     *            The number of threads.
+     * @param millis
+     *            The duration of the run in milliseconds.
+     * @return The measurement of the run.
+     * @throws Exception
+     *             If the workload fails.
+     */
+    private Measurement run(final Workload workload, int threads, long millis) throws Exception
+    {
+        final Measurement measurement = new Measurement(workload == null ? "idle" : workload.name(), threads);
+        final AtomicLong cpuTime = new AtomicLong();
+        final AtomicLong allocated = new AtomicLong();
+        final AtomicLong ioBytes = new AtomicLong();
+        final Exception[] failure = new Exception[1];
+        final Thread[] workers = new Thread[threads];
+
+        final long gcTime = gcTime();
+        final long[] energy = this.rapl.read();
+        final long start = System.nanoTime();
+        final long deadline = start + millis * 1000000L;
+
+        for (int i = 0; i < threads; i++)
+        {
+            final int index = i;
+            workers[i] = new Thread("Calibration " + workload.name() + "-" + i)
+            {
+                @Override
+                public void run()
+                {
+                    final long cpu = threadBean.getCurrentThreadCpuTime();
+                    final long bytes = allocatedBytes();
+
+                    try
+                    {
+                        ioBytes.addAndGet(workload.run(index, deadline));
+                    }
+                    catch (Exception exception)
+                    {
+                        failure[0] = exception;
+                    }
+                    finally
+                    {
+                        cpuTime.addAndGet(threadBean.getCurrentThreadCpuTime() - cpu);
+                        allocated.addAndGet(allocatedBytes() - bytes);
+                    }
+                }
+            };
+            workers[i].start();
+        }
+
+        if (threads == 0)
+        {
+            Thread.sleep(millis);
+        }
+
+        for (Thread worker : workers)
+        {
+            worker.join();
+        }
+
+        final long[] energyAfter = this.rapl.read();
+        measurement.seconds = (System.nanoTime() - start) / 1E9;
+        measurement.cpuSeconds = cpuTime.get() / 1E9;
+        measurement.allocatedBytes = allocated.get();
+        measurement.gcSeconds = (gcTime() - gcTime) / 1000D;
+        measurement.ioBytes = ioBytes.get();
+        measurement.packageJoules = this.rapl.joules(Rapl.PACKAGE, energy, energyAfter);
+        measurement.dramJoules = this.rapl.joules(Rapl.DRAM, energy, energyAfter);
+
+        if (failure[0] != null)
+        {
+            throw failure[0];
+        }
+        return measurement;
+    }
+
+    /**
+     * Fits the coefficients and writes the calibration file.
+     * 
+     * @param file
+     *            The calibration file.
+     * @param measurements
+     *            The measurements of the runs.
+     * @throws IOException
+     *             If the file cannot be written.
+     */
+    public void write(File file, List<Measurement> measurements) throws IOException
+    {
+        final Map<String, Object> properties = new TreeMap<String, Object>();
+        final List<String> comments = new ArrayList<String>();
+
+        final LeastSquares cpu = new LeastSquares(2);
+        final LeastSquares dram = new LeastSquares(3);
+        double diskSeconds = 0;
+        long diskBytes = 0;
+
+        for (Measurement measurement : measurements)
+        {
+            if (measurement.packageJoules >= 0)
+            {
+                cpu.add(measurement.packageJoules, measurement.seconds, measurement.cpuSeconds);
+            }
+
+            if (measurement.dramJoules >= 0)
+            {
+                dram.add(measurement.dramJoules, measurement.seconds, measurement.allocatedBytes, measurement.gcSeconds);
+            }
+
+            if ("disk".equals(measurement.getWorkload()) && measurement.getThreads() == 1)
+            {
+                diskSeconds += measurement.seconds;
+                diskBytes += measurement.ioBytes;
+            }
+        }
+
+        if (cpu.size() > 2)
+        {
+            final double[] c = cpu.solve();
+            properties.put("jenergy.cpu.idle.power", Math.max(0, c[0]));
+            properties.put("jenergy.cpu.joules.per.second", Math.max(0, c[1]));
+            comments.add(String.format("package model: %d runs, R2 = %.4f", cpu.size(), cpu.rSquared(c)));
+        }
+
+        if (dram.size() > 3)
+        {
+            final double[] c = dram.solve();
+            properties.put("jenergy.memory.idle.power", Math.max(0, c[0]));
+            properties.put("jenergy.memory.joules.per.byte", Math.max(0, c[1]));
+            properties.put("jenergy.memory.gc.power", Math.max(0, c[2]));
+            comments.add(String.format("DRAM model: %d runs, R2 = %.4f", dram.size(), dram.rSquared(c)));
+        }
+
+        if (diskSeconds > 0 && diskBytes > 0)
+        {
+            properties.put(String.format("jenergy.disk.%s.throughput", System.getProperty("jenergy.disk.profile", "ssd").trim()),
+                    (long) (diskBytes / diskSeconds));
+            comments.add(String.format("disk throughput measured on %s", this.directory.getAbsolutePath()));
+        }
+
+        final File parent = file.getAbsoluteFile().getParentFile();
+
+        if (parent != null && !parent.exists() && !parent.mkdirs())
+        {
+            throw new IOException("Could not create the directory " + parent);
+        }
+
+        final PrintWriter writer = new PrintWriter(new FileWriter(file));
+
+        try
+        {
+            writer.printf("# JEnergy calibration of %s (%s %s, %d processors) - %s%n", hostName(), System.getProperty("os.name"),
+                    System.getProperty("os.arch"), Runtime.getRuntime().availableProcessors(), new Date());
+
+            for (String comment : comments)
+            {
+                writer.printf("# %s%n", comment);
+            }
+
+            for (Measurement measurement : measurements)
+            {
+                writer.printf("# %s%n", measurement);
+            }
+
+            for (Map.Entry<String, Object> property : properties.entrySet())
+            {
+                writer.printf("%s = %s%n", property.getKey(), property.getValue());
+            }
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    /**
+     * Returns the number of bytes allocated by the current thread or zero if it is not available.
+     * 
+     * @return The number of bytes allocated by the current thread or zero if it is not available.
+     */
+    private long allocatedBytes()
+    {
+        if (this.threadBean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) this.threadBean).isThreadAllocatedMemorySupported())
+        {
+            return Math.max(0, ((com.sun.management.ThreadMXBean) this.threadBean).getThreadAllocatedBytes(Thread.currentThread().getId()));
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the accumulated time in milliseconds spent by the garbage collectors.
+     * 
+     * @return The accumulated time in milliseconds spent by the garbage collectors.
+     */
+    private static long gcTime()
+    {
+        long time = 0;
+
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans())
+        {
+            time += Math.max(0, collector.getCollectionTime());
+        }
+        return time;
+    }
+
+    /**
+     * Returns the name of this machine.
+     * 
+     * @return The name of this machine.
+     */
+    private static String hostName()
+    {
+        try
+        {
+            return java.net.InetAddress.getLocalHost().getHostName();
+        }
+        catch (IOException exception)
+        {
+            return "localhost";
+        }
+    }
+}
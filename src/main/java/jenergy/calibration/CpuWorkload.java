@@ -0,0 +1,54 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.calibration;
+
+/**
+ * A CPU-bound workload: integer and floating point arithmetic without memory allocation.
+ */
+final class CpuWorkload implements Workload
+{
+    /**
+     * The result of the computations. It is written to avoid the elimination of the computations by the JIT compiler.
+     */
+    private volatile double sink;
+
+    @Override
+    public String name()
+    {
+        return "cpu";
+    }
+
+    @Override
+    public long run(int thread, long deadline)
+    {
+        double value = thread + 1;
+        long seed = thread + 1;
+
+        while (System.nanoTime() < deadline)
+        {
+            for (int i = 0; i < 100000; i++)
+            {
+                seed = seed * 6364136223846793005L + 1442695040888963407L;
+                value = value * 1.0000001 + (seed >>> 40) * 1E-12;
+            }
+        }
+        this.sink = value;
+        return 0;
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.calibration;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An I/O-bound workload: each thread writes blocks to its own file forcing them to the device, and then reads them back.
+ */
+final class DiskWorkload implements Workload
+{
+    /**
+     * The size in bytes of each block.
+     */
+    private static final int BLOCK_SIZE = 1024 * 1024;
+
+    /**
+     * The maximum size in bytes of the file of each thread.
+     */
+    private static final long MAX_FILE_SIZE = 64L * BLOCK_SIZE;
+
+    /**
+     * The directory where the files are created.
+     */
+    private final File directory;
+
+    /**
+     * @param dir
+     *            The directory where the files are created. It must be on the device being calibrated.
+     */
+    DiskWorkload(File dir)
+    {
+        this.directory = dir;
+    }
+
+    @Override
+    public String name()
+    {
+        return "disk";
+    }
+
+    @Override
+    public long run(int thread, long deadline) throws IOException
+    {
+        final File file = File.createTempFile("jenergy-calibration-" + thread + "-", ".dat", this.directory);
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(BLOCK_SIZE);
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        long bytes = 0;
+
+        try
+        {
+            final FileChannel channel = raf.getChannel();
+            long position = 0;
+
+            while (System.nanoTime() < deadline)
+            {
+                buffer.clear();
+                buffer.putLong(0, bytes);
+                bytes += channel.write(buffer, position);
+                channel.force(false);
+                position += BLOCK_SIZE;
+
+                if (position >= MAX_FILE_SIZE)
+                {
+                    for (long offset = 0; offset < position && System.nanoTime() < deadline; offset += BLOCK_SIZE)
+                    {
+                        buffer.clear();
+                        bytes += Math.max(0, channel.read(buffer, offset));
+                    }
+                    position = 0;
+                }
+            }
+        }
+        finally
+        {
+            raf.close();
+
+            if (!file.delete())
+            {
+                file.deleteOnExit();
+            }
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,232 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.calibration;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fits the coefficients of a linear model <em>y = c<sub>0</sub> x<sub>0</sub> + ... + c<sub>n</sub> x<sub>n</sub></em> by ordinary least
+ * squares. The columns are scaled before solving the normal equations because the variables have very different magnitudes (e.g., seconds and
+ * bytes).
+ */
+final class LeastSquares
+{
+    /**
+     * The regularization added to the diagonal of the scaled normal matrix. It keeps the system solvable when a variable is constant (e.g., the GC
+     * time of a machine where no collection happened).
+     */
+    private static final double RIDGE = 1E-9;
+
+    /**
+     * The number of variables.
+     */
+    private final int variables;
+
+    /**
+     * The observations of the variables.
+     */
+    private final List<double[]> rows = new ArrayList<double[]>();
+
+    /**
+     * The observations of the dependent value.
+     */
+    private final List<Double> values = new ArrayList<Double>();
+
+    /**
+     * @param numberOfVariables
+     *            The number of variables of the model.
+     */
+    LeastSquares(int numberOfVariables)
+    {
+        this.variables = numberOfVariables;
+    }
+
+    /**
+     * Adds an observation.
+     * 
+     * @param value
+     *            The observed value.
+     * @param x
+     *            The observed variables.
+     */
+    void add(double value, double... x)
+    {
+        if (x.length != this.variables)
+        {
+            throw new IllegalArgumentException(String.format("Expected %d variables but got %d", this.variables, x.length));
+        }
+        this.rows.add(x.clone());
+        this.values.add(value);
+    }
+
+    /**
+     * Returns the number of observations.
+     * 
+     * @return The number of observations.
+     */
+    int size()
+    {
+        return this.rows.size();
+    }
+
+    /**
+     * Solves the model.
+     * 
+     * @return The coefficients of the variables.
+     */
+    double[] solve()
+    {
+        final int n = this.variables;
+        final double[] scale = new double[n];
+
+        for (double[] row : this.rows)
+        {
+            for (int j = 0; j < n; j++)
+            {
+                scale[j] = Math.max(scale[j], Math.abs(row[j]));
+            }
+        }
+
+        for (int j = 0; j < n; j++)
+        {
+            if (scale[j] == 0)
+            {
+                scale[j] = 1;
+            }
+        }
+
+        final double[][] a = new double[n][n + 1];
+
+        for (int r = 0; r < this.rows.size(); r++)
+        {
+            final double[] row = this.rows.get(r);
+
+            for (int i = 0; i < n; i++)
+            {
+                for (int j = 0; j < n; j++)
+                {
+                    a[i][j] += row[i] / scale[i] * row[j] / scale[j];
+                }
+                a[i][n] += row[i] / scale[i] * this.values.get(r);
+            }
+        }
+
+        for (int i = 0; i < n; i++)
+        {
+            a[i][i] += RIDGE;
+        }
+
+        final double[] coefficients = gauss(a);
+
+        for (int j = 0; j < n; j++)
+        {
+            coefficients[j] /= scale[j];
+        }
+        return coefficients;
+    }
+
+    /**
+     * Returns the coefficient of determination (R<sup>2</sup>) of the given coefficients.
+     * 
+     * @param coefficients
+     *            The coefficients of the variables.
+     * @return The coefficient of determination of the model.
+     */
+    double rSquared(double[] coefficients)
+    {
+        double mean = 0;
+
+        for (Double value : this.values)
+        {
+            mean += value;
+        }
+        mean /= Math.max(1, this.values.size());
+
+        double residual = 0;
+        double total = 0;
+
+        for (int r = 0; r < this.rows.size(); r++)
+        {
+            double estimated = 0;
+
+            for (int j = 0; j < this.variables; j++)
+            {
+                estimated += coefficients[j] * this.rows.get(r)[j];
+            }
+
+            residual += (this.values.get(r) - estimated) * (this.values.get(r) - estimated);
+            total += (this.values.get(r) - mean) * (this.values.get(r) - mean);
+        }
+        return total > 0 ? 1 - residual / total : 1;
+    }
+
+    /**
+     * Solves an augmented linear system by Gaussian elimination with partial pivoting.
+     * 
+     * @param a
+     *            The augmented matrix. It is changed by this method.
+     * @return The solution of the system.
+     */
+    private static double[] gauss(double[][] a)
+    {
+        final int n = a.length;
+
+        for (int p = 0; p < n; p++)
+        {
+            int max = p;
+
+            for (int i = p + 1; i < n; i++)
+            {
+                if (Math.abs(a[i][p]) > Math.abs(a[max][p]))
+                {
+                    max = i;
+                }
+            }
+
+            final double[] temp = a[p];
+            a[p] = a[max];
+            a[max] = temp;
+
+            for (int i = p + 1; i < n; i++)
+            {
+                final double factor = a[i][p] / a[p][p];
+
+                for (int j = p; j <= n; j++)
+                {
+                    a[i][j] -= factor * a[p][j];
+                }
+            }
+        }
+
+        final double[] x = new double[n];
+
+        for (int i = n - 1; i >= 0; i--)
+        {
+            double sum = a[i][n];
+
+            for (int j = i + 1; j < n; j++)
+            {
+                sum -= a[i][j] * x[j];
+            }
+            x[i] = sum / a[i][i];
+        }
+        return x;
+    }
+}
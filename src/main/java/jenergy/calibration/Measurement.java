@@ -0,0 +1,105 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.calibration;
+
+/**
+ * The resources consumed by a calibration run.
+ */
+final class Measurement
+{
+    /**
+     * The name of the workload.
+     */
+    private final String workload;
+
+    /**
+     * The number of threads that executed the workload.
+     */
+    private final int threads;
+
+    /**
+     * The elapsed time in seconds.
+     */
+    double seconds;
+
+    /**
+     * The CPU time in seconds of the threads that executed the workload.
+     */
+    double cpuSeconds;
+
+    /**
+     * The number of bytes allocated by the threads that executed the workload.
+     */
+    long allocatedBytes;
+
+    /**
+     * The time in seconds spent by the garbage collectors.
+     */
+    double gcSeconds;
+
+    /**
+     * The number of bytes read and written by the workload.
+     */
+    long ioBytes;
+
+    /**
+     * The energy in joules of the processor packages or a negative value if it is not available.
+     */
+    double packageJoules = -1;
+
+    /**
+     * The energy in joules of the memory or a negative value if it is not available.
+     */
+    double dramJoules = -1;
+
+    /**
+     * @param workloadName
+     *            The name of the workload.
+     * @param numberOfThreads
+     *            The number of threads that executed the workload.
+     */
+    Measurement(String workloadName, int numberOfThreads)
+    {
+        this.workload = workloadName;
+        this.threads = numberOfThreads;
+    }
+
+    /**
+     * @return the workload
+     */
+    String getWorkload()
+    {
+        return workload;
+    }
+
+    /**
+     * @return the threads
+     */
+    int getThreads()
+    {
+        return threads;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%-6s threads: %2d time: %.2fs cpu: %.2fs allocated: %d bytes gc: %.3fs io: %d bytes package: %.2fJ dram: %.2fJ",
+                workload, threads, seconds, cpuSeconds, allocatedBytes, gcSeconds, ioBytes, packageJoules, dramJoules);
+    }
+}
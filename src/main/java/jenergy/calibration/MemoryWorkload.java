@@ -0,0 +1,73 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.calibration;
+
+/**
+ * A memory-bound workload: it allocates arrays, writes them and keeps a window of them alive, so the collectors have to copy live data.
+ */
+final class MemoryWorkload implements Workload
+{
+    /**
+     * The size in bytes of each allocated array.
+     */
+    private static final int BLOCK_SIZE = 64 * 1024;
+
+    /**
+     * The number of arrays kept alive by each thread.
+     */
+    private static final int WINDOW = 256;
+
+    /**
+     * The sum of some bytes of the arrays. It is written to avoid the elimination of the allocations by the JIT compiler.
+     */
+    private volatile long sink;
+
+    @Override
+    public String name()
+    {
+        return "memory";
+    }
+
+    @Override
+    public long run(int thread, long deadline)
+    {
+        final byte[][] window = new byte[WINDOW][];
+        long sum = 0;
+        int next = 0;
+
+        while (System.nanoTime() < deadline)
+        {
+            for (int i = 0; i < 64; i++)
+            {
+                final byte[] block = new byte[BLOCK_SIZE];
+
+                for (int j = 0; j < BLOCK_SIZE; j += 64)
+                {
+                    block[j] = (byte) j;
+                }
+
+                sum += window[next] != null ? window[next][next] : 0;
+                window[next] = block;
+                next = (next + 1) % WINDOW;
+            }
+        }
+        this.sink = sum;
+        return 0;
+    }
+}
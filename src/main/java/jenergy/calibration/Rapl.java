@@ -0,0 +1,238 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.calibration;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the energy counters of the Running Average Power Limit (RAPL) interface exposed by the Linux powercap framework. The directory of the
+ * framework is given by the system property <em>jenergy.rapl.root</em> (default <em>/sys/class/powercap</em>). The counters are not available
+ * on every machine and their reading might require extra permissions, in which case the calibration runs without them.
+ */
+final class Rapl
+{
+    /**
+     * The domain with the energy of the processor packages.
+     */
+    static final String PACKAGE = "package";
+
+    /**
+     * The domain with the energy of the memory (DRAM).
+     */
+    static final String DRAM = "dram";
+
+    /**
+     * The domains that can be read.
+     */
+    private final List<Domain> domains = new ArrayList<Domain>();
+
+    /**
+     * A readable RAPL domain.
+     */
+    private static final class Domain
+    {
+        /**
+         * The kind of the domain: {@link Rapl#PACKAGE} or {@link Rapl#DRAM}.
+         */
+        private final String kind;
+
+        /**
+         * The file with the energy counter in microjoules.
+         */
+        private final File energy;
+
+        /**
+         * The value in microjoules where the counter wraps around.
+         */
+        private final long maxRange;
+
+        /**
+         * @param domainKind
+         *            The kind of the domain.
+         * @param energyFile
+         *            The file with the energy counter in microjoules.
+         * @param range
+         *            The value in microjoules where the counter wraps around.
+         */
+        Domain(String domainKind, File energyFile, long range)
+        {
+            this.kind = domainKind;
+            this.energy = energyFile;
+            this.maxRange = range;
+        }
+    }
+
+    /**
+     * Finds the readable package and DRAM domains.
+     */
+    Rapl()
+    {
+        final File[] files = new File(System.getProperty("jenergy.rapl.root", "/sys/class/powercap")).listFiles();
+
+        if (files == null)
+        {
+            return;
+        }
+
+        for (File dir : files)
+        {
+            if (!dir.getName().startsWith("intel-rapl:"))
+            {
+                continue;
+            }
+
+            try
+            {
+                final String name = readLine(new File(dir, "name"));
+                final String kind = name.startsWith(PACKAGE) ? PACKAGE : DRAM.equals(name) ? DRAM : null;
+
+                if (kind != null)
+                {
+                    final File energy = new File(dir, "energy_uj");
+                    final File range = new File(dir, "max_energy_range_uj");
+
+                    Long.parseLong(readLine(energy));
+                    this.domains.add(new Domain(kind, energy, range.exists() ? Long.parseLong(readLine(range)) : Long.MAX_VALUE));
+                }
+            }
+            catch (IOException exception)
+            {
+                continue;
+            }
+            catch (NumberFormatException exception)
+            {
+                continue;
+            }
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if there is a readable domain of the given kind.
+     * 
+     * @param kind
+     *            The kind of the domain: {@link #PACKAGE} or {@link #DRAM}.
+     * @return <code>true</code> if there is a readable domain of the given kind.
+     */
+    boolean isAvailable(String kind)
+    {
+        for (Domain domain : this.domains)
+        {
+            if (domain.kind.equals(kind))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the counters of all domains.
+     * 
+     * @return The value in microjoules of the counter of each domain. A negative value means that the counter could not be read.
+     */
+    long[] read()
+    {
+        final long[] values = new long[this.domains.size()];
+
+        for (int i = 0; i < values.length; i++)
+        {
+            try
+            {
+                values[i] = Long.parseLong(readLine(this.domains.get(i).energy));
+            }
+            catch (IOException exception)
+            {
+                values[i] = -1;
+            }
+            catch (NumberFormatException exception)
+            {
+                values[i] = -1;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Returns the energy in joules consumed by the domains of the given kind between two readings.
+     * 
+     * @param kind
+     *            The kind of the domains: {@link #PACKAGE} or {@link #DRAM}.
+     * @param before
+     *            The first reading.
+     * @param after
+     *            The second reading.
+     * @return The energy in joules consumed by the domains of the given kind or a negative value if it is not available.
+     */
+    double joules(String kind, long[] before, long[] after)
+    {
+        long microjoules = 0;
+        boolean found = false;
+
+        for (int i = 0; i < before.length; i++)
+        {
+            final Domain domain = this.domains.get(i);
+
+            if (domain.kind.equals(kind))
+            {
+                if (before[i] < 0 || after[i] < 0)
+                {
+                    return -1;
+                }
+
+                microjoules += after[i] >= before[i] ? after[i] - before[i] : domain.maxRange - before[i] + after[i];
+                found = true;
+            }
+        }
+        return found ? microjoules / 1E6 : -1;
+    }
+
+    /**
+     * Reads the first line of the given file.
+     * 
+     * @param file
+     *            The file to be read.
+     * @return The first line of the file without leading and trailing spaces.
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    private static String readLine(File file) throws IOException
+    {
+        final BufferedReader reader = new BufferedReader(new FileReader(file));
+
+        try
+        {
+            final String line = reader.readLine();
+
+            if (line == null)
+            {
+                throw new IOException("Empty file: " + file);
+            }
+            return line.trim();
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+}
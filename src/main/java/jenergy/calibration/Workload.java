@@ -0,0 +1,45 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.calibration;
+
+/**
+ * A microworkload executed by the calibration. Every thread of a calibration run executes the workload until the deadline.
+ */
+public interface Workload
+{
+    /**
+     * Returns the name of the workload.
+     * 
+     * @return The name of the workload.
+     */
+    String name();
+
+    /**
+     * Executes the workload in the current thread until the given deadline.
+     * 
+     * @param thread
+     *            The index of the thread that is executing the workload.
+     * @param deadline
+     *            The value of {@link System#nanoTime()} when the workload must stop.
+     * @return The number of bytes read or written by the workload.
+     * @throws Exception
+     *             If the workload fails.
+     */
+    long run(int thread, long deadline) throws Exception;
+}
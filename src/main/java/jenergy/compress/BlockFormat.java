@@ -0,0 +1,189 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.compress;
+
+/**
+ * The constants of the block-compressed files.
+ * 
+ * A file is a sequence of independent blocks, each one with at most the configured block size of uncompressed data. Each block carries its own
+ * index entry, the position of its first uncompressed byte in the file's uncompressed data, so a reader can seek by jumping from block header to
+ * block header without decompressing them. The integers are little-endian.
+ * 
+ * A {@link Codec#GZIP} block is a complete gzip member (RFC 1952) whose header has an extra field <em>JE</em> with the uncompressed offset, the
+ * compressed size and the uncompressed size, so a file is also a valid multi-member gzip file. A {@link Codec#LZ} block has a header with the
+ * magic bytes <em>JELZ</em>, the uncompressed offset, the compressed size, the uncompressed size and the CRC-32 of the uncompressed data, followed
+ * by the data compressed by {@link Lz}, or stored when it does not compress (the compressed size is then the uncompressed size).
+ */
+final class BlockFormat
+{
+    /**
+     * The first bytes of a {@link Codec#GZIP} block: the gzip magic bytes, the deflate method and the flag of the extra field.
+     */
+    static final byte[] GZIP_MAGIC = {0x1f, (byte) 0x8b, 8, 4};
+
+    /**
+     * The size of the header of a {@link Codec#GZIP} block: the gzip header (10 bytes), the length of the extra field (2 bytes) and the extra
+     * field (4 bytes of subfield header and 16 bytes of data).
+     */
+    static final int GZIP_HEADER_SIZE = 32;
+
+    /**
+     * The size of the trailer of a {@link Codec#GZIP} block: the CRC-32 and the size of the uncompressed data.
+     */
+    static final int GZIP_TRAILER_SIZE = 8;
+
+    /**
+     * The length of the extra field of a {@link Codec#GZIP} block.
+     */
+    static final int GZIP_EXTRA_LENGTH = 20;
+
+    /**
+     * The length of the data of the <em>JE</em> subfield.
+     */
+    static final int GZIP_SUBFIELD_LENGTH = 16;
+
+    /**
+     * The id of the extra subfield of a {@link Codec#GZIP} block.
+     */
+    static final byte[] GZIP_SUBFIELD = {'J', 'E'};
+
+    /**
+     * The operating system field of the gzip header: unknown.
+     */
+    static final byte GZIP_OS = (byte) 0xff;
+
+    /**
+     * The first bytes of a {@link Codec#LZ} block.
+     */
+    static final byte[] LZ_MAGIC = {'J', 'E', 'L', 'Z'};
+
+    /**
+     * The size of the header of a {@link Codec#LZ} block.
+     */
+    static final int LZ_HEADER_SIZE = 24;
+
+    /**
+     * The size of the magic bytes of the blocks.
+     */
+    static final int MAGIC_SIZE = 4;
+
+    /**
+     * The mask of a byte.
+     */
+    private static final int BYTE_MASK = 0xff;
+
+    /**
+     * Private constructor to avoid instance of this class.
+     */
+    private BlockFormat()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns <code>true</code> if the bytes at the given position are the given magic bytes.
+     * 
+     * @param buffer
+     *            The buffer.
+     * @param position
+     *            The position of the bytes.
+     * @param magic
+     *            The magic bytes.
+     * @return <code>true</code> if the bytes at the given position are the given magic bytes.
+     */
+    static boolean startsWith(byte[] buffer, int position, byte[] magic)
+    {
+        for (int i = 0; i < magic.length; i++)
+        {
+            if (buffer[position + i] != magic[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes a little-endian integer.
+     * 
+     * @param buffer
+     *            The buffer.
+     * @param position
+     *            The position of the integer.
+     * @param value
+     *            The value.
+     */
+    static void putInt(byte[] buffer, int position, int value)
+    {
+        for (int i = 0; i < Integer.SIZE / Byte.SIZE; i++)
+        {
+            buffer[position + i] = (byte) (value >>> (i * Byte.SIZE));
+        }
+    }
+
+    /**
+     * Writes a little-endian long.
+     * 
+     * @param buffer
+     *            The buffer.
+     * @param position
+     *            The position of the long.
+     * @param value
+     *            The value.
+     */
+    static void putLong(byte[] buffer, int position, long value)
+    {
+        putInt(buffer, position, (int) value);
+        putInt(buffer, position + Integer.SIZE / Byte.SIZE, (int) (value >>> Integer.SIZE));
+    }
+
+    /**
+     * Reads a little-endian integer.
+     * 
+     * @param buffer
+     *            The buffer.
+     * @param position
+     *            The position of the integer.
+     * @return The value.
+     */
+    static int getInt(byte[] buffer, int position)
+    {
+        int value = 0;
+
+        for (int i = 0; i < Integer.SIZE / Byte.SIZE; i++)
+        {
+            value |= (buffer[position + i] & BYTE_MASK) << (i * Byte.SIZE);
+        }
+        return value;
+    }
+
+    /**
+     * Reads a little-endian long.
+     * 
+     * @param buffer
+     *            The buffer.
+     * @param position
+     *            The position of the long.
+     * @return The value.
+     */
+    static long getLong(byte[] buffer, int position)
+    {
+        return (getInt(buffer, position) & 0xffffffffL) | (long) getInt(buffer, position + Integer.SIZE / Byte.SIZE) << Integer.SIZE;
+    }
+}
@@ -0,0 +1,551 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.compress;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a file written by a {@link BlockOutputStream}. The blocks are decompressed one at a time and checked against their CRC-32. The reader can
+ * {@link #seek(long)} to any position of the uncompressed data: the first seek builds an index of the blocks by reading their headers only, and
+ * each seek then decompresses a single block. An incomplete block at the end of the file, left by a crash, is ignored.
+ * 
+ * Instances of this class are not thread-safe.
+ */
+public final class BlockInputStream extends InputStream
+{
+    /**
+     * The initial capacity of the index.
+     */
+    private static final int INITIAL_INDEX_CAPACITY = 64;
+
+    /**
+     * The compressed file.
+     */
+    private final RandomAccessFile file;
+
+    /**
+     * The decompressor of the {@link Codec#GZIP} blocks.
+     */
+    private final Inflater inflater = new Inflater(true);
+
+    /**
+     * The checksum of the decompressed blocks.
+     */
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * The header of a block. The LZ header is the largest one.
+     */
+    private final byte[] header = new byte[Math.max(BlockFormat.GZIP_HEADER_SIZE, BlockFormat.LZ_HEADER_SIZE)];
+
+    /**
+     * The compressed data of the current block.
+     */
+    private byte[] compressed = new byte[0];
+
+    /**
+     * The uncompressed data of the current block.
+     */
+    private byte[] block = new byte[0];
+
+    /**
+     * The size of the uncompressed data of the current block.
+     */
+    private int size;
+
+    /**
+     * The position of the next byte to read in the current block.
+     */
+    private int position;
+
+    /**
+     * The position of the current block in the uncompressed data.
+     */
+    private long blockOffset;
+
+    /**
+     * The position in the file of the next block.
+     */
+    private long next;
+
+    /**
+     * The codec of the block whose header was read last.
+     */
+    private Codec headerCodec;
+
+    /**
+     * The size of the header of the block whose header was read last.
+     */
+    private int headerSize;
+
+    /**
+     * The uncompressed offset of the block whose header was read last.
+     */
+    private long headerOffset;
+
+    /**
+     * The compressed size of the block whose header was read last.
+     */
+    private int headerCompressedSize;
+
+    /**
+     * The uncompressed size of the block whose header was read last.
+     */
+    private int headerUncompressedSize;
+
+    /**
+     * The position in the file of each block. It's <code>null</code> until the first seek.
+     */
+    private long[] indexPositions;
+
+    /**
+     * The uncompressed offset of each block.
+     */
+    private long[] indexOffsets;
+
+    /**
+     * The number of blocks in the index.
+     */
+    private int indexSize;
+
+    /**
+     * The position in the file after the last complete block. It's defined by the index.
+     */
+    private long validLength;
+
+    /**
+     * The size of the uncompressed data of the complete blocks. It's defined by the index.
+     */
+    private long uncompressedLength;
+
+    /**
+     * Opens a compressed file.
+     * 
+     * @param compressedFile
+     *            The file.
+     * @throws IOException
+     *             If the file cannot be opened.
+     */
+    public BlockInputStream(File compressedFile) throws IOException
+    {
+        this.file = new RandomAccessFile(compressedFile, "r");
+    }
+
+    /**
+     * Opens a file for reading, decompressing it if it was written by a {@link BlockOutputStream}.
+     * 
+     * @param path
+     *            The path of the file.
+     * @return The uncompressed data of the file.
+     * @throws IOException
+     *             If the file cannot be opened.
+     */
+    public static InputStream open(String path) throws IOException
+    {
+        final File file = new File(path);
+        return isCompressed(file) ? new BlockInputStream(file) : new BufferedInputStream(new FileInputStream(file));
+    }
+
+    /**
+     * Returns <code>true</code> if a file starts with a block written by a {@link BlockOutputStream}.
+     * 
+     * @param file
+     *            The file.
+     * @return <code>true</code> if the file is compressed in blocks.
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    public static boolean isCompressed(File file) throws IOException
+    {
+        final RandomAccessFile in = new RandomAccessFile(file, "r");
+
+        try
+        {
+            final byte[] start = new byte[BlockFormat.GZIP_HEADER_SIZE];
+            final int n = in.read(start);
+
+            return n >= BlockFormat.MAGIC_SIZE && BlockFormat.startsWith(start, 0, BlockFormat.LZ_MAGIC) || n == start.length
+                    && BlockFormat.startsWith(start, 0, BlockFormat.GZIP_MAGIC) && BlockFormat.startsWith(start, 12, BlockFormat.GZIP_SUBFIELD);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    @Override
+    public int read() throws IOException
+    {
+        if (this.position == this.size && !this.nextBlock())
+        {
+            return -1;
+        }
+        return this.block[this.position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException
+    {
+        if (len == 0)
+        {
+            return 0;
+        }
+
+        if (this.position == this.size && !this.nextBlock())
+        {
+            return -1;
+        }
+
+        final int n = Math.min(len, this.size - this.position);
+        System.arraycopy(this.block, this.position, b, off, n);
+        this.position += n;
+        return n;
+    }
+
+    @Override
+    public int available()
+    {
+        return this.size - this.position;
+    }
+
+    @Override
+    public long skip(long n) throws IOException
+    {
+        if (n <= 0)
+        {
+            return 0;
+        }
+
+        final long from = this.getPosition();
+        this.seek(Math.min(from + n, this.length()));
+        return this.getPosition() - from;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        this.inflater.end();
+        this.file.close();
+    }
+
+    /**
+     * Returns the position of the next byte to read in the uncompressed data.
+     * 
+     * @return The position of the next byte to read in the uncompressed data.
+     */
+    public long getPosition()
+    {
+        return this.blockOffset + this.position;
+    }
+
+    /**
+     * Moves to a position of the uncompressed data. Only the block of the position is decompressed.
+     * 
+     * @param target
+     *            The position in the uncompressed data. A position after the end of the data moves to the end.
+     * @throws IOException
+     *             If the file cannot be read or a block is corrupted.
+     */
+    public void seek(long target) throws IOException
+    {
+        this.index();
+
+        if (this.indexSize == 0)
+        {
+            return;
+        }
+
+        int low = 0;
+        int high = this.indexSize - 1;
+
+        // the last block whose offset is not after the target
+        while (low < high)
+        {
+            final int middle = (low + high + 1) >>> 1;
+
+            if (this.indexOffsets[middle] <= target)
+            {
+                low = middle;
+            }
+            else
+            {
+                high = middle - 1;
+            }
+        }
+
+        this.next = this.indexPositions[low];
+
+        if (this.nextBlock())
+        {
+            this.position = (int) Math.min(this.size, Math.max(0, target - this.blockOffset));
+        }
+    }
+
+    /**
+     * Returns the size of the uncompressed data.
+     * 
+     * @return The size of the uncompressed data of the complete blocks.
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    public long length() throws IOException
+    {
+        this.index();
+        return this.uncompressedLength;
+    }
+
+    /**
+     * Returns the position in the file after the last complete block.
+     * 
+     * @return The position in the file after the last complete block.
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    long getValidLength() throws IOException
+    {
+        this.index();
+        return this.validLength;
+    }
+
+    /**
+     * Builds the index of the blocks from their headers, if it has not been built yet.
+     * 
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    private void index() throws IOException
+    {
+        if (this.indexPositions != null)
+        {
+            return;
+        }
+
+        this.indexPositions = new long[INITIAL_INDEX_CAPACITY];
+        this.indexOffsets = new long[INITIAL_INDEX_CAPACITY];
+        long at = 0;
+
+        while (this.readHeader(at))
+        {
+            if (this.indexSize == this.indexPositions.length)
+            {
+                this.indexPositions = Arrays.copyOf(this.indexPositions, this.indexSize << 1);
+                this.indexOffsets = Arrays.copyOf(this.indexOffsets, this.indexSize << 1);
+            }
+            this.indexPositions[this.indexSize] = at;
+            this.indexOffsets[this.indexSize] = this.headerOffset;
+            this.indexSize++;
+            this.uncompressedLength = this.headerOffset + this.headerUncompressedSize;
+            at += this.blockLength();
+        }
+        this.validLength = at;
+    }
+
+    /**
+     * Reads and decompresses the next block.
+     * 
+     * @return <code>true</code> if a block was read or <code>false</code> at the end of the file.
+     * @throws IOException
+     *             If the file cannot be read or the block is corrupted.
+     */
+    private boolean nextBlock() throws IOException
+    {
+        do
+        {
+            if (!this.readHeader(this.next))
+            {
+                return false;
+            }
+            this.decompress();
+            this.next += this.blockLength();
+        }
+        while (this.size == 0);
+
+        return true;
+    }
+
+    /**
+     * Reads the header of a block.
+     * 
+     * @param at
+     *            The position of the block in the file.
+     * @return <code>true</code> if a complete block starts at the given position or <code>false</code> at the end of the file.
+     * @throws IOException
+     *             If the file cannot be read or the data at the given position is not a block.
+     */
+    private boolean readHeader(long at) throws IOException
+    {
+        final long available = this.file.length() - at;
+
+        if (available < BlockFormat.MAGIC_SIZE)
+        {
+            return false;
+        }
+
+        this.file.seek(at);
+        this.file.readFully(this.header, 0, BlockFormat.MAGIC_SIZE);
+
+        if (BlockFormat.startsWith(this.header, 0, BlockFormat.GZIP_MAGIC))
+        {
+            if (available < BlockFormat.GZIP_HEADER_SIZE)
+            {
+                return false;
+            }
+            this.file.readFully(this.header, BlockFormat.MAGIC_SIZE, BlockFormat.GZIP_HEADER_SIZE - BlockFormat.MAGIC_SIZE);
+
+            if (!BlockFormat.startsWith(this.header, 12, BlockFormat.GZIP_SUBFIELD))
+            {
+                throw new IOException("Not a compressed block at " + at);
+            }
+            this.headerCodec = Codec.GZIP;
+            this.headerSize = BlockFormat.GZIP_HEADER_SIZE;
+            this.headerOffset = BlockFormat.getLong(this.header, 16);
+            this.headerCompressedSize = BlockFormat.getInt(this.header, 24);
+            this.headerUncompressedSize = BlockFormat.getInt(this.header, 28);
+        }
+        else if (BlockFormat.startsWith(this.header, 0, BlockFormat.LZ_MAGIC))
+        {
+            if (available < BlockFormat.LZ_HEADER_SIZE)
+            {
+                return false;
+            }
+            this.file.readFully(this.header, BlockFormat.MAGIC_SIZE, BlockFormat.LZ_HEADER_SIZE - BlockFormat.MAGIC_SIZE);
+            this.headerCodec = Codec.LZ;
+            this.headerSize = BlockFormat.LZ_HEADER_SIZE;
+            this.headerOffset = BlockFormat.getLong(this.header, 4);
+            this.headerCompressedSize = BlockFormat.getInt(this.header, 12);
+            this.headerUncompressedSize = BlockFormat.getInt(this.header, 16);
+        }
+        else
+        {
+            throw new IOException("Not a compressed block at " + at);
+        }
+
+        if (this.headerCompressedSize < 0 || this.headerUncompressedSize < 0)
+        {
+            throw new IOException("Invalid block sizes at " + at);
+        }
+        return available >= this.blockLength();
+    }
+
+    /**
+     * Returns the size in the file of the block whose header was read last.
+     * 
+     * @return The size in the file of the block, including its header and trailer.
+     */
+    private long blockLength()
+    {
+        return (long) this.headerSize + this.headerCompressedSize + (this.headerCodec == Codec.GZIP ? BlockFormat.GZIP_TRAILER_SIZE : 0);
+    }
+
+    /**
+     * Reads and decompresses the block whose header was read last. The file is positioned after the header.
+     * 
+     * @throws IOException
+     *             If the file cannot be read or the block is corrupted.
+     */
+    private void decompress() throws IOException
+    {
+        final int dataLength = (int) (this.blockLength() - this.headerSize);
+
+        if (this.compressed.length < dataLength)
+        {
+            this.compressed = new byte[dataLength];
+        }
+
+        if (this.block.length < this.headerUncompressedSize)
+        {
+            this.block = new byte[this.headerUncompressedSize];
+        }
+        this.file.readFully(this.compressed, 0, dataLength);
+
+        final int expectedCrc;
+
+        if (this.headerCodec == Codec.GZIP)
+        {
+            this.inflate();
+            expectedCrc = BlockFormat.getInt(this.compressed, this.headerCompressedSize);
+        }
+        else
+        {
+            if (this.headerCompressedSize == this.headerUncompressedSize)
+            {
+                System.arraycopy(this.compressed, 0, this.block, 0, this.headerUncompressedSize);
+            }
+            else
+            {
+                Lz.decompress(this.compressed, 0, this.headerCompressedSize, this.block, this.headerUncompressedSize);
+            }
+            expectedCrc = BlockFormat.getInt(this.header, 20);
+        }
+
+        this.crc.reset();
+        this.crc.update(this.block, 0, this.headerUncompressedSize);
+
+        if ((int) this.crc.getValue() != expectedCrc)
+        {
+            throw new IOException("Corrupted block at offset " + this.headerOffset);
+        }
+
+        this.size = this.headerUncompressedSize;
+        this.position = 0;
+        this.blockOffset = this.headerOffset;
+    }
+
+    /**
+     * Inflates the compressed data of a {@link Codec#GZIP} block.
+     * 
+     * @throws IOException
+     *             If the data is corrupted.
+     */
+    private void inflate() throws IOException
+    {
+        this.inflater.reset();
+        this.inflater.setInput(this.compressed, 0, this.headerCompressedSize);
+
+        try
+        {
+            int n = 0;
+
+            while (n < this.headerUncompressedSize && !this.inflater.finished())
+            {
+                final int inflated = this.inflater.inflate(this.block, n, this.headerUncompressedSize - n);
+
+                if (inflated == 0 && (this.inflater.needsInput() || this.inflater.needsDictionary()))
+                {
+                    throw new EOFException("Truncated block at offset " + this.headerOffset);
+                }
+                n += inflated;
+            }
+        }
+        catch (DataFormatException exception)
+        {
+            throw new IOException("Corrupted block at offset " + this.headerOffset, exception);
+        }
+    }
+}
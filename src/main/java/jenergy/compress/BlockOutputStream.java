@@ -0,0 +1,318 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.compress;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses a file in independent blocks (see {@link BlockFormat}). The data is buffered until a block is full, and each block is compressed and
+ * written with a single write, so the compression runs on the thread that writes the stream, e.g., the output exporter, and a block is never
+ * partially written. A flush only writes the full blocks: the streams flushed after each batch of reports still get blocks of the configured size,
+ * and the last, partial block is only written when the stream is closed. So the data of the partial block is lost if the JVM is killed.
+ * 
+ * When a file is opened to append, the blocks already in the file are kept and the uncompressed offsets continue after them; an incomplete block
+ * at the end of the file, left by a crash, is removed.
+ * 
+ * Instances of this class are not thread-safe.
+ */
+public final class BlockOutputStream extends OutputStream
+{
+    /**
+     * The file's output.
+     */
+    private final FileOutputStream out;
+
+    /**
+     * The codec of the blocks.
+     */
+    private final Codec codec;
+
+    /**
+     * The uncompressed data of the current block.
+     */
+    private final byte[] block;
+
+    /**
+     * The checksum of the uncompressed data of the current block.
+     */
+    private final CRC32 crc = new CRC32();
+
+    /**
+     * The compressor of the {@link Codec#GZIP} blocks. It's <code>null</code> for the other codecs.
+     */
+    private final Deflater deflater;
+
+    /**
+     * The compressor of the {@link Codec#LZ} blocks. It's <code>null</code> for the other codecs.
+     */
+    private final Lz lz;
+
+    /**
+     * The compressed block, with its header and trailer. It grows when a {@link Codec#GZIP} block does not fit.
+     */
+    private byte[] compressed;
+
+    /**
+     * The number of bytes in the current block.
+     */
+    private int count;
+
+    /**
+     * The position of the current block in the uncompressed data of the file.
+     */
+    private long offset;
+
+    /**
+     * Opens a file to write compressed blocks.
+     * 
+     * @param file
+     *            The file.
+     * @param blockCodec
+     *            The codec of the blocks. Might not be {@link Codec#NONE}.
+     * @param level
+     *            The compression level, from 0 (fastest) to 9 (smallest).
+     * @param blockSize
+     *            The maximum size of the uncompressed data of a block.
+     * @param append
+     *            If <code>true</code>, the blocks are appended to the existing file; otherwise, the file is replaced.
+     * @throws IOException
+     *             If the file cannot be opened or the existing blocks cannot be read.
+     */
+    public BlockOutputStream(File file, Codec blockCodec, int level, int blockSize, boolean append) throws IOException
+    {
+        if (blockCodec == Codec.NONE)
+        {
+            throw new IllegalArgumentException("The blocks must be compressed!");
+        }
+
+        this.codec = blockCodec;
+        this.block = new byte[blockSize];
+
+        if (blockCodec == Codec.GZIP)
+        {
+            this.deflater = new Deflater(level, true);
+            this.lz = null;
+            this.compressed = new byte[BlockFormat.GZIP_HEADER_SIZE + blockSize + (blockSize >>> 3) + BlockFormat.GZIP_TRAILER_SIZE];
+        }
+        else
+        {
+            this.deflater = null;
+            this.lz = new Lz(level);
+            this.compressed = new byte[BlockFormat.LZ_HEADER_SIZE + Lz.maxCompressedLength(blockSize)];
+        }
+
+        long end = 0;
+
+        if (append && file.length() > 0)
+        {
+            final BlockInputStream existing = new BlockInputStream(file);
+
+            try
+            {
+                this.offset = existing.length();
+                end = existing.getValidLength();
+            }
+            finally
+            {
+                existing.close();
+            }
+        }
+
+        this.out = new FileOutputStream(file, append);
+
+        if (append && this.out.getChannel().size() > end)
+        {
+            this.out.getChannel().truncate(end);
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+        if (this.count == this.block.length)
+        {
+            this.writeBlock();
+        }
+        this.block[this.count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        int from = off;
+        int remaining = len;
+
+        while (remaining > 0)
+        {
+            if (this.count == this.block.length)
+            {
+                this.writeBlock();
+            }
+
+            final int n = Math.min(remaining, this.block.length - this.count);
+            System.arraycopy(b, from, this.block, this.count, n);
+            this.count += n;
+            from += n;
+            remaining -= n;
+        }
+    }
+
+    /**
+     * Compresses and writes the current block if it's full. A partial block stays buffered until more data fills it or the stream is closed.
+     * 
+     * @throws IOException
+     *             If the block cannot be written.
+     */
+    @Override
+    public void flush() throws IOException
+    {
+        if (this.count == this.block.length)
+        {
+            this.writeBlock();
+        }
+        this.out.flush();
+    }
+
+    /**
+     * Compresses and writes the current block, even if it's not full, and closes the file.
+     * 
+     * @throws IOException
+     *             If the block cannot be written or the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            this.writeBlock();
+        }
+        finally
+        {
+            if (this.deflater != null)
+            {
+                this.deflater.end();
+            }
+            this.out.close();
+        }
+    }
+
+    /**
+     * Returns the number of uncompressed bytes in the file, including the buffered ones.
+     * 
+     * @return The number of uncompressed bytes in the file.
+     */
+    public long getPosition()
+    {
+        return this.offset + this.count;
+    }
+
+    /**
+     * Compresses and writes the current block, if it's not empty.
+     * 
+     * @throws IOException
+     *             If the block cannot be written.
+     */
+    private void writeBlock() throws IOException
+    {
+        if (this.count == 0)
+        {
+            return;
+        }
+
+        this.crc.reset();
+        this.crc.update(this.block, 0, this.count);
+
+        final int length = this.codec == Codec.GZIP ? this.gzip() : this.lz();
+
+        this.out.write(this.compressed, 0, length);
+        this.offset += this.count;
+        this.count = 0;
+    }
+
+    /**
+     * Compresses the current block as a gzip member.
+     * 
+     * @return The size of the member.
+     */
+    private int gzip()
+    {
+        this.deflater.reset();
+        this.deflater.setInput(this.block, 0, this.count);
+        this.deflater.finish();
+
+        int end = BlockFormat.GZIP_HEADER_SIZE;
+
+        while (!this.deflater.finished())
+        {
+            if (end + BlockFormat.GZIP_TRAILER_SIZE >= this.compressed.length)
+            {
+                this.compressed = Arrays.copyOf(this.compressed, this.compressed.length << 1);
+            }
+            end += this.deflater.deflate(this.compressed, end, this.compressed.length - end - BlockFormat.GZIP_TRAILER_SIZE);
+        }
+
+        final byte[] header = this.compressed;
+        System.arraycopy(BlockFormat.GZIP_MAGIC, 0, header, 0, BlockFormat.MAGIC_SIZE);
+        BlockFormat.putInt(header, 4, 0);
+        header[8] = 0;
+        header[9] = BlockFormat.GZIP_OS;
+        header[10] = (byte) BlockFormat.GZIP_EXTRA_LENGTH;
+        header[11] = 0;
+        header[12] = BlockFormat.GZIP_SUBFIELD[0];
+        header[13] = BlockFormat.GZIP_SUBFIELD[1];
+        header[14] = (byte) BlockFormat.GZIP_SUBFIELD_LENGTH;
+        header[15] = 0;
+        BlockFormat.putLong(header, 16, this.offset);
+        BlockFormat.putInt(header, 24, end - BlockFormat.GZIP_HEADER_SIZE);
+        BlockFormat.putInt(header, 28, this.count);
+        BlockFormat.putInt(header, end, (int) this.crc.getValue());
+        BlockFormat.putInt(header, end + 4, this.count);
+        return end + BlockFormat.GZIP_TRAILER_SIZE;
+    }
+
+    /**
+     * Compresses the current block with the LZ codec or stores it if it does not compress.
+     * 
+     * @return The size of the block with its header.
+     */
+    private int lz()
+    {
+        int length = this.lz.compress(this.block, this.count, this.compressed, BlockFormat.LZ_HEADER_SIZE);
+
+        if (length >= this.count)
+        {
+            System.arraycopy(this.block, 0, this.compressed, BlockFormat.LZ_HEADER_SIZE, this.count);
+            length = this.count;
+        }
+
+        final byte[] header = this.compressed;
+        System.arraycopy(BlockFormat.LZ_MAGIC, 0, header, 0, BlockFormat.MAGIC_SIZE);
+        BlockFormat.putLong(header, 4, this.offset);
+        BlockFormat.putInt(header, 12, length);
+        BlockFormat.putInt(header, 16, this.count);
+        BlockFormat.putInt(header, 20, (int) this.crc.getValue());
+        return BlockFormat.LZ_HEADER_SIZE + length;
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.compress;
+
+/**
+ * The codecs of the compressed files written by the output sinks (see {@link BlockOutputStream}).
+ */
+public enum Codec
+{
+    /**
+     * The files are not compressed.
+     */
+    NONE(""),
+
+    /**
+     * Each block is a gzip member compressed by the JDK's deflater, so the files are still read by the gzip tools.
+     */
+    GZIP(".gz"),
+
+    /**
+     * Each block is compressed by a fast LZ77 codec without entropy coding (see {@link Lz}). It compresses less than {@link #GZIP} but several
+     * times faster than the default gzip level.
+     */
+    LZ(".lz");
+
+    /**
+     * The extension of the compressed files, including the dot.
+     */
+    private final String extension;
+
+    /**
+     * @param fileExtension
+     *            The extension of the compressed files, including the dot.
+     */
+    private Codec(String fileExtension)
+    {
+        this.extension = fileExtension;
+    }
+
+    /**
+     * Returns the extension of the compressed files.
+     * 
+     * @return The extension of the compressed files, including the dot. It's empty for {@link #NONE}.
+     */
+    public String getExtension()
+    {
+        return extension;
+    }
+
+    /**
+     * Returns the path of a file compressed by this codec: the given path with the codec's extension, unless it already has it.
+     * 
+     * @param path
+     *            The path of the file.
+     * @return The path of the compressed file.
+     */
+    public String fileName(String path)
+    {
+        return path.endsWith(this.extension) ? path : path + this.extension;
+    }
+
+    /**
+     * Returns the codec with the given name (<em>none</em>, <em>gzip</em> or <em>lz</em>), ignoring the case.
+     * 
+     * @param name
+     *            The name of the codec. It can be <code>null</code>.
+     * @return The codec with the given name or {@link #NONE} if the name is <code>null</code>, empty or unknown.
+     */
+    public static Codec of(String name)
+    {
+        if (name != null)
+        {
+            for (Codec codec : values())
+            {
+                if (codec.name().equalsIgnoreCase(name.trim()))
+                {
+                    return codec;
+                }
+            }
+        }
+        return NONE;
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.compress;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * The compression of the files written by the output sinks, defined by the system properties <em>jenergy.output.compression</em> (<em>none</em>,
+ * <em>gzip</em> or <em>lz</em>), <em>jenergy.output.compression.level</em> (from 0, the fastest, to 9, the smallest) and
+ * <em>jenergy.output.compression.block.size</em> (the maximum size in bytes of the uncompressed data of a block).
+ */
+public final class Compression
+{
+    /**
+     * The size of the buffer of the uncompressed files.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The codec of the files.
+     */
+    private final Codec codec;
+
+    /**
+     * The compression level.
+     */
+    private final int level;
+
+    /**
+     * The maximum size of the uncompressed data of a block.
+     */
+    private final int blockSize;
+
+    /**
+     * @param fileCodec
+     *            The codec of the files.
+     * @param compressionLevel
+     *            The compression level, from 0 (fastest) to 9 (smallest).
+     * @param maxBlockSize
+     *            The maximum size of the uncompressed data of a block.
+     */
+    public Compression(Codec fileCodec, int compressionLevel, int maxBlockSize)
+    {
+        this.codec = fileCodec;
+        this.level = Math.max(0, Math.min(9, compressionLevel));
+        this.blockSize = Math.max(1, maxBlockSize);
+    }
+
+    /**
+     * Returns the compression defined by the system properties.
+     * 
+     * @return The compression defined by the system properties.
+     */
+    public static Compression fromProperties()
+    {
+        return new Compression(Codec.of(System.getProperty("jenergy.output.compression")), Integer.parseInt(System.getProperty(
+                "jenergy.output.compression.level", "6").trim()), Integer.parseInt(System.getProperty("jenergy.output.compression.block.size",
+                "65536").trim()));
+    }
+
+    /**
+     * Returns the codec of the files.
+     * 
+     * @return The codec of the files.
+     */
+    public Codec getCodec()
+    {
+        return codec;
+    }
+
+    /**
+     * Returns the path of a file written with this compression: the given path with the extension of the codec.
+     * 
+     * @param path
+     *            The path of the file.
+     * @return The path of the file with the extension of the codec.
+     */
+    public String fileName(String path)
+    {
+        return this.codec.fileName(path);
+    }
+
+    /**
+     * Opens a file to be written with this compression. The caller must name the file with {@link #fileName(String)}.
+     * 
+     * @param path
+     *            The path of the file.
+     * @param append
+     *            If <code>true</code>, the data is appended to the existing file; otherwise, the file is replaced.
+     * @return The output of the file. The uncompressed files are buffered.
+     * @throws IOException
+     *             If the file cannot be opened.
+     */
+    public OutputStream open(String path, boolean append) throws IOException
+    {
+        if (this.codec == Codec.NONE)
+        {
+            return new BufferedOutputStream(new FileOutputStream(path, append), BUFFER_SIZE);
+        }
+        return new BlockOutputStream(new File(path), this.codec, this.level, this.blockSize, append);
+    }
+}
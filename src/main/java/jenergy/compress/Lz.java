@@ -0,0 +1,335 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.compress;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A fast LZ77 codec for the blocks of {@link BlockOutputStream}, in the spirit of LZ4: the block is a sequence of literal runs and back references
+ * found through a hash table of 4-byte sequences, without entropy coding. Each sequence is a token byte with the length of the literals in its
+ * high nibble and the length of the match minus 4 in its low nibble, the extra literal length (when the nibble is 15, as a run of bytes added until
+ * one is lower than 255), the literals, the offset of the match as 2 little-endian bytes and the extra match length. The last sequence has only
+ * literals.
+ * 
+ * Instances of this class reuse their hash table, so they are not thread-safe.
+ */
+final class Lz
+{
+    /**
+     * The minimum length of a match.
+     */
+    private static final int MIN_MATCH = 4;
+
+    /**
+     * The number of bytes at the end of a block that are always literals, so the match search can read 4 bytes without bound checks.
+     */
+    private static final int LAST_LITERALS = 5;
+
+    /**
+     * The minimum number of bytes after the start of a match and the end of the block.
+     */
+    private static final int MATCH_LIMIT = 12;
+
+    /**
+     * The maximum offset of a match.
+     */
+    private static final int MAX_OFFSET = 0xFFFF;
+
+    /**
+     * The number of bits of the hash of a sequence.
+     */
+    private static final int HASH_BITS = 14;
+
+    /**
+     * The value of a length nibble that is followed by extra length bytes.
+     */
+    private static final int RUN_MASK = 15;
+
+    /**
+     * The maximum value of a byte of unsigned 8 bits.
+     */
+    private static final int MAX_BYTE = 255;
+
+    /**
+     * The number of misses after which the search step grows by one, when the data does not compress.
+     */
+    private static final int SKIP_TRIGGER = 6;
+
+    /**
+     * The position of the last occurrence of each hash of 4 bytes in the current block, plus one.
+     */
+    private final int[] table = new int[1 << HASH_BITS];
+
+    /**
+     * The initial step of the match search. It's higher for lower compression levels, which skip more positions of data that does not compress.
+     */
+    private final int acceleration;
+
+    /**
+     * @param level
+     *            The compression level, from 0 (fastest) to 9 (smallest).
+     */
+    Lz(int level)
+    {
+        this.acceleration = Math.max(1, 10 - level);
+    }
+
+    /**
+     * Returns the maximum size of a compressed block.
+     * 
+     * @param length
+     *            The size of the uncompressed block.
+     * @return The maximum size of the compressed block.
+     */
+    static int maxCompressedLength(int length)
+    {
+        return length + length / MAX_BYTE + 16;
+    }
+
+    /**
+     * Compresses a block.
+     * 
+     * @param src
+     *            The uncompressed block.
+     * @param length
+     *            The size of the uncompressed block.
+     * @param dst
+     *            The buffer of the compressed block. It must have at least {@link #maxCompressedLength(int)} bytes after the offset.
+     * @param offset
+     *            The position of the compressed block in the buffer.
+     * @return The size of the compressed block.
+     */
+    int compress(byte[] src, int length, byte[] dst, int offset)
+    {
+        Arrays.fill(this.table, 0);
+
+        final int matchLimit = length - MATCH_LIMIT;
+        final int limit = length - LAST_LITERALS;
+        int anchor = 0;
+        int i = 0;
+        int out = offset;
+
+        while (i < matchLimit)
+        {
+            final int sequence = readInt(src, i);
+            final int hash = (sequence * -1640531535) >>> (Integer.SIZE - HASH_BITS);
+            final int ref = this.table[hash] - 1;
+            this.table[hash] = i + 1;
+
+            if (ref < 0 || i - ref > MAX_OFFSET || readInt(src, ref) != sequence)
+            {
+                i += this.acceleration + ((i - anchor) >>> SKIP_TRIGGER);
+                continue;
+            }
+
+            int match = MIN_MATCH;
+
+            while (i + match < limit && src[ref + match] == src[i + match])
+            {
+                match++;
+            }
+
+            out = writeSequence(src, anchor, i - anchor, dst, out, i - ref, match);
+            i += match;
+            anchor = i;
+        }
+
+        return writeSequence(src, anchor, length - anchor, dst, out, 0, 0) - offset;
+    }
+
+    /**
+     * Decompresses a block.
+     * 
+     * @param src
+     *            The compressed block.
+     * @param offset
+     *            The position of the compressed block in the source buffer.
+     * @param length
+     *            The size of the compressed block.
+     * @param dst
+     *            The buffer of the uncompressed block.
+     * @param size
+     *            The size of the uncompressed block.
+     * @throws IOException
+     *             If the block is corrupted.
+     */
+    static void decompress(byte[] src, int offset, int length, byte[] dst, int size) throws IOException
+    {
+        final int end = offset + length;
+        int in = offset;
+        int out = 0;
+
+        while (in < end)
+        {
+            final int token = src[in++] & MAX_BYTE;
+            int literals = token >>> 4;
+
+            if (literals == RUN_MASK)
+            {
+                int b;
+                do
+                {
+                    if (in >= end)
+                    {
+                        throw new IOException("Truncated literal length");
+                    }
+                    b = src[in++] & MAX_BYTE;
+                    literals += b;
+                }
+                while (b == MAX_BYTE);
+            }
+
+            if (in + literals > end || out + literals > size)
+            {
+                throw new IOException("Literals out of bounds");
+            }
+            System.arraycopy(src, in, dst, out, literals);
+            in += literals;
+            out += literals;
+
+            if (in >= end)
+            {
+                break;
+            }
+
+            if (in + 2 > end)
+            {
+                throw new IOException("Truncated match offset");
+            }
+
+            final int distance = (src[in] & MAX_BYTE) | (src[in + 1] & MAX_BYTE) << 8;
+            int match = (token & RUN_MASK) + MIN_MATCH;
+            in += 2;
+
+            if ((token & RUN_MASK) == RUN_MASK)
+            {
+                int b;
+                do
+                {
+                    if (in >= end)
+                    {
+                        throw new IOException("Truncated match length");
+                    }
+                    b = src[in++] & MAX_BYTE;
+                    match += b;
+                }
+                while (b == MAX_BYTE);
+            }
+
+            if (distance == 0 || distance > out || out + match > size)
+            {
+                throw new IOException("Match out of bounds");
+            }
+
+            // the copy is byte by byte because the match can overlap the bytes that it produces
+            for (int ref = out - distance, stop = out + match; out < stop; out++, ref++)
+            {
+                dst[out] = dst[ref];
+            }
+        }
+
+        if (out != size)
+        {
+            throw new IOException("Block size mismatch: " + out + " instead of " + size);
+        }
+    }
+
+    /**
+     * Writes a sequence of literals followed by a match.
+     * 
+     * @param src
+     *            The uncompressed block.
+     * @param start
+     *            The position of the literals.
+     * @param literals
+     *            The number of literals.
+     * @param dst
+     *            The buffer of the compressed block.
+     * @param position
+     *            The position of the sequence in the compressed block.
+     * @param distance
+     *            The offset of the match or zero for the last sequence, which has only literals.
+     * @param match
+     *            The length of the match.
+     * @return The position after the sequence in the compressed block.
+     */
+    private static int writeSequence(byte[] src, int start, int literals, byte[] dst, int position, int distance, int match)
+    {
+        int out = position;
+        final int token = out++;
+        final int matchLength = match - MIN_MATCH;
+
+        dst[token] = (byte) (Math.min(literals, RUN_MASK) << 4 | (distance > 0 ? Math.min(matchLength, RUN_MASK) : 0));
+        out = writeLength(dst, out, literals);
+        System.arraycopy(src, start, dst, out, literals);
+        out += literals;
+
+        if (distance > 0)
+        {
+            dst[out++] = (byte) distance;
+            dst[out++] = (byte) (distance >>> 8);
+            out = writeLength(dst, out, matchLength);
+        }
+        return out;
+    }
+
+    /**
+     * Writes the extra bytes of a length whose nibble is 15.
+     * 
+     * @param dst
+     *            The buffer of the compressed block.
+     * @param position
+     *            The position of the extra bytes.
+     * @param length
+     *            The length.
+     * @return The position after the extra bytes.
+     */
+    private static int writeLength(byte[] dst, int position, int length)
+    {
+        int out = position;
+
+        if (length >= RUN_MASK)
+        {
+            int rest = length - RUN_MASK;
+
+            for (; rest >= MAX_BYTE; rest -= MAX_BYTE)
+            {
+                dst[out++] = (byte) MAX_BYTE;
+            }
+            dst[out++] = (byte) rest;
+        }
+        return out;
+    }
+
+    /**
+     * Reads 4 bytes in little-endian order.
+     * 
+     * @param buffer
+     *            The buffer.
+     * @param position
+     *            The position of the first byte.
+     * @return The 4 bytes as an integer.
+     */
+    private static int readInt(byte[] buffer, int position)
+    {
+        return (buffer[position] & MAX_BYTE) | (buffer[position + 1] & MAX_BYTE) << 8 | (buffer[position + 2] & MAX_BYTE) << 16
+                | (buffer[position + 3] & MAX_BYTE) << 24;
+    }
+}
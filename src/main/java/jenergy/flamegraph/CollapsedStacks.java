@@ -0,0 +1,265 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.flamegraph;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import jenergy.profile.data.CallingContext;
+import jenergy.profile.energy.EnergyAccount;
+
+/**
+ * Writes calling context trees as collapsed stacks: one <em>frame;frame;frame value</em> line per calling context with a positive value, the root
+ * frame first. This is the input of {@link FlameGraph} and of most flame graph tools.
+ * 
+ * The tree is walked iteratively and each line is written as soon as its node is visited, reusing the same buffers, so a tree with millions of
+ * nodes is written without recursion and without building its text in memory.
+ */
+public final class CollapsedStacks
+{
+    /**
+     * The number of nanojoules in a joule.
+     */
+    private static final double NANOJOULES_PER_JOULE = 1E9;
+
+    /**
+     * The output of the lines.
+     */
+    private final Writer out;
+
+    /**
+     * The value written for each calling context.
+     */
+    private final Weight weight;
+
+    /**
+     * The path of the current node. It's reused by all lines.
+     */
+    private final StringBuilder path = new StringBuilder(256);
+
+    /**
+     * The characters of the current line. It's reused by all lines.
+     */
+    private char[] line = new char[256];
+
+    /**
+     * @param output
+     *            The output of the lines. Might not be <code>null</code>.
+     * @param value
+     *            The value written for each calling context. Might not be <code>null</code>.
+     */
+    public CollapsedStacks(Writer output, Weight value)
+    {
+        this.out = output;
+        this.weight = value;
+    }
+
+    /**
+     * Returns <code>true</code> if the calling context trees are recorded to be written as collapsed stacks (system property
+     * <em>jenergy.flamegraph.file</em>).
+     * 
+     * @return <code>true</code> if the calling context trees are recorded.
+     */
+    public static boolean isEnabled()
+    {
+        final String file = System.getProperty("jenergy.flamegraph.file");
+        return file != null && !file.trim().isEmpty();
+    }
+
+    /**
+     * Writes the calling contexts of the given tree.
+     * 
+     * @param rootFrame
+     *            The name of the frame of the root, e.g., the thread.
+     * @param root
+     *            The root of the tree. Might not be <code>null</code>.
+     * @param energy
+     *            The energy of the methods of the tree by method name. It's only used by the {@link Weight#ENERGY} weight.
+     * @return The number of lines written.
+     * @throws IOException
+     *             If the lines cannot be written.
+     */
+    public long write(String rootFrame, CallingContext root, Map<String, EnergyAccount> energy) throws IOException
+    {
+        final Map<String, double[]> joulesPerCpuTime = this.weight == Weight.ENERGY ? joulesPerCpuTime(root, energy) : null;
+        final Deque<Iterator<CallingContext>> iterators = new ArrayDeque<Iterator<CallingContext>>();
+        final Deque<Integer> lengths = new ArrayDeque<Integer>();
+        long lines = 0;
+
+        this.path.setLength(0);
+        appendFrame(this.path, rootFrame);
+        iterators.push(root.getChildren().iterator());
+        lengths.push(this.path.length());
+
+        while (!iterators.isEmpty())
+        {
+            final Iterator<CallingContext> children = iterators.peek();
+
+            if (!children.hasNext())
+            {
+                iterators.pop();
+                lengths.pop();
+                continue;
+            }
+
+            final CallingContext node = children.next();
+            this.path.setLength(lengths.peek());
+            this.path.append(';');
+            appendFrame(this.path, node.getMethodName());
+
+            final long value = this.valueOf(node, joulesPerCpuTime);
+
+            if (value > 0)
+            {
+                this.writeLine(value);
+                lines++;
+            }
+
+            if (!node.getChildren().isEmpty())
+            {
+                iterators.push(node.getChildren().iterator());
+                lengths.push(this.path.length());
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Returns the value of the given calling context without its callees.
+     * 
+     * @param node
+     *            The calling context.
+     * @param joulesPerCpuTime
+     *            The energy per nanosecond of CPU time of each method, for the {@link Weight#ENERGY} weight.
+     * @return The value of the given calling context.
+     */
+    private long valueOf(CallingContext node, Map<String, double[]> joulesPerCpuTime)
+    {
+        switch (this.weight)
+        {
+        case CPU:
+            return node.getSelfCpuTime();
+        case TIME:
+            return node.getTime();
+        case ALLOCATION:
+            return node.getAllocatedBytes();
+        default:
+            final double[] rate = joulesPerCpuTime.get(node.getMethodName());
+            return rate == null ? 0 : Math.round((rate[0] * node.getSelfCpuTime() + rate[1] * node.getTime()) * NANOJOULES_PER_JOULE);
+        }
+    }
+
+    /**
+     * Computes how the energy of each method is apportioned to its calling contexts: by their CPU time or, for the methods without CPU time, by
+     * their execution time.
+     * 
+     * @param root
+     *            The root of the tree.
+     * @param energy
+     *            The energy of the methods by method name.
+     * @return The energy per nanosecond of CPU time and the energy per nanosecond of execution time of each method. One of them is zero.
+     */
+    private static Map<String, double[]> joulesPerCpuTime(CallingContext root, Map<String, EnergyAccount> energy)
+    {
+        // the CPU time and the execution time of all contexts of each method
+        final Map<String, long[]> totals = new HashMap<String, long[]>();
+        final Deque<CallingContext> pending = new ArrayDeque<CallingContext>(root.getChildren());
+
+        while (!pending.isEmpty())
+        {
+            final CallingContext node = pending.pop();
+            long[] total = totals.get(node.getMethodName());
+
+            if (total == null)
+            {
+                total = new long[2];
+                totals.put(node.getMethodName(), total);
+            }
+            total[0] += node.getSelfCpuTime();
+            total[1] += node.getTime();
+
+            for (CallingContext child : node.getChildren())
+            {
+                pending.push(child);
+            }
+        }
+
+        final Map<String, double[]> rates = new HashMap<String, double[]>();
+
+        for (Map.Entry<String, long[]> entry : totals.entrySet())
+        {
+            final EnergyAccount account = energy != null ? energy.get(entry.getKey()) : null;
+            final long[] total = entry.getValue();
+
+            if (account != null)
+            {
+                rates.put(entry.getKey(), total[0] > 0 ? new double[] {account.total() / total[0], 0 } : new double[] {0,
+                        total[1] > 0 ? account.total() / total[1] : 0 });
+            }
+        }
+        return rates;
+    }
+
+    /**
+     * Writes the current path followed by the given value. The path is restored after the line has been written.
+     * 
+     * @param value
+     *            The value of the line.
+     * @throws IOException
+     *             If the line cannot be written.
+     */
+    private void writeLine(long value) throws IOException
+    {
+        final int length = this.path.length();
+        this.path.append(' ').append(value).append('\n');
+
+        if (this.line.length < this.path.length())
+        {
+            this.line = new char[Math.max(this.path.length(), this.line.length * 2)];
+        }
+        this.path.getChars(0, this.path.length(), this.line, 0);
+        this.out.write(this.line, 0, this.path.length());
+        this.path.setLength(length);
+    }
+
+    /**
+     * Appends the frame of the given method: its name without the thread id suffix, with the separators of the format replaced.
+     * 
+     * @param sb
+     *            The path.
+     * @param methodName
+     *            The name of the method, as given by {@link jenergy.profile.data.MethodInfo#getMethodName()}.
+     */
+    static void appendFrame(StringBuilder sb, String methodName)
+    {
+        final int suffix = methodName.lastIndexOf('#');
+        final int end = suffix > 0 ? suffix : methodName.length();
+
+        for (int i = 0; i < end; i++)
+        {
+            final char c = methodName.charAt(i);
+            sb.append(c == ';' || Character.isWhitespace(c) ? '_' : c);
+        }
+    }
+}
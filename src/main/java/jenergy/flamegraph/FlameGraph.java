@@ -0,0 +1,512 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.flamegraph;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import jenergy.compress.BlockInputStream;
+
+/**
+ * Renders collapsed stacks (see {@link CollapsedStacks}) as a self-contained SVG flame graph: each frame is a box whose width is proportional to its
+ * value and its callees, the callers below the callees. The SVG opens in any browser, shows the value of a frame when the mouse is over it and
+ * zooms into a frame when it's clicked, with an embedded script and no external resources.
+ * 
+ * The stacks are merged into a tree whose frames keep only their name and total value. The SVG is written frame by frame, without recursion, and
+ * the frames narrower than {@link #MIN_WIDTH} pixels are not drawn, so large profiles produce a readable file.
+ */
+public final class FlameGraph
+{
+    /**
+     * The width of the image in pixels.
+     */
+    private static final int WIDTH = 1200;
+
+    /**
+     * The horizontal margin in pixels.
+     */
+    private static final int PAD = 10;
+
+    /**
+     * The height of a frame in pixels.
+     */
+    private static final int FRAME_HEIGHT = 16;
+
+    /**
+     * The height of the title area in pixels.
+     */
+    private static final int TOP = 40;
+
+    /**
+     * The estimated width of a character of the frames' font in pixels.
+     */
+    private static final double CHAR_WIDTH = 7;
+
+    /**
+     * The minimum width in pixels of a drawn frame.
+     */
+    private static final double MIN_WIDTH = 0.1;
+
+    /**
+     * The script that zooms into the clicked frame.
+     */
+    private static final String SCRIPT = "var svg = document.documentElement, W = " + WIDTH + ", P = " + PAD + ", C = " + CHAR_WIDTH + ";\n"
+            + "function fit(g, w) {\n"
+            + "  var t = g.getElementsByTagName('text')[0], n = g.getAttribute('data-n'), c = Math.floor((w - 6) / C);\n"
+            + "  t.textContent = c < 3 ? '' : n.length <= c ? n : n.substring(0, c - 2) + '..';\n"
+            + "}\n"
+            + "function zoom(target) {\n"
+            + "  var frames = svg.getElementsByTagName('g'), r0 = target ? target.getElementsByTagName('rect')[0] : null;\n"
+            + "  var x0 = r0 ? r0.ox : P, w0 = r0 ? r0.ow : W - 2 * P, y0 = r0 ? +r0.getAttribute('y') : Infinity, k = (W - 2 * P) / w0;\n"
+            + "  for (var i = 0; i < frames.length; i++) {\n"
+            + "    var g = frames[i], r = g.getElementsByTagName('rect')[0], y = +r.getAttribute('y'), x, w;\n"
+            + "    if (r.ox === undefined) { r.ox = +r.getAttribute('x'); r.ow = +r.getAttribute('width'); }\n"
+            + "    if (r.ox >= x0 - 0.01 && r.ox + r.ow <= x0 + w0 + 0.01 && y <= y0) {\n"
+            + "      x = P + (r.ox - x0) * k; w = r.ow * k; g.style.opacity = '';\n"
+            + "    }\n"
+            + "    else if (y > y0 && r.ox <= x0 + 0.01 && r.ox + r.ow >= x0 + w0 - 0.01) { x = P; w = W - 2 * P; g.style.opacity = '0.5'; }\n"
+            + "    else { g.style.display = 'none'; continue; }\n"
+            + "    g.style.display = ''; r.setAttribute('x', x); r.setAttribute('width', w);\n"
+            + "    g.getElementsByTagName('text')[0].setAttribute('x', x + 3); fit(g, w);\n"
+            + "  }\n"
+            + "  document.getElementById('reset').style.display = target ? '' : 'none';\n"
+            + "}\n"
+            + "svg.addEventListener('click', function (e) {\n"
+            + "  var g = e.target.parentNode;\n"
+            + "  if (e.target.id === 'reset') { zoom(null); } else if (g && g.getAttribute && g.getAttribute('class') === 'f') { zoom(g); }\n"
+            + "});\n";
+
+    /**
+     * A frame of the merged stacks.
+     */
+    private static final class Frame
+    {
+        /**
+         * The name of the frame.
+         */
+        private final String name;
+
+        /**
+         * The value of the frame and its callees.
+         */
+        private long total;
+
+        /**
+         * The callees by name, sorted by name. It's created by the first callee.
+         */
+        private Map<String, Frame> children;
+
+        /**
+         * @param frameName
+         *            The name of the frame.
+         */
+        Frame(String frameName)
+        {
+            this.name = frameName;
+        }
+
+        /**
+         * @return the callees sorted by name
+         */
+        Collection<Frame> children()
+        {
+            return this.children != null ? this.children.values() : Collections.<Frame> emptyList();
+        }
+    }
+
+    /**
+     * A frame to be drawn.
+     */
+    private static final class Box
+    {
+        /**
+         * The frame.
+         */
+        private final Frame frame;
+
+        /**
+         * The left of the box in pixels.
+         */
+        private final double x;
+
+        /**
+         * The depth of the frame, zero for the root.
+         */
+        private final int depth;
+
+        /**
+         * @param boxFrame
+         *            The frame.
+         * @param left
+         *            The left of the box in pixels.
+         * @param frameDepth
+         *            The depth of the frame.
+         */
+        Box(Frame boxFrame, double left, int frameDepth)
+        {
+            this.frame = boxFrame;
+            this.x = left;
+            this.depth = frameDepth;
+        }
+    }
+
+    /**
+     * The root of the merged stacks.
+     */
+    private final Frame root = new Frame("all");
+
+    /**
+     * The canonical instance of each frame name, so the frames with the same name share it.
+     */
+    private final Map<String, String> names = new HashMap<String, String>();
+
+    /**
+     * The depth of the deepest frame.
+     */
+    private int maxDepth;
+
+    /**
+     * Merges a line of collapsed stacks: <em>frame;frame;frame value</em>. The lines without a value are ignored.
+     * 
+     * @param line
+     *            The line to be merged.
+     */
+    public void add(String line)
+    {
+        final int space = line.lastIndexOf(' ');
+
+        if (space <= 0)
+        {
+            return;
+        }
+
+        final long value;
+
+        try
+        {
+            value = Math.round(Double.parseDouble(line.substring(space + 1).trim()));
+        }
+        catch (NumberFormatException exception)
+        {
+            return;
+        }
+
+        Frame frame = this.root;
+        frame.total += value;
+        int depth = 0;
+        int start = 0;
+
+        while (start < space)
+        {
+            int end = line.indexOf(';', start);
+
+            if (end < 0 || end > space)
+            {
+                end = space;
+            }
+
+            if (end > start)
+            {
+                frame = this.child(frame, line.substring(start, end));
+                frame.total += value;
+                depth++;
+            }
+            start = end + 1;
+        }
+        this.maxDepth = Math.max(this.maxDepth, depth);
+    }
+
+    /**
+     * Returns the callee of the given frame with the given name, creating it if needed.
+     * 
+     * @param parent
+     *            The caller.
+     * @param name
+     *            The name of the callee.
+     * @return The callee of the given frame with the given name.
+     */
+    private Frame child(Frame parent, String name)
+    {
+        if (parent.children == null)
+        {
+            parent.children = new TreeMap<String, Frame>();
+        }
+
+        Frame child = parent.children.get(name);
+
+        if (child == null)
+        {
+            String canonical = this.names.get(name);
+
+            if (canonical == null)
+            {
+                canonical = name;
+                this.names.put(name, name);
+            }
+            child = new Frame(canonical);
+            parent.children.put(canonical, child);
+        }
+        return child;
+    }
+
+    /**
+     * Reads and merges collapsed stacks.
+     * 
+     * @param in
+     *            The collapsed stacks, one per line.
+     * @return The merged stacks.
+     * @throws IOException
+     *             If the stacks cannot be read.
+     */
+    public static FlameGraph read(Reader in) throws IOException
+    {
+        final FlameGraph graph = new FlameGraph();
+        final BufferedReader reader = new BufferedReader(in);
+        String line;
+
+        while ((line = reader.readLine()) != null)
+        {
+            graph.add(line);
+        }
+        return graph;
+    }
+
+    /**
+     * Writes the flame graph of the merged stacks as SVG.
+     * 
+     * @param out
+     *            The output of the SVG.
+     * @param title
+     *            The title of the flame graph.
+     * @param weight
+     *            The weight of the values, used to format them.
+     * @throws IOException
+     *             If the SVG cannot be written.
+     */
+    public void writeSvg(Writer out, String title, Weight weight) throws IOException
+    {
+        final int height = TOP + (this.maxDepth + 1) * FRAME_HEIGHT + PAD;
+        final double scale = this.root.total > 0 ? (double) (WIDTH - 2 * PAD) / this.root.total : 0;
+        final StringBuilder sb = new StringBuilder(512);
+
+        sb.append("<?xml version=\"1.0\" standalone=\"no\"?>\n");
+        sb.append("<svg version=\"1.1\" width=\"").append(WIDTH).append("\" height=\"").append(height).append("\" viewBox=\"0 0 ").append(WIDTH)
+                .append(' ').append(height).append("\" xmlns=\"http://www.w3.org/2000/svg\" font-family=\"Verdana, sans-serif\" font-size=\"12\">\n");
+        sb.append("<style>.f:hover rect { stroke: black; stroke-width: 0.5; cursor: pointer } text { pointer-events: none }</style>\n");
+        sb.append("<rect width=\"100%\" height=\"100%\" fill=\"#f8f8f8\"/>\n");
+        sb.append("<text x=\"").append(WIDTH / 2).append("\" y=\"24\" text-anchor=\"middle\" font-size=\"17\">");
+        escape(sb, title);
+        sb.append("</text>\n");
+        sb.append("<text id=\"reset\" x=\"").append(PAD).append("\" y=\"24\" style=\"display: none; cursor: pointer; pointer-events: auto\">")
+                .append("Reset zoom</text>\n");
+        out.write(sb.toString());
+
+        final Deque<Box> pending = new ArrayDeque<Box>();
+        pending.push(new Box(this.root, PAD, 0));
+
+        while (!pending.isEmpty())
+        {
+            final Box box = pending.pop();
+            final double width = box.frame.total * scale;
+            final double y = height - PAD - (box.depth + 1) * FRAME_HEIGHT;
+
+            sb.setLength(0);
+            sb.append("<g class=\"f\" data-n=\"");
+            escape(sb, box.frame.name);
+            sb.append("\"><title>");
+            escape(sb, box.frame.name);
+            sb.append(" (").append(weight.format(box.frame.total)).append(", ")
+                    .append(String.format(Locale.ENGLISH, "%.2f", this.root.total > 0 ? 100D * box.frame.total / this.root.total : 0))
+                    .append("%)</title><rect x=\"").append(format(box.x)).append("\" y=\"").append(format(y)).append("\" width=\"")
+                    .append(format(width)).append("\" height=\"").append(FRAME_HEIGHT - 1).append("\" fill=\"").append(color(box))
+                    .append("\"/><text x=\"").append(format(box.x + 3)).append("\" y=\"").append(format(y + FRAME_HEIGHT - 4)).append("\">");
+            escape(sb, label(box.frame.name, width));
+            sb.append("</text></g>\n");
+            out.write(sb.toString());
+
+            double x = box.x;
+
+            for (Frame child : box.frame.children())
+            {
+                final double childWidth = child.total * scale;
+
+                if (childWidth >= MIN_WIDTH)
+                {
+                    pending.push(new Box(child, x, box.depth + 1));
+                }
+                x += childWidth;
+            }
+        }
+
+        out.write("<script type=\"text/ecmascript\"><![CDATA[\n");
+        out.write(SCRIPT);
+        out.write("]]></script>\n</svg>\n");
+        out.flush();
+    }
+
+    /**
+     * Returns the text of a frame: its name truncated to the width of its box.
+     * 
+     * @param name
+     *            The name of the frame.
+     * @param width
+     *            The width of the box in pixels.
+     * @return The text of the frame. It's empty if the box is too narrow.
+     */
+    private static String label(String name, double width)
+    {
+        final int chars = (int) Math.floor((width - 6) / CHAR_WIDTH);
+
+        if (chars < 3)
+        {
+            return "";
+        }
+        return name.length() <= chars ? name : name.substring(0, chars - 2) + "..";
+    }
+
+    /**
+     * Returns the color of a frame: a warm color derived from its name, so a method has the same color in all graphs.
+     * 
+     * @param box
+     *            The frame to be drawn.
+     * @return The color of the frame in the <em>rgb(r,g,b)</em> format.
+     */
+    private static String color(Box box)
+    {
+        if (box.depth == 0)
+        {
+            return "rgb(200,200,200)";
+        }
+
+        final int hash = box.frame.name.hashCode();
+        final int red = 205 + (hash >>> 16 & 0xFF) * 50 / 255;
+        final int green = (hash & 0xFF) * 230 / 255;
+        final int blue = (hash >>> 8 & 0xFF) * 55 / 255;
+        return "rgb(" + red + "," + green + "," + blue + ")";
+    }
+
+    /**
+     * Formats a coordinate with two decimals.
+     * 
+     * @param value
+     *            The coordinate.
+     * @return The formatted coordinate.
+     */
+    private static String format(double value)
+    {
+        return String.format(Locale.ENGLISH, "%.2f", value);
+    }
+
+    /**
+     * Appends a text escaping the XML special characters.
+     * 
+     * @param sb
+     *            The buffer.
+     * @param text
+     *            The text to be appended.
+     */
+    private static void escape(StringBuilder sb, String text)
+    {
+        for (int i = 0; i < text.length(); i++)
+        {
+            final char c = text.charAt(i);
+
+            switch (c)
+            {
+            case '&':
+                sb.append("&amp;");
+                break;
+            case '<':
+                sb.append("&lt;");
+                break;
+            case '>':
+                sb.append("&gt;");
+                break;
+            case '"':
+                sb.append("&quot;");
+                break;
+            default:
+                sb.append(c);
+            }
+        }
+    }
+
+    /**
+     * Renders a file of collapsed stacks as SVG.
+     * 
+     * @param args
+     *            The file of collapsed stacks, possibly compressed, optionally followed by the SVG file (default: the stacks file with the
+     *            <em>.svg</em> extension), the weight of the values (energy, cpu, time or allocation; default: energy) and the title.
+     * @throws IOException
+     *             If the stacks cannot be read or the SVG cannot be written.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length == 0)
+        {
+            System.out.println("Usage: flamegraph <collapsed stacks> [svg file] [energy|cpu|time|allocation] [title]");
+            return;
+        }
+
+        final Charset utf8 = Charset.forName("UTF-8");
+        final String svg = args.length > 1 ? args[1] : args[0].replaceFirst("\\.(gz|lz)$", "").replaceFirst("\\.[^./\\\\]*$", "") + ".svg";
+        final Weight weight = Weight.of(args.length > 2 ? args[2] : null);
+        final String title = args.length > 3 ? args[3] : weight.name().charAt(0) + weight.name().substring(1).toLowerCase(Locale.ENGLISH)
+                + " flame graph";
+
+        final FlameGraph graph;
+        final Reader in = new InputStreamReader(BlockInputStream.open(args[0]), utf8);
+
+        try
+        {
+            graph = read(in);
+        }
+        finally
+        {
+            in.close();
+        }
+
+        final Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(svg), utf8));
+
+        try
+        {
+            graph.writeSvg(out, title, weight);
+        }
+        finally
+        {
+            out.close();
+        }
+        System.out.printf("%s: %d methods, %s%n", svg, graph.names.size(), weight.format(graph.root.total));
+    }
+}
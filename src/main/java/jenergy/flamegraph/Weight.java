@@ -0,0 +1,96 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.flamegraph;
+
+import java.util.Locale;
+
+/**
+ * The value that weights the frames of the collapsed stacks and of the flame graphs. The values are written as integers: nanojoules, nanoseconds or
+ * bytes.
+ */
+public enum Weight
+{
+    /**
+     * The energy of the methods, in nanojoules. The energy of a method is apportioned to its calling contexts by their CPU time.
+     */
+    ENERGY("J", 1E-9),
+
+    /**
+     * The CPU time of the methods without their callees, in nanoseconds.
+     */
+    CPU("ms", 1E-6),
+
+    /**
+     * The execution time of the methods without their callees, in nanoseconds.
+     */
+    TIME("ms", 1E-6),
+
+    /**
+     * The bytes allocated by the methods without their callees.
+     */
+    ALLOCATION("MB", 1D / (1024 * 1024));
+
+    /**
+     * The unit of the formatted values.
+     */
+    private final String unit;
+
+    /**
+     * The factor that converts the values to the unit.
+     */
+    private final double scale;
+
+    /**
+     * @param valueUnit
+     *            The unit of the formatted values.
+     * @param factor
+     *            The factor that converts the values to the unit.
+     */
+    private Weight(String valueUnit, double factor)
+    {
+        this.unit = valueUnit;
+        this.scale = factor;
+    }
+
+    /**
+     * Formats a value of this weight in its unit, e.g., <em>1.25 J</em>.
+     * 
+     * @param value
+     *            The value in nanojoules, nanoseconds or bytes.
+     * @return The formatted value.
+     */
+    public String format(long value)
+    {
+        return String.format(Locale.ENGLISH, "%.6g %s", value * this.scale, this.unit);
+    }
+
+    /**
+     * Returns the weight with the given name, ignoring its case.
+     * 
+     * @param name
+     *            The name of the weight. It can be <code>null</code>.
+     * @return The weight with the given name or {@link #ENERGY} if the name is <code>null</code> or empty.
+     * @throws IllegalArgumentException
+     *             If there is no weight with the given name.
+     */
+    public static Weight of(String name)
+    {
+        return name == null || name.trim().isEmpty() ? ENERGY : valueOf(name.trim().toUpperCase(Locale.ENGLISH));
+    }
+}
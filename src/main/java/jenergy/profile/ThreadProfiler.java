@@ -18,10 +18,12 @@
  */
 package jenergy.profile;
 
+import java.io.IOException;
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadMXBean;
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -29,12 +31,22 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 
+import jenergy.agent.common.Cpu;
+import jenergy.agent.common.util.OutputExporter;
+import jenergy.agent.common.util.ThreadReport;
 import jenergy.agent.common.util.Threads;
 import jenergy.agent.common.util.time.Timer;
+import jenergy.flamegraph.CollapsedStacks;
+import jenergy.profile.data.CallingContext;
+import jenergy.profile.data.IOHistograms;
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.MemoryInfo;
 import jenergy.profile.data.MethodInfo;
 import jenergy.profile.data.MethodStatistics;
 import jenergy.profile.data.Period;
 import jenergy.profile.data.ThreadInfo;
+import jenergy.profile.energy.EnergyAccount;
+import jenergy.trace.EventLog;
 
 public class ThreadProfiler implements Profiler
 {
@@ -44,6 +56,50 @@ public class ThreadProfiler implements Profiler
      */
     private final Map<String, List<MethodInfo>> threadMethods = new ConcurrentHashMap<String, List<MethodInfo>>();
     
+    /**
+     * The running statistics of the methods executed in this thread. They are updated when a method finishes, so they can be read at any time
+     * without scanning {@link #threadMethods}. The key is the method's name.
+     */
+    private final Map<String, MethodStatistics> methodTotals = new ConcurrentHashMap<String, MethodStatistics>();
+
+    /**
+     * The energy consumed by the methods executed in this thread. The key is the method's name.
+     */
+    private final Map<String, EnergyAccount> methodEnergy = new ConcurrentHashMap<String, EnergyAccount>();
+
+    /**
+     * The energy consumed by this thread outside of the monitored methods, e.g., before its first monitored method.
+     */
+    private final EnergyAccount unattributedEnergy = new EnergyAccount();
+
+    /**
+     * The memory allocated by the methods executed in this thread. The key is the method's name.
+     */
+    private final Map<String, MemoryInfo> methodMemory = new ConcurrentHashMap<String, MemoryInfo>();
+
+    /**
+     * The latency and size histograms of the I/O done by this thread. The key is given by {@link IOHistograms#keyOf(String, String,
+     * IOInfo.IOActivityType)}.
+     */
+    private final Map<String, IOHistograms> ioHistograms = new ConcurrentHashMap<String, IOHistograms>();
+
+    /**
+     * The on-disk log of the invocations of this thread when they are traced (system property <em>jenergy.events.dir</em>). In this case, the
+     * finished invocations are not kept in {@link #threadMethods}. It's created by the first invocation that finishes.
+     */
+    private EventLog eventLog;
+
+    /**
+     * Whether the invocations are traced to an {@link EventLog} instead of being kept in the heap.
+     */
+    private final boolean tracing = EventLog.isEnabled();
+
+    /**
+     * The root of the calling context tree of this thread, when the collapsed stacks are written (system property <em>jenergy.flamegraph.file</em>).
+     * It's <code>null</code> otherwise.
+     */
+    private final CallingContext callingContexts = CollapsedStacks.isEnabled() ? new CallingContext() : null;
+
     /**
      * The stack trace of this thread.
      */
@@ -167,10 +223,30 @@ public class ThreadProfiler implements Profiler
      */
     public void onThreadStop(long cpuTime) 
     {
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        // the models are evaluated by the exporter's thread, when this thread may have died, so its last CPU time is kept
+        if (bean != null && Thread.currentThread().getId() == this.threadInfo.getId())
+        {
+            this.threadInfo.setFinalCpuTime(bean.getCurrentThreadCpuTime());
+        }
+
         this.getThreadInfo().setPower(BigDecimal.valueOf(this.computeThreadPowerConsumption(cpuTime)));
         Map<String, MethodStatistics> methodsStatistics = this.computeCpuPowerConsumptionOfThreadMethods();
-        // @throws IOException If the output file does not exist or the user does not have enough permission.
-        // OutputFile.write(methodsStatistics, this);
+
+        if (this.eventLog != null)
+        {
+            // the log stays closed: the invocations that finish after the report, e.g., of a nested main, are not traced
+            this.eventLog.close();
+        }
+
+        // the report is written by the exporter's thread, so this thread never waits for the output
+        final OutputExporter exporter = Cpu.getInstance().getOutputExporter();
+
+        if (exporter != null)
+        {
+            exporter.submit(new ThreadReport(methodsStatistics, this));
+        }
     }
 
     /**
@@ -190,10 +266,113 @@ public class ThreadProfiler implements Profiler
         }
         
         this.stack.add(method);
-        methodList.add(method);
+
+        if (this.callingContexts != null)
+        {
+            final MethodInfo caller = method.getCaller();
+            final CallingContext parent = caller != null && caller.getCallingContext() != null ? caller.getCallingContext() : this.callingContexts;
+            method.setCallingContext(parent.child(method.getMethodName()));
+        }
+
+        // when the invocations are traced, they are written to the event log when they finish
+        if (!this.tracing)
+        {
+            methodList.add(method);
+        }
     }
     
 
+    /**
+     * Adds a finished execution of a method to the running statistics of this thread. It's called by the thread that executed the method.
+     * 
+     * @param method
+     *            The finished method execution. Might not be <code>null</code>.
+     */
+    public void onMethodExit(MethodInfo method)
+    {
+        MethodStatistics statistics = this.methodTotals.get(method.getMethodName());
+
+        if (statistics == null)
+        {
+            statistics = new MethodStatistics(method.getMethodName(), method.getThreadId());
+            statistics.setEnergy(this.getMethodEnergy(method.getMethodName()));
+            this.methodTotals.put(method.getMethodName(), statistics);
+        }
+
+        final long cpuTime = method.getTimes() != null && method.getTimes().getCpuTime() != null ? method.getTimes().getCpuTime().time() : 0;
+
+        statistics.addTime(method.getTimer().time());
+        statistics.addCpuTime(cpuTime);
+        statistics.addExclusiveCpuTime(Math.max(0, cpuTime - method.getCalleesCpuTime()));
+
+        if (method.getCaller() != null)
+        {
+            method.getCaller().addCalleeCpuTime(cpuTime);
+        }
+
+        if (method.getCallingContext() != null)
+        {
+            method.getCallingContext().add(method.getTimer().time(), cpuTime, method.getAllocatedBytes());
+        }
+
+        if (this.tracing)
+        {
+            this.trace(method);
+        }
+    }
+
+    /**
+     * Appends a finished invocation to the event log of this thread.
+     * 
+     * @param method
+     *            The finished invocation.
+     */
+    private void trace(MethodInfo method)
+    {
+        if (this.eventLog == null)
+        {
+            this.eventLog = EventLog.create(this.threadInfo.getId());
+
+            if (this.eventLog == null)
+            {
+                return;
+            }
+        }
+
+        final long cpuTime = method.getTimes() != null && method.getTimes().getCpuTime() != null ? method.getTimes().getCpuTime().time() : 0;
+
+        try
+        {
+            this.eventLog.append(method.getMethodName(), System.nanoTime(), method.getTimer().time(), cpuTime, method.getAllocatedBytes(),
+                    this.stack.size());
+        }
+        catch (IOException exception)
+        {
+            System.err.printf("Could not trace the invocation of %s: %s%n", method.getMethodName(), exception.getMessage());
+        }
+    }
+
+    /**
+     * Returns a read-only {@link Map} with the running statistics of the methods that have finished in this thread. The key is the method's name.
+     * 
+     * @return A read-only {@link Map} with the running statistics of the methods of this thread.
+     */
+    public Map<String, MethodStatistics> getRunningStatistics()
+    {
+        return Collections.unmodifiableMap(this.methodTotals);
+    }
+
+    /**
+     * Returns the root of the calling context tree of this thread. The tree must only be read after the thread has finished.
+     * 
+     * @return The root of the calling context tree of this thread or <code>null</code> if the tree is disabled (system property
+     *         <em>jenergy.flamegraph.file</em>).
+     */
+    public CallingContext getCallingContexts()
+    {
+        return callingContexts;
+    }
+
     /**
      * Returns an array of methods representing the stack dump of the thread. 
      * 
@@ -212,6 +391,17 @@ public class ThreadProfiler implements Profiler
         return stackTrace;
     }
     
+    /**
+     * Returns the methods that this thread is executing, from the first to the current one. The array is a snapshot of the stack, so it can be read
+     * by other threads.
+     * 
+     * @return The methods that this thread is executing. It's never <code>null</code>.
+     */
+    public MethodInfo[] getActiveMethods()
+    {
+        return this.stack.toArray(new MethodInfo[0]);
+    }
+
     /**
      * Removes the method of the top of this thread stack and returns that {@link Method} as the value of this method.
      * @return The method removed or <code>null</code> if the stack is empty.
@@ -227,7 +417,8 @@ public class ThreadProfiler implements Profiler
      */
     public MethodInfo peekStack()
     {
-        return this.stack.get(this.stack.size() - 1);
+        final int size = this.stack.size();
+        return size == 0 ? null : this.stack.get(size - 1);
     }
 
     /**
@@ -258,6 +449,123 @@ public class ThreadProfiler implements Profiler
 //        return new MethodInfo("<null method>", Timer.createAndStart());
 //    }
 
+    /**
+     * Returns the {@link EnergyAccount} of the method with the given name. The account is created if the method has not consumed any energy yet.
+     * 
+     * @param methodName
+     *            The method name. Might not be <code>null</code>.
+     * @return The {@link EnergyAccount} of the method with the given name. It's never <code>null</code>.
+     */
+    public EnergyAccount getMethodEnergy(String methodName)
+    {
+        EnergyAccount account = this.methodEnergy.get(methodName);
+
+        if (account == null)
+        {
+            synchronized (this.methodEnergy)
+            {
+                account = this.methodEnergy.get(methodName);
+
+                if (account == null)
+                {
+                    account = new EnergyAccount();
+                    this.methodEnergy.put(methodName, account);
+                }
+            }
+        }
+        return account;
+    }
+
+    /**
+     * Returns the energy consumed by this thread outside of the monitored methods.
+     * 
+     * @return The energy consumed by this thread outside of the monitored methods.
+     */
+    public EnergyAccount getUnattributedEnergy()
+    {
+        return unattributedEnergy;
+    }
+
+    /**
+     * Returns a read-only {@link Map} with the energy consumed by the methods of this thread. The key is the method's name.
+     * 
+     * @return A read-only {@link Map} with the energy consumed by the methods of this thread.
+     */
+    public Map<String, EnergyAccount> getMethodsEnergy()
+    {
+        return Collections.unmodifiableMap(this.methodEnergy);
+    }
+
+    /**
+     * Returns the {@link MemoryInfo} of the method with the given name. The {@link MemoryInfo} is created if the method has not been monitored
+     * yet.
+     * 
+     * @param methodName
+     *            The method name. Might not be <code>null</code>.
+     * @return The {@link MemoryInfo} of the method with the given name. It's never <code>null</code>.
+     */
+    public MemoryInfo getMethodMemory(String methodName)
+    {
+        MemoryInfo memory = this.methodMemory.get(methodName);
+
+        if (memory == null)
+        {
+            synchronized (this.methodMemory)
+            {
+                memory = this.methodMemory.get(methodName);
+
+                if (memory == null)
+                {
+                    memory = new MemoryInfo();
+                    this.methodMemory.put(methodName, memory);
+                }
+            }
+        }
+        return memory;
+    }
+
+    /**
+     * Returns a read-only {@link Map} with the memory allocated by the methods of this thread. The key is the method's name.
+     * 
+     * @return A read-only {@link Map} with the memory allocated by the methods of this thread.
+     */
+    public Map<String, MemoryInfo> getMethodsMemory()
+    {
+        return Collections.unmodifiableMap(this.methodMemory);
+    }
+
+    /**
+     * Returns the histograms of this thread for the method, path and direction of the given I/O activity. The histograms are created at the first
+     * operation. It must only be called by this thread.
+     * 
+     * @param info
+     *            The I/O activity. Might not be <code>null</code>.
+     * @return The histograms of this thread for the given I/O activity. It's never <code>null</code>.
+     */
+    public IOHistograms getIOHistograms(IOInfo info)
+    {
+        final String method = info.getMethod() != null ? info.getMethod().getMethodName() : null;
+        final String key = IOHistograms.keyOf(method, info.getPath(), info.getActivityType());
+        IOHistograms histograms = this.ioHistograms.get(key);
+
+        if (histograms == null)
+        {
+            histograms = new IOHistograms(method, info.getPath(), info.getActivityType(), this.threadInfo.getId());
+            this.ioHistograms.put(key, histograms);
+        }
+        return histograms;
+    }
+
+    /**
+     * Returns a read-only {@link Collection} with the I/O histograms of this thread.
+     * 
+     * @return A read-only {@link Collection} with the I/O histograms of this thread.
+     */
+    public Collection<IOHistograms> getIOHistograms()
+    {
+        return Collections.unmodifiableCollection(this.ioHistograms.values());
+    }
+
     /**
      * Returns a reference to the {@link MethodInfo} of the given {@link Method}.
      * 
@@ -378,6 +686,16 @@ public class ThreadProfiler implements Profiler
      */
     protected Map<String, MethodStatistics> getMethodStatistics()
     {
+        if (this.tracing)
+        {
+            // the invocations are on disk, so the statistics are the running ones
+            for (MethodStatistics statistics : this.methodTotals.values())
+            {
+                statistics.setAllocatedBytes(this.getMethodMemory(statistics.getName()).getAllocatedBytes());
+            }
+            return this.getRunningStatistics();
+        }
+
         Map<String, MethodStatistics> meths = new HashMap<String, MethodStatistics>();
 
         for (List<MethodInfo> methods : this.threadMethods.values())
@@ -389,6 +707,8 @@ public class ThreadProfiler implements Profiler
                 if (statistics == null)
                 {
                     statistics = new MethodStatistics(method.getMethodName(), method.getThreadId());
+                    statistics.setEnergy(this.getMethodEnergy(method.getMethodName()));
+                    statistics.setAllocatedBytes(this.getMethodMemory(method.getMethodName()).getAllocatedBytes());
                     meths.put(method.getMethodName(), statistics);
                 }
 
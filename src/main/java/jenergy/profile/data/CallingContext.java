@@ -0,0 +1,212 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.data;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A node of the calling context tree of a thread: the totals of the invocations of a method reached by the same chain of callers. The root of
+ * the tree has no method. Each invocation is charged to its node when it finishes, so the tree has one node per distinct call path instead of one
+ * object per invocation.
+ * 
+ * The tree is updated by the thread that owns it without locks and must only be read by other threads after that thread has finished.
+ */
+public final class CallingContext
+{
+    /**
+     * The name of the method of this context, as given by {@link MethodInfo#getMethodName()}, or <code>null</code> for the root.
+     */
+    private final String methodName;
+
+    /**
+     * The context of the caller or <code>null</code> for the root.
+     */
+    private final CallingContext parent;
+
+    /**
+     * The contexts of the methods called from this context, by method name. It's created by the first call.
+     */
+    private Map<String, CallingContext> children;
+
+    /**
+     * The number of finished invocations.
+     */
+    private long invocations;
+
+    /**
+     * The execution time in nanoseconds of the finished invocations, without the time of their callees.
+     */
+    private long time;
+
+    /**
+     * The CPU time in nanoseconds of the finished invocations, including the CPU time of their callees.
+     */
+    private long cpuTime;
+
+    /**
+     * The number of bytes allocated by the finished invocations, without the bytes allocated by their callees.
+     */
+    private long allocatedBytes;
+
+    /**
+     * Creates the root of a calling context tree.
+     */
+    public CallingContext()
+    {
+        this(null, null);
+    }
+
+    /**
+     * @param method
+     *            The name of the method of this context.
+     * @param caller
+     *            The context of the caller.
+     */
+    private CallingContext(String method, CallingContext caller)
+    {
+        this.methodName = method;
+        this.parent = caller;
+    }
+
+    /**
+     * Returns the context of the given method called from this context, creating it on the first call.
+     * 
+     * @param method
+     *            The name of the called method. Might not be <code>null</code>.
+     * @return The context of the given method called from this context. It's never <code>null</code>.
+     */
+    public CallingContext child(String method)
+    {
+        if (this.children == null)
+        {
+            this.children = new HashMap<String, CallingContext>();
+        }
+
+        CallingContext child = this.children.get(method);
+
+        if (child == null)
+        {
+            child = new CallingContext(method, this);
+            this.children.put(method, child);
+        }
+        return child;
+    }
+
+    /**
+     * Adds a finished invocation to this context.
+     * 
+     * @param selfTime
+     *            The execution time in nanoseconds of the invocation without the time of its callees.
+     * @param cpuTimeSpent
+     *            The CPU time in nanoseconds of the invocation, including its callees.
+     * @param bytes
+     *            The number of bytes allocated by the invocation without its callees.
+     */
+    public void add(long selfTime, long cpuTimeSpent, long bytes)
+    {
+        this.invocations++;
+        this.time += selfTime;
+        this.cpuTime += cpuTimeSpent;
+        this.allocatedBytes += bytes;
+    }
+
+    /**
+     * @return the name of the method of this context or <code>null</code> for the root
+     */
+    public String getMethodName()
+    {
+        return methodName;
+    }
+
+    /**
+     * @return the context of the caller or <code>null</code> for the root
+     */
+    public CallingContext getParent()
+    {
+        return parent;
+    }
+
+    /**
+     * Returns the contexts of the methods called from this context.
+     * 
+     * @return A read-only view of the contexts of the methods called from this context. It's never <code>null</code>.
+     */
+    public Collection<CallingContext> getChildren()
+    {
+        return this.children != null ? Collections.unmodifiableCollection(this.children.values()) : Collections.<CallingContext> emptyList();
+    }
+
+    /**
+     * @return the number of finished invocations
+     */
+    public long getInvocations()
+    {
+        return invocations;
+    }
+
+    /**
+     * @return the execution time in nanoseconds of the finished invocations, without the time of their callees
+     */
+    public long getTime()
+    {
+        return time;
+    }
+
+    /**
+     * @return the CPU time in nanoseconds of the finished invocations, including the CPU time of their callees
+     */
+    public long getCpuTime()
+    {
+        return cpuTime;
+    }
+
+    /**
+     * Returns the CPU time of the finished invocations without the CPU time of their callees.
+     * 
+     * @return The CPU time in nanoseconds of the finished invocations without their callees. It's never negative.
+     */
+    public long getSelfCpuTime()
+    {
+        long self = this.cpuTime;
+
+        for (CallingContext child : this.getChildren())
+        {
+            self -= child.cpuTime;
+        }
+        return Math.max(0, self);
+    }
+
+    /**
+     * @return the number of bytes allocated by the finished invocations, without the bytes allocated by their callees
+     */
+    public long getAllocatedBytes()
+    {
+        return allocatedBytes;
+    }
+
+    @Override
+    public String toString()
+    {
+        return new StringBuilder().append(methodName).append(",invocations=").append(invocations).append(",time=").append(time)
+                .append(",cpu=").append(cpuTime).append(",allocated=").append(allocatedBytes).toString();
+    }
+}
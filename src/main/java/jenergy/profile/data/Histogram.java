@@ -0,0 +1,232 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.data;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-memory log-linear histogram of non-negative values. Each power of two is split into {@link #SUB_BUCKETS} linear buckets, so a value is
+ * recorded with a relative error of at most 1/{@link #SUB_BUCKETS}, and the values greater than 2<sup>{@link #MAX_EXPONENT}</sup> are recorded in
+ * the last bucket.
+ * 
+ * A histogram is recorded by a single thread without locks and can be read by any thread at any time: the readers see each bucket either before or
+ * after an update. The histograms of many threads are combined with {@link #add(Histogram)}.
+ */
+public final class Histogram implements Serializable
+{
+    /**
+     * Serial code version <code>serialVersionUID</code> for serialization.
+     */
+    private static final long serialVersionUID = 4526170735391287612L;
+
+    /**
+     * The number of bits of the linear part of a bucket.
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    /**
+     * The number of linear buckets of each power of two.
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * The exponent of the greatest power of two with its own buckets.
+     */
+    private static final int MAX_EXPONENT = 47;
+
+    /**
+     * The number of buckets.
+     */
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    /**
+     * The index of the number of recorded values, after the buckets.
+     */
+    private static final int COUNT = BUCKETS;
+
+    /**
+     * The index of the sum of the recorded values.
+     */
+    private static final int SUM = BUCKETS + 1;
+
+    /**
+     * The index of the greatest recorded value.
+     */
+    private static final int MAX = BUCKETS + 2;
+
+    /**
+     * The buckets followed by the count, the sum and the maximum.
+     */
+    private final AtomicLongArray values = new AtomicLongArray(MAX + 1);
+
+    /**
+     * Records a value. It must only be called by the thread that owns this histogram.
+     * 
+     * @param value
+     *            The value to be recorded. Negative values are ignored.
+     */
+    public void record(long value)
+    {
+        if (value >= 0)
+        {
+            final int bucket = bucketOf(value);
+            this.values.lazySet(bucket, this.values.get(bucket) + 1);
+            this.values.lazySet(COUNT, this.values.get(COUNT) + 1);
+            this.values.lazySet(SUM, this.values.get(SUM) + value);
+
+            if (value > this.values.get(MAX))
+            {
+                this.values.lazySet(MAX, value);
+            }
+        }
+    }
+
+    /**
+     * Adds the values of another histogram to this one. It must only be called by the thread that owns this histogram.
+     * 
+     * @param other
+     *            The histogram whose values are added. Might not be <code>null</code>.
+     */
+    public void add(Histogram other)
+    {
+        for (int i = 0; i < MAX; i++)
+        {
+            this.values.lazySet(i, this.values.get(i) + other.values.get(i));
+        }
+        this.values.lazySet(MAX, Math.max(this.values.get(MAX), other.values.get(MAX)));
+    }
+
+    /**
+     * Returns the number of recorded values.
+     * 
+     * @return The number of recorded values.
+     */
+    public long count()
+    {
+        return this.values.get(COUNT);
+    }
+
+    /**
+     * Returns the sum of the recorded values.
+     * 
+     * @return The sum of the recorded values.
+     */
+    public long sum()
+    {
+        return this.values.get(SUM);
+    }
+
+    /**
+     * Returns the greatest recorded value.
+     * 
+     * @return The greatest recorded value or zero if no value was recorded.
+     */
+    public long max()
+    {
+        return this.values.get(MAX);
+    }
+
+    /**
+     * Returns the mean of the recorded values.
+     * 
+     * @return The mean of the recorded values or zero if no value was recorded.
+     */
+    public double mean()
+    {
+        final long count = this.count();
+        return count == 0 ? 0 : (double) this.sum() / count;
+    }
+
+    /**
+     * Returns an estimate of the value at the given percentile: the middle of the bucket that has the value, limited to the greatest recorded
+     * value.
+     * 
+     * @param percentile
+     *            The percentile, between 0 and 100.
+     * @return The estimated value at the given percentile or zero if no value was recorded.
+     */
+    public long percentile(double percentile)
+    {
+        long total = 0;
+
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            total += this.values.get(i);
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+
+        for (int i = 0; i < BUCKETS; i++)
+        {
+            seen += this.values.get(i);
+
+            if (seen >= rank && seen > 0)
+            {
+                final long lower = lowerBoundOf(i);
+                return Math.min(this.max(), lower + (lowerBoundOf(i + 1) - lower) / 2);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the bucket of a value.
+     * 
+     * @param value
+     *            A non-negative value.
+     * @return The index of the bucket of the given value.
+     */
+    static int bucketOf(long value)
+    {
+        if (value < SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+
+        if (exponent > MAX_EXPONENT)
+        {
+            return BUCKETS - 1;
+        }
+
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the smallest value of a bucket.
+     * 
+     * @param bucket
+     *            The index of the bucket. The index {@link #BUCKETS} returns the upper bound of the last bucket.
+     * @return The smallest value of the given bucket.
+     */
+    static long lowerBoundOf(int bucket)
+    {
+        if (bucket < SUB_BUCKETS)
+        {
+            return bucket;
+        }
+
+        final int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return (1L << exponent) + ((long) (bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS));
+    }
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.data;
+
+import java.io.Serializable;
+
+/**
+ * The latency and size histograms of the read or write operations of a method on a file or remote address. Each thread records its own
+ * {@link IOHistograms}, so they are updated without locks; the histograms of all threads are combined when they are reported.
+ */
+public final class IOHistograms implements Serializable
+{
+    /**
+     * Serial code version <code>serialVersionUID</code> for serialization.
+     */
+    private static final long serialVersionUID = -2405932402315316254L;
+
+    /**
+     * The name of the method. It can be <code>null</code> if the operations were not done by a monitored method.
+     */
+    private final String method;
+
+    /**
+     * The file path or the remote address. It can be <code>null</code> if it's unknown.
+     */
+    private final String path;
+
+    /**
+     * The direction of the operations.
+     */
+    private final IOInfo.IOActivityType direction;
+
+    /**
+     * The id of the thread that records these histograms.
+     */
+    private final long threadId;
+
+    /**
+     * The time in nanoseconds that each operation blocked. Only the operations whose latency is measured are recorded.
+     */
+    private final Histogram latency = new Histogram();
+
+    /**
+     * The number of bytes transferred by each operation.
+     */
+    private final Histogram size = new Histogram();
+
+    /**
+     * Creates the histograms of the operations of a method on a file or remote address.
+     * 
+     * @param methodName
+     *            The name of the method.
+     * @param filePath
+     *            The file path or the remote address.
+     * @param type
+     *            The direction of the operations.
+     * @param tid
+     *            The id of the thread that records the histograms.
+     */
+    public IOHistograms(String methodName, String filePath, IOInfo.IOActivityType type, long tid)
+    {
+        this.method = methodName;
+        this.path = filePath;
+        this.direction = type;
+        this.threadId = tid;
+    }
+
+    /**
+     * Returns the key that identifies the histograms of the given method, path and direction.
+     * 
+     * @param methodName
+     *            The name of the method.
+     * @param filePath
+     *            The file path or the remote address.
+     * @param type
+     *            The direction of the operations.
+     * @return The key of the histograms.
+     */
+    public static String keyOf(String methodName, String filePath, IOInfo.IOActivityType type)
+    {
+        return new StringBuilder().append(type.name()).append('|').append(methodName).append('|').append(filePath).toString();
+    }
+
+    /**
+     * Records an operation. It must only be called by the thread that owns these histograms.
+     * 
+     * @param bytes
+     *            The number of bytes transferred by the operation.
+     * @param nanos
+     *            The time in nanoseconds that the operation blocked or a negative value if it was not measured.
+     */
+    public void record(long bytes, long nanos)
+    {
+        this.size.record(bytes);
+        this.latency.record(nanos);
+    }
+
+    /**
+     * Adds the operations of other histograms to these ones.
+     * 
+     * @param other
+     *            The histograms to be added. Might not be <code>null</code>.
+     */
+    public void add(IOHistograms other)
+    {
+        this.size.add(other.size);
+        this.latency.add(other.latency);
+    }
+
+    /**
+     * Returns the key that identifies these histograms.
+     * 
+     * @return The key that identifies these histograms.
+     */
+    public String key()
+    {
+        return keyOf(this.method, this.path, this.direction);
+    }
+
+    /**
+     * @return the method
+     */
+    public String getMethod()
+    {
+        return method;
+    }
+
+    /**
+     * @return the path
+     */
+    public String getPath()
+    {
+        return path;
+    }
+
+    /**
+     * @return the direction
+     */
+    public IOInfo.IOActivityType getDirection()
+    {
+        return direction;
+    }
+
+    /**
+     * @return the threadId
+     */
+    public long getThreadId()
+    {
+        return threadId;
+    }
+
+    /**
+     * @return the latency histogram in nanoseconds
+     */
+    public Histogram getLatency()
+    {
+        return latency;
+    }
+
+    /**
+     * @return the size histogram in bytes
+     */
+    public Histogram getSize()
+    {
+        return size;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s %s %s operations: %d bytes: %d size p50/p99/max: %d/%d/%d bytes latency p50/p99/max: %d/%d/%d ns", this.direction,
+                this.method, this.path, this.size.count(), this.size.sum(), this.size.percentile(50), this.size.percentile(99), this.size.max(),
+                this.latency.percentile(50), this.latency.percentile(99), this.latency.max());
+    }
+}
@@ -19,11 +19,13 @@
 package jenergy.profile.data;
 
 import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
-import jenergy.agent.common.util.Observer;
-import jenergy.agent.common.util.Subject;
+import jenergy.agent.common.Cpu;
+import jenergy.agent.common.util.StripedCounter;
+import jenergy.profile.ThreadProfiler;
 
-public final class IOInfo implements Serializable, Observer
+public final class IOInfo implements Serializable
 {
     /**
      * Serial code version <code>serialVersionUID</code> for serialization.
@@ -57,9 +59,53 @@ public final class IOInfo implements Serializable, Observer
     private final IOActivityType activityType;
 
     /**
-     * Number of bytes that has been read/written.
+     * The index of the counter with the number of bytes that has been read/written.
      */
-    private volatile long bytes;
+    private static final int BYTES = 0;
+
+    /**
+     * The index of the counter with the number of read/write operations.
+     */
+    private static final int OPERATIONS = 1;
+
+    /**
+     * The index of the counter with the time in nanoseconds spent in the read/write operations. Every disk and network operation is timed: the
+     * file streams, the channels, the {@link java.io.RandomAccessFile}s and the {@link java.nio.file.Files} operations.
+     */
+    private static final int LATENCY = 2;
+
+    /**
+     * The updater of {@link #resumption}, so only one operation resumes the tracking of an idle activity.
+     */
+    private static final AtomicReferenceFieldUpdater<IOInfo, Runnable> RESUMPTION = AtomicReferenceFieldUpdater.newUpdater(IOInfo.class,
+            Runnable.class, "resumption");
+
+    /**
+     * The counters of this I/O activity. They are updated by the threads that read/write without locks.
+     */
+    private final StripedCounter counters = new StripedCounter(LATENCY + 1);
+
+    /**
+     * The histograms of the last thread that did an operation of this activity. They are replaced when another thread does an operation, so the
+     * histograms of a thread are only looked up when it starts using this activity.
+     */
+    private transient volatile IOHistograms histograms;
+
+    /**
+     * The path of the file read/written or the address of the remote host. It's <code>null</code> when it is unknown.
+     */
+    private final String path;
+
+    /**
+     * Flag to indicate that the resource was closed and that no more bytes will be read/written.
+     */
+    private volatile boolean closed;
+
+    /**
+     * The action that resumes the tracking of this activity by its energy model. It's defined when the model stops tracking the activity because
+     * it has been idle for long and it's run by the next operation.
+     */
+    private transient volatile Runnable resumption;
 
     /**
      * 
@@ -68,7 +114,7 @@ public final class IOInfo implements Serializable, Observer
      */
     public IOInfo(IOActivityType type)
     {
-        this.activityType = type;
+        this(type, null, null);
     }
 
     /**
@@ -80,22 +126,130 @@ public final class IOInfo implements Serializable, Observer
      */
     public IOInfo(IOActivityType type, MethodInfo methodInfo)
     {
-        this(type);
+        this(type, methodInfo, null);
+    }
+
+    /**
+     * 
+     * @param type
+     *            The I/O activity type. Might not be <code>null</code>.
+     * @param methodInfo
+     *            The callee of the I/O operation.
+     * @param filePath
+     *            The path of the file read/written or the address of the remote host.
+     */
+    public IOInfo(IOActivityType type, MethodInfo methodInfo, String filePath)
+    {
+        this.activityType = type;
         this.method = methodInfo;
+        this.path = filePath;
     }
 
     /**
-     * Increments the number of bytes read/write.
+     * Increments the number of bytes read/write and the number of operations. It does not lock, so it can be called on every operation.
      * 
      * @param value
-     *            The number of bytes that has been read/written.
+     *            The number of bytes that has been read/written. A negative value means that the operation did not transfer any data (e.g., end
+     *            of file).
+     */
+    public void increment(long value)
+    {
+        this.increment(value, -1);
+    }
+
+    /**
+     * Increments the number of bytes read/write, the number of operations and the time spent in the operations, and records the operation in the
+     * latency and size histograms of the current thread. It does not lock, so it can be called on every operation.
+     * 
+     * @param value
+     *            The number of bytes that has been read/written. A negative value means that the operation did not transfer any data (e.g., end
+     *            of stream).
+     * @param nanos
+     *            The time in nanoseconds spent in the operation or a negative value if it was not measured.
+     */
+    public void increment(long value, long nanos)
+    {
+        final Runnable resume = this.resumption;
+
+        if (resume != null && RESUMPTION.compareAndSet(this, resume, null))
+        {
+            resume.run();
+        }
+
+        if (nanos > 0)
+        {
+            this.counters.add(LATENCY, nanos);
+        }
+
+        if (value >= 0)
+        {
+            this.counters.add(OPERATIONS, 1);
+            this.counters.add(BYTES, value);
+
+            final IOHistograms current = this.histogramsOfCurrentThread();
+
+            if (current != null)
+            {
+                current.record(value, nanos);
+            }
+        }
+    }
+
+    /**
+     * Returns the histograms of the current thread for this activity.
+     * 
+     * @return The histograms of the current thread for this activity or <code>null</code> if the thread is not profiled.
      */
-    public synchronized void increment(long value)
+    private IOHistograms histogramsOfCurrentThread()
     {
-        if (value > 0)
+        final long tid = Thread.currentThread().getId();
+        IOHistograms current = this.histograms;
+
+        if (current == null || current.getThreadId() != tid)
         {
-            this.bytes += value;
+            final ThreadProfiler profiler = Cpu.getInstance().currentThread();
+
+            if (profiler == null)
+            {
+                return null;
+            }
+
+            current = profiler.getIOHistograms(this);
+            this.histograms = current;
         }
+        return current;
+    }
+
+    /**
+     * Defines the action that resumes the tracking of this activity at its next operation. It's called by the energy model when it stops tracking
+     * the activity because it has been idle for long.
+     * 
+     * @param resume
+     *            The action that resumes the tracking. Might not be <code>null</code>.
+     */
+    public void suspend(Runnable resume)
+    {
+        this.resumption = resume;
+    }
+
+    /**
+     * Removes the action defined by {@link #suspend(Runnable)} if it has not been run yet.
+     * 
+     * @param resume
+     *            The action that resumes the tracking.
+     * @return <code>true</code> if the action was removed or <code>false</code> if an operation has already run it.
+     */
+    public boolean cancelSuspension(Runnable resume)
+    {
+        return RESUMPTION.compareAndSet(this, resume, null);
+    }
+
+    /**
+     * Marks this I/O activity as closed.
+     */
+    public void close()
+    {
+        this.closed = true;
     }
 
     /**
@@ -128,15 +282,40 @@ public final class IOInfo implements Serializable, Observer
      */
     public long getBytes()
     {
-        return bytes;
+        return this.counters.sum(BYTES);
     }
 
-    @Override
-    public void update(Subject observable, Object... args)
+    /**
+     * @return the operations
+     */
+    public long getOperations()
     {
-        if (args != null && args.length > 0 && Integer.class.isAssignableFrom(args[0].getClass()))
-        {
-            this.increment(((Integer) args[0]).longValue());
-        }
+        return this.counters.sum(OPERATIONS);
+    }
+
+    /**
+     * @return the latency
+     */
+    public long getLatency()
+    {
+        return this.counters.sum(LATENCY);
+    }
+
+    /**
+     * @return the path
+     */
+    public String getPath()
+    {
+        return path;
+    }
+
+    /**
+     * Returns <code>true</code> if the resource was closed and no more bytes will be read/written.
+     * 
+     * @return <code>true</code> if the resource was closed and no more bytes will be read/written.
+     */
+    public boolean isClosed()
+    {
+        return closed;
     }
 }
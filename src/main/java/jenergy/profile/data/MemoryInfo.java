@@ -20,7 +20,74 @@ package jenergy.profile.data;
 
 import java.io.Serializable;
 
+/**
+ * The memory allocated by a method or a thread. The counters are written by a single thread (the one that executed the method or the energy
+ * monitor) and read by the memory energy model.
+ */
 public final class MemoryInfo implements Serializable
 {
+    /**
+     * Serial code version <code>serialVersionUID</code> for serialization.
+     */
+    private static final long serialVersionUID = 1862478426913335540L;
+
+    /**
+     * The number of bytes allocated.
+     */
+    private volatile long allocatedBytes;
+
+    /**
+     * The number of allocated bytes already charged by the memory energy model.
+     */
+    private volatile long sampledBytes;
+
+    /**
+     * Increments the number of allocated bytes.
+     * 
+     * @param bytes
+     *            The number of bytes allocated. Values that are not greater than zero are ignored.
+     */
+    public void addAllocatedBytes(long bytes)
+    {
+        if (bytes > 0)
+        {
+            this.allocatedBytes += bytes;
+        }
+    }
+
+    /**
+     * Defines the number of allocated bytes. It is used when the allocation is read from a counter that is never reset (e.g., the number of bytes
+     * allocated by a thread so far).
+     * 
+     * @param bytes
+     *            The number of allocated bytes.
+     */
+    public void setAllocatedBytes(long bytes)
+    {
+        if (bytes > this.allocatedBytes)
+        {
+            this.allocatedBytes = bytes;
+        }
+    }
+
+    /**
+     * Returns the number of bytes allocated since the last call of this method and marks them as sampled.
+     * 
+     * @return The number of bytes allocated since the last call of this method.
+     */
+    public long sample()
+    {
+        final long bytes = this.allocatedBytes;
+        final long delta = bytes - this.sampledBytes;
+        this.sampledBytes = bytes;
+        return delta;
+    }
 
+    /**
+     * @return the allocatedBytes
+     */
+    public long getAllocatedBytes()
+    {
+        return allocatedBytes;
+    }
 }
@@ -22,7 +22,9 @@ import java.io.Serializable;
 import java.lang.reflect.Method;
 import java.math.BigDecimal;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 import jenergy.agent.common.util.time.Timer;
@@ -69,11 +71,49 @@ public final class MethodInfo implements Serializable
      */
     private Method methodRef;
 
+    /**
+     * The number of bytes allocated by the thread when the method started. It's negative when the allocation is not tracked.
+     */
+    private long allocatedBytesAtStart = -1;
+
+    /**
+     * The number of bytes allocated by the methods called by this method.
+     */
+    private long calleesAllocatedBytes;
+
+    /**
+     * The number of bytes allocated by this method without its callees. It's defined when the method finishes.
+     */
+    private long allocatedBytes;
+
+    /**
+     * The CPU time in nanoseconds of the methods called by this method that have finished. It's read by the energy monitor while the method runs.
+     */
+    private volatile long calleesCpuTime;
+
+    /**
+     * The disk I/O done by this method through channels, by file, channel or path and indexed by the {@link IOInfo.IOActivityType} ordinal. It's
+     * created by the thread that executes the method at its first channel operation, and the entries are reused by the next operations on the same
+     * source.
+     */
+    private transient Map<Object, IOInfo[]> channelActivities;
+
+    /**
+     * The network I/O done by this method through channels, by channel or remote address and indexed by the {@link IOInfo.IOActivityType} ordinal.
+     * It's created by the thread that executes the method at its first network operation through a channel.
+     */
+    private transient Map<Object, IOInfo[]> networkActivities;
+
     /**
      * The {@link List} of activities realized by the monitored method. For instance, network activity, disk activity, etc.
      */
     private final List<Activity<?>> activities = new CopyOnWriteArrayList<Activity<?>>();
 
+    /**
+     * The node of the calling context tree of the thread where this invocation is charged. It's <code>null</code> when the tree is disabled.
+     */
+    private transient CallingContext callingContext;
+
     /**
      * @param name
      *            The name of the method to be analyzed.
@@ -135,6 +175,242 @@ public final class MethodInfo implements Serializable
         }
     }
 
+    /**
+     * Starts tracking the memory allocated by this method.
+     * 
+     * @param threadAllocatedBytes
+     *            The number of bytes allocated by the thread so far. A negative value means that the allocation is not available.
+     */
+    public void startAllocationTracking(long threadAllocatedBytes)
+    {
+        this.allocatedBytesAtStart = threadAllocatedBytes;
+    }
+
+    /**
+     * Stops tracking the memory allocated by this method and returns the number of bytes allocated by the method itself, i.e., without the bytes
+     * allocated by the methods that it called. The bytes allocated by this method and its callees are added to its caller.
+     * 
+     * @param threadAllocatedBytes
+     *            The number of bytes allocated by the thread so far.
+     * @return The number of bytes allocated by this method without its callees or zero if the allocation was not tracked.
+     */
+    public long stopAllocationTracking(long threadAllocatedBytes)
+    {
+        if (this.allocatedBytesAtStart < 0 || threadAllocatedBytes < 0)
+        {
+            return 0;
+        }
+
+        final long allocated = threadAllocatedBytes - this.allocatedBytesAtStart;
+
+        if (this.caller != null)
+        {
+            this.caller.calleesAllocatedBytes += allocated;
+        }
+        this.allocatedBytes = allocated - this.calleesAllocatedBytes;
+        return this.allocatedBytes;
+    }
+
+    /**
+     * Adds the CPU time of a finished method called by this method. It's called by the thread that executes the method.
+     * 
+     * @param nanos
+     *            The CPU time in nanoseconds of the callee, including its own callees.
+     */
+    public void addCalleeCpuTime(long nanos)
+    {
+        this.calleesCpuTime += nanos;
+    }
+
+    /**
+     * Returns the CPU time of the finished methods called by this method.
+     * 
+     * @return The CPU time in nanoseconds of the finished methods called by this method.
+     */
+    public long getCalleesCpuTime()
+    {
+        return calleesCpuTime;
+    }
+
+    /**
+     * Returns the CPU time of the thread when this method started.
+     * 
+     * @return The CPU time in nanoseconds of the thread when this method started or <code>-1</code> if it's not known yet.
+     */
+    public long getStartCpuTime()
+    {
+        final Times current = this.times;
+        final Period cpu = current != null ? current.getCpuTime() : null;
+        return cpu != null ? cpu.getStartTime() : -1;
+    }
+
+    /**
+     * Returns the number of bytes allocated by this method without its callees.
+     * 
+     * @return The number of bytes allocated by this method without its callees or zero if the method has not finished or the allocation was not
+     *         tracked.
+     */
+    public long getAllocatedBytes()
+    {
+        return allocatedBytes;
+    }
+
+    /**
+     * Returns the node of the calling context tree of the thread where this invocation is charged.
+     * 
+     * @return The node of the calling context tree where this invocation is charged or <code>null</code> if the tree is disabled.
+     */
+    public CallingContext getCallingContext()
+    {
+        return callingContext;
+    }
+
+    /**
+     * Defines the node of the calling context tree of the thread where this invocation is charged.
+     * 
+     * @param context
+     *            The node where this invocation is charged.
+     */
+    public void setCallingContext(CallingContext context)
+    {
+        this.callingContext = context;
+    }
+
+    /**
+     * Returns the disk I/O of the given type done by this method through channels on the given file, channel or path.
+     * 
+     * @param type
+     *            The type of the I/O.
+     * @param source
+     *            The file, channel or path used by the I/O. It can be <code>null</code>.
+     * @return The disk I/O of the given type done by this method on the given source or <code>null</code> if the method has not done it yet.
+     */
+    public IOInfo getChannelActivity(IOInfo.IOActivityType type, Object source)
+    {
+        return activityOf(this.channelActivities, type, source);
+    }
+
+    /**
+     * Defines the disk I/O of the given type done by this method through channels on the given file, channel or path.
+     * 
+     * @param info
+     *            The I/O data. Might not be <code>null</code>.
+     * @param source
+     *            The file, channel or path used by the I/O. It can be <code>null</code>.
+     */
+    public void setChannelActivity(IOInfo info, Object source)
+    {
+        if (this.channelActivities == null)
+        {
+            this.channelActivities = new HashMap<Object, IOInfo[]>();
+        }
+        putActivity(this.channelActivities, info, source);
+    }
+
+    /**
+     * Returns the network I/O of the given type done by this method through the given channel or with the given remote address.
+     * 
+     * @param type
+     *            The type of the I/O.
+     * @param source
+     *            The channel or the remote address of the I/O. It can be <code>null</code>.
+     * @return The network I/O of the given type done by this method with the given source or <code>null</code> if the method has not done it yet.
+     */
+    public IOInfo getNetworkActivity(IOInfo.IOActivityType type, Object source)
+    {
+        return activityOf(this.networkActivities, type, source);
+    }
+
+    /**
+     * Defines the network I/O of the given type done by this method through the given channel or with the given remote address.
+     * 
+     * @param info
+     *            The I/O data. Might not be <code>null</code>.
+     * @param source
+     *            The channel or the remote address of the I/O. It can be <code>null</code>.
+     */
+    public void setNetworkActivity(IOInfo info, Object source)
+    {
+        if (this.networkActivities == null)
+        {
+            this.networkActivities = new HashMap<Object, IOInfo[]>();
+        }
+        putActivity(this.networkActivities, info, source);
+    }
+
+    /**
+     * Returns the I/O of the given type done with the given source.
+     * 
+     * @param activities
+     *            The I/O by source. It can be <code>null</code>.
+     * @param type
+     *            The type of the I/O.
+     * @param source
+     *            The source of the I/O. It can be <code>null</code>.
+     * @return The I/O of the given type done with the given source or <code>null</code> if there is none.
+     */
+    private static IOInfo activityOf(Map<Object, IOInfo[]> activities, IOInfo.IOActivityType type, Object source)
+    {
+        final IOInfo[] infos = activities != null ? activities.get(source) : null;
+        return infos != null ? infos[type.ordinal()] : null;
+    }
+
+    /**
+     * Defines the I/O done with the given source.
+     * 
+     * @param activities
+     *            The I/O by source. Might not be <code>null</code>.
+     * @param info
+     *            The I/O data. Might not be <code>null</code>.
+     * @param source
+     *            The source of the I/O. It can be <code>null</code>.
+     */
+    private static void putActivity(Map<Object, IOInfo[]> activities, IOInfo info, Object source)
+    {
+        IOInfo[] infos = activities.get(source);
+
+        if (infos == null)
+        {
+            infos = new IOInfo[IOInfo.IOActivityType.values().length];
+            activities.put(source, infos);
+        }
+        infos[info.getActivityType().ordinal()] = info;
+    }
+
+    /**
+     * Closes the given I/O.
+     * 
+     * @param activities
+     *            The I/O by source. It can be <code>null</code>.
+     */
+    private static void closeActivities(Map<Object, IOInfo[]> activities)
+    {
+        if (activities != null)
+        {
+            for (IOInfo[] infos : activities.values())
+            {
+                for (IOInfo info : infos)
+                {
+                    if (info != null)
+                    {
+                        info.close();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Closes the disk and network I/O done by this method through channels. It's called when the method finishes.
+     */
+    public void closeChannelActivities()
+    {
+        closeActivities(this.channelActivities);
+        closeActivities(this.networkActivities);
+        this.channelActivities = null;
+        this.networkActivities = null;
+    }
+
     /**
      * Returns the method's execution duration.
      * 
@@ -21,6 +21,7 @@ package jenergy.profile.data;
 import java.text.DecimalFormat;
 
 import jenergy.agent.common.util.time.Timer;
+import jenergy.profile.energy.EnergyAccount;
 
 public class MethodStatistics implements Comparable<MethodStatistics>
 {
@@ -45,25 +46,45 @@ public class MethodStatistics implements Comparable<MethodStatistics>
     private volatile long cpuTime;
 
     /**
-     * The number of invocation of the method.
+     * The CPU time of the method without its callees.
      */
-    private long numberOfInvocations;
+    private volatile long exclusiveCpuTime;
+
+    /**
+     * The number of invocation of the method. It's only updated by the thread of the method and read by the monitoring threads.
+     */
+    private volatile long numberOfInvocations;
 
     /**
      * The minimum execution time of the method.
      */
-    private long min = Long.MAX_VALUE;
+    private volatile long min = Long.MAX_VALUE;
 
     /**
      * The maximum execution time of the method.
      */
-    private long max = Long.MIN_VALUE;
+    private volatile long max = Long.MIN_VALUE;
 
     /**
      * The CPU power consumption of this method.
      */
     private double cpuPower;
 
+    /**
+     * The exclusive CPU time already sampled by {@link #sampleExclusiveCpuTime()}.
+     */
+    private long sampledCpuTime;
+
+    /**
+     * The number of bytes allocated by the method.
+     */
+    private long allocatedBytes;
+
+    /**
+     * The energy consumed by this method.
+     */
+    private EnergyAccount energy = new EnergyAccount();
+
     /**
      * @param method
      *            The name of the method. Might not be <code>null</code> or empty.
@@ -102,6 +123,30 @@ public class MethodStatistics implements Comparable<MethodStatistics>
         this.cpuTime += cpuTimeSpent;
     }
 
+    /**
+     * Increments the CPU time of the method without its callees.
+     * 
+     * @param cpuTimeSpent
+     *            The CPU time to be incremented.
+     */
+    public void addExclusiveCpuTime(final long cpuTimeSpent)
+    {
+        this.exclusiveCpuTime += cpuTimeSpent;
+    }
+
+    /**
+     * Returns the exclusive CPU time added since the last call of this method and marks it as sampled. It's only called by the energy monitor.
+     * 
+     * @return The exclusive CPU time added since the last call of this method.
+     */
+    public long sampleExclusiveCpuTime()
+    {
+        final long current = this.exclusiveCpuTime;
+        final long delta = current - this.sampledCpuTime;
+        this.sampledCpuTime = current;
+        return delta;
+    }
+
     /**
      * @return the threadId
      */
@@ -134,6 +179,14 @@ public class MethodStatistics implements Comparable<MethodStatistics>
         return cpuTime;
     }
 
+    /**
+     * @return the CPU time without the callees
+     */
+    public long getExclusiveCpuTime()
+    {
+        return exclusiveCpuTime;
+    }
+
     /**
      * @return the numberOfInvocations
      */
@@ -175,6 +228,40 @@ public class MethodStatistics implements Comparable<MethodStatistics>
         this.cpuPower = newCpuPowerValue;
     }
 
+    /**
+     * @return the allocatedBytes
+     */
+    public long getAllocatedBytes()
+    {
+        return allocatedBytes;
+    }
+
+    /**
+     * @param bytes
+     *            the allocatedBytes to set
+     */
+    public void setAllocatedBytes(long bytes)
+    {
+        this.allocatedBytes = bytes;
+    }
+
+    /**
+     * @return the energy
+     */
+    public EnergyAccount getEnergy()
+    {
+        return energy;
+    }
+
+    /**
+     * @param account
+     *            the energy to set
+     */
+    public void setEnergy(EnergyAccount account)
+    {
+        this.energy = account;
+    }
+
     @Override
     public int compareTo(MethodStatistics o)
     {
@@ -233,6 +320,8 @@ public class MethodStatistics implements Comparable<MethodStatistics>
                 Timer.nanoToMillis(cpuTime)));
         sb.append(String.format(" (min: %dms, max: %dms) - %d invocations", Timer.nanoToMillis(min), Timer.nanoToMillis(max), numberOfInvocations));
         sb.append(String.format(" %s", format.format(this.getCpuPower())));
+        sb.append(String.format(" allocated: %d bytes", this.getAllocatedBytes()));
+        sb.append(String.format(" energy: %.6fJ (%s)", this.getEnergy().total(), this.getEnergy()));
         
         return sb.toString();
     }
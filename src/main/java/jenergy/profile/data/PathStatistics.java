@@ -0,0 +1,205 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.data;
+
+import java.io.Serializable;
+
+/**
+ * The I/O done on a file by all methods and threads, and the disk energy that it consumed. The counters are only written by the energy monitor
+ * and can be read by any thread.
+ */
+public final class PathStatistics implements Serializable
+{
+    /**
+     * Serial code version <code>serialVersionUID</code> for serialization.
+     */
+    private static final long serialVersionUID = -4387466418102549937L;
+
+    /**
+     * The canonical path of the file.
+     */
+    private final String path;
+
+    /**
+     * The number of bytes read.
+     */
+    private volatile long bytesRead;
+
+    /**
+     * The number of bytes written.
+     */
+    private volatile long bytesWritten;
+
+    /**
+     * The number of read operations.
+     */
+    private volatile long reads;
+
+    /**
+     * The number of write operations.
+     */
+    private volatile long writes;
+
+    /**
+     * The time in nanoseconds spent in the operations whose latency was measured.
+     */
+    private volatile long latency;
+
+    /**
+     * The modeled disk energy in joules.
+     */
+    private volatile double energy;
+
+    /**
+     * The sequence number of the last update. It orders the entries by their last use.
+     */
+    private volatile long lastUpdate;
+
+    /**
+     * @param canonicalPath
+     *            The canonical path of the file.
+     */
+    public PathStatistics(String canonicalPath)
+    {
+        this.path = canonicalPath;
+    }
+
+    /**
+     * Adds the operations of an activity. It must only be called by the energy monitor.
+     * 
+     * @param type
+     *            The direction of the operations.
+     * @param bytes
+     *            The number of bytes transferred.
+     * @param operations
+     *            The number of operations.
+     * @param nanos
+     *            The time in nanoseconds spent in the operations.
+     * @param joules
+     *            The energy in joules consumed by the operations.
+     * @param sequence
+     *            The sequence number of this update.
+     */
+    public void add(IOInfo.IOActivityType type, long bytes, long operations, long nanos, double joules, long sequence)
+    {
+        if (type == IOInfo.IOActivityType.READ)
+        {
+            this.bytesRead += bytes;
+            this.reads += operations;
+        }
+        else
+        {
+            this.bytesWritten += bytes;
+            this.writes += operations;
+        }
+        this.latency += nanos;
+        this.energy += joules;
+        this.lastUpdate = sequence;
+    }
+
+    /**
+     * Adds the values of another entry. It must only be called by the energy monitor.
+     * 
+     * @param other
+     *            The entry whose values are added.
+     * @param sequence
+     *            The sequence number of this update.
+     */
+    public void add(PathStatistics other, long sequence)
+    {
+        this.bytesRead += other.bytesRead;
+        this.bytesWritten += other.bytesWritten;
+        this.reads += other.reads;
+        this.writes += other.writes;
+        this.latency += other.latency;
+        this.energy += other.energy;
+        this.lastUpdate = sequence;
+    }
+
+    /**
+     * @return the path
+     */
+    public String getPath()
+    {
+        return path;
+    }
+
+    /**
+     * @return the bytesRead
+     */
+    public long getBytesRead()
+    {
+        return bytesRead;
+    }
+
+    /**
+     * @return the bytesWritten
+     */
+    public long getBytesWritten()
+    {
+        return bytesWritten;
+    }
+
+    /**
+     * @return the number of read operations
+     */
+    public long getReads()
+    {
+        return reads;
+    }
+
+    /**
+     * @return the number of write operations
+     */
+    public long getWrites()
+    {
+        return writes;
+    }
+
+    /**
+     * @return the latency in nanoseconds
+     */
+    public long getLatency()
+    {
+        return latency;
+    }
+
+    /**
+     * @return the energy in joules
+     */
+    public double getEnergy()
+    {
+        return energy;
+    }
+
+    /**
+     * @return the sequence number of the last update
+     */
+    public long getLastUpdate()
+    {
+        return lastUpdate;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s read: %d bytes in %d operations, written: %d bytes in %d operations, latency: %d ns, energy: %s J", this.path,
+                this.bytesRead, this.reads, this.bytesWritten, this.writes, this.latency, this.energy);
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The I/O of the process aggregated by canonical file path, across all methods and threads and including the closed files. The table is written
+ * by the energy monitor only, so the updates do not contend with the application threads, and it can be read by any thread at any time.
+ * 
+ * The table is bounded (system property <em>jenergy.disk.paths.max</em>): when it is full, the least recently used entries are merged into the
+ * {@link #OTHER} entry, so an application that creates millions of temporary files does not exhaust the memory.
+ */
+public final class PathTable
+{
+    /**
+     * The entry of the paths evicted from the table.
+     */
+    public static final String OTHER = "<other>";
+
+    /**
+     * The entry of the activities whose path is unknown.
+     */
+    public static final String UNKNOWN = "<unknown>";
+
+    /**
+     * The fraction of the entries evicted when the table is full, so the eviction is not repeated at every new path.
+     */
+    private static final double EVICTION_RATIO = 0.1;
+
+    /**
+     * Orders the entries by their last use, the least recently used first.
+     */
+    private static final Comparator<PathStatistics> LEAST_RECENTLY_USED = new Comparator<PathStatistics>()
+    {
+        @Override
+        public int compare(PathStatistics o1, PathStatistics o2)
+        {
+            return Long.valueOf(o1.getLastUpdate()).compareTo(o2.getLastUpdate());
+        }
+    };
+
+    /**
+     * Orders the entries by their energy, the greatest first.
+     */
+    private static final Comparator<PathStatistics> GREATEST_ENERGY = new Comparator<PathStatistics>()
+    {
+        @Override
+        public int compare(PathStatistics o1, PathStatistics o2)
+        {
+            return Double.compare(o2.getEnergy(), o1.getEnergy());
+        }
+    };
+
+    /**
+     * The entries of the table. The key is the canonical path.
+     */
+    private final Map<String, PathStatistics> entries = new ConcurrentHashMap<String, PathStatistics>();
+
+    /**
+     * The entry of the evicted paths.
+     */
+    private final PathStatistics other = new PathStatistics(OTHER);
+
+    /**
+     * The maximum number of paths in the table.
+     */
+    private final int capacity;
+
+    /**
+     * The sequence number of the last update.
+     */
+    private long sequence;
+
+    /**
+     * Creates a table with the capacity given by the system property <em>jenergy.disk.paths.max</em>.
+     */
+    public PathTable()
+    {
+        this(Integer.parseInt(System.getProperty("jenergy.disk.paths.max", "10000")));
+    }
+
+    /**
+     * @param maxPaths
+     *            The maximum number of paths in the table.
+     */
+    public PathTable(int maxPaths)
+    {
+        this.capacity = Math.max(1, maxPaths);
+    }
+
+    /**
+     * Returns the key of a path in this table: its canonical path. It may access the file system, so it's only called by the energy monitor.
+     * 
+     * @param path
+     *            The path. It can be <code>null</code>.
+     * @return The canonical path or {@link #UNKNOWN} if the path is <code>null</code>.
+     */
+    public static String keyOf(String path)
+    {
+        if (path == null)
+        {
+            return UNKNOWN;
+        }
+
+        try
+        {
+            return new File(path).getCanonicalPath();
+        }
+        catch (IOException exception)
+        {
+            return new File(path).getAbsolutePath();
+        }
+    }
+
+    /**
+     * Adds the operations of an activity to the entry of its path. It must only be called by the energy monitor.
+     * 
+     * @param key
+     *            The key of the path, given by {@link #keyOf(String)}.
+     * @param type
+     *            The direction of the operations.
+     * @param bytes
+     *            The number of bytes transferred.
+     * @param operations
+     *            The number of operations.
+     * @param nanos
+     *            The time in nanoseconds spent in the operations.
+     * @param joules
+     *            The energy in joules consumed by the operations.
+     */
+    public void add(String key, IOInfo.IOActivityType type, long bytes, long operations, long nanos, double joules)
+    {
+        PathStatistics entry = this.entries.get(key);
+
+        if (entry == null)
+        {
+            if (this.entries.size() >= this.capacity)
+            {
+                this.evict();
+            }
+
+            entry = new PathStatistics(key);
+            this.entries.put(key, entry);
+        }
+        entry.add(type, bytes, operations, nanos, joules, ++this.sequence);
+    }
+
+    /**
+     * Merges the least recently used entries into the {@link #OTHER} entry.
+     */
+    private void evict()
+    {
+        final List<PathStatistics> sorted = new ArrayList<PathStatistics>(this.entries.values());
+        Collections.sort(sorted, LEAST_RECENTLY_USED);
+
+        final int count = Math.max(1, (int) (this.capacity * EVICTION_RATIO));
+
+        for (int i = 0; i < count && i < sorted.size(); i++)
+        {
+            this.other.add(sorted.get(i), this.sequence);
+            this.entries.remove(sorted.get(i).getPath());
+        }
+    }
+
+    /**
+     * Returns the entries of this table, including the {@link #OTHER} entry.
+     * 
+     * @return A read-only {@link Collection} with the entries of this table.
+     */
+    public Collection<PathStatistics> entries()
+    {
+        final List<PathStatistics> values = new ArrayList<PathStatistics>(this.entries.values());
+        values.add(this.other);
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Returns the entries that consumed the most energy.
+     * 
+     * @param count
+     *            The maximum number of entries.
+     * @return The entries that consumed the most energy, the greatest first.
+     */
+    public List<PathStatistics> top(int count)
+    {
+        final List<PathStatistics> values = new ArrayList<PathStatistics>(this.entries());
+        Collections.sort(values, GREATEST_ENERGY);
+        return values.subList(0, Math.min(count, values.size()));
+    }
+}
@@ -23,6 +23,7 @@ import java.math.BigDecimal;
 
 import jenergy.agent.common.Cpu.CpuInfo;
 import jenergy.agent.common.util.time.Timer;
+import jenergy.profile.energy.EnergyAccount;
 
 public final class ThreadInfo implements Serializable, Cloneable
 {
@@ -56,6 +57,27 @@ public final class ThreadInfo implements Serializable, Cloneable
      */
     private BigDecimal power;
 
+    /**
+     * The energy consumed by this thread.
+     */
+    private final EnergyAccount energy;
+
+    /**
+     * The memory allocated by this thread.
+     */
+    private final MemoryInfo memory;
+
+    /**
+     * The id of the operating system's task that executes this thread or <code>-1</code> if it's unknown.
+     */
+    private volatile long taskId = -1;
+
+    /**
+     * The CPU time in nanoseconds of this thread when its profiler stopped or <code>-1</code> if it has not stopped. It's read by the energy models
+     * after the thread has died.
+     */
+    private volatile long finalCpuTime = -1;
+
     /**
      * The thread management info.
      */
@@ -72,6 +94,8 @@ public final class ThreadInfo implements Serializable, Cloneable
         this.id = tid;
         this.cpuInfo = new CpuInfo();
         this.times = new Times(tid);
+        this.energy = new EnergyAccount();
+        this.memory = new MemoryInfo();
     }
 
     /**
@@ -101,6 +125,44 @@ public final class ThreadInfo implements Serializable, Cloneable
         this.times = other.getTimes();
         this.timer = other.getTimer();
         this.power = other.getPower();
+        this.energy = other.getEnergy();
+        this.memory = other.getMemory();
+        this.taskId = other.getTaskId();
+        this.finalCpuTime = other.getFinalCpuTime();
+    }
+
+    /**
+     * @return the CPU time in nanoseconds of this thread when its profiler stopped or <code>-1</code> if it has not stopped
+     */
+    public long getFinalCpuTime()
+    {
+        return finalCpuTime;
+    }
+
+    /**
+     * @param nanos
+     *            the CPU time in nanoseconds of this thread when its profiler stopped
+     */
+    public void setFinalCpuTime(long nanos)
+    {
+        this.finalCpuTime = nanos;
+    }
+
+    /**
+     * @return the id of the operating system's task or <code>-1</code> if it's unknown
+     */
+    public long getTaskId()
+    {
+        return taskId;
+    }
+
+    /**
+     * @param osTaskId
+     *            the id of the operating system's task that executes this thread
+     */
+    public void setTaskId(long osTaskId)
+    {
+        this.taskId = osTaskId;
     }
 
     /**
@@ -137,6 +199,22 @@ public final class ThreadInfo implements Serializable, Cloneable
         this.power = newPowerValue;
     }
 
+    /**
+     * @return the energy
+     */
+    public EnergyAccount getEnergy()
+    {
+        return energy;
+    }
+
+    /**
+     * @return the memory
+     */
+    public MemoryInfo getMemory()
+    {
+        return memory;
+    }
+
     /**
      * @return the id
      */
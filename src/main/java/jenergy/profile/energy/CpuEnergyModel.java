@@ -0,0 +1,297 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.energy;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jenergy.agent.common.Cpu;
+import jenergy.profile.ThreadProfiler;
+import jenergy.profile.data.MethodInfo;
+import jenergy.profile.data.MethodStatistics;
+
+/**
+ * Converts the CPU time of the monitored threads into processor energy. Every evaluation charges each thread with the CPU time it used since the
+ * previous one times <em>jenergy.cpu.joules.per.second</em>, and apportions that energy to its methods by the CPU time they used without their
+ * callees in the interval: the methods that finished since the previous evaluation and the methods that are still running, so the long-running
+ * methods (e.g., the loop of a server) are charged while they run. The CPU time of the thread outside of the monitored methods is charged to its
+ * unattributed account. The power drawn by the idle processor (<em>jenergy.cpu.idle.power</em>) is not caused by the threads and is not charged
+ * to them. Both coefficients are fitted on the target machine by the calibration.
+ */
+public final class CpuEnergyModel implements EnergyModel
+{
+    /**
+     * The number of nanoseconds of a second.
+     */
+    private static final double NANOS_PER_SECOND = 1E9;
+
+    /**
+     * The CPU where the threads are executed.
+     */
+    private final Cpu cpu;
+
+    /**
+     * The energy in joules of a second of CPU time.
+     */
+    private final double joulesPerSecond;
+
+    /**
+     * The power in watts drawn by the idle processor.
+     */
+    private final double idlePower;
+
+    /**
+     * The JVM's thread management bean.
+     */
+    private final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+    /**
+     * The state of each thread in the last evaluation. The key is the thread id.
+     */
+    private final Map<Long, ThreadState> threads = new HashMap<Long, ThreadState>();
+
+    /**
+     * The energy in joules charged to the threads since the model was created.
+     */
+    private volatile double chargedEnergy;
+
+    /**
+     * The names of the methods of a thread that used CPU time since the previous evaluation. The list is reused among the evaluations.
+     */
+    private final List<String> methods = new ArrayList<String>();
+
+    /**
+     * The exclusive CPU time of each method of {@link #methods} since the previous evaluation.
+     */
+    private long[] methodTimes = new long[16];
+
+    /**
+     * The CPU time of a thread and of its running methods already charged by the previous evaluation.
+     */
+    private static final class ThreadState
+    {
+        /**
+         * The CPU time in nanoseconds of the thread in the previous evaluation.
+         */
+        private long cpuTime;
+
+        /**
+         * The exclusive CPU time in nanoseconds already charged to each method that was running in the previous evaluation.
+         */
+        private Map<MethodInfo, long[]> running = new IdentityHashMap<MethodInfo, long[]>();
+    }
+
+    /**
+     * Creates a {@link CpuEnergyModel} reading its coefficients from the system properties.
+     * 
+     * @param cpuInstance
+     *            The CPU where the threads are executed.
+     */
+    public CpuEnergyModel(Cpu cpuInstance)
+    {
+        this.cpu = cpuInstance;
+        this.joulesPerSecond = Double.parseDouble(System.getProperty("jenergy.cpu.joules.per.second", "12.0"));
+        this.idlePower = Double.parseDouble(System.getProperty("jenergy.cpu.idle.power", "0.0"));
+    }
+
+    @Override
+    public EnergyDimension dimension()
+    {
+        return EnergyDimension.CPU;
+    }
+
+    @Override
+    public void evaluate()
+    {
+        for (ThreadProfiler profiler : this.cpu.getThreadProfilers())
+        {
+            final long tid = profiler.getThreadInfo().getId();
+            long cpuTime = this.bean.getThreadCpuTime(tid);
+
+            if (cpuTime < 0)
+            {
+                // the thread has died, so its CPU time is the one kept when its profiler stopped
+                cpuTime = profiler.getThreadInfo().getFinalCpuTime();
+            }
+
+            if (cpuTime < 0)
+            {
+                this.threads.remove(tid);
+                continue;
+            }
+
+            ThreadState state = this.threads.get(tid);
+
+            if (state == null)
+            {
+                // the first reading starts from zero as the thread is monitored since it started
+                state = new ThreadState();
+                this.threads.put(tid, state);
+            }
+
+            if (cpuTime > state.cpuTime)
+            {
+                final long elapsed = cpuTime - state.cpuTime;
+                final double joules = elapsed / NANOS_PER_SECOND * this.joulesPerSecond;
+                profiler.getThreadInfo().getEnergy().add(EnergyDimension.CPU, joules);
+                this.chargedEnergy += joules;
+                this.chargeMethods(profiler, state, cpuTime, elapsed, joules);
+                state.cpuTime = cpuTime;
+            }
+        }
+    }
+
+    /**
+     * Apportions the CPU energy of a thread to its methods by the CPU time they used without their callees since the previous evaluation. The
+     * energy of the CPU time used outside of the monitored methods is charged to the unattributed account of the thread.
+     * 
+     * @param profiler
+     *            The profiler of the thread.
+     * @param state
+     *            The state of the thread in the previous evaluation.
+     * @param cpuTime
+     *            The current CPU time in nanoseconds of the thread.
+     * @param elapsed
+     *            The CPU time in nanoseconds used by the thread since the previous evaluation.
+     * @param joules
+     *            The CPU energy consumed by the thread since the previous evaluation.
+     */
+    private void chargeMethods(ThreadProfiler profiler, ThreadState state, long cpuTime, long elapsed, double joules)
+    {
+        // the stack is read before the statistics, so a method that finishes in between is not missed
+        final MethodInfo[] active = profiler.getActiveMethods();
+        final Map<MethodInfo, long[]> running = new IdentityHashMap<MethodInfo, long[]>(active.length * 2);
+        long total = 0;
+
+        for (int i = 0; i < active.length; i++)
+        {
+            final long start = active[i].getStartCpuTime();
+
+            if (start < 0)
+            {
+                continue;
+            }
+
+            // a method only runs until its callee started; the current method runs until now
+            final long callee = i + 1 < active.length ? active[i + 1].getStartCpuTime() : -1;
+            final long exclusive = Math.max(0, (callee >= 0 ? callee : cpuTime) - start - active[i].getCalleesCpuTime());
+            final long[] charged = state.running.remove(active[i]);
+            final long previous = charged != null ? charged[0] : 0;
+
+            total += this.add(active[i].getMethodName(), exclusive - previous);
+            running.put(active[i], new long[] {Math.max(exclusive, previous) });
+        }
+
+        // the methods that finished since the previous evaluation were already charged for the CPU time they used while running
+        final Map<String, long[]> finished = new HashMap<String, long[]>();
+
+        for (Map.Entry<MethodInfo, long[]> entry : state.running.entrySet())
+        {
+            final long[] charged = finished.get(entry.getKey().getMethodName());
+
+            if (charged == null)
+            {
+                finished.put(entry.getKey().getMethodName(), entry.getValue());
+            }
+            else
+            {
+                charged[0] += entry.getValue()[0];
+            }
+        }
+        state.running = running;
+
+        for (MethodStatistics statistics : profiler.getRunningStatistics().values())
+        {
+            final long[] charged = finished.get(statistics.getName());
+            total += this.add(statistics.getName(), statistics.sampleExclusiveCpuTime() - (charged != null ? charged[0] : 0));
+        }
+
+        // the times are measured independently of the thread's CPU time, so they are scaled down if they exceed it
+        final long divisor = Math.max(total, elapsed);
+
+        for (int i = 0; i < this.methods.size(); i++)
+        {
+            profiler.getMethodEnergy(this.methods.get(i)).add(EnergyDimension.CPU, joules * this.methodTimes[i] / divisor);
+        }
+        this.methods.clear();
+
+        if (total < elapsed)
+        {
+            profiler.getUnattributedEnergy().add(EnergyDimension.CPU, joules * (elapsed - total) / elapsed);
+        }
+    }
+
+    /**
+     * Adds the CPU time used by a method to the current apportionment.
+     * 
+     * @param method
+     *            The method's name.
+     * @param time
+     *            The exclusive CPU time in nanoseconds used by the method since the previous evaluation.
+     * @return The added time, i.e., zero if the given time is not positive.
+     */
+    private long add(String method, long time)
+    {
+        if (time <= 0)
+        {
+            return 0;
+        }
+
+        if (this.methods.size() == this.methodTimes.length)
+        {
+            this.methodTimes = Arrays.copyOf(this.methodTimes, this.methodTimes.length * 2);
+        }
+
+        this.methodTimes[this.methods.size()] = time;
+        this.methods.add(method);
+        return time;
+    }
+
+    /**
+     * Returns the energy in joules charged to the threads since the model was created.
+     * 
+     * @return The energy in joules charged to the threads since the model was created.
+     */
+    public double getChargedEnergy()
+    {
+        return chargedEnergy;
+    }
+
+    /**
+     * @return the joulesPerSecond
+     */
+    public double getJoulesPerSecond()
+    {
+        return joulesPerSecond;
+    }
+
+    /**
+     * @return the idlePower
+     */
+    public double getIdlePower()
+    {
+        return idlePower;
+    }
+}
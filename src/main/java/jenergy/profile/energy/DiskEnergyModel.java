@@ -0,0 +1,209 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.energy;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jenergy.agent.common.Cpu;
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.PathTable;
+
+/**
+ * Converts the bytes read and written by the methods into disk energy.
+ *
+ * The device of an activity is given by the longest mount point (system property <em>jenergy.disk.mounts</em>, a comma-separated list of
+ * <em>mount point:profile</em>) that contains its path. The activities without a known mount point use the profile defined by the system property
+ * <em>jenergy.disk.profile</em>.
+ *
+ * By default, only the I/O that reached the device is charged: the logical I/O of each interval is reconciled with the physical I/O of the
+ * process by a {@link PhysicalDiskIO}, so the reads served by the page cache do not consume disk energy.
+ *
+ * The I/O and the energy of all activities are also aggregated by canonical path in a {@link PathTable}, to show which files cost the most
+ * independently of the methods and threads that accessed them.
+ */
+public final class DiskEnergyModel extends IOEnergyModel
+{
+    /**
+     * The profile of the devices without a configured mount point.
+     */
+    private final DiskProfile defaultProfile;
+
+    /**
+     * The configured mount points sorted by their length in descending order.
+     */
+    private final List<String> mountPoints = new ArrayList<String>();
+
+    /**
+     * The profile of each configured mount point.
+     */
+    private final Map<String, DiskProfile> profiles = new HashMap<String, DiskProfile>();
+
+    /**
+     * The I/O and the energy aggregated by canonical path.
+     */
+    private final PathTable paths = new PathTable();
+
+    /**
+     * The reconciliation of the logical I/O with the physical I/O of the process. It's <code>null</code> when the logical I/O is charged.
+     */
+    private final PhysicalDiskIO physical;
+
+    /**
+     * Creates a {@link DiskEnergyModel} reading the device profiles from the system properties.
+     *
+     * @param cpuInstance
+     *            The CPU where the methods are executed.
+     */
+    public DiskEnergyModel(Cpu cpuInstance)
+    {
+        super(cpuInstance);
+        this.defaultProfile = DiskProfile.load(System.getProperty("jenergy.disk.profile", DiskProfile.SSD).trim());
+
+        for (String mount : System.getProperty("jenergy.disk.mounts", "").split(","))
+        {
+            int separator = mount.lastIndexOf(':');
+
+            if (separator > 0)
+            {
+                String path = mount.substring(0, separator).trim();
+                this.profiles.put(path, DiskProfile.load(mount.substring(separator + 1).trim()));
+                this.mountPoints.add(path);
+            }
+        }
+
+        Collections.sort(this.mountPoints, new Comparator<String>()
+        {
+            @Override
+            public int compare(String o1, String o2)
+            {
+                return o2.length() - o1.length();
+            }
+        });
+
+        this.physical = PhysicalDiskIO.openIfEnabled(cpuInstance, this.defaultProfile);
+    }
+
+    @Override
+    public EnergyDimension dimension()
+    {
+        return EnergyDimension.DISK;
+    }
+
+    @Override
+    protected IOProfile profile(IOInfo info)
+    {
+        return this.profileOf(info.getPath());
+    }
+
+    @Override
+    protected void collected(IOInfo info, long bytes)
+    {
+        if (this.physical != null)
+        {
+            this.physical.collect(info, bytes);
+        }
+    }
+
+    @Override
+    protected void apportion()
+    {
+        if (this.physical != null)
+        {
+            this.physical.apportion();
+        }
+    }
+
+    @Override
+    protected double share(IOInfo info)
+    {
+        return this.physical != null ? this.physical.share(info) : 1;
+    }
+
+    @Override
+    protected String keyOf(IOInfo info)
+    {
+        return PathTable.keyOf(info.getPath());
+    }
+
+    @Override
+    protected void charged(String key, IOInfo info, long bytes, long operations, long nanos, double joules)
+    {
+        this.paths.add(key, info.getActivityType(), bytes, operations, nanos, joules);
+    }
+
+    /**
+     * Returns the I/O and the energy of the process aggregated by canonical path.
+     *
+     * @return The I/O and the energy of the process aggregated by canonical path.
+     */
+    public PathTable getPathTable()
+    {
+        return paths;
+    }
+
+    /**
+     * Returns the energy consumed by the idle devices during the given time: the idle power of each configured mount point and of the default
+     * device, unless the root is a configured mount point. It's charged to the idle baseline by the {@link SystemEnergyModel}.
+     *
+     * @param nanos
+     *            The time in nanoseconds.
+     * @return The energy in joules consumed by the idle devices during the given time.
+     */
+    public double idleEnergy(long nanos)
+    {
+        double joules = this.profiles.containsKey(File.separator) ? 0 : this.defaultProfile.idleEnergy(nanos);
+
+        for (DiskProfile profile : this.profiles.values())
+        {
+            joules += profile.idleEnergy(nanos);
+        }
+        return joules;
+    }
+
+    /**
+     * Returns the profile of the device that stores the given path.
+     *
+     * @param path
+     *            The path of the file. It can be <code>null</code>.
+     * @return The profile of the device that stores the given path. It's never <code>null</code>.
+     */
+    public DiskProfile profileOf(String path)
+    {
+        if (path != null && !this.mountPoints.isEmpty())
+        {
+            String absolutePath = new File(path).getAbsolutePath();
+
+            for (String mountPoint : this.mountPoints)
+            {
+                if (absolutePath.equals(mountPoint) || absolutePath.startsWith(mountPoint.endsWith(File.separator) ? mountPoint : mountPoint
+                        + File.separator))
+                {
+                    return this.profiles.get(mountPoint);
+                }
+            }
+        }
+        return this.defaultProfile;
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.energy;
+
+import jenergy.profile.data.IOInfo.IOActivityType;
+
+/**
+ * The energy characteristics of a storage device. The power of a device is split in its idle power, which is consumed even when there is no I/O,
+ * and its active power, consumed while the device transfers data. The energy of an I/O activity is the energy per byte transferred plus a fixed
+ * overhead per operation. When the energy per byte is not configured it is derived from the difference between the active and the idle power and
+ * from the device throughput.
+ *
+ * The values of a profile named <em>name</em> are read from the system properties <em>jenergy.disk.name.*</em>. The profiles <em>ssd</em> and
+ * <em>hdd</em> have built-in defaults.
+ */
+public final class DiskProfile implements IOProfile
+{
+    /**
+     * The name of the solid-state drive profile.
+     */
+    public static final String SSD = "ssd";
+
+    /**
+     * The name of the hard disk drive profile.
+     */
+    public static final String HDD = "hdd";
+
+    /**
+     * The prefix of the system properties of the disk profiles.
+     */
+    private static final String PROPERTY_PREFIX = "jenergy.disk.";
+
+    /**
+     * The profile's name.
+     */
+    private final String name;
+
+    /**
+     * The power in watts consumed by the device when it is transferring data.
+     */
+    private final double activePower;
+
+    /**
+     * The power in watts consumed by the device when it is idle.
+     */
+    private final double idlePower;
+
+    /**
+     * The energy in joules to read one byte.
+     */
+    private final double readJoulesPerByte;
+
+    /**
+     * The energy in joules to write one byte.
+     */
+    private final double writeJoulesPerByte;
+
+    /**
+     * The energy overhead in joules of each I/O operation.
+     */
+    private final double operationJoules;
+
+    /**
+     * Creates a new {@link DiskProfile}.
+     *
+     * @param profileName
+     *            The profile's name.
+     * @param active
+     *            The power in watts consumed by the device when it is transferring data.
+     * @param idle
+     *            The power in watts consumed by the device when it is idle.
+     * @param readJoules
+     *            The energy in joules to read one byte.
+     * @param writeJoules
+     *            The energy in joules to write one byte.
+     * @param operationOverhead
+     *            The energy overhead in joules of each I/O operation.
+     */
+    public DiskProfile(String profileName, double active, double idle, double readJoules, double writeJoules, double operationOverhead)
+    {
+        this.name = profileName;
+        this.activePower = active;
+        this.idlePower = idle;
+        this.readJoulesPerByte = readJoules;
+        this.writeJoulesPerByte = writeJoules;
+        this.operationJoules = operationOverhead;
+    }
+
+    /**
+     * Returns the profile with the given name. The values not defined by the system properties are the defaults of the profile (or of the
+     * {@link #SSD} profile if the given name is not a built-in profile).
+     *
+     * @param profileName
+     *            The name of the profile. Might not be <code>null</code>.
+     * @return The profile with the given name.
+     */
+    public static DiskProfile load(String profileName)
+    {
+        final boolean hdd = HDD.equalsIgnoreCase(profileName);
+
+        final double active = property(profileName, "active.power", hdd ? 8.0 : 3.0);
+        final double idle = property(profileName, "idle.power", hdd ? 5.0 : 0.5);
+        final double throughput = property(profileName, "throughput", hdd ? 120e6 : 500e6);
+        final double joulesPerByte = (active - idle) / throughput;
+
+        return new DiskProfile(profileName, active, idle, property(profileName, "read.joules.per.byte", joulesPerByte), property(profileName,
+                "write.joules.per.byte", joulesPerByte), property(profileName, "operation.joules", hdd ? 5e-3 : 2e-5));
+    }
+
+    /**
+     * Returns the value of a property of a given profile.
+     *
+     * @param profileName
+     *            The profile's name.
+     * @param key
+     *            The name of the property.
+     * @param defaultValue
+     *            The value to be returned if the property is not defined.
+     * @return The value of the property or the default value if it is not defined.
+     */
+    private static double property(String profileName, String key, double defaultValue)
+    {
+        String value = System.getProperty(PROPERTY_PREFIX + profileName.toLowerCase() + "." + key);
+        return value == null || value.trim().isEmpty() ? defaultValue : Double.parseDouble(value.trim());
+    }
+
+    @Override
+    public double energy(IOActivityType type, long bytes, long operations)
+    {
+        double perByte = IOActivityType.WRITE.equals(type) ? this.writeJoulesPerByte : this.readJoulesPerByte;
+        return bytes * perByte + operations * this.operationJoules;
+    }
+
+    /**
+     * Returns the energy in joules consumed by the device when idle during the given time.
+     *
+     * @param nanos
+     *            The time in nanoseconds.
+     * @return The energy in joules consumed by the device when idle during the given time.
+     */
+    public double idleEnergy(long nanos)
+    {
+        return this.idlePower * nanos / 1e9;
+    }
+
+    /**
+     * @return the name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return the activePower
+     */
+    public double getActivePower()
+    {
+        return activePower;
+    }
+
+    /**
+     * @return the idlePower
+     */
+    public double getIdlePower()
+    {
+        return idlePower;
+    }
+
+    /**
+     * @return the readJoulesPerByte
+     */
+    public double getReadJoulesPerByte()
+    {
+        return readJoulesPerByte;
+    }
+
+    /**
+     * @return the writeJoulesPerByte
+     */
+    public double getWriteJoulesPerByte()
+    {
+        return writeJoulesPerByte;
+    }
+
+    /**
+     * @return the operationJoules
+     */
+    public double getOperationJoules()
+    {
+        return operationJoules;
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.energy;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Accumulates the energy (in joules) consumed by a method or a thread in each {@link EnergyDimension}. The values are updated without locks, so an
+ * account can be charged by the energy models while it is read by the reports.
+ */
+public final class EnergyAccount implements Serializable
+{
+    /**
+     * Serial code version <code>serialVersionUID</code> for serialization.
+     */
+    private static final long serialVersionUID = -3016469317409853745L;
+
+    /**
+     * The energy in joules of each {@link EnergyDimension}. Each value is stored as the raw bits of a <code>double</code>.
+     */
+    private final AtomicLongArray joules = new AtomicLongArray(EnergyDimension.values().length);
+
+    /**
+     * Adds the given energy to the given dimension.
+     *
+     * @param dimension
+     *            The dimension that consumed the energy. Might not be <code>null</code>.
+     * @param value
+     *            The energy in joules to be added. Values that are not greater than zero are ignored.
+     */
+    public void add(EnergyDimension dimension, double value)
+    {
+        if (value > 0)
+        {
+            final int index = dimension.ordinal();
+            long current;
+            long next;
+
+            do
+            {
+                current = this.joules.get(index);
+                next = Double.doubleToRawLongBits(Double.longBitsToDouble(current) + value);
+            }
+            while (!this.joules.compareAndSet(index, current, next));
+        }
+    }
+
+    /**
+     * Returns the energy in joules consumed by the given dimension.
+     *
+     * @param dimension
+     *            The dimension to return the energy. Might not be <code>null</code>.
+     * @return The energy in joules consumed by the given dimension.
+     */
+    public double get(EnergyDimension dimension)
+    {
+        return Double.longBitsToDouble(this.joules.get(dimension.ordinal()));
+    }
+
+    /**
+     * Returns the energy in joules consumed by all dimensions.
+     *
+     * @return The energy in joules consumed by all dimensions.
+     */
+    public double total()
+    {
+        double total = 0d;
+
+        for (EnergyDimension dimension : EnergyDimension.values())
+        {
+            total += this.get(dimension);
+        }
+        return total;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+
+        for (EnergyDimension dimension : EnergyDimension.values())
+        {
+            sb.append(sb.length() > 0 ? ", " : "").append(dimension.name().toLowerCase()).append(": ").append(this.get(dimension)).append("J");
+        }
+        return sb.toString();
+    }
+}
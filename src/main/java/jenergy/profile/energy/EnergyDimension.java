@@ -16,18 +16,30 @@
  *    Contributors:
  *          Alessandro Ferreira Leite - the initial implementation.
  */
-package jenergy.agent.common.util;
+package jenergy.profile.energy;
 
-public interface Observer
+/**
+ * The resources whose energy consumption is estimated by the profiler.
+ */
+public enum EnergyDimension
 {
+    /**
+     * The energy spent by the CPU to execute the code.
+     */
+    CPU,
+
+    /**
+     * The energy spent by the main memory (DRAM) to allocate, collect and keep the objects.
+     */
+    MEMORY,
+
+    /**
+     * The energy spent by the storage devices to read and write the data.
+     */
+    DISK,
 
     /**
-     * Notify the {@link Observer} about the new {@link Subject} state.
-     * 
-     * @param observable
-     *            The object that is observable.
-     * @param args
-     *            The value(s) that represent(s) the new state.
+     * The energy spent by the network interfaces to send and receive the data.
      */
-    void update(Subject observable, Object... args);
+    NETWORK;
 }
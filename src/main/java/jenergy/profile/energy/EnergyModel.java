@@ -0,0 +1,38 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.energy;
+
+/**
+ * A model that converts the activities observed by the profiler into energy. The models are evaluated periodically by the {@link EnergyMonitor}
+ * and each evaluation must only charge the energy consumed since the previous one.
+ */
+public interface EnergyModel
+{
+    /**
+     * Returns the dimension whose energy is estimated by this model.
+     *
+     * @return The dimension whose energy is estimated by this model.
+     */
+    EnergyDimension dimension();
+
+    /**
+     * Charges the methods and threads with the energy consumed since the last evaluation.
+     */
+    void evaluate();
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.energy;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+public class EnergyModels implements Iterable<EnergyModel>
+{
+    /**
+     * The registered models.
+     */
+    private final List<EnergyModel> models = new CopyOnWriteArrayList<EnergyModel>();
+
+    /**
+     * The energy consumed by the process that could not be attributed to any thread.
+     */
+    private final EnergyAccount unattributed = new EnergyAccount();
+
+    /**
+     * Registers a model to be evaluated.
+     *
+     * @param model
+     *            The model to be registered. Might not be <code>null</code>.
+     */
+    public void register(EnergyModel model)
+    {
+        if (model == null)
+        {
+            throw new NullPointerException("The model might not be null!");
+        }
+        this.models.add(model);
+    }
+
+    /**
+     * Returns the first registered model of the given type.
+     *
+     * @param type
+     *            The type of the model to be returned.
+     * @param <T>
+     *            The type of the model.
+     * @return The first registered model of the given type or <code>null</code> if there is no model of the given type.
+     */
+    public <T extends EnergyModel> T get(Class<T> type)
+    {
+        for (EnergyModel model : this.models)
+        {
+            if (type.isInstance(model))
+            {
+                return type.cast(model);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Evaluates all registered models. The evaluation is serialized because the models charge the energy consumed since their previous evaluation.
+     */
+    public synchronized void evaluate()
+    {
+        for (EnergyModel model : this.models)
+        {
+            model.evaluate();
+        }
+    }
+
+    /**
+     * Returns the energy consumed by the process that could not be attributed to any thread.
+     * 
+     * @return The energy consumed by the process that could not be attributed to any thread.
+     */
+    public EnergyAccount getUnattributedEnergy()
+    {
+        return unattributed;
+    }
+
+    @Override
+    public Iterator<EnergyModel> iterator()
+    {
+        return Collections.unmodifiableList(this.models).iterator();
+    }
+}
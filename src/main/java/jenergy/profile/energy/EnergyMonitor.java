@@ -0,0 +1,144 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.energy;
+
+import java.io.IOException;
+
+import jenergy.agent.common.jfr.FlightRecorderEvents;
+
+public final class EnergyMonitor extends Thread
+{
+    /**
+     * The interval in milliseconds between two evaluations of the models.
+     */
+    private final long interval;
+
+    /**
+     * The models to be evaluated.
+     */
+    private final EnergyModels models;
+
+    /**
+     * The reporter of the energy consumed in each interval. It's <code>null</code> when the interval reports are disabled.
+     */
+    private final IntervalReporter reporter;
+
+    /**
+     * The custom Flight Recorder events emitted after each evaluation. It's <code>null</code> when they are disabled.
+     */
+    private final FlightRecorderEvents events;
+
+    /**
+     * The number of evaluations of the models.
+     */
+    private volatile long evaluations;
+
+    /**
+     * The time in nanoseconds spent by this thread to evaluate the models and to write the reports.
+     */
+    private volatile long evaluationTime;
+
+    /**
+     * Creates a polling thread to evaluate the energy models.
+     *
+     * @param evaluationInterval
+     *            The interval in milliseconds between two evaluations.
+     * @param energyModels
+     *            The models to be evaluated. Might not be <code>null</code>.
+     * @param intervalReporter
+     *            The reporter of the energy consumed in each interval. It can be <code>null</code>.
+     * @param flightRecorderEvents
+     *            The custom Flight Recorder events emitted after each evaluation. It can be <code>null</code>.
+     */
+    public EnergyMonitor(final long evaluationInterval, EnergyModels energyModels, IntervalReporter intervalReporter,
+            FlightRecorderEvents flightRecorderEvents)
+    {
+        super("Energy monitor");
+        this.interval = evaluationInterval;
+        this.models = energyModels;
+        this.reporter = intervalReporter;
+        this.events = flightRecorderEvents;
+
+        setDaemon(true);
+    }
+
+    @Override
+    public void run()
+    {
+        while (!isInterrupted())
+        {
+            final long start = System.nanoTime();
+            models.evaluate();
+            report();
+            if (events != null)
+            {
+                events.sample();
+            }
+            evaluationTime += System.nanoTime() - start;
+            evaluations++;
+            try
+            {
+                sleep(interval);
+            }
+            catch (InterruptedException exception)
+            {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Writes the interval report, if it's enabled.
+     */
+    private void report()
+    {
+        if (reporter != null)
+        {
+            try
+            {
+                reporter.report();
+            }
+            catch (IOException exception)
+            {
+                System.err.printf("Could not write the energy report: %s%n", exception.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Returns the number of evaluations of the models.
+     * 
+     * @return The number of evaluations of the models.
+     */
+    public long getEvaluations()
+    {
+        return evaluations;
+    }
+
+    /**
+     * Returns the time in nanoseconds spent by this thread to evaluate the models and to write the reports, i.e., the overhead of the energy
+     * estimation outside of the application threads.
+     * 
+     * @return The time in nanoseconds spent to evaluate the models and to write the reports.
+     */
+    public long getEvaluationTime()
+    {
+        return evaluationTime;
+    }
+}
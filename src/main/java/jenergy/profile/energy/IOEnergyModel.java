@@ -0,0 +1,354 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.energy;
+
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import jenergy.agent.common.Cpu;
+import jenergy.agent.common.jfr.FlightRecorderEvents;
+import jenergy.profile.ThreadProfiler;
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.MethodInfo;
+
+/**
+ * The base of the models that convert the bytes transferred by the methods into energy. The {@link IOInfo} of each activity is tracked while it
+ * is open and every evaluation only charges the bytes and operations done since the previous one, so the activities of the methods are never
+ * scanned again. The energy is charged to the method that realized the activity and to its thread. The subclasses can scale the energy of the
+ * interval, e.g., by the I/O that actually reached the device, through {@link #collected(IOInfo, long)}, {@link #apportion()} and
+ * {@link #share(IOInfo)}. The charged activities are also emitted as Flight Recorder events when a recording has them enabled.
+ *
+ * The activities that are never closed (e.g., the streams that the application does not close) stop being tracked when they have been idle for
+ * longer than <em>jenergy.io.idle.timeout</em> milliseconds; their next operation tracks them again, so no byte is lost.
+ */
+public abstract class IOEnergyModel implements EnergyModel
+{
+    /**
+     * The CPU where the methods are executed.
+     */
+    private final Cpu cpu;
+
+    /**
+     * The activities that are still open or that have not been completely charged.
+     */
+    private final Queue<TrackedActivity> activities = new ConcurrentLinkedQueue<TrackedActivity>();
+
+    /**
+     * The time in nanoseconds after which an idle activity stops being tracked. Zero keeps the activities until they have been closed.
+     */
+    private final long idleTimeout;
+
+    /**
+     * @param cpuInstance
+     *            The CPU where the methods are executed.
+     */
+    protected IOEnergyModel(Cpu cpuInstance)
+    {
+        this.cpu = cpuInstance;
+        this.idleTimeout = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(System.getProperty("jenergy.io.idle.timeout", "60000").trim()));
+    }
+
+    /**
+     * Returns the CPU where the methods are executed.
+     *
+     * @return The CPU where the methods are executed.
+     */
+    protected Cpu getCpu()
+    {
+        return cpu;
+    }
+
+    /**
+     * Stores the last values of an {@link IOInfo} charged by the model. When the activity has been suspended because it was idle, running it tracks
+     * the activity again.
+     */
+    private final class TrackedActivity implements Runnable
+    {
+        /**
+         * The tracked I/O data.
+         */
+        private final IOInfo info;
+
+        /**
+         * The profile of the device of the activity.
+         */
+        private final IOProfile profile;
+
+        /**
+         * The number of bytes already charged.
+         */
+        private long bytes;
+
+        /**
+         * The number of operations already charged.
+         */
+        private long operations;
+
+        /**
+         * The latency in nanoseconds already charged.
+         */
+        private long latency;
+
+        /**
+         * The key of the activity given by {@link IOEnergyModel#keyOf(IOInfo)}. It's computed on the first charge.
+         */
+        private String key;
+
+        /**
+         * Whether the activity was closed when the current evaluation took its deltas.
+         */
+        private boolean closing;
+
+        /**
+         * The number of bytes to be charged by the current evaluation.
+         */
+        private long pendingBytes;
+
+        /**
+         * The number of operations to be charged by the current evaluation.
+         */
+        private long pendingOperations;
+
+        /**
+         * The latency in nanoseconds to be charged by the current evaluation.
+         */
+        private long pendingLatency;
+
+        /**
+         * The time in nanoseconds of the last evaluation that found operations of the activity.
+         */
+        private long lastActive = System.nanoTime();
+
+        /**
+         * @param ioInfo
+         *            The tracked I/O data.
+         * @param deviceProfile
+         *            The profile of the device of the activity.
+         */
+        TrackedActivity(IOInfo ioInfo, IOProfile deviceProfile)
+        {
+            this.info = ioInfo;
+            this.profile = deviceProfile;
+        }
+
+        @Override
+        public void run()
+        {
+            this.lastActive = System.nanoTime();
+            IOEnergyModel.this.activities.add(this);
+        }
+
+        /**
+         * Returns <code>true</code> if the activity has not done any operation since the current evaluation took its deltas.
+         * 
+         * @return <code>true</code> if the activity has not done any operation since the current evaluation took its deltas.
+         */
+        private boolean isUnchanged()
+        {
+            return this.info.getOperations() == this.operations && this.info.getBytes() == this.bytes;
+        }
+    }
+
+    /**
+     * Returns the profile of the device of the given activity. It's called once, when the activity starts being tracked.
+     *
+     * @param info
+     *            The I/O activity.
+     * @return The profile of the device of the given activity. It's never <code>null</code>.
+     */
+    protected abstract IOProfile profile(IOInfo info);
+
+    /**
+     * Returns the key that identifies the resource of the given activity, for instance its file. It's called by the evaluation, once per
+     * activity, so it can be expensive. This implementation returns an empty key.
+     *
+     * @param info
+     *            The I/O activity.
+     * @return The key of the resource of the given activity. It's never <code>null</code>.
+     */
+    protected String keyOf(IOInfo info)
+    {
+        return "";
+    }
+
+    /**
+     * Called by the evaluation for each activity that transferred bytes or did operations since the previous evaluation, before any of them is
+     * charged. This implementation does nothing.
+     *
+     * @param info
+     *            The I/O activity.
+     * @param bytes
+     *            The number of bytes transferred since the previous evaluation.
+     */
+    protected void collected(IOInfo info, long bytes)
+    {
+    }
+
+    /**
+     * Called by the evaluation after all activities have been {@link #collected(IOInfo, long) collected} and before they are charged. This
+     * implementation does nothing.
+     */
+    protected void apportion()
+    {
+    }
+
+    /**
+     * Returns the fraction of the modeled energy of the activity's operations that is charged by the current evaluation. This implementation
+     * charges all of it.
+     *
+     * @param info
+     *            The I/O activity.
+     * @return The fraction of the modeled energy that is charged. It's never negative.
+     */
+    protected double share(IOInfo info)
+    {
+        return 1;
+    }
+
+    /**
+     * Called by the evaluation after charging the operations done by an activity since the previous evaluation, including its last operations
+     * after it has been closed. This implementation does nothing.
+     *
+     * @param key
+     *            The key of the activity given by {@link #keyOf(IOInfo)}.
+     * @param info
+     *            The I/O activity.
+     * @param bytes
+     *            The number of bytes transferred since the previous evaluation.
+     * @param operations
+     *            The number of operations done since the previous evaluation.
+     * @param nanos
+     *            The latency in nanoseconds of the operations done since the previous evaluation.
+     * @param joules
+     *            The energy in joules charged for these operations.
+     */
+    protected void charged(String key, IOInfo info, long bytes, long operations, long nanos, double joules)
+    {
+    }
+
+    /**
+     * Starts tracking the given activity. The activity is charged until it has been closed.
+     *
+     * @param info
+     *            The activity to be charged. Might not be <code>null</code>.
+     */
+    public void track(IOInfo info)
+    {
+        this.activities.add(new TrackedActivity(info, this.profile(info)));
+    }
+
+    @Override
+    public void evaluate()
+    {
+        final long now = System.nanoTime();
+
+        // the first pass takes the deltas of all activities, so the models can apportion the energy of the interval before it's charged
+        for (TrackedActivity activity : this.activities)
+        {
+            // reads the state before the counters to not lose the bytes of the last operations
+            activity.closing = activity.info.isClosed();
+            final long bytes = activity.info.getBytes();
+            final long operations = activity.info.getOperations();
+            final long latency = activity.info.getLatency();
+
+            activity.pendingBytes = bytes - activity.bytes;
+            activity.pendingOperations = operations - activity.operations;
+            activity.pendingLatency = latency - activity.latency;
+            activity.bytes = bytes;
+            activity.operations = operations;
+            activity.latency = latency;
+
+            if (activity.pendingBytes != 0 || activity.pendingOperations != 0)
+            {
+                activity.lastActive = now;
+                this.collected(activity.info, activity.pendingBytes);
+            }
+        }
+
+        this.apportion();
+
+        final FlightRecorderEvents events = this.cpu.getFlightRecorderEvents();
+        final boolean recording = events != null && events.isRecordingIO();
+        final Iterator<TrackedActivity> iterator = this.activities.iterator();
+
+        while (iterator.hasNext())
+        {
+            final TrackedActivity activity = iterator.next();
+
+            if (activity.pendingBytes != 0 || activity.pendingOperations != 0)
+            {
+                final double joules = activity.profile.energy(activity.info.getActivityType(), activity.pendingBytes,
+                        activity.pendingOperations) * this.share(activity.info);
+                this.charge(activity.info, joules);
+
+                if (activity.key == null)
+                {
+                    activity.key = this.keyOf(activity.info);
+                }
+                this.charged(activity.key, activity.info, activity.pendingBytes, activity.pendingOperations, activity.pendingLatency, joules);
+
+                if (recording)
+                {
+                    events.io(activity.info, this.dimension(), activity.pendingBytes, activity.pendingOperations, activity.pendingLatency, joules);
+                }
+                activity.pendingBytes = 0;
+                activity.pendingOperations = 0;
+                activity.pendingLatency = 0;
+            }
+
+            // the activities tracked after the first pass are charged by the next evaluation
+            if (activity.closing)
+            {
+                iterator.remove();
+            }
+            else if (this.idleTimeout > 0 && now - activity.lastActive > this.idleTimeout)
+            {
+                // the activity is kept if an operation happened after its deltas were taken, unless that operation already tracks it again
+                activity.info.suspend(activity);
+
+                if (activity.isUnchanged() || !activity.info.cancelSuspension(activity))
+                {
+                    iterator.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the given energy to the method that realized the activity and to its thread.
+     *
+     * @param info
+     *            The I/O activity.
+     * @param joules
+     *            The energy in joules consumed by the activity.
+     */
+    private void charge(IOInfo info, double joules)
+    {
+        final MethodInfo method = info.getMethod();
+        final ThreadProfiler profiler = method != null ? this.cpu.getThreadProfiler(method.getThreadId()) : null;
+
+        if (profiler != null)
+        {
+            profiler.getMethodEnergy(method.getMethodName()).add(this.dimension(), joules);
+            profiler.getThreadInfo().getEnergy().add(this.dimension(), joules);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.energy;
+
+import jenergy.profile.data.IOInfo.IOActivityType;
+
+/**
+ * The energy characteristics of a device that transfers data, such as a disk or a network interface.
+ */
+public interface IOProfile
+{
+    /**
+     * Returns the energy in joules consumed by an I/O activity.
+     *
+     * @param type
+     *            The type of the I/O activity.
+     * @param bytes
+     *            The number of bytes read or written.
+     * @param operations
+     *            The number of I/O operations.
+     * @return The energy in joules consumed by the given I/O activity.
+     */
+    double energy(IOActivityType type, long bytes, long operations);
+}
@@ -0,0 +1,440 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.energy;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import jenergy.agent.common.Cpu;
+import jenergy.profile.ThreadProfiler;
+import jenergy.profile.data.Histogram;
+import jenergy.profile.data.IOHistograms;
+import jenergy.profile.data.PathStatistics;
+import jenergy.trace.TraceWriter;
+
+/**
+ * Writes the energy consumed by each thread and by each method during an interval as a time series, so long-running applications do not have to
+ * finish to be analysed. Each report only reads the running energy accounts and subtracts the values of the previous report; the profilers are
+ * neither stopped nor scanned.
+ *
+ * The report is a CSV file (system property <em>jenergy.report.file</em>) with one line per thread and per method that consumed energy in the
+ * interval: <em>timestamp,interval,thread,method,cpu,memory,disk,network,total</em>. The thread lines have the method <em>*</em> and the energy
+ * that a thread consumed outside of its monitored methods has the method <em>&lt;unattributed&gt;</em>. The lines of
+ * the thread <em>-1</em> have the energy of the JVM that could not be attributed to a thread (<em>*</em>) and, when the proc file system is
+ * available, the idle baseline (<em>&lt;idle&gt;</em>), the CPU energy of the other processes (<em>&lt;other processes&gt;</em>) and the whole
+ * JVM in all dimensions (<em>&lt;jvm&gt;</em>, the sum of its threads and of its unattributed energy). When the system property
+ * <em>jenergy.report.format</em> is <em>binary</em>, the same lines are appended as samples to a binary trace (see {@link TraceWriter}) instead,
+ * which is much smaller for long runs; the interval is given by the timestamps. The binary trace also gets the I/O histograms of each thread,
+ * method, path and direction that did I/O in the interval, so the I/O can be put on a timeline.
+ *
+ * When the system property <em>jenergy.report.io.file</em> is defined, each report also writes the latency and size histograms of the I/O of each
+ * method, path and direction, combined from the histograms of all threads since the start of the profiler: <em>timestamp,direction,method,path,
+ * operations,bytes,size.p50,size.p90,size.p99,size.max,timed.operations,latency.mean,latency.p50,latency.p90,latency.p99,latency.max</em>. The
+ * sizes are in bytes and the latencies in nanoseconds.
+ *
+ * When the system property <em>jenergy.report.paths.file</em> is defined, each report also writes the files whose I/O consumed the most disk
+ * energy since the start of the profiler (system property <em>jenergy.report.paths.top</em>), across all methods and threads: <em>timestamp,path,
+ * reads,bytes.read,writes,bytes.written,latency,disk</em>. The latency is in nanoseconds and the energy in joules.
+ */
+public final class IntervalReporter
+{
+    /**
+     * The header of the report.
+     */
+    private static final String HEADER = "timestamp,interval,thread,method,cpu,memory,disk,network,total";
+
+    /**
+     * The header of the I/O histograms report.
+     */
+    private static final String IO_HEADER = "timestamp,direction,method,path,operations,bytes,size.p50,size.p90,size.p99,size.max,"
+            + "timed.operations,latency.mean,latency.p50,latency.p90,latency.p99,latency.max";
+
+    /**
+     * The header of the paths report.
+     */
+    private static final String PATHS_HEADER = "timestamp,path,reads,bytes.read,writes,bytes.written,latency,disk";
+
+    /**
+     * The percentiles written in the I/O histograms report.
+     */
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    /**
+     * The minimum interval in milliseconds between two reports.
+     */
+    private final long interval;
+
+    /**
+     * The CPU where the threads are executed.
+     */
+    private final Cpu cpu;
+
+    /**
+     * The report's output. It's <code>null</code> when the report is written to a binary trace.
+     */
+    private final Writer writer;
+
+    /**
+     * The report's binary trace. It's <code>null</code> when the report is written as CSV.
+     */
+    private final TraceWriter trace;
+
+    /**
+     * The output of the I/O histograms report. It's <code>null</code> when the report is disabled.
+     */
+    private final Writer ioWriter;
+
+    /**
+     * The output of the paths report. It's <code>null</code> when the report is disabled.
+     */
+    private final Writer pathsWriter;
+
+    /**
+     * The number of paths written in each paths report.
+     */
+    private final int topPaths;
+
+    /**
+     * The values of each account in the previous report.
+     */
+    private final Map<EnergyAccount, double[]> previous = new IdentityHashMap<EnergyAccount, double[]>();
+
+    /**
+     * The energy consumed by an account in the interval. The array is reused by all lines.
+     */
+    private final double[] deltas = new double[EnergyDimension.values().length];
+
+    /**
+     * The number of operations of each I/O histogram already written to the binary trace.
+     */
+    private final Map<IOHistograms, Long> tracedOperations = new IdentityHashMap<IOHistograms, Long>();
+
+    /**
+     * The time in milliseconds of the previous report.
+     */
+    private long lastReport;
+
+    /**
+     * Creates an {@link IntervalReporter} that writes to the given file.
+     * 
+     * @param reportInterval
+     *            The minimum interval in milliseconds between two reports.
+     * @param cpuInstance
+     *            The CPU where the threads are executed.
+     * @param file
+     *            The path of the report's file.
+     * @param ioFile
+     *            The path of the I/O histograms report's file. It can be <code>null</code> to disable this report.
+     * @param pathsFile
+     *            The path of the paths report's file. It can be <code>null</code> to disable this report.
+     * @throws IOException
+     *             If a file cannot be created.
+     */
+    public IntervalReporter(long reportInterval, Cpu cpuInstance, String file, String ioFile, String pathsFile) throws IOException
+    {
+        this.interval = reportInterval;
+        this.cpu = cpuInstance;
+        if ("binary".equalsIgnoreCase(System.getProperty("jenergy.report.format", "csv").trim()))
+        {
+            this.trace = new TraceWriter(file);
+            this.writer = null;
+        }
+        else
+        {
+            this.trace = null;
+            this.writer = createWriter(file, HEADER);
+        }
+        this.ioWriter = ioFile != null ? createWriter(ioFile, IO_HEADER) : null;
+        this.pathsWriter = pathsFile != null ? createWriter(pathsFile, PATHS_HEADER) : null;
+        this.topPaths = Integer.parseInt(System.getProperty("jenergy.report.paths.top", "50"));
+        this.lastReport = System.currentTimeMillis();
+    }
+
+    /**
+     * Creates a report's file and writes its header.
+     * 
+     * @param file
+     *            The path of the file.
+     * @param header
+     *            The header of the report.
+     * @return The writer of the file.
+     * @throws IOException
+     *             If the file cannot be created.
+     */
+    private static Writer createWriter(String file, String header) throws IOException
+    {
+        final Writer output = new BufferedWriter(new FileWriter(file));
+        output.write(header);
+        output.write('\n');
+        output.flush();
+        return output;
+    }
+
+    /**
+     * Writes the report of the current interval if it has elapsed. It must be called after the evaluation of the energy models.
+     * 
+     * @throws IOException
+     *             If the report cannot be written.
+     */
+    public void report() throws IOException
+    {
+        final long now = System.currentTimeMillis();
+        final long elapsed = now - this.lastReport;
+
+        if (elapsed < this.interval)
+        {
+            return;
+        }
+
+        for (ThreadProfiler profiler : this.cpu.getThreadProfilers())
+        {
+            final long tid = profiler.getThreadInfo().getId();
+            this.write(now, elapsed, tid, "*", profiler.getThreadInfo().getEnergy());
+            this.write(now, elapsed, tid, "<unattributed>", profiler.getUnattributedEnergy());
+
+            for (Map.Entry<String, EnergyAccount> method : profiler.getMethodsEnergy().entrySet())
+            {
+                this.write(now, elapsed, tid, method.getKey(), method.getValue());
+            }
+        }
+
+        this.write(now, elapsed, -1, "*", this.cpu.getEnergyModels().getUnattributedEnergy());
+
+        final SystemEnergyModel system = this.cpu.getEnergyModels().get(SystemEnergyModel.class);
+
+        if (system != null)
+        {
+            this.write(now, elapsed, -1, "<idle>", system.getIdleEnergy());
+            this.write(now, elapsed, -1, "<other processes>", system.getOtherProcessesEnergy());
+            this.write(now, elapsed, -1, "<jvm>", system.getProcessEnergy());
+        }
+
+        if (this.trace != null)
+        {
+            this.traceHistograms(now);
+            this.trace.flush();
+        }
+        else
+        {
+            this.writer.flush();
+        }
+
+        if (this.ioWriter != null)
+        {
+            this.writeHistograms(now);
+        }
+
+        final DiskEnergyModel disk = this.cpu.getEnergyModels().get(DiskEnergyModel.class);
+
+        if (this.pathsWriter != null && disk != null)
+        {
+            this.writePaths(now, disk);
+        }
+        this.lastReport = now;
+    }
+
+    /**
+     * Appends to the binary trace the I/O histograms of the threads that did I/O since the previous report.
+     * 
+     * @param timestamp
+     *            The time of the report.
+     * @throws IOException
+     *             If the histograms cannot be written.
+     */
+    private void traceHistograms(long timestamp) throws IOException
+    {
+        for (ThreadProfiler profiler : this.cpu.getThreadProfilers())
+        {
+            for (IOHistograms histograms : profiler.getIOHistograms())
+            {
+                final long operations = histograms.getSize().count();
+                final Long traced = this.tracedOperations.get(histograms);
+
+                if (traced == null || traced.longValue() != operations)
+                {
+                    this.trace.io(timestamp, histograms);
+                    this.tracedOperations.put(histograms, operations);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the I/O histograms of all threads combined by method, path and direction.
+     * 
+     * @param timestamp
+     *            The time of the report.
+     * @throws IOException
+     *             If the report cannot be written.
+     */
+    private void writeHistograms(long timestamp) throws IOException
+    {
+        final Map<String, IOHistograms> combined = new HashMap<String, IOHistograms>();
+
+        for (ThreadProfiler profiler : this.cpu.getThreadProfilers())
+        {
+            for (IOHistograms histograms : profiler.getIOHistograms())
+            {
+                final String key = histograms.key();
+                IOHistograms total = combined.get(key);
+
+                if (total == null)
+                {
+                    total = new IOHistograms(histograms.getMethod(), histograms.getPath(), histograms.getDirection(), -1);
+                    combined.put(key, total);
+                }
+                total.add(histograms);
+            }
+        }
+
+        for (IOHistograms histograms : combined.values())
+        {
+            final StringBuilder line = new StringBuilder();
+            line.append(timestamp).append(',').append(histograms.getDirection()).append(',');
+            line.append(quote(histograms.getMethod())).append(',').append(quote(histograms.getPath())).append(',');
+            line.append(histograms.getSize().count()).append(',').append(histograms.getSize().sum());
+            appendPercentiles(line, histograms.getSize());
+            line.append(',').append(histograms.getLatency().count()).append(',').append(histograms.getLatency().mean());
+            appendPercentiles(line, histograms.getLatency());
+            line.append('\n');
+
+            this.ioWriter.write(line.toString());
+        }
+        this.ioWriter.flush();
+    }
+
+    /**
+     * Writes the files whose I/O consumed the most disk energy.
+     * 
+     * @param timestamp
+     *            The time of the report.
+     * @param disk
+     *            The disk energy model.
+     * @throws IOException
+     *             If the report cannot be written.
+     */
+    private void writePaths(long timestamp, DiskEnergyModel disk) throws IOException
+    {
+        for (PathStatistics path : disk.getPathTable().top(this.topPaths))
+        {
+            if (path.getReads() + path.getWrites() > 0)
+            {
+                final StringBuilder line = new StringBuilder();
+                line.append(timestamp).append(',').append(quote(path.getPath())).append(',');
+                line.append(path.getReads()).append(',').append(path.getBytesRead()).append(',');
+                line.append(path.getWrites()).append(',').append(path.getBytesWritten()).append(',');
+                line.append(path.getLatency()).append(',').append(path.getEnergy()).append('\n');
+
+                this.pathsWriter.write(line.toString());
+            }
+        }
+        this.pathsWriter.flush();
+    }
+
+    /**
+     * Appends the percentiles and the maximum of a histogram to a line of the report.
+     * 
+     * @param line
+     *            The line of the report.
+     * @param histogram
+     *            The histogram.
+     */
+    private static void appendPercentiles(StringBuilder line, Histogram histogram)
+    {
+        for (double percentile : PERCENTILES)
+        {
+            line.append(',').append(histogram.percentile(percentile));
+        }
+        line.append(',').append(histogram.max());
+    }
+
+    /**
+     * Returns a value quoted as a CSV field.
+     * 
+     * @param value
+     *            The value. It can be <code>null</code>.
+     * @return The quoted value or an empty field if the value is <code>null</code>.
+     */
+    private static String quote(String value)
+    {
+        return value == null ? "" : '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Writes the energy consumed by an account since the previous report, if any.
+     * 
+     * @param timestamp
+     *            The time of the report.
+     * @param elapsed
+     *            The duration of the interval in milliseconds.
+     * @param tid
+     *            The thread id.
+     * @param method
+     *            The method's name.
+     * @param account
+     *            The energy account.
+     * @throws IOException
+     *             If the line cannot be written.
+     */
+    private void write(long timestamp, long elapsed, long tid, String method, EnergyAccount account) throws IOException
+    {
+        final EnergyDimension[] dimensions = EnergyDimension.values();
+        double[] last = this.previous.get(account);
+
+        if (last == null)
+        {
+            last = new double[dimensions.length];
+            this.previous.put(account, last);
+        }
+
+        double total = 0;
+
+        for (int i = 0; i < dimensions.length; i++)
+        {
+            final double value = account.get(dimensions[i]);
+            this.deltas[i] = value - last[i];
+            last[i] = value;
+            total += this.deltas[i];
+        }
+
+        if (total > 0 && this.trace != null)
+        {
+            this.trace.sample(timestamp, tid, method, this.deltas);
+        }
+        else if (total > 0)
+        {
+            final StringBuilder line = new StringBuilder();
+            line.append(timestamp).append(',').append(elapsed).append(',').append(tid).append(',');
+            line.append(quote(method));
+
+            for (double delta : this.deltas)
+            {
+                line.append(',').append(delta);
+            }
+            line.append(',').append(total).append('\n');
+
+            this.writer.write(line.toString());
+        }
+    }
+}
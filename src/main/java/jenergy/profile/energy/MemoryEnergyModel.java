@@ -0,0 +1,260 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.energy;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import jenergy.agent.common.Cpu;
+import jenergy.profile.ThreadProfiler;
+import jenergy.profile.data.MemoryInfo;
+
+/**
+ * Converts the memory activity of the JVM into DRAM energy. Every evaluation reads the bytes allocated by each thread and by each method since the
+ * previous one, the time spent by the garbage collectors and the heap in use. The energy has three parts:
+ *
+ * <ul>
+ * <li>the allocated bytes times <em>jenergy.memory.joules.per.byte</em>;</li>
+ * <li>the GC time times <em>jenergy.memory.gc.power</em> (watts);</li>
+ * <li>the used heap times the elapsed time times <em>jenergy.memory.resident.watts.per.gb</em>.</li>
+ * </ul>
+ *
+ * The GC and the residency energy are apportioned to the threads and methods according to their share of the allocated bytes, as the allocations
+ * are what make the collector run and the heap grow. When nothing has been allocated by the monitored threads it is charged as unattributed energy.
+ * There are no per-allocation hooks: the allocations of the methods are measured by the thread allocation counter at their entry and exit.
+ */
+public final class MemoryEnergyModel implements EnergyModel
+{
+    /**
+     * The number of bytes of a gigabyte.
+     */
+    private static final double BYTES_PER_GB = 1024D * 1024D * 1024D;
+
+    /**
+     * The number of nanoseconds of a second.
+     */
+    private static final double NANOS_PER_SECOND = 1E9;
+
+    /**
+     * The CPU where the methods are executed.
+     */
+    private final Cpu cpu;
+
+    /**
+     * The energy in joules to allocate (and later to initialize and to copy) a byte.
+     */
+    private final double joulesPerByte;
+
+    /**
+     * The power in watts drawn by the memory while the garbage collectors are running.
+     */
+    private final double gcPower;
+
+    /**
+     * The power in watts to keep a gigabyte of live heap.
+     */
+    private final double residentWattsPerGb;
+
+    /**
+     * The JVM's thread management bean. It's <code>null</code> when the allocated bytes per thread are not available.
+     */
+    private final com.sun.management.ThreadMXBean threadBean;
+
+    /**
+     * The JVM's memory management bean.
+     */
+    private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+
+    /**
+     * The JVM's garbage collectors.
+     */
+    private final List<GarbageCollectorMXBean> collectors = ManagementFactory.getGarbageCollectorMXBeans();
+
+    /**
+     * The accumulated GC time in milliseconds read in the last evaluation.
+     */
+    private long lastGcTime;
+
+    /**
+     * The time in nanoseconds of the last evaluation.
+     */
+    private long lastEvaluation;
+
+    /**
+     * The allocations read during an evaluation. The entries are reused among the evaluations.
+     */
+    private final List<Allocation> allocations = new ArrayList<Allocation>();
+
+    /**
+     * Creates a {@link MemoryEnergyModel} reading its coefficients from the system properties.
+     *
+     * @param cpuInstance
+     *            The CPU where the methods are executed.
+     */
+    public MemoryEnergyModel(Cpu cpuInstance)
+    {
+        this.cpu = cpuInstance;
+        this.joulesPerByte = Double.parseDouble(System.getProperty("jenergy.memory.joules.per.byte", "3E-10"));
+        this.gcPower = Double.parseDouble(System.getProperty("jenergy.memory.gc.power", "10.0"));
+        this.residentWattsPerGb = Double.parseDouble(System.getProperty("jenergy.memory.resident.watts.per.gb", "0.375"));
+
+        final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        this.threadBean = bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported() ? (com.sun.management.ThreadMXBean) bean : null;
+
+        this.lastGcTime = this.gcTime();
+        this.lastEvaluation = System.nanoTime();
+    }
+
+    /**
+     * The bytes allocated by a thread or a method since the previous evaluation and the account to be charged.
+     */
+    private static final class Allocation
+    {
+        /**
+         * The account to be charged.
+         */
+        private EnergyAccount account;
+
+        /**
+         * The number of bytes allocated since the previous evaluation.
+         */
+        private long bytes;
+    }
+
+    @Override
+    public EnergyDimension dimension()
+    {
+        return EnergyDimension.MEMORY;
+    }
+
+    @Override
+    public void evaluate()
+    {
+        final long now = System.nanoTime();
+        final long gcTime = this.gcTime();
+        final double seconds = (now - this.lastEvaluation) / NANOS_PER_SECOND;
+
+        final double gcEnergy = (gcTime - this.lastGcTime) / 1000D * this.gcPower;
+        final double residentEnergy = this.memoryBean.getHeapMemoryUsage().getUsed() / BYTES_PER_GB * this.residentWattsPerGb * seconds;
+
+        this.lastGcTime = gcTime;
+        this.lastEvaluation = now;
+
+        int count = 0;
+        long total = 0;
+
+        for (ThreadProfiler profiler : this.cpu.getThreadProfilers())
+        {
+            final MemoryInfo memory = profiler.getThreadInfo().getMemory();
+
+            if (this.threadBean != null && this.threadBean.isThreadAllocatedMemoryEnabled())
+            {
+                memory.setAllocatedBytes(this.threadBean.getThreadAllocatedBytes(profiler.getThreadInfo().getId()));
+            }
+
+            long bytes = memory.sample();
+
+            if (bytes > 0)
+            {
+                total += bytes;
+                this.allocation(count++, profiler.getThreadInfo().getEnergy(), bytes);
+            }
+
+            for (Map.Entry<String, MemoryInfo> entry : profiler.getMethodsMemory().entrySet())
+            {
+                bytes = entry.getValue().sample();
+
+                if (bytes > 0)
+                {
+                    this.allocation(count++, profiler.getMethodEnergy(entry.getKey()), bytes);
+                }
+            }
+        }
+
+        final double overhead = gcEnergy + residentEnergy;
+
+        if (total == 0)
+        {
+            this.cpu.getEnergyModels().getUnattributedEnergy().add(EnergyDimension.MEMORY, overhead);
+        }
+
+        for (int i = 0; i < count; i++)
+        {
+            final Allocation allocation = this.allocations.get(i);
+            double joules = allocation.bytes * this.joulesPerByte;
+
+            if (total > 0)
+            {
+                joules += overhead * allocation.bytes / total;
+            }
+
+            allocation.account.add(EnergyDimension.MEMORY, joules);
+            allocation.account = null;
+        }
+    }
+
+    /**
+     * Stores the allocation of the given index.
+     *
+     * @param index
+     *            The index of the allocation in this evaluation.
+     * @param account
+     *            The account to be charged.
+     * @param bytes
+     *            The number of bytes allocated since the previous evaluation.
+     */
+    private void allocation(int index, EnergyAccount account, long bytes)
+    {
+        if (index == this.allocations.size())
+        {
+            this.allocations.add(new Allocation());
+        }
+
+        final Allocation allocation = this.allocations.get(index);
+        allocation.account = account;
+        allocation.bytes = bytes;
+    }
+
+    /**
+     * Returns the accumulated time in milliseconds spent by the garbage collectors.
+     *
+     * @return The accumulated time in milliseconds spent by the garbage collectors.
+     */
+    private long gcTime()
+    {
+        long time = 0;
+
+        for (GarbageCollectorMXBean collector : this.collectors)
+        {
+            final long collectionTime = collector.getCollectionTime();
+
+            if (collectionTime > 0)
+            {
+                time += collectionTime;
+            }
+        }
+        return time;
+    }
+}
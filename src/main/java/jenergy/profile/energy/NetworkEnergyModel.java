@@ -0,0 +1,95 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.energy;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import jenergy.agent.common.Cpu;
+import jenergy.profile.data.IOInfo;
+
+/**
+ * Converts the bytes sent and received by the methods into network energy. The activities whose remote host is a loopback address use the profile
+ * defined by the system property <em>jenergy.network.loopback.profile</em>; the other ones use the profile defined by
+ * <em>jenergy.network.profile</em>.
+ */
+public final class NetworkEnergyModel extends IOEnergyModel
+{
+    /**
+     * The profile of the network interface.
+     */
+    private final NetworkProfile profile;
+
+    /**
+     * The profile of the loopback interface.
+     */
+    private final NetworkProfile loopbackProfile;
+
+    /**
+     * Creates a {@link NetworkEnergyModel} reading the profiles from the system properties.
+     *
+     * @param cpuInstance
+     *            The CPU where the methods are executed.
+     */
+    public NetworkEnergyModel(Cpu cpuInstance)
+    {
+        super(cpuInstance);
+        this.profile = NetworkProfile.load(System.getProperty("jenergy.network.profile", NetworkProfile.ETHERNET).trim());
+        this.loopbackProfile = NetworkProfile.load(System.getProperty("jenergy.network.loopback.profile", NetworkProfile.LOOPBACK).trim());
+    }
+
+    @Override
+    public EnergyDimension dimension()
+    {
+        return EnergyDimension.NETWORK;
+    }
+
+    @Override
+    protected IOProfile profile(IOInfo info)
+    {
+        return this.profileOf(info.getPath());
+    }
+
+    /**
+     * Returns the profile of the interface used to reach the given host.
+     *
+     * @param address
+     *            The IP address of the remote host. It can be <code>null</code>.
+     * @return The profile of the interface used to reach the given host. It's never <code>null</code>.
+     */
+    public NetworkProfile profileOf(String address)
+    {
+        if (address != null && !address.isEmpty())
+        {
+            try
+            {
+                // the address is a literal, so there is no name lookup
+                if (InetAddress.getByName(address).isLoopbackAddress())
+                {
+                    return this.loopbackProfile;
+                }
+            }
+            catch (UnknownHostException exception)
+            {
+                return this.profile;
+            }
+        }
+        return this.profile;
+    }
+}
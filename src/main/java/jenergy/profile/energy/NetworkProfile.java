@@ -0,0 +1,184 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.energy;
+
+import jenergy.profile.data.IOInfo.IOActivityType;
+
+/**
+ * The energy characteristics of a network interface. The energy of a network activity is the energy per byte sent or received plus a fixed
+ * overhead per operation (e.g., the system call and the packet headers).
+ *
+ * The values of a profile named <em>name</em> are read from the system properties <em>jenergy.network.name.*</em>. The profiles
+ * <em>ethernet</em>, <em>wifi</em> and <em>loopback</em> have built-in defaults.
+ */
+public final class NetworkProfile implements IOProfile
+{
+    /**
+     * The name of the wired network profile.
+     */
+    public static final String ETHERNET = "ethernet";
+
+    /**
+     * The name of the wireless network profile.
+     */
+    public static final String WIFI = "wifi";
+
+    /**
+     * The name of the loopback interface profile.
+     */
+    public static final String LOOPBACK = "loopback";
+
+    /**
+     * The prefix of the system properties of the network profiles.
+     */
+    private static final String PROPERTY_PREFIX = "jenergy.network.";
+
+    /**
+     * The profile's name.
+     */
+    private final String name;
+
+    /**
+     * The energy in joules to send one byte.
+     */
+    private final double sendJoulesPerByte;
+
+    /**
+     * The energy in joules to receive one byte.
+     */
+    private final double receiveJoulesPerByte;
+
+    /**
+     * The energy overhead in joules of each operation.
+     */
+    private final double operationJoules;
+
+    /**
+     * Creates a new {@link NetworkProfile}.
+     *
+     * @param profileName
+     *            The profile's name.
+     * @param sendJoules
+     *            The energy in joules to send one byte.
+     * @param receiveJoules
+     *            The energy in joules to receive one byte.
+     * @param operationOverhead
+     *            The energy overhead in joules of each operation.
+     */
+    public NetworkProfile(String profileName, double sendJoules, double receiveJoules, double operationOverhead)
+    {
+        this.name = profileName;
+        this.sendJoulesPerByte = sendJoules;
+        this.receiveJoulesPerByte = receiveJoules;
+        this.operationJoules = operationOverhead;
+    }
+
+    /**
+     * Returns the profile with the given name. The values not defined by the system properties are the defaults of the profile (or of the
+     * {@link #ETHERNET} profile if the given name is not a built-in profile).
+     *
+     * @param profileName
+     *            The name of the profile. Might not be <code>null</code>.
+     * @return The profile with the given name.
+     */
+    public static NetworkProfile load(String profileName)
+    {
+        final double send;
+        final double receive;
+        final double operation;
+
+        if (WIFI.equalsIgnoreCase(profileName))
+        {
+            send = 5e-8;
+            receive = 4e-8;
+            operation = 1e-4;
+        }
+        else if (LOOPBACK.equalsIgnoreCase(profileName))
+        {
+            send = 1e-10;
+            receive = 1e-10;
+            operation = 1e-6;
+        }
+        else
+        {
+            send = 8e-9;
+            receive = 6e-9;
+            operation = 5e-6;
+        }
+
+        return new NetworkProfile(profileName, property(profileName, "send.joules.per.byte", send), property(profileName,
+                "receive.joules.per.byte", receive), property(profileName, "operation.joules", operation));
+    }
+
+    /**
+     * Returns the value of a property of a given profile.
+     *
+     * @param profileName
+     *            The profile's name.
+     * @param key
+     *            The name of the property.
+     * @param defaultValue
+     *            The value to be returned if the property is not defined.
+     * @return The value of the property or the default value if it is not defined.
+     */
+    private static double property(String profileName, String key, double defaultValue)
+    {
+        String value = System.getProperty(PROPERTY_PREFIX + profileName.toLowerCase() + "." + key);
+        return value == null || value.trim().isEmpty() ? defaultValue : Double.parseDouble(value.trim());
+    }
+
+    @Override
+    public double energy(IOActivityType type, long bytes, long operations)
+    {
+        double perByte = IOActivityType.WRITE.equals(type) ? this.sendJoulesPerByte : this.receiveJoulesPerByte;
+        return bytes * perByte + operations * this.operationJoules;
+    }
+
+    /**
+     * @return the name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return the sendJoulesPerByte
+     */
+    public double getSendJoulesPerByte()
+    {
+        return sendJoulesPerByte;
+    }
+
+    /**
+     * @return the receiveJoulesPerByte
+     */
+    public double getReceiveJoulesPerByte()
+    {
+        return receiveJoulesPerByte;
+    }
+
+    /**
+     * @return the operationJoules
+     */
+    public double getOperationJoules()
+    {
+        return operationJoules;
+    }
+}
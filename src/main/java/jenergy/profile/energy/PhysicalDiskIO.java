@@ -0,0 +1,360 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.energy;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import jenergy.agent.common.Cpu;
+import jenergy.agent.common.util.ProcIO;
+import jenergy.profile.ThreadProfiler;
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.IOInfo.IOActivityType;
+import jenergy.profile.data.MethodInfo;
+
+/**
+ * Reconciles the logical I/O seen by the profiler with the physical I/O of the process. The bytes read and written by the methods can be served
+ * by the page cache, but the energy is consumed by the I/O that reaches the device. On each evaluation of the {@link DiskEnergyModel}, the bytes
+ * read from and written to the storage by each thread (<em>/proc/self/task/&lt;tid&gt;/io</em>) are apportioned to its activities according to
+ * their share of the thread's logical I/O in the interval. The physical I/O of the process (<em>/proc/self/io</em>) that was not done by a
+ * thread with a known task is apportioned to the remaining activities or, when there is none, charged as unattributed.
+ *
+ * The physical accounting is enabled by the system property <em>jenergy.disk.accounting</em> (<em>physical</em> or <em>logical</em>) and
+ * requires the proc file system. Instances of this class must only be used by the energy monitor.
+ */
+public final class PhysicalDiskIO
+{
+    /**
+     * The number of I/O types.
+     */
+    private static final int TYPES = IOActivityType.values().length;
+
+    /**
+     * The physical I/O of a thread and the logical I/O of its activities in the current interval.
+     */
+    private static final class TaskIO
+    {
+        /**
+         * The I/O counters of the thread's task. It's <code>null</code> when the task is unknown or cannot be read.
+         */
+        private ProcIO io;
+
+        /**
+         * Whether {@link #io} has been read in a previous evaluation, so its deltas cover the whole interval.
+         */
+        private boolean measured;
+
+        /**
+         * The bytes read from the storage in the previous evaluation.
+         */
+        private long lastReadBytes;
+
+        /**
+         * The bytes written to the storage in the previous evaluation.
+         */
+        private long lastWriteBytes;
+
+        /**
+         * The logical bytes of the activities in the current interval, indexed by the {@link IOActivityType} ordinal.
+         */
+        private final long[] logical = new long[TYPES];
+
+        /**
+         * The fraction of the logical I/O that reached the device, indexed by the {@link IOActivityType} ordinal.
+         */
+        private final double[] factor = new double[TYPES];
+    }
+
+    /**
+     * The CPU where the threads are executed.
+     */
+    private final Cpu cpu;
+
+    /**
+     * The profile used to convert the physical I/O without logical I/O into energy.
+     */
+    private final DiskProfile profile;
+
+    /**
+     * The I/O counters of the process.
+     */
+    private final ProcIO process;
+
+    /**
+     * The bytes read from the storage by the process in the previous evaluation.
+     */
+    private long lastReadBytes;
+
+    /**
+     * The bytes written to the storage by the process in the previous evaluation.
+     */
+    private long lastWriteBytes;
+
+    /**
+     * The I/O of the threads. The key is the thread id; the activities without a method use the key <code>-1</code>.
+     */
+    private final Map<Long, TaskIO> tasks = new HashMap<Long, TaskIO>();
+
+    /**
+     * The physical bytes not done by a measured task in the current interval. The array is reused by all evaluations.
+     */
+    private final long[] leftover = new long[TYPES];
+
+    /**
+     * The logical bytes of the activities of the unmeasured tasks in the current interval. The array is reused by all evaluations.
+     */
+    private final long[] pooled = new long[TYPES];
+
+    /**
+     * Whether the last reading of the process counters failed. In this case, the logical I/O is charged.
+     */
+    private boolean unavailable;
+
+    /**
+     * @param cpuInstance
+     *            The CPU where the threads are executed.
+     * @param diskProfile
+     *            The profile used to convert the physical I/O without logical I/O into energy.
+     * @param processIO
+     *            The I/O counters of the process.
+     */
+    private PhysicalDiskIO(Cpu cpuInstance, DiskProfile diskProfile, ProcIO processIO)
+    {
+        this.cpu = cpuInstance;
+        this.profile = diskProfile;
+        this.process = processIO;
+        this.lastReadBytes = processIO.getReadBytes();
+        this.lastWriteBytes = processIO.getWriteBytes();
+    }
+
+    /**
+     * Creates the physical accounting of the disk I/O, if it's enabled and the proc file system is available.
+     * 
+     * @param cpuInstance
+     *            The CPU where the threads are executed.
+     * @param diskProfile
+     *            The profile used to convert the physical I/O without logical I/O into energy.
+     * @return The physical accounting or <code>null</code> if the logical I/O must be charged.
+     */
+    public static PhysicalDiskIO openIfEnabled(Cpu cpuInstance, DiskProfile diskProfile)
+    {
+        if (!"physical".equalsIgnoreCase(System.getProperty("jenergy.disk.accounting", "physical").trim()))
+        {
+            return null;
+        }
+
+        final ProcIO processIO = ProcIO.openIfExists("self/io");
+        return processIO != null ? new PhysicalDiskIO(cpuInstance, diskProfile, processIO) : null;
+    }
+
+    /**
+     * Adds the logical bytes of an activity in the current interval.
+     * 
+     * @param info
+     *            The I/O activity.
+     * @param bytes
+     *            The number of bytes transferred since the previous evaluation.
+     */
+    public void collect(IOInfo info, long bytes)
+    {
+        final MethodInfo method = info.getMethod();
+        final long tid = method != null ? method.getThreadId() : -1;
+        TaskIO task = this.tasks.get(tid);
+
+        if (task == null)
+        {
+            task = new TaskIO();
+            final ThreadProfiler profiler = tid >= 0 ? this.cpu.getThreadProfiler(tid) : null;
+            final long taskId = profiler != null ? profiler.getThreadInfo().getTaskId() : -1;
+
+            if (taskId >= 0)
+            {
+                task.io = ProcIO.openIfExists("self/task/" + taskId + "/io");
+
+                if (task.io != null)
+                {
+                    task.lastReadBytes = task.io.getReadBytes();
+                    task.lastWriteBytes = task.io.getWriteBytes();
+                }
+            }
+            this.tasks.put(tid, task);
+        }
+        task.logical[info.getActivityType().ordinal()] += bytes;
+    }
+
+    /**
+     * Apportions the physical I/O of the current interval to the logical I/O {@link #collect(IOInfo, long) collected} for it. The physical I/O
+     * of a thread without logical I/O is charged to the thread and the one of the process without logical I/O is charged as unattributed.
+     */
+    public void apportion()
+    {
+        this.unavailable = !this.process.refresh();
+
+        if (this.unavailable)
+        {
+            this.reset();
+            return;
+        }
+
+        this.leftover[IOActivityType.READ.ordinal()] = this.process.getReadBytes() - this.lastReadBytes;
+        this.leftover[IOActivityType.WRITE.ordinal()] = this.process.getWriteBytes() - this.lastWriteBytes;
+        this.lastReadBytes = this.process.getReadBytes();
+        this.lastWriteBytes = this.process.getWriteBytes();
+
+        for (int i = 0; i < TYPES; i++)
+        {
+            this.pooled[i] = 0;
+        }
+
+        for (Map.Entry<Long, TaskIO> entry : this.tasks.entrySet())
+        {
+            final TaskIO task = entry.getValue();
+
+            if (task.io != null && task.io.refresh())
+            {
+                if (task.measured)
+                {
+                    this.apportion(entry.getKey(), task, IOActivityType.READ, task.io.getReadBytes() - task.lastReadBytes);
+                    this.apportion(entry.getKey(), task, IOActivityType.WRITE, task.io.getWriteBytes() - task.lastWriteBytes);
+                }
+                task.lastReadBytes = task.io.getReadBytes();
+                task.lastWriteBytes = task.io.getWriteBytes();
+            }
+            else if (task.io != null)
+            {
+                // the task has finished
+                task.io.close();
+                task.io = null;
+            }
+
+            if (task.io == null || !task.measured)
+            {
+                for (int i = 0; i < TYPES; i++)
+                {
+                    this.pooled[i] += task.logical[i];
+                }
+            }
+        }
+
+        for (IOActivityType type : IOActivityType.values())
+        {
+            final int i = type.ordinal();
+            final long bytes = Math.max(0, this.leftover[i]);
+
+            for (TaskIO task : this.tasks.values())
+            {
+                if (task.io == null || !task.measured)
+                {
+                    task.factor[i] = this.pooled[i] > 0 ? (double) bytes / this.pooled[i] : 0;
+                }
+            }
+
+            if (this.pooled[i] == 0 && bytes > 0)
+            {
+                this.cpu.getEnergyModels().getUnattributedEnergy().add(EnergyDimension.DISK, this.profile.energy(type, bytes, 0));
+            }
+        }
+
+        for (TaskIO task : this.tasks.values())
+        {
+            task.measured = task.io != null;
+        }
+        this.reset();
+    }
+
+    /**
+     * Apportions the physical I/O of a measured thread to its activities.
+     * 
+     * @param tid
+     *            The thread id.
+     * @param task
+     *            The I/O of the thread.
+     * @param type
+     *            The type of the I/O.
+     * @param bytes
+     *            The physical bytes of the thread in the current interval.
+     */
+    private void apportion(long tid, TaskIO task, IOActivityType type, long bytes)
+    {
+        final int i = type.ordinal();
+        this.leftover[i] -= bytes;
+        task.factor[i] = task.logical[i] > 0 ? (double) Math.max(0, bytes) / task.logical[i] : 0;
+
+        if (task.logical[i] == 0 && bytes > 0)
+        {
+            final ThreadProfiler profiler = this.cpu.getThreadProfiler(tid);
+
+            if (profiler != null)
+            {
+                profiler.getThreadInfo().getEnergy().add(EnergyDimension.DISK, this.profile.energy(type, bytes, 0));
+            }
+        }
+    }
+
+    /**
+     * Returns the fraction of the modeled energy of an activity that is charged in the current interval, i.e., the ratio between the physical
+     * and the logical bytes of its thread. It's zero when the I/O was served by the page cache.
+     * 
+     * @param info
+     *            The I/O activity.
+     * @return The fraction of the modeled energy of the activity that is charged.
+     */
+    public double share(IOInfo info)
+    {
+        if (this.unavailable)
+        {
+            return 1;
+        }
+
+        final MethodInfo method = info.getMethod();
+        final TaskIO task = this.tasks.get(method != null ? method.getThreadId() : -1);
+        return task != null ? task.factor[info.getActivityType().ordinal()] : 0;
+    }
+
+    /**
+     * Clears the logical I/O of the current interval and forgets the threads that are no longer profiled and did no I/O in it. The factors are
+     * kept until the activities have been charged.
+     */
+    private void reset()
+    {
+        final Iterator<Map.Entry<Long, TaskIO>> iterator = this.tasks.entrySet().iterator();
+
+        while (iterator.hasNext())
+        {
+            final Map.Entry<Long, TaskIO> entry = iterator.next();
+            long bytes = 0;
+
+            for (int i = 0; i < TYPES; i++)
+            {
+                bytes += entry.getValue().logical[i];
+                entry.getValue().logical[i] = 0;
+            }
+
+            if (bytes == 0 && entry.getKey() >= 0 && this.cpu.getThreadProfiler(entry.getKey()) == null)
+            {
+                if (entry.getValue().io != null)
+                {
+                    entry.getValue().io.close();
+                }
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,339 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.energy;
+
+import jenergy.agent.common.Cpu;
+import jenergy.agent.common.util.ProcFile;
+import jenergy.profile.ThreadProfiler;
+
+/**
+ * Splits the energy of the machine into the idle baseline, the other processes and this JVM. Every evaluation reads the CPU time of the process
+ * (<em>/proc/self/stat</em>) and of the whole system (<em>/proc/stat</em>) and charges:
+ *
+ * <ul>
+ * <li>the idle baseline with the idle power of the processor, of the memory and of the disks times the elapsed time;</li>
+ * <li>the other processes with the busy CPU time of the system that was not used by this process. It's only their CPU energy, because their
+ * memory, disk and network activity is not measured;</li>
+ * <li>this JVM with the CPU time of the process and with the memory, disk and network energy charged by the other models to the threads and to the
+ * unattributed account in the interval, so the JVM's energy is the sum of the energy of its threads and of the unattributed energy.</li>
+ * </ul>
+ *
+ * The CPU time is converted by the coefficient of the {@link CpuEnergyModel}, which also breaks the JVM's energy down by thread and by method. The
+ * energy of the JVM that was not charged to a monitored thread (e.g., the collectors and the JIT compiler) is charged as unattributed. The model
+ * must be registered after all other models and it does nothing when the proc file system is not available.
+ */
+public final class SystemEnergyModel implements EnergyModel
+{
+    /**
+     * The index of the user time in <em>/proc/self/stat</em> after the command name, i.e., field 14 minus the two fields before it.
+     */
+    private static final int PROCESS_USER_TIME = 11;
+
+    /**
+     * The index of the system time in <em>/proc/self/stat</em> after the command name.
+     */
+    private static final int PROCESS_SYSTEM_TIME = 12;
+
+    /**
+     * The index of the idle time in the <em>cpu</em> line of <em>/proc/stat</em>.
+     */
+    private static final int SYSTEM_IDLE_TIME = 3;
+
+    /**
+     * The index of the I/O wait time in the <em>cpu</em> line of <em>/proc/stat</em>.
+     */
+    private static final int SYSTEM_IOWAIT_TIME = 4;
+
+    /**
+     * The number of time fields of the <em>cpu</em> line of <em>/proc/stat</em> that are not included in other fields (the guest times are
+     * already in the user times).
+     */
+    private static final int SYSTEM_TIME_FIELDS = 8;
+
+    /**
+     * The number of nanoseconds of a second.
+     */
+    private static final double NANOS_PER_SECOND = 1E9;
+
+    /**
+     * The CPU where the threads are executed.
+     */
+    private final Cpu cpu;
+
+    /**
+     * The model that charges the CPU energy of the threads.
+     */
+    private final CpuEnergyModel cpuModel;
+
+    /**
+     * The number of clock ticks per second of the times of the proc file system.
+     */
+    private final double clockTicks;
+
+    /**
+     * The power in watts drawn by the idle memory.
+     */
+    private final double memoryIdlePower;
+
+    /**
+     * The file with the status of this process. It's <code>null</code> if it cannot be read.
+     */
+    private final ProcFile processStat;
+
+    /**
+     * The file with the statistics of the system. It's <code>null</code> if it cannot be read.
+     */
+    private final ProcFile systemStat;
+
+    /**
+     * The fields read from the files. The array is reused by all evaluations.
+     */
+    private final long[] fields = new long[PROCESS_SYSTEM_TIME + 1];
+
+    /**
+     * The energy of the idle machine.
+     */
+    private final EnergyAccount idleEnergy = new EnergyAccount();
+
+    /**
+     * The energy consumed by the other processes.
+     */
+    private final EnergyAccount otherProcessesEnergy = new EnergyAccount();
+
+    /**
+     * The energy consumed by this JVM.
+     */
+    private final EnergyAccount processEnergy = new EnergyAccount();
+
+    /**
+     * The CPU time in clock ticks of this process in the last evaluation.
+     */
+    private long lastProcessTime = -1;
+
+    /**
+     * The busy CPU time in clock ticks of the system in the last evaluation.
+     */
+    private long lastSystemTime = -1;
+
+    /**
+     * The energy charged to the threads by the CPU model in the last evaluation.
+     */
+    private double lastChargedEnergy;
+
+    /**
+     * The time in nanoseconds of the last evaluation.
+     */
+    private long lastEvaluation;
+
+    /**
+     * The energy of each dimension, except the CPU, charged by the other models to the threads and to the unattributed account until the last
+     * evaluation. It's indexed by the {@link EnergyDimension} ordinal.
+     */
+    private final double[] lastModelsEnergy = new double[EnergyDimension.values().length];
+
+    /**
+     * The energy of each dimension charged by the models until the current evaluation. The array is reused by all evaluations.
+     */
+    private final double[] modelsEnergy = new double[EnergyDimension.values().length];
+
+    /**
+     * Creates a {@link SystemEnergyModel} reading its coefficients from the system properties.
+     * 
+     * @param cpuInstance
+     *            The CPU where the threads are executed.
+     * @param cpuEnergyModel
+     *            The model that charges the CPU energy of the threads. Might not be <code>null</code>.
+     */
+    public SystemEnergyModel(Cpu cpuInstance, CpuEnergyModel cpuEnergyModel)
+    {
+        this.cpu = cpuInstance;
+        this.cpuModel = cpuEnergyModel;
+        this.clockTicks = Double.parseDouble(System.getProperty("jenergy.proc.clock.ticks", "100"));
+        this.memoryIdlePower = Double.parseDouble(System.getProperty("jenergy.memory.idle.power", "0.0"));
+        this.processStat = ProcFile.openIfExists("self/stat");
+        this.systemStat = ProcFile.openIfExists("stat");
+        this.lastEvaluation = System.nanoTime();
+    }
+
+    @Override
+    public EnergyDimension dimension()
+    {
+        return EnergyDimension.CPU;
+    }
+
+    @Override
+    public void evaluate()
+    {
+        if (this.processStat == null || this.systemStat == null)
+        {
+            return;
+        }
+
+        final long now = System.nanoTime();
+        final long processTime = this.processTime();
+        final long systemTime = this.systemBusyTime();
+        final double chargedEnergy = this.cpuModel.getChargedEnergy();
+
+        if (processTime < 0 || systemTime < 0)
+        {
+            return;
+        }
+
+        if (this.lastProcessTime >= 0)
+        {
+            final double seconds = (now - this.lastEvaluation) / NANOS_PER_SECOND;
+            final double processSeconds = (processTime - this.lastProcessTime) / this.clockTicks;
+            final double othersSeconds = Math.max(0, (systemTime - this.lastSystemTime) / this.clockTicks - processSeconds);
+
+            final double jvm = processSeconds * this.cpuModel.getJoulesPerSecond();
+
+            this.idleEnergy.add(EnergyDimension.CPU, this.cpuModel.getIdlePower() * seconds);
+            this.idleEnergy.add(EnergyDimension.MEMORY, this.memoryIdlePower * seconds);
+
+            final DiskEnergyModel disk = this.cpu.getEnergyModels().get(DiskEnergyModel.class);
+
+            if (disk != null)
+            {
+                this.idleEnergy.add(EnergyDimension.DISK, disk.idleEnergy(now - this.lastEvaluation));
+            }
+            this.otherProcessesEnergy.add(EnergyDimension.CPU, othersSeconds * this.cpuModel.getJoulesPerSecond());
+            this.processEnergy.add(EnergyDimension.CPU, jvm);
+            this.cpu.getEnergyModels().getUnattributedEnergy().add(EnergyDimension.CPU, jvm - (chargedEnergy - this.lastChargedEnergy));
+        }
+
+        this.chargeModelsEnergy();
+
+        this.lastProcessTime = processTime;
+        this.lastSystemTime = systemTime;
+        this.lastChargedEnergy = chargedEnergy;
+        this.lastEvaluation = now;
+    }
+
+    /**
+     * Charges this JVM with the memory, disk and network energy charged by the other models to the threads and to the unattributed account since
+     * the last evaluation.
+     */
+    private void chargeModelsEnergy()
+    {
+        final EnergyAccount unattributed = this.cpu.getEnergyModels().getUnattributedEnergy();
+
+        for (EnergyDimension dimension : EnergyDimension.values())
+        {
+            this.modelsEnergy[dimension.ordinal()] = unattributed.get(dimension);
+        }
+
+        for (ThreadProfiler profiler : this.cpu.getThreadProfilers())
+        {
+            final EnergyAccount energy = profiler.getThreadInfo().getEnergy();
+
+            for (EnergyDimension dimension : EnergyDimension.values())
+            {
+                this.modelsEnergy[dimension.ordinal()] += energy.get(dimension);
+            }
+        }
+
+        for (EnergyDimension dimension : EnergyDimension.values())
+        {
+            // the CPU energy of the JVM is measured from its CPU time
+            if (dimension != EnergyDimension.CPU)
+            {
+                this.processEnergy.add(dimension, this.modelsEnergy[dimension.ordinal()] - this.lastModelsEnergy[dimension.ordinal()]);
+                this.lastModelsEnergy[dimension.ordinal()] = this.modelsEnergy[dimension.ordinal()];
+            }
+        }
+    }
+
+    /**
+     * Returns the user and system time in clock ticks of this process.
+     * 
+     * @return The CPU time in clock ticks of this process or <code>-1</code> if it cannot be read.
+     */
+    private long processTime()
+    {
+        if (!this.processStat.refresh())
+        {
+            return -1;
+        }
+
+        // the command name can have spaces, so the fields are parsed after its closing parenthesis
+        final int end = this.processStat.lastIndexOf(')');
+
+        if (end < 0 || this.processStat.parseFields(end + 1, this.fields) <= PROCESS_SYSTEM_TIME)
+        {
+            return -1;
+        }
+        return this.fields[PROCESS_USER_TIME] + this.fields[PROCESS_SYSTEM_TIME];
+    }
+
+    /**
+     * Returns the busy time in clock ticks of all processors of the system.
+     * 
+     * @return The busy time in clock ticks of all processors or <code>-1</code> if it cannot be read.
+     */
+    private long systemBusyTime()
+    {
+        if (!this.systemStat.refresh())
+        {
+            return -1;
+        }
+
+        final int start = this.systemStat.indexOfLine("cpu ");
+
+        if (start < 0)
+        {
+            return -1;
+        }
+
+        final int count = Math.min(SYSTEM_TIME_FIELDS, this.systemStat.parseFields(start, this.fields));
+        long busy = 0;
+
+        for (int i = 0; i < count; i++)
+        {
+            if (i != SYSTEM_IDLE_TIME && i != SYSTEM_IOWAIT_TIME)
+            {
+                busy += this.fields[i];
+            }
+        }
+        return busy;
+    }
+
+    /**
+     * @return the idleEnergy
+     */
+    public EnergyAccount getIdleEnergy()
+    {
+        return idleEnergy;
+    }
+
+    /**
+     * @return the otherProcessesEnergy
+     */
+    public EnergyAccount getOtherProcessesEnergy()
+    {
+        return otherProcessesEnergy;
+    }
+
+    /**
+     * @return the processEnergy
+     */
+    public EnergyAccount getProcessEnergy()
+    {
+        return processEnergy;
+    }
+}
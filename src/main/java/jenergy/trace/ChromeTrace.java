@@ -0,0 +1,497 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.trace;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.energy.EnergyDimension;
+
+/**
+ * Writes the invocation timeline of the event logs (see {@link EventLog}) in the trace event format of <em>chrome://tracing</em> and Perfetto:
+ * <code>chrome &lt;event logs directory&gt; [output] [--trace &lt;interval trace&gt;] [--min-duration &lt;microseconds&gt;]</code>.
+ * 
+ * Each invocation is a complete event (a begin and an end in one event) on the track of its thread, with its CPU time and allocated bytes. When
+ * the binary interval trace of the same run is given (system property <em>jenergy.report.format=binary</em>), each invocation is annotated with
+ * its share of the energy of its method, apportioned by CPU time, and the timeline gets the power of each thread by energy dimension and the
+ * cumulative bytes read and written by each thread as counters. The invocations shorter than the minimum duration are left out to keep large
+ * timelines manageable; they still count for the energy of their method.
+ * 
+ * The events are written as the logs and the trace are read, with a {@link JsonWriter}, so the timeline is never held in memory.
+ */
+public final class ChromeTrace
+{
+    /**
+     * The number of nanoseconds in a microsecond.
+     */
+    private static final double NANOS_PER_MICRO = 1000D;
+
+    /**
+     * The number of microseconds in a millisecond.
+     */
+    private static final long MICROS_PER_MILLI = 1000L;
+
+    /**
+     * The number of milliseconds in a second.
+     */
+    private static final double MILLIS_PER_SECOND = 1000D;
+
+    /**
+     * The writer of the events.
+     */
+    private final JsonWriter json;
+
+    /**
+     * The minimum duration in nanoseconds of the written invocations.
+     */
+    private final long minDuration;
+
+    /**
+     * The energy in joules of each method, by method name. It's empty when there is no interval trace.
+     */
+    private final Map<String, Double> methodEnergy = new HashMap<String, Double>();
+
+    /**
+     * The CPU time in nanoseconds and the duration in nanoseconds of all invocations of each method, by method name.
+     */
+    private final Map<String, long[]> methodTimes = new HashMap<String, long[]>();
+
+    /**
+     * The process id of the event logs, where the counters are written.
+     */
+    private long process;
+
+    /**
+     * The number of written invocations.
+     */
+    private long invocations;
+
+    /**
+     * @param output
+     *            The output of the timeline.
+     * @param minDurationNanos
+     *            The minimum duration in nanoseconds of the written invocations.
+     */
+    public ChromeTrace(Writer output, long minDurationNanos)
+    {
+        this.json = new JsonWriter(output, 2);
+        this.minDuration = minDurationNanos;
+    }
+
+    /**
+     * Writes the timeline of an event logs directory.
+     * 
+     * @param args
+     *            The directory of the event logs, the output file (default: <em>trace.json</em> in the current directory) and the options
+     *            <em>--trace &lt;interval trace&gt;</em> and <em>--min-duration &lt;microseconds&gt;</em>.
+     * @throws IOException
+     *             If a log or the trace cannot be read or the output cannot be written.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        String directory = null;
+        String output = null;
+        String trace = null;
+        long minDuration = 0;
+
+        for (int i = 0; i < args.length; i++)
+        {
+            if ("--trace".equals(args[i]) && i + 1 < args.length)
+            {
+                trace = args[++i];
+            }
+            else if ("--min-duration".equals(args[i]) && i + 1 < args.length)
+            {
+                minDuration = (long) (Double.parseDouble(args[++i]) * NANOS_PER_MICRO);
+            }
+            else if (directory == null)
+            {
+                directory = args[i];
+            }
+            else
+            {
+                output = args[i];
+            }
+        }
+
+        if (directory == null)
+        {
+            System.err.println("Usage: chrome <event logs directory> [output] [--trace <interval trace>] [--min-duration <microseconds>]");
+            return;
+        }
+
+        final String file = output != null ? output : "trace.json";
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), Charset.forName("UTF-8")), 1 << 16);
+
+        try
+        {
+            final ChromeTrace chrome = new ChromeTrace(writer, minDuration);
+            chrome.write(new File(directory), trace);
+            System.out.printf("%s: %d invocations%n", file, chrome.invocations);
+        }
+        finally
+        {
+            writer.close();
+        }
+    }
+
+    /**
+     * Writes the timeline.
+     * 
+     * @param directory
+     *            The directory of the event logs.
+     * @param trace
+     *            The path of the binary interval trace of the same run. It can be <code>null</code>.
+     * @throws IOException
+     *             If a log or the trace cannot be read or the output cannot be written.
+     */
+    public void write(File directory, String trace) throws IOException
+    {
+        final List<String> logs = EventLogReader.logs(directory);
+
+        if (trace != null)
+        {
+            this.readMethodEnergy(trace);
+
+            for (String log : logs)
+            {
+                this.readMethodTimes(directory, log);
+            }
+        }
+
+        this.json.beginObject().name("displayTimeUnit").value("ms").name("traceEvents").beginArray();
+
+        for (String log : logs)
+        {
+            this.writeInvocations(directory, log);
+        }
+
+        if (trace != null)
+        {
+            this.writeCounters(trace);
+        }
+
+        this.json.endArray().endObject();
+        this.json.flush();
+    }
+
+    /**
+     * Sums the energy of each method from the samples of the interval trace or takes it from the method statistics, when the trace has them.
+     * 
+     * @param trace
+     *            The path of the interval trace.
+     * @throws IOException
+     *             If the trace cannot be read.
+     */
+    private void readMethodEnergy(String trace) throws IOException
+    {
+        final Map<String, Double> totals = new HashMap<String, Double>();
+        final TraceReader reader = new TraceReader(trace);
+
+        try
+        {
+            while (reader.next())
+            {
+                final TraceRecord record = reader.getRecord();
+
+                if (record.getType() == TraceRecord.Type.SAMPLE && isMethod(record.getMethod()))
+                {
+                    final Double energy = this.methodEnergy.get(record.getMethod());
+                    this.methodEnergy.put(record.getMethod(), (energy != null ? energy : 0) + energy(record));
+                }
+                else if (record.getType() == TraceRecord.Type.INVOCATION)
+                {
+                    totals.put(record.getMethod(), energy(record));
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+        this.methodEnergy.putAll(totals);
+    }
+
+    /**
+     * Sums the CPU time and the duration of the invocations of each method of a log.
+     * 
+     * @param directory
+     *            The directory of the event logs.
+     * @param log
+     *            The name of the log.
+     * @throws IOException
+     *             If the log cannot be read.
+     */
+    private void readMethodTimes(File directory, String log) throws IOException
+    {
+        final EventLogReader reader = new EventLogReader(directory, log);
+
+        while (reader.next())
+        {
+            long[] times = this.methodTimes.get(reader.getMethod());
+
+            if (times == null)
+            {
+                times = new long[2];
+                this.methodTimes.put(reader.getMethod(), times);
+            }
+            times[0] += reader.getCpuTime();
+            times[1] += reader.getDuration();
+        }
+    }
+
+    /**
+     * Writes the name of the thread of a log and its invocations.
+     * 
+     * @param directory
+     *            The directory of the event logs.
+     * @param log
+     *            The name of the log.
+     * @throws IOException
+     *             If the log cannot be read or the output cannot be written.
+     */
+    private void writeInvocations(File directory, String log) throws IOException
+    {
+        final EventLogReader reader = new EventLogReader(directory, log);
+        final long pid = processOf(log);
+        this.process = pid;
+        boolean named = false;
+
+        while (reader.next())
+        {
+            if (!named)
+            {
+                this.json.beginObject().name("name").value("thread_name").name("ph").value("M").name("pid").value(pid).name("tid")
+                        .value(reader.getThreadId()).name("args").beginObject().name("name").value("thread-" + reader.getThreadId()).endObject()
+                        .endObject();
+                named = true;
+            }
+
+            final long duration = reader.getDuration();
+
+            if (duration < this.minDuration)
+            {
+                continue;
+            }
+
+            final String method = reader.getMethod();
+            final long start = reader.getEndMicros() - duration / (long) NANOS_PER_MICRO;
+
+            this.json.beginObject().name("name").value(frameOf(method)).name("cat").value("method").name("ph").value("X");
+            this.json.name("ts").value(start).name("dur").value(duration / NANOS_PER_MICRO);
+            this.json.name("pid").value(pid).name("tid").value(reader.getThreadId());
+            this.json.name("args").beginObject().name("cpu.time").value(reader.getCpuTime()).name("allocated").value(reader.getAllocatedBytes());
+            this.json.name("depth").value(reader.getDepth());
+
+            final double energy = this.energyOf(method, reader.getCpuTime(), duration);
+
+            if (energy >= 0)
+            {
+                this.json.name("energy").value(energy);
+            }
+            this.json.endObject().endObject();
+            this.invocations++;
+        }
+    }
+
+    /**
+     * Writes the power of the threads and the cumulative bytes read and written by the threads as counters.
+     * 
+     * @param trace
+     *            The path of the interval trace.
+     * @throws IOException
+     *             If the trace cannot be read or the output cannot be written.
+     */
+    private void writeCounters(String trace) throws IOException
+    {
+        final EnergyDimension[] dimensions = EnergyDimension.values();
+        final Map<String, Long> bytesOfHistograms = new HashMap<String, Long>();
+        final Map<Long, long[]> bytesOfThreads = new HashMap<Long, long[]>();
+        final TraceReader reader = new TraceReader(trace);
+        long report = -1;
+        long previousReport = -1;
+
+        try
+        {
+            while (reader.next())
+            {
+                final TraceRecord record = reader.getRecord();
+
+                // all records of a report share its timestamp, so the interval of a sample is the time since the previous report
+                if (record.getType() == TraceRecord.Type.SAMPLE && record.getTimestamp() != report)
+                {
+                    previousReport = report;
+                    report = record.getTimestamp();
+                }
+
+                if (record.getType() == TraceRecord.Type.SAMPLE && !isMethod(record.getMethod()) && previousReport >= 0)
+                {
+                    final double seconds = (report - previousReport) / MILLIS_PER_SECOND;
+
+                    this.counter(record.getThreadId() >= 0 ? "power thread-" + record.getThreadId() : "power " + ("*".equals(record.getMethod())
+                            ? "unattributed" : record.getMethod()), record.getTimestamp(), record.getThreadId());
+                    this.json.name("args").beginObject();
+
+                    for (EnergyDimension dimension : dimensions)
+                    {
+                        this.json.name(dimension.name().toLowerCase()).value(record.getEnergy(dimension) / seconds);
+                    }
+                    this.json.endObject().endObject();
+                }
+                else if (record.getType() == TraceRecord.Type.IO)
+                {
+                    final String key = record.getThreadId() + "|" + record.getMethod() + "|" + record.getPath() + "|" + record.getDirection();
+                    final long bytes = record.getValue(1);
+                    final Long last = bytesOfHistograms.put(key, bytes);
+                    long[] total = bytesOfThreads.get(record.getThreadId());
+
+                    if (total == null)
+                    {
+                        total = new long[2];
+                        bytesOfThreads.put(record.getThreadId(), total);
+                    }
+                    total[IOInfo.IOActivityType.READ.name().equals(record.getDirection()) ? 0 : 1] += bytes - (last != null ? last : 0);
+
+                    this.counter("I/O thread-" + record.getThreadId(), record.getTimestamp(), record.getThreadId());
+                    this.json.name("args").beginObject().name("read").value(total[0]).name("written").value(total[1]).endObject().endObject();
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Starts a counter event, leaving it open for its values.
+     * 
+     * @param name
+     *            The name of the counter.
+     * @param timestamp
+     *            The time in milliseconds of the values.
+     * @param tid
+     *            The thread of the counter.
+     * @throws IOException
+     *             If the output cannot be written.
+     */
+    private void counter(String name, long timestamp, long tid) throws IOException
+    {
+        this.json.beginObject().name("name").value(name).name("ph").value("C").name("ts").value(timestamp * MICROS_PER_MILLI);
+        this.json.name("pid").value(this.process).name("tid").value(Math.max(0, tid));
+    }
+
+    /**
+     * Returns the energy of an invocation: the energy of its method apportioned by the CPU time of the invocations or, for the methods without CPU
+     * time, by their duration.
+     * 
+     * @param method
+     *            The name of the method.
+     * @param cpuTime
+     *            The CPU time of the invocation in nanoseconds.
+     * @param duration
+     *            The duration of the invocation in nanoseconds.
+     * @return The energy of the invocation in joules or <code>-1</code> if the energy of the method is unknown.
+     */
+    private double energyOf(String method, long cpuTime, long duration)
+    {
+        final Double energy = this.methodEnergy.get(method);
+        final long[] times = this.methodTimes.get(method);
+
+        if (energy == null || times == null)
+        {
+            return -1;
+        }
+        return times[0] > 0 ? energy * cpuTime / times[0] : times[1] > 0 ? energy * duration / times[1] : 0;
+    }
+
+    /**
+     * Returns the energy of all dimensions of a record.
+     * 
+     * @param record
+     *            The record.
+     * @return The energy of all dimensions of the record in joules.
+     */
+    private static double energy(TraceRecord record)
+    {
+        double total = 0;
+
+        for (EnergyDimension dimension : EnergyDimension.values())
+        {
+            total += record.getEnergy(dimension);
+        }
+        return total;
+    }
+
+    /**
+     * Returns <code>true</code> if a sample is the energy of a method, i.e., not of a thread (<em>*</em>) nor of a part of the system
+     * (<em>&lt;jvm&gt;</em>, etc.).
+     * 
+     * @param method
+     *            The method of the sample.
+     * @return <code>true</code> if the sample is the energy of a method.
+     */
+    private static boolean isMethod(String method)
+    {
+        return method != null && !"*".equals(method) && !method.startsWith("<");
+    }
+
+    /**
+     * Returns the name of a method without its thread id suffix.
+     * 
+     * @param method
+     *            The name of the method, as recorded.
+     * @return The name of the method without its thread id suffix.
+     */
+    private static String frameOf(String method)
+    {
+        final int suffix = method.lastIndexOf('#');
+        return suffix > 0 ? method.substring(0, suffix) : method;
+    }
+
+    /**
+     * Returns the process id in the name of a log: <em>events-&lt;process&gt;-&lt;thread&gt;</em>.
+     * 
+     * @param log
+     *            The name of the log.
+     * @return The process id or zero if it cannot be parsed.
+     */
+    private static long processOf(String log)
+    {
+        final String[] parts = log.split("-");
+
+        try
+        {
+            return parts.length > 1 ? Long.parseLong(parts[1]) : 0;
+        }
+        catch (NumberFormatException exception)
+        {
+            return 0;
+        }
+    }
+}
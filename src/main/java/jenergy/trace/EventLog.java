@@ -0,0 +1,416 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.trace;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The log of the method invocations of a thread, kept on disk instead of in the heap. The log is a sequence of segment files
+ * (<em>events-&lt;process&gt;-&lt;thread&gt;-&lt;segment&gt;.log</em>) mapped in memory: the thread appends fixed-size records with plain
+ * stores, so there is no system call per event, and a new segment is mapped when the current one is full. When the segments of the thread exceed
+ * the retention size, the oldest ones are deleted. The names of the methods are appended, once, to
+ * <em>events-&lt;process&gt;-&lt;thread&gt;.symbols</em> (one <em>id name</em> line per method). The new names are buffered and written when a
+ * segment is rolled or the log is closed, so the symbols of the current segment are lost if the JVM is killed (the reader shows their ids).
+ * 
+ * Each segment starts with a header of {@link #HEADER_SIZE} bytes: the magic number, the version, the thread id, the segment number, the base
+ * time (the wall-clock time in milliseconds and the {@link System#nanoTime()} when the segment was created), the record size, the number of
+ * committed records and whether the segment is closed. The number of committed records is written after each record, so the records of a
+ * segment remain readable when the JVM is killed. Each record has the end of the invocation in nanoseconds since the base time, its duration,
+ * its CPU time, the bytes it allocated, the method id and the depth of the invocation in the thread's stack.
+ * 
+ * Instances of this class must only be used by the thread that owns the log. Once closed, the log ignores the appended invocations.
+ */
+public final class EventLog
+{
+    /**
+     * The magic number of a segment.
+     */
+    static final int MAGIC = 0x4A455654;
+
+    /**
+     * The version of the segments' format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The size of the header of a segment.
+     */
+    static final int HEADER_SIZE = 64;
+
+    /**
+     * The size of a record.
+     */
+    static final int RECORD_SIZE = 40;
+
+    /**
+     * The offset of the thread id in the header.
+     */
+    static final int THREAD_OFFSET = 8;
+
+    /**
+     * The offset of the segment number in the header.
+     */
+    static final int SEGMENT_OFFSET = 16;
+
+    /**
+     * The offset of the wall-clock base time in the header.
+     */
+    static final int BASE_MILLIS_OFFSET = 24;
+
+    /**
+     * The offset of the monotonic base time in the header.
+     */
+    static final int BASE_NANOS_OFFSET = 32;
+
+    /**
+     * The offset of the record size in the header.
+     */
+    static final int RECORD_SIZE_OFFSET = 40;
+
+    /**
+     * The offset of the number of committed records in the header.
+     */
+    static final int COUNT_OFFSET = 48;
+
+    /**
+     * The offset of the closed flag in the header.
+     */
+    static final int CLOSED_OFFSET = 56;
+
+    /**
+     * The charset of the symbols file.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The name of the logs of this process: <em>events-&lt;process id&gt;</em>.
+     */
+    private static final String PREFIX = "events-" + ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+
+    /**
+     * The directory of the log.
+     */
+    private final File directory;
+
+    /**
+     * The id of the thread.
+     */
+    private final long threadId;
+
+    /**
+     * The size in bytes of a segment.
+     */
+    private final int segmentSize;
+
+    /**
+     * The maximum size in bytes of the segments of the thread.
+     */
+    private final long retention;
+
+    /**
+     * The segments files, the oldest first.
+     */
+    private final Deque<File> segments = new ArrayDeque<File>();
+
+    /**
+     * The ids of the methods already written to the symbols file.
+     */
+    private final Map<String, Integer> symbols = new HashMap<String, Integer>();
+
+    /**
+     * The symbols file.
+     */
+    private final OutputStream symbolsFile;
+
+    /**
+     * The lines of the new symbols not written to {@link #symbolsFile} yet.
+     */
+    private final StringBuilder pendingSymbols = new StringBuilder();
+
+    /**
+     * The current segment.
+     */
+    private MappedByteBuffer segment;
+
+    /**
+     * The number of the current segment.
+     */
+    private long segmentNumber;
+
+    /**
+     * The monotonic base time of the current segment.
+     */
+    private long baseNanos;
+
+    /**
+     * The number of records of the current segment.
+     */
+    private long count;
+
+    /**
+     * The maximum number of records of a segment.
+     */
+    private final long capacity;
+
+    /**
+     * Creates the log of a thread.
+     * 
+     * @param logDirectory
+     *            The directory of the log. It's created if it does not exist.
+     * @param tid
+     *            The thread id.
+     * @param segmentBytes
+     *            The size in bytes of a segment.
+     * @param retentionBytes
+     *            The maximum size in bytes of the segments of the thread. The oldest segments are deleted when it's exceeded.
+     * @throws IOException
+     *             If the first segment cannot be created.
+     */
+    public EventLog(File logDirectory, long tid, int segmentBytes, long retentionBytes) throws IOException
+    {
+        if (!logDirectory.isDirectory() && !logDirectory.mkdirs())
+        {
+            throw new IOException("Could not create the directory " + logDirectory);
+        }
+
+        this.directory = logDirectory;
+        this.threadId = tid;
+        this.segmentSize = Math.max(HEADER_SIZE + RECORD_SIZE, segmentBytes);
+        this.capacity = (this.segmentSize - HEADER_SIZE) / RECORD_SIZE;
+        this.retention = retentionBytes;
+        this.symbolsFile = new FileOutputStream(new File(logDirectory, PREFIX + "-" + tid + ".symbols"), true);
+        this.roll();
+    }
+
+    /**
+     * Creates the log of a thread configured by the system properties <em>jenergy.events.dir</em>, <em>jenergy.events.segment.size</em> and
+     * <em>jenergy.events.retention</em>.
+     * 
+     * @param tid
+     *            The thread id.
+     * @return The log of the thread or <code>null</code> if the tracing of the invocations is disabled or the log cannot be created.
+     */
+    public static EventLog create(long tid)
+    {
+        final String dir = System.getProperty("jenergy.events.dir");
+
+        if (dir == null || dir.trim().isEmpty())
+        {
+            return null;
+        }
+
+        try
+        {
+            return new EventLog(new File(dir.trim()), tid, Integer.parseInt(System.getProperty("jenergy.events.segment.size", "16777216")),
+                    Long.parseLong(System.getProperty("jenergy.events.retention", "268435456")));
+        }
+        catch (IOException exception)
+        {
+            System.err.printf("Could not create the event log of the thread %d: %s%n", tid, exception.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the invocations are traced to event logs, i.e., if the system property <em>jenergy.events.dir</em> is defined.
+     * 
+     * @return <code>true</code> if the invocations are traced to event logs.
+     */
+    public static boolean isEnabled()
+    {
+        final String dir = System.getProperty("jenergy.events.dir");
+        return dir != null && !dir.trim().isEmpty();
+    }
+
+    /**
+     * Appends an invocation. It does nothing if the log is closed.
+     * 
+     * @param method
+     *            The name of the method.
+     * @param endNanos
+     *            The {@link System#nanoTime()} when the invocation finished.
+     * @param duration
+     *            The duration of the invocation in nanoseconds.
+     * @param cpuTime
+     *            The CPU time of the invocation in nanoseconds.
+     * @param allocatedBytes
+     *            The bytes allocated by the invocation.
+     * @param depth
+     *            The depth of the invocation in the thread's stack.
+     * @throws IOException
+     *             If a new symbol or a new segment cannot be written.
+     */
+    public void append(String method, long endNanos, long duration, long cpuTime, long allocatedBytes, int depth) throws IOException
+    {
+        if (this.segment == null)
+        {
+            return;
+        }
+
+        final int methodId = this.symbol(method);
+
+        if (this.count == this.capacity)
+        {
+            this.roll();
+        }
+
+        final int offset = HEADER_SIZE + (int) this.count * RECORD_SIZE;
+
+        this.segment.putLong(offset, endNanos - this.baseNanos);
+        this.segment.putLong(offset + 8, duration);
+        this.segment.putLong(offset + 16, cpuTime);
+        this.segment.putLong(offset + 24, allocatedBytes);
+        this.segment.putInt(offset + 32, methodId);
+        this.segment.putInt(offset + 36, depth);
+
+        // the record is committed after it has been written
+        this.segment.putLong(COUNT_OFFSET, ++this.count);
+    }
+
+    /**
+     * Marks the current segment as closed, writes the pending symbols and closes the symbols file. The segment is unmapped by the garbage
+     * collector. It does nothing if the log is already closed.
+     */
+    public void close()
+    {
+        if (this.segment == null)
+        {
+            return;
+        }
+
+        this.segment.putLong(CLOSED_OFFSET, 1);
+        this.segment = null;
+
+        try
+        {
+            try
+            {
+                this.flushSymbols();
+            }
+            finally
+            {
+                this.symbolsFile.close();
+            }
+        }
+        catch (IOException exception)
+        {
+            System.err.printf("Could not close the event log of the thread %d: %s%n", this.threadId, exception.getMessage());
+        }
+    }
+
+    /**
+     * Returns the id of a method, adding it to the pending symbols if it's new.
+     * 
+     * @param method
+     *            The name of the method.
+     * @return The id of the method.
+     */
+    private int symbol(String method)
+    {
+        Integer id = this.symbols.get(method);
+
+        if (id == null)
+        {
+            id = this.symbols.size() + 1;
+            this.pendingSymbols.append(id.intValue()).append(' ').append(method.replace('\n', ' ')).append('\n');
+            this.symbols.put(method, id);
+        }
+        return id;
+    }
+
+    /**
+     * Writes the pending symbols to the symbols file.
+     * 
+     * @throws IOException
+     *             If the symbols cannot be written.
+     */
+    private void flushSymbols() throws IOException
+    {
+        if (this.pendingSymbols.length() > 0)
+        {
+            this.symbolsFile.write(this.pendingSymbols.toString().getBytes(UTF8));
+            this.pendingSymbols.setLength(0);
+        }
+    }
+
+    /**
+     * Closes the current segment, writes the pending symbols, maps a new segment and deletes the oldest segments beyond the retention size.
+     * 
+     * @throws IOException
+     *             If the symbols cannot be written or the new segment cannot be created.
+     */
+    private void roll() throws IOException
+    {
+        this.flushSymbols();
+
+        if (this.segment != null)
+        {
+            this.segment.putLong(CLOSED_OFFSET, 1);
+            this.segmentNumber++;
+        }
+
+        final File file = new File(this.directory, String.format("%s-%d-%06d.log", PREFIX, this.threadId, this.segmentNumber));
+        final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+
+        try
+        {
+            // the mapping remains valid after the channel has been closed
+            this.segment = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, this.segmentSize);
+        }
+        finally
+        {
+            raf.close();
+        }
+
+        this.baseNanos = System.nanoTime();
+        this.count = 0;
+        this.segment.putInt(0, MAGIC);
+        this.segment.putInt(4, VERSION);
+        this.segment.putLong(THREAD_OFFSET, this.threadId);
+        this.segment.putLong(SEGMENT_OFFSET, this.segmentNumber);
+        this.segment.putLong(BASE_MILLIS_OFFSET, System.currentTimeMillis());
+        this.segment.putLong(BASE_NANOS_OFFSET, this.baseNanos);
+        this.segment.putInt(RECORD_SIZE_OFFSET, RECORD_SIZE);
+        this.segment.putLong(COUNT_OFFSET, 0);
+
+        this.segments.addLast(file);
+
+        while ((long) this.segments.size() * this.segmentSize > this.retention && this.segments.size() > 1)
+        {
+            final File oldest = this.segments.removeFirst();
+
+            if (!oldest.delete())
+            {
+                System.err.printf("Could not delete the event log segment %s%n", oldest);
+            }
+        }
+    }
+}
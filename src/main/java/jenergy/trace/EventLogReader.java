@@ -0,0 +1,313 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.trace;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Reads the invocations of a thread written by an {@link EventLog}, segment by segment. Only the committed records of each segment are read, so
+ * the logs of a JVM that was killed can be read as well:
+ * 
+ * <pre>
+ * for (String log : EventLogReader.logs(directory))
+ * {
+ *     EventLogReader reader = new EventLogReader(directory, log);
+ *     while (reader.next())
+ *     {
+ *         ... reader.getMethod(), reader.getDuration() ...
+ *     }
+ * }
+ * </pre>
+ * 
+ * Instances of this class are not thread-safe.
+ */
+public final class EventLogReader
+{
+    /**
+     * The segment files of the log, the oldest first.
+     */
+    private final List<File> segments = new ArrayList<File>();
+
+    /**
+     * The names of the methods by id.
+     */
+    private final Map<Integer, String> symbols = new HashMap<Integer, String>();
+
+    /**
+     * The index of the next segment to be read.
+     */
+    private int nextSegment;
+
+    /**
+     * The content of the current segment.
+     */
+    private ByteBuffer segment;
+
+    /**
+     * The number of committed records of the current segment.
+     */
+    private long count;
+
+    /**
+     * The index of the current record in the current segment.
+     */
+    private long index = -1;
+
+    /**
+     * The record size of the current segment.
+     */
+    private int recordSize;
+
+    /**
+     * The thread id of the current segment.
+     */
+    private long threadId;
+
+    /**
+     * The wall-clock base time of the current segment.
+     */
+    private long baseMillis;
+
+    /**
+     * Opens a log.
+     * 
+     * @param directory
+     *            The directory of the log.
+     * @param log
+     *            The name of the log, as returned by {@link #logs(File)}.
+     * @throws IOException
+     *             If the symbols of the log cannot be read.
+     */
+    public EventLogReader(File directory, String log) throws IOException
+    {
+        final File[] files = directory.listFiles();
+
+        if (files != null)
+        {
+            Arrays.sort(files);
+
+            for (File file : files)
+            {
+                if (file.getName().startsWith(log + "-") && file.getName().endsWith(".log")
+                        && file.getName().length() == log.length() + "-000000.log".length())
+                {
+                    this.segments.add(file);
+                }
+            }
+        }
+
+        final File symbolsFile = new File(directory, log + ".symbols");
+
+        if (symbolsFile.isFile())
+        {
+            final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(symbolsFile), "UTF-8"));
+
+            try
+            {
+                String line;
+
+                while ((line = reader.readLine()) != null)
+                {
+                    final int space = line.indexOf(' ');
+
+                    if (space > 0)
+                    {
+                        this.symbols.put(Integer.valueOf(line.substring(0, space)), line.substring(space + 1));
+                    }
+                }
+            }
+            finally
+            {
+                reader.close();
+            }
+        }
+    }
+
+    /**
+     * Returns the names of the logs of a directory: <em>events-&lt;process&gt;-&lt;thread&gt;</em>.
+     * 
+     * @param directory
+     *            The directory of the logs.
+     * @return The names of the logs of the directory, sorted.
+     */
+    public static List<String> logs(File directory)
+    {
+        final TreeSet<String> logs = new TreeSet<String>();
+        final File[] files = directory.listFiles();
+
+        for (int i = 0; files != null && i < files.length; i++)
+        {
+            final String name = files[i].getName();
+
+            if (name.startsWith("events-") && name.endsWith(".symbols"))
+            {
+                logs.add(name.substring(0, name.length() - ".symbols".length()));
+            }
+        }
+        return new ArrayList<String>(logs);
+    }
+
+    /**
+     * Reads the next record.
+     * 
+     * @return <code>true</code> if a record was read or <code>false</code> at the end of the log.
+     * @throws IOException
+     *             If a segment cannot be read.
+     */
+    public boolean next() throws IOException
+    {
+        while (this.segment == null || this.index + 1 >= this.count)
+        {
+            if (this.nextSegment == this.segments.size())
+            {
+                return false;
+            }
+            this.open(this.segments.get(this.nextSegment++));
+        }
+        this.index++;
+        return true;
+    }
+
+    /**
+     * Reads the header of a segment.
+     * 
+     * @param file
+     *            The segment file.
+     * @throws IOException
+     *             If the segment cannot be read.
+     */
+    private void open(File file) throws IOException
+    {
+        final RandomAccessFile raf = new RandomAccessFile(file, "r");
+
+        try
+        {
+            this.segment = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        }
+        finally
+        {
+            raf.close();
+        }
+
+        this.index = -1;
+        this.count = 0;
+
+        if (this.segment.capacity() < EventLog.HEADER_SIZE || this.segment.getInt(0) != EventLog.MAGIC)
+        {
+            // a segment whose header was not written yet
+            return;
+        }
+
+        this.threadId = this.segment.getLong(EventLog.THREAD_OFFSET);
+        this.baseMillis = this.segment.getLong(EventLog.BASE_MILLIS_OFFSET);
+        this.recordSize = this.segment.getInt(EventLog.RECORD_SIZE_OFFSET);
+        this.count = Math.min(this.segment.getLong(EventLog.COUNT_OFFSET), (this.segment.capacity() - EventLog.HEADER_SIZE) / this.recordSize);
+    }
+
+    /**
+     * Returns the offset of a field of the current record.
+     * 
+     * @param field
+     *            The offset of the field in the record.
+     * @return The offset of the field in the segment.
+     */
+    private int offset(int field)
+    {
+        return EventLog.HEADER_SIZE + (int) this.index * this.recordSize + field;
+    }
+
+    /**
+     * @return the thread id
+     */
+    public long getThreadId()
+    {
+        return threadId;
+    }
+
+    /**
+     * @return the name of the method or its id if the symbol is missing
+     */
+    public String getMethod()
+    {
+        final int id = this.segment.getInt(this.offset(32));
+        final String method = this.symbols.get(id);
+        return method != null ? method : "#" + id;
+    }
+
+    /**
+     * @return the wall-clock time in milliseconds when the invocation finished
+     */
+    public long getTimestamp()
+    {
+        return this.baseMillis + this.segment.getLong(this.offset(0)) / 1000000L;
+    }
+
+    /**
+     * @return the wall-clock time in microseconds when the invocation finished
+     */
+    public long getEndMicros()
+    {
+        return this.baseMillis * 1000L + this.segment.getLong(this.offset(0)) / 1000L;
+    }
+
+    /**
+     * @return the duration in nanoseconds
+     */
+    public long getDuration()
+    {
+        return this.segment.getLong(this.offset(8));
+    }
+
+    /**
+     * @return the CPU time in nanoseconds
+     */
+    public long getCpuTime()
+    {
+        return this.segment.getLong(this.offset(16));
+    }
+
+    /**
+     * @return the allocated bytes
+     */
+    public long getAllocatedBytes()
+    {
+        return this.segment.getLong(this.offset(24));
+    }
+
+    /**
+     * @return the depth of the invocation in the thread's stack
+     */
+    public int getDepth()
+    {
+        return this.segment.getInt(this.offset(36));
+    }
+}
@@ -0,0 +1,327 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.trace;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Writes JSON incrementally: the values are written as they are given, so documents of any size are written without being built in memory.
+ * The writer adds the separators between the members and the elements; the caller is responsible for the structure, i.e., for balancing the
+ * objects and arrays and for giving a name before each member of an object.
+ * 
+ * The elements of the containers up to a given depth start on their own lines, e.g., one event per line in a large array.
+ */
+public final class JsonWriter
+{
+    /**
+     * The output.
+     */
+    private final Writer out;
+
+    /**
+     * The maximum depth of the containers whose elements start on their own lines.
+     */
+    private final int lineBreakDepth;
+
+    /**
+     * Whether the current container of each depth has no element yet.
+     */
+    private boolean[] empty = new boolean[16];
+
+    /**
+     * The number of open containers.
+     */
+    private int depth;
+
+    /**
+     * Whether a member name has been written and its value not yet.
+     */
+    private boolean afterName;
+
+    /**
+     * @param output
+     *            The output.
+     * @param breakDepth
+     *            The maximum depth of the containers whose elements start on their own lines; zero to write everything on one line.
+     */
+    public JsonWriter(Writer output, int breakDepth)
+    {
+        this.out = output;
+        this.lineBreakDepth = breakDepth;
+    }
+
+    /**
+     * Starts an object.
+     * 
+     * @return This writer.
+     * @throws IOException
+     *             If the output cannot be written.
+     */
+    public JsonWriter beginObject() throws IOException
+    {
+        return this.open('{');
+    }
+
+    /**
+     * Ends the current object.
+     * 
+     * @return This writer.
+     * @throws IOException
+     *             If the output cannot be written.
+     */
+    public JsonWriter endObject() throws IOException
+    {
+        return this.close('}');
+    }
+
+    /**
+     * Starts an array.
+     * 
+     * @return This writer.
+     * @throws IOException
+     *             If the output cannot be written.
+     */
+    public JsonWriter beginArray() throws IOException
+    {
+        return this.open('[');
+    }
+
+    /**
+     * Ends the current array.
+     * 
+     * @return This writer.
+     * @throws IOException
+     *             If the output cannot be written.
+     */
+    public JsonWriter endArray() throws IOException
+    {
+        return this.close(']');
+    }
+
+    /**
+     * Writes the name of the next member of the current object.
+     * 
+     * @param name
+     *            The name of the member. Might not be <code>null</code>.
+     * @return This writer.
+     * @throws IOException
+     *             If the output cannot be written.
+     */
+    public JsonWriter name(String name) throws IOException
+    {
+        this.separate();
+        this.string(name);
+        this.out.write(':');
+        this.afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes a string value.
+     * 
+     * @param value
+     *            The value. It can be <code>null</code>.
+     * @return This writer.
+     * @throws IOException
+     *             If the output cannot be written.
+     */
+    public JsonWriter value(String value) throws IOException
+    {
+        this.separate();
+
+        if (value == null)
+        {
+            this.out.write("null");
+        }
+        else
+        {
+            this.string(value);
+        }
+        return this;
+    }
+
+    /**
+     * Writes a number value.
+     * 
+     * @param value
+     *            The value.
+     * @return This writer.
+     * @throws IOException
+     *             If the output cannot be written.
+     */
+    public JsonWriter value(long value) throws IOException
+    {
+        this.separate();
+        this.out.write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * Writes a number value. The values that are not finite are written as <em>null</em>, which is the only option of JSON.
+     * 
+     * @param value
+     *            The value.
+     * @return This writer.
+     * @throws IOException
+     *             If the output cannot be written.
+     */
+    public JsonWriter value(double value) throws IOException
+    {
+        this.separate();
+        this.out.write(Double.isNaN(value) || Double.isInfinite(value) ? "null" : Double.toString(value));
+        return this;
+    }
+
+    /**
+     * Writes the buffered output.
+     * 
+     * @throws IOException
+     *             If the output cannot be written.
+     */
+    public void flush() throws IOException
+    {
+        this.out.flush();
+    }
+
+    /**
+     * Starts a container.
+     * 
+     * @param bracket
+     *            The opening bracket.
+     * @return This writer.
+     * @throws IOException
+     *             If the output cannot be written.
+     */
+    private JsonWriter open(char bracket) throws IOException
+    {
+        this.separate();
+        this.out.write(bracket);
+
+        if (this.depth == this.empty.length)
+        {
+            this.empty = Arrays.copyOf(this.empty, this.depth * 2);
+        }
+        this.empty[this.depth++] = true;
+        return this;
+    }
+
+    /**
+     * Ends the current container.
+     * 
+     * @param bracket
+     *            The closing bracket.
+     * @return This writer.
+     * @throws IOException
+     *             If the output cannot be written.
+     */
+    private JsonWriter close(char bracket) throws IOException
+    {
+        if (this.depth == 0)
+        {
+            throw new IllegalStateException("There is no container to be closed!");
+        }
+
+        if (this.depth <= this.lineBreakDepth && !this.empty[this.depth - 1])
+        {
+            this.out.write('\n');
+        }
+        this.depth--;
+        this.out.write(bracket);
+        return this;
+    }
+
+    /**
+     * Writes the separator before a name or a value: nothing after a name or before the first element of a container; a comma otherwise. The
+     * elements of the containers up to {@link #lineBreakDepth} start on a new line.
+     * 
+     * @throws IOException
+     *             If the output cannot be written.
+     */
+    private void separate() throws IOException
+    {
+        if (this.afterName)
+        {
+            this.afterName = false;
+            return;
+        }
+
+        if (this.depth > 0)
+        {
+            if (!this.empty[this.depth - 1])
+            {
+                this.out.write(',');
+            }
+            this.empty[this.depth - 1] = false;
+
+            if (this.depth <= this.lineBreakDepth)
+            {
+                this.out.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Writes a quoted string escaping the characters that JSON requires.
+     * 
+     * @param value
+     *            The string.
+     * @throws IOException
+     *             If the output cannot be written.
+     */
+    private void string(String value) throws IOException
+    {
+        this.out.write('"');
+
+        for (int i = 0; i < value.length(); i++)
+        {
+            final char c = value.charAt(i);
+
+            switch (c)
+            {
+            case '"':
+                this.out.write("\\\"");
+                break;
+            case '\\':
+                this.out.write("\\\\");
+                break;
+            case '\n':
+                this.out.write("\\n");
+                break;
+            case '\r':
+                this.out.write("\\r");
+                break;
+            case '\t':
+                this.out.write("\\t");
+                break;
+            default:
+                if (c < 0x20)
+                {
+                    this.out.write(String.format("\\u%04x", (int) c));
+                }
+                else
+                {
+                    this.out.write(c);
+                }
+            }
+        }
+        this.out.write('"');
+    }
+}
@@ -0,0 +1,360 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.trace;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import jenergy.profile.energy.EnergyDimension;
+
+/**
+ * Converts a binary trace into CSV or JSON: <code>convert &lt;trace&gt; [csv|json] [output]</code>. The CSV has one line per record with the
+ * columns of all types of records; the columns that do not apply to a record are empty. The JSON has one object per line with the fields of the
+ * record. The output is the standard output when the output file is not given. When the trace is a directory, the invocations of its event logs
+ * (see {@link EventLog}) are converted instead.
+ */
+public final class TraceConverter
+{
+    /**
+     * The columns of the CSV output after the values of the records.
+     */
+    private static final String[] ENERGY_COLUMNS = {"power", "cpu", "memory", "disk", "network"};
+
+    /**
+     * The reader of the trace.
+     */
+    private final TraceReader reader;
+
+    /**
+     * The output.
+     */
+    private final Writer out;
+
+    /**
+     * The column of each value name of the CSV output.
+     */
+    private final Map<String, Integer> columns = new LinkedHashMap<String, Integer>();
+
+    /**
+     * The line being written. It's reused by all records.
+     */
+    private final StringBuilder line = new StringBuilder();
+
+    /**
+     * @param traceReader
+     *            The reader of the trace.
+     * @param output
+     *            The output.
+     */
+    public TraceConverter(TraceReader traceReader, Writer output)
+    {
+        this.reader = traceReader;
+        this.out = output;
+
+        for (TraceRecord.Type type : TraceRecord.Type.values())
+        {
+            for (String name : type.getValueNames())
+            {
+                if (!this.columns.containsKey(name))
+                {
+                    this.columns.put(name, this.columns.size());
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts a trace.
+     * 
+     * @param args
+     *            The path of the trace or of a directory of event logs, the format (<em>csv</em> or <em>json</em>, default <em>csv</em>) and
+     *            the path of the output file.
+     * @throws IOException
+     *             If the trace cannot be read or the output cannot be written.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length == 0)
+        {
+            System.err.println("Usage: convert <trace> [csv|json] [output]");
+            return;
+        }
+
+        final boolean json = args.length > 1 && "json".equalsIgnoreCase(args[1]);
+        final Writer output = new BufferedWriter(args.length > 2 ? new FileWriter(args[2]) : new OutputStreamWriter(System.out), 1 << 16);
+
+        if (new File(args[0]).isDirectory())
+        {
+            try
+            {
+                events(new File(args[0]), json, output);
+            }
+            finally
+            {
+                output.flush();
+
+                if (args.length > 2)
+                {
+                    output.close();
+                }
+            }
+            return;
+        }
+
+        final TraceReader traceReader = new TraceReader(args[0]);
+
+        try
+        {
+            final TraceConverter converter = new TraceConverter(traceReader, output);
+
+            if (json)
+            {
+                converter.toJson();
+            }
+            else
+            {
+                converter.toCsv();
+            }
+        }
+        finally
+        {
+            traceReader.close();
+            output.flush();
+
+            if (args.length > 2)
+            {
+                output.close();
+            }
+        }
+    }
+
+    /**
+     * Writes the records as CSV.
+     * 
+     * @throws IOException
+     *             If the trace cannot be read or the output cannot be written.
+     */
+    public void toCsv() throws IOException
+    {
+        this.line.setLength(0);
+        this.line.append("record,timestamp,thread,method,path,direction");
+
+        for (String name : this.columns.keySet())
+        {
+            this.line.append(',').append(name);
+        }
+
+        for (String name : ENERGY_COLUMNS)
+        {
+            this.line.append(',').append(name);
+        }
+        this.out.append(this.line).append('\n');
+
+        final List<String> cells = new ArrayList<String>(this.columns.size());
+
+        while (this.reader.next())
+        {
+            final TraceRecord record = this.reader.getRecord();
+            final String[] names = record.getType().getValueNames();
+
+            cells.clear();
+
+            for (int i = 0; i < this.columns.size(); i++)
+            {
+                cells.add("");
+            }
+
+            for (int i = 0; i < names.length; i++)
+            {
+                cells.set(this.columns.get(names[i]), String.valueOf(record.getValue(i)));
+            }
+
+            this.line.setLength(0);
+            this.line.append(record.getType().name().toLowerCase()).append(',').append(record.getTimestamp()).append(',');
+            this.line.append(record.getThreadId()).append(',').append(quote(record.getMethod())).append(',');
+            this.line.append(quote(record.getPath())).append(',').append(record.getDirection() != null ? record.getDirection() : "");
+
+            for (String cell : cells)
+            {
+                this.line.append(',').append(cell);
+            }
+
+            final boolean energy = record.getType() != TraceRecord.Type.IO;
+            this.line.append(',').append(energy && record.getType() != TraceRecord.Type.SAMPLE ? String.valueOf(record.getPower()) : "");
+
+            for (EnergyDimension dimension : EnergyDimension.values())
+            {
+                this.line.append(',').append(energy ? String.valueOf(record.getEnergy(dimension)) : "");
+            }
+            this.out.append(this.line).append('\n');
+        }
+    }
+
+    /**
+     * Writes the records as JSON, one object per line.
+     * 
+     * @throws IOException
+     *             If the trace cannot be read or the output cannot be written.
+     */
+    public void toJson() throws IOException
+    {
+        while (this.reader.next())
+        {
+            final TraceRecord record = this.reader.getRecord();
+            final String[] names = record.getType().getValueNames();
+
+            this.line.setLength(0);
+            this.line.append("{\"record\":\"").append(record.getType().name().toLowerCase()).append("\",\"timestamp\":");
+            this.line.append(record.getTimestamp()).append(",\"thread\":").append(record.getThreadId());
+
+            if (record.getMethod() != null)
+            {
+                this.line.append(",\"method\":").append(json(record.getMethod()));
+            }
+
+            if (record.getType() == TraceRecord.Type.IO)
+            {
+                this.line.append(",\"path\":").append(json(record.getPath()));
+                this.line.append(",\"direction\":\"").append(record.getDirection()).append('"');
+            }
+
+            for (int i = 0; i < names.length; i++)
+            {
+                this.line.append(",\"").append(names[i]).append("\":").append(record.getValue(i));
+            }
+
+            if (record.getType() == TraceRecord.Type.INVOCATION || record.getType() == TraceRecord.Type.THREAD)
+            {
+                this.line.append(",\"power\":").append(record.getPower());
+            }
+
+            if (record.getType() != TraceRecord.Type.IO)
+            {
+                for (EnergyDimension dimension : EnergyDimension.values())
+                {
+                    this.line.append(",\"").append(dimension.name().toLowerCase()).append("\":").append(record.getEnergy(dimension));
+                }
+            }
+            this.out.append(this.line.append("}\n"));
+        }
+    }
+
+    /**
+     * Writes the invocations of the event logs of a directory.
+     * 
+     * @param directory
+     *            The directory of the event logs.
+     * @param json
+     *            If <code>true</code>, the invocations are written as JSON; otherwise as CSV.
+     * @param output
+     *            The output.
+     * @throws IOException
+     *             If a log cannot be read or the output cannot be written.
+     */
+    private static void events(File directory, boolean json, Writer output) throws IOException
+    {
+        final StringBuilder line = new StringBuilder();
+
+        if (!json)
+        {
+            output.write("timestamp,thread,method,depth,duration,cpu.time,allocated\n");
+        }
+
+        for (String log : EventLogReader.logs(directory))
+        {
+            final EventLogReader reader = new EventLogReader(directory, log);
+
+            while (reader.next())
+            {
+                line.setLength(0);
+
+                if (json)
+                {
+                    line.append("{\"timestamp\":").append(reader.getTimestamp()).append(",\"thread\":").append(reader.getThreadId());
+                    line.append(",\"method\":").append(json(reader.getMethod())).append(",\"depth\":").append(reader.getDepth());
+                    line.append(",\"duration\":").append(reader.getDuration()).append(",\"cpu.time\":").append(reader.getCpuTime());
+                    line.append(",\"allocated\":").append(reader.getAllocatedBytes()).append("}\n");
+                }
+                else
+                {
+                    line.append(reader.getTimestamp()).append(',').append(reader.getThreadId()).append(',').append(quote(reader.getMethod()));
+                    line.append(',').append(reader.getDepth()).append(',').append(reader.getDuration()).append(',').append(reader.getCpuTime());
+                    line.append(',').append(reader.getAllocatedBytes()).append('\n');
+                }
+                output.append(line);
+            }
+        }
+    }
+
+    /**
+     * Returns a value quoted as a CSV field.
+     * 
+     * @param value
+     *            The value. It can be <code>null</code>.
+     * @return The quoted value or an empty field if the value is <code>null</code>.
+     */
+    private static String quote(String value)
+    {
+        return value == null ? "" : '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Returns a value as a JSON string.
+     * 
+     * @param value
+     *            The value. It can be <code>null</code>.
+     * @return The JSON string or <em>null</em> if the value is <code>null</code>.
+     */
+    static String json(String value)
+    {
+        if (value == null)
+        {
+            return "null";
+        }
+
+        final StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+
+        for (int i = 0; i < value.length(); i++)
+        {
+            final char c = value.charAt(i);
+
+            if (c == '"' || c == '\\')
+            {
+                sb.append('\\').append(c);
+            }
+            else if (c < ' ')
+            {
+                sb.append(String.format("\\u%04x", (int) c));
+            }
+            else
+            {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
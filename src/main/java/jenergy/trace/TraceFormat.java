@@ -0,0 +1,87 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.trace;
+
+/**
+ * The constants of the binary trace format.
+ *
+ * A trace is a sequence of sessions. Each session starts with a header (the magic bytes, the version and the start time in milliseconds as a
+ * big-endian long) and is followed by records. Each record starts with its tag. The timestamps are encoded as the difference to the timestamp of
+ * the previous record of the session. The names of the methods and of the files are written once, in symbol records that are written before
+ * their first use, and the other records refer to them by their id. The integers are encoded as variable-length quantities (7 bits per byte, the
+ * least significant group first) and the signed ones are zigzag encoded. The energy is encoded as a bit mask of the dimensions that are not zero
+ * followed by their values in nanojoules as signed integers. The powers are big-endian doubles.
+ */
+final class TraceFormat
+{
+    /**
+     * The magic bytes of a session header. The first one is never a record tag.
+     */
+    static final byte[] MAGIC = {'J', 'T', 'R', 'C'};
+
+    /**
+     * The version of the format.
+     */
+    static final byte VERSION = 1;
+
+    /**
+     * The tag of a symbol: id, length and UTF-8 bytes.
+     */
+    static final byte SYMBOL = 1;
+
+    /**
+     * The tag of an interval sample: timestamp, thread, method and energy.
+     */
+    static final byte SAMPLE = 2;
+
+    /**
+     * The tag of the statistics of a method: timestamp, thread, method, invocations, time, CPU time, minimum, maximum, allocated bytes, CPU power
+     * and energy.
+     */
+    static final byte INVOCATION = 3;
+
+    /**
+     * The tag of the I/O histograms of a method and file: timestamp, thread, direction, method, path, the count, sum, percentiles and maximum of
+     * the sizes and of the latencies.
+     */
+    static final byte IO = 4;
+
+    /**
+     * The tag of the summary of a thread: timestamp, thread, time in milliseconds, power and energy.
+     */
+    static final byte THREAD = 5;
+
+    /**
+     * The number of nanojoules of a joule. The energy is rounded to nanojoules.
+     */
+    static final double NANOJOULES_PER_JOULE = 1E9;
+
+    /**
+     * The id of the absent symbol.
+     */
+    static final int NO_SYMBOL = 0;
+
+    /**
+     * Private constructor to avoid instance of this class.
+     */
+    private TraceFormat()
+    {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,442 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.trace;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import jenergy.compress.BlockInputStream;
+import jenergy.profile.data.IOInfo;
+
+/**
+ * Reads the records of a binary trace written by a {@link TraceWriter}. The records are read in order through the same {@link TraceRecord}:
+ * 
+ * <pre>
+ * TraceReader reader = new TraceReader(file);
+ * while (reader.next())
+ * {
+ *     TraceRecord record = reader.getRecord();
+ *     ...
+ * }
+ * reader.close();
+ * </pre>
+ * 
+ * Instances of this class are not thread-safe.
+ */
+public final class TraceReader
+{
+    /**
+     * The size of the buffer.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The charset of the symbols.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The directions of the I/O records.
+     */
+    private static final IOInfo.IOActivityType[] DIRECTIONS = IOInfo.IOActivityType.values();
+
+    /**
+     * The channel of the trace file.
+     */
+    private final ReadableByteChannel channel;
+
+    /**
+     * The record read by the last {@link #next()}.
+     */
+    private final TraceRecord record = new TraceRecord();
+
+    /**
+     * The symbols of the current session. The index is the symbol id.
+     */
+    private final List<String> symbols = new ArrayList<String>();
+
+    /**
+     * The buffer with the bytes read from the file.
+     */
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * Whether the end of the file has been reached.
+     */
+    private boolean eof;
+
+    /**
+     * The timestamp of the previous record.
+     */
+    private long lastTimestamp;
+
+    /**
+     * Opens a trace file. The compressed traces are decompressed while they are read.
+     * 
+     * @param file
+     *            The path of the trace file.
+     * @throws IOException
+     *             If the file cannot be opened.
+     */
+    public TraceReader(String file) throws IOException
+    {
+        final File trace = new File(file);
+        this.channel = BlockInputStream.isCompressed(trace) ? Channels.newChannel(new BlockInputStream(trace)) : FileChannel.open(Paths.get(file),
+                StandardOpenOption.READ);
+        this.buffer.flip();
+    }
+
+    /**
+     * Returns <code>true</code> if a file is a binary trace, compressed or not.
+     * 
+     * @param file
+     *            The path of the file.
+     * @return <code>true</code> if the file starts with the header of a session.
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    public static boolean isTrace(String file) throws IOException
+    {
+        final InputStream in = BlockInputStream.open(file);
+
+        try
+        {
+            for (byte magic : TraceFormat.MAGIC)
+            {
+                if (in.read() != (magic & 0xff))
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+
+    /**
+     * Reads the next record.
+     * 
+     * @return <code>true</code> if a record was read or <code>false</code> at the end of the trace.
+     * @throws IOException
+     *             If the trace cannot be read or it's corrupted.
+     */
+    public boolean next() throws IOException
+    {
+        while (this.ensure(1))
+        {
+            final byte tag = this.buffer.get();
+
+            if (tag == TraceFormat.MAGIC[0])
+            {
+                this.session();
+            }
+            else if (tag == TraceFormat.SYMBOL)
+            {
+                this.symbol();
+            }
+            else
+            {
+                this.record(tag);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the record read by the last {@link #next()}.
+     * 
+     * @return The record read by the last {@link #next()}. It's reused by the next records.
+     */
+    public TraceRecord getRecord()
+    {
+        return record;
+    }
+
+    /**
+     * Closes the file.
+     * 
+     * @throws IOException
+     *             If the file cannot be closed.
+     */
+    public void close() throws IOException
+    {
+        this.channel.close();
+    }
+
+    /**
+     * Reads the header of a session, whose first byte has been read.
+     * 
+     * @throws IOException
+     *             If the header is invalid.
+     */
+    private void session() throws IOException
+    {
+        this.require(TraceFormat.MAGIC.length + 8);
+
+        for (int i = 1; i < TraceFormat.MAGIC.length; i++)
+        {
+            if (this.buffer.get() != TraceFormat.MAGIC[i])
+            {
+                throw new IOException("Invalid trace header");
+            }
+        }
+
+        final byte version = this.buffer.get();
+
+        if (version != TraceFormat.VERSION)
+        {
+            throw new IOException("Unsupported trace version: " + version);
+        }
+        this.lastTimestamp = this.buffer.getLong();
+        this.symbols.clear();
+    }
+
+    /**
+     * Reads a symbol, whose tag has been read.
+     * 
+     * @throws IOException
+     *             If the symbol is invalid.
+     */
+    private void symbol() throws IOException
+    {
+        final int id = (int) this.varint();
+        final int length = (int) this.varint();
+        this.require(length);
+
+        final byte[] bytes = new byte[length];
+        this.buffer.get(bytes);
+
+        while (this.symbols.size() <= id)
+        {
+            this.symbols.add(null);
+        }
+        this.symbols.set(id, new String(bytes, UTF8));
+    }
+
+    /**
+     * Reads a record, whose tag has been read.
+     * 
+     * @param tag
+     *            The tag of the record.
+     * @throws IOException
+     *             If the record is invalid.
+     */
+    private void record(byte tag) throws IOException
+    {
+        this.record.clear();
+        this.lastTimestamp += unzigzag(this.varint());
+        this.record.timestamp = this.lastTimestamp;
+        this.record.threadId = unzigzag(this.varint());
+
+        switch (tag)
+        {
+            case TraceFormat.SAMPLE:
+                this.record.type = TraceRecord.Type.SAMPLE;
+                this.record.method = this.symbolOf(this.varint());
+                this.energy();
+                break;
+            case TraceFormat.INVOCATION:
+                this.record.type = TraceRecord.Type.INVOCATION;
+                this.record.method = this.symbolOf(this.varint());
+                this.values(TraceRecord.Type.INVOCATION.getValueCount());
+                this.require(8);
+                this.record.power = this.buffer.getDouble();
+                this.energy();
+                break;
+            case TraceFormat.IO:
+                this.record.type = TraceRecord.Type.IO;
+                this.require(1);
+                this.record.direction = DIRECTIONS[this.buffer.get()].name();
+                this.record.method = this.symbolOf(this.varint());
+                this.record.path = this.symbolOf(this.varint());
+                this.values(TraceRecord.Type.IO.getValueCount());
+                break;
+            case TraceFormat.THREAD:
+                this.record.type = TraceRecord.Type.THREAD;
+                this.values(TraceRecord.Type.THREAD.getValueCount());
+                this.require(8);
+                this.record.power = this.buffer.getDouble();
+                this.energy();
+                break;
+            default:
+                throw new IOException("Unknown trace record: " + tag);
+        }
+    }
+
+    /**
+     * Reads the values of a record.
+     * 
+     * @param count
+     *            The number of values.
+     * @throws IOException
+     *             If the values cannot be read.
+     */
+    private void values(int count) throws IOException
+    {
+        for (int i = 0; i < count; i++)
+        {
+            this.record.values[i] = this.varint();
+        }
+    }
+
+    /**
+     * Reads the energy of a record.
+     * 
+     * @throws IOException
+     *             If the energy cannot be read.
+     */
+    private void energy() throws IOException
+    {
+        this.require(1);
+        final int mask = this.buffer.get();
+
+        for (int i = 0; i < this.record.energy.length; i++)
+        {
+            if ((mask & 1 << i) != 0)
+            {
+                this.record.energy[i] = unzigzag(this.varint()) / TraceFormat.NANOJOULES_PER_JOULE;
+            }
+        }
+    }
+
+    /**
+     * Returns the symbol with the given id.
+     * 
+     * @param id
+     *            The id of the symbol.
+     * @return The symbol or <code>null</code> if the id is {@link TraceFormat#NO_SYMBOL}.
+     * @throws IOException
+     *             If the symbol has not been defined.
+     */
+    private String symbolOf(long id) throws IOException
+    {
+        if (id == TraceFormat.NO_SYMBOL)
+        {
+            return null;
+        }
+
+        if (id >= this.symbols.size() || this.symbols.get((int) id) == null)
+        {
+            throw new IOException("Undefined trace symbol: " + id);
+        }
+        return this.symbols.get((int) id);
+    }
+
+    /**
+     * Reads an unsigned variable-length integer.
+     * 
+     * @return The value.
+     * @throws IOException
+     *             If the value cannot be read.
+     */
+    private long varint() throws IOException
+    {
+        long value = 0;
+
+        for (int shift = 0; shift < 64; shift += 7)
+        {
+            this.require(1);
+            final byte b = this.buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+
+            if (b >= 0)
+            {
+                return value;
+            }
+        }
+        throw new IOException("Invalid variable-length integer");
+    }
+
+    /**
+     * Decodes a zigzag encoded value.
+     * 
+     * @param value
+     *            The encoded value.
+     * @return The signed value.
+     */
+    static long unzigzag(long value)
+    {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Makes the buffer have the given number of bytes.
+     * 
+     * @param bytes
+     *            The number of bytes.
+     * @throws IOException
+     *             If the file ends before.
+     */
+    private void require(int bytes) throws IOException
+    {
+        if (!this.ensure(bytes))
+        {
+            throw new EOFException("Truncated trace");
+        }
+    }
+
+    /**
+     * Reads the file until the buffer has the given number of bytes or the file ends.
+     * 
+     * @param bytes
+     *            The number of bytes.
+     * @return <code>true</code> if the buffer has the given number of bytes.
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    private boolean ensure(int bytes) throws IOException
+    {
+        if (this.buffer.remaining() >= bytes)
+        {
+            return true;
+        }
+
+        if (bytes > this.buffer.capacity())
+        {
+            final ByteBuffer larger = ByteBuffer.allocateDirect(Integer.highestOneBit(bytes) << 1);
+            larger.put(this.buffer);
+            larger.flip();
+            this.buffer = larger;
+        }
+
+        this.buffer.compact();
+
+        while (this.buffer.position() < bytes && !this.eof)
+        {
+            this.eof = this.channel.read(this.buffer) < 0;
+        }
+        this.buffer.flip();
+        return this.buffer.remaining() >= bytes;
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.trace;
+
+import jenergy.profile.energy.EnergyDimension;
+
+/**
+ * A record of a binary trace read by a {@link TraceReader}. The reader reuses the same instance for all records, so its values must be copied to
+ * be kept.
+ */
+public final class TraceRecord
+{
+    /**
+     * The types of records.
+     */
+    public static enum Type
+    {
+        /**
+         * The energy consumed by a method or a thread in an interval.
+         */
+        SAMPLE(),
+
+        /**
+         * The statistics of a method.
+         */
+        INVOCATION("invocations", "time", "cpu.time", "min", "max", "allocated"),
+
+        /**
+         * The I/O histograms of a method and file.
+         */
+        IO("operations", "bytes", "size.p50", "size.p90", "size.p99", "size.max", "timed.operations", "latency.sum", "latency.p50",
+                "latency.p90", "latency.p99", "latency.max"),
+
+        /**
+         * The summary of a thread.
+         */
+        THREAD("time");
+
+        /**
+         * The names of the values of the records of this type.
+         */
+        private final String[] names;
+
+        /**
+         * @param valueNames
+         *            The names of the values of the records of this type.
+         */
+        private Type(String... valueNames)
+        {
+            this.names = valueNames;
+        }
+
+        /**
+         * Returns the names of the values of the records of this type, in the order of {@link TraceRecord#getValue(int)}.
+         * 
+         * @return The names of the values of the records of this type.
+         */
+        public String[] getValueNames()
+        {
+            return names.clone();
+        }
+
+        /**
+         * Returns the number of values of the records of this type.
+         * 
+         * @return The number of values of the records of this type.
+         */
+        public int getValueCount()
+        {
+            return names.length;
+        }
+    }
+
+    /**
+     * The maximum number of values of a record.
+     */
+    private static final int MAX_VALUES = 12;
+
+    /**
+     * The values of the record.
+     */
+    final long[] values = new long[MAX_VALUES];
+
+    /**
+     * The energy of the record indexed by the {@link EnergyDimension} ordinal.
+     */
+    final double[] energy = new double[EnergyDimension.values().length];
+
+    /**
+     * The type of the record.
+     */
+    Type type;
+
+    /**
+     * The time in milliseconds of the record.
+     */
+    long timestamp;
+
+    /**
+     * The thread id.
+     */
+    long threadId;
+
+    /**
+     * The name of the method. It's <code>null</code> for the thread summaries.
+     */
+    String method;
+
+    /**
+     * The path of the file of the I/O records.
+     */
+    String path;
+
+    /**
+     * The direction of the I/O records.
+     */
+    String direction;
+
+    /**
+     * The CPU power of the methods or the power of the threads.
+     */
+    double power;
+
+    /**
+     * @return the type
+     */
+    public Type getType()
+    {
+        return type;
+    }
+
+    /**
+     * @return the timestamp in milliseconds
+     */
+    public long getTimestamp()
+    {
+        return timestamp;
+    }
+
+    /**
+     * @return the thread id
+     */
+    public long getThreadId()
+    {
+        return threadId;
+    }
+
+    /**
+     * @return the method
+     */
+    public String getMethod()
+    {
+        return method;
+    }
+
+    /**
+     * @return the path
+     */
+    public String getPath()
+    {
+        return path;
+    }
+
+    /**
+     * @return the direction
+     */
+    public String getDirection()
+    {
+        return direction;
+    }
+
+    /**
+     * @return the power
+     */
+    public double getPower()
+    {
+        return power;
+    }
+
+    /**
+     * Returns a value of the record.
+     * 
+     * @param index
+     *            The index of the value, as given by {@link Type#getValueNames()}.
+     * @return The value.
+     */
+    public long getValue(int index)
+    {
+        return values[index];
+    }
+
+    /**
+     * Returns the energy of a dimension.
+     * 
+     * @param dimension
+     *            The dimension.
+     * @return The energy in joules of the dimension.
+     */
+    public double getEnergy(EnergyDimension dimension)
+    {
+        return energy[dimension.ordinal()];
+    }
+
+    /**
+     * Clears the values of the previous record.
+     */
+    void clear()
+    {
+        for (int i = 0; i < this.values.length; i++)
+        {
+            this.values[i] = 0;
+        }
+
+        for (int i = 0; i < this.energy.length; i++)
+        {
+            this.energy[i] = 0;
+        }
+        this.method = null;
+        this.path = null;
+        this.direction = null;
+        this.power = 0;
+    }
+}
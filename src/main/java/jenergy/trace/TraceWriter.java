@@ -0,0 +1,446 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.trace;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+import jenergy.compress.Codec;
+import jenergy.compress.Compression;
+import jenergy.profile.data.Histogram;
+import jenergy.profile.data.IOHistograms;
+import jenergy.profile.data.MethodStatistics;
+import jenergy.profile.data.ThreadInfo;
+import jenergy.profile.energy.EnergyAccount;
+import jenergy.profile.energy.EnergyDimension;
+
+/**
+ * Appends records to a binary trace (see {@link TraceFormat}). The records are encoded into a direct buffer that is written to the file's
+ * channel when it's full, so the writer does not allocate any object per record, except for the new symbols. The file can be compressed in
+ * blocks (see {@link Compression}); each flush then ends a block.
+ *
+ * Instances of this class are not thread-safe.
+ */
+public final class TraceWriter
+{
+    /**
+     * The size of the buffer.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * The maximum size of a record without its strings.
+     */
+    private static final int MAX_RECORD_SIZE = 256;
+
+    /**
+     * The percentiles of the I/O histograms written in the trace.
+     */
+    private static final double[] PERCENTILES = {50, 90, 99};
+
+    /**
+     * The charset of the symbols.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The channel of the trace file.
+     */
+    private final WritableByteChannel channel;
+
+    /**
+     * The compressed output of the trace file. It's <code>null</code> when the trace is not compressed.
+     */
+    private final OutputStream compressed;
+
+    /**
+     * The buffer where the records are encoded.
+     */
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * The ids of the symbols already written in this session.
+     */
+    private final Map<String, Integer> symbols = new HashMap<String, Integer>();
+
+    /**
+     * The timestamp of the previous record.
+     */
+    private long lastTimestamp;
+
+    /**
+     * The energy of an account. The array is reused by all records.
+     */
+    private final double[] energy = new double[EnergyDimension.values().length];
+
+    /**
+     * The energy in nanojoules of a record. The array is reused by all records.
+     */
+    private final long[] nanojoules = new long[EnergyDimension.values().length];
+
+    /**
+     * Opens a trace file to append a new session.
+     * 
+     * @param file
+     *            The path of the trace file. It's created if it does not exist.
+     * @throws IOException
+     *             If the file cannot be opened or written.
+     */
+    public TraceWriter(String file) throws IOException
+    {
+        this(file, new Compression(Codec.NONE, 0, 1));
+    }
+
+    /**
+     * Opens a trace file to append a new session, compressing it with the given compression.
+     * 
+     * @param file
+     *            The path of the trace file. It's created if it does not exist.
+     * @param compression
+     *            The compression of the file. The sessions appended to a file must use the same compression as the existing ones.
+     * @throws IOException
+     *             If the file cannot be opened or written.
+     */
+    public TraceWriter(String file, Compression compression) throws IOException
+    {
+        if (compression.getCodec() == Codec.NONE)
+        {
+            this.channel = FileChannel.open(Paths.get(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            this.compressed = null;
+        }
+        else
+        {
+            this.compressed = compression.open(file, true);
+            this.channel = Channels.newChannel(this.compressed);
+        }
+        this.lastTimestamp = System.currentTimeMillis();
+
+        this.buffer.put(TraceFormat.MAGIC).put(TraceFormat.VERSION).putLong(this.lastTimestamp);
+    }
+
+    /**
+     * Writes the energy consumed by a method or a thread in an interval.
+     * 
+     * @param timestamp
+     *            The time in milliseconds of the sample.
+     * @param threadId
+     *            The thread id or <code>-1</code> if the energy was not consumed by a thread.
+     * @param method
+     *            The name of the method.
+     * @param energy
+     *            The energy in joules indexed by the {@link EnergyDimension} ordinal.
+     * @throws IOException
+     *             If the trace cannot be written.
+     */
+    public void sample(long timestamp, long threadId, String method, double[] energy) throws IOException
+    {
+        final int methodId = this.symbol(method);
+
+        this.header(TraceFormat.SAMPLE, timestamp, threadId);
+        this.putVarint(methodId);
+        this.putEnergy(energy);
+    }
+
+    /**
+     * Writes the statistics of a method.
+     * 
+     * @param timestamp
+     *            The time in milliseconds of the record.
+     * @param statistics
+     *            The statistics of the method.
+     * @throws IOException
+     *             If the trace cannot be written.
+     */
+    public void invocation(long timestamp, MethodStatistics statistics) throws IOException
+    {
+        final int methodId = this.symbol(statistics.getName());
+        final long invocations = statistics.getNumberOfInvocations();
+
+        this.header(TraceFormat.INVOCATION, timestamp, statistics.getThreadId());
+        this.putVarint(methodId);
+        this.putVarint(invocations);
+        this.putVarint(statistics.getTime());
+        this.putVarint(statistics.getCpuTime());
+        this.putVarint(invocations > 0 ? statistics.getMin() : 0);
+        this.putVarint(invocations > 0 ? statistics.getMax() : 0);
+        this.putVarint(statistics.getAllocatedBytes());
+        this.buffer.putDouble(statistics.getCpuPower());
+        this.putEnergy(statistics.getEnergy());
+    }
+
+    /**
+     * Writes the I/O histograms of a method and file.
+     * 
+     * @param timestamp
+     *            The time in milliseconds of the record.
+     * @param histograms
+     *            The histograms.
+     * @throws IOException
+     *             If the trace cannot be written.
+     */
+    public void io(long timestamp, IOHistograms histograms) throws IOException
+    {
+        final int methodId = this.symbol(histograms.getMethod());
+        final int pathId = this.symbol(histograms.getPath());
+
+        this.header(TraceFormat.IO, timestamp, histograms.getThreadId());
+        this.buffer.put((byte) histograms.getDirection().ordinal());
+        this.putVarint(methodId);
+        this.putVarint(pathId);
+        this.putHistogram(histograms.getSize());
+        this.putHistogram(histograms.getLatency());
+    }
+
+    /**
+     * Writes the summary of a thread.
+     * 
+     * @param timestamp
+     *            The time in milliseconds of the record.
+     * @param info
+     *            The thread.
+     * @throws IOException
+     *             If the trace cannot be written.
+     */
+    public void thread(long timestamp, ThreadInfo info) throws IOException
+    {
+        this.header(TraceFormat.THREAD, timestamp, info.getId());
+        this.putVarint(info.getTimer() != null ? info.getTimer().millis() : 0);
+        this.buffer.putDouble(info.getPower() != null ? info.getPower().doubleValue() : 0);
+        this.putEnergy(info.getEnergy());
+    }
+
+    /**
+     * Writes the buffered records to the file.
+     * 
+     * @throws IOException
+     *             If the records cannot be written.
+     */
+    public void flush() throws IOException
+    {
+        this.buffer.flip();
+
+        while (this.buffer.hasRemaining())
+        {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+
+        if (this.compressed != null)
+        {
+            this.compressed.flush();
+        }
+    }
+
+    /**
+     * Writes the buffered records and closes the file.
+     * 
+     * @throws IOException
+     *             If the records cannot be written.
+     */
+    public void close() throws IOException
+    {
+        try
+        {
+            this.flush();
+        }
+        finally
+        {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Returns the id of a symbol, writing it if it's new.
+     * 
+     * @param value
+     *            The symbol. It can be <code>null</code>.
+     * @return The id of the symbol or {@link TraceFormat#NO_SYMBOL} if it's <code>null</code>.
+     * @throws IOException
+     *             If the symbol cannot be written.
+     */
+    private int symbol(String value) throws IOException
+    {
+        if (value == null)
+        {
+            return TraceFormat.NO_SYMBOL;
+        }
+
+        Integer id = this.symbols.get(value);
+
+        if (id == null)
+        {
+            id = this.symbols.size() + 1;
+            this.symbols.put(value, id);
+
+            final byte[] bytes = value.getBytes(UTF8);
+            this.reserve(MAX_RECORD_SIZE);
+            this.buffer.put(TraceFormat.SYMBOL);
+            this.putVarint(id);
+            this.putVarint(bytes.length);
+
+            if (bytes.length > this.buffer.remaining())
+            {
+                this.flush();
+                this.channel.write(ByteBuffer.wrap(bytes));
+            }
+            else
+            {
+                this.buffer.put(bytes);
+            }
+        }
+        return id;
+    }
+
+    /**
+     * Writes the tag, the timestamp and the thread of a record.
+     * 
+     * @param tag
+     *            The tag of the record.
+     * @param timestamp
+     *            The time in milliseconds of the record.
+     * @param threadId
+     *            The thread id.
+     * @throws IOException
+     *             If the buffer cannot be flushed.
+     */
+    private void header(byte tag, long timestamp, long threadId) throws IOException
+    {
+        this.reserve(MAX_RECORD_SIZE);
+        this.buffer.put(tag);
+        this.putVarint(zigzag(timestamp - this.lastTimestamp));
+        this.putVarint(zigzag(threadId));
+        this.lastTimestamp = timestamp;
+    }
+
+    /**
+     * Flushes the buffer if it does not have the given number of free bytes.
+     * 
+     * @param bytes
+     *            The number of bytes to be written.
+     * @throws IOException
+     *             If the buffer cannot be flushed.
+     */
+    private void reserve(int bytes) throws IOException
+    {
+        if (this.buffer.remaining() < bytes)
+        {
+            this.flush();
+        }
+    }
+
+    /**
+     * Writes the count, the sum, the percentiles and the maximum of a histogram.
+     * 
+     * @param histogram
+     *            The histogram.
+     */
+    private void putHistogram(Histogram histogram)
+    {
+        this.putVarint(histogram.count());
+        this.putVarint(histogram.sum());
+
+        for (double percentile : PERCENTILES)
+        {
+            this.putVarint(histogram.percentile(percentile));
+        }
+        this.putVarint(histogram.max());
+    }
+
+    /**
+     * Writes the energy of an account.
+     * 
+     * @param account
+     *            The account. It can be <code>null</code>.
+     */
+    private void putEnergy(EnergyAccount account)
+    {
+        final EnergyDimension[] dimensions = EnergyDimension.values();
+
+        for (int i = 0; i < dimensions.length; i++)
+        {
+            this.energy[i] = account != null ? account.get(dimensions[i]) : 0;
+        }
+        this.putEnergy(this.energy);
+    }
+
+    /**
+     * Writes the energy of each dimension in nanojoules.
+     * 
+     * @param joules
+     *            The energy in joules indexed by the {@link EnergyDimension} ordinal.
+     */
+    private void putEnergy(double[] joules)
+    {
+        int mask = 0;
+
+        for (int i = 0; i < joules.length; i++)
+        {
+            this.nanojoules[i] = Math.round(joules[i] * TraceFormat.NANOJOULES_PER_JOULE);
+            mask |= this.nanojoules[i] != 0 ? 1 << i : 0;
+        }
+        this.buffer.put((byte) mask);
+
+        for (int i = 0; i < joules.length; i++)
+        {
+            if ((mask & 1 << i) != 0)
+            {
+                this.putVarint(zigzag(this.nanojoules[i]));
+            }
+        }
+    }
+
+    /**
+     * Writes an unsigned variable-length integer.
+     * 
+     * @param value
+     *            The value. The negative values use ten bytes.
+     */
+    private void putVarint(long value)
+    {
+        long remaining = value;
+
+        while ((remaining & ~0x7FL) != 0)
+        {
+            this.buffer.put((byte) ((remaining & 0x7F) | 0x80));
+            remaining >>>= 7;
+        }
+        this.buffer.put((byte) remaining);
+    }
+
+    /**
+     * Encodes a signed value so the small negative values use few bytes.
+     * 
+     * @param value
+     *            The value.
+     * @return The zigzag encoding of the value.
+     */
+    static long zigzag(long value)
+    {
+        return (value << 1) ^ (value >> 63);
+    }
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.aop.aspectj.aspects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import jenergy.profile.ProfiledThread;
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.IOInfo.IOActivityType;
+import jenergy.profile.data.MethodInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the advices of the {@link FileChannelAspect} account the bytes actually transferred by the reads, writes and transfers of a
+ * {@link FileChannel}, and leave the other channels alone.
+ */
+public class FileChannelAspectTest
+{
+    /**
+     * The advices under test.
+     */
+    private final FileChannelAspect aspect = new FileChannelAspect();
+
+    /**
+     * The file of the tests.
+     */
+    private Path path;
+
+    /**
+     * The channel of the file.
+     */
+    private FileChannel channel;
+
+    /**
+     * Creates and opens the file of the tests.
+     * 
+     * @throws IOException
+     *             If the file cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.path = Files.createTempFile("jenergy-channel", ".tmp");
+        this.channel = FileChannel.open(this.path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Closes and deletes the file of the tests.
+     * 
+     * @throws IOException
+     *             If the file cannot be closed.
+     */
+    @After
+    public void tearDown() throws IOException
+    {
+        this.channel.close();
+        Files.delete(this.path);
+    }
+
+    /**
+     * The reads and writes of one or many buffers and the transfers account the bytes they return; the end of the file is not an operation.
+     * 
+     * @throws Exception
+     *             If the channel cannot be written or read.
+     */
+    @Test
+    public void operationsAccountTheBytesTransferred() throws Exception
+    {
+        final MethodInfo method = ProfiledThread.run(new ProfiledThread.Body()
+        {
+            @Override
+            public void run(MethodInfo current) throws Throwable
+            {
+                aspect.aroundWrite(JoinPoints.proceeding(new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return channel.write(ByteBuffer.allocate(100));
+                    }
+                }), channel);
+
+                aspect.aroundWrite(JoinPoints.proceeding(new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return channel.write(new ByteBuffer[] {ByteBuffer.allocate(10), ByteBuffer.allocate(20) });
+                    }
+                }), channel);
+
+                aspect.aroundWrite(JoinPoints.proceeding(new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        final ReadableByteChannel input = Channels.newChannel(new ByteArrayInputStream(new byte[50]));
+                        return channel.transferFrom(input, channel.size(), 50);
+                    }
+                }), channel);
+
+                channel.position(0);
+
+                aspect.aroundRead(JoinPoints.proceeding(new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return channel.read(ByteBuffer.allocate(120));
+                    }
+                }), channel);
+
+                aspect.aroundRead(JoinPoints.proceeding(new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        final WritableByteChannel output = Channels.newChannel(new ByteArrayOutputStream());
+                        return channel.transferTo(channel.position(), Long.MAX_VALUE, output);
+                    }
+                }), channel);
+
+                channel.position(channel.size());
+
+                assertEquals(Integer.valueOf(-1), aspect.aroundRead(JoinPoints.proceeding(new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return channel.read(ByteBuffer.allocate(10));
+                    }
+                }), channel));
+            }
+        });
+
+        final IOInfo written = method.getChannelActivity(IOActivityType.WRITE, this.channel);
+        final IOInfo read = method.getChannelActivity(IOActivityType.READ, this.channel);
+
+        assertEquals(180, Files.size(this.path));
+        assertEquals(180, written.getBytes());
+        assertEquals(3, written.getOperations());
+        assertEquals(180, read.getBytes());
+        assertEquals(2, read.getOperations());
+        assertTrue(read.getLatency() > 0);
+    }
+
+    /**
+     * The operations called through the {@link java.nio.channels.SeekableByteChannel} interface are only accounted when the channel is a
+     * {@link FileChannel}.
+     * 
+     * @throws Exception
+     *             If the channels cannot be written.
+     */
+    @Test
+    public void seekableOperationsAreOnlyAccountedOnFileChannels() throws Exception
+    {
+        final WritableByteChannel other = Channels.newChannel(new ByteArrayOutputStream());
+
+        final MethodInfo method = ProfiledThread.run(new ProfiledThread.Body()
+        {
+            @Override
+            public void run(MethodInfo current) throws Throwable
+            {
+                aspect.aroundSeekableWrite(JoinPoints.proceeding(new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return channel.write(ByteBuffer.allocate(8));
+                    }
+                }), channel);
+
+                aspect.aroundSeekableWrite(JoinPoints.proceeding(new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return other.write(ByteBuffer.allocate(8));
+                    }
+                }), other);
+            }
+        });
+
+        assertEquals(8, method.getChannelActivity(IOActivityType.WRITE, this.channel).getBytes());
+        assertNull(method.getChannelActivity(IOActivityType.WRITE, other));
+    }
+}
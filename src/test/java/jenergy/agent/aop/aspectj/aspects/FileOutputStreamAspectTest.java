@@ -0,0 +1,220 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.aop.aspectj.aspects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import jenergy.agent.common.io.FileOutputStreamDelegate;
+import jenergy.profile.ProfiledThread;
+import jenergy.profile.data.MethodInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the {@link FileOutputStreamAspect} replaces the streams created by every constructor of {@link FileOutputStream} by a
+ * {@link FileOutputStreamDelegate} charged to the method that created them.
+ */
+public class FileOutputStreamAspectTest
+{
+    /**
+     * The bytes written to each stream.
+     */
+    private static final byte[] PAYLOAD = new byte[10];
+
+    /**
+     * The advice under test.
+     */
+    private final FileOutputStreamAspect aspect = new FileOutputStreamAspect();
+
+    /**
+     * The file written by the tests.
+     */
+    private File file;
+
+    /**
+     * Creates the file written by the tests.
+     * 
+     * @throws IOException
+     *             If the file cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.file = File.createTempFile("jenergy-output", ".tmp");
+    }
+
+    /**
+     * Deletes the file written by the tests.
+     */
+    @After
+    public void tearDown()
+    {
+        assertTrue(this.file.delete());
+    }
+
+    /**
+     * The streams opened by name, by file, to append and on a file descriptor are replaced by delegates charged to the current method.
+     * 
+     * @throws Exception
+     *             If the file cannot be written.
+     */
+    @Test
+    public void everyConstructorIsReplacedByAChargedDelegate() throws Exception
+    {
+        final String name = this.file.getPath();
+
+        ProfiledThread.run(new ProfiledThread.Body()
+        {
+            @Override
+            public void run(MethodInfo current) throws Throwable
+            {
+                writeTo(current, open(new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return new FileOutputStream(name);
+                    }
+                }, name));
+
+                writeTo(current, open(new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return new FileOutputStream(name, true);
+                    }
+                }, name, true));
+
+                writeTo(current, open(new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return new FileOutputStream(file);
+                    }
+                }, file));
+
+                writeTo(current, open(new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return new FileOutputStream(file, true);
+                    }
+                }, file, true));
+
+                final FileOutputStream owner = new FileOutputStream(file, true);
+
+                try
+                {
+                    final FileDescriptor fd = owner.getFD();
+
+                    writeTo(current, open(new JoinPoints.Operation()
+                    {
+                        @Override
+                        public Object run()
+                        {
+                            return new FileOutputStream(fd);
+                        }
+                    }, fd));
+                }
+                finally
+                {
+                    owner.close();
+                }
+            }
+        });
+
+        // the stream opened by file replaced the content, the next two appended to it
+        assertEquals(3 * PAYLOAD.length, this.file.length());
+    }
+
+    /**
+     * The threads that are not profiled get a delegate without method.
+     * 
+     * @throws Throwable
+     *             If the file cannot be written.
+     */
+    @Test
+    public void unprofiledThreadsGetADelegateWithoutMethod() throws Throwable
+    {
+        final FileOutputStreamDelegate output = open(new JoinPoints.Operation()
+        {
+            @Override
+            public Object run() throws IOException
+            {
+                return new FileOutputStream(file);
+            }
+        }, this.file);
+
+        output.write(PAYLOAD);
+        output.close();
+
+        assertNull(output.getInfo().getMethod());
+        assertEquals(PAYLOAD.length, output.getInfo().getBytes());
+    }
+
+    /**
+     * Calls the advice on a constructor call.
+     * 
+     * @param constructor
+     *            The constructor call.
+     * @param args
+     *            The arguments of the constructor.
+     * @return The stream returned by the advice, which must be a delegate.
+     * @throws Throwable
+     *             If the stream cannot be opened.
+     */
+    private FileOutputStreamDelegate open(JoinPoints.Operation constructor, Object... args) throws Throwable
+    {
+        final Object output = this.aspect.invoke(JoinPoints.proceeding(constructor, args));
+        assertTrue(output instanceof FileOutputStreamDelegate);
+        return (FileOutputStreamDelegate) output;
+    }
+
+    /**
+     * Writes {@link #PAYLOAD} to a delegate, closes it and checks that its bytes are charged to the given method.
+     * 
+     * @param method
+     *            The method that created the delegate.
+     * @param output
+     *            The delegate.
+     * @throws IOException
+     *             If the stream cannot be written.
+     */
+    private static void writeTo(MethodInfo method, FileOutputStreamDelegate output) throws IOException
+    {
+        output.write(PAYLOAD);
+        output.close();
+
+        assertSame(method, output.getInfo().getMethod());
+        assertEquals(PAYLOAD.length, output.getInfo().getBytes());
+    }
+}
@@ -0,0 +1,264 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.aop.aspectj.aspects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import jenergy.agent.common.io.PathInputStreamDelegate;
+import jenergy.agent.common.io.PathOutputStreamDelegate;
+import jenergy.profile.ProfiledThread;
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.IOInfo.IOActivityType;
+import jenergy.profile.data.MethodInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the advices of the {@link FilesAspect} account the bytes read and written by the {@link Files} operations on whole files, charged
+ * to the path of each file.
+ */
+public class FilesAspectTest
+{
+    /**
+     * The content written by the tests.
+     */
+    private static final byte[] CONTENT = "0123456789".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * The advices under test.
+     */
+    private final FilesAspect aspect = new FilesAspect();
+
+    /**
+     * The directory of the files of the tests.
+     */
+    private Path directory;
+
+    /**
+     * The file written by the tests.
+     */
+    private Path source;
+
+    /**
+     * The copy of {@link #source}.
+     */
+    private Path target;
+
+    /**
+     * Creates the directory of the files of the tests.
+     * 
+     * @throws IOException
+     *             If the directory cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.directory = Files.createTempDirectory("jenergy-files");
+        this.source = this.directory.resolve("source");
+        this.target = this.directory.resolve("target");
+    }
+
+    /**
+     * Deletes the files of the tests.
+     * 
+     * @throws IOException
+     *             If a file cannot be deleted.
+     */
+    @After
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(this.source);
+        Files.deleteIfExists(this.target);
+        Files.delete(this.directory);
+    }
+
+    /**
+     * Writing and reading a whole file accounts its content; writing lines accounts the growth of the file.
+     * 
+     * @throws Exception
+     *             If the files cannot be written or read.
+     */
+    @Test
+    public void wholeFileOperationsAccountTheirContent() throws Exception
+    {
+        final MethodInfo method = ProfiledThread.run(new ProfiledThread.Body()
+        {
+            @Override
+            public void run(MethodInfo current) throws Throwable
+            {
+                aspect.aroundWrite(JoinPoints.proceeding(new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return Files.write(source, CONTENT);
+                    }
+                }), source, CONTENT);
+
+                aspect.aroundWriteLines(JoinPoints.proceeding(new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return Files.write(source, Arrays.asList("ab", "cd"), StandardCharsets.US_ASCII, StandardOpenOption.APPEND);
+                    }
+                }), source);
+
+                aspect.aroundReadAllBytes(JoinPoints.proceeding(new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return Files.readAllBytes(source);
+                    }
+                }), source);
+            }
+        });
+
+        final long size = CONTENT.length + "ab\ncd\n".length();
+        assertEquals(size, Files.size(this.source));
+        assertEquals(size, method.getChannelActivity(IOActivityType.WRITE, this.source).getBytes());
+        assertEquals(2, method.getChannelActivity(IOActivityType.WRITE, this.source).getOperations());
+        assertEquals(size, method.getChannelActivity(IOActivityType.READ, this.source).getBytes());
+    }
+
+    /**
+     * The streams returned by {@link Files} are replaced by delegates charged to the current method.
+     * 
+     * @throws Exception
+     *             If the file cannot be written or read.
+     */
+    @Test
+    public void streamsAreReplacedByChargedDelegates() throws Exception
+    {
+        final Object[] streams = new Object[2];
+
+        final MethodInfo method = ProfiledThread.run(new ProfiledThread.Body()
+        {
+            @Override
+            public void run(MethodInfo current) throws Throwable
+            {
+                final OutputStream output = (OutputStream) aspect.aroundNewOutputStream(JoinPoints.proceeding(new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return Files.newOutputStream(source);
+                    }
+                }), source);
+                output.write(CONTENT);
+                output.close();
+
+                final InputStream input = (InputStream) aspect.aroundNewInputStream(JoinPoints.proceeding(new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return Files.newInputStream(source);
+                    }
+                }), source);
+                assertEquals(CONTENT.length, input.read(new byte[2 * CONTENT.length]));
+                input.close();
+
+                streams[0] = output;
+                streams[1] = input;
+            }
+        });
+
+        assertTrue(streams[0] instanceof PathOutputStreamDelegate);
+        assertTrue(streams[1] instanceof PathInputStreamDelegate);
+
+        final IOInfo written = ((PathOutputStreamDelegate) streams[0]).getInfo();
+        final IOInfo read = ((PathInputStreamDelegate) streams[1]).getInfo();
+
+        assertSame(method, written.getMethod());
+        assertEquals(CONTENT.length, written.getBytes());
+        assertSame(method, read.getMethod());
+        assertEquals(CONTENT.length, read.getBytes());
+    }
+
+    /**
+     * A copy between files reads the source and writes the target; a copy between a file and a stream only accounts the file side.
+     * 
+     * @throws Exception
+     *             If the files cannot be copied.
+     */
+    @Test
+    public void copiesAccountEachFileSide() throws Exception
+    {
+        Files.write(this.source, CONTENT);
+
+        final MethodInfo method = ProfiledThread.run(new ProfiledThread.Body()
+        {
+            @Override
+            public void run(MethodInfo current) throws Throwable
+            {
+                aspect.aroundCopy(JoinPoints.proceeding(new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }), source, target);
+
+                aspect.aroundCopyToStream(JoinPoints.proceeding(new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return Files.copy(target, new ByteArrayOutputStream());
+                    }
+                }), target);
+
+                aspect.aroundCopyFromStream(JoinPoints.proceeding(new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return Files.copy(new ByteArrayInputStream(CONTENT, 0, 4), target, StandardCopyOption.REPLACE_EXISTING);
+                    }
+                }), target);
+            }
+        });
+
+        assertEquals(CONTENT.length, method.getChannelActivity(IOActivityType.READ, this.source).getBytes());
+        assertNull(method.getChannelActivity(IOActivityType.WRITE, this.source));
+        assertEquals(CONTENT.length, method.getChannelActivity(IOActivityType.READ, this.target).getBytes());
+        assertEquals(CONTENT.length + 4, method.getChannelActivity(IOActivityType.WRITE, this.target).getBytes());
+        assertEquals(2, method.getChannelActivity(IOActivityType.WRITE, this.target).getOperations());
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.aop.aspectj.aspects;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+
+/**
+ * Creates the joinpoints given to the advices called by the tests, so an advice can be checked without weaving: proceeding runs the operation of
+ * the test.
+ */
+public final class JoinPoints
+{
+    /**
+     * The operation advised by a test.
+     */
+    public interface Operation
+    {
+        /**
+         * Runs the operation.
+         * 
+         * @return The value returned by the operation.
+         * @throws Exception
+         *             If the operation fails.
+         */
+        Object run() throws Exception;
+    }
+
+    /**
+     * Private constructor to avoid instance of this class.
+     */
+    private JoinPoints()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns a joinpoint that runs the given operation when it proceeds. Its other methods are not supported, except the getter of its
+     * arguments.
+     * 
+     * @param operation
+     *            The advised operation.
+     * @param args
+     *            The arguments of the joinpoint.
+     * @return A joinpoint of the given operation.
+     */
+    public static ProceedingJoinPoint proceeding(final Operation operation, final Object... args)
+    {
+        return proceedingOn(null, operation, args);
+    }
+
+    /**
+     * Returns a joinpoint of a call on the given target that runs the given operation when it proceeds. The arguments given to proceed replace
+     * the arguments of the joinpoint, so the operation sees them. Its other methods are not supported, except the getters of its target and of its
+     * arguments.
+     * 
+     * @param target
+     *            The target of the advised call.
+     * @param operation
+     *            The advised operation.
+     * @param args
+     *            The arguments of the joinpoint.
+     * @return A joinpoint of the given operation.
+     */
+    public static ProceedingJoinPoint proceedingOn(final Object target, final Operation operation, final Object... args)
+    {
+        return (ProceedingJoinPoint) Proxy.newProxyInstance(JoinPoints.class.getClassLoader(), new Class<?>[] {ProceedingJoinPoint.class },
+                new InvocationHandler()
+                {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] parameters) throws Throwable
+                    {
+                        if ("proceed".equals(method.getName()))
+                        {
+                            if (parameters != null && parameters.length == 1)
+                            {
+                                final Object[] proceeding = (Object[]) parameters[0];
+                                System.arraycopy(proceeding, 0, args, 0, args.length);
+                            }
+                            return operation.run();
+                        }
+                        else if ("getArgs".equals(method.getName()))
+                        {
+                            return args;
+                        }
+                        else if ("getTarget".equals(method.getName()))
+                        {
+                            return target;
+                        }
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+}
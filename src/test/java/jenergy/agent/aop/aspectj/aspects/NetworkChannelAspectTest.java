@@ -0,0 +1,343 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.aop.aspectj.aspects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import jenergy.agent.common.net.NetworkCompletionHandler;
+import jenergy.agent.common.net.NetworkFuture;
+import jenergy.profile.ProfiledThread;
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.IOInfo.IOActivityType;
+import jenergy.profile.data.MethodInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the advices of the {@link NetworkChannelAspect} account the bytes actually sent and received by the socket and datagram channels,
+ * leave the other channels alone, and wrap the completion of the asynchronous operations.
+ */
+public class NetworkChannelAspectTest
+{
+    /**
+     * The literal of the loopback address.
+     */
+    private static final String LOOPBACK = InetAddress.getLoopbackAddress().getHostAddress();
+
+    /**
+     * The advices under test.
+     */
+    private final NetworkChannelAspect aspect = new NetworkChannelAspect();
+
+    /**
+     * The server accepting the connections of the tests.
+     */
+    private ServerSocketChannel server;
+
+    /**
+     * The channel connected to the server.
+     */
+    private SocketChannel client;
+
+    /**
+     * The channel accepted by the server.
+     */
+    private SocketChannel accepted;
+
+    /**
+     * Connects a channel to a server on the loopback interface.
+     * 
+     * @throws IOException
+     *             If the connection cannot be established.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        this.client = SocketChannel.open(this.server.getLocalAddress());
+        this.accepted = this.server.accept();
+    }
+
+    /**
+     * Closes the channels and the server.
+     * 
+     * @throws IOException
+     *             If a channel cannot be closed.
+     */
+    @After
+    public void tearDown() throws IOException
+    {
+        this.client.close();
+        this.accepted.close();
+        this.server.close();
+    }
+
+    /**
+     * The writes of one or many buffers and the reads account the bytes they return to the channel of the method, with the peer as remote host;
+     * the end of the stream is not an operation.
+     * 
+     * @throws Exception
+     *             If the channels cannot be written or read.
+     */
+    @Test
+    public void socketChannelOperationsAccountTheBytesTransferred() throws Exception
+    {
+        final MethodInfo method = ProfiledThread.run(new ProfiledThread.Body()
+        {
+            @Override
+            public void run(MethodInfo current) throws Throwable
+            {
+                assertEquals(Integer.valueOf(100), aspect.aroundWrite(JoinPoints.proceedingOn(client, new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return client.write(ByteBuffer.allocate(100));
+                    }
+                })));
+
+                assertEquals(Long.valueOf(50), aspect.aroundWrite(JoinPoints.proceedingOn(client, new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return client.write(new ByteBuffer[] {ByteBuffer.allocate(30), ByteBuffer.allocate(20) });
+                    }
+                })));
+                client.shutdownOutput();
+
+                final ByteBuffer buffer = ByteBuffer.allocate(200);
+                int read;
+
+                do
+                {
+                    read = ((Number) aspect.aroundRead(JoinPoints.proceedingOn(accepted, new JoinPoints.Operation()
+                    {
+                        @Override
+                        public Object run() throws IOException
+                        {
+                            return accepted.read(buffer);
+                        }
+                    }))).intValue();
+                }
+                while (read >= 0);
+
+                assertEquals(150, buffer.position());
+            }
+        });
+
+        final IOInfo write = method.getNetworkActivity(IOActivityType.WRITE, this.client);
+        assertEquals(150, write.getBytes());
+        assertEquals(2, write.getOperations());
+        assertEquals(LOOPBACK, write.getPath());
+        assertTrue(write.getLatency() >= 0);
+
+        final IOInfo read = method.getNetworkActivity(IOActivityType.READ, this.accepted);
+        assertEquals(150, read.getBytes());
+        assertTrue(read.getOperations() >= 1);
+        assertNull(method.getNetworkActivity(IOActivityType.READ, this.client));
+    }
+
+    /**
+     * The channels that do not transfer their bytes through the network proceed without being accounted.
+     * 
+     * @throws Exception
+     *             If the channel cannot be read.
+     */
+    @Test
+    public void otherChannelsAreNotAccounted() throws Exception
+    {
+        final ReadableByteChannel channel = Channels.newChannel(new ByteArrayInputStream(new byte[10]));
+
+        final MethodInfo method = ProfiledThread.run(new ProfiledThread.Body()
+        {
+            @Override
+            public void run(MethodInfo current) throws Throwable
+            {
+                assertEquals(Integer.valueOf(10), aspect.aroundRead(JoinPoints.proceedingOn(channel, new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return channel.read(ByteBuffer.allocate(16));
+                    }
+                })));
+            }
+        });
+
+        assertNull(method.getNetworkActivity(IOActivityType.READ, channel));
+        assertTrue(method.getActivities().isEmpty());
+    }
+
+    /**
+     * The datagrams sent and received are accounted by remote address: the destination of the sent ones and the source of the received ones.
+     * 
+     * @throws Exception
+     *             If the datagrams cannot be sent or received.
+     */
+    @Test
+    public void datagramsAreAccountedByRemoteAddress() throws Exception
+    {
+        final DatagramChannel receiver = DatagramChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        final DatagramChannel sender = DatagramChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        final SocketAddress destination = receiver.getLocalAddress();
+        final SocketAddress[] source = new SocketAddress[1];
+
+        try
+        {
+            final MethodInfo method = ProfiledThread.run(new ProfiledThread.Body()
+            {
+                @Override
+                public void run(MethodInfo current) throws Throwable
+                {
+                    final ByteBuffer datagram = ByteBuffer.allocate(12);
+
+                    assertEquals(Integer.valueOf(12), aspect.aroundSend(JoinPoints.proceedingOn(sender, new JoinPoints.Operation()
+                    {
+                        @Override
+                        public Object run() throws IOException
+                        {
+                            return sender.send(datagram, destination);
+                        }
+                    }, datagram, destination)));
+
+                    final ByteBuffer buffer = ByteBuffer.allocate(64);
+                    buffer.position(4);
+
+                    source[0] = (SocketAddress) aspect.aroundReceive(JoinPoints.proceedingOn(receiver, new JoinPoints.Operation()
+                    {
+                        @Override
+                        public Object run() throws IOException
+                        {
+                            return receiver.receive(buffer);
+                        }
+                    }, buffer));
+                }
+            });
+
+            assertEquals(sender.getLocalAddress(), source[0]);
+
+            final IOInfo sent = method.getNetworkActivity(IOActivityType.WRITE, destination);
+            assertEquals(12, sent.getBytes());
+            assertEquals(1, sent.getOperations());
+            assertEquals(LOOPBACK, sent.getPath());
+
+            final IOInfo received = method.getNetworkActivity(IOActivityType.READ, source[0]);
+            assertEquals(12, received.getBytes());
+            assertEquals(LOOPBACK, received.getPath());
+        }
+        finally
+        {
+            receiver.close();
+            sender.close();
+        }
+    }
+
+    /**
+     * The asynchronous operations proceed with their completion handler wrapped, or return their future wrapped, so their bytes are accounted
+     * when they complete; the application still gets the result.
+     * 
+     * @throws Throwable
+     *             If the operations cannot be completed.
+     */
+    @Test
+    public void asynchronousOperationsAreWrapped() throws Throwable
+    {
+        final AsynchronousSocketChannel channel = AsynchronousSocketChannel.open();
+
+        try
+        {
+            channel.connect(this.server.getLocalAddress()).get(10, TimeUnit.SECONDS);
+
+            final ByteBuffer first = ByteBuffer.allocate(8);
+            final Future<?> future = (Future<?>) this.aspect.aroundAsyncWriteFuture(JoinPoints.proceedingOn(channel, new JoinPoints.Operation()
+            {
+                @Override
+                public Object run()
+                {
+                    return channel.write(first);
+                }
+            }, first));
+
+            assertTrue(future instanceof NetworkFuture);
+            assertEquals(Integer.valueOf(8), future.get(10, TimeUnit.SECONDS));
+
+            final CountDownLatch completed = new CountDownLatch(1);
+            final Integer[] result = new Integer[1];
+            final ByteBuffer second = ByteBuffer.allocate(4);
+            final Object[] args = {second, "attachment", new CompletionHandler<Integer, String>()
+            {
+                @Override
+                public void completed(Integer written, String attachment)
+                {
+                    result[0] = written;
+                    completed.countDown();
+                }
+
+                @Override
+                public void failed(Throwable exc, String attachment)
+                {
+                    completed.countDown();
+                }
+            } };
+
+            assertNull(this.aspect.aroundAsyncWrite(JoinPoints.proceedingOn(channel, new JoinPoints.Operation()
+            {
+                @Override
+                @SuppressWarnings("unchecked")
+                public Object run()
+                {
+                    assertTrue(args[2] instanceof NetworkCompletionHandler);
+                    channel.write((ByteBuffer) args[0], (String) args[1], (CompletionHandler<Integer, String>) args[2]);
+                    return null;
+                }
+            }, args)));
+
+            assertTrue(completed.await(10, TimeUnit.SECONDS));
+            assertEquals(Integer.valueOf(4), result[0]);
+            assertSame(second, args[0]);
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+}
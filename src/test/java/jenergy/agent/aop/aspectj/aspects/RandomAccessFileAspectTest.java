@@ -0,0 +1,273 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.aop.aspectj.aspects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import jenergy.profile.ProfiledThread;
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.IOInfo.IOActivityType;
+import jenergy.profile.data.MethodInfo;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the advices of the {@link RandomAccessFileAspect} account the bytes actually transferred by each operation of a
+ * {@link RandomAccessFile}: what is written is the length of the file, and reading it back accounts the same number of bytes.
+ */
+public class RandomAccessFileAspectTest
+{
+    /**
+     * A string with characters encoded in one, two and three bytes in modified UTF-8, and a null character encoded in two bytes.
+     */
+    private static final String TEXT = "caf\u00e9 \u20ac\u0000";
+
+    /**
+     * The advices under test.
+     */
+    private final RandomAccessFileAspect aspect = new RandomAccessFileAspect();
+
+    /**
+     * The file written and read by the tests.
+     */
+    private File path;
+
+    /**
+     * The opened file.
+     */
+    private RandomAccessFile file;
+
+    /**
+     * Creates and opens the file of the tests.
+     * 
+     * @throws IOException
+     *             If the file cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.path = File.createTempFile("jenergy-random", ".tmp");
+        this.file = new RandomAccessFile(this.path, "rw");
+    }
+
+    /**
+     * Closes and deletes the file of the tests.
+     * 
+     * @throws IOException
+     *             If the file cannot be closed.
+     */
+    @After
+    public void tearDown() throws IOException
+    {
+        this.file.close();
+        assertTrue(this.path.delete());
+    }
+
+    /**
+     * The typed operations account the size of their primitive or of their encoded string, so the bytes written are the length of the file and
+     * the bytes read back are the same. The end of the file is not counted as an operation.
+     * 
+     * @throws Exception
+     *             If the file cannot be written or read.
+     */
+    @Test
+    public void typedOperationsAccountTheirEncodedSize() throws Exception
+    {
+        final MethodInfo method = ProfiledThread.run(new ProfiledThread.Body()
+        {
+            @Override
+            public void run(MethodInfo current) throws Throwable
+            {
+                aspect.aroundWriteBoolean(invoking("writeBoolean", true), file);
+                aspect.aroundWriteBoolean(invoking("writeByte", 7), file);
+                aspect.aroundWriteShort(invoking("writeChar", (int) 'x'), file);
+                aspect.aroundWriteShort(invoking("writeShort", 300), file);
+                aspect.aroundWriteInt(invoking("writeInt", 70000), file);
+                aspect.aroundWriteInt(invoking("writeFloat", 1.5f), file);
+                aspect.aroundWriteLong(invoking("writeLong", 1L << 40), file);
+                aspect.aroundWriteLong(invoking("writeDouble", 2.5d), file);
+                aspect.aroundWriteUTF(invoking("writeUTF", TEXT), file, TEXT);
+                aspect.aroundWriteBytes(invoking("writeBytes", "line\n"), file, "line\n");
+                aspect.aroundWriteChars(invoking("writeChars", "ab"), file, "ab");
+
+                file.seek(0);
+
+                assertEquals(Boolean.TRUE, aspect.aroundReadBoolean(invoking("readBoolean"), file));
+                assertEquals(Integer.valueOf(7), aspect.aroundReadBoolean(invoking("readUnsignedByte"), file));
+                assertEquals(Character.valueOf('x'), aspect.aroundReadShort(invoking("readChar"), file));
+                assertEquals(Integer.valueOf(300), aspect.aroundReadShort(invoking("readUnsignedShort"), file));
+                assertEquals(Integer.valueOf(70000), aspect.aroundReadInt(invoking("readInt"), file));
+                assertEquals(Float.valueOf(1.5f), aspect.aroundReadInt(invoking("readFloat"), file));
+                assertEquals(Long.valueOf(1L << 40), aspect.aroundReadLong(invoking("readLong"), file));
+                assertEquals(Double.valueOf(2.5d), aspect.aroundReadLong(invoking("readDouble"), file));
+                assertEquals(TEXT, aspect.aroundReadUTF(invoking("readUTF"), file));
+                assertEquals("line", aspect.aroundReadLine(invoking("readLine"), file));
+                assertEquals(Character.valueOf('a'), aspect.aroundReadShort(invoking("readChar"), file));
+                assertEquals(Character.valueOf('b'), aspect.aroundReadShort(invoking("readChar"), file));
+                assertNull(aspect.aroundReadLine(invoking("readLine"), file));
+            }
+        });
+
+        final IOInfo written = method.getChannelActivity(IOActivityType.WRITE, this.file);
+        final IOInfo read = method.getChannelActivity(IOActivityType.READ, this.file);
+
+        assertEquals(this.path.length(), written.getBytes());
+        assertEquals(11, written.getOperations());
+        assertEquals(this.path.length(), read.getBytes());
+        assertEquals(12, read.getOperations());
+        assertTrue(written.getLatency() > 0);
+    }
+
+    /**
+     * The operations on byte arrays account the bytes actually read, and a failed operation is not accounted.
+     * 
+     * @throws Exception
+     *             If the file cannot be written or read.
+     */
+    @Test
+    public void arrayOperationsAccountTheBytesTransferred() throws Exception
+    {
+        final byte[] buffer = new byte[10];
+
+        final MethodInfo method = ProfiledThread.run(new ProfiledThread.Body()
+        {
+            @Override
+            public void run(MethodInfo current) throws Throwable
+            {
+                aspect.aroundWrite(invoking("write", buffer), file, buffer);
+                aspect.aroundWrite(invoking("write", buffer, 0, 4), file, 4);
+                aspect.aroundWriteByte(invoking("write", 1), file);
+
+                file.seek(0);
+
+                aspect.aroundReadFully(invoking("readFully", buffer, 0, 5), file, 5);
+                assertEquals(Integer.valueOf(10), aspect.aroundRead(invoking("read", buffer), file));
+                assertEquals(Integer.valueOf(-1), aspect.aroundReadByte(invoking("read"), file));
+
+                try
+                {
+                    aspect.aroundReadFully(invoking("readFully", buffer), file, buffer);
+                }
+                catch (EOFException expected)
+                {
+                    return;
+                }
+                throw new AssertionError("readFully did not fail at the end of the file");
+            }
+        });
+
+        assertEquals(15, method.getChannelActivity(IOActivityType.WRITE, this.file).getBytes());
+        assertEquals(15, method.getChannelActivity(IOActivityType.READ, this.file).getBytes());
+        assertEquals(2, method.getChannelActivity(IOActivityType.READ, this.file).getOperations());
+    }
+
+    /**
+     * Returns a joinpoint that calls the given method of the file of the test.
+     * 
+     * @param name
+     *            The name of the method.
+     * @param args
+     *            The arguments of the call. The method is the one with the given name and number of parameters whose types accept them.
+     * @return A joinpoint of the call.
+     * @throws NoSuchMethodException
+     *             If the file has no such method.
+     */
+    private ProceedingJoinPoint invoking(String name, final Object... args) throws NoSuchMethodException
+    {
+        final Method method = methodOf(name, args);
+
+        return JoinPoints.proceeding(new JoinPoints.Operation()
+        {
+            @Override
+            public Object run() throws Exception
+            {
+                try
+                {
+                    return method.invoke(file, args);
+                }
+                catch (InvocationTargetException exception)
+                {
+                    throw (Exception) exception.getCause();
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the method of {@link RandomAccessFile} with the given name that accepts the given arguments.
+     * 
+     * @param name
+     *            The name of the method.
+     * @param args
+     *            The arguments of the call.
+     * @return The method of {@link RandomAccessFile} with the given name that accepts the given arguments.
+     * @throws NoSuchMethodException
+     *             If there is no such method.
+     */
+    private static Method methodOf(String name, Object[] args) throws NoSuchMethodException
+    {
+        for (Method method : RandomAccessFile.class.getMethods())
+        {
+            if (method.getName().equals(name) && accepts(method.getParameterTypes(), args))
+            {
+                return method;
+            }
+        }
+        throw new NoSuchMethodException(name);
+    }
+
+    /**
+     * Returns whether the parameters of a method accept the given arguments, the primitive parameters accepting their wrappers.
+     * 
+     * @param types
+     *            The types of the parameters.
+     * @param args
+     *            The arguments.
+     * @return <code>true</code> if each argument is an instance of its parameter type or of its wrapper.
+     */
+    private static boolean accepts(Class<?>[] types, Object[] args)
+    {
+        if (types.length != args.length)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < types.length; i++)
+        {
+            if (!MethodType.methodType(types[i]).wrap().returnType().isInstance(args[i]))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.aop.aspectj.aspects;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import jenergy.agent.common.net.SocketInputStreamDelegate;
+import jenergy.agent.common.net.SocketOutputStreamDelegate;
+import jenergy.profile.ProfiledThread;
+import jenergy.profile.data.MethodInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the advices of the {@link SocketAspect} replace the streams of a {@link Socket} by the delegates of the calling method, once per
+ * stream, and close their activities with the socket.
+ */
+public class SocketAspectTest
+{
+    /**
+     * The advices under test.
+     */
+    private final SocketAspect aspect = new SocketAspect();
+
+    /**
+     * The server accepting the connection of the tests.
+     */
+    private ServerSocket server;
+
+    /**
+     * The socket connected to the server.
+     */
+    private Socket client;
+
+    /**
+     * Connects a socket to a server on the loopback interface.
+     * 
+     * @throws IOException
+     *             If the connection cannot be established.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        this.client = new Socket(InetAddress.getLoopbackAddress(), this.server.getLocalPort());
+    }
+
+    /**
+     * Closes the socket and the server.
+     * 
+     * @throws IOException
+     *             If a socket cannot be closed.
+     */
+    @After
+    public void tearDown() throws IOException
+    {
+        this.client.close();
+        this.server.close();
+    }
+
+    /**
+     * The streams are replaced by delegates charged to the method that got them; getting a stream again gives the same delegate, and closing the
+     * socket closes their activities.
+     * 
+     * @throws Exception
+     *             If the streams cannot be got.
+     */
+    @Test
+    public void streamsAreReplacedByDelegates() throws Exception
+    {
+        final Object[] streams = new Object[3];
+
+        final MethodInfo method = ProfiledThread.run(new ProfiledThread.Body()
+        {
+            @Override
+            public void run(MethodInfo current) throws Throwable
+            {
+                streams[0] = aspect.aroundGetInputStream(JoinPoints.proceedingOn(client, new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return client.getInputStream();
+                    }
+                }));
+                streams[1] = aspect.aroundGetOutputStream(JoinPoints.proceedingOn(client, new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return client.getOutputStream();
+                    }
+                }));
+                streams[2] = aspect.aroundGetOutputStream(JoinPoints.proceedingOn(client, new JoinPoints.Operation()
+                {
+                    @Override
+                    public Object run() throws IOException
+                    {
+                        return client.getOutputStream();
+                    }
+                }));
+                ((OutputStream) streams[1]).write(new byte[5]);
+            }
+        });
+
+        final SocketInputStreamDelegate input = (SocketInputStreamDelegate) streams[0];
+        final SocketOutputStreamDelegate output = (SocketOutputStreamDelegate) streams[1];
+
+        assertSame(output, streams[2]);
+        assertSame(method, input.getInfo().getMethod());
+        assertSame(method, output.getInfo().getMethod());
+        assertEquals(5, output.getInfo().getBytes());
+        assertEquals(2, method.getActivities().size());
+
+        this.client.close();
+        this.aspect.afterClose(this.client);
+
+        assertTrue(input.getInfo().isClosed());
+        assertTrue(output.getInfo().isClosed());
+    }
+}
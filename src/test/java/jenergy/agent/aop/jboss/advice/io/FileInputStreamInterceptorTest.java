@@ -0,0 +1,165 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.aop.jboss.advice.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import jenergy.agent.common.io.FileInputStreamDelegate;
+import jenergy.profile.ProfiledThread;
+import jenergy.profile.data.MethodInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the {@link FileInputStreamInterceptor} replaces the streams created by every constructor of {@link FileInputStream} by a
+ * {@link FileInputStreamDelegate} charged to the method that created them, and leaves the other objects alone. The interceptor is checked
+ * through the method that wraps the result of the invocation, since a JBoss invocation cannot be created outside of the woven code.
+ */
+public class FileInputStreamInterceptorTest
+{
+    /**
+     * The size of the file read by the tests.
+     */
+    private static final int SIZE = 10;
+
+    /**
+     * The file read by the tests.
+     */
+    private File file;
+
+    /**
+     * Creates the file read by the tests.
+     * 
+     * @throws IOException
+     *             If the file cannot be written.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.file = File.createTempFile("jenergy-input", ".tmp");
+        final FileOutputStream output = new FileOutputStream(this.file);
+
+        try
+        {
+            output.write(new byte[SIZE]);
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+
+    /**
+     * Deletes the file read by the tests.
+     */
+    @After
+    public void tearDown()
+    {
+        assertTrue(this.file.delete());
+    }
+
+    /**
+     * The streams opened by name, by file and on a file descriptor are replaced by delegates charged to the current method.
+     * 
+     * @throws Exception
+     *             If the file cannot be read.
+     */
+    @Test
+    public void everyConstructorIsReplacedByAChargedDelegate() throws Exception
+    {
+        final String name = this.file.getPath();
+
+        ProfiledThread.run(new ProfiledThread.Body()
+        {
+            @Override
+            public void run(MethodInfo current) throws IOException
+            {
+                readFrom(current, FileInputStreamInterceptor.wrap(new FileInputStream(name), new Object[] {name }));
+                readFrom(current, FileInputStreamInterceptor.wrap(new FileInputStream(file), new Object[] {file }));
+
+                final FileInputStream owner = new FileInputStream(file);
+
+                try
+                {
+                    readFrom(current, FileInputStreamInterceptor.wrap(new FileInputStream(owner.getFD()), new Object[] {owner.getFD() }));
+                }
+                finally
+                {
+                    owner.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * The instances of the subclasses of {@link FileInputStream} and the other objects are returned as they are.
+     * 
+     * @throws IOException
+     *             If the file cannot be opened.
+     */
+    @Test
+    public void otherObjectsAreNotReplaced() throws IOException
+    {
+        final FileInputStream subclass = new FileInputStream(this.file)
+        {
+        };
+
+        try
+        {
+            assertSame(subclass, FileInputStreamInterceptor.wrap(subclass, new Object[] {this.file }));
+            assertSame(this.file, FileInputStreamInterceptor.wrap(this.file, new Object[0]));
+        }
+        finally
+        {
+            subclass.close();
+        }
+    }
+
+    /**
+     * Reads a delegate to its end, closes it and checks that its bytes are charged to the given method.
+     * 
+     * @param method
+     *            The method that created the delegate.
+     * @param wrapped
+     *            The object returned by the interceptor.
+     * @throws IOException
+     *             If the stream cannot be read.
+     */
+    private static void readFrom(MethodInfo method, Object wrapped) throws IOException
+    {
+        assertTrue(wrapped instanceof FileInputStreamDelegate);
+
+        final FileInputStreamDelegate input = (FileInputStreamDelegate) wrapped;
+        assertEquals(SIZE, input.read(new byte[2 * SIZE]));
+        assertEquals(-1, input.read());
+        input.close();
+
+        assertSame(method, input.getInfo().getMethod());
+        assertEquals(SIZE, input.getInfo().getBytes());
+    }
+}
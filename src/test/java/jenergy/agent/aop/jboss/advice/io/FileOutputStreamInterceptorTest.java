@@ -0,0 +1,160 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.aop.jboss.advice.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import jenergy.agent.common.io.FileOutputStreamDelegate;
+import jenergy.profile.ProfiledThread;
+import jenergy.profile.data.MethodInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the {@link FileOutputStreamInterceptor} replaces the streams created by every constructor of {@link FileOutputStream} by a
+ * {@link FileOutputStreamDelegate} charged to the method that created them, and leaves the other objects alone. The interceptor is checked
+ * through the method that wraps the result of the invocation, since a JBoss invocation cannot be created outside of the woven code.
+ */
+public class FileOutputStreamInterceptorTest
+{
+    /**
+     * The bytes written to each stream.
+     */
+    private static final byte[] PAYLOAD = new byte[10];
+
+    /**
+     * The file written by the tests.
+     */
+    private File file;
+
+    /**
+     * Creates the file written by the tests.
+     * 
+     * @throws IOException
+     *             If the file cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.file = File.createTempFile("jenergy-output", ".tmp");
+    }
+
+    /**
+     * Deletes the file written by the tests.
+     */
+    @After
+    public void tearDown()
+    {
+        assertTrue(this.file.delete());
+    }
+
+    /**
+     * The streams opened by name, by file, to append and on a file descriptor are replaced by delegates charged to the current method.
+     * 
+     * @throws Exception
+     *             If the file cannot be written.
+     */
+    @Test
+    public void everyConstructorIsReplacedByAChargedDelegate() throws Exception
+    {
+        final String name = this.file.getPath();
+
+        ProfiledThread.run(new ProfiledThread.Body()
+        {
+            @Override
+            public void run(MethodInfo current) throws IOException
+            {
+                writeTo(current, FileOutputStreamInterceptor.wrap(new FileOutputStream(name), new Object[] {name }));
+                writeTo(current, FileOutputStreamInterceptor.wrap(new FileOutputStream(name, true), new Object[] {name, true }));
+                writeTo(current, FileOutputStreamInterceptor.wrap(new FileOutputStream(file), new Object[] {file }));
+                writeTo(current, FileOutputStreamInterceptor.wrap(new FileOutputStream(file, true), new Object[] {file, true }));
+
+                final FileOutputStream owner = new FileOutputStream(file, true);
+
+                try
+                {
+                    writeTo(current, FileOutputStreamInterceptor.wrap(new FileOutputStream(owner.getFD()), new Object[] {owner.getFD() }));
+                }
+                finally
+                {
+                    owner.close();
+                }
+            }
+        });
+
+        // the stream opened by file replaced the content, the next two appended to it
+        assertEquals(3 * PAYLOAD.length, this.file.length());
+    }
+
+    /**
+     * The instances of the subclasses of {@link FileOutputStream} and the other objects are returned as they are.
+     * 
+     * @throws IOException
+     *             If the file cannot be opened.
+     */
+    @Test
+    public void otherObjectsAreNotReplaced() throws IOException
+    {
+        final FileOutputStream subclass = new FileOutputStream(this.file)
+        {
+        };
+
+        try
+        {
+            assertSame(subclass, FileOutputStreamInterceptor.wrap(subclass, new Object[] {this.file }));
+            assertSame(this.file, FileOutputStreamInterceptor.wrap(this.file, new Object[0]));
+            assertNull(FileOutputStreamInterceptor.wrap(null, new Object[0]));
+        }
+        finally
+        {
+            subclass.close();
+        }
+    }
+
+    /**
+     * Writes {@link #PAYLOAD} to a delegate, closes it and checks that its bytes are charged to the given method.
+     * 
+     * @param method
+     *            The method that created the delegate.
+     * @param wrapped
+     *            The object returned by the interceptor.
+     * @throws IOException
+     *             If the stream cannot be written.
+     */
+    private static void writeTo(MethodInfo method, Object wrapped) throws IOException
+    {
+        assertTrue(wrapped instanceof FileOutputStreamDelegate);
+
+        final FileOutputStreamDelegate output = (FileOutputStreamDelegate) wrapped;
+        output.write(PAYLOAD);
+        output.close();
+
+        assertSame(method, output.getInfo().getMethod());
+        assertEquals(PAYLOAD.length, output.getInfo().getBytes());
+    }
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.aop.jboss.advice.io;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks the number of bytes that the {@link RandomAccessFileInterceptor} accounts for each operation it binds, from the name, the arguments
+ * and the result of the operation.
+ */
+public class RandomAccessFileInterceptorTest
+{
+    /**
+     * No arguments.
+     */
+    private static final Object[] NONE = new Object[0];
+
+    /**
+     * The operations on bytes and arrays account the bytes transferred; the end of the file is not accounted.
+     */
+    @Test
+    public void byteOperationsAccountTheBytesTransferred()
+    {
+        final byte[] buffer = new byte[16];
+
+        assertEquals(1, RandomAccessFileInterceptor.bytes("read", NONE, 65));
+        assertEquals(-1, RandomAccessFileInterceptor.bytes("read", NONE, -1));
+        assertEquals(9, RandomAccessFileInterceptor.bytes("read", new Object[] {buffer }, 9));
+        assertEquals(-1, RandomAccessFileInterceptor.bytes("read", new Object[] {buffer, 0, 4 }, -1));
+        assertEquals(16, RandomAccessFileInterceptor.bytes("readFully", new Object[] {buffer }, null));
+        assertEquals(4, RandomAccessFileInterceptor.bytes("readFully", new Object[] {buffer, 2, 4 }, null));
+        assertEquals(1, RandomAccessFileInterceptor.bytes("write", new Object[] {65 }, null));
+        assertEquals(16, RandomAccessFileInterceptor.bytes("write", new Object[] {buffer }, null));
+        assertEquals(3, RandomAccessFileInterceptor.bytes("write", new Object[] {buffer, 0, 3 }, null));
+    }
+
+    /**
+     * The typed operations account the size of their primitive or of their encoded string.
+     */
+    @Test
+    public void typedOperationsAccountTheirEncodedSize()
+    {
+        assertEquals(1, RandomAccessFileInterceptor.bytes("readBoolean", NONE, true));
+        assertEquals(2, RandomAccessFileInterceptor.bytes("readUnsignedShort", NONE, 7));
+        assertEquals(4, RandomAccessFileInterceptor.bytes("writeFloat", new Object[] {1.5f }, null));
+        assertEquals(8, RandomAccessFileInterceptor.bytes("writeLong", new Object[] {8L }, null));
+        assertEquals(5, RandomAccessFileInterceptor.bytes("readLine", NONE, "line"));
+        assertEquals(-1, RandomAccessFileInterceptor.bytes("readLine", NONE, null));
+        assertEquals(7, RandomAccessFileInterceptor.bytes("readUTF", NONE, "caf\u00e9"));
+        assertEquals(8, RandomAccessFileInterceptor.bytes("writeUTF", new Object[] {"\u20ac\u20ac" }, null));
+        assertEquals(3, RandomAccessFileInterceptor.bytes("writeBytes", new Object[] {"abc" }, null));
+        assertEquals(6, RandomAccessFileInterceptor.bytes("writeChars", new Object[] {"abc" }, null));
+    }
+}
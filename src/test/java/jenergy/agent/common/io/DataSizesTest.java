@@ -0,0 +1,84 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.Test;
+
+/**
+ * Checks the sizes given by {@link DataSizes} against the bytes actually written by a {@link DataOutputStream}.
+ */
+public class DataSizesTest
+{
+    /**
+     * The primitives have the size of their encoding, whatever the direction of the operation; the other operations are not primitive ones.
+     */
+    @Test
+    public void primitivesHaveTheirFixedSize()
+    {
+        assertEquals(1, DataSizes.ofPrimitive("readBoolean"));
+        assertEquals(1, DataSizes.ofPrimitive("readUnsignedByte"));
+        assertEquals(1, DataSizes.ofPrimitive("writeByte"));
+        assertEquals(2, DataSizes.ofPrimitive("readUnsignedShort"));
+        assertEquals(2, DataSizes.ofPrimitive("writeChar"));
+        assertEquals(4, DataSizes.ofPrimitive("readFloat"));
+        assertEquals(4, DataSizes.ofPrimitive("writeInt"));
+        assertEquals(8, DataSizes.ofPrimitive("readDouble"));
+        assertEquals(8, DataSizes.ofPrimitive("writeLong"));
+        assertEquals(-1, DataSizes.ofPrimitive("writeBytes"));
+        assertEquals(-1, DataSizes.ofPrimitive("writeChars"));
+        assertEquals(-1, DataSizes.ofPrimitive("readLine"));
+        assertEquals(-1, DataSizes.ofPrimitive("skipBytes"));
+    }
+
+    /**
+     * The size of a string in modified UTF-8 is its length prefix followed by one to three bytes per character; the null character and the
+     * surrogates of a supplementary character are encoded separately.
+     * 
+     * @throws IOException
+     *             If the string cannot be encoded.
+     */
+    @Test
+    public void utfSizeIsTheEncodedLength() throws IOException
+    {
+        for (String value : new String[] {"", "ascii", "\u0000", "caf\u00e9", "\u07ff\u0800\u20ac", "\ud83d\ude00" })
+        {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            new DataOutputStream(bytes).writeUTF(value);
+
+            assertEquals(value, bytes.size(), DataSizes.ofUtf(value));
+        }
+    }
+
+    /**
+     * A line is counted with its terminator, and the end of the file is not a line.
+     */
+    @Test
+    public void lineSizeCountsItsTerminator()
+    {
+        assertEquals(5, DataSizes.ofLine("line"));
+        assertEquals(1, DataSizes.ofLine(""));
+        assertEquals(-1, DataSizes.ofLine(null));
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import jenergy.profile.ProfiledThread;
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.IOInfo.IOActivityType;
+import jenergy.profile.data.MethodInfo;
+
+import org.junit.Test;
+
+/**
+ * Checks that {@link DiskActivity#record(IOActivityType, long, Object)} charges the operations to the method on the stack of the current thread,
+ * with one activity per type and source, and measures its cost per call once the activity exists.
+ */
+public class DiskActivityTest
+{
+    /**
+     * The number of calls measured by the cost test.
+     */
+    private static final int CALLS = 1000000;
+
+    /**
+     * The operations are charged to one activity per type and source of the method, reused by the next operations; the end of a file is not an
+     * operation.
+     * 
+     * @throws Exception
+     *             If the operations cannot be recorded.
+     */
+    @Test
+    public void operationsShareOneActivityPerTypeAndSource() throws Exception
+    {
+        final Object first = new Object();
+        final Object second = new Object();
+
+        final MethodInfo method = ProfiledThread.run(new ProfiledThread.Body()
+        {
+            @Override
+            public void run(MethodInfo current)
+            {
+                DiskActivity.record(IOActivityType.READ, 100, first);
+                final IOInfo read = current.getChannelActivity(IOActivityType.READ, first);
+
+                DiskActivity.record(IOActivityType.READ, 200, first);
+                DiskActivity.record(IOActivityType.WRITE, 50, first);
+                DiskActivity.record(IOActivityType.READ, 10, second);
+                DiskActivity.record(IOActivityType.READ, -1, first);
+
+                assertSame(read, current.getChannelActivity(IOActivityType.READ, first));
+            }
+        });
+
+        final IOInfo read = method.getChannelActivity(IOActivityType.READ, first);
+        assertEquals(300, read.getBytes());
+        assertEquals(2, read.getOperations());
+        assertSame(method, read.getMethod());
+        assertEquals(50, method.getChannelActivity(IOActivityType.WRITE, first).getBytes());
+        assertEquals(10, method.getChannelActivity(IOActivityType.READ, second).getBytes());
+        assertNull(method.getChannelActivity(IOActivityType.WRITE, second));
+    }
+
+    /**
+     * The time of the timed operations is added to the latency of their activity; the untimed operations only count their bytes.
+     * 
+     * @throws Exception
+     *             If the operations cannot be recorded.
+     */
+    @Test
+    public void timedOperationsAddTheirLatency() throws Exception
+    {
+        final Object file = new Object();
+
+        final MethodInfo method = ProfiledThread.run(new ProfiledThread.Body()
+        {
+            @Override
+            public void run(MethodInfo current)
+            {
+                DiskActivity.record(IOActivityType.WRITE, 100, 2000, file);
+                DiskActivity.record(IOActivityType.WRITE, 100, 3000, file);
+                DiskActivity.record(IOActivityType.WRITE, 100, file);
+            }
+        });
+
+        final IOInfo write = method.getChannelActivity(IOActivityType.WRITE, file);
+        assertEquals(300, write.getBytes());
+        assertEquals(3, write.getOperations());
+        assertEquals(5000, write.getLatency());
+    }
+
+    /**
+     * Once the activity exists, a call does not allocate and costs a lookup and a few adds. The mean cost is printed; the bound is loose, so only
+     * a lock, a boxed lookup or an allocation per call would break it.
+     * 
+     * @throws Exception
+     *             If the operations cannot be recorded.
+     */
+    @Test
+    public void steadyStateCallIsCheap() throws Exception
+    {
+        final Object channel = new Object();
+        final long[] measured = new long[2];
+
+        final MethodInfo method = ProfiledThread.run(new ProfiledThread.Body()
+        {
+            @Override
+            public void run(MethodInfo current)
+            {
+                for (int i = 0; i < CALLS; i++)
+                {
+                    DiskActivity.record(IOActivityType.READ, 8, channel);
+                }
+
+                final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+                final com.sun.management.ThreadMXBean allocations = bean instanceof com.sun.management.ThreadMXBean
+                        && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported() ? (com.sun.management.ThreadMXBean) bean
+                        : null;
+                final long tid = Thread.currentThread().getId();
+                final long allocated = allocations != null ? allocations.getThreadAllocatedBytes(tid) : 0;
+                final long start = System.nanoTime();
+
+                for (int i = 0; i < CALLS; i++)
+                {
+                    DiskActivity.record(IOActivityType.READ, 8, channel);
+                }
+
+                measured[0] = System.nanoTime() - start;
+                measured[1] = allocations != null ? allocations.getThreadAllocatedBytes(tid) - allocated : 0;
+            }
+        });
+
+        final double nanosPerCall = (double) measured[0] / CALLS;
+        System.out.printf("DiskActivity.record: %.1f ns per call, %d bytes allocated by %d calls%n", nanosPerCall, measured[1], CALLS);
+
+        assertEquals(2L * CALLS, method.getChannelActivity(IOActivityType.READ, channel).getOperations());
+        assertTrue("allocated " + measured[1] + " bytes", measured[1] < 64 * 1024);
+        assertTrue(nanosPerCall + " ns per call", nanosPerCall < 1000);
+    }
+}
@@ -0,0 +1,298 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the {@link FileInputStreamDelegate} counts exactly the bytes read by each overload of <code>read</code>, for every constructor of
+ * {@link FileInputStream} that it replaces. The end of the file is not counted as an operation.
+ */
+public class FileInputStreamDelegateTest
+{
+    /**
+     * The size of the file read by the tests.
+     */
+    private static final int SIZE = 100;
+
+    /**
+     * The file read by the tests.
+     */
+    private File file;
+
+    /**
+     * The content of the file.
+     */
+    private byte[] content;
+
+    /**
+     * Creates the file read by the tests.
+     * 
+     * @throws IOException
+     *             If the file cannot be written.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.file = File.createTempFile("jenergy-input", ".tmp");
+        this.content = new byte[SIZE];
+
+        for (int i = 0; i < SIZE; i++)
+        {
+            this.content[i] = (byte) (i * 31);
+        }
+
+        final FileOutputStream output = new FileOutputStream(this.file);
+
+        try
+        {
+            output.write(this.content);
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+
+    /**
+     * Deletes the file read by the tests.
+     */
+    @After
+    public void tearDown()
+    {
+        assertTrue(this.file.delete());
+    }
+
+    /**
+     * {@link FileInputStream#read()} reads one byte until the end of the file.
+     * 
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    @Test
+    public void readOfByteCountsOneByte() throws IOException
+    {
+        final FileInputStreamDelegate input = open(this.file);
+
+        try
+        {
+            for (int i = 0; i < SIZE; i++)
+            {
+                assertEquals(this.content[i] & 0xFF, input.read());
+            }
+            assertEquals(-1, input.read());
+        }
+        finally
+        {
+            input.close();
+        }
+
+        assertEquals(SIZE, input.getInfo().getBytes());
+        assertEquals(SIZE, input.getInfo().getOperations());
+    }
+
+    /**
+     * {@link FileInputStream#read(byte[])} counts the bytes actually read, not the length of the array.
+     * 
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    @Test
+    public void readOfArrayCountsTheBytesRead() throws IOException
+    {
+        final byte[] buffer = new byte[64];
+        final FileInputStreamDelegate input = open(this.file);
+
+        try
+        {
+            assertEquals(64, input.read(buffer));
+            assertEquals(SIZE - 64, input.read(buffer));
+            assertEquals(-1, input.read(buffer));
+        }
+        finally
+        {
+            input.close();
+        }
+
+        assertArrayEquals(Arrays.copyOfRange(this.content, 64, SIZE), Arrays.copyOf(buffer, SIZE - 64));
+        assertEquals(SIZE, input.getInfo().getBytes());
+        assertEquals(2, input.getInfo().getOperations());
+    }
+
+    /**
+     * {@link FileInputStream#read(byte[], int, int)} counts the bytes actually read, whatever the offset.
+     * 
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    @Test
+    public void readOfRangeCountsTheBytesRead() throws IOException
+    {
+        final byte[] buffer = new byte[SIZE];
+        final FileInputStreamDelegate input = open(this.file);
+
+        try
+        {
+            assertEquals(10, input.read(buffer, 5, 10));
+            assertEquals(0, input.read(buffer, 0, 0));
+            assertEquals(SIZE - 10, input.read(buffer, 10, SIZE - 10));
+        }
+        finally
+        {
+            input.close();
+        }
+
+        assertEquals(SIZE, input.getInfo().getBytes());
+        assertEquals(3, input.getInfo().getOperations());
+    }
+
+    /**
+     * The skipped bytes are not read, so they are not counted.
+     * 
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    @Test
+    public void skippedBytesAreNotCounted() throws IOException
+    {
+        final FileInputStreamDelegate input = open(this.file);
+
+        try
+        {
+            assertEquals(90, input.skip(90));
+            assertEquals(10, input.read(new byte[SIZE]));
+        }
+        finally
+        {
+            input.close();
+        }
+
+        assertEquals(10, input.getInfo().getBytes());
+    }
+
+    /**
+     * The delegates of the streams opened by name, by file and on a file descriptor count the same bytes.
+     * 
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    @Test
+    public void everyConstructorIsCounted() throws IOException
+    {
+        FileInputStreamDelegate input = (FileInputStreamDelegate) FileInputStreamDelegate.wrap(new FileInputStream(this.file.getPath()),
+                new Object[] {this.file.getPath() }, null);
+        assertEquals(SIZE, input.read(new byte[SIZE * 2]));
+        input.close();
+        assertEquals(SIZE, input.getInfo().getBytes());
+        assertEquals(this.file.getPath(), input.getInfo().getPath());
+
+        final FileInputStream owner = new FileInputStream(this.file);
+
+        try
+        {
+            input = (FileInputStreamDelegate) FileInputStreamDelegate.wrap(new FileInputStream(owner.getFD()), new Object[] {owner.getFD() }, null);
+            input.read();
+            input.read(new byte[20], 5, 15);
+            assertEquals(16, input.getInfo().getBytes());
+        }
+        finally
+        {
+            owner.close();
+        }
+    }
+
+    /**
+     * Wrapping a stream shares its descriptor and position: no descriptor is opened and the delegate reads on from where the original stream
+     * stopped.
+     * 
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    @Test
+    public void wrappingSharesTheDescriptor() throws IOException
+    {
+        final FileInputStream original = new FileInputStream(this.file);
+        assertEquals(this.content[0] & 0xff, original.read());
+
+        final int descriptors = FileOutputStreamDelegateTest.openDescriptors();
+        final FileInputStreamDelegate input = (FileInputStreamDelegate) FileInputStreamDelegate.wrap(original, new Object[] {this.file }, null);
+
+        try
+        {
+            assertSame(original.getFD(), input.getFD());
+            assertEquals(descriptors, FileOutputStreamDelegateTest.openDescriptors());
+            assertEquals(this.content[1] & 0xff, input.read());
+        }
+        finally
+        {
+            input.close();
+        }
+        assertEquals(SIZE, this.file.length());
+    }
+
+    /**
+     * The instances of the subclasses of {@link FileInputStream} are not replaced.
+     * 
+     * @throws IOException
+     *             If the file cannot be opened.
+     */
+    @Test
+    public void subclassesAreNotReplaced() throws IOException
+    {
+        final FileInputStream subclass = new FileInputStream(this.file)
+        {
+        };
+
+        try
+        {
+            assertSame(subclass, FileInputStreamDelegate.wrap(subclass, new Object[] {this.file }, null));
+        }
+        finally
+        {
+            subclass.close();
+        }
+    }
+
+    /**
+     * Opens a file and replaces its stream by a delegate.
+     * 
+     * @param source
+     *            The file to be read.
+     * @return The delegate of the stream.
+     * @throws IOException
+     *             If the file cannot be opened.
+     */
+    private static FileInputStreamDelegate open(File source) throws IOException
+    {
+        return (FileInputStreamDelegate) FileInputStreamDelegate.wrap(new FileInputStream(source), new Object[] {source }, null);
+    }
+}
@@ -0,0 +1,363 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the {@link FileOutputStreamDelegate} counts exactly the bytes written by each overload of <code>write</code>, for every constructor
+ * of {@link FileOutputStream} that it replaces.
+ */
+public class FileOutputStreamDelegateTest
+{
+    /**
+     * The file written by the tests.
+     */
+    private File file;
+
+    /**
+     * Creates the file written by the tests.
+     * 
+     * @throws IOException
+     *             If the file cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.file = File.createTempFile("jenergy-output", ".tmp");
+    }
+
+    /**
+     * Deletes the file written by the tests.
+     */
+    @After
+    public void tearDown()
+    {
+        assertTrue(this.file.delete());
+    }
+
+    /**
+     * {@link FileOutputStream#write(int)} writes one byte, whatever the value of its argument.
+     * 
+     * @throws IOException
+     *             If the file cannot be written.
+     */
+    @Test
+    public void writeOfByteCountsOneByte() throws IOException
+    {
+        final FileOutputStreamDelegate output = open(this.file);
+
+        try
+        {
+            output.write(0);
+            output.write(200);
+            output.write(-1);
+        }
+        finally
+        {
+            output.close();
+        }
+
+        assertEquals(3, output.getInfo().getBytes());
+        assertEquals(3, output.getInfo().getOperations());
+        assertEquals(3, this.file.length());
+    }
+
+    /**
+     * {@link FileOutputStream#write(byte[])} writes the whole array.
+     * 
+     * @throws IOException
+     *             If the file cannot be written.
+     */
+    @Test
+    public void writeOfArrayCountsItsLength() throws IOException
+    {
+        final FileOutputStreamDelegate output = open(this.file);
+
+        try
+        {
+            output.write(new byte[100]);
+            output.write(new byte[0]);
+        }
+        finally
+        {
+            output.close();
+        }
+
+        assertEquals(100, output.getInfo().getBytes());
+        assertEquals(2, output.getInfo().getOperations());
+        assertEquals(100, this.file.length());
+    }
+
+    /**
+     * {@link FileOutputStream#write(byte[], int, int)} writes <em>len</em> bytes, whatever the offset.
+     * 
+     * @throws IOException
+     *             If the file cannot be written.
+     */
+    @Test
+    public void writeOfRangeCountsItsLength() throws IOException
+    {
+        final byte[] payload = new byte[64];
+        final FileOutputStreamDelegate output = open(this.file);
+
+        try
+        {
+            output.write(payload, 10, 25);
+            output.write(payload, 60, 4);
+            output.write(payload, 0, 0);
+        }
+        finally
+        {
+            output.close();
+        }
+
+        assertEquals(29, output.getInfo().getBytes());
+        assertEquals(3, output.getInfo().getOperations());
+        assertEquals(29, this.file.length());
+    }
+
+    /**
+     * The delegates of the streams opened by name, by file, to append and on a file descriptor count the same bytes, and the ones opened to append
+     * only count the new bytes.
+     * 
+     * @throws IOException
+     *             If the file cannot be written.
+     */
+    @Test
+    public void everyConstructorIsCounted() throws IOException
+    {
+        final byte[] payload = new byte[10];
+
+        FileOutputStreamDelegate output = (FileOutputStreamDelegate) FileOutputStreamDelegate.wrap(new FileOutputStream(this.file.getPath()),
+                new Object[] {this.file.getPath() }, null);
+        output.write(payload);
+        output.close();
+        assertEquals(10, output.getInfo().getBytes());
+        assertEquals(this.file.getPath(), output.getInfo().getPath());
+
+        output = (FileOutputStreamDelegate) FileOutputStreamDelegate.wrap(new FileOutputStream(this.file, true), new Object[] {this.file, true },
+                null);
+        output.write(payload, 0, 5);
+        output.close();
+        assertEquals(5, output.getInfo().getBytes());
+        assertEquals(15, this.file.length());
+
+        output = (FileOutputStreamDelegate) FileOutputStreamDelegate.wrap(new FileOutputStream(this.file.getPath(), true), new Object[] {
+                this.file.getPath(), true }, null);
+        output.write(1);
+        output.close();
+        assertEquals(1, output.getInfo().getBytes());
+        assertEquals(16, this.file.length());
+
+        final FileOutputStream owner = new FileOutputStream(this.file);
+
+        try
+        {
+            output = (FileOutputStreamDelegate) FileOutputStreamDelegate.wrap(new FileOutputStream(owner.getFD()), new Object[] {owner.getFD() },
+                    null);
+            output.write(payload);
+            output.write(payload, 2, 3);
+            output.flush();
+            assertEquals(13, output.getInfo().getBytes());
+        }
+        finally
+        {
+            owner.close();
+        }
+        assertEquals(13, this.file.length());
+    }
+
+    /**
+     * Wrapping a stream opened to append shares its descriptor: no descriptor is opened and the content of the file is kept.
+     * 
+     * @throws IOException
+     *             If the file cannot be written or read.
+     */
+    @Test
+    public void wrappingToAppendSharesTheDescriptor() throws IOException
+    {
+        write(this.file, "0123456789");
+
+        final FileOutputStream original = new FileOutputStream(this.file, true);
+        final int descriptors = openDescriptors();
+        final FileOutputStreamDelegate output = (FileOutputStreamDelegate) FileOutputStreamDelegate.wrap(original, new Object[] {this.file, true },
+                null);
+
+        try
+        {
+            assertSame(original.getFD(), output.getFD());
+            assertEquals(descriptors, openDescriptors());
+            assertEquals(10, this.file.length());
+
+            output.write("abcde".getBytes("US-ASCII"));
+        }
+        finally
+        {
+            output.close();
+        }
+
+        assertEquals(15, this.file.length());
+        assertEquals("0123456789abcde", read(this.file));
+    }
+
+    /**
+     * Wrapping a stream opened to replace the file shares its descriptor: no descriptor is opened and the file is not truncated a second time, so
+     * the bytes written before the wrap are kept.
+     * 
+     * @throws IOException
+     *             If the file cannot be written or read.
+     */
+    @Test
+    public void wrappingToReplaceSharesTheDescriptor() throws IOException
+    {
+        write(this.file, "0123456789");
+
+        final FileOutputStream original = new FileOutputStream(this.file.getPath(), false);
+        original.write("xy".getBytes("US-ASCII"));
+
+        final int descriptors = openDescriptors();
+        final FileOutputStreamDelegate output = (FileOutputStreamDelegate) FileOutputStreamDelegate.wrap(original, new Object[] {
+                this.file.getPath(), false }, null);
+
+        try
+        {
+            assertSame(original.getFD(), output.getFD());
+            assertEquals(descriptors, openDescriptors());
+            assertEquals(2, this.file.length());
+
+            output.write('z');
+        }
+        finally
+        {
+            output.close();
+        }
+
+        assertEquals(3, this.file.length());
+        assertEquals("xyz", read(this.file));
+    }
+
+    /**
+     * The instances of the subclasses of {@link FileOutputStream} are not replaced.
+     * 
+     * @throws IOException
+     *             If the file cannot be opened.
+     */
+    @Test
+    public void subclassesAreNotReplaced() throws IOException
+    {
+        final FileOutputStream subclass = new FileOutputStream(this.file)
+        {
+        };
+
+        try
+        {
+            assertSame(subclass, FileOutputStreamDelegate.wrap(subclass, new Object[] {this.file }, null));
+        }
+        finally
+        {
+            subclass.close();
+        }
+    }
+
+    /**
+     * Opens a file and replaces its stream by a delegate.
+     * 
+     * @param target
+     *            The file to be written.
+     * @return The delegate of the stream.
+     * @throws IOException
+     *             If the file cannot be opened.
+     */
+    private static FileOutputStreamDelegate open(File target) throws IOException
+    {
+        return (FileOutputStreamDelegate) FileOutputStreamDelegate.wrap(new FileOutputStream(target), new Object[] {target }, null);
+    }
+
+    /**
+     * Replaces the content of a file without the delegates.
+     * 
+     * @param target
+     *            The file to be written.
+     * @param content
+     *            The new content of the file.
+     * @throws IOException
+     *             If the file cannot be written.
+     */
+    private static void write(File target, String content) throws IOException
+    {
+        final FileOutputStream output = new FileOutputStream(target);
+
+        try
+        {
+            output.write(content.getBytes("US-ASCII"));
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+
+    /**
+     * Returns the content of a file.
+     * 
+     * @param source
+     *            The file to be read.
+     * @return The content of the file.
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    private static String read(File source) throws IOException
+    {
+        final byte[] content = new byte[(int) source.length()];
+        final FileInputStream input = new FileInputStream(source);
+
+        try
+        {
+            assertEquals(content.length, input.read(content));
+        }
+        finally
+        {
+            input.close();
+        }
+        return new String(content, "US-ASCII");
+    }
+
+    /**
+     * Returns the number of descriptors opened by the JVM.
+     * 
+     * @return The number of entries of <em>/proc/self/fd</em> or <code>-1</code> if it's not available.
+     */
+    static int openDescriptors()
+    {
+        final String[] descriptors = new File("/proc/self/fd").list();
+        return descriptors != null ? descriptors.length : -1;
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the {@link PathInputStreamDelegate} counts exactly the bytes read by each overload of <code>read</code> from a stream returned by
+ * {@link Files#newInputStream(Path, java.nio.file.OpenOption...)}, and closes its activity with the stream. The end of the file is not counted
+ * as an operation.
+ */
+public class PathInputStreamDelegateTest
+{
+    /**
+     * The size of the file read by the tests.
+     */
+    private static final int SIZE = 100;
+
+    /**
+     * The file read by the tests.
+     */
+    private Path path;
+
+    /**
+     * Creates the file read by the tests.
+     * 
+     * @throws IOException
+     *             If the file cannot be written.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.path = Files.createTempFile("jenergy-path-input", ".tmp");
+        Files.write(this.path, new byte[SIZE]);
+    }
+
+    /**
+     * Deletes the file read by the tests.
+     * 
+     * @throws IOException
+     *             If the file cannot be deleted.
+     */
+    @After
+    public void tearDown() throws IOException
+    {
+        Files.delete(this.path);
+    }
+
+    /**
+     * Every overload of <code>read</code> counts the bytes it actually reads, not the length of its buffer.
+     * 
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    @Test
+    public void everyReadCountsTheBytesRead() throws IOException
+    {
+        final PathInputStreamDelegate input = new PathInputStreamDelegate(Files.newInputStream(this.path), this.path, null);
+
+        try
+        {
+            assertEquals(0, input.read());
+            assertEquals(64, input.read(new byte[64]));
+            assertEquals(10, input.read(new byte[64], 5, 10));
+            assertEquals(SIZE - 75, input.read(new byte[SIZE]));
+            assertEquals(-1, input.read());
+            assertEquals(-1, input.read(new byte[8]));
+        }
+        finally
+        {
+            input.close();
+        }
+
+        assertEquals(SIZE, input.getInfo().getBytes());
+        assertEquals(4, input.getInfo().getOperations());
+        assertEquals(this.path.toString(), input.getInfo().getPath());
+        assertTrue(input.getInfo().isClosed());
+    }
+
+    /**
+     * The skipped bytes are not read, so they are not counted.
+     * 
+     * @throws IOException
+     *             If the file cannot be read.
+     */
+    @Test
+    public void skippedBytesAreNotCounted() throws IOException
+    {
+        final PathInputStreamDelegate input = new PathInputStreamDelegate(Files.newInputStream(this.path), this.path, null);
+
+        try
+        {
+            assertEquals(90, input.skip(90));
+            assertEquals(10, input.read(new byte[SIZE]));
+        }
+        finally
+        {
+            input.close();
+        }
+
+        assertEquals(10, input.getInfo().getBytes());
+    }
+}
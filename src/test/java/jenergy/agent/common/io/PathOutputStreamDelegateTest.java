@@ -0,0 +1,124 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.io;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the {@link PathOutputStreamDelegate} counts exactly the bytes written by each overload of <code>write</code> to a stream returned
+ * by {@link Files#newOutputStream(Path, java.nio.file.OpenOption...)}, and closes its activity with the stream.
+ */
+public class PathOutputStreamDelegateTest
+{
+    /**
+     * The file written by the tests.
+     */
+    private Path path;
+
+    /**
+     * Creates the file written by the tests.
+     * 
+     * @throws IOException
+     *             If the file cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.path = Files.createTempFile("jenergy-path-output", ".tmp");
+    }
+
+    /**
+     * Deletes the file written by the tests.
+     * 
+     * @throws IOException
+     *             If the file cannot be deleted.
+     */
+    @After
+    public void tearDown() throws IOException
+    {
+        Files.delete(this.path);
+    }
+
+    /**
+     * Every overload of <code>write</code> counts the bytes it writes, whatever the value of a single byte or the offset of a range.
+     * 
+     * @throws IOException
+     *             If the file cannot be written.
+     */
+    @Test
+    public void everyWriteCountsItsBytes() throws IOException
+    {
+        final PathOutputStreamDelegate output = new PathOutputStreamDelegate(Files.newOutputStream(this.path), this.path, null);
+
+        try
+        {
+            output.write(200);
+            output.write(new byte[10]);
+            output.write(new byte[10], 3, 5);
+            output.write(new byte[0]);
+        }
+        finally
+        {
+            output.close();
+        }
+
+        assertEquals(16, Files.size(this.path));
+        assertEquals(16, output.getInfo().getBytes());
+        assertEquals(4, output.getInfo().getOperations());
+        assertEquals(this.path.toString(), output.getInfo().getPath());
+        assertTrue(output.getInfo().isClosed());
+    }
+
+    /**
+     * A stream opened to append only counts the new bytes.
+     * 
+     * @throws IOException
+     *             If the file cannot be written.
+     */
+    @Test
+    public void appendingCountsTheNewBytes() throws IOException
+    {
+        Files.write(this.path, new byte[10]);
+
+        final PathOutputStreamDelegate output = new PathOutputStreamDelegate(Files.newOutputStream(this.path, StandardOpenOption.APPEND), this.path,
+                null);
+
+        try
+        {
+            output.write(new byte[5]);
+        }
+        finally
+        {
+            output.close();
+        }
+
+        assertEquals(15, Files.size(this.path));
+        assertEquals(5, output.getInfo().getBytes());
+    }
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import jenergy.agent.common.Cpu;
+import jenergy.agent.common.util.time.Timer;
+import jenergy.profile.ThreadProfiler;
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.IOInfo.IOActivityType;
+import jenergy.profile.data.MethodInfo;
+import jenergy.profile.energy.EnergyDimension;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the JEnergy events committed to Flight Recorder: the I/O activity of the methods and the energy consumed by the threads and by their
+ * methods between two samples.
+ */
+public class FlightRecorderEventsTest
+{
+    /**
+     * The id of the thread of the energy tests. It's not a running thread, so the {@link Cpu} does not charge it.
+     */
+    private static final long THREAD_ID = Long.MAX_VALUE - 48;
+
+    /**
+     * The name of the method of the tests.
+     */
+    private static final String METHOD = "app.Service.handle";
+
+    /**
+     * The events of the tests.
+     */
+    private FlightRecorderEvents events;
+
+    /**
+     * Creates the events of the tests.
+     */
+    @Before
+    public void setUp()
+    {
+        assumeTrue(JfrRecording.isAvailable());
+
+        this.events = FlightRecorderEvents.createIfEnabled(Cpu.getInstance());
+        assertNotNull(this.events);
+    }
+
+    /**
+     * The events are not created when the system property <em>jenergy.jfr.enabled</em> is <code>false</code>.
+     */
+    @Test
+    public void eventsCanBeDisabled()
+    {
+        System.setProperty("jenergy.jfr.enabled", " false ");
+
+        try
+        {
+            assertNull(FlightRecorderEvents.createIfEnabled(Cpu.getInstance()));
+        }
+        finally
+        {
+            System.clearProperty("jenergy.jfr.enabled");
+        }
+    }
+
+    /**
+     * The I/O activity is only recorded while a recording has it enabled, and its events carry the method, the device and the counters.
+     */
+    @Test
+    public void ioActivityIsCommitted()
+    {
+        assertFalse(this.events.isRecordingIO());
+
+        final JfrRecording recording = new JfrRecording("jenergy.IOActivity");
+        assertTrue(this.events.isRecordingIO());
+
+        final MethodInfo method = new MethodInfo(METHOD, Timer.createAndStart(), 7, null);
+        this.events.io(new IOInfo(IOActivityType.READ, method, "/tmp/data.bin"), EnergyDimension.DISK, 4096, 2, 1500, 0.25);
+        this.events.io(new IOInfo(IOActivityType.WRITE, null, "10.0.0.1"), EnergyDimension.NETWORK, 100, 1, 30000, 0.5);
+
+        final List<JfrRecording.Event> activities = recording.stop("jenergy.IOActivity");
+        assertFalse(this.events.isRecordingIO());
+        assertEquals(2, activities.size());
+
+        final JfrRecording.Event disk = activities.get(0);
+        assertEquals(Long.valueOf(7), disk.get("threadId"));
+        assertEquals(METHOD, disk.get("method"));
+        assertEquals("disk", disk.get("device"));
+        assertEquals("READ", disk.get("direction"));
+        assertEquals("/tmp/data.bin", disk.get("path"));
+        assertEquals(Long.valueOf(4096), disk.get("bytes"));
+        assertEquals(Long.valueOf(2), disk.get("operations"));
+        assertEquals(Long.valueOf(1500), disk.get("latency"));
+        assertEquals(Double.valueOf(0.25), disk.get("energy"));
+
+        final JfrRecording.Event network = activities.get(1);
+        assertEquals(Long.valueOf(-1), network.get("threadId"));
+        assertNull(network.get("method"));
+        assertEquals("network", network.get("device"));
+        assertEquals("WRITE", network.get("direction"));
+        assertEquals("10.0.0.1", network.get("path"));
+        assertEquals(Long.valueOf(30000), network.get("latency"));
+    }
+
+    /**
+     * A sample only reports the energy consumed since the previous one: the first sample of a recording takes the baseline, and the accounts
+     * without new energy are not reported.
+     */
+    @Test
+    public void energyDeltasAreCommitted()
+    {
+        final ThreadProfiler profiler = Cpu.getInstance().monitor(THREAD_ID);
+
+        try
+        {
+            profiler.getThreadInfo().setManagementInfo(ManagementFactory.getThreadMXBean().getThreadInfo(Thread.currentThread().getId()));
+            profiler.getThreadInfo().getEnergy().add(EnergyDimension.CPU, 10D);
+            profiler.getMethodEnergy(METHOD).add(EnergyDimension.CPU, 5D);
+
+            final JfrRecording recording = new JfrRecording("jenergy.ThreadEnergy", "jenergy.MethodEnergy");
+            this.events.sample();
+
+            profiler.getThreadInfo().getEnergy().add(EnergyDimension.CPU, 2D);
+            profiler.getThreadInfo().getEnergy().add(EnergyDimension.DISK, 1D);
+            profiler.getMethodEnergy(METHOD).add(EnergyDimension.NETWORK, 0.5);
+            profiler.getMethodEnergy("app.Service.idle");
+            this.events.sample();
+            this.events.sample();
+
+            final List<JfrRecording.Event> threads = ofThread(recording.stop("jenergy.ThreadEnergy"), THREAD_ID);
+            assertEquals(1, threads.size());
+            assertEquals(Thread.currentThread().getName(), threads.get(0).get("threadName"));
+            assertEquals(Double.valueOf(2), threads.get(0).get("cpu"));
+            assertEquals(Double.valueOf(0), threads.get(0).get("memory"));
+            assertEquals(Double.valueOf(1), threads.get(0).get("disk"));
+            assertEquals(Double.valueOf(0), threads.get(0).get("network"));
+            assertEquals(Double.valueOf(3), threads.get(0).get("energy"));
+
+            final long interval = (Long) threads.get(0).get("interval");
+            final double power = (Double) threads.get(0).get("power");
+            assertEquals(interval > 0 ? 3000D / interval : 0D, power, 1e-9);
+        }
+        finally
+        {
+            profiler.stop();
+        }
+    }
+
+    /**
+     * The method events carry the energy of each method since the previous sample.
+     */
+    @Test
+    public void methodDeltasAreCommitted()
+    {
+        final ThreadProfiler profiler = Cpu.getInstance().monitor(THREAD_ID - 1);
+
+        try
+        {
+            profiler.getMethodEnergy(METHOD).add(EnergyDimension.CPU, 5D);
+
+            final JfrRecording recording = new JfrRecording("jenergy.MethodEnergy");
+            this.events.sample();
+
+            profiler.getMethodEnergy(METHOD).add(EnergyDimension.MEMORY, 0.25);
+            profiler.getMethodEnergy(METHOD).add(EnergyDimension.NETWORK, 0.5);
+            profiler.getMethodEnergy("app.Service.idle");
+            this.events.sample();
+            this.events.sample();
+
+            final List<JfrRecording.Event> methods = ofThread(recording.stop("jenergy.MethodEnergy"), THREAD_ID - 1);
+            assertEquals(1, methods.size());
+            assertEquals(METHOD, methods.get(0).get("method"));
+            assertEquals(Double.valueOf(0), methods.get(0).get("cpu"));
+            assertEquals(Double.valueOf(0.25), methods.get(0).get("memory"));
+            assertEquals(Double.valueOf(0.5), methods.get(0).get("network"));
+            assertEquals(Double.valueOf(0.75), methods.get(0).get("energy"));
+        }
+        finally
+        {
+            profiler.stop();
+        }
+    }
+
+    /**
+     * Returns the events of a thread of the tests.
+     * 
+     * @param events
+     *            The recorded events.
+     * @param tid
+     *            The id of the thread.
+     * @return The events of the given thread.
+     */
+    private static List<JfrRecording.Event> ofThread(List<JfrRecording.Event> events, long tid)
+    {
+        final List<JfrRecording.Event> found = new ArrayList<JfrRecording.Event>();
+
+        for (JfrRecording.Event event : events)
+        {
+            if (Long.valueOf(tid).equals(event.get("threadId")))
+            {
+                found.add(event);
+            }
+        }
+        return found;
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that a {@link JfrEventType} defined at runtime is enabled by the recordings of its name and commits events with the given values, in the
+ * order of its fields.
+ */
+public class JfrEventTypeTest
+{
+    /**
+     * The name of the type of the tests.
+     */
+    private static final String NAME = "jenergy.test.Event";
+
+    /**
+     * The type of the tests.
+     */
+    private JfrEventType type;
+
+    /**
+     * Defines the type of the tests: a thread id, a name, a timespan in milliseconds, an amount of bytes and a double.
+     * 
+     * @throws ReflectiveOperationException
+     *             If the type cannot be defined.
+     */
+    @Before
+    public void setUp() throws ReflectiveOperationException
+    {
+        assumeTrue(JfrRecording.isAvailable());
+
+        this.type = new JfrEventType(NAME, "Test Event", "An event of the tests", new JfrEventType.Field(long.class, "threadId", "Thread Id"),
+                new JfrEventType.Field(String.class, "name", "Name"),
+                new JfrEventType.Field(long.class, "interval", "Interval", "Timespan", "MILLISECONDS"),
+                new JfrEventType.Field(long.class, "bytes", "Bytes", "DataAmount", "BYTES"),
+                new JfrEventType.Field(double.class, "energy", "Energy (J)"));
+    }
+
+    /**
+     * The type is only enabled while a recording of its name runs; the committed events have the given values, which JFR keeps in
+     * the unit of their fields.
+     */
+    @Test
+    public void committedEventsAreRecorded()
+    {
+        assertFalse(this.type.isEnabled());
+
+        final JfrRecording recording = new JfrRecording(NAME);
+        assertTrue(this.type.isEnabled());
+
+        this.type.commit(7L, "first", 250L, 4096L, 1.5);
+        this.type.commit(8L, null, 0L, 0L, 0D);
+
+        final List<JfrRecording.Event> events = recording.stop(NAME);
+        assertFalse(this.type.isEnabled());
+
+        assertEquals(2, events.size());
+        assertEquals(Long.valueOf(7), events.get(0).get("threadId"));
+        assertEquals("first", events.get(0).get("name"));
+        assertEquals(Long.valueOf(250), events.get(0).get("interval"));
+        assertEquals(Long.valueOf(4096), events.get(0).get("bytes"));
+        assertEquals(Double.valueOf(1.5), events.get(0).get("energy"));
+        assertEquals(Long.valueOf(8), events.get(1).get("threadId"));
+        assertEquals(null, events.get(1).get("name"));
+    }
+
+    /**
+     * A value of the wrong type is reported without failing the caller, and the event is not committed.
+     */
+    @Test
+    public void wrongValuesAreNotCommitted()
+    {
+        final JfrRecording recording = new JfrRecording(NAME);
+
+        this.type.commit("not a thread id", "name", 1L, 1L, 1D);
+        this.type.commit(9L, "valid", 1L, 1L, 1D);
+
+        final List<JfrRecording.Event> events = recording.stop(NAME);
+        assertEquals(1, events.size());
+        assertEquals("valid", events.get(0).get("name"));
+    }
+
+    /**
+     * An invalid definition, such as a field name that is not a Java identifier, cannot be created.
+     */
+    @Test
+    public void invalidDefinitionIsRejected()
+    {
+        try
+        {
+            new JfrEventType("jenergy.test.Invalid", "Invalid", "An invalid event", new JfrEventType.Field(long.class, "not an identifier", "Id"));
+            fail("The field name is invalid");
+        }
+        catch (ReflectiveOperationException expected)
+        {
+            assertTrue(expected.getMessage(), expected.getMessage() != null);
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.jfr;
+
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Records the events of the tests with Flight Recorder and reads them back. Like the agent, it uses the API of Flight Recorder by reflection, so
+ * the tests compile for the JVMs without it.
+ */
+final class JfrRecording
+{
+    /**
+     * An event read back from a recording.
+     */
+    static final class Event
+    {
+        /**
+         * The name of the type of the event.
+         */
+        private final String name;
+
+        /**
+         * The values of the fields of the event, by field name.
+         */
+        private final Map<String, Object> values;
+
+        /**
+         * @param eventName
+         *            The name of the type of the event.
+         * @param fieldValues
+         *            The values of the fields of the event, by field name.
+         */
+        Event(String eventName, Map<String, Object> fieldValues)
+        {
+            this.name = eventName;
+            this.values = fieldValues;
+        }
+
+        /**
+         * @return the name of the type of the event
+         */
+        String getName()
+        {
+            return name;
+        }
+
+        /**
+         * Returns the value of a field, in the unit of the field for the timespans and the data amounts.
+         * 
+         * @param field
+         *            The name of the field.
+         * @return The value of the field.
+         */
+        Object get(String field)
+        {
+            return this.values.get(field);
+        }
+    }
+
+    /**
+     * The recording.
+     */
+    private final Object recording;
+
+    /**
+     * Starts a recording of the given events.
+     * 
+     * @param events
+     *            The names of the types of the recorded events.
+     */
+    JfrRecording(String... events)
+    {
+        try
+        {
+            this.recording = Class.forName("jdk.jfr.Recording").newInstance();
+        }
+        catch (ReflectiveOperationException exception)
+        {
+            throw new IllegalStateException(exception);
+        }
+
+        for (String event : events)
+        {
+            call(this.recording, "enable", event);
+        }
+        call(this.recording, "start");
+    }
+
+    /**
+     * Returns whether the JVM has Flight Recorder.
+     * 
+     * @return <code>true</code> if the API of Flight Recorder is available.
+     */
+    static boolean isAvailable()
+    {
+        try
+        {
+            Class.forName("jdk.jfr.Recording");
+            return true;
+        }
+        catch (ClassNotFoundException exception)
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Stops the recording and reads its events of the given type.
+     * 
+     * @param type
+     *            The name of the type of the returned events.
+     * @return The events of the given type, in the order of the recording.
+     */
+    List<Event> stop(String type)
+    {
+        final List<Event> events = new ArrayList<Event>();
+        final File file;
+
+        call(this.recording, "stop");
+
+        try
+        {
+            file = File.createTempFile("jenergy-recording", ".jfr");
+        }
+        catch (java.io.IOException exception)
+        {
+            throw new IllegalStateException(exception);
+        }
+
+        try
+        {
+            call(this.recording, "dump", call(file, "toPath"));
+
+            final Method readAllEvents = method("jdk.jfr.consumer.RecordingFile", "readAllEvents", "java.nio.file.Path");
+
+            for (Object event : (List<?>) invoke(readAllEvents, null, call(file, "toPath")))
+            {
+                final String name = (String) call(call(event, "getEventType"), "getName");
+
+                if (type.equals(name))
+                {
+                    final Map<String, Object> values = new LinkedHashMap<String, Object>();
+
+                    for (Object field : (List<?>) call(event, "getFields"))
+                    {
+                        final String fieldName = (String) call(field, "getName");
+                        values.put(fieldName, call(event, "getValue", fieldName));
+                    }
+                    events.add(new Event(name, values));
+                }
+            }
+        }
+        finally
+        {
+            call(this.recording, "close");
+            file.delete();
+        }
+        return events;
+    }
+
+    /**
+     * Calls a public method of an object, choosing it by name and number of arguments.
+     * 
+     * @param target
+     *            The object.
+     * @param name
+     *            The name of the method.
+     * @param args
+     *            The arguments.
+     * @return The value returned by the method.
+     */
+    private static Object call(Object target, String name, Object... args)
+    {
+        for (Method method : target.getClass().getMethods())
+        {
+            if (method.getName().equals(name) && method.getParameterTypes().length == args.length
+                    && (args.length == 0 || method.getParameterTypes()[0].isInstance(args[0])))
+            {
+                return invoke(method, target, args);
+            }
+        }
+        throw new IllegalArgumentException(target.getClass().getName() + "." + name);
+    }
+
+    /**
+     * Returns a public method.
+     * 
+     * @param type
+     *            The name of the class of the method.
+     * @param name
+     *            The name of the method.
+     * @param parameter
+     *            The name of the class of the only parameter of the method.
+     * @return The method.
+     */
+    private static Method method(String type, String name, String parameter)
+    {
+        try
+        {
+            return Class.forName(type).getMethod(name, Class.forName(parameter));
+        }
+        catch (ReflectiveOperationException exception)
+        {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Invokes a method, rethrowing its failures unchecked.
+     * 
+     * @param method
+     *            The method.
+     * @param target
+     *            The object or <code>null</code> for a static method.
+     * @param args
+     *            The arguments.
+     * @return The value returned by the method.
+     */
+    private static Object invoke(Method method, Object target, Object... args)
+    {
+        try
+        {
+            method.setAccessible(true);
+            return method.invoke(target, args);
+        }
+        catch (InvocationTargetException exception)
+        {
+            throw new IllegalStateException(exception.getCause());
+        }
+        catch (IllegalAccessException exception)
+        {
+            throw new IllegalStateException(exception);
+        }
+    }
+}
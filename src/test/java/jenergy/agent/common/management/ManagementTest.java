@@ -0,0 +1,158 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.management;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import jenergy.agent.common.Cpu;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the views of the profiler are valid MXBeans, whose attributes and operations are read through an MBean server as open data and
+ * back through proxies, and that {@link Management#top(List, Comparator, int)} ranks the values.
+ */
+public class ManagementTest
+{
+    /**
+     * The server where the views are registered. It's not referenced by the factory, so it's collected with the test.
+     */
+    private MBeanServer server;
+
+    /**
+     * Registers the views in a new MBean server, with a cache that takes a new snapshot at every read.
+     * 
+     * @throws Exception
+     *             If a view is not a valid MXBean.
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        final SnapshotCache cache = new SnapshotCache(Cpu.getInstance(), 0);
+
+        this.server = MBeanServerFactory.newMBeanServer();
+        this.server.registerMBean(new CpuView(Cpu.getInstance(), cache), name("Cpu"));
+        this.server.registerMBean(new ThreadProfilersView(cache), name("ThreadProfilers"));
+        this.server.registerMBean(new MethodStatisticsView(cache), name("MethodStatistics"));
+    }
+
+    /**
+     * The attributes of the CPU view are open data: numbers and the disk totals as a composite, with the snapshots taken to answer them.
+     * 
+     * @throws Exception
+     *             If an attribute cannot be read.
+     */
+    @Test
+    public void cpuAttributesAreOpenData() throws Exception
+    {
+        final Object disk = this.server.getAttribute(name("Cpu"), "DiskIO");
+
+        assertTrue(disk instanceof CompositeData);
+        assertTrue(((CompositeData) disk).containsKey("bytesWritten"));
+        assertTrue(((Double) this.server.getAttribute(name("Cpu"), "TotalEnergy")).doubleValue() >= 0);
+
+        final CpuMXBean cpu = JMX.newMXBeanProxy(this.server, name("Cpu"), CpuMXBean.class);
+        final long snapshots = cpu.getSnapshots();
+
+        assertTrue(cpu.getProfiledThreads() >= 0);
+        assertTrue(cpu.getInvocations() >= 0);
+        assertTrue(cpu.getDiskIO().getReads() >= 0);
+        assertEquals(snapshots + 3, cpu.getSnapshots());
+        assertTrue(cpu.getSnapshotTime() >= 0);
+        assertTrue(cpu.getEvaluations() >= 0);
+        assertEquals(0, cpu.getDroppedReports());
+    }
+
+    /**
+     * The operations of the thread and method views return the ranked values as arrays of composites, which the proxies turn back into their
+     * types, at most the requested count.
+     * 
+     * @throws Exception
+     *             If an operation cannot be invoked.
+     */
+    @Test
+    public void topOperationsReturnCompositeArrays() throws Exception
+    {
+        final Object methods = this.server.invoke(name("MethodStatistics"), "topByEnergy", new Object[] {Integer.valueOf(5) },
+                new String[] {int.class.getName() });
+
+        assertTrue(methods instanceof CompositeData[]);
+        assertTrue(((CompositeData[]) methods).length <= 5);
+
+        final ThreadProfilersMXBean threads = JMX.newMXBeanProxy(this.server, name("ThreadProfilers"), ThreadProfilersMXBean.class);
+        final MethodStatisticsMXBean statistics = JMX.newMXBeanProxy(this.server, name("MethodStatistics"), MethodStatisticsMXBean.class);
+
+        assertTrue(threads.getActiveThreadCount() <= threads.getThreadCount());
+        assertEquals(Math.min(1, threads.getThreadCount()), threads.topByEnergy(1).size());
+        assertEquals(Math.min(1, threads.getThreadCount()), threads.topByPower(1).size());
+        assertEquals(threads.getThreadCount(), threads.getThreads().size());
+        assertTrue(statistics.topByCpuTime(0).isEmpty());
+
+        final List<MethodEnergy> top = statistics.topByInvocations(Integer.MAX_VALUE);
+        assertEquals(statistics.getMethodCount(), top.size());
+
+        for (int i = 1; i < top.size(); i++)
+        {
+            assertTrue(top.get(i - 1).getInvocations() >= top.get(i).getInvocations());
+        }
+    }
+
+    /**
+     * The top values are the first ones in the given order, at most the given count and none for a negative count; the values are not changed.
+     */
+    @Test
+    public void topRanksTheValues()
+    {
+        final List<Integer> values = Arrays.asList(3, 1, 4, 1, 5, 9, 2, 6);
+        final Comparator<Integer> descending = Collections.reverseOrder();
+
+        assertEquals(Arrays.asList(9, 6, 5), Management.top(values, descending, 3));
+        assertEquals(Arrays.asList(9, 6, 5, 4, 3, 2, 1, 1), Management.top(values, descending, 20));
+        assertTrue(Management.top(values, descending, 0).isEmpty());
+        assertTrue(Management.top(values, descending, -1).isEmpty());
+        assertEquals(Arrays.asList(3, 1, 4, 1, 5, 9, 2, 6), values);
+    }
+
+    /**
+     * Returns the name of a view.
+     * 
+     * @param type
+     *            The type of the view.
+     * @return The name of the view in the jenergy domain.
+     * @throws Exception
+     *             If the name is malformed.
+     */
+    private static ObjectName name(String type) throws Exception
+    {
+        return new ObjectName(Management.DOMAIN, "type", type);
+    }
+}
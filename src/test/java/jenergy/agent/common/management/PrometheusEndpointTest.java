@@ -0,0 +1,226 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.management;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.regex.Pattern;
+
+import jenergy.agent.common.Cpu;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Scrapes the {@link PrometheusEndpoint} with an HTTP client on the loopback interface and checks the text exposition format of the page.
+ */
+public class PrometheusEndpointTest
+{
+    /**
+     * A sample line of the text exposition format: a metric name, optional labels and a value.
+     */
+    private static final Pattern SAMPLE = Pattern.compile("[a-z_]+(\\{([a-z]+=\"[^\"]*\",?)*\\})? -?[0-9.E-]+|[a-z_]+(\\{.*\\})? (NaN|[+-]Inf)");
+
+    /**
+     * The server of the endpoint.
+     */
+    private HttpServer server;
+
+    /**
+     * Starts the endpoint on an ephemeral port of the loopback interface.
+     */
+    @Before
+    public void setUp()
+    {
+        System.setProperty("jenergy.prometheus.enabled", "true");
+        System.setProperty("jenergy.prometheus.host", "127.0.0.1");
+        System.setProperty("jenergy.prometheus.port", "0");
+
+        try
+        {
+            this.server = PrometheusEndpoint.startIfEnabled(Cpu.getInstance(), new SnapshotCache(Cpu.getInstance(), 0));
+        }
+        finally
+        {
+            System.clearProperty("jenergy.prometheus.enabled");
+            System.clearProperty("jenergy.prometheus.host");
+            System.clearProperty("jenergy.prometheus.port");
+        }
+        assertNotNull(this.server);
+    }
+
+    /**
+     * Stops the endpoint.
+     */
+    @After
+    public void tearDown()
+    {
+        this.server.stop(0);
+    }
+
+    /**
+     * A scrape returns the metrics of the process in the text exposition format, and a second scrape, rendered in the same buffers, is as valid as
+     * the first one.
+     * 
+     * @throws IOException
+     *             If the endpoint cannot be scraped.
+     */
+    @Test
+    public void scrapeReturnsTheTextExpositionFormat() throws IOException
+    {
+        for (int scrape = 0; scrape < 2; scrape++)
+        {
+            final HttpURLConnection connection = this.open("GET");
+
+            try
+            {
+                assertEquals(200, connection.getResponseCode());
+                assertTrue(connection.getContentType().startsWith("text/plain; version=0.0.4"));
+
+                final String page = read(connection.getInputStream());
+                assertTrue(page.contains("# TYPE jenergy_energy_joules_total counter\n"));
+                assertTrue(page.contains("# TYPE jenergy_method_energy_joules_total counter\n"));
+                assertTrue(page.contains("jenergy_render_seconds_total "));
+
+                for (String line : page.split("\n"))
+                {
+                    assertTrue(line, line.startsWith("# HELP ") || line.startsWith("# TYPE ") || SAMPLE.matcher(line).matches());
+                }
+            }
+            finally
+            {
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * A HEAD request gets the headers without the page.
+     * 
+     * @throws IOException
+     *             If the endpoint cannot be requested.
+     */
+    @Test
+    public void headReturnsNoBody() throws IOException
+    {
+        final HttpURLConnection connection = this.open("HEAD");
+
+        try
+        {
+            assertEquals(200, connection.getResponseCode());
+            assertEquals("", read(connection.getInputStream()));
+        }
+        finally
+        {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * The other methods are rejected.
+     * 
+     * @throws IOException
+     *             If the endpoint cannot be requested.
+     */
+    @Test
+    public void postIsRejected() throws IOException
+    {
+        final HttpURLConnection connection = this.open("POST");
+
+        try
+        {
+            connection.setDoOutput(true);
+            connection.getOutputStream().close();
+            assertEquals(405, connection.getResponseCode());
+        }
+        finally
+        {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * The endpoint is disabled by default.
+     */
+    @Test
+    public void endpointIsDisabledByDefault()
+    {
+        assertNull(PrometheusEndpoint.startIfEnabled(Cpu.getInstance(), new SnapshotCache(Cpu.getInstance(), 0)));
+    }
+
+    /**
+     * Opens a connection to the endpoint.
+     * 
+     * @param method
+     *            The HTTP method of the request.
+     * @return The connection.
+     * @throws IOException
+     *             If the connection cannot be opened.
+     */
+    private HttpURLConnection open(String method) throws IOException
+    {
+        final URL url = new URL("http", "127.0.0.1", this.server.getAddress().getPort(), "/metrics");
+        final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(5000);
+        return connection;
+    }
+
+    /**
+     * Reads a response body.
+     * 
+     * @param input
+     *            The body.
+     * @return The body decoded as UTF-8.
+     * @throws IOException
+     *             If the body cannot be read.
+     */
+    private static String read(InputStream input) throws IOException
+    {
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[4096];
+
+        try
+        {
+            int read;
+
+            while ((read = input.read(buffer)) > 0)
+            {
+                content.write(buffer, 0, read);
+            }
+        }
+        finally
+        {
+            input.close();
+        }
+        return content.toString("UTF-8");
+    }
+}
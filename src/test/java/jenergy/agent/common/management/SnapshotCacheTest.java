@@ -0,0 +1,132 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.management;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import jenergy.agent.common.Cpu;
+import jenergy.agent.common.util.time.Timer;
+import jenergy.profile.ProfiledThread;
+import jenergy.profile.ThreadProfiler;
+import jenergy.profile.data.MethodInfo;
+
+import org.junit.Test;
+
+/**
+ * Checks that the {@link SnapshotCache} takes a new {@link ProfilerSnapshot} only when the cached one is older than the refresh interval, and
+ * that a snapshot has the threads and the method statistics of the running profilers.
+ */
+public class SnapshotCacheTest
+{
+    /**
+     * The method invoked by the profiled thread of the tests.
+     */
+    private static final String METHOD = "jenergy.test.Snapshot.work";
+
+    /**
+     * The snapshot is reused within the refresh interval and taken again when it has expired, with the time spent taking it.
+     */
+    @Test
+    public void snapshotIsReusedWithinTheRefreshInterval()
+    {
+        final SnapshotCache cached = new SnapshotCache(Cpu.getInstance(), 60000);
+        final ProfilerSnapshot snapshot = cached.get();
+
+        assertSame(snapshot, cached.get());
+        assertEquals(1, cached.getSnapshots());
+        assertEquals(snapshot.getDuration(), cached.getSnapshotTime());
+
+        final SnapshotCache refreshed = new SnapshotCache(Cpu.getInstance(), 0);
+        final ProfilerSnapshot first = refreshed.get();
+        final ProfilerSnapshot second = refreshed.get();
+
+        assertNotSame(first, second);
+        assertTrue(second.getTimestamp() >= first.getTimestamp());
+        assertEquals(2, refreshed.getSnapshots());
+        assertEquals(first.getDuration() + second.getDuration(), refreshed.getSnapshotTime());
+    }
+
+    /**
+     * A snapshot taken while a profiled thread runs has the thread, the statistics of the methods that finished in it, and their invocations in
+     * the totals.
+     * 
+     * @throws Exception
+     *             If the profiled thread fails.
+     */
+    @Test
+    public void snapshotHasTheThreadsAndTheirMethods() throws Exception
+    {
+        final ProfilerSnapshot[] snapshot = new ProfilerSnapshot[1];
+
+        final MethodInfo method = ProfiledThread.run(new ProfiledThread.Body()
+        {
+            @Override
+            public void run(MethodInfo current)
+            {
+                final ThreadProfiler profiler = Cpu.getInstance().currentThread();
+
+                for (int i = 0; i < 3; i++)
+                {
+                    final MethodInfo work = new MethodInfo(METHOD, Timer.createAndStart(), current.getThreadId(), current);
+                    profiler.addMethod(work);
+                    work.getTimer().stop();
+                    profiler.popStack();
+                    profiler.onMethodExit(work);
+                }
+                snapshot[0] = new SnapshotCache(Cpu.getInstance(), 0).get();
+            }
+        });
+
+        MethodEnergy work = null;
+
+        for (MethodEnergy statistics : snapshot[0].getMethods())
+        {
+            if (METHOD.equals(statistics.getName()) && statistics.getThreadId() == method.getThreadId())
+            {
+                work = statistics;
+            }
+        }
+
+        assertNotNull(work);
+        assertEquals(3, work.getInvocations());
+        assertTrue(work.getTime() >= 0);
+        assertTrue(work.getEnergy() >= 0);
+
+        ThreadEnergy thread = null;
+
+        for (ThreadEnergy profiled : snapshot[0].getThreads())
+        {
+            if (profiled.getId() == method.getThreadId())
+            {
+                thread = profiled;
+            }
+        }
+
+        assertNotNull(thread);
+        assertTrue(thread.getInvocations() >= 3);
+        assertTrue(snapshot[0].getInvocations() >= thread.getInvocations());
+        assertEquals(0, thread.getPower(), 0);
+        assertEquals(0, snapshot[0].getPower(), 0);
+        assertNotNull(snapshot[0].getDisk());
+    }
+}
@@ -0,0 +1,243 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.AsynchronousSocketChannel;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.Pipe;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import jenergy.profile.ProfiledThread;
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.IOInfo.IOActivityType;
+import jenergy.profile.data.MethodInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that {@link NetworkActivity} charges the network operations to the method on the stack of the current thread, with one activity per type
+ * and peer, and resolves the remote host of the channels and addresses.
+ */
+public class NetworkActivityTest
+{
+    /**
+     * The literal of the loopback address.
+     */
+    private static final String LOOPBACK = InetAddress.getLoopbackAddress().getHostAddress();
+
+    /**
+     * The server accepting the connection of the tests.
+     */
+    private ServerSocketChannel server;
+
+    /**
+     * The channel connected to the server.
+     */
+    private SocketChannel client;
+
+    /**
+     * Connects a channel to a server on the loopback interface.
+     * 
+     * @throws IOException
+     *             If the connection cannot be established.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        this.client = SocketChannel.open(this.server.getLocalAddress());
+    }
+
+    /**
+     * Closes the connection and the server.
+     * 
+     * @throws IOException
+     *             If a channel cannot be closed.
+     */
+    @After
+    public void tearDown() throws IOException
+    {
+        this.client.close();
+        this.server.close();
+    }
+
+    /**
+     * The operations are charged to one activity per type and peer of the method, registered once and reused by the next operations; the end of
+     * a stream is not an operation.
+     * 
+     * @throws Exception
+     *             If the operations cannot be recorded.
+     */
+    @Test
+    public void operationsShareOneActivityPerTypeAndPeer() throws Exception
+    {
+        final InetSocketAddress first = new InetSocketAddress(InetAddress.getByAddress(new byte[] {10, 0, 0, 1 }), 53);
+        final InetSocketAddress second = new InetSocketAddress(InetAddress.getByAddress(new byte[] {10, 0, 0, 2 }), 53);
+
+        final MethodInfo method = ProfiledThread.run(new ProfiledThread.Body()
+        {
+            @Override
+            public void run(MethodInfo current)
+            {
+                NetworkActivity.record(IOActivityType.READ, 100, 1000, first);
+                final IOInfo read = current.getNetworkActivity(IOActivityType.READ, first);
+
+                NetworkActivity.record(IOActivityType.READ, 200, 2000, first);
+                NetworkActivity.record(IOActivityType.WRITE, 50, 500, first);
+                NetworkActivity.record(IOActivityType.READ, 10, 100, second);
+                NetworkActivity.record(IOActivityType.READ, -1, 100, first);
+
+                assertSame(read, current.getNetworkActivity(IOActivityType.READ, first));
+            }
+        });
+
+        final IOInfo read = method.getNetworkActivity(IOActivityType.READ, first);
+        assertEquals(300, read.getBytes());
+        assertEquals(2, read.getOperations());
+        assertEquals(3100, read.getLatency());
+        assertEquals("10.0.0.1", read.getPath());
+        assertSame(method, read.getMethod());
+        assertEquals(50, method.getNetworkActivity(IOActivityType.WRITE, first).getBytes());
+        assertEquals("10.0.0.2", method.getNetworkActivity(IOActivityType.READ, second).getPath());
+        assertNull(method.getNetworkActivity(IOActivityType.WRITE, second));
+        assertNull(method.getChannelActivity(IOActivityType.READ, first));
+        assertEquals(3, method.getActivities().size());
+        assertSame(read, ((NetworkActivity) method.getActivities().get(0)).data());
+    }
+
+    /**
+     * The operations of a thread that is not monitored are ignored.
+     */
+    @Test
+    public void operationsOutsideMonitoredThreadsAreIgnored()
+    {
+        NetworkActivity.record(IOActivityType.WRITE, 100, 1000, this.client);
+        assertNull(NetworkActivity.startAsync(IOActivityType.WRITE, this.client).getMethod());
+    }
+
+    /**
+     * The remote host is the address of the peer of the connected channels and of the resolved socket addresses; it's unknown otherwise.
+     * 
+     * @throws IOException
+     *             If a channel cannot be opened.
+     */
+    @Test
+    public void remoteHostIsTheAddressOfThePeer() throws IOException
+    {
+        assertEquals(LOOPBACK, NetworkActivity.addressOf(this.client));
+        assertEquals("192.168.1.20", NetworkActivity.addressOf(new InetSocketAddress(InetAddress.getByAddress(new byte[] {(byte) 192,
+            (byte) 168, 1, 20 }), 80)));
+        assertNull(NetworkActivity.addressOf(InetSocketAddress.createUnresolved("example.invalid", 80)));
+        assertNull(NetworkActivity.addressOf((Object) null));
+        assertNull(NetworkActivity.addressOf((InetAddress) null));
+        assertNull(NetworkActivity.addressOf(new Object()));
+
+        final SocketChannel unconnected = SocketChannel.open();
+        final DatagramChannel datagram = DatagramChannel.open();
+        final AsynchronousSocketChannel asynchronous = AsynchronousSocketChannel.open();
+
+        try
+        {
+            assertNull(NetworkActivity.addressOf(unconnected));
+            assertNull(NetworkActivity.addressOf(datagram));
+            assertNull(NetworkActivity.addressOf(asynchronous));
+
+            datagram.connect(this.server.getLocalAddress());
+            assertEquals(LOOPBACK, NetworkActivity.addressOf(datagram));
+        }
+        finally
+        {
+            unconnected.close();
+            datagram.close();
+            asynchronous.close();
+        }
+
+        // a closed channel cannot give its peer
+        assertNull(NetworkActivity.addressOf(unconnected));
+    }
+
+    /**
+     * Only the socket and datagram channels are network channels.
+     * 
+     * @throws IOException
+     *             If a channel cannot be opened.
+     */
+    @Test
+    public void onlySocketAndDatagramChannelsAreNetworkChannels() throws IOException
+    {
+        final DatagramChannel datagram = DatagramChannel.open();
+        final Pipe pipe = Pipe.open();
+
+        try
+        {
+            assertTrue(NetworkActivity.isNetworkChannel(this.client));
+            assertTrue(NetworkActivity.isNetworkChannel(datagram));
+            assertFalse(NetworkActivity.isNetworkChannel(pipe.source()));
+            assertFalse(NetworkActivity.isNetworkChannel(this.server));
+            assertFalse(NetworkActivity.isNetworkChannel(null));
+        }
+        finally
+        {
+            datagram.close();
+            pipe.source().close();
+            pipe.sink().close();
+        }
+    }
+
+    /**
+     * An asynchronous operation has its own activity, charged to the method that started it but not added to its activities, since it completes
+     * in another thread.
+     * 
+     * @throws Exception
+     *             If the operation cannot be started.
+     */
+    @Test
+    public void asynchronousOperationsHaveTheirOwnActivity() throws Exception
+    {
+        final IOInfo[] started = new IOInfo[1];
+
+        final MethodInfo method = ProfiledThread.run(new ProfiledThread.Body()
+        {
+            @Override
+            public void run(MethodInfo current)
+            {
+                started[0] = NetworkActivity.startAsync(IOActivityType.READ, client);
+            }
+        });
+
+        assertSame(method, started[0].getMethod());
+        assertEquals(LOOPBACK, started[0].getPath());
+        assertEquals(IOActivityType.READ, started[0].getActivityType());
+        assertEquals(0, started[0].getBytes());
+        assertNull(method.getNetworkActivity(IOActivityType.READ, this.client));
+        assertTrue(method.getActivities().isEmpty());
+    }
+}
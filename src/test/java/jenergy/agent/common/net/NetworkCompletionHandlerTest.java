@@ -0,0 +1,148 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.channels.CompletionHandler;
+
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.IOInfo.IOActivityType;
+
+import org.junit.Test;
+
+/**
+ * Checks that a {@link NetworkCompletionHandler} accounts the bytes of its operation when it completes, closes the activity of the operation
+ * however it ends, and always notifies the handler of the application.
+ */
+public class NetworkCompletionHandlerTest
+{
+    /**
+     * A completed operation accounts the bytes it returns before the handler of the application is notified.
+     */
+    @Test
+    public void completionAccountsTheBytes()
+    {
+        final IOInfo info = new IOInfo(IOActivityType.WRITE, null, "10.0.0.1");
+        final RecordingHandler<Integer> handler = new RecordingHandler<Integer>(info);
+
+        new NetworkCompletionHandler<Integer, String>(handler, info).completed(Integer.valueOf(64), "attachment");
+
+        assertEquals(Integer.valueOf(64), handler.result);
+        assertEquals("attachment", handler.attachment);
+        assertEquals(64, handler.bytesWhenNotified);
+        assertEquals(64, info.getBytes());
+        assertEquals(1, info.getOperations());
+        assertTrue(info.isClosed());
+    }
+
+    /**
+     * The operations whose result is not a number, such as connections, close their activity without accounting bytes.
+     */
+    @Test
+    public void completionWithoutCountOnlyCloses()
+    {
+        final IOInfo info = new IOInfo(IOActivityType.READ, null, "10.0.0.1");
+        final RecordingHandler<Void> handler = new RecordingHandler<Void>(info);
+
+        new NetworkCompletionHandler<Void, String>(handler, info).completed(null, "attachment");
+
+        assertEquals("attachment", handler.attachment);
+        assertEquals(0, info.getOperations());
+        assertTrue(info.isClosed());
+    }
+
+    /**
+     * A failed operation closes its activity and the handler of the application gets the failure.
+     */
+    @Test
+    public void failureClosesTheActivity()
+    {
+        final IOInfo info = new IOInfo(IOActivityType.READ, null, "10.0.0.1");
+        final RecordingHandler<Integer> handler = new RecordingHandler<Integer>(info);
+        final IOException failure = new IOException("reset");
+
+        new NetworkCompletionHandler<Integer, String>(handler, info).failed(failure, "attachment");
+
+        assertSame(failure, handler.failure);
+        assertEquals(0, info.getOperations());
+        assertTrue(info.isClosed());
+    }
+
+    /**
+     * A handler that records how it was notified.
+     * 
+     * @param <V>
+     *            The type of the result.
+     */
+    private static final class RecordingHandler<V> implements CompletionHandler<V, String>
+    {
+        /**
+         * The activity of the operation.
+         */
+        private final IOInfo info;
+
+        /**
+         * The bytes of the activity when the handler was notified.
+         */
+        private long bytesWhenNotified = -1;
+
+        /**
+         * The result of the operation.
+         */
+        private V result;
+
+        /**
+         * The attachment of the operation.
+         */
+        private String attachment;
+
+        /**
+         * The failure of the operation.
+         */
+        private Throwable failure;
+
+        /**
+         * @param ioInfo
+         *            The activity of the operation.
+         */
+        RecordingHandler(IOInfo ioInfo)
+        {
+            this.info = ioInfo;
+        }
+
+        @Override
+        public void completed(V value, String operationAttachment)
+        {
+            this.bytesWhenNotified = this.info.getBytes();
+            this.result = value;
+            this.attachment = operationAttachment;
+        }
+
+        @Override
+        public void failed(Throwable exc, String operationAttachment)
+        {
+            this.failure = exc;
+            this.attachment = operationAttachment;
+        }
+    }
+}
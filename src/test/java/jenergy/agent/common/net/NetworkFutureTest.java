@@ -0,0 +1,144 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.IOInfo.IOActivityType;
+
+import org.junit.Test;
+
+/**
+ * Checks that a {@link NetworkFuture} accounts the bytes of its operation once, when the application gets the result, and closes the activity
+ * of the operation however it ends.
+ */
+public class NetworkFutureTest
+{
+    /**
+     * The result is accounted at the first get only, whichever get it is.
+     * 
+     * @throws Exception
+     *             If the result cannot be got.
+     */
+    @Test
+    public void resultIsAccountedOnce() throws Exception
+    {
+        final IOInfo info = new IOInfo(IOActivityType.READ, null, "10.0.0.1");
+        final NetworkFuture<Integer> future = new NetworkFuture<Integer>(completed(Integer.valueOf(42)), info);
+
+        assertFalse(info.isClosed());
+        assertEquals(Integer.valueOf(42), future.get(1, TimeUnit.SECONDS));
+        assertEquals(Integer.valueOf(42), future.get());
+        assertTrue(future.isDone());
+        assertFalse(future.isCancelled());
+
+        assertEquals(42, info.getBytes());
+        assertEquals(1, info.getOperations());
+        assertTrue(info.getLatency() >= 0);
+        assertTrue(info.isClosed());
+    }
+
+    /**
+     * A failed operation closes its activity without accounting bytes, and the application still gets the failure.
+     * 
+     * @throws Exception
+     *             If the future cannot be run.
+     */
+    @Test
+    public void failureClosesTheActivity() throws Exception
+    {
+        final IOInfo info = new IOInfo(IOActivityType.WRITE, null, "10.0.0.1");
+        final FutureTask<Integer> task = new FutureTask<Integer>(new Callable<Integer>()
+        {
+            @Override
+            public Integer call() throws IOException
+            {
+                throw new IOException("reset");
+            }
+        });
+        task.run();
+
+        try
+        {
+            new NetworkFuture<Integer>(task, info).get();
+            fail("The operation failed");
+        }
+        catch (ExecutionException expected)
+        {
+            assertTrue(expected.getCause() instanceof IOException);
+        }
+
+        assertEquals(0, info.getBytes());
+        assertEquals(0, info.getOperations());
+        assertTrue(info.isClosed());
+    }
+
+    /**
+     * A cancelled operation closes its activity.
+     */
+    @Test
+    public void cancellationClosesTheActivity()
+    {
+        final IOInfo info = new IOInfo(IOActivityType.READ, null, "10.0.0.1");
+        final NetworkFuture<Integer> future = new NetworkFuture<Integer>(new FutureTask<Integer>(new Callable<Integer>()
+        {
+            @Override
+            public Integer call()
+            {
+                return Integer.valueOf(1);
+            }
+        }), info);
+
+        assertTrue(future.cancel(false));
+        assertTrue(future.isCancelled());
+        assertTrue(info.isClosed());
+        assertEquals(0, info.getOperations());
+    }
+
+    /**
+     * Returns a completed future.
+     * 
+     * @param value
+     *            The result of the future.
+     * @return A future completed with the given result.
+     */
+    private static FutureTask<Integer> completed(final Integer value)
+    {
+        final FutureTask<Integer> task = new FutureTask<Integer>(new Callable<Integer>()
+        {
+            @Override
+            public Integer call()
+            {
+                return value;
+            }
+        });
+        task.run();
+        return task;
+    }
+}
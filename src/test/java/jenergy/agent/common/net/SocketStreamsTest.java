@@ -0,0 +1,207 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.net;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import jenergy.profile.ProfiledThread;
+import jenergy.profile.data.MethodInfo;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the streams of a {@link Socket} given by {@link SocketStreams} count the bytes sent and received by each overload, that a socket
+ * keeps one delegate per stream, and that their activities are closed with the socket.
+ */
+public class SocketStreamsTest
+{
+    /**
+     * The literal of the loopback address.
+     */
+    private static final String LOOPBACK = InetAddress.getLoopbackAddress().getHostAddress();
+
+    /**
+     * The server accepting the connection of the tests.
+     */
+    private ServerSocket server;
+
+    /**
+     * The socket connected to the server.
+     */
+    private Socket client;
+
+    /**
+     * The socket accepted by the server.
+     */
+    private Socket accepted;
+
+    /**
+     * Connects a socket to a server on the loopback interface.
+     * 
+     * @throws IOException
+     *             If the connection cannot be established.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.server = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        this.client = new Socket(InetAddress.getLoopbackAddress(), this.server.getLocalPort());
+        this.accepted = this.server.accept();
+    }
+
+    /**
+     * Closes the sockets and the server.
+     * 
+     * @throws IOException
+     *             If a socket cannot be closed.
+     */
+    @After
+    public void tearDown() throws IOException
+    {
+        this.client.close();
+        this.accepted.close();
+        this.server.close();
+    }
+
+    /**
+     * The bytes sent by each overload of <code>write</code> are received by each overload of <code>read</code>, and both sides count them once
+     * per operation as activities of the method that got the streams, with the peer as remote host; the end of the stream is not an operation.
+     * 
+     * @throws Exception
+     *             If the bytes cannot be sent or received.
+     */
+    @Test
+    public void streamsCountTheBytesTransferred() throws Exception
+    {
+        final SocketOutputStreamDelegate[] output = new SocketOutputStreamDelegate[1];
+        final SocketInputStreamDelegate[] input = new SocketInputStreamDelegate[1];
+        final byte[] received = new byte[16];
+
+        final MethodInfo method = ProfiledThread.run(new ProfiledThread.Body()
+        {
+            @Override
+            public void run(MethodInfo current) throws IOException
+            {
+                output[0] = (SocketOutputStreamDelegate) SocketStreams.outputStreamOf(client, client.getOutputStream(), current);
+                input[0] = (SocketInputStreamDelegate) SocketStreams.inputStreamOf(accepted, accepted.getInputStream(), current);
+
+                output[0].write(1);
+                output[0].write(new byte[] {2, 3, 4, 5, 6, 7, 8, 9, 10, 11 });
+                output[0].write(new byte[] {0, 0, 12, 13, 14, 15, 16, 0 }, 2, 5);
+                client.shutdownOutput();
+
+                received[0] = (byte) input[0].read();
+                int length = 1;
+
+                while (length < received.length)
+                {
+                    length += input[0].read(received, length, received.length - length);
+                }
+                assertEquals(-1, input[0].read(new byte[4]));
+                assertEquals(-1, input[0].read());
+            }
+        });
+
+        for (int i = 0; i < received.length; i++)
+        {
+            assertEquals(i + 1, received[i]);
+        }
+
+        assertEquals(16, output[0].getInfo().getBytes());
+        assertEquals(3, output[0].getInfo().getOperations());
+        assertEquals(LOOPBACK, output[0].getInfo().getPath());
+        assertSame(method, output[0].getInfo().getMethod());
+        assertEquals(16, input[0].getInfo().getBytes());
+        assertTrue(input[0].getInfo().getOperations() >= 2);
+        assertTrue(input[0].getInfo().getLatency() >= 0);
+        assertEquals(LOOPBACK, input[0].getInfo().getPath());
+        assertEquals(2, method.getActivities().size());
+    }
+
+    /**
+     * The same stream of a socket always gets the same delegate, so its bytes are counted once; another stream of the same socket gets a new
+     * delegate and closes the activity of the previous one.
+     */
+    @Test
+    public void eachStreamOfASocketHasOneDelegate()
+    {
+        final OutputStream stream = new ByteArrayOutputStream();
+        final InputStream source = new ByteArrayInputStream(new byte[1]);
+
+        final SocketOutputStreamDelegate output = (SocketOutputStreamDelegate) SocketStreams.outputStreamOf(this.client, stream, null);
+        final SocketInputStreamDelegate input = (SocketInputStreamDelegate) SocketStreams.inputStreamOf(this.client, source, null);
+
+        assertSame(output, SocketStreams.outputStreamOf(this.client, stream, null));
+        assertSame(input, SocketStreams.inputStreamOf(this.client, source, null));
+        assertNotSame(output, SocketStreams.outputStreamOf(this.accepted, stream, null));
+
+        final OutputStream replaced = SocketStreams.outputStreamOf(this.client, new ByteArrayOutputStream(), null);
+        assertNotSame(output, replaced);
+        assertTrue(output.getInfo().isClosed());
+        assertFalse(input.getInfo().isClosed());
+        assertFalse(((SocketOutputStreamDelegate) replaced).getInfo().isClosed());
+    }
+
+    /**
+     * Closing a socket closes the activities of its streams, even when the streams were not closed; closing a stream closes its activity and the
+     * stream of the socket.
+     * 
+     * @throws IOException
+     *             If a stream cannot be closed.
+     */
+    @Test
+    public void activitiesAreClosedWithTheSocket() throws IOException
+    {
+        final SocketOutputStreamDelegate output = (SocketOutputStreamDelegate) SocketStreams.outputStreamOf(this.client, new ByteArrayOutputStream(),
+                null);
+        final InputStream source = new ByteArrayInputStream(new byte[0]);
+        final SocketInputStreamDelegate input = (SocketInputStreamDelegate) SocketStreams.inputStreamOf(this.client, source, null);
+        final SocketInputStreamDelegate other = (SocketInputStreamDelegate) SocketStreams.inputStreamOf(this.accepted, this.accepted.getInputStream(),
+                null);
+
+        SocketStreams.closed(this.client);
+        SocketStreams.closed(null);
+
+        assertTrue(output.getInfo().isClosed());
+        assertTrue(input.getInfo().isClosed());
+        assertFalse(other.getInfo().isClosed());
+
+        // the same stream gets a new delegate if it's requested again, since the activity of the previous one is closed
+        assertNotSame(input, SocketStreams.inputStreamOf(this.client, source, null));
+
+        other.close();
+        assertTrue(other.getInfo().isClosed());
+        assertTrue(this.accepted.isClosed());
+    }
+}
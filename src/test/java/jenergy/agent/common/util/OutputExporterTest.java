@@ -0,0 +1,227 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import jenergy.profile.data.MethodStatistics;
+
+import org.junit.Test;
+
+/**
+ * Checks the queue policies of the {@link OutputExporter} and that its shutdown writes every queued report before closing the sinks.
+ */
+public class OutputExporterTest
+{
+    /**
+     * The time in milliseconds that the tests wait for a thread.
+     */
+    private static final long TIMEOUT = 5000;
+
+    /**
+     * With the drop policy, the reports submitted to a full queue are dropped and counted, and the queued ones are still written.
+     */
+    @Test
+    public void fullQueueDropsTheReports()
+    {
+        final RecordingSink sink = new RecordingSink(null);
+        final OutputExporter exporter = new OutputExporter(Collections.<OutputSink> singletonList(sink), null, 2, false);
+        final ThreadReport first = report();
+        final ThreadReport second = report();
+
+        assertTrue(exporter.submit(first));
+        assertTrue(exporter.submit(second));
+        assertFalse(exporter.submit(report()));
+        assertEquals(1, exporter.getDropped());
+
+        exporter.shutdown();
+
+        assertEquals(2, sink.written.size());
+        assertSame(first, sink.written.get(0));
+        assertSame(second, sink.written.get(1));
+        assertEquals(1, sink.closed);
+    }
+
+    /**
+     * With the block policy, a thread that submits a report to a full queue waits until the exporter takes a report, and no report is dropped.
+     * 
+     * @throws InterruptedException
+     *             If the test is interrupted.
+     */
+    @Test
+    public void fullQueueBlocksTheThreads() throws InterruptedException
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+        final RecordingSink sink = new RecordingSink(release);
+        final OutputExporter exporter = new OutputExporter(Collections.<OutputSink> singletonList(sink), null, 1, true);
+        exporter.start();
+
+        // the exporter takes the first report and waits in the sink, so the second one fills the queue
+        assertTrue(exporter.submit(report()));
+        assertTrue(sink.writing.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        assertTrue(exporter.submit(report()));
+
+        final Thread submitter = new Thread("blocked submitter")
+        {
+            @Override
+            public void run()
+            {
+                exporter.submit(report());
+            }
+        };
+        submitter.start();
+
+        submitter.join(200);
+        assertTrue(submitter.isAlive());
+
+        release.countDown();
+        submitter.join(TIMEOUT);
+        assertFalse(submitter.isAlive());
+
+        exporter.shutdown();
+
+        assertEquals(3, sink.written.size());
+        assertEquals(0, exporter.getDropped());
+        assertEquals(1, sink.closed);
+    }
+
+    /**
+     * The shutdown of a running exporter waits until the reports still queued are written, then closes the sinks once.
+     * 
+     * @throws InterruptedException
+     *             If the test is interrupted.
+     */
+    @Test
+    public void shutdownDrainsTheQueue() throws InterruptedException
+    {
+        final CountDownLatch release = new CountDownLatch(1);
+        final RecordingSink sink = new RecordingSink(release);
+        final OutputExporter exporter = new OutputExporter(Collections.<OutputSink> singletonList(sink), null, 1000, false);
+        final List<ThreadReport> reports = new ArrayList<ThreadReport>();
+        exporter.start();
+
+        for (int i = 0; i < 200; i++)
+        {
+            final ThreadReport report = report();
+            reports.add(report);
+            assertTrue(exporter.submit(report));
+        }
+
+        assertTrue(sink.writing.await(TIMEOUT, TimeUnit.MILLISECONDS));
+        release.countDown();
+        exporter.shutdown();
+
+        assertFalse(exporter.isAlive());
+        assertEquals(reports, sink.written);
+        assertTrue(sink.flushed > 1);
+        assertEquals(1, sink.closed);
+    }
+
+    /**
+     * Creates an empty report. The sinks of the tests don't read it.
+     * 
+     * @return An empty report.
+     */
+    private static ThreadReport report()
+    {
+        return new ThreadReport(new HashMap<String, MethodStatistics>(), null);
+    }
+
+    /**
+     * A sink that records the reports it's given. It can hold the exporter's thread in its first write until it's released.
+     */
+    private static final class RecordingSink implements OutputSink
+    {
+        /**
+         * The reports written, in order. It's only read after the exporter's thread finished.
+         */
+        private final List<ThreadReport> written = new ArrayList<ThreadReport>();
+
+        /**
+         * Counted down when the first report is being written.
+         */
+        private final CountDownLatch writing = new CountDownLatch(1);
+
+        /**
+         * The latch that releases the first write. It can be <code>null</code>.
+         */
+        private final CountDownLatch release;
+
+        /**
+         * The number of calls to {@link #flush()}.
+         */
+        private int flushed;
+
+        /**
+         * The number of calls to {@link #close()}.
+         */
+        private int closed;
+
+        /**
+         * @param latch
+         *            The latch that releases the first write, or <code>null</code> to never wait.
+         */
+        RecordingSink(CountDownLatch latch)
+        {
+            this.release = latch;
+        }
+
+        @Override
+        public void write(ThreadReport report) throws IOException
+        {
+            this.writing.countDown();
+
+            if (this.release != null && this.written.isEmpty())
+            {
+                try
+                {
+                    this.release.await();
+                }
+                catch (InterruptedException exception)
+                {
+                    throw new IOException(exception);
+                }
+            }
+            this.written.add(report);
+        }
+
+        @Override
+        public void flush()
+        {
+            this.flushed++;
+        }
+
+        @Override
+        public void close()
+        {
+            this.closed++;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.agent.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that {@link ProcIO} parses and refreshes the <em>io</em> files of a fake proc file system (system property <em>jenergy.proc.root</em>).
+ */
+public class ProcIOTest
+{
+    /**
+     * The root of the fake proc file system.
+     */
+    private File root;
+
+    /**
+     * The value of the system property <em>jenergy.proc.root</em> before the test.
+     */
+    private String previousRoot;
+
+    /**
+     * Creates an empty proc file system and makes it the root used by {@link ProcFile}.
+     * 
+     * @throws IOException
+     *             If the directory cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.root = File.createTempFile("jenergy-proc", "");
+        assertTrue(this.root.delete());
+        assertTrue(new File(this.root, "self/task/42").mkdirs());
+
+        this.previousRoot = System.getProperty("jenergy.proc.root");
+        System.setProperty("jenergy.proc.root", this.root.getPath());
+    }
+
+    /**
+     * Restores the root of the proc file system and deletes the fake one.
+     */
+    @After
+    public void tearDown()
+    {
+        if (this.previousRoot != null)
+        {
+            System.setProperty("jenergy.proc.root", this.previousRoot);
+        }
+        else
+        {
+            System.clearProperty("jenergy.proc.root");
+        }
+        delete(this.root);
+    }
+
+    /**
+     * The counters of the process are parsed from its <em>io</em> file and refreshed from the same open file.
+     * 
+     * @throws IOException
+     *             If the fake file cannot be written.
+     */
+    @Test
+    public void countersAreParsedAndRefreshed() throws IOException
+    {
+        writeIO(new File(this.root, "self/io"), 10, 20, 4096, 8192);
+        final ProcIO io = ProcIO.openIfExists("self/io");
+        assertNotNull(io);
+
+        try
+        {
+            assertEquals(10, io.getReadCalls());
+            assertEquals(20, io.getWriteCalls());
+            assertEquals(4096, io.getReadBytes());
+            assertEquals(8192, io.getWriteBytes());
+
+            writeIO(new File(this.root, "self/io"), 11, 25, 1 << 20, 3L << 32);
+            assertTrue(io.refresh());
+            assertEquals(11, io.getReadCalls());
+            assertEquals(25, io.getWriteCalls());
+            assertEquals(1 << 20, io.getReadBytes());
+            assertEquals(3L << 32, io.getWriteBytes());
+        }
+        finally
+        {
+            io.close();
+        }
+    }
+
+    /**
+     * The <em>io</em> file of a task is read like the one of the process.
+     * 
+     * @throws IOException
+     *             If the fake file cannot be written.
+     */
+    @Test
+    public void taskCountersAreParsed() throws IOException
+    {
+        writeIO(new File(this.root, "self/task/42/io"), 1, 2, 3, 4);
+        final ProcIO io = ProcIO.openIfExists("self/task/42/io");
+        assertNotNull(io);
+        assertEquals(3, io.getReadBytes());
+        assertEquals(4, io.getWriteBytes());
+        io.close();
+    }
+
+    /**
+     * A missing file, e.g., of a task that has finished, is not opened.
+     */
+    @Test
+    public void missingFileIsNotOpened()
+    {
+        assertNull(ProcIO.openIfExists("self/task/43/io"));
+    }
+
+    /**
+     * A file without the byte counters, e.g., when the kernel does not account the storage I/O, is not opened, and a refresh that loses them
+     * fails and keeps the previous values.
+     * 
+     * @throws IOException
+     *             If the fake file cannot be written.
+     */
+    @Test
+    public void fileWithoutByteCountersIsRejected() throws IOException
+    {
+        final File file = new File(this.root, "self/io");
+        write(file, "rchar: 100\nwchar: 200\nsyscr: 1\nsyscw: 2\n");
+        assertNull(ProcIO.openIfExists("self/io"));
+
+        writeIO(file, 1, 2, 300, 400);
+        final ProcIO io = ProcIO.openIfExists("self/io");
+        assertNotNull(io);
+
+        try
+        {
+            write(file, "syscr: 5\n");
+            assertFalse(io.refresh());
+            assertEquals(300, io.getReadBytes());
+            assertEquals(400, io.getWriteBytes());
+        }
+        finally
+        {
+            io.close();
+        }
+    }
+
+    /**
+     * Writes an <em>io</em> file in the format of Linux.
+     * 
+     * @param file
+     *            The file to be written.
+     * @param syscr
+     *            The number of read system calls.
+     * @param syscw
+     *            The number of write system calls.
+     * @param readBytes
+     *            The bytes read from the storage.
+     * @param writeBytes
+     *            The bytes written to the storage.
+     * @throws IOException
+     *             If the file cannot be written.
+     */
+    static void writeIO(File file, long syscr, long syscw, long readBytes, long writeBytes) throws IOException
+    {
+        write(file, String.format("rchar: %d%nwchar: %d%nsyscr: %d%nsyscw: %d%nread_bytes: %d%nwrite_bytes: %d%ncancelled_write_bytes: 0%n",
+                readBytes * 2, writeBytes * 2, syscr, syscw, readBytes, writeBytes));
+    }
+
+    /**
+     * Replaces the content of a file, keeping the file itself so that it stays valid for the open readers.
+     * 
+     * @param file
+     *            The file to be written.
+     * @param content
+     *            The new content.
+     * @throws IOException
+     *             If the file cannot be written.
+     */
+    static void write(File file, String content) throws IOException
+    {
+        final FileOutputStream output = new FileOutputStream(file);
+
+        try
+        {
+            output.write(content.getBytes(Charset.forName("US-ASCII")));
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+
+    /**
+     * Deletes a file or a directory with its content.
+     * 
+     * @param file
+     *            The file or directory to be deleted.
+     */
+    static void delete(File file)
+    {
+        final File[] children = file.listFiles();
+
+        if (children != null)
+        {
+            for (File child : children)
+            {
+                delete(child);
+            }
+        }
+        assertTrue(file.delete());
+    }
+}
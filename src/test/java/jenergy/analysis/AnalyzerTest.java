@@ -0,0 +1,213 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import jenergy.profile.data.IOInfo;
+import jenergy.trace.TraceWriter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the analyze command merges the outputs of the threads of a run, whatever their format, and ranks their methods.
+ */
+public class AnalyzerTest
+{
+    /**
+     * The charset of the outputs and the report.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * The directory of the outputs and the report written by the tests.
+     */
+    private File directory;
+
+    /**
+     * Writes the outputs of a run: the text output of the thread 7, the text output of the thread 8 and an output of another run.
+     * 
+     * @throws IOException
+     *             If the outputs cannot be written.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.directory = File.createTempFile("jenergy-analysis", "");
+        assertTrue(this.directory.delete());
+        assertTrue(this.directory.mkdir());
+
+        this.text("output-7.txt", OutputParserTest.statistics("app.Service.handle#7", 4, 0.25).toString(),
+                OutputParserTest.statistics("app.Store.load#7", 1, 0.5).toString(),
+                OutputParserTest.histograms("app.Store.load#7", "/data/in", IOInfo.IOActivityType.READ, 2, 512).toString());
+        this.text("output-8.txt", OutputParserTest.statistics("app.Service.handle#8", 2, 0.25).toString());
+        this.text("other.txt", OutputParserTest.statistics("app.Other.run#1", 100, 100).toString());
+    }
+
+    /**
+     * Deletes the outputs and the report written by the tests.
+     */
+    @After
+    public void tearDown()
+    {
+        final File[] files = this.directory.listFiles();
+
+        for (int i = 0; files != null && i < files.length; i++)
+        {
+            assertTrue(files[i].delete());
+        }
+        assertTrue(this.directory.delete());
+    }
+
+    /**
+     * The path of the threads' files selects the outputs of the run, whose methods are merged across the threads and ranked by energy, CPU
+     * time, I/O and invocations.
+     * 
+     * @throws IOException
+     *             If the outputs cannot be read or the report cannot be written.
+     */
+    @Test
+    public void threadOutputsAreMergedAndRanked() throws IOException
+    {
+        final List<String> report = this.analyze(new File(this.directory, "output.txt").getPath(), "--threads", "2");
+
+        assertTrue(report.get(0), report.get(0).startsWith("2 files ("));
+        assertTrue(report.get(0), report.get(0).contains(" 2 segments, 2 methods, read in "));
+        assertEquals(report.toString(), 16, report.size());
+
+        assertEquals("Top 2 methods by energy (total: 3 J)", report.get(1));
+        assertEquals(" rank                  J   share  threads  method", report.get(2));
+        assertEquals("    1            1.50000  50.00%        2  app.Service.handle", report.get(3));
+        assertEquals("    2            1.50000  50.00%        1  app.Store.load", report.get(4));
+        assertEquals("Top 2 methods by CPU time (total: 7 ms)", report.get(5));
+        assertEquals("    1                  6  85.71%        2  app.Service.handle", report.get(7));
+        assertEquals("Top 1 methods by I/O (total: 1024 bytes)", report.get(9));
+        assertEquals("    1               1024 100.00%        1  app.Store.load", report.get(11));
+        assertEquals("Top 2 methods by invocations (total: 7)", report.get(12));
+        assertEquals(" rank        invocations   share  threads  method", report.get(13));
+        assertEquals("    1                  6  85.71%        2  app.Service.handle", report.get(14));
+    }
+
+    /**
+     * A directory gives all its outputs, and a binary trace is merged with the text outputs; <em>--top</em> limits the ranked methods.
+     * 
+     * @throws IOException
+     *             If the outputs cannot be read or the report cannot be written.
+     */
+    @Test
+    public void directoryMergesTextAndTraces() throws IOException
+    {
+        final TraceWriter writer = new TraceWriter(new File(this.directory, "trace-9.bin").getPath());
+        writer.invocation(1000, OutputParserTest.statistics("app.Other.run#9", 1, 1));
+        writer.close();
+
+        final List<String> report = this.analyze(this.directory.getPath(), "--top", "1");
+
+        assertTrue(report.get(0), report.get(0).startsWith("4 files ("));
+        assertTrue(report.get(0), report.get(0).contains(" 4 segments, 3 methods, read in "));
+        assertEquals(report.toString(), 13, report.size());
+        assertEquals("Top 1 methods by energy (total: 306 J)", report.get(1));
+        assertEquals("    1                303  99.02%        2  app.Other.run", report.get(3));
+        assertEquals("Top 1 methods by invocations (total: 108)", report.get(10));
+        assertEquals("    1                101  93.52%        2  app.Other.run", report.get(12));
+    }
+
+    /**
+     * Writes a text output.
+     * 
+     * @param name
+     *            The name of the output in the directory of the test.
+     * @param lines
+     *            The lines of the output.
+     * @throws IOException
+     *             If the output cannot be written.
+     */
+    private void text(String name, String... lines) throws IOException
+    {
+        final Writer out = new OutputStreamWriter(new FileOutputStream(new File(this.directory, name)), UTF8);
+
+        try
+        {
+            for (String line : lines)
+            {
+                out.write(line);
+                out.write('\n');
+            }
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Runs the analyze command with its output in the directory of the test.
+     * 
+     * @param args
+     *            The arguments of the command, except the output.
+     * @return The lines of the report, without the empty ones.
+     * @throws IOException
+     *             If the outputs cannot be read or the report cannot be written.
+     */
+    private List<String> analyze(String... args) throws IOException
+    {
+        final File output = File.createTempFile("jenergy-report", ".txt");
+        final String[] command = new String[args.length + 2];
+
+        System.arraycopy(args, 0, command, 0, args.length);
+        command[args.length] = "--output";
+        command[args.length + 1] = output.getPath();
+        Analyzer.main(command);
+
+        final List<String> lines = new ArrayList<String>();
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(output), UTF8));
+
+        try
+        {
+            for (String line = reader.readLine(); line != null; line = reader.readLine())
+            {
+                if (!line.isEmpty())
+                {
+                    lines.add(line);
+                }
+            }
+        }
+        finally
+        {
+            reader.close();
+            assertTrue(output.delete());
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,317 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.analysis;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import jenergy.profile.data.IOHistograms;
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.MethodStatistics;
+import jenergy.profile.energy.EnergyAccount;
+import jenergy.profile.energy.EnergyDimension;
+import jenergy.trace.TraceWriter;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the {@link OutputParser} reads back the statistics written by the profiler, from the lines of the text outputs, from any range
+ * of a mapped output and from the binary traces.
+ */
+public class OutputParserTest
+{
+    /**
+     * The largest rounding error of an energy.
+     */
+    private static final double DELTA = 1e-9;
+
+    /**
+     * The number of nanoseconds in a millisecond.
+     */
+    private static final long MILLI = 1000000L;
+
+    /**
+     * The output written by the tests.
+     */
+    private File file;
+
+    /**
+     * The table filled by the parser.
+     */
+    private final Map<String, MethodTotals> totals = new HashMap<String, MethodTotals>();
+
+    /**
+     * Reserves the name of the output written by the tests.
+     * 
+     * @throws IOException
+     *             If the file cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.file = File.createTempFile("jenergy-output", ".txt");
+    }
+
+    /**
+     * Deletes the output written by the tests.
+     */
+    @After
+    public void tearDown()
+    {
+        assertTrue(this.file.delete());
+    }
+
+    /**
+     * The lines of the same method from different threads are added up under the name without the thread id, with the times truncated to
+     * milliseconds as printed.
+     */
+    @Test
+    public void statisticsLinesRoundTrip()
+    {
+        final OutputParser parser = new OutputParser(this.totals);
+
+        parser.parseLine(statistics("app.Service.handle#7", 2, 0.25).toString());
+        parser.parseLine(statistics("app.Service.handle#8", 3, 0.5).toString());
+
+        final MethodTotals handle = this.totals.get("app.Service.handle");
+
+        assertEquals(1, this.totals.size());
+        assertNotNull(handle);
+        assertEquals(2, handle.getThreads());
+        assertEquals(5, handle.getInvocations());
+        // each invocation takes 1.5 ms: 3 ms and 4 ms once truncated
+        assertEquals(7 * MILLI, handle.getTime());
+        assertEquals(5 * MILLI, handle.getCpuTime());
+        assertEquals(5 * 1024, handle.getAllocatedBytes());
+        assertEquals(0.75, handle.getEnergy(EnergyDimension.CPU), DELTA);
+        assertEquals(1.5, handle.getEnergy(EnergyDimension.DISK), DELTA);
+        assertEquals(2.25, handle.getEnergy(), DELTA);
+        assertEquals(0, handle.getIOBytes());
+    }
+
+    /**
+     * The lines of the I/O histograms add their bytes and operations to their method, even when the path has spaces; the histograms without
+     * method and the other lines are ignored.
+     */
+    @Test
+    public void histogramLinesRoundTrip()
+    {
+        final OutputParser parser = new OutputParser(this.totals);
+
+        parser.parseLine(histograms("app.Store.load#7", "/data/my file.bin", IOInfo.IOActivityType.READ, 4, 100).toString());
+        parser.parseLine(histograms("app.Store.load#8", "/data/other.bin", IOInfo.IOActivityType.WRITE, 2, 30).toString());
+        parser.parseLine(histograms(null, "/data/orphan.bin", IOInfo.IOActivityType.WRITE, 1, 10).toString());
+        parser.parseLine("Energy consumed by the JVM: 12.5J");
+        parser.parseLine("");
+        parser.parseLine("app.Weird time: 12.5ms cpu: 1ms (min: 0ms, max: 0ms) - 1 invocations 0.00 allocated: 0 bytes energy: 0J (cpu: 0J)");
+
+        final MethodTotals load = this.totals.get("app.Store.load");
+
+        assertEquals(1, this.totals.size());
+        assertEquals(4 * 100 + 2 * 30, load.getIOBytes());
+        assertEquals(6, load.getIOOperations());
+        assertEquals(0, load.getThreads());
+    }
+
+    /**
+     * A mapped output parsed in ranges that split its lines, and its chunks, anywhere gives the same totals as the whole output read as text: each
+     * line is read by the range where it starts, once.
+     * 
+     * @throws IOException
+     *             If the output cannot be written or read.
+     */
+    @Test
+    public void mappedRangesReadEachLineOnce() throws IOException
+    {
+        final StringBuilder name = new StringBuilder("app.");
+
+        while (name.length() < 1000)
+        {
+            name.append("Long");
+        }
+
+        final Writer out = new OutputStreamWriter(new FileOutputStream(this.file), Charset.forName("UTF-8"));
+
+        try
+        {
+            for (int i = 0; i < 2000; i++)
+            {
+                out.write(statistics("app.Type.method" + i % 10 + "#" + i, 1 + i % 3, 0.125).toString());
+                out.write('\n');
+                out.write(histograms("app.Type.method" + i % 10 + "#" + i, "/data/file", IOInfo.IOActivityType.READ, 1, i).toString());
+                out.write('\n');
+            }
+            out.write(statistics(name + ".method#1", 1, 1).toString());
+        }
+        finally
+        {
+            out.close();
+        }
+
+        final Map<String, MethodTotals> expected = new HashMap<String, MethodTotals>();
+        new OutputParser(expected).parseText(this.file);
+        assertEquals(11, expected.size());
+
+        final OutputParser parser = new OutputParser(this.totals);
+        final long length = this.file.length();
+        final long range = 4099;
+        assertTrue(length > 1 << 17);
+
+        for (long start = 0; start < length; start += range)
+        {
+            parser.parseMapped(this.file, start, Math.min(length, start + range));
+        }
+
+        assertSameTotals(expected, this.totals);
+
+        // a single range crosses the chunks copied from the window
+        final Map<String, MethodTotals> whole = new HashMap<String, MethodTotals>();
+        new OutputParser(whole).parseMapped(this.file, 0, length);
+        assertSameTotals(expected, whole);
+
+        assertEquals(200, this.totals.get("app.Type.method3").getThreads());
+        assertEquals(1, this.totals.get(name + ".method").getThreads());
+    }
+
+    /**
+     * The binary trace gives the times in nanoseconds, without truncation, and the I/O of the histograms.
+     * 
+     * @throws IOException
+     *             If the trace cannot be written or read.
+     */
+    @Test
+    public void traceRoundTrip() throws IOException
+    {
+        final TraceWriter writer = new TraceWriter(this.file.getPath());
+
+        writer.invocation(1000, statistics("app.Service.handle#7", 2, 0.25));
+        writer.invocation(1000, statistics("app.Service.handle#8", 1, 0.5));
+        writer.io(1000, histograms("app.Service.handle#7", "/data/in", IOInfo.IOActivityType.READ, 3, 10));
+        writer.close();
+
+        new OutputParser(this.totals).parseTrace(this.file);
+
+        final MethodTotals handle = this.totals.get("app.Service.handle");
+
+        assertEquals(1, this.totals.size());
+        assertEquals(2, handle.getThreads());
+        assertEquals(3, handle.getInvocations());
+        assertEquals(3 * 1500000, handle.getTime());
+        assertEquals(3 * MILLI, handle.getCpuTime());
+        assertEquals(3 * 1024, handle.getAllocatedBytes());
+        assertEquals(30, handle.getIOBytes());
+        assertEquals(3, handle.getIOOperations());
+        assertEquals(0.75, handle.getEnergy(EnergyDimension.CPU), 1e-6);
+        assertEquals(1.5, handle.getEnergy(EnergyDimension.DISK), 1e-6);
+    }
+
+    /**
+     * Checks that two tables have the same methods with the same totals.
+     * 
+     * @param expected
+     *            The expected table.
+     * @param actual
+     *            The actual table.
+     */
+    private static void assertSameTotals(Map<String, MethodTotals> expected, Map<String, MethodTotals> actual)
+    {
+        assertEquals(expected.size(), actual.size());
+
+        for (MethodTotals method : expected.values())
+        {
+            final MethodTotals totals = actual.get(method.getName());
+
+            assertNotNull(method.getName(), totals);
+            assertEquals(method.getThreads(), totals.getThreads());
+            assertEquals(method.getInvocations(), totals.getInvocations());
+            assertEquals(method.getTime(), totals.getTime());
+            assertEquals(method.getCpuTime(), totals.getCpuTime());
+            assertEquals(method.getAllocatedBytes(), totals.getAllocatedBytes());
+            assertEquals(method.getIOBytes(), totals.getIOBytes());
+            assertEquals(method.getIOOperations(), totals.getIOOperations());
+            assertEquals(method.getEnergy(), totals.getEnergy(), DELTA);
+        }
+    }
+
+    /**
+     * Returns the statistics of a method whose invocations take 1.5 ms, 1 ms of CPU time and allocate 1 KB each.
+     * 
+     * @param method
+     *            The name of the method, with the thread id.
+     * @param invocations
+     *            The number of invocations.
+     * @param cpuJoules
+     *            The energy of the CPU; the energy of the disk is twice as much.
+     * @return The statistics.
+     */
+    static MethodStatistics statistics(String method, int invocations, double cpuJoules)
+    {
+        final MethodStatistics statistics = new MethodStatistics(method, Long.parseLong(method.substring(method.lastIndexOf('#') + 1)));
+        final EnergyAccount account = new EnergyAccount();
+
+        for (int i = 0; i < invocations; i++)
+        {
+            statistics.addTime(1500000);
+            statistics.addCpuTime(MILLI);
+        }
+        statistics.setAllocatedBytes(invocations * 1024L);
+        account.add(EnergyDimension.CPU, cpuJoules);
+        account.add(EnergyDimension.DISK, 2 * cpuJoules);
+        statistics.setEnergy(account);
+        return statistics;
+    }
+
+    /**
+     * Returns the histograms of operations of the same size.
+     * 
+     * @param method
+     *            The name of the method, with the thread id, or <code>null</code>.
+     * @param path
+     *            The path of the file.
+     * @param type
+     *            The direction of the operations.
+     * @param operations
+     *            The number of operations.
+     * @param bytes
+     *            The bytes transferred by each operation.
+     * @return The histograms.
+     */
+    static IOHistograms histograms(String method, String path, IOInfo.IOActivityType type, int operations, long bytes)
+    {
+        final IOHistograms histograms = new IOHistograms(method, path, type, 7);
+
+        for (int i = 0; i < operations; i++)
+        {
+            histograms.record(bytes, 1000);
+        }
+        return histograms;
+    }
+}
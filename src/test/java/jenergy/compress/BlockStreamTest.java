@@ -0,0 +1,343 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.compress;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the data written by the {@link BlockOutputStream} is read back unchanged by the {@link BlockInputStream}, for both block codecs.
+ */
+public class BlockStreamTest
+{
+    /**
+     * The maximum size of the uncompressed data of a block.
+     */
+    private static final int BLOCK_SIZE = 1000;
+
+    /**
+     * The file written by the tests.
+     */
+    private File file;
+
+    /**
+     * Creates the file written by the tests.
+     * 
+     * @throws IOException
+     *             If the file cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.file = File.createTempFile("jenergy-blocks", ".z");
+    }
+
+    /**
+     * Deletes the file written by the tests.
+     */
+    @After
+    public void tearDown()
+    {
+        assertTrue(this.file.delete());
+    }
+
+    /**
+     * A gzip file reads back the data of all its blocks.
+     * 
+     * @throws IOException
+     *             If the file cannot be written or read.
+     */
+    @Test
+    public void gzipBlocksRoundTrip() throws IOException
+    {
+        this.roundTrip(Codec.GZIP);
+    }
+
+    /**
+     * An LZ file reads back the data of all its blocks.
+     * 
+     * @throws IOException
+     *             If the file cannot be written or read.
+     */
+    @Test
+    public void lzBlocksRoundTrip() throws IOException
+    {
+        this.roundTrip(Codec.LZ);
+    }
+
+    /**
+     * A flush does not seal a partial gzip block: it's written only when the stream is closed.
+     * 
+     * @throws IOException
+     *             If the file cannot be written or read.
+     */
+    @Test
+    public void gzipFlushKeepsPartialBlock() throws IOException
+    {
+        this.flushKeepsPartialBlock(Codec.GZIP);
+    }
+
+    /**
+     * A flush does not seal a partial LZ block: it's written only when the stream is closed.
+     * 
+     * @throws IOException
+     *             If the file cannot be written or read.
+     */
+    @Test
+    public void lzFlushKeepsPartialBlock() throws IOException
+    {
+        this.flushKeepsPartialBlock(Codec.LZ);
+    }
+
+    /**
+     * Appending to a gzip file keeps its complete blocks and drops an incomplete last block.
+     * 
+     * @throws IOException
+     *             If the file cannot be written or read.
+     */
+    @Test
+    public void gzipAppendDropsIncompleteBlock() throws IOException
+    {
+        this.appendDropsIncompleteBlock(Codec.GZIP);
+    }
+
+    /**
+     * Appending to an LZ file keeps its complete blocks and drops an incomplete last block.
+     * 
+     * @throws IOException
+     *             If the file cannot be written or read.
+     */
+    @Test
+    public void lzAppendDropsIncompleteBlock() throws IOException
+    {
+        this.appendDropsIncompleteBlock(Codec.LZ);
+    }
+
+    /**
+     * A file that was not written by a {@link BlockOutputStream} is read as is.
+     * 
+     * @throws IOException
+     *             If the file cannot be written or read.
+     */
+    @Test
+    public void plainFileIsNotCompressed() throws IOException
+    {
+        final byte[] data = "method;thread;cpu\n".getBytes("UTF-8");
+        final FileOutputStream output = new FileOutputStream(this.file);
+
+        try
+        {
+            output.write(data);
+        }
+        finally
+        {
+            output.close();
+        }
+
+        assertFalse(BlockInputStream.isCompressed(this.file));
+        assertArrayEquals(data, readAll(BlockInputStream.open(this.file.getPath())));
+    }
+
+    /**
+     * Writes several blocks with the given codec, then reads them back sequentially and from a position in the middle of a block.
+     * 
+     * @param codec
+     *            The codec of the blocks.
+     * @throws IOException
+     *             If the file cannot be written or read.
+     */
+    private void roundTrip(Codec codec) throws IOException
+    {
+        final byte[] data = data(5 * BLOCK_SIZE + 123);
+        final BlockOutputStream output = new BlockOutputStream(this.file, codec, 6, BLOCK_SIZE, false);
+
+        try
+        {
+            output.write(data, 0, 10);
+            output.write(data[10]);
+            output.write(data, 11, data.length - 11);
+            assertEquals(data.length, output.getPosition());
+        }
+        finally
+        {
+            output.close();
+        }
+
+        assertTrue(BlockInputStream.isCompressed(this.file));
+        assertArrayEquals(data, readAll(BlockInputStream.open(this.file.getPath())));
+
+        final BlockInputStream input = new BlockInputStream(this.file);
+        try
+        {
+            assertEquals(data.length, input.length());
+
+            input.seek(3 * BLOCK_SIZE + 7);
+            assertEquals(3 * BLOCK_SIZE + 7, input.getPosition());
+            assertEquals(data[3 * BLOCK_SIZE + 7] & 0xff, input.read());
+
+            assertEquals(BLOCK_SIZE, input.skip(BLOCK_SIZE));
+            assertEquals(data[4 * BLOCK_SIZE + 8] & 0xff, input.read());
+        }
+        finally
+        {
+            input.close();
+        }
+    }
+
+    /**
+     * Checks that a flush leaves a partial block buffered and that the close writes it.
+     * 
+     * @param codec
+     *            The codec of the blocks.
+     * @throws IOException
+     *             If the file cannot be written or read.
+     */
+    private void flushKeepsPartialBlock(Codec codec) throws IOException
+    {
+        final byte[] data = data(BLOCK_SIZE / 2);
+        final BlockOutputStream output = new BlockOutputStream(this.file, codec, 6, BLOCK_SIZE, false);
+
+        try
+        {
+            output.write(data);
+            output.flush();
+            assertEquals(0, this.file.length());
+        }
+        finally
+        {
+            output.close();
+        }
+
+        assertTrue(this.file.length() > 0);
+        assertArrayEquals(data, readAll(new BlockInputStream(this.file)));
+    }
+
+    /**
+     * Writes three blocks, truncates the last one as a crash would, then appends and checks that only the complete blocks were kept.
+     * 
+     * @param codec
+     *            The codec of the blocks.
+     * @throws IOException
+     *             If the file cannot be written or read.
+     */
+    private void appendDropsIncompleteBlock(Codec codec) throws IOException
+    {
+        final byte[] data = data(2 * BLOCK_SIZE + BLOCK_SIZE / 2);
+        BlockOutputStream output = new BlockOutputStream(this.file, codec, 6, BLOCK_SIZE, false);
+
+        try
+        {
+            output.write(data);
+        }
+        finally
+        {
+            output.close();
+        }
+
+        final RandomAccessFile truncated = new RandomAccessFile(this.file, "rw");
+        try
+        {
+            truncated.setLength(truncated.length() - 3);
+        }
+        finally
+        {
+            truncated.close();
+        }
+
+        final byte[] tail = data(100);
+        output = new BlockOutputStream(this.file, codec, 6, BLOCK_SIZE, true);
+        try
+        {
+            assertEquals(2 * BLOCK_SIZE, output.getPosition());
+            output.write(tail);
+        }
+        finally
+        {
+            output.close();
+        }
+
+        final byte[] expected = Arrays.copyOf(data, 2 * BLOCK_SIZE + tail.length);
+        System.arraycopy(tail, 0, expected, 2 * BLOCK_SIZE, tail.length);
+        assertArrayEquals(expected, readAll(new BlockInputStream(this.file)));
+    }
+
+    /**
+     * Returns compressible data: words from a small vocabulary with random lengths.
+     * 
+     * @param length
+     *            The number of bytes.
+     * @return The data.
+     */
+    private static byte[] data(int length)
+    {
+        final Random random = new Random(length);
+        final byte[] data = new byte[length];
+
+        for (int i = 0; i < length; i++)
+        {
+            data[i] = (byte) (random.nextInt(4) == 0 ? ' ' : 'a' + random.nextInt(6));
+        }
+        return data;
+    }
+
+    /**
+     * Reads a stream until its end and closes it.
+     * 
+     * @param input
+     *            The stream to read.
+     * @return The bytes read.
+     * @throws IOException
+     *             If the stream cannot be read.
+     */
+    private static byte[] readAll(InputStream input) throws IOException
+    {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+        try
+        {
+            final byte[] buffer = new byte[333];
+            int n;
+
+            while ((n = input.read(buffer)) != -1)
+            {
+                bytes.write(buffer, 0, n);
+            }
+        }
+        finally
+        {
+            input.close();
+        }
+        return bytes.toByteArray();
+    }
+}
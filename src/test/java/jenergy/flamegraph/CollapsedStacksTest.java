@@ -0,0 +1,242 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.flamegraph;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import jenergy.profile.data.CallingContext;
+import jenergy.profile.energy.EnergyAccount;
+import jenergy.profile.energy.EnergyDimension;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the lines written by {@link CollapsedStacks} for each {@link Weight}, and that they are rendered by {@link FlameGraph}.
+ */
+public class CollapsedStacksTest
+{
+    /**
+     * The root frame of the tree.
+     */
+    private static final String THREAD = "thread-1";
+
+    /**
+     * The root of the tree of the tests.
+     */
+    private CallingContext root;
+
+    /**
+     * Builds a tree where <em>run</em> calls <em>read</em> and <em>idle</em>, and <em>read</em> is also called from the root.
+     */
+    @Before
+    public void setUp()
+    {
+        this.root = new CallingContext();
+
+        final CallingContext run = this.root.child("app.Main.run#1");
+        run.add(50, 100, 1000);
+        run.child("app.Io.read").add(20, 30, 200);
+        run.child("app.Util.idle x;y").add(5, 0, 0);
+        this.root.child("app.Io.read").add(8, 10, 0);
+    }
+
+    /**
+     * Each context with a positive value has a line with its path from the root and its value without its callees. The thread id suffix is
+     * removed, and the separators of the format in the names are replaced.
+     * 
+     * @throws IOException
+     *             If the lines cannot be written.
+     */
+    @Test
+    public void linesHaveTheSelfValueOfEachContext() throws IOException
+    {
+        assertEquals(lines("thread-1;app.Main.run 70", "thread-1;app.Main.run;app.Io.read 30", "thread-1;app.Io.read 10"), write(Weight.CPU));
+        assertEquals(lines("thread-1;app.Main.run 50", "thread-1;app.Main.run;app.Io.read 20", "thread-1;app.Main.run;app.Util.idle_x_y 5",
+                "thread-1;app.Io.read 8"), write(Weight.TIME));
+        assertEquals(lines("thread-1;app.Main.run 1000", "thread-1;app.Main.run;app.Io.read 200"), write(Weight.ALLOCATION));
+    }
+
+    /**
+     * The energy of a method is apportioned to its contexts by their CPU time, or by their execution time when the method has no CPU time, in
+     * nanojoules.
+     * 
+     * @throws IOException
+     *             If the lines cannot be written.
+     */
+    @Test
+    public void energyIsApportionedByCpuTime() throws IOException
+    {
+        final Map<String, EnergyAccount> energy = new HashMap<String, EnergyAccount>();
+        energy.put("app.Main.run#1", account(7));
+        energy.put("app.Io.read", account(4));
+        energy.put("app.Util.idle x;y", account(2));
+
+        final StringWriter out = new StringWriter();
+        new CollapsedStacks(out, Weight.ENERGY).write(THREAD, this.root, energy);
+
+        assertEquals(lines("thread-1;app.Main.run 7000000000", "thread-1;app.Main.run;app.Io.read 3000000000",
+                "thread-1;app.Main.run;app.Util.idle_x_y 2000000000", "thread-1;app.Io.read 1000000000"), linesOf(out.toString()));
+    }
+
+    /**
+     * A deep tree is written without recursion.
+     * 
+     * @throws IOException
+     *             If the lines cannot be written.
+     */
+    @Test
+    public void deepTreesAreWrittenIteratively() throws IOException
+    {
+        final int depth = 10000;
+        final CallingContext deep = new CallingContext();
+        CallingContext node = deep;
+
+        for (int i = 0; i < depth; i++)
+        {
+            node = node.child("m");
+            node.add(1, 0, 0);
+        }
+
+        final long[] newlines = new long[1];
+        final Writer counter = new Writer()
+        {
+            @Override
+            public void write(char[] buffer, int offset, int length)
+            {
+                for (int i = offset; i < offset + length; i++)
+                {
+                    if (buffer[i] == '\n')
+                    {
+                        newlines[0]++;
+                    }
+                }
+            }
+
+            @Override
+            public void flush()
+            {
+                // nothing is buffered
+            }
+
+            @Override
+            public void close()
+            {
+                // nothing to release
+            }
+        };
+
+        assertEquals(depth, new CollapsedStacks(counter, Weight.TIME).write(THREAD, deep, null));
+        assertEquals(depth, newlines[0]);
+    }
+
+    /**
+     * The lines are merged by {@link FlameGraph} into one frame per context, rendered with their names escaped.
+     * 
+     * @throws IOException
+     *             If the lines cannot be written or rendered.
+     */
+    @Test
+    public void linesAreRenderedAsAFlameGraph() throws IOException
+    {
+        this.root.child("a<b>").add(1, 1, 0);
+
+        final StringWriter stacks = new StringWriter();
+        new CollapsedStacks(stacks, Weight.CPU).write(THREAD, this.root, null);
+
+        final StringWriter svg = new StringWriter();
+        FlameGraph.read(new StringReader(stacks.toString())).writeSvg(svg, "CPU", Weight.CPU);
+
+        final String text = svg.toString();
+        assertTrue(text.startsWith("<?xml"));
+        assertTrue(text.contains("data-n=\"thread-1\""));
+        assertTrue(text.contains("data-n=\"app.Main.run\""));
+        assertTrue(text.contains("data-n=\"app.Io.read\""));
+        assertTrue(text.contains("data-n=\"a&lt;b&gt;\""));
+        assertTrue(text.trim().endsWith("</svg>"));
+    }
+
+    /**
+     * Writes the tree of the tests with the given weight.
+     * 
+     * @param weight
+     *            The weight of the lines.
+     * @return The lines written.
+     * @throws IOException
+     *             If the lines cannot be written.
+     */
+    private Set<String> write(Weight weight) throws IOException
+    {
+        final StringWriter out = new StringWriter();
+        final long written = new CollapsedStacks(out, weight).write(THREAD, this.root, null);
+        final Set<String> lines = linesOf(out.toString());
+
+        assertEquals(lines.size(), written);
+        return lines;
+    }
+
+    /**
+     * Returns the lines of a text. The order of the lines of siblings is not defined, so they are compared as sets.
+     * 
+     * @param text
+     *            The text.
+     * @return The lines of the text.
+     */
+    private static Set<String> linesOf(String text)
+    {
+        return lines(text.split("\n"));
+    }
+
+    /**
+     * Returns the given lines as a set.
+     * 
+     * @param lines
+     *            The lines.
+     * @return The given lines.
+     */
+    private static Set<String> lines(String... lines)
+    {
+        return new HashSet<String>(Arrays.asList(lines));
+    }
+
+    /**
+     * Creates an account of the given energy consumed by the CPU.
+     * 
+     * @param joules
+     *            The energy in joules.
+     * @return An account of the given energy.
+     */
+    private static EnergyAccount account(double joules)
+    {
+        final EnergyAccount account = new EnergyAccount();
+        account.add(EnergyDimension.CPU, joules);
+        return account;
+    }
+}
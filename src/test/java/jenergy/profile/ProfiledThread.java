@@ -0,0 +1,130 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile;
+
+import jenergy.agent.common.Cpu;
+import jenergy.agent.common.util.time.Timer;
+import jenergy.profile.data.MethodInfo;
+
+/**
+ * Runs a body of a test on a new thread profiled by the {@link Cpu}, with one method on its stack, so the I/O done by the body is charged to that
+ * method. The thread is only used by one body, so the profilers of the other tests are not affected.
+ */
+public final class ProfiledThread extends Thread
+{
+    /**
+     * The code run by a profiled thread.
+     */
+    public interface Body
+    {
+        /**
+         * Runs the code of the test.
+         * 
+         * @param method
+         *            The method on the stack of the thread.
+         * @throws Throwable
+         *             If the test fails, e.g., an advice called by the test throws.
+         */
+        void run(MethodInfo method) throws Throwable;
+    }
+
+    /**
+     * The name of the method on the stack of the thread.
+     */
+    public static final String METHOD = "jenergy.test.Profiled.run";
+
+    /**
+     * The code run by this thread.
+     */
+    private final Body body;
+
+    /**
+     * The method on the stack of this thread. It's defined when the thread starts.
+     */
+    private volatile MethodInfo method;
+
+    /**
+     * The failure of the body, if any.
+     */
+    private volatile Throwable failure;
+
+    /**
+     * Creates a thread that runs the given body.
+     * 
+     * @param code
+     *            The code to be run. Might not be <code>null</code>.
+     */
+    private ProfiledThread(Body code)
+    {
+        super("profiled-test");
+        this.body = code;
+    }
+
+    /**
+     * Runs the given body on a new profiled thread and waits for it.
+     * 
+     * @param body
+     *            The code to be run. Might not be <code>null</code>.
+     * @return The method on the stack of the thread while the body ran.
+     * @throws Exception
+     *             If the body failed.
+     */
+    public static MethodInfo run(Body body) throws Exception
+    {
+        final ProfiledThread thread = new ProfiledThread(body);
+        thread.start();
+        thread.join();
+
+        if (thread.failure instanceof Exception)
+        {
+            throw (Exception) thread.failure;
+        }
+        else if (thread.failure instanceof Error)
+        {
+            throw (Error) thread.failure;
+        }
+        else if (thread.failure != null)
+        {
+            throw new Exception(thread.failure);
+        }
+        return thread.method;
+    }
+
+    @Override
+    public void run()
+    {
+        final ThreadProfiler profiler = Cpu.getInstance().monitor(this);
+        this.method = new MethodInfo(METHOD, Timer.createAndStart(), getId(), null);
+        profiler.addMethod(this.method);
+
+        try
+        {
+            this.body.run(this.method);
+        }
+        catch (Throwable throwable)
+        {
+            this.failure = throwable;
+        }
+        finally
+        {
+            profiler.popStack();
+            profiler.stop();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks the bucket math, the statistics and the percentiles of the {@link Histogram}, and that adding histograms is the same as recording all
+ * their values in one.
+ */
+public class HistogramTest
+{
+    /**
+     * The number of linear buckets of each power of two, i.e., the inverse of the relative error of a bucket.
+     */
+    private static final int SUB_BUCKETS = 8;
+
+    /**
+     * The values below {@link #SUB_BUCKETS} have their own bucket, so they are recorded exactly.
+     */
+    @Test
+    public void smallValuesHaveTheirOwnBucket()
+    {
+        for (int value = 0; value < SUB_BUCKETS; value++)
+        {
+            assertEquals(value, Histogram.bucketOf(value));
+            assertEquals(value, Histogram.lowerBoundOf(value));
+        }
+    }
+
+    /**
+     * Every value falls in the bucket whose bounds contain it, the buckets follow the order of the values, and a bucket is at most
+     * 1/{@link #SUB_BUCKETS} of its lower bound wide.
+     */
+    @Test
+    public void bucketsContainTheirValues()
+    {
+        int previous = 0;
+
+        for (long value = 0; value < (1L << 47); value = value < 100000 ? value + 1 : value + value / 7)
+        {
+            final int bucket = Histogram.bucketOf(value);
+            final long lower = Histogram.lowerBoundOf(bucket);
+            final long upper = Histogram.lowerBoundOf(bucket + 1);
+
+            assertTrue(value + " below bucket " + bucket, lower <= value);
+            assertTrue(value + " above bucket " + bucket, value < upper);
+            assertTrue(value + " in a wide bucket", value < SUB_BUCKETS || (upper - lower) * SUB_BUCKETS <= lower);
+            assertTrue(value + " before bucket " + previous, bucket >= previous);
+            previous = bucket;
+        }
+    }
+
+    /**
+     * The values beyond the greatest power of two with its own buckets are recorded in the last bucket, whose percentile is its middle; the
+     * maximum is still exact.
+     */
+    @Test
+    public void hugeValuesShareTheLastBucket()
+    {
+        final int last = Histogram.bucketOf(Long.MAX_VALUE);
+
+        assertEquals(last, Histogram.bucketOf(1L << 48));
+        assertEquals(last, Histogram.bucketOf((1L << 48) - 1));
+        assertTrue(Histogram.bucketOf(1L << 47) < last);
+
+        final Histogram histogram = new Histogram();
+        histogram.record(Long.MAX_VALUE / 2);
+
+        assertEquals(Long.MAX_VALUE / 2, histogram.max());
+        assertTrue(histogram.percentile(50) >= Histogram.lowerBoundOf(last));
+        assertTrue(histogram.percentile(50) < Histogram.lowerBoundOf(last + 1));
+    }
+
+    /**
+     * The count, the sum, the maximum and the mean are exact, and the negative values are ignored.
+     */
+    @Test
+    public void statisticsAreExact()
+    {
+        final Histogram histogram = new Histogram();
+        assertEquals(0, histogram.percentile(50));
+        assertEquals(0, histogram.mean(), 0);
+
+        histogram.record(3);
+        histogram.record(1000);
+        histogram.record(17);
+        histogram.record(-1);
+
+        assertEquals(3, histogram.count());
+        assertEquals(1020, histogram.sum());
+        assertEquals(1000, histogram.max());
+        assertEquals(340, histogram.mean(), 0);
+    }
+
+    /**
+     * A percentile is the middle of the bucket that has the value of its rank, limited to the maximum, so it is within the relative error of a
+     * bucket of the exact value; the percentiles out of range are clamped.
+     */
+    @Test
+    public void percentilesAreWithinTheBucketError()
+    {
+        final Histogram histogram = new Histogram();
+
+        for (int value = 1; value <= 1000; value++)
+        {
+            histogram.record(value);
+        }
+
+        for (double percentile : new double[] {1, 25, 50, 90, 99, 99.9, 100 })
+        {
+            final double exact = Math.ceil(percentile * 10);
+            final long estimate = histogram.percentile(percentile);
+
+            assertTrue(percentile + ": " + estimate, Math.abs(estimate - exact) <= exact / SUB_BUCKETS);
+        }
+
+        assertEquals(1, histogram.percentile(0));
+        assertEquals(histogram.percentile(100), histogram.percentile(200));
+
+        // the middle of the bucket [960, 1024) is beyond the only value
+        final Histogram single = new Histogram();
+        single.record(961);
+        assertEquals(961, single.percentile(100));
+    }
+
+    /**
+     * Adding histograms gives the same statistics and percentiles as recording all their values in one histogram.
+     */
+    @Test
+    public void addingIsRecordingTheUnion()
+    {
+        final Histogram first = new Histogram();
+        final Histogram second = new Histogram();
+        final Histogram union = new Histogram();
+
+        for (int value = 0; value < 500; value++)
+        {
+            first.record(value * 3);
+            second.record(value * value);
+            union.record(value * 3);
+            union.record(value * value);
+        }
+
+        first.add(second);
+
+        assertEquals(union.count(), first.count());
+        assertEquals(union.sum(), first.sum());
+        assertEquals(union.max(), first.max());
+
+        for (double percentile = 0; percentile <= 100; percentile += 12.5)
+        {
+            assertEquals(union.percentile(percentile), first.percentile(percentile));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.data;
+
+import static org.junit.Assert.assertEquals;
+
+import jenergy.profile.data.IOInfo.IOActivityType;
+
+import org.junit.Test;
+
+/**
+ * Checks that the {@link IOHistograms} record the size of every operation and the latency of the timed ones, and are combined by direction,
+ * method and path.
+ */
+public class IOHistogramsTest
+{
+    /**
+     * The operations whose latency was not measured only add to the size histogram.
+     */
+    @Test
+    public void untimedOperationsOnlyRecordTheirSize()
+    {
+        final IOHistograms histograms = new IOHistograms("m", "/tmp/f", IOActivityType.READ, 1);
+        histograms.record(100, 2000);
+        histograms.record(50, -1);
+
+        assertEquals(2, histograms.getSize().count());
+        assertEquals(150, histograms.getSize().sum());
+        assertEquals(1, histograms.getLatency().count());
+        assertEquals(2000, histograms.getLatency().max());
+    }
+
+    /**
+     * The histograms of many threads are added, and their key only depends on the direction, the method and the path.
+     */
+    @Test
+    public void histogramsOfManyThreadsAreAdded()
+    {
+        final IOHistograms first = new IOHistograms("m", "/tmp/f", IOActivityType.WRITE, 1);
+        final IOHistograms second = new IOHistograms("m", "/tmp/f", IOActivityType.WRITE, 2);
+        first.record(10, 100);
+        second.record(30, 300);
+
+        first.add(second);
+
+        assertEquals(second.key(), first.key());
+        assertEquals(IOHistograms.keyOf("m", "/tmp/f", IOActivityType.WRITE), first.key());
+        assertEquals(40, first.getSize().sum());
+        assertEquals(2, first.getLatency().count());
+        assertEquals(300, first.getLatency().max());
+    }
+}
@@ -0,0 +1,253 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.profile.energy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import jenergy.agent.common.Cpu;
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.data.IOInfo.IOActivityType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks how {@link PhysicalDiskIO} apportions the physical I/O of a fake <em>/proc/self/io</em> to the logical I/O of the activities. The
+ * activities have no method, so they are pooled with the I/O of the threads without a measured task.
+ */
+public class PhysicalDiskIOTest
+{
+    /**
+     * The tolerance of the compared shares and energies.
+     */
+    private static final double DELTA = 1e-9;
+
+    /**
+     * The profile used to charge the physical I/O without logical I/O.
+     */
+    private final DiskProfile profile = new DiskProfile("test", 2, 1, 1e-6, 2e-6, 0);
+
+    /**
+     * The root of the fake proc file system.
+     */
+    private File root;
+
+    /**
+     * The value of the system property <em>jenergy.proc.root</em> before the test.
+     */
+    private String previousRoot;
+
+    /**
+     * Creates a fake proc file system whose process has read 1000 bytes and written none.
+     * 
+     * @throws IOException
+     *             If the fake file system cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.root = File.createTempFile("jenergy-proc", "");
+        assertTrue(this.root.delete());
+        assertTrue(new File(this.root, "self").mkdirs());
+        this.writeProcessIO(1000, 0);
+
+        this.previousRoot = System.getProperty("jenergy.proc.root");
+        System.setProperty("jenergy.proc.root", this.root.getPath());
+    }
+
+    /**
+     * Restores the root of the proc file system and deletes the fake one.
+     */
+    @After
+    public void tearDown()
+    {
+        if (this.previousRoot != null)
+        {
+            System.setProperty("jenergy.proc.root", this.previousRoot);
+        }
+        else
+        {
+            System.clearProperty("jenergy.proc.root");
+        }
+
+        assertTrue(new File(this.root, "self/io").delete());
+        assertTrue(new File(this.root, "self").delete());
+        assertTrue(this.root.delete());
+    }
+
+    /**
+     * The activities are charged the fraction of their logical bytes that reached the device in the interval.
+     * 
+     * @throws IOException
+     *             If the fake file cannot be written.
+     */
+    @Test
+    public void physicalBytesAreApportionedByLogicalShare() throws IOException
+    {
+        final PhysicalDiskIO physical = this.open();
+        final IOInfo first = new IOInfo(IOActivityType.READ);
+        final IOInfo second = new IOInfo(IOActivityType.READ);
+        final IOInfo written = new IOInfo(IOActivityType.WRITE);
+
+        physical.collect(first, 3000);
+        physical.collect(second, 1000);
+        physical.collect(written, 500);
+        this.writeProcessIO(2000, 500);
+        physical.apportion();
+
+        // 1000 of the 4000 bytes read and all the bytes written reached the device
+        assertEquals(0.25, physical.share(first), DELTA);
+        assertEquals(0.25, physical.share(second), DELTA);
+        assertEquals(1, physical.share(written), DELTA);
+    }
+
+    /**
+     * The I/O served by the page cache is not charged.
+     * 
+     * @throws IOException
+     *             If the fake file cannot be written.
+     */
+    @Test
+    public void cachedBytesAreNotCharged() throws IOException
+    {
+        final PhysicalDiskIO physical = this.open();
+        final IOInfo info = new IOInfo(IOActivityType.READ);
+
+        physical.collect(info, 4096);
+        physical.apportion();
+        assertEquals(0, physical.share(info), DELTA);
+    }
+
+    /**
+     * The physical I/O of an interval without logical I/O is charged as unattributed energy.
+     * 
+     * @throws IOException
+     *             If the fake file cannot be written.
+     */
+    @Test
+    public void physicalBytesWithoutLogicalBytesAreUnattributed() throws IOException
+    {
+        final PhysicalDiskIO physical = this.open();
+        final EnergyAccount unattributed = Cpu.getInstance().getEnergyModels().getUnattributedEnergy();
+        final double before = unattributed.get(EnergyDimension.DISK);
+
+        this.writeProcessIO(1500, 100);
+        physical.apportion();
+
+        final double expected = this.profile.energy(IOActivityType.READ, 500, 0) + this.profile.energy(IOActivityType.WRITE, 100, 0);
+        assertEquals(expected, unattributed.get(EnergyDimension.DISK) - before, DELTA);
+    }
+
+    /**
+     * When the counters of the process cannot be read, the logical I/O is charged in full.
+     * 
+     * @throws IOException
+     *             If the fake file cannot be written.
+     */
+    @Test
+    public void logicalBytesAreChargedWhenTheCountersAreUnavailable() throws IOException
+    {
+        final PhysicalDiskIO physical = this.open();
+        final IOInfo info = new IOInfo(IOActivityType.WRITE);
+
+        physical.collect(info, 100);
+        write(new File(this.root, "self/io"), "syscr: 1\n");
+        physical.apportion();
+        assertEquals(1, physical.share(info), DELTA);
+    }
+
+    /**
+     * The physical accounting is disabled by the system property <em>jenergy.disk.accounting</em>.
+     */
+    @Test
+    public void logicalAccountingDisablesThePhysicalOne()
+    {
+        System.setProperty("jenergy.disk.accounting", "logical");
+
+        try
+        {
+            assertNull(PhysicalDiskIO.openIfEnabled(Cpu.getInstance(), this.profile));
+        }
+        finally
+        {
+            System.clearProperty("jenergy.disk.accounting");
+        }
+    }
+
+    /**
+     * Opens the physical accounting of the fake proc file system.
+     * 
+     * @return The physical accounting.
+     */
+    private PhysicalDiskIO open()
+    {
+        final PhysicalDiskIO physical = PhysicalDiskIO.openIfEnabled(Cpu.getInstance(), this.profile);
+        assertNotNull(physical);
+        return physical;
+    }
+
+    /**
+     * Writes the <em>io</em> file of the process.
+     * 
+     * @param readBytes
+     *            The bytes read from the storage.
+     * @param writeBytes
+     *            The bytes written to the storage.
+     * @throws IOException
+     *             If the file cannot be written.
+     */
+    private void writeProcessIO(long readBytes, long writeBytes) throws IOException
+    {
+        write(new File(this.root, "self/io"), String.format("rchar: %d%nwchar: %d%nsyscr: 1%nsyscw: 1%nread_bytes: %d%nwrite_bytes: %d%n"
+                + "cancelled_write_bytes: 0%n", readBytes, writeBytes, readBytes, writeBytes));
+    }
+
+    /**
+     * Replaces the content of a file, keeping the file itself so that it stays valid for the open readers.
+     * 
+     * @param file
+     *            The file to be written.
+     * @param content
+     *            The new content.
+     * @throws IOException
+     *             If the file cannot be written.
+     */
+    private static void write(File file, String content) throws IOException
+    {
+        final FileOutputStream output = new FileOutputStream(file);
+
+        try
+        {
+            output.write(content.getBytes(Charset.forName("US-ASCII")));
+        }
+        finally
+        {
+            output.close();
+        }
+    }
+}
@@ -0,0 +1,323 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+import jenergy.profile.data.IOHistograms;
+import jenergy.profile.data.IOInfo;
+import jenergy.profile.energy.EnergyDimension;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks the timeline written by the {@link ChromeTrace} from the event logs and the interval trace of a run.
+ */
+public class ChromeTraceTest
+{
+    /**
+     * The process id in the names of the event logs.
+     */
+    private static final String PID = ManagementFactory.getRuntimeMXBean().getName().split("@")[0];
+
+    /**
+     * The directory of the event logs and the trace written by the tests.
+     */
+    private File directory;
+
+    /**
+     * The interval trace written by the tests.
+     */
+    private File trace;
+
+    /**
+     * Writes the event log of the thread 7: a run of 3 ms with a step of 1 ms and a step of 0.4 &micro;s, and a log of the thread 8 without
+     * invocations.
+     * 
+     * @throws IOException
+     *             If the logs cannot be written.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.directory = File.createTempFile("jenergy-chrome", "");
+        assertTrue(this.directory.delete());
+        assertTrue(this.directory.mkdir());
+        this.trace = new File(this.directory, "trace.bin");
+
+        final long end = System.nanoTime();
+        final EventLog log = new EventLog(this.directory, 7, 1 << 16, Long.MAX_VALUE);
+
+        log.append("app.Main.step#7", end - 2000000, 1000000, 1500000, 0, 1);
+        log.append("app.Main.step#7", end - 1000000, 400, 500000, 16, 1);
+        log.append("app.Main.run#7", end, 3000000, 2000000, 4096, 0);
+        log.close();
+
+        new EventLog(this.directory, 8, 1 << 16, Long.MAX_VALUE).close();
+    }
+
+    /**
+     * Deletes the logs, the trace and the timelines written by the tests.
+     */
+    @After
+    public void tearDown()
+    {
+        final File[] files = this.directory.listFiles();
+
+        for (int i = 0; files != null && i < files.length; i++)
+        {
+            assertTrue(files[i].delete());
+        }
+        assertTrue(this.directory.delete());
+    }
+
+    /**
+     * Each invocation is a complete event on the track of its thread, named after its method without the thread suffix, with its start and
+     * duration in microseconds, its CPU time, allocated bytes and depth. The thread gets its name once; a log without invocations writes nothing.
+     * 
+     * @throws IOException
+     *             If the logs cannot be read.
+     */
+    @Test
+    public void invocationsAreCompleteEvents() throws IOException
+    {
+        final String json = this.timeline(null, 0);
+        final List<String> events = events(json);
+
+        assertTrue(json, json.startsWith("{\n\"displayTimeUnit\":\"ms\",\n\"traceEvents\":[\n"));
+        assertTrue(json, json.endsWith("\n]\n}"));
+        assertEquals(json, 4, events.size());
+
+        assertEquals("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":" + PID + ",\"tid\":7,\"args\":{\"name\":\"thread-7\"}}", events.get(0));
+        assertTrue(events.get(1), events.get(1).startsWith("{\"name\":\"app.Main.step\",\"cat\":\"method\",\"ph\":\"X\",\"ts\":"));
+        assertTrue(events.get(1), events.get(1).endsWith(
+                ",\"dur\":1000.0,\"pid\":" + PID + ",\"tid\":7,\"args\":{\"cpu.time\":1500000,\"allocated\":0,\"depth\":1}}"));
+        assertTrue(events.get(2), events.get(2).endsWith(
+                ",\"dur\":0.4,\"pid\":" + PID + ",\"tid\":7,\"args\":{\"cpu.time\":500000,\"allocated\":16,\"depth\":1}}"));
+        assertTrue(events.get(3), events.get(3).startsWith("{\"name\":\"app.Main.run\",\"cat\":\"method\",\"ph\":\"X\",\"ts\":"));
+        assertTrue(events.get(3), events.get(3).endsWith(
+                ",\"dur\":3000.0,\"pid\":" + PID + ",\"tid\":7,\"args\":{\"cpu.time\":2000000,\"allocated\":4096,\"depth\":0}}"));
+
+        // the first step started with the run and the second one 2 ms later
+        final long run = start(events.get(3));
+        assertTrue(json, Math.abs(start(events.get(1)) - run) <= 1);
+        assertTrue(json, Math.abs(start(events.get(2)) - run - 2000) <= 1);
+        assertFalse(json, json.contains("\"energy\""));
+    }
+
+    /**
+     * The invocations shorter than the minimum duration are left out.
+     * 
+     * @throws IOException
+     *             If the logs cannot be read.
+     */
+    @Test
+    public void shortInvocationsAreLeftOut() throws IOException
+    {
+        final List<String> events = events(this.timeline(null, 1000));
+
+        assertEquals(3, events.size());
+        assertTrue(events.get(1), events.get(1).contains("\"dur\":1000.0"));
+        assertTrue(events.get(2), events.get(2).contains("\"dur\":3000.0"));
+    }
+
+    /**
+     * With the interval trace, the energy of each method is apportioned to its invocations by CPU time, including the left out ones, and the
+     * power of the threads and their cumulative I/O become counters.
+     * 
+     * @throws IOException
+     *             If the logs or the trace cannot be read or written.
+     */
+    @Test
+    public void energyIsApportionedByCpuTime() throws IOException
+    {
+        final TraceWriter writer = new TraceWriter(this.trace.getPath());
+
+        writer.sample(1000, 7, "*", energy(1));
+        writer.sample(1000, 7, "app.Main.step#7", energy(1));
+        writer.sample(2000, 7, "*", energy(2));
+        writer.sample(2000, 7, "app.Main.step#7", energy(2));
+        writer.sample(2000, 7, "app.Main.run#7", energy(1));
+        writer.sample(2000, -1, "<jvm>", energy(0.5));
+        writer.close();
+
+        final List<String> events = events(this.timeline(this.trace.getPath(), 1000));
+
+        assertEquals(5, events.size());
+        assertTrue(events.get(1), events.get(1).endsWith(",\"depth\":1,\"energy\":2.25}}"));
+        assertTrue(events.get(2), events.get(2).endsWith(",\"depth\":0,\"energy\":1.0}}"));
+
+        // the first report has no interval, so the power starts with the second one
+        assertEquals("{\"name\":\"power thread-7\",\"ph\":\"C\",\"ts\":2000000,\"pid\":" + PID
+                + ",\"tid\":7,\"args\":{\"cpu\":2.0,\"memory\":0.0,\"disk\":0.0,\"network\":0.0}}", events.get(3));
+        assertEquals("{\"name\":\"power <jvm>\",\"ph\":\"C\",\"ts\":2000000,\"pid\":" + PID
+                + ",\"tid\":0,\"args\":{\"cpu\":0.5,\"memory\":0.0,\"disk\":0.0,\"network\":0.0}}", events.get(4));
+    }
+
+    /**
+     * The I/O records are cumulative per method and file, so the counters of a thread add up the bytes read and written since the previous report
+     * of each of them.
+     * 
+     * @throws IOException
+     *             If the logs or the trace cannot be read or written.
+     */
+    @Test
+    public void ioCountersAreCumulativeByThread() throws IOException
+    {
+        final TraceWriter writer = new TraceWriter(this.trace.getPath());
+        final IOHistograms read = new IOHistograms("app.Main.step#7", "/data/in", IOInfo.IOActivityType.READ, 7);
+        final IOHistograms otherRead = new IOHistograms("app.Main.run#7", "/data/other", IOInfo.IOActivityType.READ, 7);
+        final IOHistograms write = new IOHistograms("app.Main.run#7", "/data/out", IOInfo.IOActivityType.WRITE, 7);
+
+        read.record(100, 10);
+        writer.io(1000, read);
+        read.record(150, 10);
+        writer.io(2000, read);
+        otherRead.record(30, 10);
+        writer.io(2000, otherRead);
+        write.record(40, 10);
+        writer.io(2000, write);
+        writer.close();
+
+        final List<String> events = events(this.timeline(this.trace.getPath(), 0));
+        final String counter = "{\"name\":\"I/O thread-7\",\"ph\":\"C\",\"ts\":%d,\"pid\":" + PID
+                + ",\"tid\":7,\"args\":{\"read\":%d,\"written\":%d}}";
+
+        assertEquals(8, events.size());
+        assertEquals(String.format(counter, 1000000, 100, 0), events.get(4));
+        assertEquals(String.format(counter, 2000000, 250, 0), events.get(5));
+        assertEquals(String.format(counter, 2000000, 280, 0), events.get(6));
+        assertEquals(String.format(counter, 2000000, 280, 40), events.get(7));
+    }
+
+    /**
+     * The command writes the timeline to the given file, with the minimum duration in microseconds: 1.5 &micro;s leaves out the short step.
+     * 
+     * @throws IOException
+     *             If the logs cannot be read or the timeline cannot be written.
+     */
+    @Test
+    public void commandWritesTheOutputFile() throws IOException
+    {
+        final File output = new File(this.directory, "timeline.json");
+
+        ChromeTrace.main(new String[] { this.directory.getPath(), output.getPath(), "--min-duration", "1.5" });
+
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(output), Charset.forName("UTF-8")));
+        final StringBuilder json = new StringBuilder();
+
+        try
+        {
+            for (String line = reader.readLine(); line != null; line = reader.readLine())
+            {
+                json.append(line).append('\n');
+            }
+        }
+        finally
+        {
+            reader.close();
+        }
+
+        final List<String> events = events(json.toString().trim());
+        assertEquals(3, events.size());
+        assertTrue(events.get(1), events.get(1).contains("\"dur\":1000.0"));
+        assertTrue(events.get(2), events.get(2).contains("\"name\":\"app.Main.run\""));
+    }
+
+    /**
+     * Writes the timeline of the logs of the test.
+     * 
+     * @param path
+     *            The path of the interval trace or <code>null</code>.
+     * @param minDuration
+     *            The minimum duration in nanoseconds of the written invocations.
+     * @return The timeline.
+     * @throws IOException
+     *             If the logs or the trace cannot be read.
+     */
+    private String timeline(String path, long minDuration) throws IOException
+    {
+        final StringWriter out = new StringWriter();
+        new ChromeTrace(out, minDuration).write(this.directory, path);
+        return out.toString();
+    }
+
+    /**
+     * Returns the events of a timeline, one per line.
+     * 
+     * @param json
+     *            The timeline.
+     * @return The events, without their separators.
+     */
+    private static List<String> events(String json)
+    {
+        final List<String> events = new ArrayList<String>();
+
+        for (String line : json.split("\n"))
+        {
+            if (line.startsWith("{\"name\""))
+            {
+                events.add(line.endsWith(",") ? line.substring(0, line.length() - 1) : line);
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Returns the start of a complete event.
+     * 
+     * @param event
+     *            The event.
+     * @return The value of its <em>ts</em> member in microseconds.
+     */
+    private static long start(String event)
+    {
+        final int ts = event.indexOf("\"ts\":") + "\"ts\":".length();
+        return Long.parseLong(event.substring(ts, event.indexOf(',', ts)));
+    }
+
+    /**
+     * Returns the energy of a sample consumed by the CPU only.
+     * 
+     * @param joules
+     *            The energy of the CPU in joules.
+     * @return The energy indexed by the {@link EnergyDimension} ordinal.
+     */
+    private static double[] energy(double joules)
+    {
+        final double[] energy = new double[EnergyDimension.values().length];
+        energy[EnergyDimension.CPU.ordinal()] = joules;
+        return energy;
+    }
+}
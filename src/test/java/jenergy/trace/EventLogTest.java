@@ -0,0 +1,193 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the invocations appended to an {@link EventLog} are read back unchanged by the {@link EventLogReader}, across segments.
+ */
+public class EventLogTest
+{
+    /**
+     * The size of a segment that holds three records.
+     */
+    private static final int SEGMENT_SIZE = EventLog.HEADER_SIZE + 3 * EventLog.RECORD_SIZE;
+
+    /**
+     * The directory of the logs written by the tests.
+     */
+    private File directory;
+
+    /**
+     * Creates the directory of the logs written by the tests.
+     * 
+     * @throws IOException
+     *             If the directory cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.directory = File.createTempFile("jenergy-events", "");
+        assertTrue(this.directory.delete());
+        assertTrue(this.directory.mkdir());
+    }
+
+    /**
+     * Deletes the logs written by the tests.
+     */
+    @After
+    public void tearDown()
+    {
+        final File[] files = this.directory.listFiles();
+
+        for (int i = 0; files != null && i < files.length; i++)
+        {
+            assertTrue(files[i].delete());
+        }
+        assertTrue(this.directory.delete());
+    }
+
+    /**
+     * The invocations are read back in order with their method, values and thread, even when they span several segments.
+     * 
+     * @throws IOException
+     *             If the log cannot be written or read.
+     */
+    @Test
+    public void invocationsRoundTripAcrossSegments() throws IOException
+    {
+        final EventLog log = new EventLog(this.directory, 7, SEGMENT_SIZE, Long.MAX_VALUE);
+
+        for (int i = 0; i < 8; i++)
+        {
+            log.append("pkg.Type.method" + (i % 3), System.nanoTime(), 100 + i, 50 + i, 1024 * i, i % 4);
+        }
+        log.close();
+
+        final List<String> logs = EventLogReader.logs(this.directory);
+        assertEquals(1, logs.size());
+        assertTrue(logs.get(0).endsWith("-7"));
+        assertEquals(4, this.directory.list().length);
+
+        final EventLogReader reader = new EventLogReader(this.directory, logs.get(0));
+
+        for (int i = 0; i < 8; i++)
+        {
+            assertTrue(reader.next());
+            assertEquals(7, reader.getThreadId());
+            assertEquals("pkg.Type.method" + (i % 3), reader.getMethod());
+            assertEquals(100 + i, reader.getDuration());
+            assertEquals(50 + i, reader.getCpuTime());
+            assertEquals(1024 * i, reader.getAllocatedBytes());
+            assertEquals(i % 4, reader.getDepth());
+            assertTrue(Math.abs(reader.getTimestamp() - System.currentTimeMillis()) < 60000);
+        }
+        assertFalse(reader.next());
+    }
+
+    /**
+     * The oldest segments beyond the retention size are deleted, so only the newest invocations are read back.
+     * 
+     * @throws IOException
+     *             If the log cannot be written or read.
+     */
+    @Test
+    public void oldestSegmentsBeyondRetentionAreDeleted() throws IOException
+    {
+        final EventLog log = new EventLog(this.directory, 7, SEGMENT_SIZE, 2 * SEGMENT_SIZE);
+
+        for (int i = 0; i < 8; i++)
+        {
+            log.append("pkg.Type.method" + i, System.nanoTime(), i, i, i, 0);
+        }
+        log.close();
+
+        final EventLogReader reader = new EventLogReader(this.directory, EventLogReader.logs(this.directory).get(0));
+
+        for (int i = 3; i < 8; i++)
+        {
+            assertTrue(reader.next());
+            assertEquals("pkg.Type.method" + i, reader.getMethod());
+            assertEquals(i, reader.getDuration());
+        }
+        assertFalse(reader.next());
+    }
+
+    /**
+     * A closed log ignores the appended invocations and can be closed again.
+     * 
+     * @throws IOException
+     *             If the log cannot be written or read.
+     */
+    @Test
+    public void closedLogIgnoresAppends() throws IOException
+    {
+        final EventLog log = new EventLog(this.directory, 7, SEGMENT_SIZE, Long.MAX_VALUE);
+
+        log.append("pkg.Type.method", System.nanoTime(), 1, 1, 1, 0);
+        log.close();
+        log.append("pkg.Type.late", System.nanoTime(), 2, 2, 2, 0);
+        log.close();
+
+        final EventLogReader reader = new EventLogReader(this.directory, EventLogReader.logs(this.directory).get(0));
+
+        assertTrue(reader.next());
+        assertEquals("pkg.Type.method", reader.getMethod());
+        assertFalse(reader.next());
+    }
+
+    /**
+     * The symbols of a segment that was not rolled nor closed are not written yet: the reader shows the ids of the methods.
+     * 
+     * @throws IOException
+     *             If the log cannot be written or read.
+     */
+    @Test
+    public void pendingSymbolsAreShownAsIds() throws IOException
+    {
+        final EventLog log = new EventLog(this.directory, 7, SEGMENT_SIZE, Long.MAX_VALUE);
+
+        try
+        {
+            log.append("pkg.Type.method", System.nanoTime(), 1, 1, 1, 0);
+
+            final EventLogReader reader = new EventLogReader(this.directory, EventLogReader.logs(this.directory).get(0));
+
+            assertTrue(reader.next());
+            assertEquals("#1", reader.getMethod());
+            assertEquals(1, reader.getDuration());
+            assertFalse(reader.next());
+        }
+        finally
+        {
+            log.close();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+/**
+ * Checks the separators, the line breaks and the escaping of the {@link JsonWriter}.
+ */
+public class JsonWriterTest
+{
+    /**
+     * The members and the elements are separated by commas, with nothing after a name nor before the first element of a container.
+     * 
+     * @throws IOException
+     *             If the output cannot be written.
+     */
+    @Test
+    public void separatorsAreWrittenBetweenElements() throws IOException
+    {
+        final StringWriter out = new StringWriter();
+        final JsonWriter json = new JsonWriter(out, 0);
+
+        json.beginObject().name("a").value(1).name("b").beginArray().value(1.5).value("x").beginObject().endObject().beginArray().endArray()
+                .endArray().name("c").value((String) null).endObject();
+
+        assertEquals("{\"a\":1,\"b\":[1.5,\"x\",{},[]],\"c\":null}", out.toString());
+    }
+
+    /**
+     * The elements of the containers up to the line break depth start on their own lines; the deeper ones stay on the line of their container.
+     * 
+     * @throws IOException
+     *             If the output cannot be written.
+     */
+    @Test
+    public void elementsUpToTheBreakDepthStartOnTheirOwnLines() throws IOException
+    {
+        final StringWriter out = new StringWriter();
+        final JsonWriter json = new JsonWriter(out, 2);
+
+        json.beginObject().name("events").beginArray();
+        json.beginObject().name("ts").value(1).name("args").beginObject().name("n").value(2).endObject().endObject();
+        json.beginObject().name("ts").value(3).endObject();
+        json.endArray().name("empty").beginArray().endArray().endObject();
+
+        assertEquals("{\n\"events\":[\n{\"ts\":1,\"args\":{\"n\":2}},\n{\"ts\":3}\n],\n\"empty\":[]\n}", out.toString());
+    }
+
+    /**
+     * The quotes, the backslashes and the control characters of the names and the strings are escaped; the other characters are written as is.
+     * 
+     * @throws IOException
+     *             If the output cannot be written.
+     */
+    @Test
+    public void stringsAreEscaped() throws IOException
+    {
+        final StringWriter out = new StringWriter();
+        final JsonWriter json = new JsonWriter(out, 0);
+
+        json.beginObject().name("a\"b").value("q\" s\\ n\n r\r t\t c\u0001 \u00e9").endObject();
+
+        assertEquals("{\"a\\\"b\":\"q\\\" s\\\\ n\\n r\\r t\\t c\\u0001 \u00e9\"}", out.toString());
+    }
+
+    /**
+     * The numbers that are not finite are written as <em>null</em>, the others in their shortest form.
+     * 
+     * @throws IOException
+     *             If the output cannot be written.
+     */
+    @Test
+    public void nonFiniteNumbersAreNull() throws IOException
+    {
+        final StringWriter out = new StringWriter();
+        final JsonWriter json = new JsonWriter(out, 0);
+
+        json.beginArray().value(Double.NaN).value(Double.POSITIVE_INFINITY).value(Double.NEGATIVE_INFINITY).value(0.25).value(Long.MIN_VALUE)
+                .endArray();
+
+        assertEquals("[null,null,null,0.25," + Long.MIN_VALUE + "]", out.toString());
+    }
+
+    /**
+     * The containers can be nested deeper than the initial capacity of the writer.
+     * 
+     * @throws IOException
+     *             If the output cannot be written.
+     */
+    @Test
+    public void containersNestBeyondTheInitialCapacity() throws IOException
+    {
+        final StringWriter out = new StringWriter();
+        final JsonWriter json = new JsonWriter(out, 0);
+        final StringBuilder expected = new StringBuilder();
+
+        for (int i = 0; i < 40; i++)
+        {
+            json.beginArray().value(i);
+            expected.append('[').append(i).append(',');
+        }
+        expected.setLength(expected.length() - 1);
+
+        for (int i = 0; i < 40; i++)
+        {
+            json.endArray();
+            expected.append(']');
+        }
+
+        assertEquals(expected.toString(), out.toString());
+    }
+
+    /**
+     * Closing a container that was not opened is an error of the caller.
+     * 
+     * @throws IOException
+     *             If the output cannot be written.
+     */
+    @Test
+    public void closingWithoutContainerFails() throws IOException
+    {
+        final JsonWriter json = new JsonWriter(new StringWriter(), 0);
+
+        json.beginObject().endObject();
+
+        try
+        {
+            json.endArray();
+            fail("There is no container to be closed");
+        }
+        catch (IllegalStateException expected)
+        {
+            assertEquals("There is no container to be closed!", expected.getMessage());
+        }
+    }
+}
@@ -0,0 +1,247 @@
+/**
+ * Copyright 2013 Contributors
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ *
+ *    Contributors:
+ *          Alessandro Ferreira Leite - the initial implementation.
+ */
+package jenergy.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import jenergy.compress.Codec;
+import jenergy.compress.Compression;
+import jenergy.profile.data.MethodStatistics;
+import jenergy.profile.energy.EnergyAccount;
+import jenergy.profile.energy.EnergyDimension;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the records written by the {@link TraceWriter} are read back unchanged by the {@link TraceReader}, for every {@link Codec}.
+ */
+public class TraceRoundTripTest
+{
+    /**
+     * The largest rounding error of an energy stored in nanojoules.
+     */
+    private static final double NANOJOULE = 1e-9;
+
+    /**
+     * The trace written by the tests.
+     */
+    private File file;
+
+    /**
+     * Reserves the name of the trace written by the tests.
+     * 
+     * @throws IOException
+     *             If the file cannot be created.
+     */
+    @Before
+    public void setUp() throws IOException
+    {
+        this.file = File.createTempFile("jenergy-trace", ".bin");
+        assertTrue(this.file.delete());
+    }
+
+    /**
+     * Deletes the trace written by the tests.
+     */
+    @After
+    public void tearDown()
+    {
+        this.file.delete();
+    }
+
+    /**
+     * An uncompressed trace reads back its samples and invocations, including the sessions appended to an existing file.
+     * 
+     * @throws IOException
+     *             If the trace cannot be written or read.
+     */
+    @Test
+    public void uncompressedTraceRoundTrips() throws IOException
+    {
+        this.roundTrip(new Compression(Codec.NONE, 0, 1));
+    }
+
+    /**
+     * A gzip trace reads back its samples and invocations, including the sessions appended to an existing file.
+     * 
+     * @throws IOException
+     *             If the trace cannot be written or read.
+     */
+    @Test
+    public void gzipTraceRoundTrips() throws IOException
+    {
+        this.roundTrip(new Compression(Codec.GZIP, 6, 256));
+    }
+
+    /**
+     * An LZ trace reads back its samples and invocations, including the sessions appended to an existing file.
+     * 
+     * @throws IOException
+     *             If the trace cannot be written or read.
+     */
+    @Test
+    public void lzTraceRoundTrips() throws IOException
+    {
+        this.roundTrip(new Compression(Codec.LZ, 1, 256));
+    }
+
+    /**
+     * A file that does not start with the header of a session is not a trace.
+     * 
+     * @throws IOException
+     *             If the file cannot be written or read.
+     */
+    @Test
+    public void textFileIsNotATrace() throws IOException
+    {
+        final FileWriter writer = new FileWriter(this.file);
+
+        try
+        {
+            writer.write("method;thread;cpu\n");
+        }
+        finally
+        {
+            writer.close();
+        }
+        assertFalse(TraceReader.isTrace(this.file.getPath()));
+    }
+
+    /**
+     * Writes two sessions with the given compression and checks every record read back.
+     * 
+     * @param compression
+     *            The compression of the trace.
+     * @throws IOException
+     *             If the trace cannot be written or read.
+     */
+    private void roundTrip(Compression compression) throws IOException
+    {
+        final double[] energy = new double[EnergyDimension.values().length];
+        energy[EnergyDimension.CPU.ordinal()] = 1.5;
+        energy[EnergyDimension.DISK.ordinal()] = 0.000002;
+
+        final MethodStatistics statistics = new MethodStatistics("pkg.Type.method", 7);
+        statistics.addTime(30);
+        statistics.addTime(10);
+        statistics.addCpuTime(25);
+        statistics.setAllocatedBytes(4096);
+        statistics.setCpuPower(12.5);
+        final EnergyAccount account = new EnergyAccount();
+        account.add(EnergyDimension.CPU, 0.25);
+        statistics.setEnergy(account);
+
+        final String path = compression.fileName(this.file.getPath());
+        this.file = new File(path);
+
+        TraceWriter writer = new TraceWriter(path, compression);
+        try
+        {
+            for (int i = 0; i < 100; i++)
+            {
+                writer.sample(1000 + i, i % 2 == 0 ? 3 : -1, "pkg.Type.method" + (i % 5), energy);
+            }
+            writer.invocation(2000, statistics);
+        }
+        finally
+        {
+            writer.close();
+        }
+
+        writer = new TraceWriter(path, compression);
+        try
+        {
+            writer.sample(3000, 9, "pkg.Other.run", energy);
+        }
+        finally
+        {
+            writer.close();
+        }
+
+        assertTrue(TraceReader.isTrace(path));
+        final TraceReader reader = new TraceReader(path);
+        try
+        {
+            for (int i = 0; i < 100; i++)
+            {
+                assertTrue(reader.next());
+                assertSample(reader.getRecord(), 1000 + i, i % 2 == 0 ? 3 : -1, "pkg.Type.method" + (i % 5), energy);
+            }
+
+            assertTrue(reader.next());
+            final TraceRecord invocation = reader.getRecord();
+            assertEquals(TraceRecord.Type.INVOCATION, invocation.getType());
+            assertEquals(2000, invocation.getTimestamp());
+            assertEquals(7, invocation.getThreadId());
+            assertEquals("pkg.Type.method", invocation.getMethod());
+            assertEquals(2, invocation.getValue(0));
+            assertEquals(40, invocation.getValue(1));
+            assertEquals(25, invocation.getValue(2));
+            assertEquals(10, invocation.getValue(3));
+            assertEquals(30, invocation.getValue(4));
+            assertEquals(4096, invocation.getValue(5));
+            assertEquals(12.5, invocation.getPower(), 0);
+            assertEquals(0.25, invocation.getEnergy(EnergyDimension.CPU), NANOJOULE);
+            assertEquals(0, invocation.getEnergy(EnergyDimension.DISK), 0);
+
+            assertTrue(reader.next());
+            assertSample(reader.getRecord(), 3000, 9, "pkg.Other.run", energy);
+            assertFalse(reader.next());
+        }
+        finally
+        {
+            reader.close();
+        }
+    }
+
+    /**
+     * Checks a sample record.
+     * 
+     * @param record
+     *            The record read from the trace.
+     * @param timestamp
+     *            The expected timestamp.
+     * @param threadId
+     *            The expected thread id.
+     * @param method
+     *            The expected method.
+     * @param energy
+     *            The expected energy in joules indexed by the {@link EnergyDimension} ordinal.
+     */
+    private static void assertSample(TraceRecord record, long timestamp, long threadId, String method, double[] energy)
+    {
+        assertEquals(TraceRecord.Type.SAMPLE, record.getType());
+        assertEquals(timestamp, record.getTimestamp());
+        assertEquals(threadId, record.getThreadId());
+        assertEquals(method, record.getMethod());
+
+        for (EnergyDimension dimension : EnergyDimension.values())
+        {
+            assertEquals(energy[dimension.ordinal()], record.getEnergy(dimension), NANOJOULE);
+        }
+    }
+}